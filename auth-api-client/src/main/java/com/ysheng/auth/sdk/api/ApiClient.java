@@ -20,6 +20,8 @@ import com.ysheng.auth.sdk.api.resource.ImplicitGrantApi;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 
+import java.util.function.Supplier;
+
 /**
  * Defines the API client class.
  */
@@ -56,7 +58,24 @@ public class ApiClient {
   public ApiClient(
       String target,
       CloseableHttpAsyncClient httpClient) {
-    this.restClient = new RestClient(target, httpClient);
+    this(target, httpClient, null);
+  }
+
+  /**
+   * Constructs an ApiClient object that sends a trace identifier with each
+   * request, so that the requests are traced by the service as part of the
+   * traces of the caller.
+   *
+   * @param target The address of the RESTful endpoint.
+   * @param httpClient The asynchronous HTTP client.
+   * @param traceIdSupplier The supplier of the trace identifier of each request,
+   *                        which may supply null to send no trace identifier.
+   */
+  public ApiClient(
+      String target,
+      CloseableHttpAsyncClient httpClient,
+      Supplier<String> traceIdSupplier) {
+    this.restClient = new RestClient(target, httpClient, traceIdSupplier);
 
     this.clientApi = new ClientApi(restClient);
     this.authCodeGrantApi = new AuthCodeGrantApi(restClient);
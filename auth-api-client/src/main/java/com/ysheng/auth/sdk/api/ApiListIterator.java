@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.sdk.api;
+
+import com.ysheng.auth.model.api.ApiList;
+
+import javax.ws.rs.core.UriBuilder;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Defines an iterator that walks through a paginated list, fetching the next page lazily
+ * when the items of the current page are exhausted.
+ *
+ * @param <T> The type of the list items.
+ */
+public class ApiListIterator<T> implements Iterator<T> {
+
+  // The query parameter of the cursor to retrieve a page of a list.
+  public static final String CURSOR_QUERY_PARAM = "cursor";
+
+  // The query parameter of the number of items in a page of a list.
+  public static final String LIMIT_QUERY_PARAM = "limit";
+
+  /**
+   * Defines the function that fetches a page of a list.
+   *
+   * @param <T> The type of the list items.
+   */
+  @FunctionalInterface
+  public interface PageFetcher<T> {
+
+    /**
+     * Fetches a page of a list.
+     *
+     * @param cursor The cursor of the page, or null for the first page.
+     * @return The page of the list.
+     * @throws Exception The error that contains detail information.
+     */
+    ApiList<T> fetch(String cursor) throws Exception;
+  }
+
+  // The function that fetches a page of the list.
+  private final PageFetcher<T> pageFetcher;
+
+  // The iterator over the items of the current page.
+  private Iterator<T> currentPage;
+
+  // The cursor of the next page.
+  private String nextCursor;
+
+  // Whether the last page has been fetched.
+  private boolean lastPageFetched;
+
+  /**
+   * Constructs an ApiListIterator object.
+   *
+   * @param pageFetcher The function that fetches a page of the list.
+   */
+  public ApiListIterator(PageFetcher<T> pageFetcher) {
+    this.pageFetcher = pageFetcher;
+    this.currentPage = Collections.emptyIterator();
+    this.nextCursor = null;
+    this.lastPageFetched = false;
+  }
+
+  /**
+   * Builds the path to retrieve a page of a list.
+   *
+   * @param path The path template of the list.
+   * @param cursor The cursor of the page, or null for the first page.
+   * @param limit The number of items in the page.
+   * @param values The values of the path template parameters.
+   * @return The path to retrieve the page.
+   */
+  public static String buildPagePath(
+      String path,
+      String cursor,
+      int limit,
+      Object... values) {
+    UriBuilder builder = UriBuilder.fromPath(path).queryParam(LIMIT_QUERY_PARAM, limit);
+    if (cursor != null) {
+      builder.queryParam(CURSOR_QUERY_PARAM, cursor);
+    }
+
+    return builder.build(values).toString();
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!currentPage.hasNext() && !lastPageFetched) {
+      fetchNextPage();
+    }
+
+    return currentPage.hasNext();
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    return currentPage.next();
+  }
+
+  /**
+   * Fetches the next page of the list.
+   */
+  private void fetchNextPage() {
+    ApiList<T> page;
+    try {
+      page = pageFetcher.fetch(nextCursor);
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to fetch the list page at cursor " + nextCursor, e);
+    }
+
+    List<T> items = page.getItems();
+    currentPage = items == null ? Collections.emptyIterator() : items.iterator();
+    nextCursor = page.getNextCursor();
+    lastPageFetched = nextCursor == null;
+  }
+}
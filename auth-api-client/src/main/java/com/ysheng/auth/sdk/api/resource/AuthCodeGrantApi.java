@@ -13,19 +13,23 @@
 
 package com.ysheng.auth.sdk.api.resource;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.ysheng.auth.common.restful.BaseClient;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.authcode.AccessToken;
+import com.ysheng.auth.model.api.authcode.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AccessTokenIssueSpec;
 import com.ysheng.auth.model.api.authcode.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationGrantSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
 import com.ysheng.auth.common.restful.RestClient;
+import com.ysheng.auth.sdk.api.ApiListIterator;
 import org.apache.http.HttpStatus;
 import org.apache.http.concurrent.FutureCallback;
 
 import javax.ws.rs.core.UriBuilder;
+import java.util.Iterator;
 
 /**
  * Defines the APIs related to auth code grant operations.
@@ -44,6 +48,10 @@ public class AuthCodeGrantApi extends BaseClient {
 
   private static final String REVOKE_ACCESS_TOKEN_PATH = ACCESS_TOKEN_PATH + "/revoke";
 
+  private static final String BULK_ACCESS_TOKENS_PATH = "/auth-code/{clientId}/bulk-access-tokens";
+
+  private static final String REVOKE_BULK_ACCESS_TOKENS_PATH = BULK_ACCESS_TOKENS_PATH + "/revoke";
+
   /**
    * Constructs an AuthCodeGrantApi object.
    *
@@ -118,6 +126,39 @@ public class AuthCodeGrantApi extends BaseClient {
         responseHandler);
   }
 
+  /**
+   * Lists a page of the authorization tickets that belong to the client synchronously.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor of the page, or null for the first page.
+   * @param limit The number of items in the page.
+   * @return The page of authorization tickets that belong to the client, with the cursor of the next page if there is any.
+   * @throws Exception The error that contains detail information.
+   */
+  public ApiList<AuthorizationTicket> listAuthorizationTicketsPage(
+      final String clientId,
+      final String cursor,
+      final int limit) throws Exception {
+    return get(
+        ApiListIterator.buildPagePath(AUTHORIZATIONS_PATH, cursor, limit,
+        clientId),
+        HttpStatus.SC_OK,
+        new TypeReference<ApiList<AuthorizationTicket>>() {});
+  }
+
+  /**
+   * Iterates through the authorization tickets that belong to the client, fetching one page at a time.
+   *
+   * @param clientId The client identifier.
+   * @param limit The number of items in each page.
+   * @return An iterator over the authorization tickets that belong to the client.
+   */
+  public Iterator<AuthorizationTicket> iterateAuthorizationTickets(
+      final String clientId,
+      final int limit) {
+    return new ApiListIterator<>(cursor -> listAuthorizationTicketsPage(clientId, cursor, limit));
+  }
+
   /**
    * Gets an authorization ticket synchronously that matches the client identifier and code.
    *
@@ -256,6 +297,39 @@ public class AuthCodeGrantApi extends BaseClient {
         responseHandler);
   }
 
+  /**
+   * Lists a page of the access tokens that belong to the client synchronously.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor of the page, or null for the first page.
+   * @param limit The number of items in the page.
+   * @return The page of access tokens that belong to the client, with the cursor of the next page if there is any.
+   * @throws Exception The error that contains detail information.
+   */
+  public ApiList<AccessToken> listAccessTokensPage(
+      final String clientId,
+      final String cursor,
+      final int limit) throws Exception {
+    return get(
+        ApiListIterator.buildPagePath(ACCESS_TOKENS_PATH, cursor, limit,
+        clientId),
+        HttpStatus.SC_OK,
+        new TypeReference<ApiList<AccessToken>>() {});
+  }
+
+  /**
+   * Iterates through the access tokens that belong to the client, fetching one page at a time.
+   *
+   * @param clientId The client identifier.
+   * @param limit The number of items in each page.
+   * @return An iterator over the access tokens that belong to the client.
+   */
+  public Iterator<AccessToken> iterateAccessTokens(
+      final String clientId,
+      final int limit) {
+    return new ApiListIterator<>(cursor -> listAccessTokensPage(clientId, cursor, limit));
+  }
+
   /**
    * Gets an access token synchronously that matches the client identifier and the token.
    *
@@ -328,4 +402,39 @@ public class AuthCodeGrantApi extends BaseClient {
         HttpStatus.SC_CREATED,
         responseHandler);
   }
+
+  /**
+   * Revokes the listed access tokens, or all access tokens, from a client synchronously.
+   *
+   * @param clientId The client identifier.
+   * @param spec The bulk access token revoke spec.
+   * @throws Exception The error that contains detail information.
+   */
+  public void revokeAccessTokens(
+      final String clientId,
+      final AccessTokenBulkRevokeSpec spec) throws Exception {
+    post(
+        UriBuilder.fromPath(REVOKE_BULK_ACCESS_TOKENS_PATH).build(clientId).toString(),
+        spec,
+        HttpStatus.SC_CREATED);
+  }
+
+  /**
+   * Revokes the listed access tokens, or all access tokens, from a client asynchronously.
+   *
+   * @param clientId The client identifier.
+   * @param spec The bulk access token revoke spec.
+   * @param responseHandler The response handler that handles the revocation.
+   * @throws Exception The error that contains detail information.
+   */
+  public void revokeAccessTokensAsync(
+      final String clientId,
+      final AccessTokenBulkRevokeSpec spec,
+      final FutureCallback<Void> responseHandler) throws Exception {
+    postAsync(
+        UriBuilder.fromPath(REVOKE_BULK_ACCESS_TOKENS_PATH).build(clientId).toString(),
+        spec,
+        HttpStatus.SC_CREATED,
+        responseHandler);
+  }
 }
@@ -13,16 +13,19 @@
 
 package com.ysheng.auth.sdk.api.resource;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.ysheng.auth.common.restful.BaseClient;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.client.Client;
 import com.ysheng.auth.model.api.client.ClientRegistrationSpec;
 import com.ysheng.auth.model.api.client.ClientUnregistrationSpec;
 import com.ysheng.auth.common.restful.RestClient;
+import com.ysheng.auth.sdk.api.ApiListIterator;
 import org.apache.http.HttpStatus;
 import org.apache.http.concurrent.FutureCallback;
 
 import javax.ws.rs.core.UriBuilder;
+import java.util.Iterator;
 
 /**
  * Defines the APIs related to client operations.
@@ -101,6 +104,33 @@ public class ClientApi extends BaseClient {
         responseHandler);
   }
 
+  /**
+   * Lists a page of the clients synchronously.
+   *
+   * @param cursor The cursor of the page, or null for the first page.
+   * @param limit The number of items in the page.
+   * @return The page of clients, with the cursor of the next page if there is any.
+   * @throws Exception The error that contains detail information.
+   */
+  public ApiList<Client> listPage(
+      final String cursor,
+      final int limit) throws Exception {
+    return get(
+        ApiListIterator.buildPagePath(CLIENTS_PATH, cursor, limit),
+        HttpStatus.SC_OK,
+        new TypeReference<ApiList<Client>>() {});
+  }
+
+  /**
+   * Iterates through the clients, fetching one page at a time.
+   *
+   * @param limit The number of items in each page.
+   * @return An iterator over the clients.
+   */
+  public Iterator<Client> iterate(final int limit) {
+    return new ApiListIterator<>(cursor -> listPage(cursor, limit));
+  }
+
   /**
    * Gets a client synchronously that matches the client identifier.
    *
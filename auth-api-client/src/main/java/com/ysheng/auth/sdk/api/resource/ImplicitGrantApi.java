@@ -13,28 +13,37 @@
 
 package com.ysheng.auth.sdk.api.resource;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.ysheng.auth.common.restful.BaseClient;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.implicit.AccessToken;
+import com.ysheng.auth.model.api.implicit.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AuthorizationGrantSpec;
+import com.ysheng.auth.model.api.implicit.BulkAuthorizationGrantSpec;
 import com.ysheng.auth.common.restful.RestClient;
+import com.ysheng.auth.sdk.api.ApiListIterator;
 import org.apache.http.HttpStatus;
 import org.apache.http.concurrent.FutureCallback;
 
 import javax.ws.rs.core.UriBuilder;
+import java.util.Iterator;
 
 /**
  * Defines the APIs related to implicit grant operations.
  */
 public class ImplicitGrantApi extends BaseClient {
 
-  private static final String ACCESS_TOKENS_PATH = "/implicit/{clientId}";
+  private static final String ACCESS_TOKENS_PATH = "/implicit/{clientId}/access-tokens";
 
   private static final String ACCESS_TOKEN_PATH = ACCESS_TOKENS_PATH + "/{accessToken}";
 
   private static final String REVOKE_ACCESS_TOKEN_PATH = ACCESS_TOKEN_PATH + "/revoke";
 
+  private static final String BULK_ACCESS_TOKENS_PATH = "/implicit/{clientId}/bulk-access-tokens";
+
+  private static final String REVOKE_BULK_ACCESS_TOKENS_PATH = BULK_ACCESS_TOKENS_PATH + "/revoke";
+
   /**
    * Constructs an ImplicitGrantApi object.
    *
@@ -80,6 +89,43 @@ public class ImplicitGrantApi extends BaseClient {
         responseHandler);
   }
 
+  /**
+   * Issues a number of access tokens to the client at once synchronously.
+   *
+   * @param clientId The client identifier.
+   * @param spec The bulk access token issue spec.
+   * @return The list of newly issued access tokens.
+   * @throws Exception The error that contains detail information.
+   */
+  public ApiList<AccessToken> issueBulk(
+      final String clientId,
+      final BulkAuthorizationGrantSpec spec) throws Exception {
+    return post(
+        UriBuilder.fromPath(BULK_ACCESS_TOKENS_PATH).build(clientId).toString(),
+        spec,
+        HttpStatus.SC_CREATED,
+        new TypeReference<ApiList<AccessToken>>() {});
+  }
+
+  /**
+   * Issues a number of access tokens to the client at once asynchronously.
+   *
+   * @param clientId The client identifier.
+   * @param spec The bulk access token issue spec.
+   * @param responseHandler The response handler that handles the list of newly issued access tokens.
+   * @throws Exception The error that contains detail information.
+   */
+  public void issueBulkAsync(
+      final String clientId,
+      final BulkAuthorizationGrantSpec spec,
+      final FutureCallback<ApiList<AccessToken>> responseHandler) throws Exception {
+    postAsync(
+        UriBuilder.fromPath(BULK_ACCESS_TOKENS_PATH).build(clientId).toString(),
+        spec,
+        HttpStatus.SC_CREATED,
+        responseHandler);
+  }
+
   /**
    * Lists the access tokens that belong to the client synchronously.
    *
@@ -109,6 +155,39 @@ public class ImplicitGrantApi extends BaseClient {
         responseHandler);
   }
 
+  /**
+   * Lists a page of the access tokens that belong to the client synchronously.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor of the page, or null for the first page.
+   * @param limit The number of items in the page.
+   * @return The page of access tokens that belong to the client, with the cursor of the next page if there is any.
+   * @throws Exception The error that contains detail information.
+   */
+  public ApiList<AccessToken> listAccessTokensPage(
+      final String clientId,
+      final String cursor,
+      final int limit) throws Exception {
+    return get(
+        ApiListIterator.buildPagePath(ACCESS_TOKENS_PATH, cursor, limit,
+        clientId),
+        HttpStatus.SC_OK,
+        new TypeReference<ApiList<AccessToken>>() {});
+  }
+
+  /**
+   * Iterates through the access tokens that belong to the client, fetching one page at a time.
+   *
+   * @param clientId The client identifier.
+   * @param limit The number of items in each page.
+   * @return An iterator over the access tokens that belong to the client.
+   */
+  public Iterator<AccessToken> iterateAccessTokens(
+      final String clientId,
+      final int limit) {
+    return new ApiListIterator<>(cursor -> listAccessTokensPage(clientId, cursor, limit));
+  }
+
   /**
    * Gets an access token synchronously that matches the client identifier and the token.
    *
@@ -181,4 +260,39 @@ public class ImplicitGrantApi extends BaseClient {
         HttpStatus.SC_CREATED,
         responseHandler);
   }
+
+  /**
+   * Revokes the listed access tokens, or all access tokens, from a client synchronously.
+   *
+   * @param clientId The client identifier.
+   * @param spec The bulk access token revoke spec.
+   * @throws Exception The error that contains detail information.
+   */
+  public void revokeAccessTokens(
+      final String clientId,
+      final AccessTokenBulkRevokeSpec spec) throws Exception {
+    post(
+        UriBuilder.fromPath(REVOKE_BULK_ACCESS_TOKENS_PATH).build(clientId).toString(),
+        spec,
+        HttpStatus.SC_CREATED);
+  }
+
+  /**
+   * Revokes the listed access tokens, or all access tokens, from a client asynchronously.
+   *
+   * @param clientId The client identifier.
+   * @param spec The bulk access token revoke spec.
+   * @param responseHandler The response handler that handles the revocation.
+   * @throws Exception The error that contains detail information.
+   */
+  public void revokeAccessTokensAsync(
+      final String clientId,
+      final AccessTokenBulkRevokeSpec spec,
+      final FutureCallback<Void> responseHandler) throws Exception {
+    postAsync(
+        UriBuilder.fromPath(REVOKE_BULK_ACCESS_TOKENS_PATH).build(clientId).toString(),
+        spec,
+        HttpStatus.SC_CREATED,
+        responseHandler);
+  }
 }
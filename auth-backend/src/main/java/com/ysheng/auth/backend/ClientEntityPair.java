@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend;
+
+import com.ysheng.auth.model.api.client.Client;
+
+/**
+ * Defines an entity that belongs to a client, fetched together with the client.
+ *
+ * @param <T> The type of the entity.
+ */
+public class ClientEntityPair<T> {
+
+  // The client object, or null if the client does not exist.
+  private final Client client;
+
+  // The entity object, or null if the entity does not exist.
+  private final T entity;
+
+  /**
+   * Constructs a ClientEntityPair object.
+   *
+   * @param client The client object.
+   * @param entity The entity object.
+   */
+  public ClientEntityPair(Client client, T entity) {
+    this.client = client;
+    this.entity = entity;
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public Client getClient() {
+    return client;
+  }
+
+  public T getEntity() {
+    return entity;
+  }
+}
@@ -13,10 +13,14 @@
 
 package com.ysheng.auth.backend;
 
+import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
 import com.ysheng.auth.model.api.client.Client;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines the interface of backend database related functions.
@@ -49,6 +53,28 @@ public interface Database {
    */
   Client findClientById(String clientId);
 
+  /**
+   * Finds the credentials of a client by client identifier, i.e. a client
+   * object of which only the identifier, type and secret are populated.
+   *
+   * @param clientId The client identifier to be matched.
+   * @return A client object with the credentials, or null if the client does not exist.
+   */
+  Client findClientCredentialsById(String clientId);
+
+  /**
+   * Replaces the secret of a client, only if the client still holds the
+   * expected secret, e.g. to rehash a client secret that is stored in an
+   * older format.
+   *
+   * @param clientId The client identifier.
+   * @param expectedSecret The secret that the client is expected to hold.
+   * @param secret The new secret of the client.
+   * @return True if the secret is replaced, false if the client does not
+   *         exist or holds another secret.
+   */
+  boolean updateClientSecret(String clientId, String expectedSecret, String secret);
+
   /**
    * Gets a list of all clients in database.
    *
@@ -56,6 +82,79 @@ public interface Database {
    */
   List<Client> listClients();
 
+  /**
+   * Gets a page of clients in database.
+   *
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of clients in the page.
+   * @return A page of clients.
+   * @throws IllegalArgumentException If the cursor is malformed.
+   */
+  ApiList<Client> listClients(String cursor, int limit);
+
+  /**
+   * Gets a lazy iterator over all clients in database, which loads the
+   * clients in chunks as it advances.
+   *
+   * @return An iterator over all clients in database.
+   */
+  Iterator<Client> iterateClients();
+
+  /**
+   * Removes a client object from database and marks the client as
+   * tombstoned, so that the entities that belong to it can be removed later.
+   *
+   * @param clientId The client identifier.
+   */
+  void tombstoneClient(String clientId);
+
+  /**
+   * Gets the identifiers of the tombstoned clients, whose entities are not
+   * all removed yet.
+   *
+   * @return A list of client identifiers.
+   */
+  List<String> listTombstonedClients();
+
+  /**
+   * Removes a batch of the authorization tickets and access tokens that
+   * belong to a client.
+   *
+   * @param clientId The client identifier.
+   * @param limit The maximum number of entities to be removed.
+   * @return The entities that are removed, whose count is zero once the
+   *         client has no entities left.
+   */
+  RemovedClientEntities removeClientEntities(String clientId, int limit);
+
+  /**
+   * Removes the tombstone of a client once its entities are removed.
+   *
+   * @param clientId The client identifier.
+   */
+  void removeClientTombstone(String clientId);
+
+  /**
+   * Acquires the lease on the cleanup of a tombstoned client, or renews it if
+   * the owner already holds it, so that only one instance cleans up a client
+   * at a time. The lease expires unless it is renewed within its lifetime.
+   *
+   * @param clientId The client identifier.
+   * @param owner The identifier of the instance that cleans up the client.
+   * @param leaseMillis The lifetime in milliseconds of the lease.
+   * @return True if the owner holds the lease, false if another owner does.
+   */
+  boolean tryLeaseClientCleanup(String clientId, String owner, long leaseMillis);
+
+  /**
+   * Releases the lease on the cleanup of a tombstoned client, if the owner
+   * still holds it.
+   *
+   * @param clientId The client identifier.
+   * @param owner The identifier of the instance that cleans up the client.
+   */
+  void releaseClientCleanupLease(String clientId, String owner);
+
   ///
   /// Auth Code Grant related functions.
   ///
@@ -75,6 +174,29 @@ public interface Database {
    */
   List<AuthorizationTicket> listAuthorizationTickets(String clientId);
 
+  /**
+   * Gets a page of authorization tickets that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of authorization tickets in the page.
+   * @return A page of authorization tickets.
+   * @throws IllegalArgumentException If the cursor is malformed.
+   */
+  ApiList<AuthorizationTicket> listAuthorizationTickets(
+      String clientId,
+      String cursor,
+      int limit);
+
+  /**
+   * Gets a lazy iterator over the authorization tickets that belong to the
+   * client, which loads the authorization tickets in chunks as it advances.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over authorization tickets.
+   */
+  Iterator<AuthorizationTicket> iterateAuthorizationTickets(String clientId);
+
   /**
    * Removes an authorization ticket object from database.
    *
@@ -94,6 +216,34 @@ public interface Database {
       String code,
       String clientId);
 
+  /**
+   * Finds a client object and one of its authorization ticket objects together.
+   * The client object is only guaranteed to have its credentials populated.
+   *
+   * @param clientId The client identifier to be matched.
+   * @param code The authorization code to be matched.
+   * @return The client and the authorization ticket, either of which is null if it does not exist.
+   */
+  ClientEntityPair<AuthorizationTicket> findClientAndAuthorizationTicket(
+      String clientId,
+      String code);
+
+  /**
+   * Redeems an authorization ticket for an access token, atomically. The
+   * authorization ticket is removed and the access token is stored only if
+   * the authorization ticket still exists, so that an authorization ticket
+   * can be redeemed at most once.
+   *
+   * @param clientId The client identifier.
+   * @param code The authorization code of the authorization ticket to be redeemed.
+   * @param accessToken The access token object to be stored.
+   * @return True if the authorization ticket is redeemed, or false if it does not exist.
+   */
+  boolean redeemAuthorizationTicket(
+      String clientId,
+      String code,
+      com.ysheng.auth.model.api.authcode.AccessToken accessToken);
+
   /**
    * Stores an access token object in database.
    *
@@ -109,6 +259,40 @@ public interface Database {
    */
   List<com.ysheng.auth.model.api.authcode.AccessToken> listAccessTokens(String clientId);
 
+  /**
+   * Gets a page of access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   * @throws IllegalArgumentException If the cursor is malformed.
+   */
+  ApiList<com.ysheng.auth.model.api.authcode.AccessToken> listAccessTokens(
+      String clientId,
+      String cursor,
+      int limit);
+
+  /**
+   * Gets a lazy iterator over the access tokens that belong to the client,
+   * which loads the access tokens in chunks as it advances.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over access tokens.
+   */
+  Iterator<com.ysheng.auth.model.api.authcode.AccessToken> iterateAccessTokens(String clientId);
+
+  /**
+   * Gets a lazy iterator over the tokens of the access tokens that belong to
+   * the client, which are read from the index without loading the access
+   * token objects. Access tokens that have expired may still be returned
+   * until they are pruned from the index.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over the tokens of access tokens.
+   */
+  Iterator<String> iterateAccessTokenStrings(String clientId);
+
   /**
    * Removes an access token object from database.
    *
@@ -117,6 +301,16 @@ public interface Database {
    */
   void removeAccessToken(String clientId, String accessToken);
 
+  /**
+   * Removes access token objects of a client from database in batches.
+   * Access tokens that do not exist are ignored.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed, which leaves out those that do not exist.
+   */
+  List<String> removeAccessTokens(String clientId, Collection<String> accessTokens);
+
   /**
    * Finds an access token object by client ID and token.
    *
@@ -128,6 +322,15 @@ public interface Database {
       String clientId,
       String accessToken);
 
+  /**
+   * Checks whether an access token may exist, without a round trip if possible.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return False if the access token definitely does not exist, or true if it may exist.
+   */
+  boolean mayContainAccessToken(String clientId, String accessToken);
+
   ///
   /// Implicit Grant related functions.
   ///
@@ -139,6 +342,13 @@ public interface Database {
    */
   void storeImplictAccessToken(com.ysheng.auth.model.api.implicit.AccessToken accessToken);
 
+  /**
+   * Stores implicit access token objects in database in batches.
+   *
+   * @param accessTokens The access token objects to be stored.
+   */
+  void storeImplicitAccessTokens(List<com.ysheng.auth.model.api.implicit.AccessToken> accessTokens);
+
   /**
    * Gets a list of implicit access tokens that belong to the client.
    *
@@ -147,6 +357,40 @@ public interface Database {
    */
   List<com.ysheng.auth.model.api.implicit.AccessToken> listImplicitAccessTokens(String clientId);
 
+  /**
+   * Gets a page of implicit access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   * @throws IllegalArgumentException If the cursor is malformed.
+   */
+  ApiList<com.ysheng.auth.model.api.implicit.AccessToken> listImplicitAccessTokens(
+      String clientId,
+      String cursor,
+      int limit);
+
+  /**
+   * Gets a lazy iterator over the implicit access tokens that belong to the
+   * client, which loads the access tokens in chunks as it advances.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over access tokens.
+   */
+  Iterator<com.ysheng.auth.model.api.implicit.AccessToken> iterateImplicitAccessTokens(String clientId);
+
+  /**
+   * Gets a lazy iterator over the tokens of the implicit access tokens that
+   * belong to the client, which are read from the index without loading the
+   * access token objects. Access tokens that have expired may still be
+   * returned until they are pruned from the index.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over the tokens of access tokens.
+   */
+  Iterator<String> iterateImplicitAccessTokenStrings(String clientId);
+
   /**
    * Removes an implicit access token object from database.
    *
@@ -155,6 +399,16 @@ public interface Database {
    */
   void removeImplictAccessToken(String clientId, String accessToken);
 
+  /**
+   * Removes implicit access token objects of a client from database in
+   * batches. Access tokens that do not exist are ignored.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed, which leaves out those that do not exist.
+   */
+  List<String> removeImplicitAccessTokens(String clientId, Collection<String> accessTokens);
+
   /**
    * Finds an implicit access token by client ID and token.
    *
@@ -165,4 +419,85 @@ public interface Database {
   com.ysheng.auth.model.api.implicit.AccessToken findImplicitAccessTokenByClientIdAndToken(
       String clientId,
       String accessToken);
+
+  /**
+   * Checks whether an implicit access token may exist, without a round trip if possible.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return False if the access token definitely does not exist, or true if it may exist.
+   */
+  boolean mayContainImplicitAccessToken(String clientId, String accessToken);
+
+  ///
+  /// Revoked access token related functions.
+  ///
+
+  /**
+   * Stores a revoked access token in database, until the access token expires.
+   *
+   * @param accessToken The access token.
+   * @param expiresIn The remaining lifetime in seconds of the access token.
+   */
+  void storeRevokedAccessToken(String accessToken, long expiresIn);
+
+  /**
+   * Stores revoked access tokens in database in batches, each until it expires.
+   *
+   * @param expiresInByAccessToken The remaining lifetimes in seconds by the access tokens.
+   */
+  void storeRevokedAccessTokens(Map<String, Long> expiresInByAccessToken);
+
+  /**
+   * Gets a list of revoked access tokens that have not expired yet.
+   *
+   * @return A list of access tokens.
+   */
+  List<String> listRevokedAccessTokens();
+
+  /**
+   * Stores a revocation of all the access tokens that are issued to a client
+   * at or before a time, until the last of them expires.
+   *
+   * @param clientId The client identifier.
+   * @param notBefore The time in seconds since the epoch, at or before which the access tokens are revoked.
+   * @param expiresIn The lifetime in seconds of the revocation.
+   */
+  void storeRevokedClient(String clientId, long notBefore, long expiresIn);
+
+  /**
+   * Gets the revocations of clients that have not expired yet.
+   *
+   * @return The times in seconds since the epoch, at or before which the access tokens are revoked,
+   *         by the client identifiers.
+   */
+  Map<String, Long> listRevokedClients();
+
+  ///
+  /// Rate limit related functions.
+  ///
+
+  /**
+   * Adds requests to rate limit counters that are shared by all the frontend
+   * instances, and estimates the number of requests of each counter in the
+   * sliding window that ends now. A counter is kept per fixed window, and the
+   * estimate weights the count of the previous window by the part of it that
+   * the sliding window still covers.
+   *
+   * @param counts The numbers of requests to be added, which may be zero to only get the estimates,
+   *               by the names of the counters, e.g. a client identifier and an endpoint class.
+   * @param windowMillis The length of the window in milliseconds.
+   * @return The estimated numbers of requests in the sliding window, including the added ones,
+   *         by the names of the counters.
+   */
+  Map<String, Double> addRateLimitCounts(Map<String, Long> counts, long windowMillis);
+
+  ///
+  /// Lifecycle related functions.
+  ///
+
+  /**
+   * Closes the database and releases its resources.
+   */
+  void close();
 }
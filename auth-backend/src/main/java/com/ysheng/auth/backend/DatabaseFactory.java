@@ -13,14 +13,30 @@
 
 package com.ysheng.auth.backend;
 
+import com.codahale.metrics.MetricRegistry;
+import com.ysheng.auth.backend.cache.AccessTokenCachingDatabase;
+import com.ysheng.auth.backend.cache.ClientCache;
+import com.ysheng.auth.backend.cache.ClientCachingDatabase;
+import com.ysheng.auth.backend.cache.EntityCache;
+import com.ysheng.auth.backend.filter.AccessTokenFilteringDatabase;
+import com.ysheng.auth.backend.metrics.TimingProxy;
+import com.ysheng.auth.backend.redis.RedisClient;
 import com.ysheng.auth.backend.redis.RedisClientImpl;
 import com.ysheng.auth.backend.redis.RedisDatabase;
+import com.ysheng.auth.backend.redis.RedisInvalidationChannel;
+import com.ysheng.auth.backend.redis.RedisStorageType;
+import com.ysheng.auth.backend.redis.connection.RedisClusterConnection;
 import com.ysheng.auth.backend.redis.connection.RedisConnection;
 import com.ysheng.auth.backend.redis.connection.RedisSentinelConnection;
 import com.ysheng.auth.backend.redis.connection.RedisSimpleConnection;
+import com.ysheng.auth.model.configuration.backend.AccessTokenCacheConfiguration;
+import com.ysheng.auth.model.configuration.backend.AccessTokenFilterConfiguration;
 import com.ysheng.auth.model.configuration.backend.BackendConfiguration;
+import com.ysheng.auth.model.configuration.backend.ClientCacheConfiguration;
 import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Defines a database factory that produces database object.
  */
@@ -34,6 +50,22 @@ public class DatabaseFactory {
    * @throws Exception The exception that contains detail error description.
    */
   public Database produce(BackendConfiguration backendConfiguration) throws Exception {
+    return produce(backendConfiguration, null);
+  }
+
+  /**
+   * Produces a database object, of which the functions are timed if a metric
+   * registry is given.
+   *
+   * @param backendConfiguration The backend configuration.
+   * @param metricRegistry The metric registry that the timers are registered with,
+   *                       or null if the functions are not timed.
+   * @return A database object.
+   * @throws Exception The exception that contains detail error description.
+   */
+  public Database produce(
+      BackendConfiguration backendConfiguration,
+      MetricRegistry metricRegistry) throws Exception {
     if (backendConfiguration.getDatabaseType() == null) {
       throw new IllegalArgumentException("Database type cannot be null");
     }
@@ -41,22 +73,92 @@ public class DatabaseFactory {
     String databaseType = backendConfiguration.getDatabaseType().trim();
 
     if (databaseType.equalsIgnoreCase("redis")) {
-      return produceRedisDatabase(backendConfiguration.getRedisConfiguration());
+      return produceRedisDatabase(
+          backendConfiguration.getRedisConfiguration(),
+          backendConfiguration.getClientCacheConfiguration(),
+          backendConfiguration.getAccessTokenCacheConfiguration(),
+          backendConfiguration.getAccessTokenFilterConfiguration(),
+          metricRegistry);
     }
 
     throw new IllegalArgumentException("Unknown database type: " + databaseType);
   }
 
-  private Database produceRedisDatabase(RedisConfiguration redisConfiguration) {
+  private Database produceRedisDatabase(
+      RedisConfiguration redisConfiguration,
+      ClientCacheConfiguration clientCacheConfiguration,
+      AccessTokenCacheConfiguration accessTokenCacheConfiguration,
+      AccessTokenFilterConfiguration accessTokenFilterConfiguration,
+      MetricRegistry metricRegistry) {
     RedisConnection connection;
     if (redisConfiguration.getConnectionType().equalsIgnoreCase("simple")) {
       connection = new RedisSimpleConnection(redisConfiguration);
     } else if (redisConfiguration.getConnectionType().equalsIgnoreCase("sentinel")) {
       connection = new RedisSentinelConnection(redisConfiguration);
+    } else if (redisConfiguration.getConnectionType().equalsIgnoreCase("cluster")) {
+      connection = new RedisClusterConnection(redisConfiguration);
     } else {
       throw new IllegalArgumentException("Unknown Redis connection type: " + redisConfiguration.getConnectionType());
     }
 
-    return new RedisDatabase(new RedisClientImpl(connection));
+    RedisStorageType clientStorageType = produceRedisStorageType(redisConfiguration.getClientStorageType());
+
+    connection.open();
+
+    RedisClient redisClient = new RedisClientImpl(connection);
+    Database database = new RedisDatabase(redisClient, clientStorageType);
+    if (metricRegistry != null) {
+      database = TimingProxy.wrap(Database.class, database, metricRegistry, "database.");
+    }
+    if (clientCacheConfiguration != null && clientCacheConfiguration.getMaximumSize() > 0) {
+      database = new ClientCachingDatabase(
+          database,
+          produceClientCache(clientCacheConfiguration),
+          new RedisInvalidationChannel(redisClient, clientCacheConfiguration.getInvalidationChannel()));
+    }
+    if (accessTokenCacheConfiguration != null && accessTokenCacheConfiguration.getMaximumSize() > 0) {
+      database = new AccessTokenCachingDatabase(
+          database,
+          produceAccessTokenCache(accessTokenCacheConfiguration),
+          produceAccessTokenCache(accessTokenCacheConfiguration),
+          new RedisInvalidationChannel(redisClient, accessTokenCacheConfiguration.getInvalidationChannel()));
+    }
+    if (accessTokenFilterConfiguration != null && accessTokenFilterConfiguration.isEnabled()) {
+      database = new AccessTokenFilteringDatabase(
+          database,
+          accessTokenFilterConfiguration.getInitialCapacity(),
+          accessTokenFilterConfiguration.getRebuildIntervalSeconds(),
+          accessTokenFilterConfiguration.getRebuildJitterSeconds(),
+          TimeUnit.MILLISECONDS.toNanos(accessTokenFilterConfiguration.getGraceMillis()),
+          new RedisInvalidationChannel(redisClient, accessTokenFilterConfiguration.getChangeChannel()),
+          System::nanoTime);
+    }
+
+    return database;
+  }
+
+  private ClientCache produceClientCache(ClientCacheConfiguration clientCacheConfiguration) {
+    return new ClientCache(
+        clientCacheConfiguration.getMaximumSize(),
+        clientCacheConfiguration.getTtlSeconds(),
+        clientCacheConfiguration.getNegativeTtlSeconds());
+  }
+
+  private <T> EntityCache<T> produceAccessTokenCache(AccessTokenCacheConfiguration accessTokenCacheConfiguration) {
+    return new EntityCache<>(
+        accessTokenCacheConfiguration.getMaximumSize(),
+        TimeUnit.MILLISECONDS.toNanos(accessTokenCacheConfiguration.getTtlMillis()),
+        TimeUnit.MILLISECONDS.toNanos(accessTokenCacheConfiguration.getNegativeTtlMillis()),
+        System::nanoTime);
+  }
+
+  private RedisStorageType produceRedisStorageType(String storageType) {
+    if (storageType == null || storageType.equalsIgnoreCase("string")) {
+      return RedisStorageType.STRING;
+    } else if (storageType.equalsIgnoreCase("hash")) {
+      return RedisStorageType.HASH;
+    }
+
+    throw new IllegalArgumentException("Unknown Redis storage type: " + storageType);
   }
 }
@@ -0,0 +1,594 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend;
+
+import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
+import com.ysheng.auth.model.api.client.Client;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Defines a database that forwards every function to another database, so
+ * that a decorator only overrides the functions that it changes.
+ */
+public abstract class ForwardingDatabase implements Database {
+
+  // The database that the functions are forwarded to.
+  private final Database database;
+
+  /**
+   * Constructs a ForwardingDatabase object.
+   *
+   * @param database The database that the functions are forwarded to.
+   */
+  protected ForwardingDatabase(Database database) {
+    this.database = database;
+  }
+
+  /**
+   * Gets the database that the functions are forwarded to.
+   *
+   * @return The database that the functions are forwarded to.
+   */
+  public Database getDatabase() {
+    return database;
+  }
+
+  ///
+  /// Client related functions.
+  ///
+
+  /**
+   * Stores a client object in database.
+   *
+   * @param client The client object to be stored.
+   */
+  public void storeClient(Client client) {
+    database.storeClient(client);
+  }
+
+  /**
+   * Removes a client object from database.
+   *
+   * @param clientId The client identifier.
+   */
+  public void removeClient(String clientId) {
+    database.removeClient(clientId);
+  }
+
+  /**
+   * Finds a client object by client identifier.
+   *
+   * @param clientId The client identifier to be matched.
+   * @return A client object that matches the client identifier.
+   */
+  public Client findClientById(String clientId) {
+    return database.findClientById(clientId);
+  }
+
+  /**
+   * Finds the credentials of a client by client identifier, i.e. a client
+   * object of which only the identifier, type and secret are populated.
+   *
+   * @param clientId The client identifier to be matched.
+   * @return A client object with the credentials, or null if the client does not exist.
+   */
+  public Client findClientCredentialsById(String clientId) {
+    return database.findClientCredentialsById(clientId);
+  }
+
+  /**
+   * Replaces the secret of a client, only if the client still holds the
+   * expected secret.
+   *
+   * @param clientId The client identifier.
+   * @param expectedSecret The secret that the client is expected to hold.
+   * @param secret The new secret of the client.
+   * @return True if the secret is replaced, false otherwise.
+   */
+  public boolean updateClientSecret(String clientId, String expectedSecret, String secret) {
+    return database.updateClientSecret(clientId, expectedSecret, secret);
+  }
+
+  /**
+   * Gets a list of all clients in database.
+   *
+   * @return A list of all clients in database.
+   */
+  public List<Client> listClients() {
+    return database.listClients();
+  }
+
+  /**
+   * Gets a page of clients in database.
+   *
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of clients in the page.
+   * @return A page of clients.
+   */
+  public ApiList<Client> listClients(String cursor, int limit) {
+    return database.listClients(cursor, limit);
+  }
+
+  /**
+   * Gets a lazy iterator over all clients in database.
+   *
+   * @return An iterator over all clients in database.
+   */
+  public Iterator<Client> iterateClients() {
+    return database.iterateClients();
+  }
+
+  /**
+   * Removes a client object from database and marks the client as tombstoned.
+   *
+   * @param clientId The client identifier.
+   */
+  public void tombstoneClient(String clientId) {
+    database.tombstoneClient(clientId);
+  }
+
+  /**
+   * Gets the identifiers of the tombstoned clients.
+   *
+   * @return A list of client identifiers.
+   */
+  public List<String> listTombstonedClients() {
+    return database.listTombstonedClients();
+  }
+
+  /**
+   * Removes a batch of the entities that belong to a client.
+   *
+   * @param clientId The client identifier.
+   * @param limit The maximum number of entities to be removed.
+   * @return The entities that are removed.
+   */
+  public RemovedClientEntities removeClientEntities(String clientId, int limit) {
+    return database.removeClientEntities(clientId, limit);
+  }
+
+  /**
+   * Removes the tombstone of a client.
+   *
+   * @param clientId The client identifier.
+   */
+  public void removeClientTombstone(String clientId) {
+    database.removeClientTombstone(clientId);
+  }
+
+  /**
+   * Acquires the lease on the cleanup of a tombstoned client, or renews it if
+   * the owner already holds it, so that only one instance cleans up a client
+   * at a time. The lease expires unless it is renewed within its lifetime.
+   *
+   * @param clientId The client identifier.
+   * @param owner The identifier of the instance that cleans up the client.
+   * @param leaseMillis The lifetime in milliseconds of the lease.
+   * @return True if the owner holds the lease, false if another owner does.
+   */
+  public boolean tryLeaseClientCleanup(String clientId, String owner, long leaseMillis) {
+    return database.tryLeaseClientCleanup(clientId, owner, leaseMillis);
+  }
+
+  /**
+   * Releases the lease on the cleanup of a tombstoned client, if the owner
+   * still holds it.
+   *
+   * @param clientId The client identifier.
+   * @param owner The identifier of the instance that cleans up the client.
+   */
+  public void releaseClientCleanupLease(String clientId, String owner) {
+    database.releaseClientCleanupLease(clientId, owner);
+  }
+
+  ///
+  /// Auth Code Grant related functions.
+  ///
+
+  /**
+   * Stores an authorization ticket object in database.
+   *
+   * @param authorizationTicket The authorization ticket object to be stored.
+   */
+  public void storeAuthorizationTicket(AuthorizationTicket authorizationTicket) {
+    database.storeAuthorizationTicket(authorizationTicket);
+  }
+
+  /**
+   * Gets a list of authorization tickets that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return A list of authorization tickets.
+   */
+  public List<AuthorizationTicket> listAuthorizationTickets(String clientId) {
+    return database.listAuthorizationTickets(clientId);
+  }
+
+  /**
+   * Gets a page of authorization tickets that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of authorization tickets in the page.
+   * @return A page of authorization tickets.
+   */
+  public ApiList<AuthorizationTicket> listAuthorizationTickets(
+      String clientId,
+      String cursor,
+      int limit) {
+    return database.listAuthorizationTickets(clientId, cursor, limit);
+  }
+
+  /**
+   * Gets a lazy iterator over the authorization tickets that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over authorization tickets.
+   */
+  public Iterator<AuthorizationTicket> iterateAuthorizationTickets(String clientId) {
+    return database.iterateAuthorizationTickets(clientId);
+  }
+
+  /**
+   * Removes an authorization ticket object from database.
+   *
+   * @param clientId  The client identifier.
+   * @param code The authorization code.
+   */
+  public void removeAuthorizationTicket(String clientId, String code) {
+    database.removeAuthorizationTicket(clientId, code);
+  }
+
+  /**
+   * Finds an authorization ticket object by client ID and authorization code.
+   *
+   * @param code The authorization code to be matched.
+   * @param clientId The client identifier to be matched.
+   * @return An authorization ticket object that matches the authorization code and client identifier.
+   */
+  public AuthorizationTicket findAuthorizationTicketByCodeAndClientId(
+      String code,
+      String clientId) {
+    return database.findAuthorizationTicketByCodeAndClientId(code, clientId);
+  }
+
+  /**
+   * Finds a client object and one of its authorization ticket objects together.
+   * The client object is only guaranteed to have its credentials populated.
+   *
+   * @param clientId The client identifier to be matched.
+   * @param code The authorization code to be matched.
+   * @return The client and the authorization ticket, either of which is null if it does not exist.
+   */
+  public ClientEntityPair<AuthorizationTicket> findClientAndAuthorizationTicket(
+      String clientId,
+      String code) {
+    return database.findClientAndAuthorizationTicket(clientId, code);
+  }
+
+  /**
+   * Redeems an authorization ticket for an access token, atomically. The
+   * authorization ticket is removed and the access token is stored only if
+   * the authorization ticket still exists, so that an authorization ticket
+   * can be redeemed at most once.
+   *
+   * @param clientId The client identifier.
+   * @param code The authorization code of the authorization ticket to be redeemed.
+   * @param accessToken The access token object to be stored.
+   * @return True if the authorization ticket is redeemed, or false if it does not exist.
+   */
+  public boolean redeemAuthorizationTicket(
+      String clientId,
+      String code,
+      com.ysheng.auth.model.api.authcode.AccessToken accessToken) {
+    return database.redeemAuthorizationTicket(clientId, code, accessToken);
+  }
+
+  /**
+   * Stores an access token object in database.
+   *
+   * @param accessToken The access token object to be stored.
+   */
+  public void storeAccessToken(com.ysheng.auth.model.api.authcode.AccessToken accessToken) {
+    database.storeAccessToken(accessToken);
+  }
+
+  /**
+   * Gets a list of access tokens that belong to the client.
+   *
+   * @param clientId The clietn identifier.
+   * @return A list of access tokens.
+   */
+  public List<com.ysheng.auth.model.api.authcode.AccessToken> listAccessTokens(String clientId) {
+    return database.listAccessTokens(clientId);
+  }
+
+  /**
+   * Gets a page of access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   */
+  public ApiList<com.ysheng.auth.model.api.authcode.AccessToken> listAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) {
+    return database.listAccessTokens(clientId, cursor, limit);
+  }
+
+  /**
+   * Gets a lazy iterator over the access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over access tokens.
+   */
+  public Iterator<com.ysheng.auth.model.api.authcode.AccessToken> iterateAccessTokens(String clientId) {
+    return database.iterateAccessTokens(clientId);
+  }
+
+  /**
+   * Gets a lazy iterator over the tokens of the access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over the tokens of access tokens.
+   */
+  public Iterator<String> iterateAccessTokenStrings(String clientId) {
+    return database.iterateAccessTokenStrings(clientId);
+  }
+
+  /**
+   * Removes an access token object from database.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   */
+  public void removeAccessToken(String clientId, String accessToken) {
+    database.removeAccessToken(clientId, accessToken);
+  }
+
+  /**
+   * Removes access token objects of a client from database in batches.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed.
+   */
+  public List<String> removeAccessTokens(String clientId, Collection<String> accessTokens) {
+    return database.removeAccessTokens(clientId, accessTokens);
+  }
+
+  /**
+   * Finds an access token object by client ID and token.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return An access token object that matches the client ID and token.
+   */
+  public com.ysheng.auth.model.api.authcode.AccessToken findAccessTokenByClientIdAndToken(
+      String clientId,
+      String accessToken) {
+    return database.findAccessTokenByClientIdAndToken(clientId, accessToken);
+  }
+
+  /**
+   * Checks whether an access token may exist, without a round trip if possible.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return False if the access token definitely does not exist, or true if it may exist.
+   */
+  public boolean mayContainAccessToken(String clientId, String accessToken) {
+    return database.mayContainAccessToken(clientId, accessToken);
+  }
+
+  ///
+  /// Implicit Grant related functions.
+  ///
+
+  /**
+   * Stores an implicit access token object in database.
+   *
+   * @param accessToken The access token object to be stored.
+   */
+  public void storeImplictAccessToken(com.ysheng.auth.model.api.implicit.AccessToken accessToken) {
+    database.storeImplictAccessToken(accessToken);
+  }
+
+  /**
+   * Stores implicit access token objects in database in batches.
+   *
+   * @param accessTokens The access token objects to be stored.
+   */
+  public void storeImplicitAccessTokens(List<com.ysheng.auth.model.api.implicit.AccessToken> accessTokens) {
+    database.storeImplicitAccessTokens(accessTokens);
+  }
+
+  /**
+   * Gets a list of implicit access tokens that belong to the client.
+   *
+   * @param clientId The clietn identifier.
+   * @return A list of access tokens.
+   */
+  public List<com.ysheng.auth.model.api.implicit.AccessToken> listImplicitAccessTokens(String clientId) {
+    return database.listImplicitAccessTokens(clientId);
+  }
+
+  /**
+   * Gets a page of implicit access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   */
+  public ApiList<com.ysheng.auth.model.api.implicit.AccessToken> listImplicitAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) {
+    return database.listImplicitAccessTokens(clientId, cursor, limit);
+  }
+
+  /**
+   * Gets a lazy iterator over the implicit access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over access tokens.
+   */
+  public Iterator<com.ysheng.auth.model.api.implicit.AccessToken> iterateImplicitAccessTokens(String clientId) {
+    return database.iterateImplicitAccessTokens(clientId);
+  }
+
+  /**
+   * Gets a lazy iterator over the tokens of the implicit access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over the tokens of access tokens.
+   */
+  public Iterator<String> iterateImplicitAccessTokenStrings(String clientId) {
+    return database.iterateImplicitAccessTokenStrings(clientId);
+  }
+
+  /**
+   * Removes an implicit access token object from database.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   */
+  public void removeImplictAccessToken(String clientId, String accessToken) {
+    database.removeImplictAccessToken(clientId, accessToken);
+  }
+
+  /**
+   * Removes implicit access token objects of a client from database in batches.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed.
+   */
+  public List<String> removeImplicitAccessTokens(String clientId, Collection<String> accessTokens) {
+    return database.removeImplicitAccessTokens(clientId, accessTokens);
+  }
+
+  /**
+   * Finds an implicit access token by client ID and token.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return An implicit access token object that matches the client ID and token.
+   */
+  public com.ysheng.auth.model.api.implicit.AccessToken findImplicitAccessTokenByClientIdAndToken(
+      String clientId,
+      String accessToken) {
+    return database.findImplicitAccessTokenByClientIdAndToken(clientId, accessToken);
+  }
+
+  /**
+   * Checks whether an implicit access token may exist, without a round trip if possible.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return False if the access token definitely does not exist, or true if it may exist.
+   */
+  public boolean mayContainImplicitAccessToken(String clientId, String accessToken) {
+    return database.mayContainImplicitAccessToken(clientId, accessToken);
+  }
+
+  ///
+  /// Revoked access token related functions.
+  ///
+
+  /**
+   * Stores a revoked access token in database, until the access token expires.
+   *
+   * @param accessToken The access token.
+   * @param expiresIn The remaining lifetime in seconds of the access token.
+   */
+  public void storeRevokedAccessToken(String accessToken, long expiresIn) {
+    database.storeRevokedAccessToken(accessToken, expiresIn);
+  }
+
+  /**
+   * Stores revoked access tokens in database in batches, each until it expires.
+   *
+   * @param expiresInByAccessToken The remaining lifetimes in seconds by the access tokens.
+   */
+  public void storeRevokedAccessTokens(Map<String, Long> expiresInByAccessToken) {
+    database.storeRevokedAccessTokens(expiresInByAccessToken);
+  }
+
+  /**
+   * Gets a list of revoked access tokens that have not expired yet.
+   *
+   * @return A list of access tokens.
+   */
+  public List<String> listRevokedAccessTokens() {
+    return database.listRevokedAccessTokens();
+  }
+
+  /**
+   * Stores a revocation of all the access tokens that are issued to a client
+   * at or before a time, until the last of them expires.
+   *
+   * @param clientId The client identifier.
+   * @param notBefore The time in seconds since the epoch, at or before which the access tokens are revoked.
+   * @param expiresIn The lifetime in seconds of the revocation.
+   */
+  public void storeRevokedClient(String clientId, long notBefore, long expiresIn) {
+    database.storeRevokedClient(clientId, notBefore, expiresIn);
+  }
+
+  /**
+   * Gets the revocations of clients that have not expired yet.
+   *
+   * @return The times in seconds since the epoch, at or before which the access tokens are revoked,
+   *         by the client identifiers.
+   */
+  public Map<String, Long> listRevokedClients() {
+    return database.listRevokedClients();
+  }
+
+  ///
+  /// Rate limit related functions.
+  ///
+
+  /**
+   * Adds requests to rate limit counters that are shared by all the frontend
+   * instances, and estimates the number of requests of each counter in the sliding window.
+   *
+   * @param counts The numbers of requests to be added by the names of the counters.
+   * @param windowMillis The length of the window in milliseconds.
+   * @return The estimated numbers of requests in the sliding window by the names of the counters.
+   */
+  public Map<String, Double> addRateLimitCounts(Map<String, Long> counts, long windowMillis) {
+    return database.addRateLimitCounts(counts, windowMillis);
+  }
+
+  ///
+  /// Lifecycle related functions.
+  ///
+
+  /**
+   * Closes the database and releases its resources.
+   */
+  public void close() {
+    database.close();
+  }
+}
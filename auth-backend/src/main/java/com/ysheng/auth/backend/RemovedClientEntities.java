@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend;
+
+import java.util.List;
+
+/**
+ * Defines a batch of the entities of a client that are removed, with the
+ * access tokens among them, so that the caches and filters in front of the
+ * database can drop them as well.
+ */
+public class RemovedClientEntities {
+
+  // The number of entities that are removed.
+  private final int count;
+
+  // The auth code grant access tokens that are removed.
+  private final List<String> accessTokens;
+
+  // The implicit grant access tokens that are removed.
+  private final List<String> implicitAccessTokens;
+
+  /**
+   * Constructs a RemovedClientEntities object.
+   *
+   * @param count The number of entities that are removed.
+   * @param accessTokens The auth code grant access tokens that are removed.
+   * @param implicitAccessTokens The implicit grant access tokens that are removed.
+   */
+  public RemovedClientEntities(
+      int count,
+      List<String> accessTokens,
+      List<String> implicitAccessTokens) {
+    this.count = count;
+    this.accessTokens = accessTokens;
+    this.implicitAccessTokens = implicitAccessTokens;
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public int getCount() {
+    return count;
+  }
+
+  public List<String> getAccessTokens() {
+    return accessTokens;
+  }
+
+  public List<String> getImplicitAccessTokens() {
+    return implicitAccessTokens;
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.ForwardingDatabase;
+import com.ysheng.auth.backend.RemovedClientEntities;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Defines a database that caches access token objects in front of another
+ * database, for the validation lookups of resource servers. An access token
+ * is invalidated on every node through the invalidation channel when it is
+ * revoked, so a revoked token stops validating as soon as the invalidation
+ * arrives, and at the latest once the cached token expires.
+ */
+public class AccessTokenCachingDatabase extends ForwardingDatabase {
+
+  // The prefix of the invalidations of auth code grant access tokens.
+  private static final String AUTH_CODE_PREFIX = "authcode:";
+
+  // The prefix of the invalidations of implicit grant access tokens.
+  private static final String IMPLICIT_PREFIX = "implicit:";
+
+  // The separator of the invalidations that are carried in one message.
+  private static final String MESSAGE_SEPARATOR = "\n";
+
+  // The maximum number of invalidations that are carried in one message.
+  private static final int MAX_INVALIDATIONS_PER_MESSAGE = 1000;
+
+  // The cache of auth code grant access token objects.
+  private final EntityCache<com.ysheng.auth.model.api.authcode.AccessToken> accessTokenCache;
+
+  // The cache of implicit grant access token objects.
+  private final EntityCache<com.ysheng.auth.model.api.implicit.AccessToken> implicitAccessTokenCache;
+
+  // The channel that carries the access token invalidations between nodes.
+  private final InvalidationChannel invalidationChannel;
+
+  /**
+   * Constructs an AccessTokenCachingDatabase object, which starts listening
+   * to the invalidation channel.
+   *
+   * @param database The database that is cached.
+   * @param accessTokenCache The cache of auth code grant access token objects.
+   * @param implicitAccessTokenCache The cache of implicit grant access token objects.
+   * @param invalidationChannel The channel that carries the access token invalidations between nodes.
+   */
+  public AccessTokenCachingDatabase(
+      Database database,
+      EntityCache<com.ysheng.auth.model.api.authcode.AccessToken> accessTokenCache,
+      EntityCache<com.ysheng.auth.model.api.implicit.AccessToken> implicitAccessTokenCache,
+      InvalidationChannel invalidationChannel) {
+    super(database);
+    this.accessTokenCache = accessTokenCache;
+    this.implicitAccessTokenCache = implicitAccessTokenCache;
+    this.invalidationChannel = invalidationChannel;
+
+    invalidationChannel.subscribe(this::onInvalidation, this::onReset);
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public EntityCache<com.ysheng.auth.model.api.authcode.AccessToken> getAccessTokenCache() {
+    return accessTokenCache;
+  }
+
+  public EntityCache<com.ysheng.auth.model.api.implicit.AccessToken> getImplicitAccessTokenCache() {
+    return implicitAccessTokenCache;
+  }
+
+  ///
+  /// Client related functions.
+  ///
+
+  /**
+   * Removes a batch of the entities that belong to a client, and invalidates
+   * the access tokens among them on every node.
+   *
+   * @param clientId The client identifier.
+   * @param limit The maximum number of entities to be removed.
+   * @return The entities that are removed.
+   */
+  @Override
+  public RemovedClientEntities removeClientEntities(String clientId, int limit) {
+    RemovedClientEntities removed = super.removeClientEntities(clientId, limit);
+    invalidateAll(accessTokenCache, AUTH_CODE_PREFIX, clientId, removed.getAccessTokens());
+    invalidateAll(implicitAccessTokenCache, IMPLICIT_PREFIX, clientId, removed.getImplicitAccessTokens());
+    return removed;
+  }
+
+  ///
+  /// Auth Code Grant related functions.
+  ///
+
+  /**
+   * Removes an access token object from database, and invalidates it on
+   * every node.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   */
+  @Override
+  public void removeAccessToken(String clientId, String accessToken) {
+    super.removeAccessToken(clientId, accessToken);
+
+    String key = getKey(clientId, accessToken);
+    accessTokenCache.invalidate(key);
+    invalidationChannel.publish(AUTH_CODE_PREFIX + key);
+  }
+
+  /**
+   * Removes access token objects of a client from database, and invalidates
+   * the removed ones on every node with one message per batch.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed.
+   */
+  @Override
+  public List<String> removeAccessTokens(String clientId, Collection<String> accessTokens) {
+    List<String> removed = super.removeAccessTokens(clientId, accessTokens);
+    invalidateAll(accessTokenCache, AUTH_CODE_PREFIX, clientId, removed);
+    return removed;
+  }
+
+  /**
+   * Finds an access token object by client ID and token, from the cache if
+   * possible.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return An access token object that matches the client ID and token.
+   */
+  @Override
+  public com.ysheng.auth.model.api.authcode.AccessToken findAccessTokenByClientIdAndToken(
+      String clientId,
+      String accessToken) {
+    return accessTokenCache.get(
+        getKey(clientId, accessToken),
+        key -> super.findAccessTokenByClientIdAndToken(clientId, accessToken));
+  }
+
+  ///
+  /// Implicit Grant related functions.
+  ///
+
+  /**
+   * Removes an implicit access token object from database, and invalidates it
+   * on every node.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   */
+  @Override
+  public void removeImplictAccessToken(String clientId, String accessToken) {
+    super.removeImplictAccessToken(clientId, accessToken);
+
+    String key = getKey(clientId, accessToken);
+    implicitAccessTokenCache.invalidate(key);
+    invalidationChannel.publish(IMPLICIT_PREFIX + key);
+  }
+
+  /**
+   * Removes implicit access token objects of a client from database, and
+   * invalidates the removed ones on every node with one message per batch.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed.
+   */
+  @Override
+  public List<String> removeImplicitAccessTokens(String clientId, Collection<String> accessTokens) {
+    List<String> removed = super.removeImplicitAccessTokens(clientId, accessTokens);
+    invalidateAll(implicitAccessTokenCache, IMPLICIT_PREFIX, clientId, removed);
+    return removed;
+  }
+
+  /**
+   * Finds an implicit access token by client ID and token, from the cache if
+   * possible.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return An implicit access token object that matches the client ID and token.
+   */
+  @Override
+  public com.ysheng.auth.model.api.implicit.AccessToken findImplicitAccessTokenByClientIdAndToken(
+      String clientId,
+      String accessToken) {
+    return implicitAccessTokenCache.get(
+        getKey(clientId, accessToken),
+        key -> super.findImplicitAccessTokenByClientIdAndToken(clientId, accessToken));
+  }
+
+  ///
+  /// Lifecycle related functions.
+  ///
+
+  /**
+   * Stops listening to the invalidation channel, and closes the cached database.
+   */
+  @Override
+  public void close() {
+    invalidationChannel.close();
+    super.close();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private static String getKey(String clientId, String accessToken) {
+    return clientId + ":" + accessToken;
+  }
+
+  private void invalidateAll(
+      EntityCache<?> cache,
+      String prefix,
+      String clientId,
+      Collection<String> accessTokens) {
+    List<String> invalidations = accessTokens
+        .stream()
+        .map(accessToken -> prefix + getKey(clientId, accessToken))
+        .collect(Collectors.toList());
+
+    accessTokens.forEach(accessToken -> cache.invalidate(getKey(clientId, accessToken)));
+
+    for (int from = 0; from < invalidations.size(); from += MAX_INVALIDATIONS_PER_MESSAGE) {
+      invalidationChannel.publish(String.join(
+          MESSAGE_SEPARATOR,
+          invalidations.subList(from, Math.min(from + MAX_INVALIDATIONS_PER_MESSAGE, invalidations.size()))));
+    }
+  }
+
+  private void onInvalidation(String message) {
+    for (String invalidation : message.split(MESSAGE_SEPARATOR)) {
+      if (invalidation.startsWith(AUTH_CODE_PREFIX)) {
+        accessTokenCache.invalidate(invalidation.substring(AUTH_CODE_PREFIX.length()));
+      } else if (invalidation.startsWith(IMPLICIT_PREFIX)) {
+        implicitAccessTokenCache.invalidate(invalidation.substring(IMPLICIT_PREFIX.length()));
+      }
+    }
+  }
+
+  private void onReset() {
+    accessTokenCache.invalidateAll();
+    implicitAccessTokenCache.invalidateAll();
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache;
+
+import com.ysheng.auth.model.api.client.Client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Defines a bounded cache of client objects by client identifiers.
+ */
+public class ClientCache extends EntityCache<Client> {
+
+  /**
+   * Constructs a ClientCache object.
+   *
+   * @param maximumSize The maximum number of cached clients.
+   * @param ttlSeconds The time to live of a cached client in seconds.
+   * @param negativeTtlSeconds The time to live of a cached unknown client identifier
+   *                           in seconds, or zero to not cache unknown identifiers.
+   */
+  public ClientCache(
+      int maximumSize,
+      long ttlSeconds,
+      long negativeTtlSeconds) {
+    this(maximumSize, ttlSeconds, negativeTtlSeconds, System::nanoTime);
+  }
+
+  /**
+   * Constructs a ClientCache object.
+   *
+   * @param maximumSize The maximum number of cached clients.
+   * @param ttlSeconds The time to live of a cached client in seconds.
+   * @param negativeTtlSeconds The time to live of a cached unknown client identifier
+   *                           in seconds, or zero to not cache unknown identifiers.
+   * @param clock The clock that returns the current time in nanoseconds.
+   */
+  public ClientCache(
+      int maximumSize,
+      long ttlSeconds,
+      long negativeTtlSeconds,
+      LongSupplier clock) {
+    super(
+        maximumSize,
+        TimeUnit.SECONDS.toNanos(ttlSeconds),
+        TimeUnit.SECONDS.toNanos(negativeTtlSeconds),
+        clock);
+  }
+}
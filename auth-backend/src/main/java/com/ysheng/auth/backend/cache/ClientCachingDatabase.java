@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache;
+
+import com.ysheng.auth.backend.ClientEntityPair;
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.ForwardingDatabase;
+import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
+import com.ysheng.auth.model.api.client.Client;
+
+/**
+ * Defines a database that caches client objects in front of another database.
+ * Clients rarely change, so most client lookups are served without a round
+ * trip to the other database. A client is invalidated on every node through
+ * the invalidation channel when it is stored or removed; a node that misses an
+ * invalidation serves the stale client for at most the time to live of the
+ * cache.
+ */
+public class ClientCachingDatabase extends ForwardingDatabase {
+
+  // The cache of client objects.
+  private final ClientCache clientCache;
+
+  // The channel that carries the client invalidations between nodes.
+  private final InvalidationChannel invalidationChannel;
+
+  /**
+   * Constructs a ClientCachingDatabase object, which starts listening to the
+   * invalidation channel.
+   *
+   * @param database The database that is cached.
+   * @param clientCache The cache of client objects.
+   * @param invalidationChannel The channel that carries the client invalidations between nodes.
+   */
+  public ClientCachingDatabase(
+      Database database,
+      ClientCache clientCache,
+      InvalidationChannel invalidationChannel) {
+    super(database);
+    this.clientCache = clientCache;
+    this.invalidationChannel = invalidationChannel;
+
+    invalidationChannel.subscribe(clientCache::invalidate, clientCache::invalidateAll);
+  }
+
+  /**
+   * Gets the cache of client objects, e.g. to report its statistics.
+   *
+   * @return The cache of client objects.
+   */
+  public ClientCache getClientCache() {
+    return clientCache;
+  }
+
+  ///
+  /// Client related functions.
+  ///
+
+  /**
+   * Stores a client object in database, and invalidates it on every node.
+   *
+   * @param client The client object to be stored.
+   */
+  @Override
+  public void storeClient(Client client) {
+    super.storeClient(client);
+    invalidate(client.getId());
+  }
+
+  /**
+   * Replaces the secret of a client if it holds the expected one, and
+   * invalidates the client on every node once it is replaced.
+   *
+   * @param clientId The client identifier.
+   * @param expectedSecret The secret that the client is expected to hold.
+   * @param secret The new secret of the client.
+   * @return True if the secret is replaced, false otherwise.
+   */
+  @Override
+  public boolean updateClientSecret(String clientId, String expectedSecret, String secret) {
+    boolean updated = super.updateClientSecret(clientId, expectedSecret, secret);
+    if (updated) {
+      invalidate(clientId);
+    }
+    return updated;
+  }
+
+  /**
+   * Removes a client object from database, and invalidates it on every node.
+   *
+   * @param clientId The client identifier.
+   */
+  @Override
+  public void removeClient(String clientId) {
+    super.removeClient(clientId);
+    invalidate(clientId);
+  }
+
+  /**
+   * Removes a client object from database, marks the client as tombstoned,
+   * and invalidates the cached client on every node.
+   *
+   * @param clientId The client identifier.
+   */
+  @Override
+  public void tombstoneClient(String clientId) {
+    super.tombstoneClient(clientId);
+    invalidate(clientId);
+  }
+
+  /**
+   * Finds a client object by client identifier, from the cache if possible.
+   *
+   * @param clientId The client identifier to be matched.
+   * @return A client object that matches the client identifier.
+   */
+  @Override
+  public Client findClientById(String clientId) {
+    return clientCache.get(clientId, super::findClientById);
+  }
+
+  /**
+   * Finds the credentials of a client by client identifier. The cached client
+   * object is returned, which has all of its fields populated.
+   *
+   * @param clientId The client identifier to be matched.
+   * @return A client object with the credentials, or null if the client does not exist.
+   */
+  @Override
+  public Client findClientCredentialsById(String clientId) {
+    return findClientById(clientId);
+  }
+
+  ///
+  /// Auth Code Grant related functions.
+  ///
+
+  /**
+   * Finds a client object and one of its authorization ticket objects. The
+   * client object comes from the cache, so only the authorization ticket
+   * object costs a round trip once the client is cached.
+   *
+   * @param clientId The client identifier to be matched.
+   * @param code The authorization code to be matched.
+   * @return The client and the authorization ticket, either of which is null if it does not exist.
+   */
+  @Override
+  public ClientEntityPair<AuthorizationTicket> findClientAndAuthorizationTicket(
+      String clientId,
+      String code) {
+    Client client = findClientById(clientId);
+    if (client == null) {
+      return new ClientEntityPair<>(null, null);
+    }
+
+    return new ClientEntityPair<>(client, findAuthorizationTicketByCodeAndClientId(code, clientId));
+  }
+
+  ///
+  /// Lifecycle related functions.
+  ///
+
+  /**
+   * Stops listening to the invalidation channel, and closes the cached database.
+   */
+  @Override
+  public void close() {
+    invalidationChannel.close();
+    super.close();
+  }
+
+  private void invalidate(String clientId) {
+    clientCache.invalidate(clientId);
+    invalidationChannel.publish(clientId);
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Defines a bounded cache of entity objects by their keys. The least recently
+ * used entity is evicted once the cache is full, and an entity expires after a
+ * time to live. Unknown keys are cached as well, for a separate and usually
+ * shorter time to live. The cached entity objects are shared by all callers,
+ * so they must not be modified.
+ *
+ * <p>The keys are spread over segments that each have their own lock and
+ * their own share of the maximum size, so that lookups of different keys
+ * rarely wait for each other. The eviction order is therefore least recently
+ * used per segment rather than over the whole cache.
+ *
+ * @param <T> The type of the entities.
+ */
+public class EntityCache<T> {
+
+  // The maximum number of segments.
+  private static final int MAXIMUM_SEGMENT_COUNT = 16;
+
+  // The minimum number of entities per segment, below which the cache has fewer
+  // segments, so that a small cache keeps a useful eviction order.
+  private static final int MINIMUM_SEGMENT_SIZE = 64;
+
+  // The time to live of a cached entity in nanoseconds.
+  private final long ttlNanos;
+
+  // The time to live of a cached unknown key in nanoseconds.
+  private final long negativeTtlNanos;
+
+  // The clock that returns the current time in nanoseconds.
+  private final LongSupplier clock;
+
+  // The segments, of which the number is a power of two.
+  private final Segment<T>[] segments;
+
+  // The number of lookups that are served by the cache.
+  private final LongAdder hitCount;
+
+  // The number of lookups that are served by the loader.
+  private final LongAdder missCount;
+
+  // The number of entries that are evicted to make room for others.
+  private final LongAdder evictionCount;
+
+  /**
+   * Constructs an EntityCache object.
+   *
+   * @param maximumSize The maximum number of cached entities.
+   * @param ttlNanos The time to live of a cached entity in nanoseconds.
+   * @param negativeTtlNanos The time to live of a cached unknown key in nanoseconds,
+   *                         or zero to not cache unknown keys.
+   * @param clock The clock that returns the current time in nanoseconds.
+   */
+  @SuppressWarnings("unchecked")
+  public EntityCache(
+      int maximumSize,
+      long ttlNanos,
+      long negativeTtlNanos,
+      LongSupplier clock) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+
+    this.ttlNanos = ttlNanos;
+    this.negativeTtlNanos = negativeTtlNanos;
+    this.clock = clock;
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.evictionCount = new LongAdder();
+
+    int segmentCount = Integer.highestOneBit(
+        Math.max(Math.min(maximumSize / MINIMUM_SEGMENT_SIZE, MAXIMUM_SEGMENT_COUNT), 1));
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; ++i) {
+      segments[i] = new Segment<>(
+          maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0),
+          evictionCount);
+    }
+  }
+
+  /**
+   * Gets an entity object from the cache, or loads it if it is not cached or
+   * has expired. The loader is called without holding the segment lock.
+   *
+   * @param key The key of the entity.
+   * @param loader The function that loads the entity object by the key, or
+   *               returns null if the entity does not exist.
+   * @return The entity object, or null if the entity does not exist.
+   */
+  public T get(String key, Function<String, T> loader) {
+    Segment<T> segment = segmentFor(key);
+    long loadGeneration;
+    synchronized (segment) {
+      Entry<T> entry = segment.entries.get(key);
+      if (entry != null) {
+        if (entry.expiresAt - clock.getAsLong() > 0) {
+          hitCount.increment();
+          return entry.entity;
+        }
+        segment.entries.remove(key);
+      }
+      loadGeneration = segment.generation;
+    }
+
+    missCount.increment();
+    T entity = loader.apply(key);
+
+    long ttl = entity == null ? negativeTtlNanos : ttlNanos;
+    synchronized (segment) {
+      if (ttl > 0 && loadGeneration == segment.generation) {
+        segment.entries.put(key, new Entry<>(entity, clock.getAsLong() + ttl));
+      }
+    }
+
+    return entity;
+  }
+
+  /**
+   * Removes an entity object from the cache.
+   *
+   * @param key The key of the entity.
+   */
+  public void invalidate(String key) {
+    Segment<T> segment = segmentFor(key);
+    synchronized (segment) {
+      segment.entries.remove(key);
+      ++segment.generation;
+    }
+  }
+
+  /**
+   * Removes all entity objects from the cache.
+   */
+  public void invalidateAll() {
+    for (Segment<T> segment : segments) {
+      synchronized (segment) {
+        segment.entries.clear();
+        ++segment.generation;
+      }
+    }
+  }
+
+  ///
+  /// Statistics.
+  ///
+
+  public int size() {
+    int size = 0;
+    for (Segment<T> segment : segments) {
+      synchronized (segment) {
+        size += segment.entries.size();
+      }
+    }
+    return size;
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private Segment<T> segmentFor(String key) {
+    int hash = key.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+  }
+
+  /**
+   * Defines a segment of the cache, which holds its entries in least recently
+   * used order. The segment is its own lock.
+   *
+   * @param <T> The type of the entities.
+   */
+  private static class Segment<T> {
+
+    // The cached entries in least recently used order.
+    private final LinkedHashMap<String, Entry<T>> entries;
+
+    // The number of invalidations in the segment so far. A loaded entity is only
+    // cached if no invalidation happens while it is being loaded, as it may be stale.
+    private long generation;
+
+    public Segment(int maximumSize, LongAdder evictionCount) {
+      this.entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+          if (size() > maximumSize) {
+            evictionCount.increment();
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+  }
+
+  /**
+   * Defines a cached entity object, or a cached unknown key if the entity
+   * object is null.
+   *
+   * @param <T> The type of the entity.
+   */
+  private static class Entry<T> {
+
+    // The entity object, or null if the entity does not exist.
+    private final T entity;
+
+    // The time in nanoseconds at which the entry expires.
+    private final long expiresAt;
+
+    public Entry(T entity, long expiresAt) {
+      this.entity = entity;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
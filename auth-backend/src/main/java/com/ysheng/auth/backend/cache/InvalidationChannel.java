@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Defines the interface of a channel that carries cache invalidations between
+ * the nodes that cache the same database.
+ */
+public interface InvalidationChannel {
+
+  /**
+   * Publishes the invalidation of a key to all the nodes, including this one.
+   *
+   * @param key The key to be invalidated.
+   */
+  void publish(String key);
+
+  /**
+   * Starts listening to invalidations.
+   *
+   * @param keyListener The listener that is called with each invalidated key.
+   * @param resetListener The listener that is called when invalidations may have
+   *                      been lost, after which every key should be invalidated.
+   */
+  void subscribe(Consumer<String> keyListener, Runnable resetListener);
+
+  /**
+   * Stops listening to invalidations.
+   */
+  void close();
+}
@@ -0,0 +1,627 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.filter;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.ForwardingDatabase;
+import com.ysheng.auth.backend.RemovedClientEntities;
+import com.ysheng.auth.backend.cache.InvalidationChannel;
+import com.ysheng.auth.model.api.client.Client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Defines a database that keeps a filter of the issued access tokens in
+ * memory, so that lookups of access tokens that were never issued, e.g. random
+ * tokens of bots, are answered without a round trip.
+ *
+ * The filter is built from the database when the node subscribes to the
+ * change channel and then periodically, which also drops expired access
+ * tokens. Until it is built every access token may exist. The rebuilds of the
+ * nodes are spread over a random delay, so that they do not all scan the
+ * database at once, e.g. when they all reconnect after a failover.
+ *
+ * Access tokens that are issued or revoked on any node are added to or removed
+ * from the filter of every node through the change channel. A change may
+ * reach another node after the client that the access token is issued to
+ * presents it there, especially with Redis Cluster, so an access token that
+ * the filter rules out is still looked up in the database within a grace
+ * period after the last change from another node or the last reset.
+ */
+public class AccessTokenFilteringDatabase extends ForwardingDatabase {
+
+  // The prefix of the items of auth code grant access tokens.
+  private static final String AUTH_CODE_PREFIX = "authcode:";
+
+  // The prefix of the items of implicit grant access tokens.
+  private static final String IMPLICIT_PREFIX = "implicit:";
+
+  // The marker of a change that adds an item.
+  private static final char ADD = '+';
+
+  // The marker of a change that removes an item.
+  private static final char REMOVE = '-';
+
+  // The separator of the changes that are carried in one message.
+  private static final String MESSAGE_SEPARATOR = "\n";
+
+  // The maximum number of changes that are carried in one message.
+  private static final int MAX_CHANGES_PER_MESSAGE = 1000;
+
+  // The identifier of this node, which tells the changes of this node apart
+  // when they come back through the change channel.
+  private final String nodeId;
+
+  // The number of items that a new filter is expected to hold.
+  private final int initialCapacity;
+
+  // The channel that carries the changes of the filter between nodes.
+  private final InvalidationChannel changeChannel;
+
+  // The maximum random delay of a rebuild in seconds.
+  private final long rebuildJitterSeconds;
+
+  // The time in nanoseconds after the last change or reset within which the
+  // filter does not rule anything out.
+  private final long graceNanos;
+
+  // The monotonic clock in nanoseconds.
+  private final LongSupplier nanoClock;
+
+  // The executor that rebuilds the filter.
+  private final ScheduledExecutorService rebuildExecutor;
+
+  // The lock that orders the changes of the filters against their replacement.
+  private final Object lock;
+
+  // The filter, or null if it is not built yet.
+  private volatile ScalableCuckooFilter filter;
+
+  // The filter that is being built, or null if there is none.
+  private ScalableCuckooFilter nextFilter;
+
+  // The time in nanoseconds of the last change from another node, the last
+  // reset or the last installation of a filter.
+  private volatile long lastChangeNanos;
+
+  // The number of resets so far. A filter is only installed if no reset
+  // happens while it is being built, as it may miss the lost changes.
+  private long resetCount;
+
+  // The number of lookups of access tokens that the filter rules out.
+  private final LongAdder negativeCount;
+
+  // The number of lookups of access tokens that the filter lets through, but
+  // that do not exist.
+  private final LongAdder falsePositiveCount;
+
+  /**
+   * Constructs an AccessTokenFilteringDatabase object, which starts listening
+   * to the change channel, and builds the filter once it is subscribed.
+   *
+   * @param database The database that is filtered.
+   * @param initialCapacity The number of access tokens that a new filter is expected to hold.
+   * @param rebuildIntervalSeconds The interval between rebuilds of the filter in seconds,
+   *                               or zero to only build it when the node subscribes.
+   * @param rebuildJitterSeconds The maximum random delay of a rebuild in seconds.
+   * @param graceNanos The time in nanoseconds after the last change or reset within which
+   *                   the filter does not rule anything out.
+   * @param changeChannel The channel that carries the changes of the filter between nodes.
+   * @param nanoClock The monotonic clock in nanoseconds.
+   */
+  public AccessTokenFilteringDatabase(
+      Database database,
+      int initialCapacity,
+      long rebuildIntervalSeconds,
+      long rebuildJitterSeconds,
+      long graceNanos,
+      InvalidationChannel changeChannel,
+      LongSupplier nanoClock) {
+    super(database);
+    this.nodeId = UUID.randomUUID().toString();
+    this.initialCapacity = initialCapacity;
+    this.rebuildJitterSeconds = rebuildJitterSeconds;
+    this.graceNanos = graceNanos;
+    this.changeChannel = changeChannel;
+    this.nanoClock = nanoClock;
+    this.lastChangeNanos = nanoClock.getAsLong() - graceNanos;
+    this.lock = new Object();
+    this.negativeCount = new LongAdder();
+    this.falsePositiveCount = new LongAdder();
+    this.rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "access-token-filter-rebuild");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (rebuildIntervalSeconds > 0) {
+      rebuildExecutor.scheduleWithFixedDelay(
+          this::tryRebuild,
+          rebuildIntervalSeconds + getRebuildJitterSeconds(),
+          rebuildIntervalSeconds,
+          TimeUnit.SECONDS);
+    }
+
+    changeChannel.subscribe(this::onChange, this::onReset);
+  }
+
+  /**
+   * Builds the filter from the database. The clients and the index sets of
+   * their access tokens are scanned in chunks, and the access tokens are
+   * taken from the index without loading them, so that a rebuild does not
+   * hold the access tokens of a client in memory. Access tokens that have
+   * expired but are still indexed are added as well, which only lets their
+   * lookups through. The current filter, if any, keeps answering lookups
+   * until the new one is built.
+   */
+  public synchronized void rebuild() {
+    long buildResetCount;
+    synchronized (lock) {
+      nextFilter = new ScalableCuckooFilter(initialCapacity);
+      buildResetCount = resetCount;
+    }
+
+    try {
+      Iterator<Client> clients = super.iterateClients();
+      while (clients.hasNext()) {
+        String clientId = clients.next().getId();
+        super.iterateAccessTokenStrings(clientId).forEachRemaining(accessToken ->
+            addToNextFilter(getItem(AUTH_CODE_PREFIX, clientId, accessToken)));
+        super.iterateImplicitAccessTokenStrings(clientId).forEachRemaining(accessToken ->
+            addToNextFilter(getItem(IMPLICIT_PREFIX, clientId, accessToken)));
+      }
+
+      synchronized (lock) {
+        if (buildResetCount == resetCount) {
+          filter = nextFilter;
+          lastChangeNanos = nanoClock.getAsLong();
+        }
+      }
+    } finally {
+      synchronized (lock) {
+        nextFilter = null;
+      }
+    }
+  }
+
+  ///
+  /// Statistics.
+  ///
+
+  /**
+   * Gets the identifier of this node in the changes that it publishes.
+   *
+   * @return The node identifier.
+   */
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  /**
+   * Checks whether the filter is built, i.e. whether it rules out anything.
+   *
+   * @return True if the filter is built, false otherwise.
+   */
+  public boolean isBuilt() {
+    return filter != null;
+  }
+
+  /**
+   * Gets the number of lookups of access tokens that the filter rules out.
+   *
+   * @return The negative count.
+   */
+  public long getNegativeCount() {
+    return negativeCount.sum();
+  }
+
+  /**
+   * Gets the number of lookups of access tokens that the filter lets through,
+   * but that do not exist in the database.
+   *
+   * @return The false positive count.
+   */
+  public long getFalsePositiveCount() {
+    return falsePositiveCount.sum();
+  }
+
+  /**
+   * Gets the share of the lookups of absent access tokens that the filter
+   * lets through. Access tokens that expire in the database stay in the
+   * filter until it is rebuilt, and count as false positives.
+   *
+   * @return The observed false positive rate.
+   */
+  public double getObservedFalsePositiveRate() {
+    long falsePositives = falsePositiveCount.sum();
+    long lookups = falsePositives + negativeCount.sum();
+    return lookups == 0 ? 0.0 : (double) falsePositives / lookups;
+  }
+
+  /**
+   * Gets the filter, e.g. to report its statistics.
+   *
+   * @return The filter, or null if it is not built yet.
+   */
+  public ScalableCuckooFilter getFilter() {
+    return filter;
+  }
+
+  ///
+  /// Client related functions.
+  ///
+
+  /**
+   * Removes a batch of the entities that belong to a client, and removes the
+   * access tokens among them from the filter of every node.
+   *
+   * @param clientId The client identifier.
+   * @param limit The maximum number of entities to be removed.
+   * @return The entities that are removed.
+   */
+  @Override
+  public RemovedClientEntities removeClientEntities(String clientId, int limit) {
+    RemovedClientEntities removed = super.removeClientEntities(clientId, limit);
+
+    List<String> items = new ArrayList<>();
+    removed.getAccessTokens().forEach(accessToken -> items.add(getItem(AUTH_CODE_PREFIX, clientId, accessToken)));
+    removed.getImplicitAccessTokens().forEach(
+        accessToken -> items.add(getItem(IMPLICIT_PREFIX, clientId, accessToken)));
+    if (!items.isEmpty()) {
+      change(REMOVE, items);
+    }
+
+    return removed;
+  }
+
+  ///
+  /// Auth Code Grant related functions.
+  ///
+
+  /**
+   * Redeems an authorization ticket for an access token, and adds the access
+   * token to the filter of every node if it is redeemed.
+   *
+   * @param clientId The client identifier.
+   * @param code The authorization code of the authorization ticket to be redeemed.
+   * @param accessToken The access token object to be stored.
+   * @return True if the authorization ticket is redeemed, or false if it does not exist.
+   */
+  @Override
+  public boolean redeemAuthorizationTicket(
+      String clientId,
+      String code,
+      com.ysheng.auth.model.api.authcode.AccessToken accessToken) {
+    if (!super.redeemAuthorizationTicket(clientId, code, accessToken)) {
+      return false;
+    }
+
+    change(ADD, getItem(AUTH_CODE_PREFIX, accessToken.getClientId(), accessToken.getAccessToken()));
+    return true;
+  }
+
+  /**
+   * Stores an access token object in database, and adds it to the filter of
+   * every node.
+   *
+   * @param accessToken The access token object to be stored.
+   */
+  @Override
+  public void storeAccessToken(com.ysheng.auth.model.api.authcode.AccessToken accessToken) {
+    super.storeAccessToken(accessToken);
+    change(ADD, getItem(AUTH_CODE_PREFIX, accessToken.getClientId(), accessToken.getAccessToken()));
+  }
+
+  /**
+   * Removes an access token object from database, and from the filter of
+   * every node.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   */
+  @Override
+  public void removeAccessToken(String clientId, String accessToken) {
+    super.removeAccessToken(clientId, accessToken);
+    change(REMOVE, getItem(AUTH_CODE_PREFIX, clientId, accessToken));
+  }
+
+  /**
+   * Removes access token objects of a client from database, and from the
+   * filter of every node with one message per batch. Only the access tokens
+   * that existed are removed from the filter, as removing an item that was
+   * never added may remove another one.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed.
+   */
+  @Override
+  public List<String> removeAccessTokens(String clientId, Collection<String> accessTokens) {
+    List<String> removed = super.removeAccessTokens(clientId, accessTokens);
+    change(REMOVE, removed
+        .stream()
+        .map(accessToken -> getItem(AUTH_CODE_PREFIX, clientId, accessToken))
+        .collect(Collectors.toList()));
+    return removed;
+  }
+
+  /**
+   * Finds an access token object by client ID and token, without a round trip
+   * if the filter rules the access token out.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return An access token object that matches the client ID and token.
+   */
+  @Override
+  public com.ysheng.auth.model.api.authcode.AccessToken findAccessTokenByClientIdAndToken(
+      String clientId,
+      String accessToken) {
+    String item = getItem(AUTH_CODE_PREFIX, clientId, accessToken);
+    if (!mayContain(item)) {
+      return null;
+    }
+
+    return countFalsePositive(item, super.findAccessTokenByClientIdAndToken(clientId, accessToken));
+  }
+
+  /**
+   * Checks whether an access token may exist against the filter.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return False if the access token definitely does not exist, or true if it may exist.
+   */
+  @Override
+  public boolean mayContainAccessToken(String clientId, String accessToken) {
+    return mayContain(getItem(AUTH_CODE_PREFIX, clientId, accessToken));
+  }
+
+  ///
+  /// Implicit Grant related functions.
+  ///
+
+  /**
+   * Stores an implicit access token object in database, and adds it to the
+   * filter of every node.
+   *
+   * @param accessToken The access token object to be stored.
+   */
+  @Override
+  public void storeImplictAccessToken(com.ysheng.auth.model.api.implicit.AccessToken accessToken) {
+    super.storeImplictAccessToken(accessToken);
+    change(ADD, getItem(IMPLICIT_PREFIX, accessToken.getClientId(), accessToken.getAccessToken()));
+  }
+
+  /**
+   * Stores implicit access token objects in database, and adds them to the
+   * filter of every node with one message per batch.
+   *
+   * @param accessTokens The access token objects to be stored.
+   */
+  @Override
+  public void storeImplicitAccessTokens(List<com.ysheng.auth.model.api.implicit.AccessToken> accessTokens) {
+    super.storeImplicitAccessTokens(accessTokens);
+    change(ADD, accessTokens
+        .stream()
+        .map(accessToken -> getItem(IMPLICIT_PREFIX, accessToken.getClientId(), accessToken.getAccessToken()))
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Removes an implicit access token object from database, and from the
+   * filter of every node.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   */
+  @Override
+  public void removeImplictAccessToken(String clientId, String accessToken) {
+    super.removeImplictAccessToken(clientId, accessToken);
+    change(REMOVE, getItem(IMPLICIT_PREFIX, clientId, accessToken));
+  }
+
+  /**
+   * Removes implicit access token objects of a client from database, and from
+   * the filter of every node with one message per batch. Only the access
+   * tokens that existed are removed from the filter.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed.
+   */
+  @Override
+  public List<String> removeImplicitAccessTokens(String clientId, Collection<String> accessTokens) {
+    List<String> removed = super.removeImplicitAccessTokens(clientId, accessTokens);
+    change(REMOVE, removed
+        .stream()
+        .map(accessToken -> getItem(IMPLICIT_PREFIX, clientId, accessToken))
+        .collect(Collectors.toList()));
+    return removed;
+  }
+
+  /**
+   * Finds an implicit access token by client ID and token, without a round
+   * trip if the filter rules the access token out.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return An implicit access token object that matches the client ID and token.
+   */
+  @Override
+  public com.ysheng.auth.model.api.implicit.AccessToken findImplicitAccessTokenByClientIdAndToken(
+      String clientId,
+      String accessToken) {
+    String item = getItem(IMPLICIT_PREFIX, clientId, accessToken);
+    if (!mayContain(item)) {
+      return null;
+    }
+
+    return countFalsePositive(item, super.findImplicitAccessTokenByClientIdAndToken(clientId, accessToken));
+  }
+
+  /**
+   * Checks whether an implicit access token may exist against the filter.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return False if the access token definitely does not exist, or true if it may exist.
+   */
+  @Override
+  public boolean mayContainImplicitAccessToken(String clientId, String accessToken) {
+    return mayContain(getItem(IMPLICIT_PREFIX, clientId, accessToken));
+  }
+
+  ///
+  /// Lifecycle related functions.
+  ///
+
+  /**
+   * Stops listening to the change channel and rebuilding the filter, and
+   * closes the filtered database.
+   */
+  @Override
+  public void close() {
+    changeChannel.close();
+    rebuildExecutor.shutdownNow();
+    super.close();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private static String getItem(String prefix, String clientId, String accessToken) {
+    return prefix + clientId + ":" + accessToken;
+  }
+
+  private boolean mayContain(String item) {
+    ScalableCuckooFilter current = filter;
+    if (current == null || current.mightContain(item)) {
+      return true;
+    }
+
+    // The change that adds the item may still be on its way from another node.
+    if (nanoClock.getAsLong() - lastChangeNanos < graceNanos) {
+      return true;
+    }
+
+    negativeCount.increment();
+    return false;
+  }
+
+  private <T> T countFalsePositive(String item, T accessToken) {
+    // An item that the filter rules out is only looked up within the grace
+    // period, which is not a false positive.
+    ScalableCuckooFilter current = filter;
+    if (accessToken == null && current != null && current.mightContain(item)) {
+      falsePositiveCount.increment();
+    }
+    return accessToken;
+  }
+
+  private void change(char operation, String item) {
+    change(operation, Collections.singletonList(item));
+  }
+
+  private void change(char operation, List<String> items) {
+    items.forEach(item -> apply(operation, item));
+
+    // A message carries the changes of a batch, one per line.
+    for (int from = 0; from < items.size(); from += MAX_CHANGES_PER_MESSAGE) {
+      changeChannel.publish(nodeId + " " + items
+          .subList(from, Math.min(from + MAX_CHANGES_PER_MESSAGE, items.size()))
+          .stream()
+          .map(item -> operation + item)
+          .collect(Collectors.joining(MESSAGE_SEPARATOR)));
+    }
+  }
+
+  private void apply(char operation, String item) {
+    synchronized (lock) {
+      if (operation == ADD) {
+        if (filter != null) {
+          filter.add(item);
+        }
+        if (nextFilter != null) {
+          nextFilter.add(item);
+        }
+      } else if (operation == REMOVE && filter != null) {
+        // The filter that is being built may not have the item yet, and
+        // removing an absent item may remove another one, so it keeps the
+        // item until the next rebuild.
+        filter.remove(item);
+      }
+    }
+  }
+
+  private void addToNextFilter(String item) {
+    synchronized (lock) {
+      nextFilter.add(item);
+    }
+  }
+
+  private void onChange(String message) {
+    int separator = message.indexOf(' ');
+    if (separator < 0 || separator + 1 >= message.length() || message.startsWith(nodeId + " ")) {
+      return;
+    }
+
+    lastChangeNanos = nanoClock.getAsLong();
+
+    for (String change : message.substring(separator + 1).split(MESSAGE_SEPARATOR)) {
+      if (!change.isEmpty()) {
+        apply(change.charAt(0), change.substring(1));
+      }
+    }
+  }
+
+  private void onReset() {
+    // Changes may have been lost while the node was not subscribed, so the
+    // filter cannot rule anything out until it is built again.
+    synchronized (lock) {
+      filter = null;
+      lastChangeNanos = nanoClock.getAsLong();
+      ++resetCount;
+    }
+
+    // Every node resets when Redis fails over, so their rebuilds are spread.
+    rebuildExecutor.schedule(this::tryRebuild, getRebuildJitterSeconds(), TimeUnit.SECONDS);
+  }
+
+  private long getRebuildJitterSeconds() {
+    return rebuildJitterSeconds > 0 ? ThreadLocalRandom.current().nextLong(rebuildJitterSeconds + 1) : 0L;
+  }
+
+  private void tryRebuild() {
+    try {
+      rebuild();
+    } catch (RuntimeException ex) {
+      // The filter is built again by the next periodic rebuild, and every
+      // access token may exist until then if there is no filter.
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.filter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Defines a cuckoo filter of a fixed capacity, which is a probabilistic set of
+ * 64-bit item hashes that supports deletion. An item is stored as a 16-bit
+ * fingerprint in one of the two buckets that its hash and fingerprint map to,
+ * and each bucket holds four fingerprints. The filter never reports a stored
+ * item as absent, and reports an absent item as present with a probability of
+ * about 8 / 65536 once it is full.
+ *
+ * Only items that have been added can be removed. Removing an item that was
+ * never added may remove the fingerprint of another item that shares it.
+ */
+public class CuckooFilter {
+
+  // The number of fingerprints in a bucket.
+  private static final int BUCKET_SIZE = 4;
+
+  // The number of fingerprints that are relocated before the filter gives up
+  // and keeps the last relocated fingerprint aside as the victim.
+  private static final int MAX_KICKS = 500;
+
+  // The maximum load factor that a filter with four fingerprints per bucket
+  // reliably reaches.
+  private static final double MAX_LOAD_FACTOR = 0.95;
+
+  // The fingerprints of all the buckets, in which zero marks an empty slot.
+  private final short[] fingerprints;
+
+  // The mask that maps a hash to a bucket index.
+  private final int bucketMask;
+
+  // The number of stored items.
+  private int size;
+
+  // The fingerprint that could not be relocated, or zero if there is none.
+  private short victimFingerprint;
+
+  // The bucket index of the victim fingerprint.
+  private int victimIndex;
+
+  /**
+   * Constructs a CuckooFilter object.
+   *
+   * @param capacity The number of items that the filter is expected to hold.
+   */
+  public CuckooFilter(int capacity) {
+    int bucketCount = Integer.highestOneBit(
+        Math.max(1, (int) Math.ceil(capacity / (BUCKET_SIZE * MAX_LOAD_FACTOR))) * 2 - 1);
+    this.fingerprints = new short[bucketCount * BUCKET_SIZE];
+    this.bucketMask = bucketCount - 1;
+  }
+
+  /**
+   * Adds an item to the filter. An item is always added unless the filter is
+   * full, but the add that fills the filter up keeps a fingerprint aside.
+   *
+   * @param hash The hash of the item.
+   * @return True if the item is added, or false if the filter is full.
+   */
+  public boolean add(long hash) {
+    if (isFull()) {
+      return false;
+    }
+
+    short fingerprint = fingerprint(hash);
+    int index = index(hash);
+    if (insert(index, fingerprint) || insert(alternateIndex(index, fingerprint), fingerprint)) {
+      ++size;
+      return true;
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (random.nextBoolean()) {
+      index = alternateIndex(index, fingerprint);
+    }
+    for (int kick = 0; kick < MAX_KICKS; ++kick) {
+      int slot = index * BUCKET_SIZE + random.nextInt(BUCKET_SIZE);
+      short evicted = fingerprints[slot];
+      fingerprints[slot] = fingerprint;
+      fingerprint = evicted;
+      index = alternateIndex(index, fingerprint);
+      if (insert(index, fingerprint)) {
+        ++size;
+        return true;
+      }
+    }
+
+    victimFingerprint = fingerprint;
+    victimIndex = index;
+    ++size;
+    return true;
+  }
+
+  /**
+   * Checks whether an item may be in the filter.
+   *
+   * @param hash The hash of the item.
+   * @return False if the item is definitely not in the filter, or true if it may be.
+   */
+  public boolean mightContain(long hash) {
+    short fingerprint = fingerprint(hash);
+    int index = index(hash);
+    int alternateIndex = alternateIndex(index, fingerprint);
+    return find(index, fingerprint) >= 0
+        || find(alternateIndex, fingerprint) >= 0
+        || (victimFingerprint == fingerprint && (victimIndex == index || victimIndex == alternateIndex));
+  }
+
+  /**
+   * Removes an item that has been added from the filter.
+   *
+   * @param hash The hash of the item.
+   * @return True if a fingerprint of the item is removed.
+   */
+  public boolean remove(long hash) {
+    short fingerprint = fingerprint(hash);
+    int index = index(hash);
+    int alternateIndex = alternateIndex(index, fingerprint);
+
+    if (victimFingerprint == fingerprint && (victimIndex == index || victimIndex == alternateIndex)) {
+      victimFingerprint = 0;
+      --size;
+      return true;
+    }
+
+    int slot = find(index, fingerprint);
+    if (slot < 0) {
+      slot = find(alternateIndex, fingerprint);
+    }
+    if (slot < 0) {
+      return false;
+    }
+
+    fingerprints[slot] = 0;
+    --size;
+
+    // A victim is kept aside only because both of its buckets were full, so
+    // it fits again once one of them has a free slot.
+    if (victimFingerprint != 0) {
+      short victim = victimFingerprint;
+      victimFingerprint = 0;
+      if (!insert(victimIndex, victim) && !insert(alternateIndex(victimIndex, victim), victim)) {
+        victimFingerprint = victim;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks whether the filter is full, i.e. it keeps a fingerprint aside.
+   *
+   * @return True if the filter is full.
+   */
+  public boolean isFull() {
+    return victimFingerprint != 0;
+  }
+
+  ///
+  /// Statistics.
+  ///
+
+  public int size() {
+    return size;
+  }
+
+  public int getSlotCount() {
+    return fingerprints.length;
+  }
+
+  /**
+   * Gets the expected probability that an absent item is reported as present,
+   * given the number of stored items.
+   *
+   * @return The expected false positive probability.
+   */
+  public double getExpectedFalsePositiveProbability() {
+    double load = (double) size / fingerprints.length;
+    return 1.0 - Math.pow(1.0 - 1.0 / 65535, 2.0 * BUCKET_SIZE * load);
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private static short fingerprint(long hash) {
+    short fingerprint = (short) (hash >>> 48);
+    return fingerprint == 0 ? 1 : fingerprint;
+  }
+
+  private int index(long hash) {
+    return (int) hash & bucketMask;
+  }
+
+  private int alternateIndex(int index, short fingerprint) {
+    return (index ^ ((fingerprint & 0xFFFF) * 0x5bd1e995)) & bucketMask;
+  }
+
+  private boolean insert(int index, short fingerprint) {
+    int start = index * BUCKET_SIZE;
+    for (int slot = start; slot < start + BUCKET_SIZE; ++slot) {
+      if (fingerprints[slot] == 0) {
+        fingerprints[slot] = fingerprint;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int find(int index, short fingerprint) {
+    int start = index * BUCKET_SIZE;
+    for (int slot = start; slot < start + BUCKET_SIZE; ++slot) {
+      if (fingerprints[slot] == fingerprint) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+}
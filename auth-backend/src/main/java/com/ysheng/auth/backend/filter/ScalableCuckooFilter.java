@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Defines a probabilistic set of strings that grows with the number of items.
+ * Items are added to the newest cuckoo filter, and a new filter of twice the
+ * capacity is started once the newest one is full. The hash function is
+ * seeded per instance, so that items that collide cannot be crafted ahead.
+ *
+ * Lookups, which come with every request that presents an access token, take
+ * a shared read lock and run in parallel, and only adds and removes take the
+ * exclusive write lock.
+ */
+public class ScalableCuckooFilter {
+
+  // The filters, from the oldest to the newest.
+  private final List<CuckooFilter> filters;
+
+  // The seed of the hash function.
+  private final long seed;
+
+  // The lock that lets lookups run in parallel with each other, but not with
+  // changes of the filters.
+  private final ReadWriteLock lock;
+
+  /**
+   * Constructs a ScalableCuckooFilter object.
+   *
+   * @param initialCapacity The number of items that the first filter is expected to hold.
+   */
+  public ScalableCuckooFilter(int initialCapacity) {
+    this.filters = new ArrayList<>();
+    this.filters.add(new CuckooFilter(Math.max(1, initialCapacity)));
+    this.seed = ThreadLocalRandom.current().nextLong();
+    this.lock = new ReentrantReadWriteLock();
+  }
+
+  /**
+   * Adds an item to the filter.
+   *
+   * @param item The item to be added.
+   */
+  public void add(String item) {
+    long hash = hash(item);
+    lock.writeLock().lock();
+    try {
+      CuckooFilter newest = filters.get(filters.size() - 1);
+      if (!newest.add(hash)) {
+        // A capacity of 1.8 times the slots of the full filter doubles the
+        // slots, given the load factor of the filters.
+        newest = new CuckooFilter(newest.getSlotCount() * 9 / 5);
+        filters.add(newest);
+        newest.add(hash);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Checks whether an item may be in the filter.
+   *
+   * @param item The item to be checked.
+   * @return False if the item is definitely not in the filter, or true if it may be.
+   */
+  public boolean mightContain(String item) {
+    long hash = hash(item);
+    lock.readLock().lock();
+    try {
+      for (CuckooFilter filter : filters) {
+        if (filter.mightContain(hash)) {
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an item that has been added from the filter. The item is only
+   * removed if exactly one of the filters may contain it, since removing it
+   * from a filter that only collides with it would remove another item.
+   *
+   * @param item The item to be removed.
+   * @return True if the item is removed.
+   */
+  public boolean remove(String item) {
+    long hash = hash(item);
+    lock.writeLock().lock();
+    try {
+      CuckooFilter match = null;
+      for (CuckooFilter filter : filters) {
+        if (filter.mightContain(hash)) {
+          if (match != null) {
+            return false;
+          }
+          match = filter;
+        }
+      }
+
+      return match != null && match.remove(hash);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  ///
+  /// Statistics.
+  ///
+
+  public long size() {
+    lock.readLock().lock();
+    try {
+      long size = 0;
+      for (CuckooFilter filter : filters) {
+        size += filter.size();
+      }
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the memory taken by the fingerprints of the filter.
+   *
+   * @return The memory taken by the fingerprints in bytes.
+   */
+  public long getMemoryBytes() {
+    lock.readLock().lock();
+    try {
+      long slotCount = 0;
+      for (CuckooFilter filter : filters) {
+        slotCount += filter.getSlotCount();
+      }
+      return slotCount * Short.BYTES;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the expected probability that an absent item is reported as present,
+   * which is about the sum of the probabilities of the filters.
+   *
+   * @return The expected false positive probability.
+   */
+  public double getExpectedFalsePositiveProbability() {
+    lock.readLock().lock();
+    try {
+      double probability = 0.0;
+      for (CuckooFilter filter : filters) {
+        probability += filter.getExpectedFalsePositiveProbability();
+      }
+      return Math.min(1.0, probability);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private long hash(String item) {
+    // FNV-1a over the characters, followed by the SplitMix64 finalizer so
+    // that every bit of the hash depends on every character.
+    long hash = seed ^ 0xcbf29ce484222325L;
+    for (int i = 0; i < item.length(); ++i) {
+      hash ^= item.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implements a reservoir that counts the values in log-linear buckets, in the
+ * style of HdrHistogram. The values from 0 to 127 have a bucket each, and each
+ * power of two above that is split into 64 buckets, so that a value is
+ * reported within 1/128 of its magnitude however rare it is. Unlike a sampling
+ * reservoir, the high percentiles such as p99 and p999 are therefore as
+ * accurate as the median. The counts are kept for a window that rotates, and
+ * a snapshot covers the current and the previous window, i.e. the recent
+ * values only. Values are expected in nanoseconds, and values above about 18
+ * minutes are counted in the highest bucket. The sum of all values since the
+ * reservoir is created is kept as well, so that it can be exported with the
+ * total count, e.g. as the sum of a Prometheus summary.
+ */
+public class LogLinearReservoir implements Reservoir {
+
+  // The number of bits of a value that select its bucket within its power of two.
+  private static final int SUB_BUCKET_BITS = 6;
+
+  // The number of buckets that each power of two is split into.
+  private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+
+  // The number of values that have a bucket each.
+  private static final int SUB_BUCKET_COUNT = 2 * SUB_BUCKET_HALF_COUNT;
+
+  // The highest value that is counted in its own bucket.
+  private static final long HIGHEST_TRACKABLE_VALUE = (1L << 40) - 1;
+
+  // The number of buckets.
+  private static final int BUCKET_COUNT = bucketIndex(HIGHEST_TRACKABLE_VALUE) + 1;
+
+  // The default length of a window in seconds.
+  private static final long DEFAULT_WINDOW_SECONDS = 60;
+
+  // The length of a window in nanoseconds.
+  private final long windowNanos;
+
+  // The clock that ticks in nanoseconds.
+  private final Clock clock;
+
+  // The tick at which the current window started.
+  private volatile long windowStartTick;
+
+  // The counts of the current window by bucket.
+  private volatile AtomicLongArray currentCounts;
+
+  // The counts of the previous window by bucket.
+  private volatile AtomicLongArray previousCounts;
+
+  // The sum of all values since the reservoir is created.
+  private final LongAdder sum;
+
+  /**
+   * Constructs a LogLinearReservoir object with a window of a minute.
+   */
+  public LogLinearReservoir() {
+    this(DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS, Clock.defaultClock());
+  }
+
+  /**
+   * Constructs a LogLinearReservoir object.
+   *
+   * @param window The length of a window.
+   * @param windowUnit The time unit of the length of a window.
+   * @param clock The clock that ticks in nanoseconds.
+   */
+  public LogLinearReservoir(
+      long window,
+      TimeUnit windowUnit,
+      Clock clock) {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Invalid window: " + window);
+    }
+
+    this.windowNanos = windowUnit.toNanos(window);
+    this.clock = clock;
+    this.windowStartTick = clock.getTick();
+    this.currentCounts = new AtomicLongArray(BUCKET_COUNT);
+    this.previousCounts = new AtomicLongArray(BUCKET_COUNT);
+    this.sum = new LongAdder();
+  }
+
+  /**
+   * Gets the timer registered with the name, and registers a timer backed by a
+   * LogLinearReservoir if there is none.
+   *
+   * @param metricRegistry The metric registry.
+   * @param name The name of the timer.
+   * @return The timer.
+   */
+  public static Timer timer(
+      MetricRegistry metricRegistry,
+      String name) {
+    synchronized (metricRegistry) {
+      Metric metric = metricRegistry.getMetrics().get(name);
+      if (metric instanceof Timer) {
+        return (Timer) metric;
+      }
+
+      return metricRegistry.register(name, new Timer(new LogLinearReservoir()));
+    }
+  }
+
+  /**
+   * Gets the number of values in the current and the previous window.
+   *
+   * @return The number of values.
+   */
+  public int size() {
+    return getSnapshot().size();
+  }
+
+  /**
+   * Counts a value in the current window.
+   *
+   * @param value The value, in nanoseconds if it is a duration.
+   */
+  public void update(long value) {
+    rotateIfNeeded().incrementAndGet(bucketIndex(value));
+    sum.add(value);
+  }
+
+  /**
+   * Gets a snapshot of the values in the current and the previous window.
+   *
+   * @return A snapshot of the values.
+   */
+  public Snapshot getSnapshot() {
+    AtomicLongArray current = rotateIfNeeded();
+    AtomicLongArray previous = previousCounts;
+
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      counts[i] = current.get(i) + previous.get(i);
+    }
+
+    return new LogLinearSnapshot(counts, sum.sum());
+  }
+
+  /**
+   * Gets the index of the bucket that counts a value.
+   *
+   * @param value The value.
+   * @return The index of the bucket.
+   */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return value < 0 ? 0 : (int) value;
+    }
+
+    long clamped = Math.min(value, HIGHEST_TRACKABLE_VALUE);
+    int shift = 63 - Long.numberOfLeadingZeros(clamped) - SUB_BUCKET_BITS;
+
+    return SUB_BUCKET_COUNT
+        + (shift - 1) * SUB_BUCKET_HALF_COUNT
+        + (int) (clamped >>> shift) - SUB_BUCKET_HALF_COUNT;
+  }
+
+  /**
+   * Gets the value that represents a bucket, which is the middle of the
+   * values that it counts.
+   *
+   * @param index The index of the bucket.
+   * @return The value that represents the bucket.
+   */
+  static long bucketValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+    long lowestValue = (long) ((index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT) << shift;
+
+    return lowestValue + ((1L << shift) >> 1);
+  }
+
+  private AtomicLongArray rotateIfNeeded() {
+    long tick = clock.getTick();
+    if (tick - windowStartTick < windowNanos) {
+      return currentCounts;
+    }
+
+    synchronized (this) {
+      long elapsed = tick - windowStartTick;
+      if (elapsed >= windowNanos) {
+        previousCounts = elapsed < 2 * windowNanos ? currentCounts : new AtomicLongArray(BUCKET_COUNT);
+        currentCounts = new AtomicLongArray(BUCKET_COUNT);
+        windowStartTick = tick;
+      }
+
+      return currentCounts;
+    }
+  }
+
+  /**
+   * Defines a snapshot of the counts of the buckets.
+   */
+  public static class LogLinearSnapshot extends Snapshot {
+
+    // The counts by bucket.
+    private final long[] counts;
+
+    // The total count.
+    private final long count;
+
+    // The sum of all values since the reservoir is created.
+    private final long sum;
+
+    /**
+     * Constructs a LogLinearSnapshot object.
+     *
+     * @param counts The counts by bucket.
+     * @param sum The sum of all values since the reservoir is created.
+     */
+    LogLinearSnapshot(long[] counts, long sum) {
+      this.counts = counts;
+      this.sum = sum;
+
+      long total = 0;
+      for (long bucketCount : counts) {
+        total += bucketCount;
+      }
+      this.count = total;
+    }
+
+    /**
+     * Gets the sum of all values since the reservoir is created, unlike the
+     * other statistics of the snapshot, which only cover the recent values.
+     *
+     * @return The sum of all values.
+     */
+    public long getSum() {
+      return sum;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+      if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+        throw new IllegalArgumentException(quantile + " is not in [0..1]");
+      }
+
+      if (count == 0) {
+        return 0.0;
+      }
+
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; ++i) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return bucketValue(i);
+        }
+      }
+
+      return getMax();
+    }
+
+    @Override
+    public long[] getValues() {
+      long[] values = new long[size()];
+      int position = 0;
+      for (int i = 0; i < counts.length && position < values.length; ++i) {
+        for (long j = 0; j < counts[i] && position < values.length; ++j) {
+          values[position++] = bucketValue(i);
+        }
+      }
+
+      return values;
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getMax() {
+      for (int i = counts.length - 1; i >= 0; --i) {
+        if (counts[i] > 0) {
+          return bucketValue(i);
+        }
+      }
+
+      return 0;
+    }
+
+    @Override
+    public double getMean() {
+      if (count == 0) {
+        return 0.0;
+      }
+
+      double sum = 0.0;
+      for (int i = 0; i < counts.length; ++i) {
+        sum += (double) counts[i] * bucketValue(i);
+      }
+
+      return sum / count;
+    }
+
+    @Override
+    public long getMin() {
+      for (int i = 0; i < counts.length; ++i) {
+        if (counts[i] > 0) {
+          return bucketValue(i);
+        }
+      }
+
+      return 0;
+    }
+
+    @Override
+    public double getStdDev() {
+      if (count <= 1) {
+        return 0.0;
+      }
+
+      double mean = getMean();
+      double sum = 0.0;
+      for (int i = 0; i < counts.length; ++i) {
+        double difference = bucketValue(i) - mean;
+        sum += counts[i] * difference * difference;
+      }
+
+      return Math.sqrt(sum / (count - 1));
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+      try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+        for (int i = 0; i < counts.length; ++i) {
+          for (long j = 0; j < counts[i]; ++j) {
+            writer.printf("%d%n", bucketValue(i));
+          }
+        }
+      }
+    }
+  }
+}
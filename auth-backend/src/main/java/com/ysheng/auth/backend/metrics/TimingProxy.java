@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ysheng.auth.model.api.ApiList;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defines a proxy of an interface that times every function of the
+ * interface. Each function has a timer named after it with a prefix, e.g.
+ * "database.findClientById", and the functions that get a page of a list
+ * have a ".page" suffix. The timers are backed by a {@link LogLinearReservoir},
+ * so that their high percentiles are accurate. The functions that return a
+ * lazy iterator are not timed, since they return before any entity is read.
+ *
+ * @param <T> The type of the interface.
+ */
+public class TimingProxy<T> implements InvocationHandler {
+
+  // The object that the functions are delegated to.
+  private final T target;
+
+  // The metric registry that the timers are registered with.
+  private final MetricRegistry metricRegistry;
+
+  // The prefix of the names of the timers.
+  private final String metricPrefix;
+
+  // The timers by the functions of the interface, which are registered once
+  // the functions are first called.
+  private final Map<Method, Timer> timers;
+
+  /**
+   * Constructs a TimingProxy object.
+   *
+   * @param target The object that the functions are delegated to.
+   * @param metricRegistry The metric registry that the timers are registered with.
+   * @param metricPrefix The prefix of the names of the timers.
+   */
+  private TimingProxy(
+      T target,
+      MetricRegistry metricRegistry,
+      String metricPrefix) {
+    this.target = target;
+    this.metricRegistry = metricRegistry;
+    this.metricPrefix = metricPrefix;
+    this.timers = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Wraps an object in a proxy that times the functions of an interface.
+   *
+   * @param type The interface.
+   * @param target The object that implements the interface.
+   * @param metricRegistry The metric registry that the timers are registered with.
+   * @param metricPrefix The prefix of the names of the timers, e.g. "database.".
+   * @param <T> The type of the interface.
+   * @return A proxy of the interface.
+   */
+  public static <T> T wrap(
+      Class<T> type,
+      T target,
+      MetricRegistry metricRegistry,
+      String metricPrefix) {
+    return type.cast(Proxy.newProxyInstance(
+        type.getClassLoader(),
+        new Class<?>[] { type },
+        new TimingProxy<>(target, metricRegistry, metricPrefix)));
+  }
+
+  /**
+   * Gets the object that a proxy of this class delegates to, e.g. to find
+   * the decorators of a database underneath the proxy.
+   *
+   * @param proxy The object that may be a proxy.
+   * @param <T> The type of the interface.
+   * @return The object that the proxy delegates to, or null if the object is not a proxy of this class.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T getTarget(T proxy) {
+    if (proxy == null || !Proxy.isProxyClass(proxy.getClass())) {
+      return null;
+    }
+
+    InvocationHandler handler = Proxy.getInvocationHandler(proxy);
+    return handler instanceof TimingProxy ? ((TimingProxy<T>) handler).target : null;
+  }
+
+  /**
+   * Invokes a function of the target object with a timer.
+   *
+   * @param proxy The proxy object.
+   * @param method The function that is invoked.
+   * @param args The arguments of the function.
+   * @return The result of the function.
+   * @throws Throwable The exception that the function throws.
+   */
+  @Override
+  public Object invoke(
+      Object proxy,
+      Method method,
+      Object[] args) throws Throwable {
+    if (method.getDeclaringClass() == Object.class || Iterator.class.isAssignableFrom(method.getReturnType())) {
+      return invokeTarget(method, args);
+    }
+
+    Timer.Context context = timers.computeIfAbsent(method, this::registerTimer).time();
+    try {
+      return invokeTarget(method, args);
+    } finally {
+      context.stop();
+    }
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private Timer registerTimer(Method method) {
+    String name = metricPrefix + method.getName();
+    if (ApiList.class.isAssignableFrom(method.getReturnType())) {
+      name += ".page";
+    }
+
+    return LogLinearReservoir.timer(metricRegistry, name);
+  }
+
+  private Object invokeTarget(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException ex) {
+      throw ex.getCause();
+    }
+  }
+}
@@ -13,9 +13,12 @@
 
 package com.ysheng.auth.backend.redis;
 
+import com.ysheng.auth.backend.redis.connection.RedisPoolUsage;
+
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Defines the interface of Redis related functions.
@@ -70,10 +73,114 @@ public interface RedisClient {
   Map<String, String> hgetAll(String key);
 
   /**
-   * Implements keys command in Redis.
+   * Implements hmget command in Redis.
+   *
+   * @param key The key of the database entity.
+   * @param fields The fields to be read.
+   * @return The values of the fields in the same order, which are null for the fields that do not exist.
+   */
+  List<String> hmget(String key, String... fields);
+
+  /**
+   * Implements smembers command in Redis.
+   *
+   * @param key The key of the set.
+   * @return The members of the set.
+   */
+  Set<String> smembers(String key);
+
+  /**
+   * Implements sunion command in Redis.
+   *
+   * @param keys The keys of the sets.
+   * @return The union of the members of the sets.
+   */
+  Set<String> sunion(Set<String> keys);
+
+  /**
+   * Implements sscan command in Redis.
+   *
+   * @param key The key of the set.
+   * @param cursor The cursor returned by the previous step, or null to start the iteration.
+   * @param count The hint of the number of members to be returned by this step.
+   * @return The result of this step of the iteration.
+   */
+  RedisScanResult sscan(String key, String cursor, int count);
+
+  /**
+   * Sets a database entity and adds a member to an index set atomically
+   * in a MULTI/EXEC transaction.
+   *
+   * @param key The key of the database entity.
+   * @param value The value of the database entity.
+   * @param indexKey The key of the index set.
+   * @param indexMember The member to be added to the index set.
+   */
+  void setAndIndex(String key, String value, String indexKey, String indexMember);
+
+  /**
+   * Removes a database entity and removes a member from an index set atomically
+   * in a MULTI/EXEC transaction.
    *
-   * @param keyPattern The key pattern.
-   * @return The set of keys that matches the key pattern.
+   * @param key The key of the database entity.
+   * @param indexKey The key of the index set.
+   * @param indexMember The member to be removed from the index set.
+   */
+  void removeAndUnindex(String key, String indexKey, String indexMember);
+
+  /**
+   * Executes a batch of commands in one round trip. The commands are either
+   * pipelined, or wrapped in a MULTI/EXEC transaction so that they are applied
+   * atomically.
+   *
+   * @param ops The commands to be executed, in order.
+   * @param transactional Whether to execute the commands in a transaction.
+   * @return The replies of the commands, in the same order as the commands.
+   */
+  List<Object> executeBatch(List<RedisOp> ops, boolean transactional);
+
+  /**
+   * Executes a Lua script on the server with evalsha command. The script is
+   * loaded on the server first if the server does not have it yet.
+   *
+   * @param script The script to be executed.
+   * @param keys The keys that the script operates on.
+   * @param args The additional arguments of the script.
+   * @return The reply of the script.
+   */
+  Object evalScript(RedisScript script, List<String> keys, List<String> args);
+
+  /**
+   * Implements publish command in Redis.
+   *
+   * @param channel The channel to publish the message to.
+   * @param message The message to be published.
+   */
+  void publish(String channel, String message);
+
+  /**
+   * Subscribes to a channel in the background. The subscription holds one
+   * connection resource until it is closed, and subscribes again whenever the
+   * connection is lost.
+   *
+   * @param channel The channel to subscribe to.
+   * @param messageListener The listener that is called with each message of the channel.
+   * @param subscribeListener The listener that is called each time the subscription is
+   *                          established, after which messages published while the
+   *                          subscription was down are lost.
+   * @return The subscription, which stops once it is closed.
+   */
+  RedisSubscription subscribe(String channel, Consumer<String> messageListener, Runnable subscribeListener);
+
+  /**
+   * Gets the usage of the connection pools of the Redis connection.
+   *
+   * @return The usage of the connection pools.
+   */
+  RedisPoolUsage getPoolUsage();
+
+  /**
+   * Closes the Redis connection and releases its resources.
    */
-  Set<String> keys(String keyPattern);
+  void close();
 }
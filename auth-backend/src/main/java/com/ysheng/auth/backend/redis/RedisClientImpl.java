@@ -14,13 +14,35 @@
 package com.ysheng.auth.backend.redis;
 
 import com.ysheng.auth.backend.redis.connection.RedisConnection;
+import com.ysheng.auth.backend.redis.connection.RedisPoolUsage;
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Tracer;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.MultiKeyPipelineBase;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of Redis related functions.
@@ -30,14 +52,23 @@ public class RedisClientImpl implements RedisClient {
   // The Redis connection object.
   private RedisConnection connection;
 
+  // The threads that send the commands of a batch to the nodes other than
+  // the first one, so that the nodes are called in parallel.
+  private final ExecutorService nodeExecutor;
+
   /**
    * Constructs a RedisConnectorImpl object.
    *
-   * @param connection The Redis connection object.
+   * @param connection The Redis connection object, which is expected to be open.
    */
   public RedisClientImpl(
       RedisConnection connection) {
     this.connection = connection;
+    this.nodeExecutor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "redis-node-batch");
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   /**
@@ -48,6 +79,8 @@ public class RedisClientImpl implements RedisClient {
    */
   public void set(String key, String value) {
     doRedis(
+        "redis.set",
+        key,
         resource -> resource.set(key, value)
     );
   }
@@ -61,6 +94,8 @@ public class RedisClientImpl implements RedisClient {
   public String get(String key) {
     final List<String> hash = new ArrayList<>();
     doRedis(
+        "redis.get",
+        key,
         resource -> hash.add(resource.get(key))
     );
 
@@ -68,21 +103,37 @@ public class RedisClientImpl implements RedisClient {
   }
 
   /**
-   * Implements mget command in Redis.
+   * Implements mget command in Redis. Keys of different shards are read with
+   * one mget command per shard, and the commands of the shards of a node are
+   * pipelined in one round trip. The nodes are read in parallel.
    *
    * @param keys The set of keys of the database entities.
-   * @return The list of database entites.
+   * @return The list of database entites, in the iteration order of the keys.
    */
   public List<String> mget(Set<String> keys) {
-    final List<List<String>> hashes = new ArrayList<>();
-    doRedis(
+    List<String> orderedKeys = new ArrayList<>(keys);
+    final String[] values = new String[orderedKeys.size()];
+    forEachInParallel(groupByNode(orderedKeys).values(), shards -> doRedis(
+        "redis.mget",
+        orderedKeys.get(getFirstIndex(shards)),
         resource -> {
-          String[] keysArray = new String[keys.size()];
-          hashes.add(resource.mget(keys.toArray(keysArray)));
+          Pipeline pipeline = resource.pipelined();
+          Map<List<Integer>, Response<List<String>>> responses = new LinkedHashMap<>();
+          shards.values().forEach(indexes -> responses.put(
+              indexes,
+              pipeline.mget(indexes.stream().map(orderedKeys::get).toArray(String[]::new))));
+          pipeline.sync();
+
+          responses.forEach((indexes, response) -> {
+            List<String> shardValues = response.get();
+            for (int i = 0; i < indexes.size(); ++i) {
+              values[indexes.get(i)] = shardValues.get(i);
+            }
+          });
         }
-    );
+    ));
 
-    return hashes.iterator().next();
+    return Arrays.asList(values);
   }
 
   /**
@@ -92,6 +143,8 @@ public class RedisClientImpl implements RedisClient {
    */
   public void remove(String key) {
     doRedis(
+        "redis.del",
+        key,
         resource -> resource.del(key)
     );
   }
@@ -104,6 +157,8 @@ public class RedisClientImpl implements RedisClient {
    */
   public void hmset(String key, Map<String, String> hash) {
     doRedis(
+        "redis.hmset",
+        key,
         resource -> resource.hmset(key, hash)
     );
   }
@@ -117,6 +172,8 @@ public class RedisClientImpl implements RedisClient {
   public Map<String, String> hgetAll(String key) {
     final List<Map<String, String>> hash = new ArrayList<>();
     doRedis(
+        "redis.hgetall",
+        key,
         resource -> hash.add(resource.hgetAll(key))
     );
 
@@ -124,28 +181,403 @@ public class RedisClientImpl implements RedisClient {
   }
 
   /**
-   * Implements keys command in Redis.
+   * Implements hmget command in Redis.
    *
-   * @param keyPattern The key pattern.
-   * @return The set of keys that matches the key pattern.
+   * @param key The key of the database entity.
+   * @param fields The fields to be read.
+   * @return The values of the fields in the same order, which are null for the fields that do not exist.
    */
-  public Set<String> keys(String keyPattern) {
-    final List<Set<String>> keys = new ArrayList<>();
+  public List<String> hmget(String key, String... fields) {
+    final List<List<String>> values = new ArrayList<>();
     doRedis(
-      resource -> keys.add(resource.keys(keyPattern))
+        "redis.hmget",
+        key,
+        resource -> values.add(resource.hmget(key, fields))
     );
 
-    return keys.iterator().next();
+    return values.iterator().next();
   }
 
   /**
-   * Executes a Redis command by picking a resource from the connection pool.
+   * Implements smembers command in Redis.
    *
+   * @param key The key of the set.
+   * @return The members of the set.
+   */
+  public Set<String> smembers(String key) {
+    final List<Set<String>> members = new ArrayList<>();
+    doRedis(
+        "redis.smembers",
+        key,
+        resource -> members.add(resource.smembers(key))
+    );
+
+    return members.iterator().next();
+  }
+
+  /**
+   * Implements sunion command in Redis. Sets of different shards are merged
+   * with one sunion command per shard, and the commands of the shards of a
+   * node are pipelined in one round trip. The nodes are read in parallel.
+   *
+   * @param keys The keys of the sets.
+   * @return The union of the members of the sets.
+   */
+  public Set<String> sunion(Set<String> keys) {
+    List<String> orderedKeys = new ArrayList<>(keys);
+    final Set<String> members = ConcurrentHashMap.newKeySet();
+    forEachInParallel(groupByNode(orderedKeys).values(), shards -> doRedis(
+        "redis.sunion",
+        orderedKeys.get(getFirstIndex(shards)),
+        resource -> {
+          Pipeline pipeline = resource.pipelined();
+          List<Response<Set<String>>> responses = new ArrayList<>();
+          shards.values().forEach(indexes -> responses.add(
+              pipeline.sunion(indexes.stream().map(orderedKeys::get).toArray(String[]::new))));
+          pipeline.sync();
+
+          responses.forEach(response -> members.addAll(response.get()));
+        }
+    ));
+
+    return members;
+  }
+
+  /**
+   * Implements sscan command in Redis.
+   *
+   * @param key The key of the set.
+   * @param cursor The cursor returned by the previous step, or null to start the iteration.
+   * @param count The hint of the number of members to be returned by this step.
+   * @return The result of this step of the iteration.
+   */
+  public RedisScanResult sscan(String key, String cursor, int count) {
+    final List<ScanResult<String>> results = new ArrayList<>();
+    doRedis(
+        "redis.sscan",
+        key,
+        resource -> results.add(resource.sscan(
+            key,
+            cursor == null ? ScanParams.SCAN_POINTER_START : cursor,
+            new ScanParams().count(count)))
+    );
+
+    ScanResult<String> result = results.iterator().next();
+    return new RedisScanResult(
+        result.getStringCursor().equals(ScanParams.SCAN_POINTER_START) ? null : result.getStringCursor(),
+        result.getResult());
+  }
+
+  /**
+   * Sets a database entity and adds a member to an index set atomically
+   * in a MULTI/EXEC transaction. If the keys belong to different shards, the
+   * entity is set before the member is added, each in its own transaction.
+   *
+   * @param key The key of the database entity.
+   * @param value The value of the database entity.
+   * @param indexKey The key of the index set.
+   * @param indexMember The member to be added to the index set.
+   */
+  public void setAndIndex(String key, String value, String indexKey, String indexMember) {
+    executeBatch(
+        Arrays.asList(
+            RedisOp.set(key, value),
+            RedisOp.sadd(indexKey, indexMember)),
+        true);
+  }
+
+  /**
+   * Removes a database entity and removes a member from an index set atomically
+   * in a MULTI/EXEC transaction. If the keys belong to different shards, the
+   * entity is removed before the member is removed, each in its own transaction.
+   *
+   * @param key The key of the database entity.
+   * @param indexKey The key of the index set.
+   * @param indexMember The member to be removed from the index set.
+   */
+  public void removeAndUnindex(String key, String indexKey, String indexMember) {
+    executeBatch(
+        Arrays.asList(
+            RedisOp.del(key),
+            RedisOp.srem(indexKey, indexMember)),
+        true);
+  }
+
+  /**
+   * Executes a batch of commands in one round trip per node. The commands are
+   * either pipelined, or wrapped in a MULTI/EXEC transaction so that they are
+   * applied atomically. A transaction is only atomic within a shard, so the
+   * commands of each shard of a node get their own MULTI/EXEC block in the
+   * round trip of the node.
+   *
+   * The nodes of a pipelined batch are called in parallel. The nodes of a
+   * transactional batch are called one after another, in the order in which
+   * they first appear in the batch, so that e.g. an entity is stored before
+   * it is indexed on another node.
+   *
+   * @param ops The commands to be executed, in order.
+   * @param transactional Whether to execute the commands in a transaction.
+   * @return The replies of the commands, in the same order as the commands.
+   */
+  public List<Object> executeBatch(List<RedisOp> ops, boolean transactional) {
+    List<String> keys = ops.stream().map(RedisOp::getKey).collect(Collectors.toList());
+    final Object[] replies = new Object[ops.size()];
+    Consumer<Map<Integer, List<Integer>>> nodeBatch = shards -> doRedis(
+        transactional ? "redis.multi" : "redis.pipeline",
+        keys.get(getFirstIndex(shards)),
+        resource -> {
+          Pipeline pipeline = resource.pipelined();
+          Map<Integer, Response<?>> responses = new HashMap<>();
+          if (transactional) {
+            shards.values().forEach(indexes -> {
+              pipeline.multi();
+              indexes.forEach(i -> responses.put(i, queue(pipeline, ops.get(i))));
+              pipeline.exec();
+            });
+          } else {
+            shards.values()
+                .stream()
+                .flatMap(List::stream)
+                .sorted()
+                .forEach(i -> responses.put(i, queue(pipeline, ops.get(i))));
+          }
+          pipeline.sync();
+
+          responses.forEach((i, response) -> replies[i] = response.get());
+        }
+    );
+
+    Collection<Map<Integer, List<Integer>>> nodes = groupByNode(keys).values();
+    if (transactional) {
+      nodes.forEach(nodeBatch);
+    } else {
+      forEachInParallel(nodes, nodeBatch);
+    }
+
+    return Arrays.asList(replies);
+  }
+
+  /**
+   * Executes a Lua script on the server with evalsha command. The script is
+   * loaded on the server first if the server does not have it yet. All the
+   * keys must belong to the same shard.
+   *
+   * @param script The script to be executed.
+   * @param keys The keys that the script operates on.
+   * @param args The additional arguments of the script.
+   * @return The reply of the script.
+   */
+  public Object evalScript(RedisScript script, List<String> keys, List<String> args) {
+    final List<Object> replies = new ArrayList<>();
+    doRedis(
+        "redis.evalsha",
+        keys.isEmpty() ? null : keys.get(0),
+        resource -> {
+          try {
+            replies.add(resource.evalsha(script.getSha(), keys, args));
+          } catch (JedisNoScriptException ex) {
+            resource.scriptLoad(script.getBody());
+            replies.add(resource.evalsha(script.getSha(), keys, args));
+          }
+        }
+    );
+
+    return replies.iterator().next();
+  }
+
+  /**
+   * Implements publish command in Redis.
+   *
+   * @param channel The channel to publish the message to.
+   * @param message The message to be published.
+   */
+  public void publish(String channel, String message) {
+    doRedis(
+        "redis.publish",
+        channel,
+        resource -> resource.publish(channel, message)
+    );
+  }
+
+  /**
+   * Subscribes to a channel in the background.
+   *
+   * @param channel The channel to subscribe to.
+   * @param messageListener The listener that is called with each message of the channel.
+   * @param subscribeListener The listener that is called each time the subscription is established.
+   * @return The subscription, which stops once it is closed.
+   */
+  public RedisSubscription subscribe(
+      String channel,
+      Consumer<String> messageListener,
+      Runnable subscribeListener) {
+    RedisSubscription subscription = new RedisSubscription(connection, channel, messageListener, subscribeListener);
+    subscription.start();
+    return subscription;
+  }
+
+  /**
+   * Gets the usage of the connection pools of the Redis connection.
+   *
+   * @return The usage of the connection pools.
+   */
+  public RedisPoolUsage getPoolUsage() {
+    return connection.getPoolUsage();
+  }
+
+  /**
+   * Closes the Redis connection and releases its resources.
+   */
+  public void close() {
+    nodeExecutor.shutdownNow();
+    connection.close();
+  }
+
+  /**
+   * Executes a Redis command by borrowing a resource from the connection, and
+   * hands the resource back once the command completes or fails. If the node
+   * no longer serves the key, the routing is refreshed and the command is
+   * retried once.
+   *
+   * The command is recorded as a span in the trace of the calling thread,
+   * which includes the time to borrow the resource.
+   *
+   * @param command The name of the span of the command, e.g. "redis.get".
+   * @param key The key that the command operates on, which decides the node
+   *            that serves the command, or null if any node can serve it.
    * @param consumer The Redis command that consumes the connection resource.
    */
-  private void doRedis(Consumer<Jedis> consumer) {
-    connection.open();
-    Jedis resource = connection.getResource();
-    consumer.accept(resource);
+  private void doRedis(String command, String key, Consumer<Jedis> consumer) {
+    try (Tracer.Scope scope = Tracer.startSpan(command)) {
+      try {
+        doRedisOnce(key, consumer);
+      } catch (JedisMovedDataException ex) {
+        connection.refresh();
+        doRedisOnce(key, consumer);
+      }
+    }
+  }
+
+  private void doRedisOnce(String key, Consumer<Jedis> consumer) {
+    try (Jedis resource = key == null ? connection.getResource() : connection.getResource(key)) {
+      consumer.accept(resource);
+    }
+  }
+
+  /**
+   * Groups keys by the nodes that serve them, and then by the shards that
+   * they belong to, keeping the order of the keys within each shard.
+   *
+   * @param keys The keys to be grouped.
+   * @return The indexes of the keys of each shard of each node, in the order
+   *         in which the nodes and the shards first appear.
+   */
+  private Map<String, Map<Integer, List<Integer>>> groupByNode(List<String> keys) {
+    Map<String, Map<Integer, List<Integer>>> indexesByNode = new LinkedHashMap<>();
+    for (int i = 0; i < keys.size(); ++i) {
+      String key = keys.get(i);
+      indexesByNode
+          .computeIfAbsent(connection.getNode(key), node -> new LinkedHashMap<>())
+          .computeIfAbsent(connection.getShard(key), shard -> new ArrayList<>())
+          .add(i);
+    }
+    return indexesByNode;
+  }
+
+  private static int getFirstIndex(Map<Integer, List<Integer>> shards) {
+    return shards.values().iterator().next().get(0);
+  }
+
+  /**
+   * Runs a function for each group in parallel. The first group runs on the
+   * calling thread, and the others run on the node executor with the span of
+   * the calling thread. Returns once all the groups complete.
+   *
+   * @param groups The groups, e.g. the commands of each node.
+   * @param consumer The function to be run for each group.
+   * @param <T> The type of the groups.
+   * @throws RuntimeException The first failure of the groups, once all of them complete.
+   */
+  private <T> void forEachInParallel(Collection<T> groups, Consumer<T> consumer) {
+    if (groups.size() <= 1) {
+      groups.forEach(consumer);
+      return;
+    }
+
+    Span span = Tracer.current();
+    Iterator<T> iterator = groups.iterator();
+    T first = iterator.next();
+    List<Future<?>> futures = new ArrayList<>();
+    while (iterator.hasNext()) {
+      T group = iterator.next();
+      futures.add(nodeExecutor.submit(() -> {
+        try (Tracer.Scope scope = Tracer.activate(span)) {
+          consumer.accept(group);
+        }
+      }));
+    }
+
+    RuntimeException failure = null;
+    try {
+      consumer.accept(first);
+    } catch (RuntimeException ex) {
+      failure = ex;
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException ex) {
+        if (failure == null) {
+          failure = ex.getCause() instanceof RuntimeException
+              ? (RuntimeException) ex.getCause()
+              : new JedisException(ex.getCause());
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = new JedisException(ex);
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Queues a command in a pipeline or a transaction.
+   *
+   * @param pipeline The pipeline or the transaction.
+   * @param op The command to be queued.
+   * @return The response of the command, which is available after the pipeline
+   *         is synced or the transaction is executed.
+   */
+  private static Response<?> queue(MultiKeyPipelineBase pipeline, RedisOp op) {
+    switch (op.getType()) {
+      case GET:
+        return pipeline.get(op.getKey());
+      case SET:
+        return pipeline.set(op.getKey(), op.getValue());
+      case DEL:
+        return pipeline.del(op.getKey());
+      case SADD:
+        return pipeline.sadd(op.getKey(), op.getValue());
+      case SREM:
+        return pipeline.srem(op.getKey(), op.getValue());
+      case HMSET:
+        return pipeline.hmset(op.getKey(), op.getHash());
+      case HGETALL:
+        return pipeline.hgetAll(op.getKey());
+      case HMGET:
+        return pipeline.hmget(op.getKey(), op.getFields().toArray(new String[op.getFields().size()]));
+      case INCRBY:
+        return pipeline.incrBy(op.getKey(), Long.parseLong(op.getValue()));
+      case PEXPIRE:
+        return pipeline.pexpire(op.getKey(), Long.parseLong(op.getValue()));
+      default:
+        throw new IllegalArgumentException("Unknown Redis command type: " + op.getType());
+    }
   }
 }
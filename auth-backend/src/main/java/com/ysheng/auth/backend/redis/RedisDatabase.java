@@ -13,17 +13,37 @@
 
 package com.ysheng.auth.backend.redis;
 
+import com.ysheng.auth.backend.ClientEntityPair;
 import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.RemovedClientEntities;
 import com.ysheng.auth.backend.redis.adapter.AccessTokenAdapter;
 import com.ysheng.auth.backend.redis.adapter.AuthorizationTicketAdapter;
 import com.ysheng.auth.backend.redis.adapter.ClientAdapter;
 import com.ysheng.auth.backend.redis.adapter.ImplicitAccessTokenAdapter;
+import com.ysheng.auth.backend.redis.adapter.RateLimitAdapter;
+import com.ysheng.auth.backend.redis.adapter.RevokedAccessTokenAdapter;
+import com.ysheng.auth.backend.redis.adapter.RevokedClientAdapter;
+import com.ysheng.auth.backend.redis.connection.RedisPoolUsage;
+import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
 import com.ysheng.auth.model.api.client.Client;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -31,17 +51,90 @@ import java.util.stream.Collectors;
  */
 public class RedisDatabase implements Database {
 
+  // The script that redeems an authorization ticket for an access token.
+  private static final RedisScript REDEEM_AUTHORIZATION_TICKET_SCRIPT =
+      RedisScript.fromResource("script/redeem-authorization-ticket.lua");
+
+  // The script that stores an entity that expires and adds it to an index set.
+  private static final RedisScript STORE_AND_INDEX_SCRIPT =
+      RedisScript.fromResource("script/store-and-index.lua");
+
+  // The script that stores a batch of entities and adds them to an index set.
+  private static final RedisScript STORE_ALL_AND_INDEX_SCRIPT =
+      RedisScript.fromResource("script/store-all-and-index.lua");
+
+  // The script that replaces the secret of a client if it holds the expected one.
+  private static final RedisScript REPLACE_CLIENT_SECRET_SCRIPT =
+      RedisScript.fromResource("script/replace-client-secret.lua");
+
+  // The script that migrates a client that is stored as a string to a hash.
+  private static final RedisScript MIGRATE_CLIENT_SCRIPT =
+      RedisScript.fromResource("script/migrate-client.lua");
+
+  // The script that acquires or renews a lease.
+  private static final RedisScript ACQUIRE_LEASE_SCRIPT =
+      RedisScript.fromResource("script/acquire-lease.lua");
+
+  // The script that releases a lease.
+  private static final RedisScript RELEASE_LEASE_SCRIPT =
+      RedisScript.fromResource("script/release-lease.lua");
+
+  // The pattern of a cursor of a page of an index set.
+  private static final Pattern CURSOR_PATTERN = Pattern.compile("[0-9]+");
+
+  // The prefix of the error that Redis replies with when a command is applied
+  // to a key that holds another type of value.
+  private static final String WRONG_TYPE_ERROR = "WRONGTYPE";
+
+  // The maximum number of entities that are stored or removed in one round trip,
+  // which keeps a bulk operation from blocking the server for long.
+  private static final int BATCH_SIZE = 1000;
+
   // The Redis client.
   private RedisClient redisClient;
 
+  // How clients are stored.
+  private RedisStorageType clientStorageType;
+
+  // The wall clock in milliseconds, which decides the rate limit windows.
+  private LongSupplier clock;
+
   /**
-   * Constructs a RedisDatabase object.
+   * Constructs a RedisDatabase object that stores entities as strings.
    *
    * @param redisClient The Redis client.
    */
   public RedisDatabase(
       RedisClient redisClient) {
+    this(redisClient, RedisStorageType.STRING);
+  }
+
+  /**
+   * Constructs a RedisDatabase object.
+   *
+   * @param redisClient The Redis client.
+   * @param clientStorageType How clients are stored.
+   */
+  public RedisDatabase(
+      RedisClient redisClient,
+      RedisStorageType clientStorageType) {
+    this(redisClient, clientStorageType, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructs a RedisDatabase object.
+   *
+   * @param redisClient The Redis client.
+   * @param clientStorageType How clients are stored.
+   * @param clock The wall clock in milliseconds, which decides the rate limit windows.
+   */
+  public RedisDatabase(
+      RedisClient redisClient,
+      RedisStorageType clientStorageType,
+      LongSupplier clock) {
     this.redisClient = redisClient;
+    this.clientStorageType = clientStorageType;
+    this.clock = clock;
   }
 
   ///
@@ -49,14 +142,29 @@ public class RedisDatabase implements Database {
   ///
 
   /**
-   * Stores a client object in database.
+   * Stores a client object in database. If clients are stored as hashes, the
+   * hash replaces whatever the key holds, including a client that is still
+   * stored as a string.
    *
    * @param client The client object to be stored.
    */
   public void storeClient(Client client) {
-    redisClient.set(
+    if (clientStorageType == RedisStorageType.HASH) {
+      String key = ClientAdapter.getKey(client.getId());
+      redisClient.executeBatch(
+          Arrays.asList(
+              RedisOp.del(key),
+              RedisOp.hmset(key, ClientAdapter.toFields(client)),
+              RedisOp.sadd(ClientAdapter.getIndexKey(), client.getId())),
+          true);
+      return;
+    }
+
+    redisClient.setAndIndex(
         ClientAdapter.getKey(client.getId()),
-        ClientAdapter.toHash(client));
+        ClientAdapter.toHash(client),
+        ClientAdapter.getIndexKey(),
+        client.getId());
   }
 
   /**
@@ -65,37 +173,269 @@ public class RedisDatabase implements Database {
    * @param clientId The client identifier.
    */
   public void removeClient(String clientId) {
-    redisClient.remove(ClientAdapter.getKey(clientId));
+    redisClient.removeAndUnindex(
+        ClientAdapter.getKey(clientId),
+        ClientAdapter.getIndexKey(),
+        clientId);
   }
 
   /**
-   * Finds a client object by client identifier.
+   * Finds a client object by client identifier. If clients are stored as
+   * hashes, a client that is still stored as a string is migrated to a hash
+   * when it is read.
    *
    * @param clientId The client identifier to be matched.
    * @return A client object that matches the client identifier.
    */
   public Client findClientById(String clientId) {
+    if (clientStorageType == RedisStorageType.HASH) {
+      String key = ClientAdapter.getKey(clientId);
+      return readClients(
+          Arrays.asList(key),
+          () -> ClientAdapter.fromFields(redisClient.hgetAll(key)));
+    }
+
     return ClientAdapter.fromHash(
         redisClient.get(ClientAdapter.getKey(clientId)));
   }
 
+  /**
+   * Finds the credentials of a client by client identifier. If clients are
+   * stored as hashes, only the fields of the credentials are read.
+   *
+   * @param clientId The client identifier to be matched.
+   * @return A client object with the credentials, or null if the client does not exist.
+   */
+  public Client findClientCredentialsById(String clientId) {
+    if (clientStorageType == RedisStorageType.HASH) {
+      String key = ClientAdapter.getKey(clientId);
+      List<String> fields = ClientAdapter.CREDENTIAL_FIELDS;
+      return readClients(
+          Arrays.asList(key),
+          () -> ClientAdapter.fromFields(fields, redisClient.hmget(key, fields.toArray(new String[fields.size()]))));
+    }
+
+    return findClientById(clientId);
+  }
+
+  /**
+   * Replaces the secret of a client, only if the client still holds the
+   * expected secret. A client that is stored as a string is replaced as a
+   * whole, only if it is not changed since it is read.
+   *
+   * @param clientId The client identifier.
+   * @param expectedSecret The secret that the client is expected to hold.
+   * @param secret The new secret of the client.
+   * @return True if the secret is replaced, false if the client does not
+   *         exist or holds another secret.
+   */
+  public boolean updateClientSecret(String clientId, String expectedSecret, String secret) {
+    String key = ClientAdapter.getKey(clientId);
+    if (clientStorageType == RedisStorageType.HASH) {
+      Object reply = readClients(
+          Arrays.asList(key),
+          () -> redisClient.evalScript(
+              REPLACE_CLIENT_SECRET_SCRIPT,
+              Arrays.asList(key),
+              Arrays.asList(expectedSecret, secret, ClientAdapter.SECRET_FIELD)));
+
+      return Long.valueOf(1L).equals(reply);
+    }
+
+    String value = redisClient.get(key);
+    Client client = value == null ? null : ClientAdapter.fromHash(value);
+    if (client == null || !Objects.equals(client.getSecret(), expectedSecret)) {
+      return false;
+    }
+
+    client.setSecret(secret);
+    Object reply = redisClient.evalScript(
+        REPLACE_CLIENT_SECRET_SCRIPT,
+        Arrays.asList(key),
+        Arrays.asList(value, ClientAdapter.toHash(client)));
+
+    return Long.valueOf(1L).equals(reply);
+  }
+
   /**
    * Gets a list of all clients in database.
    *
    * @return A list of all clients in database.
    */
   public List<Client> listClients() {
-    Set<String> keys = (redisClient.keys(ClientAdapter.getKey(null)));
+    Set<String> keys = redisClient
+        .smembers(ClientAdapter.getIndexKey())
+        .stream()
+        .map(ClientAdapter::getKey)
+        .collect(Collectors.toSet());
 
-    if (keys.isEmpty()) {
-      return new ArrayList<>();
-    }
+    return findClientsByKeys(keys);
+  }
 
-    return redisClient
-        .mget(keys)
+  /**
+   * Gets a page of clients in database.
+   *
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of clients in the page.
+   * @return A page of clients.
+   */
+  public ApiList<Client> listClients(String cursor, int limit) {
+    RedisScanResult result = scanPage(ClientAdapter.getIndexKey(), cursor, limit);
+
+    Set<String> keys = result
+        .getItems()
         .stream()
-        .map(ClientAdapter::fromHash)
-        .collect(Collectors.toList());
+        .map(ClientAdapter::getKey)
+        .collect(Collectors.toSet());
+
+    return new ApiList<>(
+        findClientsByKeys(keys),
+        result.getCursor());
+  }
+
+  /**
+   * Gets a lazy iterator over all clients in database. The client index is
+   * scanned in chunks, and the clients of each chunk are loaded in one round trip.
+   *
+   * @return An iterator over all clients in database.
+   */
+  public Iterator<Client> iterateClients() {
+    return new RedisIndexIterator<>(
+        cursor -> redisClient.sscan(ClientAdapter.getIndexKey(), cursor, BATCH_SIZE),
+        clientIds -> findClientsByKeys(clientIds
+            .stream()
+            .map(ClientAdapter::getKey)
+            .collect(Collectors.toCollection(LinkedHashSet::new))));
+  }
+
+  /**
+   * Removes a client object from database and marks the client as tombstoned.
+   * The client is removed before it is tombstoned, so that the entities of a
+   * client that is still registered are never removed.
+   *
+   * @param clientId The client identifier.
+   */
+  public void tombstoneClient(String clientId) {
+    redisClient.executeBatch(
+        Arrays.asList(
+            RedisOp.del(ClientAdapter.getKey(clientId)),
+            RedisOp.srem(ClientAdapter.getIndexKey(), clientId),
+            RedisOp.sadd(ClientAdapter.getTombstoneIndexKey(), clientId)),
+        true);
+  }
+
+  /**
+   * Gets the identifiers of the tombstoned clients.
+   *
+   * @return A list of client identifiers.
+   */
+  public List<String> listTombstonedClients() {
+    return new ArrayList<>(redisClient.smembers(ClientAdapter.getTombstoneIndexKey()));
+  }
+
+  /**
+   * Removes a batch of the authorization tickets and access tokens that belong
+   * to a client. The per-client index sets are scanned in turn, and the
+   * entities found are removed with their index members in one transaction.
+   * Index members whose entities have expired are removed from the index sets,
+   * but are neither counted towards the batch nor reported as removed, so a
+   * batch with no entities means that the client has none left.
+   *
+   * @param clientId The client identifier.
+   * @param limit The maximum number of entities to be removed.
+   * @return The entities that are removed.
+   */
+  public RemovedClientEntities removeClientEntities(String clientId, int limit) {
+    List<String> indexKeys = Arrays.asList(
+        AuthorizationTicketAdapter.getIndexKey(clientId),
+        AccessTokenAdapter.getIndexKey(clientId),
+        ImplicitAccessTokenAdapter.getIndexKey(clientId));
+
+    Map<String, List<String>> removedKeysByIndexKey = new HashMap<>();
+    int removed = 0;
+    for (String indexKey : indexKeys) {
+      List<String> removedKeys = new ArrayList<>();
+      removedKeysByIndexKey.put(indexKey, removedKeys);
+
+      String cursor = null;
+      do {
+        RedisScanResult result = redisClient.sscan(indexKey, cursor, limit - removed);
+        List<String> keys = result.getItems();
+        if (keys.size() > limit - removed) {
+          keys = keys.subList(0, limit - removed);
+        }
+
+        List<String> deletedKeys = removeAllAndUnindex(indexKey, keys);
+        removedKeys.addAll(deletedKeys);
+        removed += deletedKeys.size();
+        cursor = result.getCursor();
+      } while (cursor != null && removed < limit);
+
+      if (removed >= limit) {
+        break;
+      }
+    }
+
+    // The access tokens are the suffixes of their keys after the key prefix
+    // of the client.
+    String accessTokenKeyPrefix = AccessTokenAdapter.getKey(clientId, "");
+    String implicitAccessTokenKeyPrefix = ImplicitAccessTokenAdapter.getKey(clientId, "");
+    return new RemovedClientEntities(
+        removed,
+        removedKeysByIndexKey
+            .getOrDefault(AccessTokenAdapter.getIndexKey(clientId), new ArrayList<>())
+            .stream()
+            .map(key -> key.substring(accessTokenKeyPrefix.length()))
+            .collect(Collectors.toList()),
+        removedKeysByIndexKey
+            .getOrDefault(ImplicitAccessTokenAdapter.getIndexKey(clientId), new ArrayList<>())
+            .stream()
+            .map(key -> key.substring(implicitAccessTokenKeyPrefix.length()))
+            .collect(Collectors.toList()));
+  }
+
+  /**
+   * Removes the tombstone of a client.
+   *
+   * @param clientId The client identifier.
+   */
+  public void removeClientTombstone(String clientId) {
+    redisClient.executeBatch(
+        Arrays.asList(RedisOp.srem(ClientAdapter.getTombstoneIndexKey(), clientId)),
+        false);
+  }
+
+  /**
+   * Acquires the lease on the cleanup of a tombstoned client, or renews it if
+   * the owner already holds it, so that only one instance cleans up a client
+   * at a time. The lease expires unless it is renewed within its lifetime.
+   *
+   * @param clientId The client identifier.
+   * @param owner The identifier of the instance that cleans up the client.
+   * @param leaseMillis The lifetime in milliseconds of the lease.
+   * @return True if the owner holds the lease, false if another owner does.
+   */
+  public boolean tryLeaseClientCleanup(String clientId, String owner, long leaseMillis) {
+    Object reply = redisClient.evalScript(
+        ACQUIRE_LEASE_SCRIPT,
+        Arrays.asList(ClientAdapter.getCleanupLeaseKey(clientId)),
+        Arrays.asList(owner, String.valueOf(leaseMillis)));
+
+    return Long.valueOf(1L).equals(reply);
+  }
+
+  /**
+   * Releases the lease on the cleanup of a tombstoned client, if the owner
+   * still holds it.
+   *
+   * @param clientId The client identifier.
+   * @param owner The identifier of the instance that cleans up the client.
+   */
+  public void releaseClientCleanupLease(String clientId, String owner) {
+    redisClient.evalScript(
+        RELEASE_LEASE_SCRIPT,
+        Arrays.asList(ClientAdapter.getCleanupLeaseKey(clientId)),
+        Arrays.asList(owner));
   }
 
   ///
@@ -108,9 +448,11 @@ public class RedisDatabase implements Database {
    * @param authorizationTicket The authorization ticket object to be stored.
    */
   public void storeAuthorizationTicket(AuthorizationTicket authorizationTicket) {
-    redisClient.set(
+    storeAndIndex(
         AuthorizationTicketAdapter.getKey(authorizationTicket.getClientId(), authorizationTicket.getCode()),
-        AuthorizationTicketAdapter.toHash(authorizationTicket));
+        AuthorizationTicketAdapter.toHash(authorizationTicket),
+        AuthorizationTicketAdapter.getIndexKey(authorizationTicket.getClientId()),
+        authorizationTicket.getExpiresIn());
   }
 
   /**
@@ -120,17 +462,46 @@ public class RedisDatabase implements Database {
    * @return A list of authorization tickets.
    */
   public List<AuthorizationTicket> listAuthorizationTickets(String clientId) {
-    Set<String> keys = redisClient.keys(AuthorizationTicketAdapter.getKey(clientId, null));
-
-    if (keys.isEmpty()) {
-      return new ArrayList<>();
+    if (clientId != null) {
+      String indexKey = AuthorizationTicketAdapter.getIndexKey(clientId);
+      return findIndexedByKeys(indexKey, redisClient.smembers(indexKey), AuthorizationTicketAdapter::fromHash);
     }
 
-    return redisClient
-        .mget(keys)
-        .stream()
-        .map(AuthorizationTicketAdapter::fromHash)
-        .collect(Collectors.toList());
+    Set<String> keys = findIndexedKeys(null, AuthorizationTicketAdapter::getIndexKey);
+
+    return findByKeys(keys, AuthorizationTicketAdapter::fromHash);
+  }
+
+  /**
+   * Gets a page of authorization tickets that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of authorization tickets in the page.
+   * @return A page of authorization tickets.
+   */
+  public ApiList<AuthorizationTicket> listAuthorizationTickets(
+      String clientId,
+      String cursor,
+      int limit) {
+    String indexKey = AuthorizationTicketAdapter.getIndexKey(clientId);
+    RedisScanResult result = scanPage(indexKey, cursor, limit);
+
+    return new ApiList<>(
+        findIndexedByKeys(indexKey, new HashSet<>(result.getItems()), AuthorizationTicketAdapter::fromHash),
+        result.getCursor());
+  }
+
+  /**
+   * Gets a lazy iterator over the authorization tickets that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over authorization tickets.
+   */
+  public Iterator<AuthorizationTicket> iterateAuthorizationTickets(String clientId) {
+    return iterateIndexed(
+        AuthorizationTicketAdapter.getIndexKey(clientId),
+        AuthorizationTicketAdapter::fromHash);
   }
 
   /**
@@ -140,7 +511,11 @@ public class RedisDatabase implements Database {
    * @param code The authorization code.
    */
   public void removeAuthorizationTicket(String clientId, String code) {
-    redisClient.remove(AuthorizationTicketAdapter.getKey(clientId, code));
+    String key = AuthorizationTicketAdapter.getKey(clientId, code);
+    redisClient.removeAndUnindex(
+        key,
+        AuthorizationTicketAdapter.getIndexKey(clientId),
+        key);
   }
 
   /**
@@ -157,15 +532,81 @@ public class RedisDatabase implements Database {
         redisClient.get(AuthorizationTicketAdapter.getKey(clientId, code)));
   }
 
+  /**
+   * Finds a client object and one of its authorization ticket objects together
+   * in one pipelined round trip. If clients are stored as hashes, only the
+   * credentials of the client are read.
+   *
+   * @param clientId The client identifier to be matched.
+   * @param code The authorization code to be matched.
+   * @return The client and the authorization ticket, either of which is null if it does not exist.
+   */
+  public ClientEntityPair<AuthorizationTicket> findClientAndAuthorizationTicket(
+      String clientId,
+      String code) {
+    boolean clientAsHash = clientStorageType == RedisStorageType.HASH;
+    String clientKey = ClientAdapter.getKey(clientId);
+
+    List<RedisOp> ops = Arrays.asList(
+        clientAsHash ? RedisOp.hmget(clientKey, ClientAdapter.CREDENTIAL_FIELDS) : RedisOp.get(clientKey),
+        RedisOp.get(AuthorizationTicketAdapter.getKey(clientId, code)));
+    List<Object> replies = clientAsHash ?
+        readClients(Arrays.asList(clientKey), () -> redisClient.executeBatch(ops, false)) :
+        redisClient.executeBatch(ops, false);
+
+    @SuppressWarnings("unchecked")
+    Client client = clientAsHash ?
+        ClientAdapter.fromFields(ClientAdapter.CREDENTIAL_FIELDS, (List<String>) replies.get(0)) :
+        ClientAdapter.fromHash((String) replies.get(0));
+
+    return new ClientEntityPair<>(
+        client,
+        AuthorizationTicketAdapter.fromHash((String) replies.get(1)));
+  }
+
+  /**
+   * Redeems an authorization ticket for an access token, atomically in one
+   * server-side script. The authorization ticket is removed and the access
+   * token is stored only if the authorization ticket still exists, so that an
+   * authorization ticket can be redeemed at most once. The access token expires
+   * after its lifetime.
+   *
+   * @param clientId The client identifier.
+   * @param code The authorization code of the authorization ticket to be redeemed.
+   * @param accessToken The access token object to be stored.
+   * @return True if the authorization ticket is redeemed, or false if it does not exist.
+   */
+  public boolean redeemAuthorizationTicket(
+      String clientId,
+      String code,
+      com.ysheng.auth.model.api.authcode.AccessToken accessToken) {
+    String accessTokenKey = AccessTokenAdapter.getKey(clientId, accessToken.getAccessToken());
+
+    Object reply = redisClient.evalScript(
+        REDEEM_AUTHORIZATION_TICKET_SCRIPT,
+        Arrays.asList(
+            AuthorizationTicketAdapter.getKey(clientId, code),
+            AuthorizationTicketAdapter.getIndexKey(clientId),
+            accessTokenKey,
+            AccessTokenAdapter.getIndexKey(clientId)),
+        Arrays.asList(
+            AccessTokenAdapter.toHash(accessToken),
+            toTtl(accessToken.getExpiresIn())));
+
+    return Long.valueOf(1L).equals(reply);
+  }
+
   /**
    * Stores an access token object in database.
    *
    * @param accessToken The access token object to be stored.
    */
   public void storeAccessToken(com.ysheng.auth.model.api.authcode.AccessToken accessToken) {
-    redisClient.set(
+    storeAndIndex(
         AccessTokenAdapter.getKey(accessToken.getClientId(), accessToken.getAccessToken()),
-        AccessTokenAdapter.toHash(accessToken));
+        AccessTokenAdapter.toHash(accessToken),
+        AccessTokenAdapter.getIndexKey(accessToken.getClientId()),
+        accessToken.getExpiresIn());
   }
 
   /**
@@ -175,17 +616,59 @@ public class RedisDatabase implements Database {
    * @return A list of access tokens.
    */
   public List<com.ysheng.auth.model.api.authcode.AccessToken> listAccessTokens(String clientId) {
-    Set<String> keys = redisClient.keys(AccessTokenAdapter.getKey(clientId, null));
-
-    if (keys.isEmpty()) {
-      return new ArrayList<>();
+    if (clientId != null) {
+      String indexKey = AccessTokenAdapter.getIndexKey(clientId);
+      return findIndexedByKeys(indexKey, redisClient.smembers(indexKey), AccessTokenAdapter::fromHash);
     }
 
-    return redisClient
-        .mget(keys)
-        .stream()
-        .map(AccessTokenAdapter::fromHash)
-        .collect(Collectors.toList());
+    Set<String> keys = findIndexedKeys(null, AccessTokenAdapter::getIndexKey);
+
+    return findByKeys(keys, AccessTokenAdapter::fromHash);
+  }
+
+  /**
+   * Gets a page of access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   */
+  public ApiList<com.ysheng.auth.model.api.authcode.AccessToken> listAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) {
+    String indexKey = AccessTokenAdapter.getIndexKey(clientId);
+    RedisScanResult result = scanPage(indexKey, cursor, limit);
+
+    return new ApiList<>(
+        findIndexedByKeys(indexKey, new HashSet<>(result.getItems()), AccessTokenAdapter::fromHash),
+        result.getCursor());
+  }
+
+  /**
+   * Gets a lazy iterator over the access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over access tokens.
+   */
+  public Iterator<com.ysheng.auth.model.api.authcode.AccessToken> iterateAccessTokens(String clientId) {
+    return iterateIndexed(
+        AccessTokenAdapter.getIndexKey(clientId),
+        AccessTokenAdapter::fromHash);
+  }
+
+  /**
+   * Gets a lazy iterator over the tokens of the access tokens that belong to
+   * the client, which are the suffixes of the keys in the index set.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over the tokens of access tokens.
+   */
+  public Iterator<String> iterateAccessTokenStrings(String clientId) {
+    return iterateIndexedSuffixes(
+        AccessTokenAdapter.getIndexKey(clientId),
+        AccessTokenAdapter.getKey(clientId, ""));
   }
 
   /**
@@ -195,7 +678,32 @@ public class RedisDatabase implements Database {
    * @param accessToken The access token.
    */
   public void removeAccessToken(String clientId, String accessToken) {
-    redisClient.remove(AccessTokenAdapter.getKey(clientId, accessToken));
+    String key = AccessTokenAdapter.getKey(clientId, accessToken);
+    redisClient.removeAndUnindex(
+        key,
+        AccessTokenAdapter.getIndexKey(clientId),
+        key);
+  }
+
+  /**
+   * Removes access token objects of a client from database, in one
+   * transaction per batch. Access tokens that do not exist are ignored.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed, which leaves out those that do not exist.
+   */
+  public List<String> removeAccessTokens(String clientId, Collection<String> accessTokens) {
+    String keyPrefix = AccessTokenAdapter.getKey(clientId, "");
+    return removeAllAndUnindex(
+        AccessTokenAdapter.getIndexKey(clientId),
+        accessTokens
+            .stream()
+            .map(accessToken -> AccessTokenAdapter.getKey(clientId, accessToken))
+            .collect(Collectors.toList()))
+        .stream()
+        .map(key -> key.substring(keyPrefix.length()))
+        .collect(Collectors.toList());
   }
 
   /**
@@ -212,6 +720,18 @@ public class RedisDatabase implements Database {
         redisClient.get(AccessTokenAdapter.getKey(clientId, accessToken)));
   }
 
+  /**
+   * Checks whether an access token may exist. Redis cannot tell without a
+   * round trip, so any access token may exist.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return Always true.
+   */
+  public boolean mayContainAccessToken(String clientId, String accessToken) {
+    return true;
+  }
+
   ///
   /// Implicit Grant related functions.
   ///
@@ -222,9 +742,38 @@ public class RedisDatabase implements Database {
    * @param accessToken The access token object to be stored.
    */
   public void storeImplictAccessToken(com.ysheng.auth.model.api.implicit.AccessToken accessToken) {
-    redisClient.set(
+    storeAndIndex(
         ImplicitAccessTokenAdapter.getKey(accessToken.getClientId(), accessToken.getAccessToken()),
-        ImplicitAccessTokenAdapter.toHash(accessToken));
+        ImplicitAccessTokenAdapter.toHash(accessToken),
+        ImplicitAccessTokenAdapter.getIndexKey(accessToken.getClientId()),
+        accessToken.getExpiresIn());
+  }
+
+  /**
+   * Stores implicit access token objects in database, in one script call per
+   * batch of access tokens of the same client.
+   *
+   * @param accessTokens The access token objects to be stored.
+   */
+  public void storeImplicitAccessTokens(List<com.ysheng.auth.model.api.implicit.AccessToken> accessTokens) {
+    Map<String, List<com.ysheng.auth.model.api.implicit.AccessToken>> accessTokensByClientId = accessTokens
+        .stream()
+        .collect(Collectors.groupingBy(
+            com.ysheng.auth.model.api.implicit.AccessToken::getClientId,
+            LinkedHashMap::new,
+            Collectors.toList()));
+
+    accessTokensByClientId.forEach((clientId, clientAccessTokens) -> {
+      List<String> keys = new ArrayList<>();
+      List<String> args = new ArrayList<>();
+      for (com.ysheng.auth.model.api.implicit.AccessToken accessToken : clientAccessTokens) {
+        keys.add(ImplicitAccessTokenAdapter.getKey(clientId, accessToken.getAccessToken()));
+        args.add(ImplicitAccessTokenAdapter.toHash(accessToken));
+        args.add(toTtl(accessToken.getExpiresIn()));
+      }
+
+      storeAllAndIndex(ImplicitAccessTokenAdapter.getIndexKey(clientId), keys, args);
+    });
   }
 
   /**
@@ -234,17 +783,59 @@ public class RedisDatabase implements Database {
    * @return A list of access tokens.
    */
   public List<com.ysheng.auth.model.api.implicit.AccessToken> listImplicitAccessTokens(String clientId) {
-    Set<String> keys = redisClient.keys(ImplicitAccessTokenAdapter.getKey(clientId, null));
-
-    if (keys.isEmpty()) {
-      return new ArrayList<>();
+    if (clientId != null) {
+      String indexKey = ImplicitAccessTokenAdapter.getIndexKey(clientId);
+      return findIndexedByKeys(indexKey, redisClient.smembers(indexKey), ImplicitAccessTokenAdapter::fromHash);
     }
 
-    return redisClient
-        .mget(keys)
-        .stream()
-        .map(ImplicitAccessTokenAdapter::fromHash)
-        .collect(Collectors.toList());
+    Set<String> keys = findIndexedKeys(null, ImplicitAccessTokenAdapter::getIndexKey);
+
+    return findByKeys(keys, ImplicitAccessTokenAdapter::fromHash);
+  }
+
+  /**
+   * Gets a page of access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   */
+  public ApiList<com.ysheng.auth.model.api.implicit.AccessToken> listImplicitAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) {
+    String indexKey = ImplicitAccessTokenAdapter.getIndexKey(clientId);
+    RedisScanResult result = scanPage(indexKey, cursor, limit);
+
+    return new ApiList<>(
+        findIndexedByKeys(indexKey, new HashSet<>(result.getItems()), ImplicitAccessTokenAdapter::fromHash),
+        result.getCursor());
+  }
+
+  /**
+   * Gets a lazy iterator over the implicit access tokens that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over access tokens.
+   */
+  public Iterator<com.ysheng.auth.model.api.implicit.AccessToken> iterateImplicitAccessTokens(String clientId) {
+    return iterateIndexed(
+        ImplicitAccessTokenAdapter.getIndexKey(clientId),
+        ImplicitAccessTokenAdapter::fromHash);
+  }
+
+  /**
+   * Gets a lazy iterator over the tokens of the implicit access tokens that
+   * belong to the client, which are the suffixes of the keys in the index set.
+   *
+   * @param clientId The client identifier.
+   * @return An iterator over the tokens of access tokens.
+   */
+  public Iterator<String> iterateImplicitAccessTokenStrings(String clientId) {
+    return iterateIndexedSuffixes(
+        ImplicitAccessTokenAdapter.getIndexKey(clientId),
+        ImplicitAccessTokenAdapter.getKey(clientId, ""));
   }
 
   /**
@@ -254,7 +845,32 @@ public class RedisDatabase implements Database {
    * @param accessToken The access token.
    */
   public void removeImplictAccessToken(String clientId, String accessToken) {
-    redisClient.remove(ImplicitAccessTokenAdapter.getKey(clientId, accessToken));
+    String key = ImplicitAccessTokenAdapter.getKey(clientId, accessToken);
+    redisClient.removeAndUnindex(
+        key,
+        ImplicitAccessTokenAdapter.getIndexKey(clientId),
+        key);
+  }
+
+  /**
+   * Removes implicit access token objects of a client from database, in one
+   * transaction per batch. Access tokens that do not exist are ignored.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   * @return The access tokens that are removed, which leaves out those that do not exist.
+   */
+  public List<String> removeImplicitAccessTokens(String clientId, Collection<String> accessTokens) {
+    String keyPrefix = ImplicitAccessTokenAdapter.getKey(clientId, "");
+    return removeAllAndUnindex(
+        ImplicitAccessTokenAdapter.getIndexKey(clientId),
+        accessTokens
+            .stream()
+            .map(accessToken -> ImplicitAccessTokenAdapter.getKey(clientId, accessToken))
+            .collect(Collectors.toList()))
+        .stream()
+        .map(key -> key.substring(keyPrefix.length()))
+        .collect(Collectors.toList());
   }
 
   /**
@@ -270,4 +886,537 @@ public class RedisDatabase implements Database {
     return ImplicitAccessTokenAdapter.fromHash(
         redisClient.get(ImplicitAccessTokenAdapter.getKey(clientId, accessToken)));
   }
+
+  /**
+   * Checks whether an implicit access token may exist. Redis cannot tell
+   * without a round trip, so any access token may exist.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return Always true.
+   */
+  public boolean mayContainImplicitAccessToken(String clientId, String accessToken) {
+    return true;
+  }
+
+  ///
+  /// Revoked access token related functions.
+  ///
+
+  /**
+   * Stores a revoked access token in database, until the access token expires.
+   *
+   * @param accessToken The access token.
+   * @param expiresIn The remaining lifetime in seconds of the access token.
+   */
+  public void storeRevokedAccessToken(String accessToken, long expiresIn) {
+    storeAndIndex(
+        RevokedAccessTokenAdapter.getKey(accessToken),
+        accessToken,
+        RevokedAccessTokenAdapter.getIndexKey(),
+        // A lifetime of zero would make the entry live forever.
+        Math.max(expiresIn, 1L));
+  }
+
+  /**
+   * Stores revoked access tokens in database, each until it expires, in one
+   * script call per batch.
+   *
+   * @param expiresInByAccessToken The remaining lifetimes in seconds by the access tokens.
+   */
+  public void storeRevokedAccessTokens(Map<String, Long> expiresInByAccessToken) {
+    List<String> keys = new ArrayList<>();
+    List<String> args = new ArrayList<>();
+    expiresInByAccessToken.forEach((accessToken, expiresIn) -> {
+      keys.add(RevokedAccessTokenAdapter.getKey(accessToken));
+      args.add(accessToken);
+      args.add(toTtl(Math.max(expiresIn, 1L)));
+    });
+
+    storeAllAndIndex(RevokedAccessTokenAdapter.getIndexKey(), keys, args);
+  }
+
+  /**
+   * Gets a list of revoked access tokens that have not expired yet.
+   *
+   * @return A list of access tokens.
+   */
+  public List<String> listRevokedAccessTokens() {
+    return findIndexedByKeys(
+        RevokedAccessTokenAdapter.getIndexKey(),
+        redisClient.smembers(RevokedAccessTokenAdapter.getIndexKey()),
+        Function.identity());
+  }
+
+  /**
+   * Stores a revocation of all the access tokens that are issued to a client
+   * at or before a time, until the last of them expires.
+   *
+   * @param clientId The client identifier.
+   * @param notBefore The time in seconds since the epoch, at or before which the access tokens are revoked.
+   * @param expiresIn The lifetime in seconds of the revocation.
+   */
+  public void storeRevokedClient(String clientId, long notBefore, long expiresIn) {
+    storeAndIndex(
+        RevokedClientAdapter.getKey(clientId),
+        RevokedClientAdapter.toValue(clientId, notBefore),
+        RevokedClientAdapter.getIndexKey(),
+        // A lifetime of zero would make the entry live forever.
+        Math.max(expiresIn, 1L));
+  }
+
+  /**
+   * Gets the revocations of clients that have not expired yet.
+   *
+   * @return The times in seconds since the epoch, at or before which the access tokens are revoked,
+   *         by the client identifiers.
+   */
+  public Map<String, Long> listRevokedClients() {
+    Map<String, Long> notBeforeByClientId = new HashMap<>();
+    findIndexedByKeys(
+        RevokedClientAdapter.getIndexKey(),
+        redisClient.smembers(RevokedClientAdapter.getIndexKey()),
+        RevokedClientAdapter::fromValue)
+        .stream()
+        .filter(Objects::nonNull)
+        .forEach(entry -> notBeforeByClientId.put(entry.getKey(), entry.getValue()));
+    return notBeforeByClientId;
+  }
+
+  ///
+  /// Rate limit related functions.
+  ///
+
+  /**
+   * Adds requests to rate limit counters that are shared by all the frontend
+   * instances, and estimates the number of requests of each counter in the
+   * sliding window that ends now. The counters are pipelined in batches, one
+   * pipeline per node, so that a reconciliation of many counters takes a
+   * round trip per node rather than per counter. The counters of the fixed
+   * windows expire once the sliding window no longer covers them.
+   *
+   * @param counts The numbers of requests to be added, which may be zero to only get the estimates,
+   *               by the names of the counters, e.g. a client identifier and an endpoint class.
+   * @param windowMillis The length of the window in milliseconds.
+   * @return The estimated numbers of requests in the sliding window, including the added ones,
+   *         by the names of the counters.
+   */
+  public Map<String, Double> addRateLimitCounts(Map<String, Long> counts, long windowMillis) {
+    long nowMillis = clock.getAsLong();
+    long window = nowMillis / windowMillis;
+    double previousWeight = 1.0 - (double) (nowMillis % windowMillis) / windowMillis;
+
+    List<String> names = new ArrayList<>(counts.keySet());
+    Map<String, Double> estimates = new HashMap<>();
+    for (int from = 0; from < names.size(); from += BATCH_SIZE) {
+      List<String> batch = names.subList(from, Math.min(from + BATCH_SIZE, names.size()));
+      List<RedisOp> ops = new ArrayList<>();
+      for (String name : batch) {
+        String key = RateLimitAdapter.getKey(name, window);
+        ops.add(RedisOp.incrBy(key, counts.get(name)));
+        ops.add(RedisOp.pexpire(key, 2 * windowMillis));
+        ops.add(RedisOp.get(RateLimitAdapter.getKey(name, window - 1)));
+      }
+
+      List<Object> replies = redisClient.executeBatch(ops, false);
+      for (int i = 0; i < batch.size(); ++i) {
+        double current = ((Number) replies.get(3 * i)).doubleValue();
+        Object previous = replies.get(3 * i + 2);
+        estimates.put(
+            batch.get(i),
+            current + (previous == null ? 0.0 : Double.parseDouble((String) previous)) * previousWeight);
+      }
+    }
+
+    return estimates;
+  }
+
+  ///
+  /// Lifecycle related functions.
+  ///
+
+  /**
+   * Closes the database and releases its resources.
+   */
+  public void close() {
+    redisClient.close();
+  }
+
+  /**
+   * Gets the usage of the connection pools of the Redis client, e.g. to
+   * report it.
+   *
+   * @return The usage of the connection pools.
+   */
+  public RedisPoolUsage getPoolUsage() {
+    return redisClient.getPoolUsage();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  /**
+   * Finds the keys of the entities that belong to the client by reading the
+   * per-client index set. If the client identifier is null, the index sets of
+   * all clients are merged.
+   *
+   * @param clientId The client identifier.
+   * @param indexKeyMapper The function that maps a client identifier to its index key.
+   * @return The set of entity keys.
+   */
+  private Set<String> findIndexedKeys(
+      String clientId,
+      Function<String, String> indexKeyMapper) {
+    if (clientId != null) {
+      return redisClient.smembers(indexKeyMapper.apply(clientId));
+    }
+
+    Set<String> clientIds = redisClient.smembers(ClientAdapter.getIndexKey());
+
+    if (clientIds.isEmpty()) {
+      return new HashSet<>();
+    }
+
+    return redisClient.sunion(
+        clientIds
+            .stream()
+            .map(indexKeyMapper)
+            .collect(Collectors.toSet()));
+  }
+
+  /**
+   * Gets the clients with the given keys. Clients that are stored as hashes
+   * are read with pipelined hgetall commands, and clients that are still
+   * stored as strings are migrated to hashes first.
+   *
+   * @param keys The set of client keys.
+   * @return A list of clients.
+   */
+  @SuppressWarnings("unchecked")
+  private List<Client> findClientsByKeys(Set<String> keys) {
+    if (clientStorageType != RedisStorageType.HASH) {
+      return findByKeys(keys, ClientAdapter::fromHash);
+    }
+
+    if (keys.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    return readClients(
+        keys,
+        () -> redisClient.executeBatch(
+            keys.stream().map(RedisOp::hgetAll).collect(Collectors.toList()),
+            false))
+        .stream()
+        .map(reply -> ClientAdapter.fromFields((Map<String, String>) reply))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Reads clients that are stored as hashes. Clients that are stored as
+   * strings before clients are stored as hashes make the read fail with a
+   * WRONGTYPE error, in which case the clients are migrated to hashes and
+   * read again.
+   *
+   * @param keys The keys of the clients that are read.
+   * @param reader The function that reads the clients.
+   * @param <T> The type of the result of the read.
+   * @return The result of the read.
+   */
+  private <T> T readClients(Collection<String> keys, Supplier<T> reader) {
+    try {
+      return reader.get();
+    } catch (RuntimeException ex) {
+      if (!isWrongType(ex)) {
+        throw ex;
+      }
+    }
+
+    keys.forEach(this::migrateClient);
+    return reader.get();
+  }
+
+  /**
+   * Migrates a client that is stored as a string to a hash. The client is
+   * migrated in a server-side script only if it still holds the string that is
+   * read, so that a client that is stored or migrated in the meantime is kept.
+   *
+   * @param key The key of the client.
+   */
+  private void migrateClient(String key) {
+    String value;
+    try {
+      value = redisClient.get(key);
+    } catch (RuntimeException ex) {
+      if (isWrongType(ex)) {
+        return;
+      }
+      throw ex;
+    }
+
+    Client client = value == null ? null : ClientAdapter.fromHash(value);
+    if (client == null) {
+      return;
+    }
+
+    List<String> args = new ArrayList<>();
+    args.add(value);
+    ClientAdapter.toFields(client).forEach((name, fieldValue) -> {
+      args.add(name);
+      args.add(fieldValue);
+    });
+
+    redisClient.evalScript(MIGRATE_CLIENT_SCRIPT, Arrays.asList(key), args);
+  }
+
+  /**
+   * Checks whether an exception is caused by a WRONGTYPE error of Redis.
+   *
+   * @param ex The exception.
+   * @return True if the exception is caused by a WRONGTYPE error.
+   */
+  private static boolean isWrongType(Throwable ex) {
+    for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+      if (cause.getMessage() != null && cause.getMessage().contains(WRONG_TYPE_ERROR)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Stores an entity and adds its key to an index set atomically in one
+   * server-side script. If the entity has a lifetime, the entity expires after
+   * the lifetime and the index set lives as long as its longest living member.
+   *
+   * @param key The key of the entity.
+   * @param value The value of the entity.
+   * @param indexKey The key of the index set.
+   * @param expiresIn The lifetime in seconds of the entity, or null if it does not expire.
+   */
+  private void storeAndIndex(
+      String key,
+      String value,
+      String indexKey,
+      Long expiresIn) {
+    redisClient.evalScript(
+        STORE_AND_INDEX_SCRIPT,
+        Arrays.asList(key, indexKey),
+        Arrays.asList(value, toTtl(expiresIn)));
+  }
+
+  /**
+   * Stores entities and adds their keys to an index set, in one server-side
+   * script call per batch. Each batch is applied atomically, and the index set
+   * lives as long as its longest living member.
+   *
+   * @param indexKey The key of the index set.
+   * @param keys The keys of the entities.
+   * @param args The value and the time to live argument of each entity, in the order of the keys.
+   */
+  private void storeAllAndIndex(
+      String indexKey,
+      List<String> keys,
+      List<String> args) {
+    for (int from = 0; from < keys.size(); from += BATCH_SIZE) {
+      int to = Math.min(from + BATCH_SIZE, keys.size());
+
+      List<String> batchKeys = new ArrayList<>(to - from + 1);
+      batchKeys.add(indexKey);
+      batchKeys.addAll(keys.subList(from, to));
+
+      redisClient.evalScript(STORE_ALL_AND_INDEX_SCRIPT, batchKeys, args.subList(2 * from, 2 * to));
+    }
+  }
+
+  /**
+   * Removes entities and removes their keys from an index set, in one
+   * MULTI/EXEC transaction per batch.
+   *
+   * @param indexKey The key of the index set.
+   * @param keys The keys of the entities, which are members of the index set.
+   * @return The keys of the entities that are removed, which leaves out those
+   *         that do not exist, e.g. because they have expired.
+   */
+  private List<String> removeAllAndUnindex(
+      String indexKey,
+      List<String> keys) {
+    List<String> removedKeys = new ArrayList<>();
+    for (int from = 0; from < keys.size(); from += BATCH_SIZE) {
+      List<String> batchKeys = keys.subList(from, Math.min(from + BATCH_SIZE, keys.size()));
+      List<RedisOp> ops = new ArrayList<>();
+      for (String key : batchKeys) {
+        ops.add(RedisOp.del(key));
+        ops.add(RedisOp.srem(indexKey, key));
+      }
+
+      // The reply of the DEL command of each entity tells whether it existed.
+      List<Object> replies = redisClient.executeBatch(ops, true);
+      for (int i = 0; i < batchKeys.size(); ++i) {
+        if (Long.valueOf(1L).equals(replies.get(2 * i))) {
+          removedKeys.add(batchKeys.get(i));
+        }
+      }
+    }
+
+    return removedKeys;
+  }
+
+  /**
+   * Converts a lifetime to the time to live argument of the scripts.
+   *
+   * @param expiresIn The lifetime in seconds, or null if it does not expire.
+   * @return The time to live in seconds, which is 0 if it does not expire.
+   */
+  private static String toTtl(Long expiresIn) {
+    return expiresIn == null || expiresIn <= 0 ? "0" : String.valueOf(expiresIn);
+  }
+
+  /**
+   * Scans a page of an index set. The cursor is checked first, since Redis
+   * only takes an unsigned 64-bit number as a cursor, and it comes from the
+   * caller as is.
+   *
+   * @param indexKey The key of the index set.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of members in the page.
+   * @return The page of the members of the index set.
+   * @throws IllegalArgumentException If the cursor is malformed.
+   */
+  private RedisScanResult scanPage(
+      String indexKey,
+      String cursor,
+      int limit) {
+    if (cursor != null && !isValidCursor(cursor)) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    return redisClient.sscan(indexKey, cursor, limit);
+  }
+
+  /**
+   * Determines whether a cursor is an unsigned 64-bit number.
+   *
+   * @param cursor The cursor to be validated.
+   * @return True if the cursor is valid. False otherwise.
+   */
+  private static boolean isValidCursor(String cursor) {
+    if (!CURSOR_PATTERN.matcher(cursor).matches()) {
+      return false;
+    }
+
+    try {
+      Long.parseUnsignedLong(cursor);
+      return true;
+    } catch (NumberFormatException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Gets a lazy iterator over the entities that are indexed by an index set.
+   * The index set is scanned in chunks, and the entities of each chunk are
+   * loaded in one round trip.
+   *
+   * @param indexKey The key of the index set.
+   * @param parser The function that parses the Redis hash.
+   * @param <T> The type of the entity.
+   * @return An iterator over the entities.
+   */
+  private <T> Iterator<T> iterateIndexed(
+      String indexKey,
+      Function<String, T> parser) {
+    return new RedisIndexIterator<>(
+        cursor -> redisClient.sscan(indexKey, cursor, BATCH_SIZE),
+        keys -> findIndexedByKeys(indexKey, new LinkedHashSet<>(keys), parser));
+  }
+
+  /**
+   * Gets a lazy iterator over the suffixes of the members of an index set
+   * after a key prefix. The index set is scanned in chunks, and the entities
+   * are not loaded, so members whose entities have expired are included.
+   *
+   * @param indexKey The key of the index set.
+   * @param keyPrefix The prefix of the keys in the index set.
+   * @return An iterator over the suffixes.
+   */
+  private Iterator<String> iterateIndexedSuffixes(
+      String indexKey,
+      String keyPrefix) {
+    return new RedisIndexIterator<>(
+        cursor -> redisClient.sscan(indexKey, cursor, BATCH_SIZE),
+        keys -> keys
+            .stream()
+            .map(key -> key.substring(keyPrefix.length()))
+            .collect(Collectors.toList()));
+  }
+
+  /**
+   * Gets the entities with the given keys that are indexed by an index set.
+   * Redis does not remove the member of an index set when the entity that it
+   * refers to expires, so the members whose entities no longer exist are
+   * removed from the index set as they are found. The scripts that store
+   * entities prune a sample of the index set as well, so that the index sets
+   * of clients that are never listed do not grow without a bound.
+   *
+   * @param indexKey The key of the index set.
+   * @param keys The set of entity keys, which are members of the index set.
+   * @param parser The function that parses the Redis hash.
+   * @param <T> The type of the entity.
+   * @return A list of entities.
+   */
+  private <T> List<T> findIndexedByKeys(
+      String indexKey,
+      Set<String> keys,
+      Function<String, T> parser) {
+    if (keys.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<String> orderedKeys = new ArrayList<>(keys);
+    List<String> values = redisClient.mget(new LinkedHashSet<>(orderedKeys));
+
+    List<T> entities = new ArrayList<>();
+    List<RedisOp> staleMembers = new ArrayList<>();
+    for (int i = 0; i < orderedKeys.size(); ++i) {
+      if (values.get(i) == null) {
+        staleMembers.add(RedisOp.srem(indexKey, orderedKeys.get(i)));
+      } else {
+        entities.add(parser.apply(values.get(i)));
+      }
+    }
+
+    if (!staleMembers.isEmpty()) {
+      redisClient.executeBatch(staleMembers, false);
+    }
+
+    return entities;
+  }
+
+  /**
+   * Gets the entities with the given keys in one mget command. Entities that
+   * no longer exist are skipped.
+   *
+   * @param keys The set of entity keys.
+   * @param parser The function that parses the Redis hash.
+   * @param <T> The type of the entity.
+   * @return A list of entities.
+   */
+  private <T> List<T> findByKeys(
+      Set<String> keys,
+      Function<String, T> parser) {
+    if (keys.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    return redisClient
+        .mget(keys)
+        .stream()
+        .filter(Objects::nonNull)
+        .map(parser)
+        .collect(Collectors.toList());
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Implements a lazy iterator over the entities of an index set. The members
+ * of the index set are scanned one chunk at a time, and each chunk is loaded
+ * only when the previous one is exhausted, so that the memory used does not
+ * depend on the size of the index set. As with SSCAN, an entity may be
+ * returned more than once if the index set is rehashed during the iteration.
+ *
+ * @param <T> The type of the entities.
+ */
+public class RedisIndexIterator<T> implements Iterator<T> {
+
+  // The function that scans a chunk of the index set from a cursor.
+  private Function<String, RedisScanResult> scanner;
+
+  // The function that loads the entities of a chunk of index members.
+  private Function<List<String>, List<T>> loader;
+
+  // The entities of the current chunk that are not returned yet.
+  private Iterator<T> chunk;
+
+  // The cursor to scan the next chunk.
+  private String cursor;
+
+  // Whether the index set is completely scanned.
+  private boolean scanned;
+
+  /**
+   * Constructs a RedisIndexIterator object.
+   *
+   * @param scanner The function that scans a chunk of the index set from a cursor.
+   * @param loader The function that loads the entities of a chunk of index members.
+   */
+  public RedisIndexIterator(
+      Function<String, RedisScanResult> scanner,
+      Function<List<String>, List<T>> loader) {
+    this.scanner = scanner;
+    this.loader = loader;
+    this.chunk = Collections.emptyIterator();
+    this.cursor = null;
+    this.scanned = false;
+  }
+
+  /**
+   * Checks whether there are more entities, scanning and loading the next
+   * chunks if the current one is exhausted.
+   *
+   * @return True if there are more entities, or false otherwise.
+   */
+  public boolean hasNext() {
+    while (!chunk.hasNext() && !scanned) {
+      RedisScanResult result = scanner.apply(cursor);
+      cursor = result.getCursor();
+      scanned = cursor == null;
+
+      if (!result.getItems().isEmpty()) {
+        chunk = loader.apply(result.getItems()).iterator();
+      }
+    }
+
+    return chunk.hasNext();
+  }
+
+  /**
+   * Gets the next entity.
+   *
+   * @return The next entity.
+   */
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    return chunk.next();
+  }
+}
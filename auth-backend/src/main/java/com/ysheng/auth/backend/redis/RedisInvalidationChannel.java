@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis;
+
+import com.ysheng.auth.backend.cache.InvalidationChannel;
+
+import java.util.function.Consumer;
+
+/**
+ * Defines a cache invalidation channel on top of Redis pub/sub. Messages are
+ * not persisted by Redis, so the subscription asks for a reset whenever it is
+ * established again after the connection is lost.
+ */
+public class RedisInvalidationChannel implements InvalidationChannel {
+
+  // The Redis client object.
+  private final RedisClient redisClient;
+
+  // The Redis channel that carries the invalidations.
+  private final String channel;
+
+  // The subscription to the channel, or null if there is none.
+  private RedisSubscription subscription;
+
+  /**
+   * Constructs a RedisInvalidationChannel object.
+   *
+   * @param redisClient The Redis client object.
+   * @param channel The Redis channel that carries the invalidations.
+   */
+  public RedisInvalidationChannel(
+      RedisClient redisClient,
+      String channel) {
+    this.redisClient = redisClient;
+    this.channel = channel;
+  }
+
+  /**
+   * Publishes the invalidation of a key to all the nodes.
+   *
+   * @param key The key to be invalidated.
+   */
+  public void publish(String key) {
+    redisClient.publish(channel, key);
+  }
+
+  /**
+   * Starts listening to invalidations.
+   *
+   * @param keyListener The listener that is called with each invalidated key.
+   * @param resetListener The listener that is called each time the subscription is established.
+   */
+  public synchronized void subscribe(Consumer<String> keyListener, Runnable resetListener) {
+    if (subscription == null) {
+      subscription = redisClient.subscribe(channel, keyListener, resetListener);
+    }
+  }
+
+  /**
+   * Stops listening to invalidations.
+   */
+  public synchronized void close() {
+    if (subscription != null) {
+      subscription.close();
+      subscription = null;
+    }
+  }
+}
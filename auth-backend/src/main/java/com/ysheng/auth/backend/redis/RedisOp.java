@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Defines a single Redis command that is executed as part of a batch.
+ */
+public class RedisOp {
+
+  /**
+   * Defines the supported command types.
+   */
+  public enum Type {
+    GET,
+    SET,
+    DEL,
+    SADD,
+    SREM,
+    HMSET,
+    HGETALL,
+    HMGET,
+    INCRBY,
+    PEXPIRE
+  }
+
+  // The command type.
+  private final Type type;
+
+  // The key that the command operates on.
+  private final String key;
+
+  // The value of a SET command, the member of a SADD/SREM command, the increment
+  // of an INCRBY command or the time to live of a PEXPIRE command.
+  private final String value;
+
+  // The fields and values of a HMSET command.
+  private final Map<String, String> hash;
+
+  // The fields of a HMGET command.
+  private final List<String> fields;
+
+  private RedisOp(Type type, String key, String value) {
+    this(type, key, value, null, null);
+  }
+
+  private RedisOp(
+      Type type,
+      String key,
+      String value,
+      Map<String, String> hash,
+      List<String> fields) {
+    this.type = type;
+    this.key = key;
+    this.value = value;
+    this.hash = hash;
+    this.fields = fields;
+  }
+
+  /**
+   * Creates a get command.
+   *
+   * @param key The key of the database entity.
+   * @return The command object.
+   */
+  public static RedisOp get(String key) {
+    return new RedisOp(Type.GET, key, null);
+  }
+
+  /**
+   * Creates a set command.
+   *
+   * @param key The key of the database entity.
+   * @param value The value of the database entity.
+   * @return The command object.
+   */
+  public static RedisOp set(String key, String value) {
+    return new RedisOp(Type.SET, key, value);
+  }
+
+  /**
+   * Creates a del command.
+   *
+   * @param key The key of the database entity.
+   * @return The command object.
+   */
+  public static RedisOp del(String key) {
+    return new RedisOp(Type.DEL, key, null);
+  }
+
+  /**
+   * Creates a sadd command.
+   *
+   * @param key The key of the set.
+   * @param member The member to be added to the set.
+   * @return The command object.
+   */
+  public static RedisOp sadd(String key, String member) {
+    return new RedisOp(Type.SADD, key, member);
+  }
+
+  /**
+   * Creates a srem command.
+   *
+   * @param key The key of the set.
+   * @param member The member to be removed from the set.
+   * @return The command object.
+   */
+  public static RedisOp srem(String key, String member) {
+    return new RedisOp(Type.SREM, key, member);
+  }
+
+  /**
+   * Creates a hmset command.
+   *
+   * @param key The key of the hash.
+   * @param hash The fields and values to be set in the hash.
+   * @return The command object.
+   */
+  public static RedisOp hmset(String key, Map<String, String> hash) {
+    return new RedisOp(Type.HMSET, key, null, hash, null);
+  }
+
+  /**
+   * Creates a hgetall command.
+   *
+   * @param key The key of the hash.
+   * @return The command object.
+   */
+  public static RedisOp hgetAll(String key) {
+    return new RedisOp(Type.HGETALL, key, null);
+  }
+
+  /**
+   * Creates a hmget command.
+   *
+   * @param key The key of the hash.
+   * @param fields The fields to be read from the hash.
+   * @return The command object.
+   */
+  public static RedisOp hmget(String key, List<String> fields) {
+    return new RedisOp(Type.HMGET, key, null, null, fields);
+  }
+
+  /**
+   * Creates an incrby command.
+   *
+   * @param key The key of the counter.
+   * @param increment The number to be added to the counter.
+   * @return The command object.
+   */
+  public static RedisOp incrBy(String key, long increment) {
+    return new RedisOp(Type.INCRBY, key, Long.toString(increment));
+  }
+
+  /**
+   * Creates a pexpire command.
+   *
+   * @param key The key of the database entity.
+   * @param millis The time to live in milliseconds.
+   * @return The command object.
+   */
+  public static RedisOp pexpire(String key, long millis) {
+    return new RedisOp(Type.PEXPIRE, key, Long.toString(millis));
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public Map<String, String> getHash() {
+    return hash;
+  }
+
+  public List<String> getFields() {
+    return fields;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis;
+
+import java.util.List;
+
+/**
+ * Defines the data structure that represents one step of a Redis cursor based iteration.
+ */
+public class RedisScanResult {
+
+  // The cursor to continue the iteration. It is null if the iteration is complete.
+  private String cursor;
+
+  // The members returned by this step of the iteration.
+  private List<String> items;
+
+  /**
+   * Constructs a RedisScanResult object.
+   *
+   * @param cursor The cursor to continue the iteration, or null if the iteration is complete.
+   * @param items The members returned by this step of the iteration.
+   */
+  public RedisScanResult(
+      String cursor,
+      List<String> items) {
+    this.cursor = cursor;
+    this.items = items;
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public List<String> getItems() {
+    return items;
+  }
+}
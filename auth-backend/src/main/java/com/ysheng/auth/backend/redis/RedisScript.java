@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Defines a Lua script that is executed on the Redis server. The SHA1 digest
+ * of the script is computed once, so that the script is invoked with EVALSHA
+ * instead of sending its body on every call.
+ */
+public class RedisScript {
+
+  // The body of the script.
+  private final String body;
+
+  // The SHA1 digest of the script body, in lower case hex.
+  private final String sha;
+
+  /**
+   * Constructs a RedisScript object.
+   *
+   * @param body The body of the script.
+   */
+  public RedisScript(String body) {
+    this.body = body;
+    this.sha = sha1Hex(body);
+  }
+
+  /**
+   * Loads a script from a resource relative to this class.
+   *
+   * @param name The name of the resource.
+   * @return The script object.
+   */
+  public static RedisScript fromResource(String name) {
+    try (InputStream input = RedisScript.class.getResourceAsStream(name)) {
+      if (input == null) {
+        throw new IllegalArgumentException("Redis script not found: " + name);
+      }
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+
+      return new RedisScript(new String(output.toByteArray(), StandardCharsets.UTF_8));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private static String sha1Hex(String body) {
+    try {
+      byte[] digest = MessageDigest
+          .getInstance("SHA-1")
+          .digest(body.getBytes(StandardCharsets.UTF_8));
+
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest) {
+        hex.append(String.format("%02x", b));
+      }
+
+      return hex.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public String getBody() {
+    return body;
+  }
+
+  public String getSha() {
+    return sha;
+  }
+}
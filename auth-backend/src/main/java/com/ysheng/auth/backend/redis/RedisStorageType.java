@@ -0,0 +1,25 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis;
+
+/**
+ * Defines how entities are stored in Redis.
+ */
+public enum RedisStorageType {
+  // Each entity is one encoded string value.
+  STRING,
+  // Each field of an entity is one field of a Redis hash, so that a subset of
+  // the fields can be read without reading the whole entity.
+  HASH
+}
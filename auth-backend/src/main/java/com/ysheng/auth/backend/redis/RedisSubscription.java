@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis;
+
+import com.ysheng.auth.backend.redis.connection.RedisConnection;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Defines a subscription to a Redis channel, which listens on a dedicated
+ * thread and connection resource until it is closed.
+ */
+public class RedisSubscription {
+
+  // The time to wait before subscribing again after the connection is lost.
+  private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  // The Redis connection object.
+  private final RedisConnection connection;
+
+  // The channel to subscribe to.
+  private final String channel;
+
+  // The listener that is called with each message of the channel.
+  private final Consumer<String> messageListener;
+
+  // The listener that is called each time the subscription is established.
+  private final Runnable subscribeListener;
+
+  // The thread that listens to the channel.
+  private final Thread thread;
+
+  // The subscription of the current connection resource, or null if there is none.
+  private volatile JedisPubSub pubSub;
+
+  // Whether the subscription is closed.
+  private volatile boolean closed;
+
+  /**
+   * Constructs a RedisSubscription object.
+   *
+   * @param connection The Redis connection object, which is expected to be open.
+   * @param channel The channel to subscribe to.
+   * @param messageListener The listener that is called with each message of the channel.
+   * @param subscribeListener The listener that is called each time the subscription is established.
+   */
+  public RedisSubscription(
+      RedisConnection connection,
+      String channel,
+      Consumer<String> messageListener,
+      Runnable subscribeListener) {
+    this.connection = connection;
+    this.channel = channel;
+    this.messageListener = messageListener;
+    this.subscribeListener = subscribeListener;
+    this.thread = new Thread(this::listen, "redis-subscription-" + channel);
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Starts listening to the channel.
+   */
+  public void start() {
+    thread.start();
+  }
+
+  /**
+   * Checks whether the subscription is established.
+   *
+   * @return True if the subscription is established.
+   */
+  public boolean isSubscribed() {
+    JedisPubSub current = pubSub;
+    return current != null && current.isSubscribed();
+  }
+
+  /**
+   * Stops listening to the channel, and hands the connection resource back.
+   */
+  public void close() {
+    closed = true;
+    unsubscribe();
+    thread.interrupt();
+  }
+
+  private void listen() {
+    while (!closed) {
+      try (Jedis resource = connection.getResource(channel)) {
+        pubSub = new JedisPubSub() {
+          @Override
+          public void onMessage(String channel, String message) {
+            messageListener.accept(message);
+          }
+
+          @Override
+          public void onSubscribe(String channel, int subscribedChannels) {
+            if (closed) {
+              unsubscribe();
+            } else {
+              subscribeListener.run();
+            }
+          }
+        };
+        resource.subscribe(pubSub, channel);
+      } catch (JedisConnectionException ex) {
+        if (!closed) {
+          waitForRetry();
+        }
+      } finally {
+        pubSub = null;
+      }
+    }
+  }
+
+  private void unsubscribe() {
+    JedisPubSub current = pubSub;
+    if (current != null && current.isSubscribed()) {
+      try {
+        current.unsubscribe();
+      } catch (JedisConnectionException ex) {
+        // The connection is lost, which ends the subscription anyway.
+      }
+    }
+  }
+
+  private void waitForRetry() {
+    try {
+      Thread.sleep(RETRY_DELAY_MILLIS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      closed = true;
+    }
+  }
+}
@@ -13,22 +13,27 @@
 
 package com.ysheng.auth.backend.redis.adapter;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ysheng.auth.model.api.AccessTokenType;
 import com.ysheng.auth.model.api.authcode.AccessToken;
 
-import java.io.IOException;
-
 /**
  * Defines the adapter for an access token entity in Redis.
  */
 public class AccessTokenAdapter {
 
-  // The template for the entity key.
-  private static final String ENTITY_KEY_TEMPLATE = "auth-access-token:%s:%s";
+  // The template for the entity key. The client identifier is the hash tag, so
+  // that all the keys of a client belong to the same Redis Cluster slot.
+  private static final String ENTITY_KEY_TEMPLATE = "auth-access-token:{%s}:%s";
+
+  // The template for the key of the per-client index set.
+  private static final String INDEX_KEY_TEMPLATE = "auth-access-token-index:{%s}";
 
-  // The JSON object mapper.
-  private static final ObjectMapper objectMapper = new ObjectMapper();
+  // The codec of the entity value. Values that were stored as JSON strings
+  // are still read back.
+  private static final EntityCodec<AccessToken> codec = new CompactEntityCodec<>(
+      AccessTokenAdapter::write,
+      AccessTokenAdapter::read,
+      new JsonEntityCodec<>(AccessToken.class));
 
   /**
    * Returns the Redis key for the object.
@@ -51,6 +56,17 @@ public class AccessTokenAdapter {
     return String.format(ENTITY_KEY_TEMPLATE, clientId, accessToken);
   }
 
+  /**
+   * Returns the Redis key of the index set that contains the keys of all
+   * access token objects that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return The key of the index set.
+   */
+  public static String getIndexKey(String clientId) {
+    return String.format(INDEX_KEY_TEMPLATE, clientId);
+  }
+
   /**
    * Returns the Redis hash for the object.
    *
@@ -58,11 +74,7 @@ public class AccessTokenAdapter {
    * @return The hash for the object.
    */
   public static String toHash(AccessToken accessToken) {
-    try {
-      return objectMapper.writeValueAsString(accessToken);
-    } catch (IOException ex) {
-      return null;
-    }
+    return codec.encode(accessToken);
   }
 
   /**
@@ -72,13 +84,44 @@ public class AccessTokenAdapter {
    * @return The database object.
    */
   public static AccessToken fromHash(String hash) {
-    try {
-      return objectMapper.readValue(
-          hash,
-          new TypeReference<AccessToken>() {
-          });
-    } catch (IOException ex) {
-      return null;
-    }
+    return codec.decode(hash);
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  /**
+   * Writes the fields of the object in the compact format.
+   *
+   * @param writer The compact writer.
+   * @param accessToken The database object.
+   */
+  private static void write(CompactWriter writer, AccessToken accessToken) {
+    writer
+        .writeString(accessToken.getClientId())
+        .writeString(accessToken.getAccessToken())
+        .writeEnum(accessToken.getTokenType())
+        .writeLong(accessToken.getExpiresIn())
+        .writeString(accessToken.getRefreshToken())
+        .writeString(accessToken.getScope());
+  }
+
+  /**
+   * Reads the fields of the object in the compact format, in the same order as
+   * they are written.
+   *
+   * @param reader The compact reader.
+   * @return The database object.
+   */
+  private static AccessToken read(CompactReader reader) {
+    AccessToken accessToken = new AccessToken();
+    accessToken.setClientId(reader.readString());
+    accessToken.setAccessToken(reader.readString());
+    accessToken.setTokenType(reader.readEnum(AccessTokenType.class));
+    accessToken.setExpiresIn(reader.readLong());
+    accessToken.setRefreshToken(reader.readString());
+    accessToken.setScope(reader.readString());
+    return accessToken;
   }
 }
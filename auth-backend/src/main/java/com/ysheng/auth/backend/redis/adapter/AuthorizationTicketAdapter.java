@@ -13,22 +13,26 @@
 
 package com.ysheng.auth.backend.redis.adapter;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
 
-import java.io.IOException;
-
 /**
  * Defines the adapter for an authorization ticket entity in Redis.
  */
 public class AuthorizationTicketAdapter {
 
-  // The template for the entity key.
-  private static final String ENTITY_KEY_TEMPLATE = "auth-authorization-ticket:%s:%s";
+  // The template for the entity key. The client identifier is the hash tag, so
+  // that all the keys of a client belong to the same Redis Cluster slot.
+  private static final String ENTITY_KEY_TEMPLATE = "auth-authorization-ticket:{%s}:%s";
+
+  // The template for the key of the per-client index set.
+  private static final String INDEX_KEY_TEMPLATE = "auth-authorization-ticket-index:{%s}";
 
-  // The JSON object mapper.
-  private static final ObjectMapper objectMapper = new ObjectMapper();
+  // The codec of the entity value. Values that were stored as JSON strings
+  // are still read back.
+  private static final EntityCodec<AuthorizationTicket> codec = new CompactEntityCodec<>(
+      AuthorizationTicketAdapter::write,
+      AuthorizationTicketAdapter::read,
+      new JsonEntityCodec<>(AuthorizationTicket.class));
 
   /**
    * Returns the Redis key for the object.
@@ -51,6 +55,17 @@ public class AuthorizationTicketAdapter {
     return String.format(ENTITY_KEY_TEMPLATE, clientId, code);
   }
 
+  /**
+   * Returns the Redis key of the index set that contains the keys of all
+   * authorization ticket objects that belong to the client.
+   *
+   * @param clientId The client identifier.
+   * @return The key of the index set.
+   */
+  public static String getIndexKey(String clientId) {
+    return String.format(INDEX_KEY_TEMPLATE, clientId);
+  }
+
   /**
    * Returns the Redis hash for the object.
    *
@@ -58,11 +73,7 @@ public class AuthorizationTicketAdapter {
    * @return The hash for the object.
    */
   public static String toHash(AuthorizationTicket authorizationTicket) {
-    try {
-      return objectMapper.writeValueAsString(authorizationTicket);
-    } catch (IOException ex) {
-      return null;
-    }
+    return codec.encode(authorizationTicket);
   }
 
   /**
@@ -72,13 +83,44 @@ public class AuthorizationTicketAdapter {
    * @return The database object.
    */
   public static AuthorizationTicket fromHash(String hash) {
-    try {
-      return objectMapper.readValue(
-          hash,
-          new TypeReference<AuthorizationTicket>() {
-          });
-    } catch (IOException ex) {
-      return null;
-    }
+    return codec.decode(hash);
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  /**
+   * Writes the fields of the object in the compact format.
+   *
+   * @param writer The compact writer.
+   * @param authorizationTicket The database object.
+   */
+  private static void write(CompactWriter writer, AuthorizationTicket authorizationTicket) {
+    writer
+        .writeString(authorizationTicket.getCode())
+        .writeString(authorizationTicket.getClientId())
+        .writeString(authorizationTicket.getRedirectUri())
+        .writeString(authorizationTicket.getScope())
+        .writeString(authorizationTicket.getState())
+        .writeLong(authorizationTicket.getExpiresIn());
+  }
+
+  /**
+   * Reads the fields of the object in the compact format, in the same order as
+   * they are written.
+   *
+   * @param reader The compact reader.
+   * @return The database object.
+   */
+  private static AuthorizationTicket read(CompactReader reader) {
+    AuthorizationTicket authorizationTicket = new AuthorizationTicket();
+    authorizationTicket.setCode(reader.readString());
+    authorizationTicket.setClientId(reader.readString());
+    authorizationTicket.setRedirectUri(reader.readString());
+    authorizationTicket.setScope(reader.readString());
+    authorizationTicket.setState(reader.readString());
+    authorizationTicket.setExpiresIn(reader.readLong());
+    return authorizationTicket;
   }
 }
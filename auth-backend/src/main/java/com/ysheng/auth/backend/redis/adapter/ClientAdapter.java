@@ -13,22 +13,55 @@
 
 package com.ysheng.auth.backend.redis.adapter;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ysheng.auth.model.api.ClientType;
 import com.ysheng.auth.model.api.client.Client;
 
-import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Defines the adapter for a client entity in Redis.
  */
 public class ClientAdapter {
 
-  // The template for the entity key.
-  private static final String ENTITY_KEY_TEMPLATE = "auth-client:%s";
+  // The template for the entity key. The client identifier is the hash tag, so
+  // that all the keys of a client belong to the same Redis Cluster slot.
+  private static final String ENTITY_KEY_TEMPLATE = "auth-client:{%s}";
 
-  // The JSON object mapper.
-  private static final ObjectMapper objectMapper = new ObjectMapper();
+  // The key of the index set that contains all client identifiers.
+  private static final String INDEX_KEY = "auth-client-index";
+
+  // The key of the set that contains the identifiers of the tombstoned clients.
+  private static final String TOMBSTONE_INDEX_KEY = "auth-client-tombstone-index";
+
+  // The template for the key of the lease on the cleanup of a tombstoned client.
+  private static final String CLEANUP_LEASE_KEY_TEMPLATE = "auth-client-cleanup-lease:{%s}";
+
+  // The hash field of the client type.
+  public static final String TYPE_FIELD = "type";
+
+  // The hash field of the client identifier.
+  public static final String ID_FIELD = "id";
+
+  // The hash field of the client secret.
+  public static final String SECRET_FIELD = "secret";
+
+  // The hash field of the redirect URI.
+  public static final String REDIRECT_URI_FIELD = "redirectUri";
+
+  // The hash fields that are needed to authenticate a client.
+  public static final List<String> CREDENTIAL_FIELDS = Collections.unmodifiableList(
+      Arrays.asList(ID_FIELD, TYPE_FIELD, SECRET_FIELD));
+
+  // The codec of the entity value. Values that were stored as JSON strings
+  // are still read back.
+  private static final EntityCodec<Client> codec = new CompactEntityCodec<>(
+      ClientAdapter::write,
+      ClientAdapter::read,
+      new JsonEntityCodec<>(Client.class));
 
   /**
    * Returns the Redis key for the object.
@@ -45,6 +78,36 @@ public class ClientAdapter {
     return String.format(ENTITY_KEY_TEMPLATE, clientId);
   }
 
+  /**
+   * Returns the Redis key of the index set that contains the identifiers
+   * of all clients.
+   *
+   * @return The key of the index set.
+   */
+  public static String getIndexKey() {
+    return INDEX_KEY;
+  }
+
+  /**
+   * Returns the Redis key of the set that contains the identifiers of the
+   * clients that are unregistered but whose entities are not all removed yet.
+   *
+   * @return The key of the tombstone set.
+   */
+  public static String getTombstoneIndexKey() {
+    return TOMBSTONE_INDEX_KEY;
+  }
+
+  /**
+   * Returns the Redis key of the lease on the cleanup of a tombstoned client.
+   *
+   * @param clientId The client identifier.
+   * @return The key of the lease.
+   */
+  public static String getCleanupLeaseKey(String clientId) {
+    return String.format(CLEANUP_LEASE_KEY_TEMPLATE, clientId);
+  }
+
   /**
    * Returns the Redis hash for the object.
    *
@@ -52,11 +115,7 @@ public class ClientAdapter {
    * @return The hash for the object.
    */
   public static String toHash(Client client) {
-    try {
-      return objectMapper.writeValueAsString(client);
-    } catch (IOException ex) {
-      return null;
-    }
+    return codec.encode(client);
   }
 
   /**
@@ -66,13 +125,98 @@ public class ClientAdapter {
    * @return The database object.
    */
   public static Client fromHash(String hash) {
-    try {
-      return objectMapper.readValue(
-          hash,
-          new TypeReference<Client>() {
-          });
-    } catch (IOException ex) {
+    return codec.decode(hash);
+  }
+
+  /**
+   * Returns the Redis hash fields for the object. Fields with null values are
+   * left out, as Redis hashes cannot hold null values.
+   *
+   * @param client The database object.
+   * @return The hash fields for the object.
+   */
+  public static Map<String, String> toFields(Client client) {
+    Map<String, String> fields = new HashMap<>();
+    putField(fields, TYPE_FIELD, client.getType() == null ? null : client.getType().name());
+    putField(fields, ID_FIELD, client.getId());
+    putField(fields, SECRET_FIELD, client.getSecret());
+    putField(fields, REDIRECT_URI_FIELD, client.getRedirectUri());
+    return fields;
+  }
+
+  /**
+   * Parses the Redis hash fields. Fields that are missing are left as null.
+   *
+   * @param fields The Redis hash fields.
+   * @return The database object, or null if the fields are null or empty, i.e. the hash does not exist.
+   */
+  public static Client fromFields(Map<String, String> fields) {
+    if (fields == null || fields.isEmpty()) {
       return null;
     }
+
+    Client client = new Client();
+    String type = fields.get(TYPE_FIELD);
+    client.setType(type == null ? null : ClientType.valueOf(type));
+    client.setId(fields.get(ID_FIELD));
+    client.setSecret(fields.get(SECRET_FIELD));
+    client.setRedirectUri(fields.get(REDIRECT_URI_FIELD));
+    return client;
+  }
+
+  /**
+   * Parses the values of a subset of the Redis hash fields.
+   *
+   * @param fields The names of the Redis hash fields.
+   * @param values The values of the Redis hash fields, in the same order as the names.
+   * @return The database object, or null if all the values are null, i.e. the hash does not exist.
+   */
+  public static Client fromFields(List<String> fields, List<String> values) {
+    Map<String, String> hash = new HashMap<>();
+    for (int i = 0; i < fields.size(); ++i) {
+      putField(hash, fields.get(i), values.get(i));
+    }
+
+    return fromFields(hash);
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private static void putField(Map<String, String> fields, String name, String value) {
+    if (value != null) {
+      fields.put(name, value);
+    }
+  }
+
+  /**
+   * Writes the fields of the object in the compact format.
+   *
+   * @param writer The compact writer.
+   * @param client The database object.
+   */
+  private static void write(CompactWriter writer, Client client) {
+    writer
+        .writeEnum(client.getType())
+        .writeString(client.getId())
+        .writeString(client.getSecret())
+        .writeString(client.getRedirectUri());
+  }
+
+  /**
+   * Reads the fields of the object in the compact format, in the same order as
+   * they are written.
+   *
+   * @param reader The compact reader.
+   * @return The database object.
+   */
+  private static Client read(CompactReader reader) {
+    Client client = new Client();
+    client.setType(reader.readEnum(ClientType.class));
+    client.setId(reader.readString());
+    client.setSecret(reader.readString());
+    client.setRedirectUri(reader.readString());
+    return client;
   }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.adapter;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Implements the codec that stores an entity in the compact format, i.e. a
+ * version marker followed by the fields of the entity without their names.
+ * Values that were stored as JSON strings before the compact format was
+ * introduced are still decoded by a fallback codec, which tells them apart
+ * by the version marker as a JSON object always begins with '{'.
+ *
+ * @param <T> The type of the entity.
+ */
+public class CompactEntityCodec<T> implements EntityCodec<T> {
+
+  // The version marker of the first version of the compact format.
+  public static final char VERSION_1 = '\u0001';
+
+  // The function that writes the fields of the entity.
+  private final BiConsumer<CompactWriter, T> fieldWriter;
+
+  // The function that reads the fields of the entity.
+  private final Function<CompactReader, T> fieldReader;
+
+  // The codec for the values that are not in the compact format.
+  private final EntityCodec<T> fallbackCodec;
+
+  /**
+   * Constructs a CompactEntityCodec object.
+   *
+   * @param fieldWriter The function that writes the fields of the entity.
+   * @param fieldReader The function that reads the fields of the entity in the same order.
+   * @param fallbackCodec The codec for the values that are not in the compact format.
+   */
+  public CompactEntityCodec(
+      BiConsumer<CompactWriter, T> fieldWriter,
+      Function<CompactReader, T> fieldReader,
+      EntityCodec<T> fallbackCodec) {
+    this.fieldWriter = fieldWriter;
+    this.fieldReader = fieldReader;
+    this.fallbackCodec = fallbackCodec;
+  }
+
+  /**
+   * Encodes an entity in the compact format.
+   *
+   * @param entity The entity to be encoded.
+   * @return The encoded value, or null if the entity is null.
+   */
+  public String encode(T entity) {
+    if (entity == null) {
+      return null;
+    }
+
+    CompactWriter writer = new CompactWriter(VERSION_1);
+    fieldWriter.accept(writer, entity);
+    return writer.toString();
+  }
+
+  /**
+   * Decodes a value in the compact format, or in the format of the fallback
+   * codec if the value does not begin with a known version marker.
+   *
+   * @param value The value to be decoded.
+   * @return The decoded entity, or null if the value is null or cannot be decoded.
+   */
+  public T decode(String value) {
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+
+    if (value.charAt(0) != VERSION_1) {
+      return fallbackCodec.decode(value);
+    }
+
+    try {
+      return fieldReader.apply(new CompactReader(value, 1));
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+}
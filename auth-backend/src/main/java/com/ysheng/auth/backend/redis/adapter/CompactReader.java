@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.adapter;
+
+/**
+ * Reads the fields of an entity that are written by {@link CompactWriter}.
+ */
+public class CompactReader {
+
+  // The number of bits of a length that one character carries.
+  static final int GROUP_BITS = 6;
+
+  // The mask of the bits of a length that one character carries.
+  static final int GROUP_MASK = (1 << GROUP_BITS) - 1;
+
+  // The bit that marks that more characters of a length follow.
+  static final int CONTINUATION = 1 << GROUP_BITS;
+
+  // The encoded value.
+  private final String value;
+
+  // The position of the next character to be read.
+  private int position;
+
+  /**
+   * Constructs a CompactReader object.
+   *
+   * @param value The encoded value.
+   * @param position The position of the first field, i.e. after the version marker.
+   */
+  public CompactReader(String value, int position) {
+    this.value = value;
+    this.position = position;
+  }
+
+  /**
+   * Reads a string field.
+   *
+   * @return The value of the field, which can be null.
+   * @throws IllegalArgumentException The encoded value is truncated.
+   */
+  public String readString() {
+    int length = readLength();
+    if (length == 0) {
+      return null;
+    }
+
+    int end = position + length - 1;
+    if (end > value.length()) {
+      throw new IllegalArgumentException("Compact value is truncated");
+    }
+
+    String field = value.substring(position, end);
+    position = end;
+    return field;
+  }
+
+  /**
+   * Reads a number field.
+   *
+   * @return The value of the field, which can be null.
+   * @throws IllegalArgumentException The encoded value is truncated or malformed.
+   */
+  public Long readLong() {
+    String field = readString();
+    return field == null ? null : Long.valueOf(field);
+  }
+
+  /**
+   * Reads an enum field.
+   *
+   * @param type The class of the enum.
+   * @param <E> The type of the enum.
+   * @return The value of the field, which can be null.
+   * @throws IllegalArgumentException The encoded value is truncated or malformed.
+   */
+  public <E extends Enum<E>> E readEnum(Class<E> type) {
+    int ordinal = readChar();
+    if (ordinal == 0) {
+      return null;
+    }
+
+    E[] constants = type.getEnumConstants();
+    if (ordinal > constants.length) {
+      throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " ordinal: " + (ordinal - 1));
+    }
+
+    return constants[ordinal - 1];
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private int readLength() {
+    int length = 0;
+    int shift = 0;
+    int c;
+    do {
+      c = readChar();
+      length |= (c & GROUP_MASK) << shift;
+      shift += GROUP_BITS;
+    } while ((c & CONTINUATION) != 0);
+
+    return length;
+  }
+
+  private int readChar() {
+    if (position >= value.length()) {
+      throw new IllegalArgumentException("Compact value is truncated");
+    }
+
+    return value.charAt(position++);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.adapter;
+
+/**
+ * Writes the fields of an entity in the compact format. Fields carry no names
+ * and are written in a fixed order, so the reader must read them back in the
+ * same order. All the characters that the writer produces besides the string
+ * contents are in the ASCII range, so each of them takes one byte in Redis.
+ */
+public class CompactWriter {
+
+  // The encoded value.
+  private final StringBuilder builder;
+
+  /**
+   * Constructs a CompactWriter object.
+   *
+   * @param version The version marker that begins the encoded value.
+   */
+  public CompactWriter(char version) {
+    this.builder = new StringBuilder().append(version);
+  }
+
+  /**
+   * Writes a string field as its length followed by its characters.
+   *
+   * @param value The value of the field, which can be null.
+   * @return The writer itself.
+   */
+  public CompactWriter writeString(String value) {
+    if (value == null) {
+      writeLength(0);
+    } else {
+      writeLength(value.length() + 1);
+      builder.append(value);
+    }
+
+    return this;
+  }
+
+  /**
+   * Writes a number field as a string field of its decimal form.
+   *
+   * @param value The value of the field, which can be null.
+   * @return The writer itself.
+   */
+  public CompactWriter writeLong(Long value) {
+    return writeString(value == null ? null : Long.toString(value));
+  }
+
+  /**
+   * Writes an enum field as a single character of its ordinal. Constants must
+   * therefore only be appended to the enums that are stored this way.
+   *
+   * @param value The value of the field, which can be null.
+   * @return The writer itself.
+   */
+  public CompactWriter writeEnum(Enum<?> value) {
+    builder.append((char) (value == null ? 0 : value.ordinal() + 1));
+    return this;
+  }
+
+  /**
+   * Returns the encoded value.
+   *
+   * @return The encoded value.
+   */
+  @Override
+  public String toString() {
+    return builder.toString();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  /**
+   * Writes a length in groups of six bits, lowest group first. The seventh bit
+   * of a character marks that more groups follow.
+   *
+   * @param length The length to be written.
+   */
+  private void writeLength(int length) {
+    while (length >= CompactReader.CONTINUATION) {
+      builder.append((char) ((length & CompactReader.GROUP_MASK) | CompactReader.CONTINUATION));
+      length >>>= CompactReader.GROUP_BITS;
+    }
+
+    builder.append((char) length);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.adapter;
+
+/**
+ * Defines the codec that converts a database entity to and from the value
+ * that is stored in Redis.
+ *
+ * @param <T> The type of the entity.
+ */
+public interface EntityCodec<T> {
+
+  /**
+   * Encodes an entity.
+   *
+   * @param entity The entity to be encoded.
+   * @return The encoded value, or null if the entity is null.
+   */
+  String encode(T entity);
+
+  /**
+   * Decodes a value.
+   *
+   * @param value The value to be decoded.
+   * @return The decoded entity, or null if the value is null or cannot be decoded.
+   */
+  T decode(String value);
+}
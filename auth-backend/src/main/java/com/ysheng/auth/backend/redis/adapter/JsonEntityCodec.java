@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.adapter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+
+/**
+ * Implements the codec that stores an entity as a JSON string.
+ *
+ * @param <T> The type of the entity.
+ */
+public class JsonEntityCodec<T> implements EntityCodec<T> {
+
+  // The JSON object mapper.
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  // The reader of the entity type, which is built once and shared across threads.
+  private final ObjectReader reader;
+
+  // The writer of the entity type, which is built once and shared across threads.
+  private final ObjectWriter writer;
+
+  /**
+   * Constructs a JsonEntityCodec object.
+   *
+   * @param type The class of the entity.
+   */
+  public JsonEntityCodec(Class<T> type) {
+    this.reader = objectMapper.readerFor(type);
+    this.writer = objectMapper.writerFor(type);
+  }
+
+  /**
+   * Encodes an entity to a JSON string.
+   *
+   * @param entity The entity to be encoded.
+   * @return The JSON string, or null if the entity is null or cannot be encoded.
+   */
+  public String encode(T entity) {
+    if (entity == null) {
+      return null;
+    }
+
+    try {
+      return writer.writeValueAsString(entity);
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Decodes a JSON string.
+   *
+   * @param value The JSON string.
+   * @return The decoded entity, or null if the value is null or cannot be decoded.
+   */
+  public T decode(String value) {
+    if (value == null) {
+      return null;
+    }
+
+    try {
+      return reader.readValue(value);
+    } catch (IOException ex) {
+      return null;
+    }
+  }
+}
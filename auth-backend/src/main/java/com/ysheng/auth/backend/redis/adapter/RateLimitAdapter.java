@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.adapter;
+
+/**
+ * Defines the adapter for a rate limit counter in Redis. There is one counter
+ * per fixed window, whose value is the number of requests in the window.
+ */
+public class RateLimitAdapter {
+
+  // The template for the counter key. The counters of all windows of a name
+  // share the hash tag, so that they belong to the same Redis Cluster slot.
+  private static final String KEY_TEMPLATE = "auth-rate-limit:{%s}:%d";
+
+  /**
+   * Returns the Redis key for the counter of a window.
+   *
+   * @param name The name of the counter.
+   * @param window The index of the fixed window, i.e. its start time divided by its length.
+   * @return The key for the counter.
+   */
+  public static String getKey(String name, long window) {
+    return String.format(KEY_TEMPLATE, name, window);
+  }
+}
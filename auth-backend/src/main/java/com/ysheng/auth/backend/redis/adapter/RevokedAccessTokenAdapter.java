@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.adapter;
+
+/**
+ * Defines the adapter for a revoked access token entity in Redis. The value
+ * of the entity is the access token itself.
+ */
+public class RevokedAccessTokenAdapter {
+
+  // The template for the entity key. All revoked access tokens share the hash
+  // tag, so that the entities and the index set belong to the same Redis
+  // Cluster slot.
+  private static final String ENTITY_KEY_TEMPLATE = "auth-revoked-access-token:{revoked}:%s";
+
+  // The key of the index set that contains the keys of all revoked access tokens.
+  private static final String INDEX_KEY = "auth-revoked-access-token-index:{revoked}";
+
+  /**
+   * Returns the Redis key for the object.
+   *
+   * @param accessToken The access token.
+   * @return The key for the object.
+   */
+  public static String getKey(String accessToken) {
+    return String.format(ENTITY_KEY_TEMPLATE, accessToken);
+  }
+
+  /**
+   * Returns the Redis key of the index set that contains the keys of all
+   * revoked access tokens.
+   *
+   * @return The key of the index set.
+   */
+  public static String getIndexKey() {
+    return INDEX_KEY;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.adapter;
+
+import java.util.AbstractMap;
+import java.util.Map;
+
+/**
+ * Defines the adapter for a revoked client entity in Redis. The value of the
+ * entity is the time at or before which the access tokens of the client are
+ * revoked, followed by the client identifier.
+ */
+public class RevokedClientAdapter {
+
+  // The template for the entity key. All revoked clients share the hash tag
+  // of the revoked access tokens, so that the entities and the index set
+  // belong to the same Redis Cluster slot.
+  private static final String ENTITY_KEY_TEMPLATE = "auth-revoked-client:{revoked}:%s";
+
+  // The key of the index set that contains the keys of all revoked clients.
+  private static final String INDEX_KEY = "auth-revoked-client-index:{revoked}";
+
+  // The separator between the time and the client identifier in the value.
+  private static final char SEPARATOR = ':';
+
+  /**
+   * Returns the Redis key for the object.
+   *
+   * @param clientId The client identifier.
+   * @return The key for the object.
+   */
+  public static String getKey(String clientId) {
+    return String.format(ENTITY_KEY_TEMPLATE, clientId);
+  }
+
+  /**
+   * Returns the Redis key of the index set that contains the keys of all
+   * revoked clients.
+   *
+   * @return The key of the index set.
+   */
+  public static String getIndexKey() {
+    return INDEX_KEY;
+  }
+
+  /**
+   * Converts a revocation of a client to the value of the entity.
+   *
+   * @param clientId The client identifier.
+   * @param notBefore The time in seconds since the epoch, at or before which the access tokens are revoked.
+   * @return The value of the entity.
+   */
+  public static String toValue(String clientId, long notBefore) {
+    return String.valueOf(notBefore) + SEPARATOR + clientId;
+  }
+
+  /**
+   * Converts the value of the entity to a revocation of a client.
+   *
+   * @param value The value of the entity.
+   * @return The time at or before which the access tokens are revoked by the client identifier,
+   *         or null if the value is malformed.
+   */
+  public static Map.Entry<String, Long> fromValue(String value) {
+    int separatorIndex = value.indexOf(SEPARATOR);
+    if (separatorIndex < 0) {
+      return null;
+    }
+
+    try {
+      return new AbstractMap.SimpleImmutableEntry<>(
+          value.substring(separatorIndex + 1),
+          Long.parseLong(value.substring(0, separatorIndex)));
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+}
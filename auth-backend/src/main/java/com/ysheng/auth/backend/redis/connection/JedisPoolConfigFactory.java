@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.connection;
+
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Defines a factory that produces Redis connection pool configuration.
+ */
+public class JedisPoolConfigFactory {
+
+  /**
+   * Produces a connection pool configuration.
+   *
+   * @param configuration The configuration of Redis.
+   * @return A connection pool configuration.
+   */
+  public JedisPoolConfig produce(RedisConfiguration configuration) {
+    JedisPoolConfig config = new JedisPoolConfig();
+    config.setMaxTotal(configuration.getMaxConnections());
+    config.setMaxIdle(configuration.getMaxConnections());
+    config.setMinIdle(configuration.getMinIdle());
+    config.setBlockWhenExhausted(configuration.isBlockWhenExhausted());
+    config.setMaxWaitMillis(configuration.getMaxWaitMillis());
+    config.setTestOnBorrow(configuration.isTestOnBorrow());
+    config.setTimeBetweenEvictionRunsMillis(configuration.getTimeBetweenEvictionRunsMillis());
+
+    return config;
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.connection;
+
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+import redis.clients.jedis.Protocol;
+import redis.clients.util.JedisClusterCRC16;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Defines a class that represents a Redis cluster connection. Keys are routed
+ * to the master that serves their hash slot with the slot cache of
+ * JedisCluster, and the shard of a key is its hash slot.
+ */
+public class RedisClusterConnection implements RedisConnection {
+
+  // The handler that keeps a connection pool per node and the slot cache.
+  private NodeAwareConnectionHandler connectionHandler;
+
+  // The configuration of Redis.
+  private RedisConfiguration configuration;
+
+  /**
+   * Constructs a RedisClusterConnection object.
+   *
+   * @param configuration The configuration of Redis.
+   */
+  public RedisClusterConnection(
+      RedisConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * Opens a Redis connection, which discovers the nodes and the slots of the
+   * cluster from the seed nodes.
+   */
+  public void open() {
+    if (connectionHandler == null) {
+      if (configuration.getClusterNodes() == null || configuration.getClusterNodes().isEmpty()) {
+        throw new IllegalArgumentException("Redis cluster nodes cannot be empty");
+      }
+
+      connectionHandler = new NodeAwareConnectionHandler(
+          configuration.getClusterNodes()
+              .stream()
+              .map(RedisSimpleConnection::parseAddress)
+              .collect(Collectors.toSet()),
+          new JedisPoolConfigFactory().produce(configuration),
+          Protocol.DEFAULT_TIMEOUT);
+    }
+  }
+
+  /**
+   * Closes a Redis connection.
+   */
+  public void close() {
+    if (connectionHandler != null) {
+      connectionHandler.close();
+      connectionHandler = null;
+    }
+  }
+
+  /**
+   * Gets a Redis connection resource of any node, for commands that do not
+   * operate on a key.
+   *
+   * @return A Redis connection resource.
+   */
+  public Jedis getResource() {
+    return getConnectionHandler().getConnection();
+  }
+
+  /**
+   * Gets a Redis connection resource of the master that serves the hash slot
+   * of the key.
+   *
+   * @param key The key that the resource is going to operate on.
+   * @return A Redis connection resource.
+   */
+  public Jedis getResource(String key) {
+    return getConnectionHandler().getConnectionFromSlot(getShard(key));
+  }
+
+  /**
+   * Gets the hash slot of the key. Only the part of the key between the first
+   * "{" and the following "}" is hashed if the key has such a hash tag.
+   *
+   * @param key The key.
+   * @return The hash slot of the key.
+   */
+  public int getShard(String key) {
+    return JedisClusterCRC16.getSlot(key);
+  }
+
+  /**
+   * Gets the master that serves the hash slot of the key, so that the
+   * commands on keys of different slots of the same master can share a
+   * round trip.
+   *
+   * @param key The key.
+   * @return The address of the master, or the hash slot if the slot cache
+   *         does not know the master of the slot yet.
+   */
+  public String getNode(String key) {
+    return getConnectionHandler().getSlotNode(getShard(key));
+  }
+
+  /**
+   * Refreshes the slot cache from the cluster.
+   */
+  public void refresh() {
+    getConnectionHandler().renewSlotCache();
+  }
+
+  /**
+   * Gets the total usage of the connection pools of the nodes.
+   *
+   * @return The usage of the connection pools.
+   */
+  public RedisPoolUsage getPoolUsage() {
+    JedisSlotBasedConnectionHandler handler = connectionHandler;
+    if (handler == null) {
+      return new RedisPoolUsage(0, 0, 0);
+    }
+
+    return handler.getNodes()
+        .values()
+        .stream()
+        .map(RedisPoolUsage::of)
+        .reduce(new RedisPoolUsage(0, 0, 0), RedisPoolUsage::plus);
+  }
+
+  private NodeAwareConnectionHandler getConnectionHandler() {
+    if (connectionHandler == null) {
+      throw new IllegalStateException("Redis connection is not open");
+    }
+
+    return connectionHandler;
+  }
+
+  /**
+   * Defines a connection handler that exposes which master of the slot cache
+   * serves a hash slot.
+   */
+  private static class NodeAwareConnectionHandler extends JedisSlotBasedConnectionHandler {
+
+    /**
+     * Constructs a NodeAwareConnectionHandler object.
+     *
+     * @param nodes The seed nodes of the cluster.
+     * @param poolConfig The configuration of the connection pool of each node.
+     * @param timeout The connection and socket timeout in milliseconds.
+     */
+    public NodeAwareConnectionHandler(
+        Set<HostAndPort> nodes,
+        JedisPoolConfig poolConfig,
+        int timeout) {
+      super(nodes, poolConfig, timeout);
+    }
+
+    /**
+     * Gets the master that serves a hash slot.
+     *
+     * @param slot The hash slot.
+     * @return The address of the master, or the hash slot if the slot cache
+     *         does not know the master of the slot yet.
+     */
+    public String getSlotNode(int slot) {
+      JedisPool pool = cache.getSlotPool(slot);
+      if (pool != null) {
+        for (Map.Entry<String, JedisPool> node : cache.getNodes().entrySet()) {
+          if (node.getValue() == pool) {
+            return node.getKey();
+          }
+        }
+      }
+
+      return String.valueOf(slot);
+    }
+  }
+}
@@ -31,9 +31,62 @@ public interface RedisConnection {
   void close();
 
   /**
-   * Gets a Redis connection resource.
+   * Gets a Redis connection resource. The caller owns the resource until it
+   * closes it, which hands the resource back to the connection.
    *
    * @return A Redis connection resource.
    */
   Jedis getResource();
+
+  /**
+   * Gets a Redis connection resource of the node that serves the key. The
+   * caller owns the resource until it closes it.
+   *
+   * @param key The key that the resource is going to operate on.
+   * @return A Redis connection resource.
+   */
+  default Jedis getResource(String key) {
+    return getResource();
+  }
+
+  /**
+   * Gets the shard that the key belongs to. Keys of the same shard are served
+   * by the same node, so they can be used together in a multi-key command or
+   * in a transaction.
+   *
+   * @param key The key.
+   * @return The shard of the key.
+   */
+  default int getShard(String key) {
+    return 0;
+  }
+
+  /**
+   * Gets the node that serves the shard of the key. Commands on keys of
+   * different shards that are served by the same node can share a round trip.
+   *
+   * @param key The key.
+   * @return The identifier of the node, which is the shard itself unless the
+   *         connection knows which shards share a node.
+   */
+  default String getNode(String key) {
+    return String.valueOf(getShard(key));
+  }
+
+  /**
+   * Refreshes the routing of keys to nodes, after a node reports that it no
+   * longer serves a key.
+   */
+  default void refresh() {
+  }
+
+  /**
+   * Gets the usage of the connection pools, which is empty for a connection
+   * without a pool.
+   *
+   * @return The usage of the connection pools.
+   */
+  default RedisPoolUsage getPoolUsage() {
+    return new RedisPoolUsage(0, 0, 0);
+  }
 }
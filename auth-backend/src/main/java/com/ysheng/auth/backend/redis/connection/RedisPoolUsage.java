@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.connection;
+
+import redis.clients.util.Pool;
+
+/**
+ * Defines the data structure that represents the usage of the connection
+ * pools of a Redis connection.
+ */
+public class RedisPoolUsage {
+
+  // The number of connection resources that are borrowed.
+  private final int activeCount;
+
+  // The number of connection resources that are idle in the pools.
+  private final int idleCount;
+
+  // The number of threads that are waiting to borrow a connection resource.
+  private final int waiterCount;
+
+  /**
+   * Constructs a RedisPoolUsage object.
+   *
+   * @param activeCount The number of connection resources that are borrowed.
+   * @param idleCount The number of connection resources that are idle in the pools.
+   * @param waiterCount The number of threads that are waiting to borrow a connection resource.
+   */
+  public RedisPoolUsage(
+      int activeCount,
+      int idleCount,
+      int waiterCount) {
+    this.activeCount = activeCount;
+    this.idleCount = idleCount;
+    this.waiterCount = waiterCount;
+  }
+
+  /**
+   * Gets the usage of a connection pool.
+   *
+   * @param pool The connection pool, or null if it is not open.
+   * @return The usage of the connection pool.
+   */
+  public static RedisPoolUsage of(Pool<?> pool) {
+    if (pool == null || pool.isClosed()) {
+      return new RedisPoolUsage(0, 0, 0);
+    }
+
+    return new RedisPoolUsage(pool.getNumActive(), pool.getNumIdle(), pool.getNumWaiters());
+  }
+
+  /**
+   * Adds the usage of another connection pool to this usage.
+   *
+   * @param other The usage of another connection pool.
+   * @return The total usage of both connection pools.
+   */
+  public RedisPoolUsage plus(RedisPoolUsage other) {
+    return new RedisPoolUsage(
+        activeCount + other.activeCount,
+        idleCount + other.idleCount,
+        waiterCount + other.waiterCount);
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public int getActiveCount() {
+    return activeCount;
+  }
+
+  public int getIdleCount() {
+    return idleCount;
+  }
+
+  public int getWaiterCount() {
+    return waiterCount;
+  }
+}
@@ -15,7 +15,6 @@ package com.ysheng.auth.backend.redis.connection;
 
 import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPoolConfig;
 import redis.clients.jedis.JedisSentinelPool;
 
 /**
@@ -44,14 +43,10 @@ public class RedisSentinelConnection implements RedisConnection {
    */
   public void open() {
     if (connectionPool == null) {
-      JedisPoolConfig config = new JedisPoolConfig();
-      config.setMaxTotal(configuration.getMaxConnections());
-      config.setBlockWhenExhausted(configuration.isBlockWhenExhausted());
-
       connectionPool = new JedisSentinelPool(
           configuration.getMasterAddress(),
           configuration.getSentinels(),
-          config);
+          new JedisPoolConfigFactory().produce(configuration));
     }
   }
 
@@ -59,17 +54,31 @@ public class RedisSentinelConnection implements RedisConnection {
    * Closes a Redis connection.
    */
   public void close() {
-    if (connectionPool == null) {
+    if (connectionPool != null) {
       connectionPool.close();
+      connectionPool = null;
     }
   }
 
   /**
-   * Gets a Redis connection resource.
+   * Gets a Redis connection resource borrowed from the connection pool.
    *
    * @return A Redis connection resource.
    */
   public Jedis getResource() {
+    if (connectionPool == null) {
+      throw new IllegalStateException("Redis connection is not open");
+    }
+
     return connectionPool.getResource();
   }
+
+  /**
+   * Gets the usage of the connection pool.
+   *
+   * @return The usage of the connection pool.
+   */
+  public RedisPoolUsage getPoolUsage() {
+    return RedisPoolUsage.of(connectionPool);
+  }
 }
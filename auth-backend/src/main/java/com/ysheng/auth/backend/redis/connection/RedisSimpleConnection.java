@@ -14,15 +14,18 @@
 package com.ysheng.auth.backend.redis.connection;
 
 import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Protocol;
 
 /**
- * Defines a class that represents a Redis simple connection.
+ * Defines a class that represents a Redis simple connection to a single node.
  */
 public class RedisSimpleConnection implements RedisConnection {
 
-  // The simple connection.
-  private Jedis connection;
+  // The connection pool.
+  private JedisPool connectionPool;
 
   // The configuration of Redis.
   private RedisConfiguration configuration;
@@ -41,8 +44,12 @@ public class RedisSimpleConnection implements RedisConnection {
    * Opens a Redis connection.
    */
   public void open() {
-    if (connection == null) {
-      connection = new Jedis(configuration.getMasterAddress());
+    if (connectionPool == null) {
+      HostAndPort address = parseAddress(configuration.getMasterAddress());
+      connectionPool = new JedisPool(
+          new JedisPoolConfigFactory().produce(configuration),
+          address.getHost(),
+          address.getPort());
     }
   }
 
@@ -50,17 +57,49 @@ public class RedisSimpleConnection implements RedisConnection {
    * Closes a Redis connection.
    */
   public void close() {
-    if (connection != null) {
-      connection.close();
+    if (connectionPool != null) {
+      connectionPool.close();
+      connectionPool = null;
     }
   }
 
   /**
-   * Gets a Redis connection resource.
+   * Gets a Redis connection resource borrowed from the connection pool.
    *
    * @return A Redis connection resource.
    */
   public Jedis getResource() {
-    return connection;
+    if (connectionPool == null) {
+      throw new IllegalStateException("Redis connection is not open");
+    }
+
+    return connectionPool.getResource();
+  }
+
+  /**
+   * Gets the usage of the connection pool.
+   *
+   * @return The usage of the connection pool.
+   */
+  public RedisPoolUsage getPoolUsage() {
+    return RedisPoolUsage.of(connectionPool);
+  }
+
+  /**
+   * Parses the address of the node, which is either "host" or "host:port".
+   *
+   * @param address The address of the node.
+   * @return The host and port of the node.
+   */
+  static HostAndPort parseAddress(String address) {
+    if (address == null) {
+      return new HostAndPort(Protocol.DEFAULT_HOST, Protocol.DEFAULT_PORT);
+    }
+
+    if (address.contains(":")) {
+      return HostAndPort.parseString(address);
+    }
+
+    return new HostAndPort(address, Protocol.DEFAULT_PORT);
   }
 }
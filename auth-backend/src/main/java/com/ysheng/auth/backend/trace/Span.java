@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Defines a span, i.e. a timed step of a trace, such as a resource method,
+ * a database function or a Redis command. A span records monotonic ticks
+ * rather than wall clock time, and its children are the steps that it is
+ * made of. Children may be added from other threads, e.g. by the async
+ * operations that a span starts.
+ */
+public class Span {
+
+  // The name of the span.
+  private final String name;
+
+  // The tick at which the span started in nanoseconds.
+  private final long startTick;
+
+  // The tick at which the span ended in nanoseconds, or zero if it is still open.
+  private volatile long endTick;
+
+  // The spans that this span is made of, in the order in which they started.
+  private final List<Span> children;
+
+  /**
+   * Constructs a Span object that starts now.
+   *
+   * @param name The name of the span.
+   */
+  public Span(String name) {
+    this(name, System.nanoTime());
+  }
+
+  /**
+   * Constructs a Span object.
+   *
+   * @param name The name of the span.
+   * @param startTick The tick at which the span started in nanoseconds.
+   */
+  public Span(
+      String name,
+      long startTick) {
+    this.name = name;
+    this.startTick = startTick;
+    this.children = new ArrayList<>(2);
+  }
+
+  /**
+   * Starts a child span now. The child span is not made the current span
+   * of the thread, see {@link Tracer#activate(Span)}.
+   *
+   * @param name The name of the child span.
+   * @return The child span.
+   */
+  public Span startChild(String name) {
+    Span child = new Span(name);
+    synchronized (children) {
+      children.add(child);
+    }
+    return child;
+  }
+
+  /**
+   * Ends the span now, unless it has ended already.
+   */
+  public void end() {
+    if (endTick == 0L) {
+      endTick = System.nanoTime();
+    }
+  }
+
+  /**
+   * Gets the duration of the span.
+   *
+   * @return The duration in nanoseconds, or -1 if the span is still open.
+   */
+  public long getDurationNanos() {
+    long end = endTick;
+    return end == 0L ? -1L : end - startTick;
+  }
+
+  /**
+   * Gets a snapshot of the child spans.
+   *
+   * @return The child spans, in the order in which they started.
+   */
+  public List<Span> getChildren() {
+    synchronized (children) {
+      return children.isEmpty() ? Collections.emptyList() : new ArrayList<>(children);
+    }
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public String getName() {
+    return name;
+  }
+
+  public long getStartTick() {
+    return startTick;
+  }
+}
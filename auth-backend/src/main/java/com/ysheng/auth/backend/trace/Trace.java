@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.trace;
+
+/**
+ * Defines a trace, i.e. the tree of spans of one request. The root span
+ * covers the whole request.
+ */
+public class Trace {
+
+  // The identifier of the trace, which is shared with the other services
+  // that take part in the request.
+  private final String traceId;
+
+  // The wall clock time at which the trace started in milliseconds since the epoch.
+  private final long startMillis;
+
+  // The span that covers the whole request.
+  private final Span root;
+
+  // The name of the trace, which is refined once the request is matched.
+  private volatile String name;
+
+  // The status of the response, or zero if there is no response yet.
+  private volatile int status;
+
+  /**
+   * Constructs a Trace object that starts now.
+   *
+   * @param traceId The identifier of the trace.
+   * @param name The name of the trace.
+   */
+  public Trace(
+      String traceId,
+      String name) {
+    this.traceId = traceId;
+    this.startMillis = System.currentTimeMillis();
+    this.root = new Span("request");
+    this.name = name;
+  }
+
+  /**
+   * Gets the duration of the trace.
+   *
+   * @return The duration in nanoseconds, or -1 if the trace is still open.
+   */
+  public long getDurationNanos() {
+    return root.getDurationNanos();
+  }
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public String getTraceId() {
+    return traceId;
+  }
+
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  public Span getRoot() {
+    return root;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+}
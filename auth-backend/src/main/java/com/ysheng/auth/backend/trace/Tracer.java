@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.trace;
+
+/**
+ * Defines the functions that keep track of the current span of each thread.
+ * The functions cost one thread local read when the thread is not traced, so
+ * that the hot paths can be instrumented unconditionally.
+ */
+public class Tracer {
+
+  // The scope that is returned when the thread is not traced.
+  private static final Scope NOOP_SCOPE = () -> { };
+
+  // The current span of each thread, which is not set if the thread is not traced.
+  private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<>();
+
+  /**
+   * Gets the current span of the thread.
+   *
+   * @return The current span, or null if the thread is not traced.
+   */
+  public static Span current() {
+    return CURRENT_SPAN.get();
+  }
+
+  /**
+   * Makes a span the current span of the thread until the returned scope is
+   * closed, e.g. to carry a span over to the thread that runs an async
+   * operation. The span is not ended when the scope is closed.
+   *
+   * @param span The span to be made current, or null to make the thread not traced.
+   * @return The scope that restores the previous span of the thread once it is closed.
+   */
+  public static Scope activate(Span span) {
+    Span previous = CURRENT_SPAN.get();
+    if (span == previous) {
+      return NOOP_SCOPE;
+    }
+
+    set(span);
+    return () -> set(previous);
+  }
+
+  /**
+   * Starts a child span of the current span of the thread, and makes it the
+   * current span until the returned scope is closed. The child span ends
+   * once the scope is closed. Nothing is recorded if the thread is not traced.
+   *
+   * @param name The name of the child span.
+   * @return The scope that ends the child span once it is closed.
+   */
+  public static Scope startSpan(String name) {
+    Span parent = CURRENT_SPAN.get();
+    if (parent == null) {
+      return NOOP_SCOPE;
+    }
+
+    Span span = parent.startChild(name);
+    CURRENT_SPAN.set(span);
+    return () -> {
+      span.end();
+      CURRENT_SPAN.set(parent);
+    };
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private static void set(Span span) {
+    if (span == null) {
+      CURRENT_SPAN.remove();
+    } else {
+      CURRENT_SPAN.set(span);
+    }
+  }
+
+  /**
+   * Defines a scope of the current span, which is closed on the thread that
+   * opened it.
+   */
+  public interface Scope extends AutoCloseable {
+
+    /**
+     * Closes the scope without a checked exception.
+     */
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.trace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Defines a proxy of an interface that records a span for every function of
+ * the interface in the trace of the calling thread, e.g. "ClientService.get".
+ * The span of a function that returns a future ends once the future
+ * completes, so that it covers the async operation, which is expected to
+ * carry the span over to the thread that runs it.
+ *
+ * @param <T> The type of the interface.
+ */
+public class TracingProxy<T> implements InvocationHandler {
+
+  // The object that the functions are delegated to.
+  private final T target;
+
+  // The names of the spans by the functions of the interface.
+  private final Map<Method, String> spanNames;
+
+  /**
+   * Constructs a TracingProxy object.
+   *
+   * @param type The interface.
+   * @param target The object that the functions are delegated to.
+   */
+  private TracingProxy(
+      Class<T> type,
+      T target) {
+    this.target = target;
+    this.spanNames = new HashMap<>();
+    for (Method method : type.getMethods()) {
+      spanNames.put(method, type.getSimpleName() + "." + method.getName());
+    }
+  }
+
+  /**
+   * Wraps an object in a proxy that traces the functions of an interface.
+   *
+   * @param type The interface.
+   * @param target The object that implements the interface.
+   * @param <T> The type of the interface.
+   * @return A proxy of the interface.
+   */
+  public static <T> T wrap(
+      Class<T> type,
+      T target) {
+    return type.cast(Proxy.newProxyInstance(
+        type.getClassLoader(),
+        new Class<?>[] { type },
+        new TracingProxy<>(type, target)));
+  }
+
+  /**
+   * Invokes a function of the target object in a span.
+   *
+   * @param proxy The proxy object.
+   * @param method The function that is invoked.
+   * @param args The arguments of the function.
+   * @return The result of the function.
+   * @throws Throwable The exception that the function throws.
+   */
+  @Override
+  public Object invoke(
+      Object proxy,
+      Method method,
+      Object[] args) throws Throwable {
+    Span parent = Tracer.current();
+    String spanName = spanNames.get(method);
+    if (parent == null || spanName == null) {
+      return invokeTarget(method, args);
+    }
+
+    Span span = parent.startChild(spanName);
+    Object result;
+    try (Tracer.Scope scope = Tracer.activate(span)) {
+      result = invokeTarget(method, args);
+    } catch (Throwable ex) {
+      span.end();
+      throw ex;
+    }
+
+    if (result instanceof CompletableFuture) {
+      ((CompletableFuture<?>) result).whenComplete((value, ex) -> span.end());
+    } else {
+      span.end();
+    }
+    return result;
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private Object invokeTarget(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException ex) {
+      throw ex.getCause();
+    }
+  }
+}
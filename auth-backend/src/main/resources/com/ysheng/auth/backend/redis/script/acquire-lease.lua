@@ -0,0 +1,31 @@
+-- Copyright 2016 Yu Sheng. All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not
+-- use this file except in compliance with the License.  You may obtain a copy of
+-- the License at http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed
+-- under the License is distributed on an "AS IS" BASIS, without warranties or
+-- conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+-- specific language governing permissions and limitations under the License.
+
+-- Acquires a lease with SET NX PX, or renews it if the owner already holds
+-- it, so that a lease that is renewed within its lifetime stays with its
+-- owner, and a lease whose owner stops renewing it expires.
+--
+-- KEYS[1] The key of the lease.
+-- ARGV[1] The owner of the lease.
+-- ARGV[2] The lifetime in milliseconds of the lease.
+--
+-- Returns 1 if the owner holds the lease, or 0 if another owner does.
+
+if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+  return 1
+end
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+  redis.call('PEXPIRE', KEYS[1], ARGV[2])
+  return 1
+end
+
+return 0
@@ -0,0 +1,32 @@
+-- Copyright 2016 Yu Sheng. All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not
+-- use this file except in compliance with the License.  You may obtain a copy of
+-- the License at http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed
+-- under the License is distributed on an "AS IS" BASIS, without warranties or
+-- conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+-- specific language governing permissions and limitations under the License.
+
+-- Migrates a client that is stored as a string to a hash, only if the client
+-- still holds the serialized client that it is read with, so that a client
+-- that is updated or migrated in the meantime is kept as it is.
+--
+-- KEYS[1] The key of the client.
+-- ARGV[1] The serialized client that is expected in the string.
+-- ARGV[2i] The name of the i-th field of the hash.
+-- ARGV[2i+1] The value of the i-th field of the hash.
+--
+-- Returns 1 if the client is migrated, or 0 otherwise.
+
+if redis.call('TYPE', KEYS[1]).ok ~= 'string' or redis.call('GET', KEYS[1]) ~= ARGV[1] then
+  return 0
+end
+
+redis.call('DEL', KEYS[1])
+for i = 2, #ARGV, 2 do
+  redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+
+return 1
@@ -0,0 +1,59 @@
+-- Copyright 2016 Yu Sheng. All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not
+-- use this file except in compliance with the License.  You may obtain a copy of
+-- the License at http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed
+-- under the License is distributed on an "AS IS" BASIS, without warranties or
+-- conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+-- specific language governing permissions and limitations under the License.
+
+-- Redeems an authorization ticket for an access token. The ticket is deleted
+-- and the access token is stored only if the ticket still exists, so that a
+-- ticket can be redeemed at most once. If the access token expires, its index
+-- set is given a time to live and pruned the same way as store-and-index.lua
+-- does.
+--
+-- KEYS[1] The key of the authorization ticket.
+-- KEYS[2] The key of the index set of the client's authorization tickets.
+-- KEYS[3] The key of the access token.
+-- KEYS[4] The key of the index set of the client's access tokens.
+-- ARGV[1] The value of the access token.
+-- ARGV[2] The time to live in seconds of the access token, or 0 if it does not expire.
+--
+-- Returns 1 if the ticket is redeemed, or 0 if the ticket does not exist.
+
+-- Replicated by its effects, as the index set is sampled at random.
+redis.replicate_commands()
+
+if redis.call('DEL', KEYS[1]) == 0 then
+  return 0
+end
+
+redis.call('SREM', KEYS[2], KEYS[1])
+
+local ttl = tonumber(ARGV[2])
+if ttl > 0 then
+  local indexTtl = redis.call('TTL', KEYS[4])
+
+  redis.call('SET', KEYS[3], ARGV[1], 'EX', ttl)
+  redis.call('SADD', KEYS[4], KEYS[3])
+
+  if indexTtl == -2 or (indexTtl >= 0 and indexTtl < ttl) then
+    redis.call('EXPIRE', KEYS[4], ttl)
+  end
+else
+  redis.call('SET', KEYS[3], ARGV[1])
+  redis.call('SADD', KEYS[4], KEYS[3])
+  redis.call('PERSIST', KEYS[4])
+end
+
+-- Prunes the expired members out of a sample of the index set.
+for _, member in ipairs(redis.call('SRANDMEMBER', KEYS[4], 10)) do
+  if redis.call('EXISTS', member) == 0 then
+    redis.call('SREM', KEYS[4], member)
+  end
+end
+
+return 1
@@ -0,0 +1,24 @@
+-- Copyright 2016 Yu Sheng. All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not
+-- use this file except in compliance with the License.  You may obtain a copy of
+-- the License at http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed
+-- under the License is distributed on an "AS IS" BASIS, without warranties or
+-- conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+-- specific language governing permissions and limitations under the License.
+
+-- Releases a lease only if the owner still holds it, so that a lease that has
+-- expired and been acquired by another owner is kept.
+--
+-- KEYS[1] The key of the lease.
+-- ARGV[1] The owner of the lease.
+--
+-- Returns 1 if the lease is released, or 0 if the owner does not hold it.
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+  return redis.call('DEL', KEYS[1])
+end
+
+return 0
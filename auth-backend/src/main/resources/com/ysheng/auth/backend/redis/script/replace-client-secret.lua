@@ -0,0 +1,39 @@
+-- Copyright 2016 Yu Sheng. All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not
+-- use this file except in compliance with the License.  You may obtain a copy of
+-- the License at http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed
+-- under the License is distributed on an "AS IS" BASIS, without warranties or
+-- conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+-- specific language governing permissions and limitations under the License.
+
+-- Replaces the secret of a client only if the client still holds the expected
+-- secret, so that a client that is updated, unregistered or registered again
+-- in the meantime is kept as it is.
+--
+-- KEYS[1] The key of the client.
+-- ARGV[1] The expected secret field if the client is stored as a hash, or the
+--         expected serialized client if it is stored as a string.
+-- ARGV[2] The new secret field, or the new serialized client.
+-- ARGV[3] The name of the secret field if the client is stored as a hash, or
+--         absent if it is stored as a string.
+--
+-- Returns 1 if the secret is replaced, or 0 otherwise.
+
+if ARGV[3] then
+  if redis.call('HGET', KEYS[1], ARGV[3]) == ARGV[1] then
+    redis.call('HSET', KEYS[1], ARGV[3], ARGV[2])
+    return 1
+  end
+
+  return 0
+end
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+  redis.call('SET', KEYS[1], ARGV[2])
+  return 1
+end
+
+return 0
@@ -0,0 +1,58 @@
+-- Copyright 2016 Yu Sheng. All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not
+-- use this file except in compliance with the License.  You may obtain a copy of
+-- the License at http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed
+-- under the License is distributed on an "AS IS" BASIS, without warranties or
+-- conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+-- specific language governing permissions and limitations under the License.
+
+-- Stores a batch of entities and adds them to an index set, the same way as
+-- store-and-index.lua does for one entity. The index set is given a time to
+-- live that covers its longest living member, or does not expire if any of
+-- its new members does not expire. Expired members are removed from a sample
+-- of the index set.
+--
+-- KEYS[1] The key of the index set.
+-- KEYS[2..N+1] The keys of the entities.
+-- ARGV[2i-1] The value of the i-th entity.
+-- ARGV[2i] The time to live in seconds of the i-th entity, or 0 if it does not expire.
+
+-- Replicated by its effects, as the index set is sampled at random.
+redis.replicate_commands()
+
+local indexTtl = redis.call('TTL', KEYS[1])
+local maxTtl = 0
+local persistent = false
+
+for i = 2, #KEYS do
+  local value = ARGV[2 * i - 3]
+  local ttl = tonumber(ARGV[2 * i - 2])
+  if ttl > 0 then
+    redis.call('SET', KEYS[i], value, 'EX', ttl)
+    if ttl > maxTtl then
+      maxTtl = ttl
+    end
+  else
+    redis.call('SET', KEYS[i], value)
+    persistent = true
+  end
+  redis.call('SADD', KEYS[1], KEYS[i])
+end
+
+if persistent then
+  redis.call('PERSIST', KEYS[1])
+elseif maxTtl > 0 and (indexTtl == -2 or (indexTtl >= 0 and indexTtl < maxTtl)) then
+  redis.call('EXPIRE', KEYS[1], maxTtl)
+end
+
+-- Prunes the expired members out of a sample of the index set.
+for _, member in ipairs(redis.call('SRANDMEMBER', KEYS[1], 10)) do
+  if redis.call('EXISTS', member) == 0 then
+    redis.call('SREM', KEYS[1], member)
+  end
+end
+
+return #KEYS - 1
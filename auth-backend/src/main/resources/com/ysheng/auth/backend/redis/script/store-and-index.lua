@@ -0,0 +1,53 @@
+-- Copyright 2016 Yu Sheng. All Rights Reserved.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License"); you may not
+-- use this file except in compliance with the License.  You may obtain a copy of
+-- the License at http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software distributed
+-- under the License is distributed on an "AS IS" BASIS, without warranties or
+-- conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+-- specific language governing permissions and limitations under the License.
+
+-- Stores an entity that expires and adds it to an index set. The index set is
+-- given a time to live that covers its longest living member, so that the
+-- index set goes away once all of its members have expired. An index set that
+-- that holds an entity that does not expire does not expire either. A sample
+-- of the other members of the index set is checked, and the members whose
+-- entities have expired are removed.
+--
+-- KEYS[1] The key of the entity.
+-- KEYS[2] The key of the index set.
+-- ARGV[1] The value of the entity.
+-- ARGV[2] The time to live in seconds of the entity, or 0 if it does not expire.
+
+-- The sample of the index set is random, so the script is replicated by its
+-- effects rather than as a script.
+redis.replicate_commands()
+
+local ttl = tonumber(ARGV[2])
+if ttl > 0 then
+  local indexTtl = redis.call('TTL', KEYS[2])
+
+  redis.call('SET', KEYS[1], ARGV[1], 'EX', ttl)
+  redis.call('SADD', KEYS[2], KEYS[1])
+
+  if indexTtl == -2 or (indexTtl >= 0 and indexTtl < ttl) then
+    redis.call('EXPIRE', KEYS[2], ttl)
+  end
+else
+  redis.call('SET', KEYS[1], ARGV[1])
+  redis.call('SADD', KEYS[2], KEYS[1])
+  redis.call('PERSIST', KEYS[2])
+end
+
+-- Removes the members of a sample of the index set whose entities have expired,
+-- so that the index set of a client that keeps adding entities does not keep
+-- the ones that expired until they are listed.
+for _, member in ipairs(redis.call('SRANDMEMBER', KEYS[2], 10)) do
+  if redis.call('EXISTS', member) == 0 then
+    redis.call('SREM', KEYS[2], member)
+  end
+end
+
+return 1
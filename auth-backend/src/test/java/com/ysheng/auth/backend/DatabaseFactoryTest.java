@@ -13,6 +13,9 @@
 
 package com.ysheng.auth.backend;
 
+import com.ysheng.auth.backend.cache.AccessTokenCachingDatabase;
+import com.ysheng.auth.backend.cache.ClientCachingDatabase;
+import com.ysheng.auth.backend.filter.AccessTokenFilteringDatabase;
 import com.ysheng.auth.backend.redis.RedisDatabase;
 import com.ysheng.auth.model.configuration.backend.BackendConfiguration;
 import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
@@ -55,6 +58,24 @@ public class DatabaseFactoryTest {
     }
   }
 
+  @Test
+  public void failsWithUnknownRedisStorageType() throws Throwable {
+    RedisConfiguration redisConfiguration = new RedisConfiguration();
+    redisConfiguration.setConnectionType("simple");
+    redisConfiguration.setClientStorageType("unknownStorageType");
+    BackendConfiguration backendConfiguration = new BackendConfiguration();
+    backendConfiguration.setDatabaseType("redis");
+    backendConfiguration.setRedisConfiguration(redisConfiguration);
+
+    try {
+      DatabaseFactory factory = new DatabaseFactory();
+      factory.produce(backendConfiguration);
+      fail("Database factory should fail with unknown Redis storage type");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Unknown Redis storage type: unknownStorageType"));
+    }
+  }
+
   @Test(dataProvider = "RedisDatabaseType")
   public void succeedsToProduceRedisDatabase(String databaseType) throws Throwable {
     RedisConfiguration redisConfiguration = new RedisConfiguration();
@@ -62,12 +83,32 @@ public class DatabaseFactoryTest {
     BackendConfiguration backendConfiguration = new BackendConfiguration();
     backendConfiguration.setDatabaseType(databaseType);
     backendConfiguration.setRedisConfiguration(redisConfiguration);
+    backendConfiguration.getClientCacheConfiguration().setMaximumSize(0);
+    backendConfiguration.getAccessTokenCacheConfiguration().setMaximumSize(0);
+    backendConfiguration.getAccessTokenFilterConfiguration().setEnabled(false);
 
     DatabaseFactory factory = new DatabaseFactory();
     Database database = factory.produce(backendConfiguration);
     assertThat(database.getClass(), equalTo(RedisDatabase.class));
   }
 
+  @Test
+  public void succeedsToProduceCachingDatabase() throws Throwable {
+    RedisConfiguration redisConfiguration = new RedisConfiguration();
+    redisConfiguration.setConnectionType("simple");
+    BackendConfiguration backendConfiguration = new BackendConfiguration();
+    backendConfiguration.setDatabaseType("redis");
+    backendConfiguration.setRedisConfiguration(redisConfiguration);
+
+    DatabaseFactory factory = new DatabaseFactory();
+    Database database = factory.produce(backendConfiguration);
+    assertThat(database.getClass(), equalTo(AccessTokenFilteringDatabase.class));
+    Database cachingDatabase = ((ForwardingDatabase) database).getDatabase();
+    assertThat(cachingDatabase.getClass(), equalTo(AccessTokenCachingDatabase.class));
+    assertThat(((ForwardingDatabase) cachingDatabase).getDatabase().getClass(), equalTo(ClientCachingDatabase.class));
+    database.close();
+  }
+
   @DataProvider(name = "RedisDatabaseType")
   public Object[][] provideRedisDatabaseType() {
     return new Object[][] {
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache.test;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.RemovedClientEntities;
+import com.ysheng.auth.backend.cache.AccessTokenCachingDatabase;
+import com.ysheng.auth.backend.cache.EntityCache;
+import com.ysheng.auth.backend.cache.InvalidationChannel;
+import com.ysheng.auth.model.api.authcode.AccessToken;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.cache.AccessTokenCachingDatabase}.
+ */
+public class AccessTokenCachingDatabaseTest {
+
+  private AtomicLong clock;
+
+  private Database database;
+
+  private InvalidationChannel invalidationChannel;
+
+  private AccessTokenCachingDatabase cachingDatabase;
+
+  private AccessToken accessToken;
+
+  private com.ysheng.auth.model.api.implicit.AccessToken implicitAccessToken;
+
+  @BeforeMethod
+  public void setUp() {
+    clock = new AtomicLong();
+    accessToken = new AccessToken();
+    implicitAccessToken = new com.ysheng.auth.model.api.implicit.AccessToken();
+
+    database = mock(Database.class);
+    doReturn(accessToken).when(database).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    doReturn(implicitAccessToken).when(database).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    invalidationChannel = mock(InvalidationChannel.class);
+    cachingDatabase = new AccessTokenCachingDatabase(
+        database,
+        new EntityCache<>(10, TimeUnit.MILLISECONDS.toNanos(500L), 0L, clock::get),
+        new EntityCache<>(10, TimeUnit.MILLISECONDS.toNanos(500L), 0L, clock::get),
+        invalidationChannel);
+  }
+
+  @Test
+  public void succeedsToServeAccessTokenFromCache() {
+    assertThat(cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken"), sameInstance(accessToken));
+    assertThat(cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken"), sameInstance(accessToken));
+    assertThat(
+        cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken"),
+        sameInstance(implicitAccessToken));
+    assertThat(
+        cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken"),
+        sameInstance(implicitAccessToken));
+
+    verify(database, times(1)).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    verify(database, times(1)).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+    assertThat(cachingDatabase.getAccessTokenCache().getHitCount(), equalTo(1L));
+    assertThat(cachingDatabase.getImplicitAccessTokenCache().getHitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void succeedsToExpireAccessTokenAfterStalenessBound() {
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500L));
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    verify(database, times(2)).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+  }
+
+  @Test
+  public void succeedsToSkipCachingUnknownAccessToken() {
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "unknownAccessToken");
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "unknownAccessToken");
+
+    verify(database, times(2)).findAccessTokenByClientIdAndToken("clientId", "unknownAccessToken");
+  }
+
+  @Test
+  public void succeedsToInvalidateRevokedAccessToken() {
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    cachingDatabase.removeAccessToken("clientId", "accessToken");
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    verify(database).removeAccessToken("clientId", "accessToken");
+    verify(invalidationChannel).publish("authcode:clientId:accessToken");
+    verify(database, times(2)).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    verify(database, times(1)).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+  }
+
+  @Test
+  public void succeedsToInvalidateRevokedImplicitAccessToken() {
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    cachingDatabase.removeImplictAccessToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    verify(database).removeImplictAccessToken("clientId", "accessToken");
+    verify(invalidationChannel).publish("implicit:clientId:accessToken");
+    verify(database, times(2)).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+  }
+
+  @Test
+  public void succeedsToInvalidateRevokedAccessTokensInOneMessage() {
+    doReturn(Arrays.asList("accessToken", "otherAccessToken"))
+        .when(database).removeAccessTokens("clientId", Arrays.asList("accessToken", "otherAccessToken"));
+    doReturn(Arrays.asList("accessToken", "otherAccessToken"))
+        .when(database).removeImplicitAccessTokens("clientId", Arrays.asList("accessToken", "otherAccessToken"));
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    cachingDatabase.removeAccessTokens("clientId", Arrays.asList("accessToken", "otherAccessToken"));
+    cachingDatabase.removeImplicitAccessTokens("clientId", Arrays.asList("accessToken", "otherAccessToken"));
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    verify(database).removeAccessTokens("clientId", Arrays.asList("accessToken", "otherAccessToken"));
+    verify(database).removeImplicitAccessTokens("clientId", Arrays.asList("accessToken", "otherAccessToken"));
+    verify(invalidationChannel).publish("authcode:clientId:accessToken\nauthcode:clientId:otherAccessToken");
+    verify(invalidationChannel).publish("implicit:clientId:accessToken\nimplicit:clientId:otherAccessToken");
+    verify(database, times(2)).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    verify(database, times(2)).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+  }
+
+  @Test
+  public void succeedsToInvalidateOnlyRemovedAccessTokens() {
+    doReturn(Arrays.asList("accessToken"))
+        .when(database).removeAccessTokens("clientId", Arrays.asList("accessToken", "unknownAccessToken"));
+
+    assertThat(cachingDatabase.removeAccessTokens("clientId", Arrays.asList("accessToken", "unknownAccessToken")),
+        contains("accessToken"));
+
+    verify(invalidationChannel).publish("authcode:clientId:accessToken");
+  }
+
+  @Test
+  public void succeedsToInvalidateAccessTokensOfClientEntities() {
+    doReturn(new RemovedClientEntities(3, Arrays.asList("accessToken"), Arrays.asList("accessToken")))
+        .when(database).removeClientEntities("clientId", 500);
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    assertThat(cachingDatabase.removeClientEntities("clientId", 500).getCount(), equalTo(3));
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    verify(invalidationChannel).publish("authcode:clientId:accessToken");
+    verify(invalidationChannel).publish("implicit:clientId:accessToken");
+    verify(database, times(2)).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    verify(database, times(2)).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void succeedsToInvalidateBatchFromChannel() {
+    ArgumentCaptor<Consumer<String>> keyListener = ArgumentCaptor.forClass(Consumer.class);
+    ArgumentCaptor<Runnable> resetListener = ArgumentCaptor.forClass(Runnable.class);
+    verify(invalidationChannel).subscribe(keyListener.capture(), resetListener.capture());
+
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    keyListener.getValue().accept("authcode:clientId:accessToken\nimplicit:clientId:accessToken");
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    verify(database, times(2)).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    verify(database, times(2)).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void succeedsToInvalidateFromChannel() {
+    ArgumentCaptor<Consumer<String>> keyListener = ArgumentCaptor.forClass(Consumer.class);
+    ArgumentCaptor<Runnable> resetListener = ArgumentCaptor.forClass(Runnable.class);
+    verify(invalidationChannel).subscribe(keyListener.capture(), resetListener.capture());
+
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+    keyListener.getValue().accept("authcode:clientId:accessToken");
+    keyListener.getValue().accept("implicit:clientId:accessToken");
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+    resetListener.getValue().run();
+    cachingDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    cachingDatabase.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    verify(database, times(3)).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+    verify(database, times(3)).findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken");
+  }
+}
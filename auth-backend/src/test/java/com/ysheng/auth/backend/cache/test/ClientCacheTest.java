@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache.test;
+
+import com.ysheng.auth.backend.cache.ClientCache;
+import com.ysheng.auth.model.api.client.Client;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.cache.ClientCache}.
+ */
+public class ClientCacheTest {
+
+  private AtomicLong clock;
+
+  private AtomicInteger loadCount;
+
+  private Function<String, Client> loader;
+
+  @BeforeMethod
+  public void setUp() {
+    clock = new AtomicLong();
+    loadCount = new AtomicInteger();
+    loader = clientId -> {
+      loadCount.incrementAndGet();
+      if (clientId.startsWith("unknown")) {
+        return null;
+      }
+
+      Client client = new Client();
+      client.setId(clientId);
+      return client;
+    };
+  }
+
+  @Test
+  public void failsWithNonPositiveSize() {
+    try {
+      new ClientCache(0, 60L, 5L);
+      fail("Client cache should fail with non-positive size");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Cache size must be positive"));
+    }
+  }
+
+  @Test
+  public void succeedsToServeCachedClient() {
+    ClientCache cache = new ClientCache(10, 60L, 5L, clock::get);
+
+    Client client = cache.get("clientId", loader);
+
+    assertThat(cache.get("clientId", loader), sameInstance(client));
+    assertThat(loadCount.get(), equalTo(1));
+    assertThat(cache.getHitCount(), equalTo(1L));
+    assertThat(cache.getMissCount(), equalTo(1L));
+  }
+
+  @Test
+  public void succeedsToExpireCachedClient() {
+    ClientCache cache = new ClientCache(10, 60L, 5L, clock::get);
+    cache.get("clientId", loader);
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(59L));
+    cache.get("clientId", loader);
+    assertThat(loadCount.get(), equalTo(1));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+    cache.get("clientId", loader);
+    assertThat(loadCount.get(), equalTo(2));
+  }
+
+  @Test
+  public void succeedsToCacheUnknownClient() {
+    ClientCache cache = new ClientCache(10, 60L, 5L, clock::get);
+
+    assertThat(cache.get("unknownClientId", loader), nullValue());
+    assertThat(cache.get("unknownClientId", loader), nullValue());
+    assertThat(loadCount.get(), equalTo(1));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(5L));
+    cache.get("unknownClientId", loader);
+    assertThat(loadCount.get(), equalTo(2));
+  }
+
+  @Test
+  public void succeedsToSkipCachingUnknownClient() {
+    ClientCache cache = new ClientCache(10, 60L, 0L, clock::get);
+
+    cache.get("unknownClientId", loader);
+    cache.get("unknownClientId", loader);
+
+    assertThat(loadCount.get(), equalTo(2));
+    assertThat(cache.size(), equalTo(0));
+  }
+
+  @Test
+  public void succeedsToEvictLeastRecentlyUsedClient() {
+    ClientCache cache = new ClientCache(2, 60L, 5L, clock::get);
+    cache.get("clientId1", loader);
+    cache.get("clientId2", loader);
+    cache.get("clientId1", loader);
+    cache.get("clientId3", loader);
+
+    assertThat(cache.size(), equalTo(2));
+    assertThat(cache.getEvictionCount(), equalTo(1L));
+
+    cache.get("clientId1", loader);
+    assertThat(loadCount.get(), equalTo(3));
+    cache.get("clientId2", loader);
+    assertThat(loadCount.get(), equalTo(4));
+  }
+
+  @Test
+  public void succeedsToBoundSegmentedCache() {
+    ClientCache cache = new ClientCache(1000, 60L, 5L, clock::get);
+    for (int i = 0; i < 3000; ++i) {
+      cache.get("clientId" + i, loader);
+    }
+
+    assertThat(cache.size(), equalTo(1000));
+    assertThat(cache.getEvictionCount(), equalTo(2000L));
+  }
+
+  @Test
+  public void succeedsToInvalidateClient() {
+    ClientCache cache = new ClientCache(10, 60L, 5L, clock::get);
+    cache.get("clientId1", loader);
+    cache.get("clientId2", loader);
+
+    cache.invalidate("clientId1");
+    cache.get("clientId1", loader);
+    cache.get("clientId2", loader);
+    assertThat(loadCount.get(), equalTo(3));
+
+    cache.invalidateAll();
+    assertThat(cache.size(), equalTo(0));
+  }
+
+  @Test
+  public void succeedsToSkipCachingClientInvalidatedWhileLoading() {
+    ClientCache cache = new ClientCache(10, 60L, 5L, clock::get);
+
+    cache.get("clientId", clientId -> {
+      cache.invalidate(clientId);
+      return loader.apply(clientId);
+    });
+
+    assertThat(cache.size(), equalTo(0));
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.cache.test;
+
+import com.ysheng.auth.backend.ClientEntityPair;
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.cache.ClientCache;
+import com.ysheng.auth.backend.cache.ClientCachingDatabase;
+import com.ysheng.auth.backend.cache.InvalidationChannel;
+import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
+import com.ysheng.auth.model.api.client.Client;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.function.Consumer;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.cache.ClientCachingDatabase}.
+ */
+public class ClientCachingDatabaseTest {
+
+  private Database database;
+
+  private InvalidationChannel invalidationChannel;
+
+  private ClientCachingDatabase cachingDatabase;
+
+  private Client client;
+
+  @BeforeMethod
+  public void setUp() {
+    client = new Client();
+    client.setId("clientId");
+    client.setSecret("clientSecret");
+
+    database = mock(Database.class);
+    doReturn(client).when(database).findClientById("clientId");
+
+    invalidationChannel = mock(InvalidationChannel.class);
+    cachingDatabase = new ClientCachingDatabase(database, new ClientCache(10, 60L, 5L), invalidationChannel);
+  }
+
+  @Test
+  public void succeedsToServeClientFromCache() {
+    assertThat(cachingDatabase.findClientById("clientId"), sameInstance(client));
+    assertThat(cachingDatabase.findClientById("clientId"), sameInstance(client));
+    assertThat(cachingDatabase.findClientCredentialsById("clientId"), sameInstance(client));
+
+    verify(database, times(1)).findClientById("clientId");
+    verify(database, never()).findClientCredentialsById(anyString());
+    assertThat(cachingDatabase.getClientCache().getHitCount(), equalTo(2L));
+    assertThat(cachingDatabase.getClientCache().getMissCount(), equalTo(1L));
+  }
+
+  @Test
+  public void succeedsToFindClientAndAuthorizationTicket() {
+    AuthorizationTicket authorizationTicket = new AuthorizationTicket();
+    doReturn(authorizationTicket).when(database).findAuthorizationTicketByCodeAndClientId("code", "clientId");
+    cachingDatabase.findClientById("clientId");
+
+    ClientEntityPair<AuthorizationTicket> pair = cachingDatabase.findClientAndAuthorizationTicket("clientId", "code");
+
+    assertThat(pair.getClient(), sameInstance(client));
+    assertThat(pair.getEntity(), sameInstance(authorizationTicket));
+    verify(database, times(1)).findClientById("clientId");
+  }
+
+  @Test
+  public void succeedsToSkipAuthorizationTicketOfUnknownClient() {
+    ClientEntityPair<AuthorizationTicket> pair =
+        cachingDatabase.findClientAndAuthorizationTicket("unknownClientId", "code");
+
+    assertThat(pair.getClient(), nullValue());
+    assertThat(pair.getEntity(), nullValue());
+    verify(database, never()).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
+  }
+
+  @Test
+  public void succeedsToInvalidateStoredClient() {
+    cachingDatabase.findClientById("clientId");
+
+    cachingDatabase.storeClient(client);
+    cachingDatabase.findClientById("clientId");
+
+    verify(database).storeClient(client);
+    verify(invalidationChannel).publish("clientId");
+    verify(database, times(2)).findClientById("clientId");
+  }
+
+  @Test
+  public void succeedsToInvalidateClientWithUpdatedSecret() {
+    doReturn(true).when(database).updateClientSecret("clientId", "clientSecret", "newSecret");
+    cachingDatabase.findClientById("clientId");
+
+    assertThat(cachingDatabase.updateClientSecret("clientId", "otherSecret", "newSecret"), is(false));
+    cachingDatabase.findClientById("clientId");
+    verify(invalidationChannel, never()).publish(anyString());
+
+    assertThat(cachingDatabase.updateClientSecret("clientId", "clientSecret", "newSecret"), is(true));
+    cachingDatabase.findClientById("clientId");
+
+    verify(invalidationChannel).publish("clientId");
+    verify(database, times(2)).findClientById("clientId");
+  }
+
+  @Test
+  public void succeedsToInvalidateRemovedClient() {
+    cachingDatabase.findClientById("clientId");
+
+    cachingDatabase.removeClient("clientId");
+    cachingDatabase.findClientById("clientId");
+
+    verify(database).removeClient("clientId");
+    verify(invalidationChannel).publish("clientId");
+    verify(database, times(2)).findClientById("clientId");
+  }
+
+  @Test
+  public void succeedsToInvalidateTombstonedClient() {
+    cachingDatabase.findClientById("clientId");
+
+    cachingDatabase.tombstoneClient("clientId");
+    cachingDatabase.findClientById("clientId");
+
+    verify(database).tombstoneClient("clientId");
+    verify(invalidationChannel).publish("clientId");
+    verify(database, times(2)).findClientById("clientId");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void succeedsToInvalidateFromChannel() {
+    ArgumentCaptor<Consumer<String>> keyListener = ArgumentCaptor.forClass(Consumer.class);
+    ArgumentCaptor<Runnable> resetListener = ArgumentCaptor.forClass(Runnable.class);
+    verify(invalidationChannel).subscribe(keyListener.capture(), resetListener.capture());
+
+    cachingDatabase.findClientById("clientId");
+    keyListener.getValue().accept("clientId");
+    cachingDatabase.findClientById("clientId");
+    resetListener.getValue().run();
+    cachingDatabase.findClientById("clientId");
+
+    verify(database, times(3)).findClientById("clientId");
+  }
+
+  @Test
+  public void succeedsToClose() {
+    cachingDatabase.close();
+
+    InOrder order = inOrder(invalidationChannel, database);
+    order.verify(invalidationChannel).close();
+    order.verify(database).close();
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.filter.test;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.RemovedClientEntities;
+import com.ysheng.auth.backend.cache.InvalidationChannel;
+import com.ysheng.auth.backend.filter.AccessTokenFilteringDatabase;
+import com.ysheng.auth.model.api.authcode.AccessToken;
+import com.ysheng.auth.model.api.client.Client;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.filter.AccessTokenFilteringDatabase}.
+ */
+public class AccessTokenFilteringDatabaseTest {
+
+  // The grace period after a change or reset in nanoseconds.
+  private static final long GRACE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private AtomicLong nanoClock;
+
+  private Database database;
+
+  private InvalidationChannel changeChannel;
+
+  private AccessTokenFilteringDatabase filteringDatabase;
+
+  private Consumer<String> changeListener;
+
+  private Runnable resetListener;
+
+  @BeforeMethod
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    Client client = new Client();
+    client.setId("clientId");
+
+    AccessToken accessToken = new AccessToken();
+    accessToken.setClientId("clientId");
+    accessToken.setAccessToken("accessToken");
+
+    database = mock(Database.class);
+    doAnswer(invocation -> Collections.singletonList(client).iterator()).when(database).iterateClients();
+    doAnswer(invocation -> Collections.singletonList("accessToken").iterator())
+        .when(database).iterateAccessTokenStrings("clientId");
+    doAnswer(invocation -> Collections.singletonList("implicitAccessToken").iterator())
+        .when(database).iterateImplicitAccessTokenStrings("clientId");
+    doReturn(accessToken).when(database).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    changeChannel = mock(InvalidationChannel.class);
+    nanoClock = new AtomicLong();
+    filteringDatabase = new AccessTokenFilteringDatabase(
+        database, 100, 0L, 0L, GRACE_NANOS, changeChannel, nanoClock::get);
+
+    ArgumentCaptor<Consumer<String>> changeCaptor = ArgumentCaptor.forClass(Consumer.class);
+    ArgumentCaptor<Runnable> resetCaptor = ArgumentCaptor.forClass(Runnable.class);
+    verify(changeChannel).subscribe(changeCaptor.capture(), resetCaptor.capture());
+    changeListener = changeCaptor.getValue();
+    resetListener = resetCaptor.getValue();
+  }
+
+  @Test
+  public void succeedsToLetEverythingThroughBeforeBuilt() {
+    assertThat(filteringDatabase.isBuilt(), is(false));
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "randomToken"), is(true));
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "randomToken"), is(true));
+  }
+
+  @Test
+  public void succeedsToRuleOutUnknownAccessTokens() {
+    rebuild();
+
+    assertThat(filteringDatabase.isBuilt(), is(true));
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "accessToken"), is(true));
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "implicitAccessToken"), is(true));
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "implicitAccessToken"), is(false));
+    assertThat(filteringDatabase.findAccessTokenByClientIdAndToken("clientId", "randomToken"), nullValue());
+
+    verify(database, never()).findAccessTokenByClientIdAndToken("clientId", "randomToken");
+    assertThat(filteringDatabase.getNegativeCount(), equalTo(2L));
+    assertThat(filteringDatabase.getFilter().size(), equalTo(2L));
+  }
+
+  @Test
+  public void succeedsToBuildWithoutLoadingAccessTokens() {
+    rebuild();
+
+    verify(database, never()).listClients();
+    verify(database, never()).listAccessTokens(anyString());
+    verify(database, never()).iterateAccessTokens(anyString());
+    verify(database, never()).listImplicitAccessTokens(anyString());
+    verify(database, never()).iterateImplicitAccessTokens(anyString());
+  }
+
+  @Test
+  public void succeedsToCountFalsePositives() {
+    rebuild();
+    doReturn(null).when(database).findAccessTokenByClientIdAndToken("clientId", "accessToken");
+
+    assertThat(filteringDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken"), nullValue());
+    filteringDatabase.mayContainAccessToken("clientId", "randomToken");
+
+    assertThat(filteringDatabase.getFalsePositiveCount(), equalTo(1L));
+    assertThat(filteringDatabase.getObservedFalsePositiveRate(), equalTo(0.5));
+  }
+
+  @Test
+  public void succeedsToAddAndRemoveIssuedAccessTokens() {
+    rebuild();
+    AccessToken accessToken = new AccessToken();
+    accessToken.setClientId("clientId");
+    accessToken.setAccessToken("newAccessToken");
+
+    filteringDatabase.storeAccessToken(accessToken);
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "newAccessToken"), is(true));
+
+    filteringDatabase.removeAccessToken("clientId", "newAccessToken");
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "newAccessToken"), is(false));
+
+    ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+    verify(changeChannel, org.mockito.Mockito.times(2)).publish(messages.capture());
+    assertThat(messages.getAllValues().get(0), startsWith(filteringDatabase.getNodeId() + " +"));
+    assertThat(messages.getAllValues().get(1), startsWith(filteringDatabase.getNodeId() + " -"));
+  }
+
+  @Test
+  public void succeedsToRemoveAccessTokensOfClientEntities() {
+    rebuild();
+    doReturn(new RemovedClientEntities(3, Arrays.asList("accessToken"), Arrays.asList("implicitAccessToken")))
+        .when(database).removeClientEntities("clientId", 500);
+
+    assertThat(filteringDatabase.removeClientEntities("clientId", 500).getCount(), equalTo(3));
+
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "accessToken"), is(false));
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "implicitAccessToken"), is(false));
+    verify(changeChannel).publish(filteringDatabase.getNodeId() +
+        " -authcode:clientId:accessToken\n-implicit:clientId:implicitAccessToken");
+  }
+
+  @Test
+  public void succeedsToAddAndRemoveIssuedAccessTokensInOneMessage() {
+    rebuild();
+    com.ysheng.auth.model.api.implicit.AccessToken accessToken1 = new com.ysheng.auth.model.api.implicit.AccessToken();
+    accessToken1.setClientId("clientId");
+    accessToken1.setAccessToken("newAccessToken1");
+    com.ysheng.auth.model.api.implicit.AccessToken accessToken2 = new com.ysheng.auth.model.api.implicit.AccessToken();
+    accessToken2.setClientId("clientId");
+    accessToken2.setAccessToken("newAccessToken2");
+
+    filteringDatabase.storeImplicitAccessTokens(Arrays.asList(accessToken1, accessToken2));
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "newAccessToken1"), is(true));
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "newAccessToken2"), is(true));
+
+    doReturn(Arrays.asList("newAccessToken1", "newAccessToken2")).when(database)
+        .removeImplicitAccessTokens("clientId", Arrays.asList("newAccessToken1", "newAccessToken2"));
+    filteringDatabase.removeImplicitAccessTokens("clientId", Arrays.asList("newAccessToken1", "newAccessToken2"));
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "newAccessToken1"), is(false));
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "newAccessToken2"), is(false));
+
+    verify(changeChannel).publish(filteringDatabase.getNodeId() +
+        " +implicit:clientId:newAccessToken1\n+implicit:clientId:newAccessToken2");
+    verify(changeChannel).publish(filteringDatabase.getNodeId() +
+        " -implicit:clientId:newAccessToken1\n-implicit:clientId:newAccessToken2");
+  }
+
+  @Test
+  public void succeedsToKeepCollidingAccessTokenWhenRevokingUnknownOne() {
+    // A filter with a single bucket, in which every item collides with the
+    // stored ones once their fingerprints match.
+    AccessTokenFilteringDatabase smallFilteringDatabase = new AccessTokenFilteringDatabase(
+        database, 1, 0L, 0L, GRACE_NANOS, changeChannel, nanoClock::get);
+    smallFilteringDatabase.rebuild();
+    nanoClock.addAndGet(GRACE_NANOS);
+
+    String unknownAccessToken = IntStream.range(0, Integer.MAX_VALUE)
+        .mapToObj(i -> "unknownAccessToken" + i)
+        .filter(accessToken -> smallFilteringDatabase.mayContainAccessToken("clientId", accessToken))
+        .findFirst()
+        .get();
+    doReturn(Collections.emptyList())
+        .when(database).removeAccessTokens("clientId", Collections.singletonList(unknownAccessToken));
+
+    assertThat(smallFilteringDatabase.removeAccessTokens("clientId", Collections.singletonList(unknownAccessToken)),
+        is(empty()));
+
+    assertThat(smallFilteringDatabase.mayContainAccessToken("clientId", "accessToken"), is(true));
+    assertThat(smallFilteringDatabase.mayContainImplicitAccessToken("clientId", "implicitAccessToken"), is(true));
+    assertThat(smallFilteringDatabase.findAccessTokenByClientIdAndToken("clientId", "accessToken"), notNullValue());
+    verify(changeChannel, never()).publish(anyString());
+  }
+
+  @Test
+  public void succeedsToAddRedeemedAccessTokens() {
+    rebuild();
+    AccessToken accessToken = new AccessToken();
+    accessToken.setClientId("clientId");
+    accessToken.setAccessToken("redeemedAccessToken");
+    doReturn(true).when(database).redeemAuthorizationTicket("clientId", "code", accessToken);
+
+    filteringDatabase.redeemAuthorizationTicket("clientId", "code", accessToken);
+
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "redeemedAccessToken"), is(true));
+  }
+
+  @Test
+  public void succeedsToApplyChangesOfOtherNodes() {
+    rebuild();
+
+    changeListener.accept("otherNode +implicit:clientId:otherAccessToken");
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "otherAccessToken"), is(true));
+
+    changeListener.accept("otherNode -implicit:clientId:otherAccessToken");
+    nanoClock.addAndGet(GRACE_NANOS);
+    assertThat(filteringDatabase.mayContainImplicitAccessToken("clientId", "otherAccessToken"), is(false));
+  }
+
+  @Test
+  public void succeedsToApplyBatchOfChangesOfOtherNodes() {
+    rebuild();
+
+    changeListener.accept("otherNode +authcode:clientId:otherAccessToken1\n+authcode:clientId:otherAccessToken2");
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "otherAccessToken1"), is(true));
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "otherAccessToken2"), is(true));
+
+    changeListener.accept("otherNode -authcode:clientId:otherAccessToken1\n-authcode:clientId:otherAccessToken2");
+    nanoClock.addAndGet(GRACE_NANOS);
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "otherAccessToken1"), is(false));
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "otherAccessToken2"), is(false));
+  }
+
+  @Test
+  public void succeedsToIgnoreOwnChanges() {
+    rebuild();
+
+    changeListener.accept(filteringDatabase.getNodeId() + " +authcode:clientId:ownAccessToken");
+
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "ownAccessToken"), is(false));
+  }
+
+  @Test
+  public void succeedsToDropFilterOnReset() throws Throwable {
+    rebuild();
+    doAnswer(invocation -> Collections.emptyIterator()).when(database).iterateClients();
+
+    resetListener.run();
+
+    // Until the filter is built again, every access token may exist.
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "randomToken"), is(true));
+
+    long deadline = System.nanoTime() + 10_000_000_000L;
+    while (!filteringDatabase.isBuilt() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(filteringDatabase.isBuilt(), is(true));
+    nanoClock.addAndGet(GRACE_NANOS);
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "accessToken"), is(false));
+  }
+
+  @Test
+  public void succeedsToLookUpRuledOutAccessTokensWithinGracePeriod() {
+    rebuild();
+    changeListener.accept("otherNode +authcode:clientId:otherAccessToken");
+
+    // The change that adds the access token may still be on its way.
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "randomToken"), is(true));
+    assertThat(filteringDatabase.findAccessTokenByClientIdAndToken("clientId", "randomToken"), nullValue());
+    verify(database).findAccessTokenByClientIdAndToken("clientId", "randomToken");
+    assertThat(filteringDatabase.getFalsePositiveCount(), equalTo(0L));
+
+    nanoClock.addAndGet(GRACE_NANOS);
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "randomToken"), is(false));
+  }
+
+  @Test
+  public void succeedsToLookUpRuledOutAccessTokensWithinGracePeriodAfterBuilt() {
+    filteringDatabase.rebuild();
+
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "randomToken"), is(true));
+
+    nanoClock.addAndGet(GRACE_NANOS);
+    assertThat(filteringDatabase.mayContainAccessToken("clientId", "randomToken"), is(false));
+  }
+
+  @Test
+  public void succeedsToClose() {
+    filteringDatabase.close();
+
+    verify(changeChannel).close();
+    verify(database).close();
+    verify(database, never()).findClientById(anyString());
+  }
+
+  private void rebuild() {
+    filteringDatabase.rebuild();
+    nanoClock.addAndGet(GRACE_NANOS);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.filter.test;
+
+import com.ysheng.auth.backend.filter.CuckooFilter;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.filter.CuckooFilter}.
+ */
+public class CuckooFilterTest {
+
+  @Test
+  public void succeedsToContainAddedItems() {
+    CuckooFilter filter = new CuckooFilter(10000);
+    long[] hashes = randomHashes(1L, 10000);
+
+    for (long hash : hashes) {
+      assertThat(filter.add(hash), is(true));
+    }
+
+    for (long hash : hashes) {
+      assertThat(filter.mightContain(hash), is(true));
+    }
+    assertThat(filter.size(), equalTo(10000));
+  }
+
+  @Test
+  public void succeedsToRuleOutMostAbsentItems() {
+    CuckooFilter filter = new CuckooFilter(10000);
+    for (long hash : randomHashes(1L, 10000)) {
+      filter.add(hash);
+    }
+
+    int falsePositives = 0;
+    for (long hash : randomHashes(2L, 100000)) {
+      if (filter.mightContain(hash)) {
+        ++falsePositives;
+      }
+    }
+
+    // The expected rate is below 8 / 65536, i.e. about 12 in 100000.
+    assertThat(falsePositives, lessThan(50));
+    assertThat(filter.getExpectedFalsePositiveProbability(), lessThan(8.0 / 65536));
+  }
+
+  @Test
+  public void succeedsToRemoveAddedItems() {
+    CuckooFilter filter = new CuckooFilter(1000);
+    long[] hashes = randomHashes(1L, 1000);
+    for (long hash : hashes) {
+      filter.add(hash);
+    }
+
+    for (int i = 0; i < 500; ++i) {
+      assertThat(filter.remove(hashes[i]), is(true));
+    }
+
+    for (int i = 500; i < 1000; ++i) {
+      assertThat(filter.mightContain(hashes[i]), is(true));
+    }
+    assertThat(filter.size(), equalTo(500));
+  }
+
+  @Test
+  public void succeedsToReportFullFilter() {
+    CuckooFilter filter = new CuckooFilter(100);
+    int added = 0;
+    for (long hash : randomHashes(1L, 10000)) {
+      if (!filter.add(hash)) {
+        break;
+      }
+      ++added;
+    }
+
+    assertThat(filter.isFull(), is(true));
+    assertThat(added, greaterThanOrEqualTo(100));
+    assertThat(filter.size(), equalTo(added));
+  }
+
+  private static long[] randomHashes(long seed, int count) {
+    Random random = new Random(seed);
+    long[] hashes = new long[count];
+    for (int i = 0; i < count; ++i) {
+      hashes[i] = random.nextLong();
+    }
+    return hashes;
+  }
+}
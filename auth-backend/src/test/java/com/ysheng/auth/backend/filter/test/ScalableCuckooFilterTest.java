@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.filter.test;
+
+import com.ysheng.auth.backend.filter.ScalableCuckooFilter;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.filter.ScalableCuckooFilter}.
+ */
+public class ScalableCuckooFilterTest {
+
+  @Test
+  public void succeedsToGrowPastInitialCapacity() {
+    ScalableCuckooFilter filter = new ScalableCuckooFilter(100);
+    long initialMemoryBytes = filter.getMemoryBytes();
+
+    for (int i = 0; i < 10000; ++i) {
+      filter.add("item" + i);
+    }
+
+    for (int i = 0; i < 10000; ++i) {
+      assertThat(filter.mightContain("item" + i), is(true));
+    }
+    assertThat(filter.size(), equalTo(10000L));
+    assertThat(filter.getMemoryBytes(), greaterThan(initialMemoryBytes));
+    assertThat(filter.getExpectedFalsePositiveProbability(), lessThan(0.01));
+  }
+
+  @Test
+  public void succeedsToRuleOutAbsentItems() {
+    ScalableCuckooFilter filter = new ScalableCuckooFilter(1000);
+    for (int i = 0; i < 1000; ++i) {
+      filter.add("item" + i);
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10000; ++i) {
+      if (filter.mightContain("absent" + i)) {
+        ++falsePositives;
+      }
+    }
+
+    assertThat(falsePositives, lessThan(10));
+  }
+
+  @Test
+  public void succeedsToRemoveItems() {
+    ScalableCuckooFilter filter = new ScalableCuckooFilter(100);
+    for (int i = 0; i < 1000; ++i) {
+      filter.add("item" + i);
+    }
+
+    for (int i = 0; i < 500; ++i) {
+      filter.remove("item" + i);
+    }
+
+    for (int i = 500; i < 1000; ++i) {
+      assertThat(filter.mightContain("item" + i), is(true));
+    }
+    assertThat(filter.size(), lessThan(1000L));
+  }
+
+  @Test
+  public void succeedsToLookUpWhileGrowingFromConcurrentThreads() throws Throwable {
+    ScalableCuckooFilter filter = new ScalableCuckooFilter(100);
+    for (int i = 0; i < 100; ++i) {
+      filter.add("item" + i);
+    }
+
+    // Lookups of the items that are added first run in parallel with each
+    // other and with the adds that grow the filter, and never miss an item.
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> lookups = new ArrayList<>();
+      for (int thread = 0; thread < 3; ++thread) {
+        lookups.add(executor.submit(() -> {
+          for (int round = 0; round < 100; ++round) {
+            for (int i = 0; i < 100; ++i) {
+              if (!filter.mightContain("item" + i)) {
+                return false;
+              }
+            }
+          }
+          return true;
+        }));
+      }
+      Future<?> adds = executor.submit(() -> {
+        for (int i = 100; i < 10000; ++i) {
+          filter.add("item" + i);
+        }
+      });
+
+      adds.get(10, TimeUnit.SECONDS);
+      for (Future<Boolean> lookup : lookups) {
+        assertThat(lookup.get(10, TimeUnit.SECONDS), is(true));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(filter.size(), equalTo(10000L));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.metrics.test;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.ysheng.auth.backend.metrics.LogLinearReservoir;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.metrics.LogLinearReservoir}.
+ */
+public class LogLinearReservoirTest {
+
+  @Test
+  public void succeedsToCountSmallValuesExactly() {
+    LogLinearReservoir reservoir = new LogLinearReservoir();
+    for (long value = 1; value <= 100; ++value) {
+      reservoir.update(value);
+    }
+
+    Snapshot snapshot = reservoir.getSnapshot();
+
+    assertThat(snapshot.size(), is(100));
+    assertThat(snapshot.getMin(), is(1L));
+    assertThat(snapshot.getMax(), is(100L));
+    assertThat(snapshot.getMedian(), is(50.0));
+    assertThat(snapshot.get99thPercentile(), is(99.0));
+    assertThat(snapshot.getMean(), is(50.5));
+  }
+
+  @Test
+  public void succeedsToReportHighPercentilesWithinPrecision() {
+    LogLinearReservoir reservoir = new LogLinearReservoir();
+    for (int i = 0; i < 9990; ++i) {
+      reservoir.update(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    for (int i = 0; i < 10; ++i) {
+      reservoir.update(TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    double oneMillisecond = TimeUnit.MILLISECONDS.toNanos(1);
+    double slowMilliseconds = TimeUnit.MILLISECONDS.toNanos(250);
+
+    assertThat(snapshot.size(), is(10000));
+    assertThat(snapshot.getMedian(), closeTo(oneMillisecond, oneMillisecond / 128));
+    assertThat(snapshot.get99thPercentile(), closeTo(oneMillisecond, oneMillisecond / 128));
+    assertThat(snapshot.get999thPercentile(), closeTo(oneMillisecond, oneMillisecond / 128));
+    assertThat(snapshot.getValue(0.9995), closeTo(slowMilliseconds, slowMilliseconds / 128));
+    assertThat((double) snapshot.getMax(), closeTo(slowMilliseconds, slowMilliseconds / 128));
+  }
+
+  @Test
+  public void succeedsToClampValuesOutOfRange() {
+    LogLinearReservoir reservoir = new LogLinearReservoir();
+    reservoir.update(-1);
+    reservoir.update(Long.MAX_VALUE);
+
+    Snapshot snapshot = reservoir.getSnapshot();
+
+    assertThat(snapshot.size(), is(2));
+    assertThat(snapshot.getMin(), is(0L));
+    assertThat((double) snapshot.getMax(), closeTo(1L << 40, (1L << 40) / 128));
+  }
+
+  @Test
+  public void succeedsToForgetValuesOfOldWindows() {
+    AtomicLong tick = new AtomicLong();
+    LogLinearReservoir reservoir = new LogLinearReservoir(10, TimeUnit.SECONDS, new Clock() {
+      @Override
+      public long getTick() {
+        return tick.get();
+      }
+    });
+
+    reservoir.update(1);
+    tick.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    reservoir.update(2);
+
+    assertThat(reservoir.size(), is(2));
+
+    tick.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    assertThat(reservoir.size(), is(1));
+    assertThat(reservoir.getSnapshot().getMin(), is(2L));
+
+    tick.addAndGet(TimeUnit.SECONDS.toNanos(20));
+
+    assertThat(reservoir.size(), is(0));
+    assertThat(reservoir.getSnapshot().getMedian(), is(0.0));
+  }
+
+  @Test
+  public void succeedsToKeepSumOfOldWindows() {
+    AtomicLong tick = new AtomicLong();
+    LogLinearReservoir reservoir = new LogLinearReservoir(10, TimeUnit.SECONDS, new Clock() {
+      @Override
+      public long getTick() {
+        return tick.get();
+      }
+    });
+
+    reservoir.update(1);
+    tick.addAndGet(TimeUnit.SECONDS.toNanos(40));
+    reservoir.update(2);
+
+    LogLinearReservoir.LogLinearSnapshot snapshot = (LogLinearReservoir.LogLinearSnapshot) reservoir.getSnapshot();
+
+    assertThat(snapshot.size(), is(1));
+    assertThat(snapshot.getSum(), is(3L));
+  }
+
+  @Test
+  public void succeedsToRegisterTimerOnce() {
+    MetricRegistry metricRegistry = new MetricRegistry();
+
+    Timer timer = LogLinearReservoir.timer(metricRegistry, "timer");
+
+    assertThat(LogLinearReservoir.timer(metricRegistry, "timer"), sameInstance(timer));
+    assertThat(metricRegistry.getTimers().get("timer"), sameInstance(timer));
+  }
+}
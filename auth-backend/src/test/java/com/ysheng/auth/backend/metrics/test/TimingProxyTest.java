@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.metrics.test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.metrics.TimingProxy;
+import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.client.Client;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.metrics.TimingProxy}.
+ */
+public class TimingProxyTest {
+
+  private Database database;
+
+  private MetricRegistry metricRegistry;
+
+  private Database timedDatabase;
+
+  @BeforeMethod
+  public void setUp() {
+    database = mock(Database.class);
+    metricRegistry = new MetricRegistry();
+    timedDatabase = TimingProxy.wrap(Database.class, database, metricRegistry, "database.");
+  }
+
+  @Test
+  public void succeedsToTimeFunction() {
+    Client client = new Client();
+    doReturn(client).when(database).findClientById("clientId");
+
+    assertThat(timedDatabase.findClientById("clientId"), sameInstance(client));
+    assertThat(timedDatabase.findClientById("clientId"), sameInstance(client));
+
+    assertThat(metricRegistry.getTimers().get("database.findClientById").getCount(), is(2L));
+  }
+
+  @Test
+  public void succeedsToTimeVoidFunction() {
+    timedDatabase.removeClient("clientId");
+
+    verify(database).removeClient("clientId");
+    assertThat(metricRegistry.getTimers().get("database.removeClient").getCount(), is(1L));
+  }
+
+  @Test
+  public void succeedsToTimePageSeparately() {
+    ApiList<Client> page = new ApiList<>(Arrays.asList(new Client()), "cursor");
+    doReturn(page).when(database).listClients("cursor", 10);
+
+    assertThat(timedDatabase.listClients("cursor", 10), sameInstance(page));
+
+    assertThat(metricRegistry.getTimers().get("database.listClients.page").getCount(), is(1L));
+    assertThat(metricRegistry.getTimers().get("database.listClients"), nullValue());
+  }
+
+  @Test
+  public void succeedsToTimeFailedFunction() {
+    doThrow(new IllegalStateException()).when(database).findClientById("clientId");
+
+    try {
+      timedDatabase.findClientById("clientId");
+      fail("Finding client should fail when the database fails");
+    } catch (IllegalStateException e) {
+    }
+
+    assertThat(metricRegistry.getTimers().get("database.findClientById").getCount(), is(1L));
+  }
+
+  @Test
+  public void succeedsToSkipLazyIterator() {
+    doReturn(Collections.<Client>emptyIterator()).when(database).iterateClients();
+
+    assertThat(timedDatabase.iterateClients(), notNullValue());
+
+    assertThat(metricRegistry.getTimers().isEmpty(), is(true));
+  }
+
+  @Test
+  public void succeedsToGetTarget() {
+    assertThat(TimingProxy.getTarget(timedDatabase), sameInstance(database));
+    assertThat(TimingProxy.getTarget(database), nullValue());
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.benchmark;
+
+import com.ysheng.auth.backend.redis.adapter.AccessTokenAdapter;
+import com.ysheng.auth.backend.redis.adapter.ClientAdapter;
+import com.ysheng.auth.backend.redis.adapter.JsonEntityCodec;
+import com.ysheng.auth.model.api.AccessTokenType;
+import com.ysheng.auth.model.api.ClientType;
+import com.ysheng.auth.model.api.authcode.AccessToken;
+import com.ysheng.auth.model.api.client.Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compact format of the Redis adapters with the JSON format that
+ * they used before, in encode/decode ns/op. Run it with the main method from
+ * the test classpath, which also prints the bytes per entry of both formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdapterCodecBenchmark {
+
+  // The JSON codec of clients.
+  private final JsonEntityCodec<Client> clientJsonCodec = new JsonEntityCodec<>(Client.class);
+
+  // The JSON codec of access tokens.
+  private final JsonEntityCodec<AccessToken> accessTokenJsonCodec = new JsonEntityCodec<>(AccessToken.class);
+
+  private Client client;
+
+  private AccessToken accessToken;
+
+  private String clientCompact;
+
+  private String clientJson;
+
+  private String accessTokenCompact;
+
+  private String accessTokenJson;
+
+  @Setup
+  public void setUp() {
+    client = createClient();
+    accessToken = createAccessToken();
+    clientCompact = ClientAdapter.toHash(client);
+    clientJson = clientJsonCodec.encode(client);
+    accessTokenCompact = AccessTokenAdapter.toHash(accessToken);
+    accessTokenJson = accessTokenJsonCodec.encode(accessToken);
+  }
+
+  @Benchmark
+  public String encodeClientCompact() {
+    return ClientAdapter.toHash(client);
+  }
+
+  @Benchmark
+  public String encodeClientJson() {
+    return clientJsonCodec.encode(client);
+  }
+
+  @Benchmark
+  public Client decodeClientCompact() {
+    return ClientAdapter.fromHash(clientCompact);
+  }
+
+  @Benchmark
+  public Client decodeClientJson() {
+    return clientJsonCodec.decode(clientJson);
+  }
+
+  @Benchmark
+  public String encodeAccessTokenCompact() {
+    return AccessTokenAdapter.toHash(accessToken);
+  }
+
+  @Benchmark
+  public String encodeAccessTokenJson() {
+    return accessTokenJsonCodec.encode(accessToken);
+  }
+
+  @Benchmark
+  public AccessToken decodeAccessTokenCompact() {
+    return AccessTokenAdapter.fromHash(accessTokenCompact);
+  }
+
+  @Benchmark
+  public AccessToken decodeAccessTokenJson() {
+    return accessTokenJsonCodec.decode(accessTokenJson);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    AdapterCodecBenchmark benchmark = new AdapterCodecBenchmark();
+    benchmark.setUp();
+
+    System.out.println("Client bytes/entry: compact " + utf8Length(benchmark.clientCompact) +
+        ", json " + utf8Length(benchmark.clientJson));
+    System.out.println("Access token bytes/entry: compact " + utf8Length(benchmark.accessTokenCompact) +
+        ", json " + utf8Length(benchmark.accessTokenJson));
+
+    new Runner(new OptionsBuilder()
+        .include(AdapterCodecBenchmark.class.getSimpleName())
+        .build())
+        .run();
+  }
+
+  private static int utf8Length(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  private static Client createClient() {
+    Client client = new Client();
+    client.setType(ClientType.CONFIDENTIAL);
+    client.setId(UUID.randomUUID().toString());
+    client.setSecret(UUID.randomUUID().toString());
+    client.setRedirectUri("https://client.example.com/oauth/callback");
+    return client;
+  }
+
+  private static AccessToken createAccessToken() {
+    AccessToken accessToken = new AccessToken();
+    accessToken.setClientId(UUID.randomUUID().toString());
+    accessToken.setAccessToken(UUID.randomUUID().toString());
+    accessToken.setTokenType(AccessTokenType.BEARER);
+    accessToken.setExpiresIn(3600L);
+    accessToken.setScope("read write");
+    return accessToken;
+  }
+}
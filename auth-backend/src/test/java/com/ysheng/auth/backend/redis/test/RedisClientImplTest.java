@@ -0,0 +1,354 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.test;
+
+import com.ysheng.auth.backend.redis.RedisClientImpl;
+import com.ysheng.auth.backend.redis.RedisOp;
+import com.ysheng.auth.backend.redis.connection.RedisConnection;
+import com.ysheng.auth.backend.redis.connection.RedisSimpleConnection;
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import org.testng.annotations.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.redis.RedisClientImpl}.
+ */
+public class RedisClientImplTest {
+
+  @Test
+  public void succeedsToReturnResourceAfterCommand() throws Throwable {
+    FakePooledConnection connection = new FakePooledConnection(1);
+    RedisClientImpl redisClient = new RedisClientImpl(connection);
+
+    assertThat(redisClient.get("key"), equalTo("value"));
+    assertThat(redisClient.get("key"), equalTo("value"));
+    assertThat(connection.getIdleResourceCount(), equalTo(1));
+  }
+
+  @Test
+  public void succeedsToReturnResourceAfterFailedCommand() throws Throwable {
+    FakePooledConnection connection = new FakePooledConnection(1);
+    RedisClientImpl redisClient = new RedisClientImpl(connection);
+
+    try {
+      redisClient.set("failure", "value");
+      fail("Redis client should fail when the command fails");
+    } catch (JedisConnectionException ex) {
+      assertThat(connection.getIdleResourceCount(), equalTo(1));
+    }
+  }
+
+  @Test
+  public void succeedsToCloseConnection() {
+    RedisConnection connection = mock(RedisConnection.class);
+    RedisClientImpl redisClient = new RedisClientImpl(connection);
+
+    redisClient.close();
+
+    verify(connection).close();
+  }
+
+  @Test
+  public void succeedsToExecutePipelinedBatch() throws Throwable {
+    try (RedisTestServer server = new RedisTestServer()) {
+      RedisClientImpl redisClient = new RedisClientImpl(openSimpleConnection(server));
+
+      List<Object> replies = redisClient.executeBatch(
+          Arrays.asList(
+              RedisOp.set("key1", "value1"),
+              RedisOp.get("key1"),
+              RedisOp.get("key2"),
+              RedisOp.sadd("index", "key1")),
+          false);
+
+      assertThat(replies, contains("OK", "value1", null, 1L));
+      redisClient.close();
+    }
+  }
+
+  @Test
+  public void succeedsToExecuteTransactionalBatch() throws Throwable {
+    try (RedisTestServer server = new RedisTestServer()) {
+      RedisClientImpl redisClient = new RedisClientImpl(openSimpleConnection(server));
+      redisClient.setAndIndex("key1", "value1", "index1", "key1");
+
+      List<Object> replies = redisClient.executeBatch(
+          Arrays.asList(
+              RedisOp.set("key2", "value2"),
+              RedisOp.sadd("index2", "key2"),
+              RedisOp.del("key1"),
+              RedisOp.srem("index1", "key1")),
+          true);
+
+      assertThat(replies, contains("OK", 1L, 1L, 1L));
+      assertThat(server.getString("key1"), nullValue());
+      assertThat(server.getSet("index1"), empty());
+      assertThat(server.getString("key2"), equalTo("value2"));
+      assertThat(server.getSet("index2"), contains("key2"));
+      redisClient.close();
+    }
+  }
+
+  @Test
+  public void succeedsToSustainThroughputPastPoolSize() throws Throwable {
+    final int poolSize = 4;
+    final int threadCount = poolSize * 4;
+    final int commandsPerThread = 500;
+    final int roundCount = 5;
+
+    FakePooledConnection connection = new FakePooledConnection(poolSize);
+    RedisClientImpl redisClient = new RedisClientImpl(connection);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+    try {
+      for (int round = 0; round < roundCount; ++round) {
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; ++i) {
+          futures.add(executor.submit(() -> {
+            int completed = 0;
+            for (int j = 0; j < commandsPerThread; ++j) {
+              if ("value".equals(redisClient.get("key"))) {
+                ++completed;
+              }
+            }
+            return completed;
+          }));
+        }
+
+        // Every round issues many times more commands than the pool holds. A
+        // leaked resource would exhaust the pool and stall the round.
+        int completed = 0;
+        for (Future<Integer> future : futures) {
+          completed += future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(completed, equalTo(threadCount * commandsPerThread));
+        assertThat(connection.getIdleResourceCount(), equalTo(poolSize));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void succeedsToExecuteBatchAcrossShards() throws Throwable {
+    try (RedisTestServer server1 = new RedisTestServer();
+        RedisTestServer server2 = new RedisTestServer()) {
+      FakeShardedConnection connection = new FakeShardedConnection(
+          openSimpleConnection(server1),
+          openSimpleConnection(server2));
+      RedisClientImpl redisClient = new RedisClientImpl(connection);
+
+      List<Object> replies = redisClient.executeBatch(
+          Arrays.asList(
+              RedisOp.set("a:key1", "value1"),
+              RedisOp.set("b:key2", "value2"),
+              RedisOp.sadd("a:index", "a:key1"),
+              RedisOp.get("b:key2")),
+          true);
+
+      assertThat(replies, contains("OK", "OK", 1L, "value2"));
+      assertThat(server1.getString("a:key1"), equalTo("value1"));
+      assertThat(server1.getString("b:key2"), nullValue());
+      assertThat(server2.getString("b:key2"), equalTo("value2"));
+      assertThat(
+          redisClient.mget(new LinkedHashSet<>(Arrays.asList("b:key2", "a:key1", "a:key3"))),
+          contains("value2", "value1", null));
+      redisClient.close();
+    }
+  }
+
+  @Test
+  public void succeedsToExecuteBatchInOneRoundTripPerNode() throws Throwable {
+    try (RedisTestServer server1 = new RedisTestServer();
+        RedisTestServer server2 = new RedisTestServer()) {
+      RedisConnection node1 = openSimpleConnection(server1);
+      FakeShardedConnection connection = new FakeShardedConnection(
+          node1,
+          node1,
+          openSimpleConnection(server2));
+      RedisClientImpl redisClient = new RedisClientImpl(connection);
+
+      List<Object> replies = redisClient.executeBatch(
+          Arrays.asList(
+              RedisOp.set("a:key1", "value1"),
+              RedisOp.set("b:key2", "value2"),
+              RedisOp.set("c:key3", "value3"),
+              RedisOp.sadd("a:index", "a:key1"),
+              RedisOp.sadd("b:index", "b:key2")),
+          true);
+
+      assertThat(replies, contains("OK", "OK", "OK", 1L, 1L));
+      assertThat(connection.getResourceCount(), equalTo(2));
+      assertThat(server1.getString("a:key1"), equalTo("value1"));
+      assertThat(server1.getString("b:key2"), equalTo("value2"));
+      assertThat(server1.getSet("b:index"), contains("b:key2"));
+      assertThat(server2.getString("c:key3"), equalTo("value3"));
+
+      replies = redisClient.executeBatch(
+          Arrays.asList(
+              RedisOp.get("c:key3"),
+              RedisOp.get("b:key2"),
+              RedisOp.get("a:key1")),
+          false);
+
+      assertThat(replies, contains("value3", "value2", "value1"));
+      assertThat(connection.getResourceCount(), equalTo(4));
+      assertThat(
+          redisClient.mget(new LinkedHashSet<>(Arrays.asList("c:key3", "b:key2", "a:key1", "a:key4"))),
+          contains("value3", "value2", "value1", null));
+      assertThat(connection.getResourceCount(), equalTo(6));
+      redisClient.close();
+    }
+  }
+
+  private static RedisConnection openSimpleConnection(RedisTestServer server) {
+    RedisConfiguration configuration = new RedisConfiguration();
+    configuration.setMasterAddress(server.getAddress());
+
+    RedisConnection connection = new RedisSimpleConnection(configuration);
+    connection.open();
+
+    return connection;
+  }
+
+  /**
+   * Defines a fake connection that hands out a fixed number of resources, and
+   * fails to hand out more once all of them are borrowed.
+   */
+  private static class FakePooledConnection implements RedisConnection {
+
+    // The resources that are not borrowed.
+    private final BlockingQueue<Jedis> idleResources;
+
+    public FakePooledConnection(int poolSize) {
+      idleResources = new ArrayBlockingQueue<>(poolSize);
+      for (int i = 0; i < poolSize; ++i) {
+        Jedis resource = mock(Jedis.class);
+        doReturn("value").when(resource).get(anyString());
+        doThrow(new JedisConnectionException("failure")).when(resource).set("failure", "value");
+        doAnswer(invocation -> idleResources.offer(resource)).when(resource).close();
+        idleResources.add(resource);
+      }
+    }
+
+    public int getIdleResourceCount() {
+      return idleResources.size();
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Jedis getResource() {
+      try {
+        Jedis resource = idleResources.poll(1, TimeUnit.SECONDS);
+        if (resource == null) {
+          throw new JedisConnectionException("Could not get a resource from the pool");
+        }
+
+        return resource;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new JedisConnectionException(e);
+      }
+    }
+  }
+
+  /**
+   * Defines a fake connection that routes keys starting with "a" to the first
+   * connection, keys starting with "b" to the second connection and so on.
+   * Shards that share a connection are served by the same node.
+   */
+  private static class FakeShardedConnection implements RedisConnection {
+
+    // The connections of the shards.
+    private final RedisConnection[] connections;
+
+    // The number of resources that are borrowed for a key.
+    private final AtomicInteger resourceCount;
+
+    public FakeShardedConnection(RedisConnection... connections) {
+      this.connections = connections;
+      this.resourceCount = new AtomicInteger();
+    }
+
+    public int getResourceCount() {
+      return resourceCount.get();
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+      for (RedisConnection connection : connections) {
+        connection.close();
+      }
+    }
+
+    @Override
+    public Jedis getResource() {
+      return connections[0].getResource();
+    }
+
+    @Override
+    public Jedis getResource(String key) {
+      resourceCount.incrementAndGet();
+      return connections[getShard(key)].getResource();
+    }
+
+    @Override
+    public int getShard(String key) {
+      return Math.min(key.charAt(0) - 'a', connections.length - 1);
+    }
+
+    @Override
+    public String getNode(String key) {
+      return String.valueOf(System.identityHashCode(connections[getShard(key)]));
+    }
+  }
+}
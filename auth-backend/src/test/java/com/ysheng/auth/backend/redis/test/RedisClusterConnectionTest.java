@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.test;
+
+import com.ysheng.auth.backend.redis.adapter.AccessTokenAdapter;
+import com.ysheng.auth.backend.redis.adapter.AuthorizationTicketAdapter;
+import com.ysheng.auth.backend.redis.adapter.ClientAdapter;
+import com.ysheng.auth.backend.redis.adapter.ImplicitAccessTokenAdapter;
+import com.ysheng.auth.backend.redis.connection.RedisClusterConnection;
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.testng.Assert.fail;
+
+import java.util.Collections;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.redis.connection.RedisClusterConnection}.
+ */
+public class RedisClusterConnectionTest {
+
+  @Test
+  public void failsToOpenWithoutClusterNodes() {
+    RedisConfiguration configuration = new RedisConfiguration();
+    configuration.setClusterNodes(Collections.emptySet());
+    RedisClusterConnection connection = new RedisClusterConnection(configuration);
+
+    try {
+      connection.open();
+      fail("Redis cluster connection should fail to open without cluster nodes");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Redis cluster nodes cannot be empty"));
+    }
+  }
+
+  @Test
+  public void failsToGetResourceBeforeOpen() {
+    RedisClusterConnection connection = new RedisClusterConnection(new RedisConfiguration());
+
+    try {
+      connection.getResource("key");
+      fail("Redis cluster connection should fail to get resource before open");
+    } catch (IllegalStateException ex) {
+      assertThat(ex.getMessage(), equalTo("Redis connection is not open"));
+    }
+  }
+
+  @Test
+  public void succeedsToShardClientKeysTogether() {
+    RedisClusterConnection connection = new RedisClusterConnection(new RedisConfiguration());
+    int shard = connection.getShard(ClientAdapter.getKey("clientId"));
+
+    assertThat(connection.getShard(AuthorizationTicketAdapter.getKey("clientId", "code")), equalTo(shard));
+    assertThat(connection.getShard(AuthorizationTicketAdapter.getIndexKey("clientId")), equalTo(shard));
+    assertThat(connection.getShard(AccessTokenAdapter.getKey("clientId", "accessToken")), equalTo(shard));
+    assertThat(connection.getShard(AccessTokenAdapter.getIndexKey("clientId")), equalTo(shard));
+    assertThat(connection.getShard(ImplicitAccessTokenAdapter.getKey("clientId", "accessToken")), equalTo(shard));
+    assertThat(connection.getShard(ImplicitAccessTokenAdapter.getIndexKey("clientId")), equalTo(shard));
+    assertThat(connection.getShard(ClientAdapter.getKey("otherClientId")), not(equalTo(shard)));
+  }
+}
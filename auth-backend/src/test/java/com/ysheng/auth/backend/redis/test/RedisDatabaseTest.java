@@ -13,24 +13,58 @@
 
 package com.ysheng.auth.backend.redis.test;
 
+import com.ysheng.auth.backend.ClientEntityPair;
+import com.ysheng.auth.backend.RemovedClientEntities;
 import com.ysheng.auth.backend.redis.RedisClient;
 import com.ysheng.auth.backend.redis.RedisDatabase;
+import com.ysheng.auth.backend.redis.RedisOp;
+import com.ysheng.auth.backend.redis.RedisScript;
+import com.ysheng.auth.backend.redis.RedisScanResult;
+import com.ysheng.auth.backend.redis.RedisStorageType;
+import com.ysheng.auth.backend.redis.adapter.ClientAdapter;
 import com.ysheng.auth.model.api.AccessTokenType;
+import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.ClientType;
 import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
 import com.ysheng.auth.model.api.client.Client;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.DataProvider;
+import redis.clients.jedis.exceptions.JedisDataException;
 import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -45,7 +79,7 @@ public class RedisDatabaseTest {
   @Test
   public void succeedsToStoreClient() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).set(anyString(), anyString());
+    doNothing().when(redisClient).setAndIndex(anyString(), anyString(), anyString(), anyString());
 
     Client client = new Client();
     client.setId("clientId");
@@ -56,18 +90,18 @@ public class RedisDatabaseTest {
     RedisDatabase database = new RedisDatabase(redisClient);
     database.storeClient(client);
 
-    verify(redisClient).set(anyString(), anyString());
+    verify(redisClient).setAndIndex(anyString(), anyString(), anyString(), anyString());
   }
 
   @Test
   public void succeedsToRemoveClient() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).remove(anyString());
+    doNothing().when(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.removeClient("clientId");
 
-    verify(redisClient).remove(anyString());
+    verify(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
   }
 
   @Test
@@ -85,6 +119,27 @@ public class RedisDatabaseTest {
     verify(redisClient).get(anyString());
   }
 
+  @Test
+  public void succeedsToUpdateClientSecret() {
+    RedisClient redisClient = mock(RedisClient.class);
+    String hash = "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId\",\"secret\":\"clientSecret\"}";
+    doReturn(hash).when(redisClient).get("auth-client:{clientId}");
+    doReturn(1L).when(redisClient).evalScript(any(RedisScript.class), anyList(), anyList());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    assertThat(database.updateClientSecret("clientId", "otherSecret", "newSecret"), is(false));
+    assertThat(database.updateClientSecret("nonExistClientId", "clientSecret", "newSecret"), is(false));
+    assertThat(database.updateClientSecret("clientId", "clientSecret", "newSecret"), is(true));
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains("auth-client:{clientId}"));
+    assertThat(argsCaptor.getValue().get(0), equalTo(hash));
+    assertThat(ClientAdapter.fromHash(argsCaptor.getValue().get(1)).getSecret(), equalTo("newSecret"));
+  }
+
   @Test
   public void succeedsToListClients() {
     RedisClient redisClient = mock(RedisClient.class);
@@ -99,16 +154,430 @@ public class RedisDatabaseTest {
         "\"redirectUri\":\"http://5.6.7.8\"}";
     List<String> hashes = Arrays.asList(hash1, hash2);
 
-    doReturn(keys).when(redisClient).keys(anyString());
+    doReturn(keys).when(redisClient).smembers(anyString());
     doReturn(hashes).when(redisClient).mget(anySet());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.listClients();
 
-    verify(redisClient).keys(anyString());
+    verify(redisClient).smembers(anyString());
     verify(redisClient).mget(anySet());
   }
 
+  @Test
+  public void succeedsToListClientsWithStaleIndexEntry() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Set<String> clientIds = new HashSet<>();
+    clientIds.add("clientId1");
+    clientIds.add("clientId2");
+    String hash =
+        "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId1\",\"secret\":\"clientSecret1\"," +
+            "\"redirectUri\":\"http://1.2.3.4\"}";
+    List<String> hashes = Arrays.asList(hash, null);
+
+    doReturn(clientIds).when(redisClient).smembers(anyString());
+    doReturn(hashes).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    List<Client> clients = database.listClients();
+
+    assertThat(clients.size(), is(1));
+    assertThat(clients.get(0).getId(), equalTo("clientId1"));
+  }
+
+  @Test
+  public void succeedsToListClientsPage() {
+    RedisClient redisClient = mock(RedisClient.class);
+    RedisScanResult scanResult = new RedisScanResult("cursor", Arrays.asList("clientId1"));
+    String hash =
+        "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId1\",\"secret\":\"clientSecret1\"," +
+            "\"redirectUri\":\"http://1.2.3.4\"}";
+
+    doReturn(scanResult).when(redisClient).sscan(anyString(), any(), anyInt());
+    doReturn(Arrays.asList(hash)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    ApiList<Client> clients = database.listClients(null, 10);
+
+    assertThat(clients.getItems().size(), is(1));
+    assertThat(clients.getNextCursor(), equalTo("cursor"));
+    verify(redisClient).sscan("auth-client-index", null, 10);
+  }
+
+  @Test
+  public void succeedsToListClientsPageWithCursor() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(new RedisScanResult(null, new ArrayList<>())).when(redisClient).sscan(anyString(), any(), anyInt());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    ApiList<Client> clients = database.listClients("18446744073709551615", 10);
+
+    assertThat(clients.getItems().isEmpty(), is(true));
+    verify(redisClient).sscan("auth-client-index", "18446744073709551615", 10);
+  }
+
+  @DataProvider(name = "MalformedCursors")
+  public Object[][] getMalformedCursors() {
+    return new Object[][] {
+        {""},
+        {"abc"},
+        {"-1"},
+        {"+1"},
+        {"18446744073709551616"}
+    };
+  }
+
+  @Test(dataProvider = "MalformedCursors")
+  public void failsToListPageWithMalformedCursor(String cursor) {
+    RedisClient redisClient = mock(RedisClient.class);
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    try {
+      database.listAccessTokens("clientId", cursor, 10);
+      fail("Listing a page should fail with a malformed cursor");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Invalid cursor: " + cursor));
+    }
+
+    verify(redisClient, never()).sscan(anyString(), any(), anyInt());
+  }
+
+  @Test
+  public void succeedsToIterateClientsInChunks() {
+    RedisClient redisClient = mock(RedisClient.class);
+    String hash1 =
+        "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId1\",\"secret\":\"clientSecret1\"," +
+            "\"redirectUri\":\"http://1.2.3.4\"}";
+    String hash2 =
+        "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId2\",\"secret\":\"clientSecret2\"," +
+            "\"redirectUri\":\"http://1.2.3.4\"}";
+
+    doReturn(new RedisScanResult("cursor1", Arrays.asList("clientId1")))
+        .when(redisClient).sscan("auth-client-index", null, 1000);
+    doReturn(new RedisScanResult("cursor2", new ArrayList<>()))
+        .when(redisClient).sscan("auth-client-index", "cursor1", 1000);
+    doReturn(new RedisScanResult(null, Arrays.asList("clientId2")))
+        .when(redisClient).sscan("auth-client-index", "cursor2", 1000);
+    doReturn(Arrays.asList(hash1)).when(redisClient).mget(new LinkedHashSet<>(Arrays.asList("auth-client:{clientId1}")));
+    doReturn(Arrays.asList(hash2)).when(redisClient).mget(new LinkedHashSet<>(Arrays.asList("auth-client:{clientId2}")));
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    Iterator<Client> clients = database.iterateClients();
+
+    assertThat(clients.next().getId(), equalTo("clientId1"));
+    assertThat(clients.next().getId(), equalTo("clientId2"));
+    assertThat(clients.hasNext(), is(false));
+    verify(redisClient, times(3)).sscan(anyString(), any(), anyInt());
+    verify(redisClient, times(2)).mget(anySet());
+
+    try {
+      clients.next();
+      fail("Iterating past the last client should fail");
+    } catch (NoSuchElementException e) {
+    }
+  }
+
+  @Test
+  public void succeedsToTombstoneClientAfterRemovingIt() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.tombstoneClient("clientId");
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(true));
+
+    List<RedisOp> ops = opsCaptor.getValue();
+    assertThat(ops.size(), is(3));
+    assertThat(ops.get(0).getType(), is(RedisOp.Type.DEL));
+    assertThat(ops.get(0).getKey(), equalTo("auth-client:{clientId}"));
+    assertThat(ops.get(1).getType(), is(RedisOp.Type.SREM));
+    assertThat(ops.get(1).getKey(), equalTo("auth-client-index"));
+    assertThat(ops.get(2).getType(), is(RedisOp.Type.SADD));
+    assertThat(ops.get(2).getKey(), equalTo("auth-client-tombstone-index"));
+    assertThat(ops.get(2).getValue(), equalTo("clientId"));
+  }
+
+  @Test
+  public void succeedsToListTombstonedClients() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    doReturn(new HashSet<>(Arrays.asList("clientId1", "clientId2")))
+        .when(redisClient).smembers("auth-client-tombstone-index");
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    assertThat(database.listTombstonedClients(), containsInAnyOrder("clientId1", "clientId2"));
+  }
+
+  @Test
+  public void succeedsToRemoveBatchOfClientEntities() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    doReturn(new RedisScanResult(null, Arrays.asList("auth-authorization-ticket:{clientId}:code1")))
+        .when(redisClient).sscan(eq("auth-authorization-ticket-index:{clientId}"), any(), anyInt());
+    doReturn(new RedisScanResult("cursor", Arrays.asList(
+        "auth-access-token:{clientId}:token1",
+        "auth-access-token:{clientId}:token2")))
+        .when(redisClient).sscan(eq("auth-access-token-index:{clientId}"), any(), anyInt());
+    doAnswer(invocation -> Collections.nCopies(invocation.<List<?>>getArgument(0).size(), 1L))
+        .when(redisClient).executeBatch(anyList(), eq(true));
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    RemovedClientEntities removed = database.removeClientEntities("clientId", 3);
+
+    assertThat(removed.getCount(), is(3));
+    assertThat(removed.getAccessTokens(), contains("token1", "token2"));
+    assertThat(removed.getImplicitAccessTokens(), is(empty()));
+
+    verify(redisClient).sscan("auth-authorization-ticket-index:{clientId}", null, 3);
+    verify(redisClient).sscan("auth-access-token-index:{clientId}", null, 2);
+    verify(redisClient, times(0)).sscan(eq("auth-implicit-access-token-index:{clientId}"), any(), anyInt());
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient, times(2)).executeBatch(opsCaptor.capture(), eq(true));
+
+    List<RedisOp> ops = opsCaptor.getAllValues().get(1);
+    assertThat(ops.size(), is(4));
+    assertThat(ops.get(0).getKey(), equalTo("auth-access-token:{clientId}:token1"));
+    assertThat(ops.get(1).getKey(), equalTo("auth-access-token-index:{clientId}"));
+  }
+
+  @Test
+  public void succeedsToSkipExpiredClientEntities() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    doReturn(new RedisScanResult(null, Arrays.asList("auth-authorization-ticket:{clientId}:code1")))
+        .when(redisClient).sscan(eq("auth-authorization-ticket-index:{clientId}"), any(), anyInt());
+    doReturn(new RedisScanResult(null, Arrays.asList(
+        "auth-access-token:{clientId}:token1",
+        "auth-access-token:{clientId}:token2")))
+        .when(redisClient).sscan(eq("auth-access-token-index:{clientId}"), any(), anyInt());
+    doReturn(new RedisScanResult(null, new ArrayList<>()))
+        .when(redisClient).sscan(eq("auth-implicit-access-token-index:{clientId}"), any(), anyInt());
+
+    // The authorization ticket and the second access token have expired, so
+    // their DEL commands remove nothing.
+    doReturn(Arrays.asList(0L, 1L))
+        .doReturn(Arrays.asList(1L, 1L, 0L, 1L))
+        .when(redisClient).executeBatch(anyList(), eq(true));
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    RemovedClientEntities removed = database.removeClientEntities("clientId", 3);
+
+    assertThat(removed.getCount(), is(1));
+    assertThat(removed.getAccessTokens(), contains("token1"));
+    assertThat(removed.getImplicitAccessTokens(), is(empty()));
+
+    // The expired members do not count towards the batch.
+    verify(redisClient).sscan("auth-access-token-index:{clientId}", null, 3);
+    verify(redisClient).sscan("auth-implicit-access-token-index:{clientId}", null, 2);
+  }
+
+  @Test
+  public void succeedsToRemoveNoClientEntities() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    doReturn(new RedisScanResult(null, new ArrayList<>())).when(redisClient).sscan(anyString(), any(), anyInt());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    assertThat(database.removeClientEntities("clientId", 10).getCount(), is(0));
+
+    verify(redisClient, times(3)).sscan(anyString(), any(), eq(10));
+    verify(redisClient, times(0)).executeBatch(anyList(), eq(true));
+  }
+
+  @Test
+  public void succeedsToRemoveClientTombstone() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.removeClientTombstone("clientId");
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(false));
+
+    RedisOp op = opsCaptor.getValue().get(0);
+    assertThat(op.getType(), is(RedisOp.Type.SREM));
+    assertThat(op.getKey(), equalTo("auth-client-tombstone-index"));
+    assertThat(op.getValue(), equalTo("clientId"));
+  }
+
+  @Test
+  public void succeedsToLeaseClientCleanup() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(1L, 0L).when(redisClient).evalScript(any(RedisScript.class), anyList(), anyList());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    assertThat(database.tryLeaseClientCleanup("clientId", "owner", 30000L), is(true));
+    assertThat(database.tryLeaseClientCleanup("clientId", "owner", 30000L), is(false));
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient, times(2)).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains("auth-client-cleanup-lease:{clientId}"));
+    assertThat(argsCaptor.getValue(), contains("owner", "30000"));
+  }
+
+  @Test
+  public void succeedsToReleaseClientCleanupLease() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.releaseClientCleanupLease("clientId", "owner");
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains("auth-client-cleanup-lease:{clientId}"));
+    assertThat(argsCaptor.getValue(), contains("owner"));
+  }
+
+  @Test
+  public void succeedsToStoreClientAsHash() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    Client client = new Client();
+    client.setId("clientId");
+    client.setType(ClientType.PUBLIC);
+    client.setRedirectUri("http://1.2.3.4");
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+    database.storeClient(client);
+
+    ArgumentCaptor<List<RedisOp>> captor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(captor.capture(), eq(true));
+    assertThat(captor.getValue().get(0).getType(), is(RedisOp.Type.DEL));
+    assertThat(captor.getValue().get(0).getKey(), equalTo("auth-client:{clientId}"));
+    assertThat(captor.getValue().get(1).getType(), is(RedisOp.Type.HMSET));
+    assertThat(captor.getValue().get(1).getKey(), equalTo("auth-client:{clientId}"));
+    assertThat(captor.getValue().get(1).getHash().keySet(), containsInAnyOrder("id", "type", "redirectUri"));
+    assertThat(captor.getValue().get(2).getType(), is(RedisOp.Type.SADD));
+    assertThat(captor.getValue().get(2).getValue(), equalTo("clientId"));
+  }
+
+  @Test
+  public void succeedsToFindClientByIdAsHash() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Map<String, String> fields = new HashMap<>();
+    fields.put("type", "CONFIDENTIAL");
+    fields.put("id", "clientId");
+    fields.put("secret", "clientSecret");
+
+    doReturn(fields).when(redisClient).hgetAll("auth-client:{clientId}");
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+    Client client = database.findClientById("clientId");
+
+    assertThat(client.getId(), equalTo("clientId"));
+    assertThat(client.getType(), is(ClientType.CONFIDENTIAL));
+    assertThat(client.getSecret(), equalTo("clientSecret"));
+    assertThat(database.findClientById("nonExistClientId"), nullValue());
+  }
+
+  @Test
+  public void succeedsToMigrateClientStoredAsStringWhenFoundAsHash() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Client legacyClient = new Client();
+    legacyClient.setId("clientId");
+    legacyClient.setType(ClientType.CONFIDENTIAL);
+    legacyClient.setSecret("clientSecret");
+    String value = ClientAdapter.toHash(legacyClient);
+
+    doThrow(new JedisDataException("WRONGTYPE Operation against a key holding the wrong kind of value"))
+        .doReturn(ClientAdapter.toFields(legacyClient))
+        .when(redisClient).hgetAll("auth-client:{clientId}");
+    doReturn(value).when(redisClient).get("auth-client:{clientId}");
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+    Client client = database.findClientById("clientId");
+
+    assertThat(client.getId(), equalTo("clientId"));
+    assertThat(client.getSecret(), equalTo("clientSecret"));
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains("auth-client:{clientId}"));
+    assertThat(argsCaptor.getValue().get(0), equalTo(value));
+    assertThat(argsCaptor.getValue().subList(1, argsCaptor.getValue().size()),
+        containsInAnyOrder("id", "clientId", "type", "CONFIDENTIAL", "secret", "clientSecret"));
+    verify(redisClient, times(2)).hgetAll("auth-client:{clientId}");
+  }
+
+  @Test
+  public void failsToFindClientAsHashWithOtherError() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doThrow(new JedisDataException("ERR unknown error")).when(redisClient).hgetAll(anyString());
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+    try {
+      database.findClientById("clientId");
+      fail("Finding a client should fail with an error that is not WRONGTYPE");
+    } catch (JedisDataException ex) {
+      assertThat(ex.getMessage(), equalTo("ERR unknown error"));
+    }
+
+    verify(redisClient, never()).get(anyString());
+    verify(redisClient, never()).evalScript(any(RedisScript.class), anyList(), anyList());
+  }
+
+  @Test
+  public void succeedsToFindClientCredentialsByIdAsHash() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(Arrays.asList("clientId", "CONFIDENTIAL", "clientSecret")).when(redisClient)
+        .hmget("auth-client:{clientId}", "id", "type", "secret");
+    doReturn(Arrays.asList(null, null, null)).when(redisClient)
+        .hmget("auth-client:{nonExistClientId}", "id", "type", "secret");
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+    Client client = database.findClientCredentialsById("clientId");
+
+    assertThat(client.getId(), equalTo("clientId"));
+    assertThat(client.getSecret(), equalTo("clientSecret"));
+    assertThat(client.getRedirectUri(), nullValue());
+    assertThat(database.findClientCredentialsById("nonExistClientId"), nullValue());
+    verify(redisClient, times(0)).hgetAll(anyString());
+  }
+
+  @Test
+  public void succeedsToUpdateClientSecretAsHash() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(1L, 0L).when(redisClient).evalScript(any(RedisScript.class), anyList(), anyList());
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+
+    assertThat(database.updateClientSecret("clientId", "clientSecret", "newSecret"), is(true));
+    assertThat(database.updateClientSecret("clientId", "clientSecret", "newSecret"), is(false));
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient, times(2)).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains("auth-client:{clientId}"));
+    assertThat(argsCaptor.getValue(), contains("clientSecret", "newSecret", "secret"));
+    verify(redisClient, never()).get(anyString());
+  }
+
+  @Test
+  public void succeedsToListClientsAsHash() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Map<String, String> fields = new HashMap<>();
+    fields.put("id", "clientId1");
+
+    doReturn(new HashSet<>(Arrays.asList("clientId1", "clientId2"))).when(redisClient).smembers(anyString());
+    doReturn(Arrays.asList(fields, new HashMap<>())).when(redisClient).executeBatch(anyList(), eq(false));
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+    List<Client> clients = database.listClients();
+
+    assertThat(clients.size(), is(1));
+    assertThat(clients.get(0).getId(), equalTo("clientId1"));
+  }
+
   ///
   /// Auth Code Grant related tests.
   ///
@@ -116,7 +585,6 @@ public class RedisDatabaseTest {
   @Test
   public void succeedsToStoreAuthorizationTicket() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).set(anyString(), anyString());
 
     AuthorizationTicket authorizationTicket = new AuthorizationTicket();
     authorizationTicket.setCode("code");
@@ -124,11 +592,18 @@ public class RedisDatabaseTest {
     authorizationTicket.setRedirectUri("http://1.2.3.4");
     authorizationTicket.setScope("scope");
     authorizationTicket.setState("state");
+    authorizationTicket.setExpiresIn(600L);
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.storeAuthorizationTicket(authorizationTicket);
 
-    verify(redisClient).set(anyString(), anyString());
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains(
+        "auth-authorization-ticket:{clientId}:code",
+        "auth-authorization-ticket-index:{clientId}"));
+    assertThat(argsCaptor.getValue().get(1), equalTo("600"));
   }
 
   @Test(dataProvider = "ClientIdForListAuthorizationTickets")
@@ -143,13 +618,15 @@ public class RedisDatabaseTest {
         "\"scope\":\"scope\",\"state\":\"state\"}";
     List<String> hashes = Arrays.asList(hash1, hash2);
 
-    doReturn(keys).when(redisClient).keys(anyString());
+    doReturn(keys).when(redisClient).smembers(anyString());
+    doReturn(keys).when(redisClient).sunion(anySet());
     doReturn(hashes).when(redisClient).mget(anySet());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.listAuthorizationTickets(clientId);
 
-    verify(redisClient).keys(anyString());
+    verify(redisClient).smembers(anyString());
+    verify(redisClient, times(clientId == null ? 1 : 0)).sunion(anySet());
     verify(redisClient).mget(anySet());
   }
 
@@ -161,15 +638,80 @@ public class RedisDatabaseTest {
     };
   }
 
+  @Test
+  public void succeedsToListAuthorizationTicketsPage() {
+    RedisClient redisClient = mock(RedisClient.class);
+    RedisScanResult scanResult = new RedisScanResult(null, Arrays.asList("key1"));
+    String hash = "{\"code\":\"code1\",\"clientId\":\"clientId1\",\"redirectUri\":\"http://1.2.3.4\"," +
+        "\"scope\":\"scope\",\"state\":\"state\"}";
+
+    doReturn(scanResult).when(redisClient).sscan(anyString(), any(), anyInt());
+    doReturn(Arrays.asList(hash)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    ApiList<AuthorizationTicket> page = database.listAuthorizationTickets("clientId1", "42", 10);
+
+    assertThat(page.getItems().size(), is(1));
+    assertThat(page.getNextCursor(), nullValue());
+    verify(redisClient).sscan("auth-authorization-ticket-index:{clientId1}", "42", 10);
+  }
+
+  @Test
+  public void succeedsToIterateAuthorizationTicketsLazily() {
+    RedisClient redisClient = mock(RedisClient.class);
+    String hash = "{\"code\":\"code1\",\"clientId\":\"clientId1\",\"redirectUri\":\"http://1.2.3.4\"," +
+        "\"scope\":\"scope\",\"state\":\"state\"}";
+
+    doReturn(new RedisScanResult(null, Arrays.asList("key1", "key2")))
+        .when(redisClient).sscan(anyString(), any(), anyInt());
+    doReturn(Arrays.asList(hash, null)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    Iterator<AuthorizationTicket> authorizationTickets = database.iterateAuthorizationTickets("clientId1");
+
+    verify(redisClient, times(0)).sscan(anyString(), any(), anyInt());
+
+    assertThat(authorizationTickets.next().getCode(), equalTo("code1"));
+    assertThat(authorizationTickets.hasNext(), is(false));
+    verify(redisClient).sscan("auth-authorization-ticket-index:{clientId1}", null, 1000);
+    verify(redisClient).executeBatch(anyList(), eq(false));
+  }
+
+  @Test
+  public void succeedsToListAuthorizationTicketsWithExpiredIndexEntry() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Set<String> keys = new LinkedHashSet<>();
+    keys.add("auth-authorization-ticket:{clientId1}:code1");
+    keys.add("auth-authorization-ticket:{clientId1}:code2");
+    String hash = "{\"code\":\"code1\",\"clientId\":\"clientId1\",\"redirectUri\":\"http://1.2.3.4\"," +
+        "\"scope\":\"scope\",\"state\":\"state\"}";
+
+    doReturn(keys).when(redisClient).smembers(anyString());
+    doReturn(Arrays.asList(hash, null)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    List<AuthorizationTicket> authorizationTickets = database.listAuthorizationTickets("clientId1");
+
+    assertThat(authorizationTickets.size(), is(1));
+    assertThat(authorizationTickets.get(0).getCode(), equalTo("code1"));
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(false));
+    assertThat(opsCaptor.getValue().size(), is(1));
+    assertThat(opsCaptor.getValue().get(0).getType(), is(RedisOp.Type.SREM));
+    assertThat(opsCaptor.getValue().get(0).getKey(), equalTo("auth-authorization-ticket-index:{clientId1}"));
+    assertThat(opsCaptor.getValue().get(0).getValue(), equalTo("auth-authorization-ticket:{clientId1}:code2"));
+  }
+
   @Test
   public void succeedsToRemoveAuthorizationTicket() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).remove(anyString());
+    doNothing().when(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.removeAuthorizationTicket("clientId", "code");
 
-    verify(redisClient).remove(anyString());
+    verify(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
   }
 
   @Test
@@ -186,10 +728,97 @@ public class RedisDatabaseTest {
     verify(redisClient).get(anyString());
   }
 
+  @Test
+  public void succeedsToFindClientAndAuthorizationTicket() {
+    RedisClient redisClient = mock(RedisClient.class);
+    String clientHash = "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId\",\"secret\":\"clientSecret\"}";
+    String ticketHash = "{\"code\":\"code\",\"clientId\":\"clientId\"}";
+
+    doReturn(Arrays.asList(clientHash, ticketHash)).when(redisClient).executeBatch(anyList(), eq(false));
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    ClientEntityPair<AuthorizationTicket> clientAndTicket =
+        database.findClientAndAuthorizationTicket("clientId", "code");
+
+    assertThat(clientAndTicket.getClient().getId(), equalTo("clientId"));
+    assertThat(clientAndTicket.getEntity().getCode(), equalTo("code"));
+
+    ArgumentCaptor<List<RedisOp>> captor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(captor.capture(), eq(false));
+    assertThat(captor.getValue().get(0).getKey(), equalTo("auth-client:{clientId}"));
+    assertThat(captor.getValue().get(1).getKey(), equalTo("auth-authorization-ticket:{clientId}:code"));
+  }
+
+  @Test
+  public void succeedsToFindClientAndAuthorizationTicketAsHash() {
+    RedisClient redisClient = mock(RedisClient.class);
+    String ticketHash = "{\"code\":\"code\",\"clientId\":\"clientId\"}";
+
+    doReturn(Arrays.asList(Arrays.asList("clientId", "PUBLIC", null), ticketHash)).when(redisClient)
+        .executeBatch(anyList(), eq(false));
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.HASH);
+    ClientEntityPair<AuthorizationTicket> clientAndTicket =
+        database.findClientAndAuthorizationTicket("clientId", "code");
+
+    assertThat(clientAndTicket.getClient().getType(), is(ClientType.PUBLIC));
+    assertThat(clientAndTicket.getClient().getSecret(), nullValue());
+    assertThat(clientAndTicket.getEntity().getCode(), equalTo("code"));
+
+    ArgumentCaptor<List<RedisOp>> captor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(captor.capture(), eq(false));
+    assertThat(captor.getValue().get(0).getType(), is(RedisOp.Type.HMGET));
+  }
+
+  @Test
+  public void succeedsToFindClientAndNonExistAuthorizationTicket() {
+    RedisClient redisClient = mock(RedisClient.class);
+    String clientHash = "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId\",\"secret\":\"clientSecret\"}";
+
+    doReturn(Arrays.asList(clientHash, null)).when(redisClient).executeBatch(anyList(), eq(false));
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    ClientEntityPair<AuthorizationTicket> clientAndTicket =
+        database.findClientAndAuthorizationTicket("clientId", "code");
+
+    assertThat(clientAndTicket.getClient().getId(), equalTo("clientId"));
+    assertThat(clientAndTicket.getEntity(), nullValue());
+  }
+
+  @Test(dataProvider = "RedeemReply")
+  public void succeedsToRedeemAuthorizationTicket(Object reply, boolean expectedRedeemed) {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(reply).when(redisClient).evalScript(any(RedisScript.class), anyList(), anyList());
+
+    com.ysheng.auth.model.api.authcode.AccessToken accessToken = new com.ysheng.auth.model.api.authcode.AccessToken();
+    accessToken.setClientId("clientId");
+    accessToken.setAccessToken("accessToken");
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    boolean redeemed = database.redeemAuthorizationTicket("clientId", "code", accessToken);
+
+    assertThat(redeemed, is(expectedRedeemed));
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), anyList());
+    assertThat(keysCaptor.getValue(), contains(
+        "auth-authorization-ticket:{clientId}:code",
+        "auth-authorization-ticket-index:{clientId}",
+        "auth-access-token:{clientId}:accessToken",
+        "auth-access-token-index:{clientId}"));
+  }
+
+  @DataProvider(name = "RedeemReply")
+  public Object[][] provideRedeemReply() {
+    return new Object[][] {
+        { 1L, true },
+        { 0L, false }
+    };
+  }
+
   @Test
   public void succeedsToStoreAccessToken() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).set(anyString(), anyString());
 
     com.ysheng.auth.model.api.authcode.AccessToken accessToken = new com.ysheng.auth.model.api.authcode.AccessToken();
     accessToken.setClientId("clientId");
@@ -202,7 +831,13 @@ public class RedisDatabaseTest {
     RedisDatabase database = new RedisDatabase(redisClient);
     database.storeAccessToken(accessToken);
 
-    verify(redisClient).set(anyString(), anyString());
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains(
+        "auth-access-token:{clientId}:accessToken",
+        "auth-access-token-index:{clientId}"));
+    assertThat(argsCaptor.getValue().get(1), equalTo("1000"));
   }
 
   @Test(dataProvider = "ClientIdForListAccessTokens")
@@ -217,13 +852,15 @@ public class RedisDatabaseTest {
         "\"expiresIn\":1000,\"refreshToken\":\"refreshToken\",\"scope\":\"scope\"}";
     List<String> hashes = Arrays.asList(hash1, hash2);
 
-    doReturn(keys).when(redisClient).keys(anyString());
+    doReturn(keys).when(redisClient).smembers(anyString());
+    doReturn(keys).when(redisClient).sunion(anySet());
     doReturn(hashes).when(redisClient).mget(anySet());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.listAccessTokens(clientId);
 
-    verify(redisClient).keys(anyString());
+    verify(redisClient).smembers(anyString());
+    verify(redisClient, times(clientId == null ? 1 : 0)).sunion(anySet());
     verify(redisClient).mget(anySet());
   }
 
@@ -235,15 +872,79 @@ public class RedisDatabaseTest {
     };
   }
 
+  @Test
+  public void succeedsToListAccessTokensPage() {
+    RedisClient redisClient = mock(RedisClient.class);
+    RedisScanResult scanResult = new RedisScanResult(null, Arrays.asList("key1"));
+    String hash = "{\"clientId\":\"clientId1\",\"accessToken\":\"accessToken1\",\"tokenType\":\"BEARER\"," +
+        "\"expiresIn\":1000,\"refreshToken\":\"refreshToken\",\"scope\":\"scope\"}";
+
+    doReturn(scanResult).when(redisClient).sscan(anyString(), any(), anyInt());
+    doReturn(Arrays.asList(hash)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    ApiList<com.ysheng.auth.model.api.authcode.AccessToken> page = database.listAccessTokens("clientId1", "42", 10);
+
+    assertThat(page.getItems().size(), is(1));
+    assertThat(page.getNextCursor(), nullValue());
+    verify(redisClient).sscan("auth-access-token-index:{clientId1}", "42", 10);
+  }
+
   @Test
   public void succeedsToRemoveAccessToken() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).remove(anyString());
+    doNothing().when(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.removeAccessToken("clientId", "token");
 
-    verify(redisClient).remove(anyString());
+    verify(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
+  }
+
+  @Test
+  public void succeedsToRemoveAccessTokensInOneTransaction() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(Arrays.asList(1L, 1L, 0L, 0L)).when(redisClient).executeBatch(anyList(), eq(true));
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    // Only the access tokens that existed are reported as removed.
+    assertThat(database.removeAccessTokens("clientId", Arrays.asList("token1", "token2")), contains("token1"));
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(true));
+
+    List<RedisOp> ops = opsCaptor.getValue();
+    assertThat(ops.size(), is(4));
+    assertThat(ops.get(0).getType(), is(RedisOp.Type.DEL));
+    assertThat(ops.get(0).getKey(), equalTo("auth-access-token:{clientId}:token1"));
+    assertThat(ops.get(1).getType(), is(RedisOp.Type.SREM));
+    assertThat(ops.get(1).getKey(), equalTo("auth-access-token-index:{clientId}"));
+    assertThat(ops.get(1).getValue(), equalTo("auth-access-token:{clientId}:token1"));
+    assertThat(ops.get(2).getKey(), equalTo("auth-access-token:{clientId}:token2"));
+  }
+
+  @Test
+  public void succeedsToIterateAccessTokenStringsWithoutLoadingThem() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(new RedisScanResult("42", Arrays.asList("auth-access-token:{clientId}:token1")))
+        .when(redisClient).sscan("auth-access-token-index:{clientId}", null, 1000);
+    doReturn(new RedisScanResult(null, Arrays.asList("auth-access-token:{clientId}:token2")))
+        .when(redisClient).sscan("auth-access-token-index:{clientId}", "42", 1000);
+    doReturn(new RedisScanResult(null, Arrays.asList("auth-implicit-access-token:{clientId}:token3")))
+        .when(redisClient).sscan("auth-implicit-access-token-index:{clientId}", null, 1000);
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    List<String> accessTokens = new ArrayList<>();
+    database.iterateAccessTokenStrings("clientId").forEachRemaining(accessTokens::add);
+    List<String> implicitAccessTokens = new ArrayList<>();
+    database.iterateImplicitAccessTokenStrings("clientId").forEachRemaining(implicitAccessTokens::add);
+
+    assertThat(accessTokens, contains("token1", "token2"));
+    assertThat(implicitAccessTokens, contains("token3"));
+    verify(redisClient, never()).mget(anySet());
+    verify(redisClient, never()).get(anyString());
   }
 
   @Test
@@ -267,7 +968,6 @@ public class RedisDatabaseTest {
   @Test
   public void succeedsToStoreImplictAccessToken() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).set(anyString(), anyString());
 
     com.ysheng.auth.model.api.implicit.AccessToken accessToken = new com.ysheng.auth.model.api.implicit.AccessToken();
     accessToken.setClientId("clientId");
@@ -280,7 +980,41 @@ public class RedisDatabaseTest {
     RedisDatabase database = new RedisDatabase(redisClient);
     database.storeImplictAccessToken(accessToken);
 
-    verify(redisClient).set(anyString(), anyString());
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), anyList(), argsCaptor.capture());
+    assertThat(argsCaptor.getValue().get(1), equalTo("1000"));
+  }
+
+  @Test
+  public void succeedsToStoreImplicitAccessTokensInBatches() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    List<com.ysheng.auth.model.api.implicit.AccessToken> accessTokens = new ArrayList<>();
+    for (int i = 0; i < 1500; ++i) {
+      com.ysheng.auth.model.api.implicit.AccessToken accessToken = new com.ysheng.auth.model.api.implicit.AccessToken();
+      accessToken.setClientId(i == 0 ? "otherClientId" : "clientId");
+      accessToken.setAccessToken("accessToken" + i);
+      accessToken.setExpiresIn(1000L);
+      accessTokens.add(accessToken);
+    }
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.storeImplicitAccessTokens(accessTokens);
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient, times(3)).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+
+    List<List<String>> keys = keysCaptor.getAllValues();
+    assertThat(keys.get(0), contains(
+        "auth-implicit-access-token-index:{otherClientId}",
+        "auth-implicit-access-token:{otherClientId}:accessToken0"));
+    assertThat(keys.get(1).size(), is(1001));
+    assertThat(keys.get(1).get(0), equalTo("auth-implicit-access-token-index:{clientId}"));
+    assertThat(keys.get(1).get(1), equalTo("auth-implicit-access-token:{clientId}:accessToken1"));
+    assertThat(keys.get(2).size(), is(500));
+    assertThat(argsCaptor.getAllValues().get(1).size(), is(2000));
+    assertThat(argsCaptor.getAllValues().get(1).get(1), equalTo("1000"));
   }
 
   @Test(dataProvider = "ClientIdForListImplicitAccessTokens")
@@ -297,13 +1031,15 @@ public class RedisDatabaseTest {
             "\"scope\":\"scope\",\"state\":\"state\"}";
     List<String> hashes = Arrays.asList(hash1, hash2);
 
-    doReturn(keys).when(redisClient).keys(anyString());
+    doReturn(keys).when(redisClient).smembers(anyString());
+    doReturn(keys).when(redisClient).sunion(anySet());
     doReturn(hashes).when(redisClient).mget(anySet());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.listImplicitAccessTokens(clientId);
 
-    verify(redisClient).keys(anyString());
+    verify(redisClient).smembers(anyString());
+    verify(redisClient, times(clientId == null ? 1 : 0)).sunion(anySet());
     verify(redisClient).mget(anySet());
   }
 
@@ -315,15 +1051,49 @@ public class RedisDatabaseTest {
     };
   }
 
+  @Test
+  public void succeedsToListImplicitAccessTokensPage() {
+    RedisClient redisClient = mock(RedisClient.class);
+    RedisScanResult scanResult = new RedisScanResult(null, Arrays.asList("key1"));
+    String hash = "{\"clientId\":\"clientId1\",\"accessToken\":\"accessToken1\",\"tokenType\":\"BEARER\",\"expiresIn\":1000," +
+        "\"scope\":\"scope\",\"state\":\"state\"}";
+
+    doReturn(scanResult).when(redisClient).sscan(anyString(), any(), anyInt());
+    doReturn(Arrays.asList(hash)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    ApiList<com.ysheng.auth.model.api.implicit.AccessToken> page = database.listImplicitAccessTokens("clientId1", "42", 10);
+
+    assertThat(page.getItems().size(), is(1));
+    assertThat(page.getNextCursor(), nullValue());
+    verify(redisClient).sscan("auth-implicit-access-token-index:{clientId1}", "42", 10);
+  }
+
   @Test
   public void succeedsToRemoveImplicitAccessToken() {
     RedisClient redisClient = mock(RedisClient.class);
-    doNothing().when(redisClient).remove(anyString());
+    doNothing().when(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
 
     RedisDatabase database = new RedisDatabase(redisClient);
     database.removeImplictAccessToken("clientId", "token");
 
-    verify(redisClient).remove(anyString());
+    verify(redisClient).removeAndUnindex(anyString(), anyString(), anyString());
+  }
+
+  @Test
+  public void succeedsToRemoveImplicitAccessTokensInOneTransaction() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    doReturn(Arrays.asList(0L, 0L, 1L, 1L)).when(redisClient).executeBatch(anyList(), eq(true));
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+
+    assertThat(database.removeImplicitAccessTokens("clientId", Arrays.asList("token1", "token2")), contains("token2"));
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(true));
+    assertThat(opsCaptor.getValue().size(), is(4));
+    assertThat(opsCaptor.getValue().get(3).getValue(), equalTo("auth-implicit-access-token:{clientId}:token2"));
   }
 
   @Test
@@ -340,4 +1110,165 @@ public class RedisDatabaseTest {
 
     verify(redisClient).get(anyString());
   }
+
+  ///
+  /// Revoked access token related tests.
+  ///
+
+  @Test
+  public void succeedsToStoreRevokedAccessToken() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.storeRevokedAccessToken("accessToken", 0L);
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains(
+        "auth-revoked-access-token:{revoked}:accessToken",
+        "auth-revoked-access-token-index:{revoked}"));
+    assertThat(argsCaptor.getValue(), contains("accessToken", "1"));
+  }
+
+  @Test
+  public void succeedsToStoreRevokedAccessTokens() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Map<String, Long> expiresInByAccessToken = new LinkedHashMap<>();
+    expiresInByAccessToken.put("accessToken1", 100L);
+    expiresInByAccessToken.put("accessToken2", 0L);
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.storeRevokedAccessTokens(expiresInByAccessToken);
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains(
+        "auth-revoked-access-token-index:{revoked}",
+        "auth-revoked-access-token:{revoked}:accessToken1",
+        "auth-revoked-access-token:{revoked}:accessToken2"));
+    assertThat(argsCaptor.getValue(), contains("accessToken1", "100", "accessToken2", "1"));
+  }
+
+  @Test
+  public void succeedsToListRevokedAccessTokens() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Set<String> keys = new LinkedHashSet<>();
+    keys.add("auth-revoked-access-token:{revoked}:accessToken1");
+    keys.add("auth-revoked-access-token:{revoked}:accessToken2");
+
+    doReturn(keys).when(redisClient).smembers("auth-revoked-access-token-index:{revoked}");
+    doReturn(Arrays.asList("accessToken1", null)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    List<String> accessTokens = database.listRevokedAccessTokens();
+
+    assertThat(accessTokens, contains("accessToken1"));
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(false));
+    assertThat(opsCaptor.getValue().get(0).getValue(), equalTo("auth-revoked-access-token:{revoked}:accessToken2"));
+  }
+
+  @Test
+  public void succeedsToStoreRevokedClient() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.storeRevokedClient("clientId", 1000L, 3600L);
+
+    ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List<String>> argsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).evalScript(any(RedisScript.class), keysCaptor.capture(), argsCaptor.capture());
+    assertThat(keysCaptor.getValue(), contains(
+        "auth-revoked-client:{revoked}:clientId",
+        "auth-revoked-client-index:{revoked}"));
+    assertThat(argsCaptor.getValue(), contains("1000:clientId", "3600"));
+  }
+
+  @Test
+  public void succeedsToListRevokedClients() {
+    RedisClient redisClient = mock(RedisClient.class);
+    Set<String> keys = new LinkedHashSet<>();
+    keys.add("auth-revoked-client:{revoked}:clientId1");
+    keys.add("auth-revoked-client:{revoked}:clientId2");
+    keys.add("auth-revoked-client:{revoked}:clientId3");
+
+    doReturn(keys).when(redisClient).smembers("auth-revoked-client-index:{revoked}");
+    doReturn(Arrays.asList("1000:clientId1", "invalid", null)).when(redisClient).mget(anySet());
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    Map<String, Long> notBeforeByClientId = database.listRevokedClients();
+
+    assertThat(notBeforeByClientId.size(), equalTo(1));
+    assertThat(notBeforeByClientId.get("clientId1"), equalTo(1000L));
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(false));
+    assertThat(opsCaptor.getValue().get(0).getValue(), equalTo("auth-revoked-client:{revoked}:clientId3"));
+  }
+
+  ///
+  /// Rate limit related tests.
+  ///
+
+  @Test
+  public void succeedsToAddRateLimitCounts() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doReturn(Arrays.asList(30L, 1L, "20", 4L, 1L, null))
+        .when(redisClient).executeBatch(anyList(), eq(false));
+
+    Map<String, Long> counts = new LinkedHashMap<>();
+    counts.put("clientId1:write", 5L);
+    counts.put("clientId2:read", 0L);
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.STRING, () -> 10250L);
+    Map<String, Double> estimates = database.addRateLimitCounts(counts, 1000L);
+
+    // A quarter of the current window has passed, so three quarters of the
+    // previous window are still covered by the sliding window.
+    assertThat(estimates.size(), is(2));
+    assertThat(estimates.get("clientId1:write"), is(45.0));
+    assertThat(estimates.get("clientId2:read"), is(4.0));
+
+    ArgumentCaptor<List<RedisOp>> opsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(redisClient).executeBatch(opsCaptor.capture(), eq(false));
+    List<RedisOp> ops = opsCaptor.getValue();
+    assertThat(ops.size(), is(6));
+    assertThat(ops.get(0).getType(), is(RedisOp.Type.INCRBY));
+    assertThat(ops.get(0).getKey(), equalTo("auth-rate-limit:{clientId1:write}:10"));
+    assertThat(ops.get(0).getValue(), equalTo("5"));
+    assertThat(ops.get(1).getType(), is(RedisOp.Type.PEXPIRE));
+    assertThat(ops.get(1).getValue(), equalTo("2000"));
+    assertThat(ops.get(2).getType(), is(RedisOp.Type.GET));
+    assertThat(ops.get(2).getKey(), equalTo("auth-rate-limit:{clientId1:write}:9"));
+    assertThat(ops.get(3).getKey(), equalTo("auth-rate-limit:{clientId2:read}:10"));
+  }
+
+  @Test
+  public void succeedsToAddNoRateLimitCounts() {
+    RedisClient redisClient = mock(RedisClient.class);
+
+    RedisDatabase database = new RedisDatabase(redisClient, RedisStorageType.STRING, () -> 10250L);
+    Map<String, Double> estimates = database.addRateLimitCounts(new HashMap<>(), 1000L);
+
+    assertThat(estimates.isEmpty(), is(true));
+    verify(redisClient, times(0)).executeBatch(anyList(), eq(false));
+  }
+
+  ///
+  /// Lifecycle related tests.
+  ///
+
+  @Test
+  public void succeedsToClose() {
+    RedisClient redisClient = mock(RedisClient.class);
+    doNothing().when(redisClient).close();
+
+    RedisDatabase database = new RedisDatabase(redisClient);
+    database.close();
+
+    verify(redisClient).close();
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.test;
+
+import com.ysheng.auth.backend.redis.RedisClientImpl;
+import com.ysheng.auth.backend.redis.RedisInvalidationChannel;
+import com.ysheng.auth.backend.redis.connection.RedisConnection;
+import com.ysheng.auth.backend.redis.connection.RedisSimpleConnection;
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.redis.RedisInvalidationChannel}.
+ */
+public class RedisInvalidationChannelTest {
+
+  @Test
+  public void succeedsToCarryInvalidationsBetweenNodes() throws Throwable {
+    try (RedisTestServer server = new RedisTestServer()) {
+      RedisClientImpl publisherClient = new RedisClientImpl(openSimpleConnection(server));
+      RedisClientImpl subscriberClient = new RedisClientImpl(openSimpleConnection(server));
+      RedisInvalidationChannel publisher = new RedisInvalidationChannel(publisherClient, "channel");
+      RedisInvalidationChannel subscriber = new RedisInvalidationChannel(subscriberClient, "channel");
+
+      BlockingQueue<String> keys = new LinkedBlockingQueue<>();
+      CountDownLatch subscribed = new CountDownLatch(1);
+      subscriber.subscribe(keys::add, subscribed::countDown);
+      assertThat(subscribed.await(10, TimeUnit.SECONDS), is(true));
+
+      publisher.publish("clientId1");
+      publisher.publish("clientId2");
+
+      assertThat(keys.poll(10, TimeUnit.SECONDS), equalTo("clientId1"));
+      assertThat(keys.poll(10, TimeUnit.SECONDS), equalTo("clientId2"));
+
+      subscriber.close();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (server.getSubscriberCount("channel") > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(server.getSubscriberCount("channel"), equalTo(0));
+
+      publisherClient.close();
+      subscriberClient.close();
+    }
+  }
+
+  private static RedisConnection openSimpleConnection(RedisTestServer server) {
+    RedisConfiguration configuration = new RedisConfiguration();
+    configuration.setMasterAddress(server.getAddress());
+
+    RedisConnection connection = new RedisSimpleConnection(configuration);
+    connection.open();
+
+    return connection;
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.test;
+
+import com.ysheng.auth.backend.redis.RedisClientImpl;
+import com.ysheng.auth.backend.redis.RedisDatabase;
+import com.ysheng.auth.backend.redis.RedisScript;
+import com.ysheng.auth.backend.redis.RedisStorageType;
+import com.ysheng.auth.backend.redis.connection.RedisSimpleConnection;
+import com.ysheng.auth.model.api.ClientType;
+import com.ysheng.auth.model.api.authcode.AccessToken;
+import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
+import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.redis.RedisScript} and the scripts
+ * that {@link com.ysheng.auth.backend.redis.RedisDatabase} runs.
+ */
+public class RedisScriptTest {
+
+  private RedisTestServer server;
+
+  private RedisSimpleConnection connection;
+
+  @BeforeMethod
+  public void setUp() throws Throwable {
+    server = new RedisTestServer();
+
+    RedisConfiguration configuration = new RedisConfiguration();
+    configuration.setMasterAddress(server.getAddress());
+    configuration.setBlockWhenExhausted(true);
+
+    connection = new RedisSimpleConnection(configuration);
+    connection.open();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Throwable {
+    connection.close();
+    server.close();
+  }
+
+  @Test
+  public void succeedsToComputeSha() {
+    RedisScript script = new RedisScript("return 1");
+
+    assertThat(script.getSha(), equalTo("e0e1f9fabfc9d4800c877a703b823ac0578ff8db"));
+  }
+
+  @Test
+  public void failsToLoadNonExistResource() {
+    try {
+      RedisScript.fromResource("script/non-exist.lua");
+      fail("Loading script should fail with non-exist resource");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Redis script not found: script/non-exist.lua"));
+    }
+  }
+
+  @Test
+  public void succeedsToEvalScriptOnceLoaded() {
+    RedisClientImpl redisClient = new RedisClientImpl(connection);
+    redisClient.set("key", "value");
+    RedisScript script = new RedisScript("return redis.call('GET', KEYS[1])");
+
+    // The first call finds no script on the server and loads it. The later
+    // calls reuse the loaded script.
+    for (int i = 0; i < 3; ++i) {
+      Object reply = redisClient.evalScript(script, Collections.singletonList("key"), Collections.emptyList());
+      assertThat(reply, equalTo("value"));
+    }
+
+    assertThat(server.getScriptCount(), is(1));
+  }
+
+  @Test
+  public void succeedsToRedeemAuthorizationTicket() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeAuthorizationTicket(createAuthorizationTicket());
+
+    boolean redeemed = database.redeemAuthorizationTicket("clientId", "code", createAccessToken("accessToken"));
+
+    assertThat(redeemed, is(true));
+    assertThat(database.findAuthorizationTicketByCodeAndClientId("code", "clientId"), nullValue());
+    assertThat(database.findAccessTokenByClientIdAndToken("clientId", "accessToken"), notNullValue());
+    assertThat(server.getSet("auth-authorization-ticket-index:{clientId}"), empty());
+    assertThat(server.getSet("auth-access-token-index:{clientId}"),
+        contains("auth-access-token:{clientId}:accessToken"));
+  }
+
+  @Test
+  public void failsToRedeemNonExistAuthorizationTicket() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+
+    boolean redeemed = database.redeemAuthorizationTicket("clientId", "code", createAccessToken("accessToken"));
+
+    assertThat(redeemed, is(false));
+    assertThat(database.findAccessTokenByClientIdAndToken("clientId", "accessToken"), nullValue());
+    assertThat(server.getSet("auth-access-token-index:{clientId}"), empty());
+  }
+
+  @Test
+  public void succeedsToRedeemAuthorizationTicketOnceFromConcurrentThreads() throws Throwable {
+    final int threadCount = 16;
+
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeAuthorizationTicket(createAuthorizationTicket());
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    CountDownLatch start = new CountDownLatch(1);
+
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; ++i) {
+        final String accessToken = "accessToken" + i;
+        futures.add(executor.submit(() -> {
+          start.await();
+          return database.redeemAuthorizationTicket("clientId", "code", createAccessToken(accessToken));
+        }));
+      }
+
+      start.countDown();
+
+      int redeemedCount = 0;
+      for (Future<Boolean> future : futures) {
+        if (future.get(30, TimeUnit.SECONDS)) {
+          ++redeemedCount;
+        }
+      }
+
+      assertThat(redeemedCount, is(1));
+      assertThat(server.getSet("auth-access-token-index:{clientId}").size(), is(1));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void succeedsToExpireAuthorizationTicket() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    AuthorizationTicket authorizationTicket = createAuthorizationTicket();
+    authorizationTicket.setExpiresIn(600L);
+    database.storeAuthorizationTicket(authorizationTicket);
+
+    assertThat(server.getTtl("auth-authorization-ticket:{clientId}:code"), is(600L));
+    assertThat(server.getTtl("auth-authorization-ticket-index:{clientId}"), is(600L));
+
+    server.advanceTime(600L);
+
+    assertThat(database.findAuthorizationTicketByCodeAndClientId("code", "clientId"), nullValue());
+    assertThat(database.listAuthorizationTickets("clientId"), empty());
+    assertThat(server.getTtl("auth-authorization-ticket-index:{clientId}"), is(-2L));
+  }
+
+  @Test
+  public void succeedsToKeepIndexAliveForLongestLivingMember() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeAccessToken(createAccessToken("accessToken1", 100L));
+    database.storeAccessToken(createAccessToken("accessToken2", 300L));
+    database.storeAccessToken(createAccessToken("accessToken3", 50L));
+
+    assertThat(server.getTtl("auth-access-token-index:{clientId}"), is(300L));
+
+    server.advanceTime(100L);
+
+    // The expired members are removed from the index set as they are found.
+    assertThat(database.listAccessTokens("clientId").size(), is(1));
+    assertThat(server.getSet("auth-access-token-index:{clientId}"),
+        contains("auth-access-token:{clientId}:accessToken2"));
+  }
+
+  @Test
+  public void succeedsToPruneExpiredMembersOnStore() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeAccessToken(createAccessToken("accessToken1", 100L));
+    database.storeAccessToken(createAccessToken("accessToken2", 100L));
+    database.storeAccessToken(createAccessToken("accessToken3", 300L));
+
+    server.advanceTime(100L);
+
+    // The index set samples more members than it has, so every expired member
+    // is removed without the tokens being listed.
+    database.storeAccessToken(createAccessToken("accessToken4", 300L));
+    assertThat(server.getSet("auth-access-token-index:{clientId}"), containsInAnyOrder(
+        "auth-access-token:{clientId}:accessToken3",
+        "auth-access-token:{clientId}:accessToken4"));
+  }
+
+  @Test
+  public void succeedsToPruneExpiredMembersOnBatchStore() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeImplictAccessToken(createImplicitAccessToken("accessToken1", 100L));
+    database.storeImplictAccessToken(createImplicitAccessToken("accessToken2", 300L));
+
+    server.advanceTime(100L);
+
+    database.storeImplicitAccessTokens(Collections.singletonList(createImplicitAccessToken("accessToken3", 300L)));
+    assertThat(server.getSet("auth-implicit-access-token-index:{clientId}"), containsInAnyOrder(
+        "auth-implicit-access-token:{clientId}:accessToken2",
+        "auth-implicit-access-token:{clientId}:accessToken3"));
+  }
+
+  @Test
+  public void succeedsToPersistIndexForMemberThatDoesNotExpire() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeAccessToken(createAccessToken("accessToken1", 100L));
+    database.storeAccessToken(createAccessToken("accessToken2", null));
+
+    assertThat(server.getTtl("auth-access-token:{clientId}:accessToken2"), is(-1L));
+    assertThat(server.getTtl("auth-access-token-index:{clientId}"), is(-1L));
+  }
+
+  @Test
+  public void succeedsToStoreAndRemoveImplicitAccessTokensInBatch() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeImplictAccessToken(createImplicitAccessToken("accessToken1", 500L));
+    database.storeImplicitAccessTokens(Arrays.asList(
+        createImplicitAccessToken("accessToken2", 100L),
+        createImplicitAccessToken("accessToken3", 300L)));
+
+    assertThat(server.getTtl("auth-implicit-access-token:{clientId}:accessToken2"), is(100L));
+    assertThat(server.getTtl("auth-implicit-access-token:{clientId}:accessToken3"), is(300L));
+    // The index set is not shortened by a batch of shorter living members.
+    assertThat(server.getTtl("auth-implicit-access-token-index:{clientId}"), is(500L));
+    assertThat(database.listImplicitAccessTokens("clientId").size(), is(3));
+
+    assertThat(
+        database.removeImplicitAccessTokens("clientId", Arrays.asList("accessToken1", "accessToken3", "unknown")),
+        contains("accessToken1", "accessToken3"));
+
+    assertThat(database.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken1"), nullValue());
+    assertThat(database.findImplicitAccessTokenByClientIdAndToken("clientId", "accessToken2"), notNullValue());
+    assertThat(server.getSet("auth-implicit-access-token-index:{clientId}"),
+        contains("auth-implicit-access-token:{clientId}:accessToken2"));
+  }
+
+  @Test
+  public void succeedsToStoreBatchThatExtendsIndex() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeImplicitAccessTokens(Collections.singletonList(createImplicitAccessToken("accessToken1", 100L)));
+
+    assertThat(server.getTtl("auth-implicit-access-token-index:{clientId}"), is(100L));
+
+    database.storeImplicitAccessTokens(Arrays.asList(
+        createImplicitAccessToken("accessToken2", 200L),
+        createImplicitAccessToken("accessToken3", null)));
+
+    assertThat(server.getTtl("auth-implicit-access-token:{clientId}:accessToken3"), is(-1L));
+    assertThat(server.getTtl("auth-implicit-access-token-index:{clientId}"), is(-1L));
+  }
+
+  @Test
+  public void succeedsToRedeemAuthorizationTicketForAccessTokenThatExpires() {
+    RedisDatabase database = new RedisDatabase(new RedisClientImpl(connection));
+    database.storeAuthorizationTicket(createAuthorizationTicket());
+
+    boolean redeemed = database.redeemAuthorizationTicket("clientId", "code", createAccessToken("accessToken", 3600L));
+
+    assertThat(redeemed, is(true));
+    assertThat(server.getTtl("auth-access-token:{clientId}:accessToken"), is(3600L));
+    assertThat(server.getTtl("auth-access-token-index:{clientId}"), is(3600L));
+
+    server.advanceTime(3600L);
+
+    assertThat(database.findAccessTokenByClientIdAndToken("clientId", "accessToken"), nullValue());
+  }
+
+  @Test
+  public void succeedsToMigrateClientsStoredAsStringsToHashes() {
+    RedisDatabase stringDatabase = new RedisDatabase(new RedisClientImpl(connection));
+    stringDatabase.storeClient(createClient("clientId1", "clientSecret1"));
+    stringDatabase.storeClient(createClient("clientId2", "clientSecret2"));
+
+    RedisDatabase hashDatabase = new RedisDatabase(new RedisClientImpl(connection), RedisStorageType.HASH);
+
+    assertThat(hashDatabase.findClientCredentialsById("clientId1").getSecret(), equalTo("clientSecret1"));
+    assertThat(server.getString("auth-client:{clientId1}"), nullValue());
+    assertThat(server.getHash("auth-client:{clientId1}"), hasEntry("secret", "clientSecret1"));
+
+    // The client that is already migrated is kept, and the other is migrated.
+    List<Client> clients = hashDatabase.listClients();
+    assertThat(clients.size(), is(2));
+    assertThat(server.getHash("auth-client:{clientId2}"), hasEntry("secret", "clientSecret2"));
+
+    stringDatabase.storeClient(createClient("clientId3", "clientSecret3"));
+    assertThat(hashDatabase.updateClientSecret("clientId3", "clientSecret3", "newSecret"), is(true));
+    assertThat(hashDatabase.findClientById("clientId3").getSecret(), equalTo("newSecret"));
+
+    // A client that is stored as a hash replaces one that is stored as a string.
+    stringDatabase.storeClient(createClient("clientId4", "clientSecret4"));
+    hashDatabase.storeClient(createClient("clientId4", "newSecret"));
+    assertThat(server.getHash("auth-client:{clientId4}"), hasEntry("secret", "newSecret"));
+  }
+
+  private static Client createClient(String clientId, String secret) {
+    Client client = new Client();
+    client.setId(clientId);
+    client.setType(ClientType.CONFIDENTIAL);
+    client.setSecret(secret);
+    return client;
+  }
+
+  private static AuthorizationTicket createAuthorizationTicket() {
+    AuthorizationTicket authorizationTicket = new AuthorizationTicket();
+    authorizationTicket.setClientId("clientId");
+    authorizationTicket.setCode("code");
+    authorizationTicket.setRedirectUri("http://1.2.3.4");
+    return authorizationTicket;
+  }
+
+  private static AccessToken createAccessToken(String accessToken) {
+    return createAccessToken(accessToken, null);
+  }
+
+  private static AccessToken createAccessToken(String accessToken, Long expiresIn) {
+    AccessToken token = new AccessToken();
+    token.setClientId("clientId");
+    token.setAccessToken(accessToken);
+    token.setExpiresIn(expiresIn);
+    return token;
+  }
+
+  private static com.ysheng.auth.model.api.implicit.AccessToken createImplicitAccessToken(
+      String accessToken,
+      Long expiresIn) {
+    com.ysheng.auth.model.api.implicit.AccessToken token = new com.ysheng.auth.model.api.implicit.AccessToken();
+    token.setClientId("clientId");
+    token.setAccessToken(accessToken);
+    token.setExpiresIn(expiresIn);
+    return token;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.test;
+
+import com.ysheng.auth.backend.redis.RedisClientImpl;
+import com.ysheng.auth.backend.redis.connection.RedisSimpleConnection;
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.redis.connection.RedisSimpleConnection}.
+ */
+public class RedisSimpleConnectionTest {
+
+  private RedisTestServer server;
+
+  private RedisSimpleConnection connection;
+
+  @BeforeMethod
+  public void setUp() throws Throwable {
+    server = new RedisTestServer();
+
+    RedisConfiguration configuration = new RedisConfiguration();
+    configuration.setConnectionType("simple");
+    configuration.setMasterAddress(server.getAddress());
+    configuration.setMaxConnections(4);
+    configuration.setBlockWhenExhausted(true);
+
+    connection = new RedisSimpleConnection(configuration);
+    connection.open();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Throwable {
+    connection.close();
+    server.close();
+  }
+
+  @Test
+  public void failsToGetResourceBeforeOpen() {
+    RedisSimpleConnection closedConnection = new RedisSimpleConnection(new RedisConfiguration());
+
+    try {
+      closedConnection.getResource();
+      fail("Redis simple connection should fail to get resource before open");
+    } catch (IllegalStateException ex) {
+      assertThat(ex.getMessage(), equalTo("Redis connection is not open"));
+    }
+  }
+
+  @Test
+  public void succeedsToSetAndGet() {
+    RedisClientImpl redisClient = new RedisClientImpl(connection);
+
+    redisClient.set("key", "value");
+    assertThat(redisClient.get("key"), equalTo("value"));
+
+    redisClient.remove("key");
+    assertThat(redisClient.get("key"), is(nullValue()));
+  }
+
+  @Test
+  public void succeedsToSetAndGetFromConcurrentThreads() throws Throwable {
+    final int threadCount = 32;
+    final int commandsPerThread = 200;
+
+    RedisClientImpl redisClient = new RedisClientImpl(connection);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    CountDownLatch start = new CountDownLatch(1);
+
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; ++i) {
+        final int thread = i;
+        futures.add(executor.submit(() -> {
+          start.await();
+
+          // Every thread reads back what it has just written. A resource that
+          // is shared between threads interleaves the commands and replies on
+          // one socket, and a thread reads a value that belongs to another.
+          int mismatches = 0;
+          for (int j = 0; j < commandsPerThread; ++j) {
+            String key = "key-" + thread + "-" + j;
+            String value = "value-" + thread + "-" + j;
+            redisClient.set(key, value);
+            if (!value.equals(redisClient.get(key))) {
+              ++mismatches;
+            }
+          }
+          return mismatches;
+        }));
+      }
+
+      start.countDown();
+
+      for (Future<Integer> future : futures) {
+        assertThat(future.get(60, TimeUnit.SECONDS), equalTo(0));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
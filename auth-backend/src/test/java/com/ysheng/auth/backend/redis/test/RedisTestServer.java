@@ -0,0 +1,670 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.redis.test;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Defines an in-process server that speaks enough of the Redis protocol for
+ * connection tests, i.e. PING, GET, MGET, SET (with EX), DEL, EXISTS, EXPIRE,
+ * PERSIST, TTL, SADD, SREM, SMEMBERS, SRANDMEMBER (with a count), MULTI, EXEC,
+ * DISCARD, SCRIPT LOAD, EVALSHA, PUBLISH, SUBSCRIBE, UNSUBSCRIBE and QUIT.
+ * Commands and scripts are executed one at a time, as they are in Redis.
+ * Scripts are run with LuaJ. Keys expire against a virtual clock that only
+ * moves forward by advanceTime, so that expiry can be tested without waiting.
+ */
+public class RedisTestServer implements AutoCloseable {
+
+  // The socket that accepts client connections.
+  private final ServerSocket serverSocket;
+
+  // The threads that serve the client connections.
+  private final ExecutorService executor;
+
+  // The stored string entities.
+  private final Map<String, String> strings;
+
+  // The stored set entities.
+  private final Map<String, Set<String>> sets;
+
+  // The stored hash entities.
+  private final Map<String, Map<String, String>> hashes;
+
+  // The loaded scripts, by their SHA1 digests.
+  private final Map<String, String> scripts;
+
+  // The expiry time in seconds on the virtual clock, by the keys that have one.
+  private final Map<String, Long> expiries;
+
+  // The outputs of the subscribed connections, by the channels.
+  private final Map<String, Set<OutputStream>> subscribers;
+
+  // The virtual clock in seconds.
+  private long now;
+
+  /**
+   * Constructs a RedisTestServer object and starts accepting connections on
+   * an ephemeral port of the loopback address.
+   *
+   * @throws IOException The error that contains detail information.
+   */
+  public RedisTestServer() throws IOException {
+    this.serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+    this.executor = Executors.newCachedThreadPool();
+    this.strings = new HashMap<>();
+    this.sets = new HashMap<>();
+    this.hashes = new HashMap<>();
+    this.scripts = new HashMap<>();
+    this.expiries = new HashMap<>();
+    this.subscribers = new HashMap<>();
+
+    executor.submit(this::accept);
+  }
+
+  /**
+   * Gets the address of the server in "host:port" form.
+   *
+   * @return The address of the server.
+   */
+  public String getAddress() {
+    return serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+  }
+
+  /**
+   * Gets a stored string entity.
+   *
+   * @param key The key of the entity.
+   * @return The value of the entity, or null if it does not exist.
+   */
+  public synchronized String getString(String key) {
+    expireIfNeeded(key);
+    return strings.get(key);
+  }
+
+  /**
+   * Gets the members of a stored set entity.
+   *
+   * @param key The key of the entity.
+   * @return The members of the set, which is empty if it does not exist.
+   */
+  public synchronized Set<String> getSet(String key) {
+    expireIfNeeded(key);
+    return new HashSet<>(sets.getOrDefault(key, Collections.emptySet()));
+  }
+
+  /**
+   * Gets the fields of a stored hash entity.
+   *
+   * @param key The key of the entity.
+   * @return The fields of the hash, or null if it does not exist.
+   */
+  public synchronized Map<String, String> getHash(String key) {
+    expireIfNeeded(key);
+    Map<String, String> fields = hashes.get(key);
+    return fields == null ? null : new HashMap<>(fields);
+  }
+
+  /**
+   * Gets the remaining time to live of a stored entity, as the TTL command does.
+   *
+   * @param key The key of the entity.
+   * @return The remaining time to live in seconds, -1 if the entity does not
+   *         expire, or -2 if it does not exist.
+   */
+  public synchronized long getTtl(String key) {
+    return ttl(key);
+  }
+
+  /**
+   * Moves the virtual clock forward, which expires the entities whose time to
+   * live runs out.
+   *
+   * @param seconds The number of seconds to move the clock by.
+   */
+  public synchronized void advanceTime(long seconds) {
+    now += seconds;
+  }
+
+  /**
+   * Gets the number of connections that subscribe to a channel.
+   *
+   * @param channel The channel.
+   * @return The number of connections that subscribe to the channel.
+   */
+  public synchronized int getSubscriberCount(String channel) {
+    return subscribers.getOrDefault(channel, Collections.emptySet()).size();
+  }
+
+  /**
+   * Gets the number of loaded scripts.
+   *
+   * @return The number of loaded scripts.
+   */
+  public synchronized int getScriptCount() {
+    return scripts.size();
+  }
+
+  /**
+   * Stops accepting connections and closes the served connections.
+   *
+   * @throws IOException The error that contains detail information.
+   */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    executor.shutdownNow();
+  }
+
+  ///
+  /// Connection handling.
+  ///
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        executor.submit(() -> serve(socket));
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    // The channels that the connection subscribes to.
+    Set<String> channels = new HashSet<>();
+
+    OutputStream output = null;
+    try (Socket s = socket) {
+      InputStream input = new BufferedInputStream(s.getInputStream());
+      output = new BufferedOutputStream(s.getOutputStream());
+
+      // The commands queued by MULTI, or null when no transaction is open.
+      List<List<String>> transaction = null;
+
+      List<String> command;
+      while ((command = readCommand(input)) != null) {
+        String name = command.get(0).toUpperCase();
+        Object reply;
+        if (name.equals("QUIT")) {
+          writeAndFlush(output, StatusReply.OK);
+          return;
+        } else if (name.equals("SUBSCRIBE")) {
+          for (String channel : command.subList(1, command.size())) {
+            channels.add(channel);
+            subscribe(channel, output);
+            writeAndFlush(output, Arrays.asList("subscribe", channel, (long) channels.size()));
+          }
+          continue;
+        } else if (name.equals("UNSUBSCRIBE")) {
+          List<String> unsubscribed = command.size() > 1
+              ? command.subList(1, command.size())
+              : new ArrayList<>(channels);
+          if (unsubscribed.isEmpty()) {
+            writeAndFlush(output, Arrays.asList("unsubscribe", null, 0L));
+          }
+          for (String channel : unsubscribed) {
+            channels.remove(channel);
+            unsubscribe(channel, output);
+            writeAndFlush(output, Arrays.asList("unsubscribe", channel, (long) channels.size()));
+          }
+          continue;
+        } else if (name.equals("PUBLISH")) {
+          reply = publish(command.get(1), command.get(2));
+        } else if (name.equals("MULTI")) {
+          transaction = new ArrayList<>();
+          reply = StatusReply.OK;
+        } else if (name.equals("DISCARD")) {
+          transaction = null;
+          reply = StatusReply.OK;
+        } else if (name.equals("EXEC")) {
+          reply = transaction == null ? new ErrorReply("ERR EXEC without MULTI") : executeAll(transaction);
+          transaction = null;
+        } else if (transaction != null) {
+          transaction.add(command);
+          reply = new StatusReply("QUEUED");
+        } else {
+          reply = executeAll(Collections.singletonList(command)).get(0);
+        }
+        writeAndFlush(output, reply);
+      }
+    } catch (IOException e) {
+      // The client has gone away.
+    } finally {
+      for (String channel : channels) {
+        unsubscribe(channel, output);
+      }
+    }
+  }
+
+  ///
+  /// Publish and subscribe.
+  ///
+
+  private synchronized void subscribe(String channel, OutputStream output) {
+    subscribers.computeIfAbsent(channel, k -> new HashSet<>()).add(output);
+  }
+
+  private synchronized void unsubscribe(String channel, OutputStream output) {
+    Set<OutputStream> outputs = subscribers.get(channel);
+    if (outputs != null && outputs.remove(output) && outputs.isEmpty()) {
+      subscribers.remove(channel);
+    }
+  }
+
+  private long publish(String channel, String message) {
+    List<OutputStream> outputs;
+    synchronized (this) {
+      outputs = new ArrayList<>(subscribers.getOrDefault(channel, Collections.emptySet()));
+    }
+
+    for (OutputStream output : outputs) {
+      try {
+        writeAndFlush(output, Arrays.asList("message", channel, message));
+      } catch (IOException e) {
+        // The subscriber has gone away.
+      }
+    }
+
+    return outputs.size();
+  }
+
+  ///
+  /// Command execution.
+  ///
+
+  private synchronized List<Object> executeAll(List<List<String>> commands) {
+    List<Object> replies = new ArrayList<>();
+    commands.forEach(command -> replies.add(execute(command)));
+    return replies;
+  }
+
+  private Object execute(List<String> command) {
+    String name = command.get(0).toUpperCase();
+    if (command.size() > 1 && !name.equals("SCRIPT") && !name.equals("EVALSHA")) {
+      expireIfNeeded(command.get(1));
+    }
+
+    switch (name) {
+      case "PING":
+        return new StatusReply("PONG");
+      case "GET":
+        if (hashes.containsKey(command.get(1)) || sets.containsKey(command.get(1))) {
+          return ErrorReply.WRONG_TYPE;
+        }
+        return strings.get(command.get(1));
+      case "MGET":
+        List<Object> values = new ArrayList<>();
+        command.subList(1, command.size()).forEach(key -> {
+          expireIfNeeded(key);
+          values.add(strings.get(key));
+        });
+        return values;
+      case "SET":
+        strings.put(command.get(1), command.get(2));
+        expiries.remove(command.get(1));
+        if (command.size() > 4 && command.get(3).equalsIgnoreCase("EX")) {
+          expiries.put(command.get(1), now + Long.parseLong(command.get(4)));
+        }
+        return StatusReply.OK;
+      case "DEL":
+        return remove(command.get(1)) ? 1L : 0L;
+      case "EXISTS":
+        return exists(command.get(1)) ? 1L : 0L;
+      case "TYPE":
+        return new StatusReply(type(command.get(1)));
+      case "EXPIRE":
+        if (!exists(command.get(1))) {
+          return 0L;
+        }
+        expiries.put(command.get(1), now + Long.parseLong(command.get(2)));
+        return 1L;
+      case "PERSIST":
+        return expiries.remove(command.get(1)) != null ? 1L : 0L;
+      case "TTL":
+        return ttl(command.get(1));
+      case "SADD":
+        return sets.computeIfAbsent(command.get(1), k -> new HashSet<>()).add(command.get(2)) ? 1L : 0L;
+      case "SREM":
+        Set<String> members = sets.get(command.get(1));
+        if (members == null || !members.remove(command.get(2))) {
+          return 0L;
+        }
+        if (members.isEmpty()) {
+          remove(command.get(1));
+        }
+        return 1L;
+      case "SMEMBERS":
+        return new ArrayList<Object>(sets.getOrDefault(command.get(1), Collections.emptySet()));
+      case "SRANDMEMBER":
+        List<Object> sample = new ArrayList<>(sets.getOrDefault(command.get(1), Collections.emptySet()));
+        Collections.shuffle(sample);
+        return sample.subList(0, Math.min(Integer.parseInt(command.get(2)), sample.size()));
+      case "HSET":
+      case "HMSET":
+        if (strings.containsKey(command.get(1)) || sets.containsKey(command.get(1))) {
+          return ErrorReply.WRONG_TYPE;
+        }
+        Map<String, String> fields = hashes.computeIfAbsent(command.get(1), k -> new HashMap<>());
+        long added = 0;
+        for (int i = 2; i + 1 < command.size(); i += 2) {
+          added += fields.put(command.get(i), command.get(i + 1)) == null ? 1 : 0;
+        }
+        return name.equals("HSET") ? (Object) added : StatusReply.OK;
+      case "HGET":
+      case "HMGET":
+      case "HGETALL":
+        if (strings.containsKey(command.get(1)) || sets.containsKey(command.get(1))) {
+          return ErrorReply.WRONG_TYPE;
+        }
+        Map<String, String> hash = hashes.getOrDefault(command.get(1), Collections.emptyMap());
+        if (name.equals("HGET")) {
+          return hash.get(command.get(2));
+        }
+        List<Object> hashReply = new ArrayList<>();
+        if (name.equals("HMGET")) {
+          command.subList(2, command.size()).forEach(field -> hashReply.add(hash.get(field)));
+        } else {
+          hash.forEach((field, value) -> {
+            hashReply.add(field);
+            hashReply.add(value);
+          });
+        }
+        return hashReply;
+      case "SCRIPT":
+        String sha = sha1Hex(command.get(2));
+        scripts.put(sha, command.get(2));
+        return sha;
+      case "EVALSHA":
+        String script = scripts.get(command.get(1).toLowerCase());
+        if (script == null) {
+          return new ErrorReply("NOSCRIPT No matching script. Please use EVAL.");
+        }
+        int keyCount = Integer.parseInt(command.get(2));
+        return eval(
+            script,
+            command.subList(3, 3 + keyCount),
+            command.subList(3 + keyCount, command.size()));
+      default:
+        return new ErrorReply("ERR unknown command '" + name + "'");
+    }
+  }
+
+  private boolean remove(String key) {
+    expiries.remove(key);
+    return strings.remove(key) != null | sets.remove(key) != null | hashes.remove(key) != null;
+  }
+
+  private boolean exists(String key) {
+    return strings.containsKey(key) || sets.containsKey(key) || hashes.containsKey(key);
+  }
+
+  private String type(String key) {
+    if (strings.containsKey(key)) {
+      return "string";
+    } else if (sets.containsKey(key)) {
+      return "set";
+    } else if (hashes.containsKey(key)) {
+      return "hash";
+    }
+
+    return "none";
+  }
+
+  private void expireIfNeeded(String key) {
+    Long expiry = expiries.get(key);
+    if (expiry != null && expiry <= now) {
+      remove(key);
+    }
+  }
+
+  private long ttl(String key) {
+    expireIfNeeded(key);
+    if (!exists(key)) {
+      return -2L;
+    }
+
+    Long expiry = expiries.get(key);
+    return expiry == null ? -1L : expiry - now;
+  }
+
+  private Object eval(String script, List<String> keys, List<String> args) {
+    Globals globals = JsePlatform.standardGlobals();
+
+    LuaTable redis = new LuaTable();
+    redis.set("call", new VarArgFunction() {
+      @Override
+      public Varargs invoke(Varargs varargs) {
+        List<String> command = new ArrayList<>();
+        for (int i = 1; i <= varargs.narg(); ++i) {
+          command.add(varargs.checkjstring(i));
+        }
+
+        Object reply = execute(command);
+        if (reply instanceof ErrorReply) {
+          throw new LuaError(((ErrorReply) reply).message);
+        }
+
+        return toLua(reply);
+      }
+    });
+
+    redis.set("replicate_commands", new VarArgFunction() {
+      @Override
+      public Varargs invoke(Varargs varargs) {
+        return LuaValue.TRUE;
+      }
+    });
+
+    globals.set("redis", redis);
+    globals.set("KEYS", toLua(new ArrayList<Object>(keys)));
+    globals.set("ARGV", toLua(new ArrayList<Object>(args)));
+
+    try {
+      return fromLua(globals.load(script).call());
+    } catch (LuaError e) {
+      return new ErrorReply("ERR Error running script: " + e.getMessage());
+    }
+  }
+
+  ///
+  /// Conversion between replies and Lua values, as Redis does it.
+  ///
+
+  private static LuaValue toLua(Object reply) {
+    if (reply == null) {
+      return LuaValue.FALSE;
+    } else if (reply instanceof Long) {
+      return LuaValue.valueOf((Long) reply);
+    } else if (reply instanceof String) {
+      return LuaValue.valueOf((String) reply);
+    } else if (reply instanceof StatusReply) {
+      LuaTable table = new LuaTable();
+      table.set("ok", ((StatusReply) reply).message);
+      return table;
+    }
+
+    LuaTable table = new LuaTable();
+    List<?> list = (List<?>) reply;
+    for (int i = 0; i < list.size(); ++i) {
+      table.set(i + 1, toLua(list.get(i)));
+    }
+    return table;
+  }
+
+  private static Object fromLua(LuaValue value) {
+    if (value.isnil() || value == LuaValue.FALSE) {
+      return null;
+    } else if (value == LuaValue.TRUE) {
+      return 1L;
+    } else if (value.type() == LuaValue.TNUMBER) {
+      return value.tolong();
+    } else if (value.type() == LuaValue.TSTRING) {
+      return value.tojstring();
+    } else if (!value.get("ok").isnil()) {
+      return new StatusReply(value.get("ok").tojstring());
+    } else if (!value.get("err").isnil()) {
+      return new ErrorReply(value.get("err").tojstring());
+    }
+
+    List<Object> list = new ArrayList<>();
+    for (int i = 1; !value.get(i).isnil(); ++i) {
+      list.add(fromLua(value.get(i)));
+    }
+    return list;
+  }
+
+  ///
+  /// Protocol encoding.
+  ///
+
+  private static List<String> readCommand(InputStream input) throws IOException {
+    String header = readLine(input);
+    if (header == null) {
+      return null;
+    }
+
+    int argumentCount = Integer.parseInt(header.substring(1));
+    List<String> command = new ArrayList<>(argumentCount);
+    for (int i = 0; i < argumentCount; ++i) {
+      int length = Integer.parseInt(readLine(input).substring(1));
+      byte[] argument = new byte[length];
+      int offset = 0;
+      while (offset < length) {
+        int read = input.read(argument, offset, length - offset);
+        if (read < 0) {
+          throw new IOException("Unexpected end of stream");
+        }
+        offset += read;
+      }
+      readLine(input);
+      command.add(new String(argument, StandardCharsets.UTF_8));
+    }
+
+    return command;
+  }
+
+  private static String readLine(InputStream input) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = input.read()) != -1) {
+      if (b == '\r') {
+        input.read();
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+      }
+      line.write(b);
+    }
+
+    return null;
+  }
+
+  private static void writeAndFlush(OutputStream output, Object reply) throws IOException {
+    // A subscribed connection is also written to by the connections that publish.
+    synchronized (output) {
+      output.write(encode(reply).getBytes(StandardCharsets.UTF_8));
+      output.flush();
+    }
+  }
+
+  private static String encode(Object reply) {
+    if (reply == null) {
+      return "$-1\r\n";
+    } else if (reply instanceof Long) {
+      return ":" + reply + "\r\n";
+    } else if (reply instanceof String) {
+      String value = (String) reply;
+      return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    } else if (reply instanceof StatusReply) {
+      return "+" + ((StatusReply) reply).message + "\r\n";
+    } else if (reply instanceof ErrorReply) {
+      return "-" + ((ErrorReply) reply).message + "\r\n";
+    }
+
+    List<?> list = (List<?>) reply;
+    StringBuilder encoded = new StringBuilder("*" + list.size() + "\r\n");
+    list.forEach(item -> encoded.append(encode(item)));
+    return encoded.toString();
+  }
+
+  private static String sha1Hex(String body) {
+    try {
+      StringBuilder hex = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("SHA-1").digest(body.getBytes(StandardCharsets.UTF_8))) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Defines a status reply.
+   */
+  private static class StatusReply {
+
+    private static final StatusReply OK = new StatusReply("OK");
+
+    private final String message;
+
+    private StatusReply(String message) {
+      this.message = message;
+    }
+  }
+
+  /**
+   * Defines an error reply.
+   */
+  private static class ErrorReply {
+
+    private static final ErrorReply WRONG_TYPE = new ErrorReply(
+        "WRONGTYPE Operation against a key holding the wrong kind of value");
+
+    private final String message;
+
+    private ErrorReply(String message) {
+      this.message = message;
+    }
+  }
+}
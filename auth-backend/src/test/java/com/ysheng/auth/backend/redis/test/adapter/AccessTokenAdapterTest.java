@@ -14,6 +14,8 @@
 package com.ysheng.auth.backend.redis.test.adapter;
 
 import com.ysheng.auth.backend.redis.adapter.AccessTokenAdapter;
+import com.ysheng.auth.backend.redis.adapter.CompactEntityCodec;
+import com.ysheng.auth.backend.redis.adapter.JsonEntityCodec;
 import com.ysheng.auth.model.api.AccessTokenType;
 import com.ysheng.auth.model.api.authcode.AccessToken;
 import org.testng.annotations.DataProvider;
@@ -21,7 +23,9 @@ import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * Tests for {@link com.ysheng.auth.backend.redis.adapter.AccessTokenAdapter}.
@@ -41,12 +45,19 @@ public class AccessTokenAdapterTest {
   @DataProvider(name = "AccessTokenKeyMetadata")
   public Object[][] provideAccessTokenKeyMetadata() {
     return new Object[][] {
-        { "clientId", "accessToken", "auth-access-token:clientId:accessToken" },
-        { "clientId", null, "auth-access-token:clientId:*" },
-        { null, "accessToken", "auth-access-token:*:accessToken" }
+        { "clientId", "accessToken", "auth-access-token:{clientId}:accessToken" },
+        { "clientId", null, "auth-access-token:{clientId}:*" },
+        { null, "accessToken", "auth-access-token:{*}:accessToken" }
     };
   }
 
+  @Test
+  public void succeedsToGetIndexKey() {
+    String indexKey = AccessTokenAdapter.getIndexKey("clientId");
+
+    assertThat(indexKey, equalTo("auth-access-token-index:{clientId}"));
+  }
+
   @Test
   public void succeedsToConvertToHash() {
     AccessToken accessToken = new AccessToken();
@@ -59,13 +70,15 @@ public class AccessTokenAdapterTest {
 
     String hash = AccessTokenAdapter.toHash(accessToken);
 
-    assertThat(hash, equalTo(
-        "{\"clientId\":\"clientId\",\"accessToken\":\"accessToken\",\"tokenType\":\"BEARER\",\"expiresIn\":1000," +
-            "\"refreshToken\":\"refreshToken\",\"scope\":\"scope\"}"));
+    JsonEntityCodec<AccessToken> jsonCodec = new JsonEntityCodec<>(AccessToken.class);
+
+    assertThat(hash.charAt(0), equalTo(CompactEntityCodec.VERSION_1));
+    assertThat(hash.length(), lessThan(jsonCodec.encode(accessToken).length()));
+    assertThat(jsonCodec.encode(AccessTokenAdapter.fromHash(hash)), equalTo(jsonCodec.encode(accessToken)));
   }
 
   @Test
-  public void succeedsToConvertFromHash() {
+  public void succeedsToConvertFromJsonHash() {
     String hash =
         "{\"clientId\":\"clientId\",\"accessToken\":\"accessToken\",\"tokenType\":\"BEARER\",\"expiresIn\":1000," +
             "\"refreshToken\":\"refreshToken\",\"scope\":\"scope\"}";
@@ -80,4 +93,14 @@ public class AccessTokenAdapterTest {
     assertThat(accessToken.getRefreshToken(), equalTo("refreshToken"));
     assertThat(accessToken.getScope(), equalTo("scope"));
   }
+
+  @Test
+  public void succeedsToConvertFromMalformedHash() {
+    assertThat(AccessTokenAdapter.fromHash(CompactEntityCodec.VERSION_1 + "\u0005ab"), nullValue());
+  }
+
+  @Test
+  public void succeedsToConvertFromNullHash() {
+    assertThat(AccessTokenAdapter.fromHash(null), nullValue());
+  }
 }
@@ -15,11 +15,15 @@ package com.ysheng.auth.backend.redis.test.adapter;
 
 import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
 import com.ysheng.auth.backend.redis.adapter.AuthorizationTicketAdapter;
+import com.ysheng.auth.backend.redis.adapter.CompactEntityCodec;
+import com.ysheng.auth.backend.redis.adapter.JsonEntityCodec;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * Tests for {@link com.ysheng.auth.backend.redis.adapter.AuthorizationTicketAdapter}.
@@ -39,12 +43,19 @@ public class AuthorizationTicketAdapterTest {
   @DataProvider(name = "AuthorizationTicketKeyMetadata")
   public Object[][] provideAuthorizationTicketKeyMetadata() {
     return new Object[][] {
-        { "clientId", "code", "auth-authorization-ticket:clientId:code" },
-        { "clientId", null, "auth-authorization-ticket:clientId:*" },
-        { null, "code", "auth-authorization-ticket:*:code" }
+        { "clientId", "code", "auth-authorization-ticket:{clientId}:code" },
+        { "clientId", null, "auth-authorization-ticket:{clientId}:*" },
+        { null, "code", "auth-authorization-ticket:{*}:code" }
     };
   }
 
+  @Test
+  public void succeedsToGetIndexKey() {
+    String indexKey = AuthorizationTicketAdapter.getIndexKey("clientId");
+
+    assertThat(indexKey, equalTo("auth-authorization-ticket-index:{clientId}"));
+  }
+
   @Test
   public void succeedsToConvertToHash() {
     AuthorizationTicket authorizationTicket = new AuthorizationTicket();
@@ -53,20 +64,22 @@ public class AuthorizationTicketAdapterTest {
     authorizationTicket.setRedirectUri("http://1.2.3.4");
     authorizationTicket.setScope("scope");
     authorizationTicket.setState("state");
+    authorizationTicket.setExpiresIn(600L);
 
     String hash = AuthorizationTicketAdapter.toHash(authorizationTicket);
 
-    assertThat(hash, equalTo(
-        "{\"code\":\"code\",\"clientId\":\"clientId\",\"redirectUri\":\"http://1.2.3.4\"," +
-        "\"scope\":\"scope\",\"state\":\"state\"}"
-    ));
+    JsonEntityCodec<AuthorizationTicket> jsonCodec = new JsonEntityCodec<>(AuthorizationTicket.class);
+
+    assertThat(hash.charAt(0), equalTo(CompactEntityCodec.VERSION_1));
+    assertThat(hash.length(), lessThan(jsonCodec.encode(authorizationTicket).length()));
+    assertThat(jsonCodec.encode(AuthorizationTicketAdapter.fromHash(hash)), equalTo(jsonCodec.encode(authorizationTicket)));
   }
 
   @Test
-  public void succeedsToConvertFromHash() {
+  public void succeedsToConvertFromJsonHash() {
     String hash =
         "{\"code\":\"code\",\"clientId\":\"clientId\",\"redirectUri\":\"http://1.2.3.4\"," +
-            "\"scope\":\"scope\",\"state\":\"state\"}";
+            "\"scope\":\"scope\",\"state\":\"state\",\"expiresIn\":600}";
 
     AuthorizationTicket authorizationTicket = AuthorizationTicketAdapter.fromHash(hash);
     assertThat(authorizationTicket, notNullValue());
@@ -76,5 +89,16 @@ public class AuthorizationTicketAdapterTest {
     assertThat(authorizationTicket.getRedirectUri(), equalTo("http://1.2.3.4"));
     assertThat(authorizationTicket.getScope(), equalTo("scope"));
     assertThat(authorizationTicket.getState(), equalTo("state"));
+    assertThat(authorizationTicket.getExpiresIn(), equalTo(600L));
+  }
+
+  @Test
+  public void succeedsToConvertFromMalformedHash() {
+    assertThat(AuthorizationTicketAdapter.fromHash(CompactEntityCodec.VERSION_1 + "\u0005ab"), nullValue());
+  }
+
+  @Test
+  public void succeedsToConvertFromNullHash() {
+    assertThat(AuthorizationTicketAdapter.fromHash(null), nullValue());
   }
 }
@@ -15,12 +15,20 @@ package com.ysheng.auth.backend.redis.test.adapter;
 
 import com.ysheng.auth.model.api.client.Client;
 import com.ysheng.auth.backend.redis.adapter.ClientAdapter;
+import com.ysheng.auth.backend.redis.adapter.CompactEntityCodec;
+import com.ysheng.auth.backend.redis.adapter.JsonEntityCodec;
 import com.ysheng.auth.model.api.ClientType;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.Arrays;
+import java.util.Map;
 
 /**
  * Tests for {@link com.ysheng.auth.backend.redis.adapter.ClientAdapter}.
@@ -39,11 +47,18 @@ public class ClientAdapterTest {
   @DataProvider(name = "ClientKeyMetadata")
   public Object[][] provideClientKeyMetadata() {
     return new Object[][] {
-        { "clientId", "auth-client:clientId" },
-        { null, "auth-client:*" }
+        { "clientId", "auth-client:{clientId}" },
+        { null, "auth-client:{*}" }
     };
   }
 
+  @Test
+  public void succeedsToGetIndexKey() {
+    String indexKey = ClientAdapter.getIndexKey();
+
+    assertThat(indexKey, equalTo("auth-client-index"));
+  }
+
   @Test
   public void succeedsToConvertToHash() {
     Client client = new Client();
@@ -54,13 +69,15 @@ public class ClientAdapterTest {
 
     String hash = ClientAdapter.toHash(client);
 
-    assertThat(hash, equalTo(
-        "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId\",\"secret\":\"clientSecret\",\"redirectUri\":\"http://1.2.3.4\"}"
-    ));
+    JsonEntityCodec<Client> jsonCodec = new JsonEntityCodec<>(Client.class);
+
+    assertThat(hash.charAt(0), equalTo(CompactEntityCodec.VERSION_1));
+    assertThat(hash.length(), lessThan(jsonCodec.encode(client).length()));
+    assertThat(jsonCodec.encode(ClientAdapter.fromHash(hash)), equalTo(jsonCodec.encode(client)));
   }
 
   @Test
-  public void succeedsToConvertFromHash() {
+  public void succeedsToConvertFromJsonHash() {
     String hash =
         "{\"type\":\"CONFIDENTIAL\",\"id\":\"clientId\",\"secret\":\"clientSecret\"," +
             "\"redirectUri\":\"http://1.2.3.4\"}";
@@ -72,4 +89,43 @@ public class ClientAdapterTest {
     assertThat(client.getType(), equalTo(ClientType.CONFIDENTIAL));
     assertThat(client.getRedirectUri(), equalTo("http://1.2.3.4"));
   }
+
+  @Test
+  public void succeedsToConvertToAndFromFields() {
+    Client client = new Client();
+    client.setId("clientId");
+    client.setType(ClientType.PUBLIC);
+    client.setRedirectUri("http://1.2.3.4");
+
+    Map<String, String> fields = ClientAdapter.toFields(client);
+    assertThat(fields.keySet(), containsInAnyOrder("id", "type", "redirectUri"));
+
+    Client parsed = ClientAdapter.fromFields(fields);
+    assertThat(parsed.getId(), equalTo("clientId"));
+    assertThat(parsed.getType(), equalTo(ClientType.PUBLIC));
+    assertThat(parsed.getSecret(), nullValue());
+    assertThat(parsed.getRedirectUri(), equalTo("http://1.2.3.4"));
+  }
+
+  @Test
+  public void succeedsToConvertFromCredentialFields() {
+    Client client = ClientAdapter.fromFields(
+        ClientAdapter.CREDENTIAL_FIELDS,
+        Arrays.asList("clientId", "CONFIDENTIAL", "clientSecret"));
+
+    assertThat(client.getId(), equalTo("clientId"));
+    assertThat(client.getType(), equalTo(ClientType.CONFIDENTIAL));
+    assertThat(client.getSecret(), equalTo("clientSecret"));
+    assertThat(ClientAdapter.fromFields(ClientAdapter.CREDENTIAL_FIELDS, Arrays.asList(null, null, null)), nullValue());
+  }
+
+  @Test
+  public void succeedsToConvertFromMalformedHash() {
+    assertThat(ClientAdapter.fromHash(CompactEntityCodec.VERSION_1 + "\u0005ab"), nullValue());
+  }
+
+  @Test
+  public void succeedsToConvertFromNullHash() {
+    assertThat(ClientAdapter.fromHash(null), nullValue());
+  }
 }
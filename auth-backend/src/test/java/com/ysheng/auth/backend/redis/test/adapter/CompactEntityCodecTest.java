@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.backend.redis.test.adapter;
+
+import com.ysheng.auth.backend.redis.adapter.CompactEntityCodec;
+import com.ysheng.auth.backend.redis.adapter.CompactReader;
+import com.ysheng.auth.backend.redis.adapter.CompactWriter;
+import com.ysheng.auth.backend.redis.adapter.EntityCodec;
+import com.ysheng.auth.backend.redis.adapter.JsonEntityCodec;
+import com.ysheng.auth.model.api.ClientType;
+import com.ysheng.auth.model.api.client.Client;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.testng.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.redis.adapter.CompactEntityCodec}.
+ */
+public class CompactEntityCodecTest {
+
+  @Test(dataProvider = "StringField")
+  public void succeedsToWriteAndReadString(String value) {
+    String encoded = new CompactWriter(CompactEntityCodec.VERSION_1)
+        .writeString(value)
+        .writeString("next")
+        .toString();
+
+    CompactReader reader = new CompactReader(encoded, 1);
+    assertThat(reader.readString(), equalTo(value));
+    assertThat(reader.readString(), equalTo("next"));
+  }
+
+  @DataProvider(name = "StringField")
+  public Object[][] provideStringField() {
+    char[] longValue = new char[10000];
+    Arrays.fill(longValue, 'a');
+
+    return new Object[][] {
+        { null },
+        { "" },
+        { "value" },
+        { "\u00e9\u4e2d\ud83d\ude00" },
+        { new String(longValue) }
+    };
+  }
+
+  @Test
+  public void succeedsToWriteAndReadLongAndEnum() {
+    String encoded = new CompactWriter(CompactEntityCodec.VERSION_1)
+        .writeLong(3600L)
+        .writeLong(null)
+        .writeEnum(ClientType.PUBLIC)
+        .writeEnum(null)
+        .toString();
+
+    CompactReader reader = new CompactReader(encoded, 1);
+    assertThat(reader.readLong(), equalTo(3600L));
+    assertThat(reader.readLong(), nullValue());
+    assertThat(reader.readEnum(ClientType.class), is(ClientType.PUBLIC));
+    assertThat(reader.readEnum(ClientType.class), nullValue());
+  }
+
+  @Test
+  public void succeedsToKeepLengthBytesInAsciiRange() {
+    char[] value = new char[100000];
+    Arrays.fill(value, 'a');
+
+    String encoded = new CompactWriter(CompactEntityCodec.VERSION_1)
+        .writeString(new String(value))
+        .toString();
+
+    // The version marker and the three characters of the length take one byte each.
+    assertThat(encoded.getBytes(StandardCharsets.UTF_8).length, is(value.length + 4));
+  }
+
+  @Test
+  public void failsToReadUnknownEnumOrdinal() {
+    String encoded = CompactEntityCodec.VERSION_1 + "\u0009";
+
+    try {
+      new CompactReader(encoded, 1).readEnum(ClientType.class);
+      fail("Reading enum should fail with unknown ordinal");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Unknown ClientType ordinal: 8"));
+    }
+  }
+
+  @Test
+  public void failsToReadTruncatedValue() {
+    String encoded = new CompactWriter(CompactEntityCodec.VERSION_1)
+        .writeString("value")
+        .toString();
+
+    try {
+      new CompactReader(encoded.substring(0, encoded.length() - 1), 1).readString();
+      fail("Reading string should fail with truncated value");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Compact value is truncated"));
+    }
+  }
+
+  @Test
+  public void succeedsToDecodeWithFallbackCodec() {
+    EntityCodec<Client> codec = new CompactEntityCodec<>(
+        (writer, client) -> writer.writeString(client.getId()),
+        reader -> {
+          Client client = new Client();
+          client.setId(reader.readString());
+          return client;
+        },
+        new JsonEntityCodec<>(Client.class));
+
+    assertThat(codec.decode("{\"id\":\"clientId\"}").getId(), equalTo("clientId"));
+    assertThat(codec.decode(codec.encode(createClient())).getId(), equalTo("clientId"));
+    assertThat(codec.decode(""), nullValue());
+    assertThat(codec.encode(null), nullValue());
+  }
+
+  private static Client createClient() {
+    Client client = new Client();
+    client.setId("clientId");
+    return client;
+  }
+}
@@ -14,6 +14,8 @@
 package com.ysheng.auth.backend.redis.test.adapter;
 
 import com.ysheng.auth.backend.redis.adapter.ImplicitAccessTokenAdapter;
+import com.ysheng.auth.backend.redis.adapter.CompactEntityCodec;
+import com.ysheng.auth.backend.redis.adapter.JsonEntityCodec;
 import com.ysheng.auth.model.api.AccessTokenType;
 import com.ysheng.auth.model.api.implicit.AccessToken;
 import org.testng.annotations.DataProvider;
@@ -21,7 +23,9 @@ import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * Tests for {@link com.ysheng.auth.backend.redis.adapter.ImplicitAccessTokenAdapter}.
@@ -41,12 +45,19 @@ public class ImplicitAccessTokenAdapterTest {
   @DataProvider(name = "AccessTokenKeyMetadata")
   public Object[][] provideAccessTokenKeyMetadata() {
     return new Object[][] {
-        { "clientId", "accessToken", "auth-implicit-access-token:clientId:accessToken" },
-        { "clientId", null, "auth-implicit-access-token:clientId:*" },
-        { null, "accessToken", "auth-implicit-access-token:*:accessToken" }
+        { "clientId", "accessToken", "auth-implicit-access-token:{clientId}:accessToken" },
+        { "clientId", null, "auth-implicit-access-token:{clientId}:*" },
+        { null, "accessToken", "auth-implicit-access-token:{*}:accessToken" }
     };
   }
 
+  @Test
+  public void succeedsToGetIndexKey() {
+    String indexKey = ImplicitAccessTokenAdapter.getIndexKey("clientId");
+
+    assertThat(indexKey, equalTo("auth-implicit-access-token-index:{clientId}"));
+  }
+
   @Test
   public void succeedsToConvertToHash() {
     AccessToken accessToken = new AccessToken();
@@ -59,13 +70,15 @@ public class ImplicitAccessTokenAdapterTest {
 
     String hash = ImplicitAccessTokenAdapter.toHash(accessToken);
 
-    assertThat(hash, equalTo(
-        "{\"clientId\":\"clientId\",\"accessToken\":\"accessToken\",\"tokenType\":\"BEARER\",\"expiresIn\":1000," +
-        "\"scope\":\"scope\",\"state\":\"state\"}"));
+    JsonEntityCodec<AccessToken> jsonCodec = new JsonEntityCodec<>(AccessToken.class);
+
+    assertThat(hash.charAt(0), equalTo(CompactEntityCodec.VERSION_1));
+    assertThat(hash.length(), lessThan(jsonCodec.encode(accessToken).length()));
+    assertThat(jsonCodec.encode(ImplicitAccessTokenAdapter.fromHash(hash)), equalTo(jsonCodec.encode(accessToken)));
   }
 
   @Test
-  public void succeedsToConvertFromHash() {
+  public void succeedsToConvertFromJsonHash() {
     String hash =
         "{\"clientId\":\"clientId\",\"accessToken\":\"accessToken\",\"tokenType\":\"BEARER\",\"expiresIn\":1000," +
         "\"scope\":\"scope\",\"state\":\"state\"}";
@@ -82,4 +95,14 @@ public class ImplicitAccessTokenAdapterTest {
   }
 
 
+
+  @Test
+  public void succeedsToConvertFromMalformedHash() {
+    assertThat(ImplicitAccessTokenAdapter.fromHash(CompactEntityCodec.VERSION_1 + "\u0005ab"), nullValue());
+  }
+
+  @Test
+  public void succeedsToConvertFromNullHash() {
+    assertThat(ImplicitAccessTokenAdapter.fromHash(null), nullValue());
+  }
 }
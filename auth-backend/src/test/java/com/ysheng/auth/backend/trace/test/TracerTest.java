@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.trace.test;
+
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Tracer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.List;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.trace.Tracer}.
+ */
+public class TracerTest {
+
+  @AfterMethod
+  public void tearDown() {
+    Tracer.activate(null);
+  }
+
+  @Test
+  public void succeedsToIgnoreSpanOfUntracedThread() {
+    try (Tracer.Scope scope = Tracer.startSpan("span")) {
+      assertThat(Tracer.current(), nullValue());
+    }
+
+    assertThat(Tracer.current(), nullValue());
+  }
+
+  @Test
+  public void succeedsToNestSpans() {
+    Span root = new Span("root");
+
+    try (Tracer.Scope rootScope = Tracer.activate(root)) {
+      try (Tracer.Scope outerScope = Tracer.startSpan("outer")) {
+        try (Tracer.Scope innerScope = Tracer.startSpan("inner")) {
+          assertThat(Tracer.current().getName(), equalTo("inner"));
+        }
+        assertThat(Tracer.current().getName(), equalTo("outer"));
+      }
+      assertThat(Tracer.current(), sameInstance(root));
+    }
+
+    assertThat(Tracer.current(), nullValue());
+
+    List<Span> children = root.getChildren();
+    assertThat(children.size(), is(1));
+    assertThat(children.get(0).getName(), equalTo("outer"));
+    assertThat(children.get(0).getDurationNanos(), greaterThanOrEqualTo(0L));
+    assertThat(children.get(0).getChildren().size(), is(1));
+    assertThat(children.get(0).getChildren().get(0).getName(), equalTo("inner"));
+    assertThat(children.get(0).getChildren().get(0).getDurationNanos(), greaterThanOrEqualTo(0L));
+    assertThat(root.getDurationNanos(), is(-1L));
+  }
+
+  @Test
+  public void succeedsToCarrySpanToAnotherThread() throws Exception {
+    Span root = new Span("root");
+
+    Thread thread = new Thread(() -> {
+      try (Tracer.Scope scope = Tracer.activate(root)) {
+        try (Tracer.Scope childScope = Tracer.startSpan("async")) {
+          // The child span is recorded under the span of the other thread.
+        }
+      }
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(root.getChildren().size(), is(1));
+    assertThat(root.getChildren().get(0).getName(), equalTo("async"));
+  }
+
+  @Test
+  public void succeedsToEndSpanOnce() {
+    Span span = new Span("span", System.nanoTime() - 1000L);
+
+    span.end();
+    long durationNanos = span.getDurationNanos();
+    span.end();
+
+    assertThat(durationNanos, greaterThanOrEqualTo(1000L));
+    assertThat(span.getDurationNanos(), is(durationNanos));
+  }
+}
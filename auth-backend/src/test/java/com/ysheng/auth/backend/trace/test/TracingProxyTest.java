@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.backend.trace.test;
+
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Tracer;
+import com.ysheng.auth.backend.trace.TracingProxy;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for {@link com.ysheng.auth.backend.trace.TracingProxy}.
+ */
+public class TracingProxyTest {
+
+  @AfterMethod
+  public void tearDown() {
+    Tracer.activate(null);
+  }
+
+  @Test
+  public void succeedsToTraceFunction() {
+    Span root = new Span("root");
+    Service service = TracingProxy.wrap(Service.class, new ServiceImpl());
+
+    try (Tracer.Scope scope = Tracer.activate(root)) {
+      assertThat(service.get("value"), equalTo("value"));
+    }
+
+    assertThat(root.getChildren().size(), is(1));
+    Span span = root.getChildren().get(0);
+    assertThat(span.getName(), equalTo("Service.get"));
+    assertThat(span.getDurationNanos(), greaterThanOrEqualTo(0L));
+    assertThat(span.getChildren().size(), is(1));
+    assertThat(span.getChildren().get(0).getName(), equalTo("database"));
+  }
+
+  @Test
+  public void succeedsToEndSpanOnceFutureCompletes() {
+    Span root = new Span("root");
+    CompletableFuture<String> future = new CompletableFuture<>();
+    Service service = TracingProxy.wrap(Service.class, new ServiceImpl(future));
+
+    try (Tracer.Scope scope = Tracer.activate(root)) {
+      assertThat(service.getAsync(), sameInstance(future));
+    }
+
+    Span span = root.getChildren().get(0);
+    assertThat(span.getName(), equalTo("Service.getAsync"));
+    assertThat(span.getDurationNanos(), is(-1L));
+
+    future.complete("value");
+    assertThat(span.getDurationNanos(), greaterThanOrEqualTo(0L));
+  }
+
+  @Test
+  public void succeedsToThrowExceptionOfFunction() {
+    Span root = new Span("root");
+    Service service = TracingProxy.wrap(Service.class, new ServiceImpl());
+
+    try (Tracer.Scope scope = Tracer.activate(root)) {
+      service.fail();
+      fail("Calling the function should fail with its exception");
+    } catch (IllegalStateException ex) {
+      assertThat(ex.getMessage(), equalTo("failure"));
+    }
+
+    assertThat(root.getChildren().get(0).getName(), equalTo("Service.fail"));
+    assertThat(root.getChildren().get(0).getDurationNanos(), greaterThanOrEqualTo(0L));
+  }
+
+  @Test
+  public void succeedsToCallFunctionOfUntracedThread() {
+    Service service = TracingProxy.wrap(Service.class, new ServiceImpl());
+
+    assertThat(service.get("value"), equalTo("value"));
+  }
+
+  /**
+   * Defines the interface that is traced in the tests.
+   */
+  public interface Service {
+
+    String get(String value);
+
+    CompletableFuture<String> getAsync();
+
+    void fail();
+  }
+
+  private static class ServiceImpl implements Service {
+
+    private final CompletableFuture<String> future;
+
+    ServiceImpl() {
+      this(null);
+    }
+
+    ServiceImpl(CompletableFuture<String> future) {
+      this.future = future;
+    }
+
+    @Override
+    public String get(String value) {
+      try (Tracer.Scope scope = Tracer.startSpan("database")) {
+        return value;
+      }
+    }
+
+    @Override
+    public CompletableFuture<String> getAsync() {
+      return future;
+    }
+
+    @Override
+    public void fail() {
+      throw new IllegalStateException("failure");
+    }
+  }
+}
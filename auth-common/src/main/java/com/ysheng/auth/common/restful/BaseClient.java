@@ -63,6 +63,34 @@ public class BaseClient {
         new TypeReference<T>() {});
   }
 
+  /**
+   * Performs a synchronous POST operation that deserializes the response to the given type.
+   *
+   * @param path The path of the RESTful operation.
+   * @param payload The payload of the RESTful operation.
+   * @param expectedHttpStatus The expected HTTP status of the operation.
+   * @param responseType The type reference of the response.
+   * @param <T> The type of the response.
+   * @return The response of the RESTful operation.
+   * @throws IOException The error that contains detail information.
+   */
+  public final <T> T post(
+      final String path,
+      final Object payload,
+      final int expectedHttpStatus,
+      final TypeReference<T> responseType) throws IOException {
+    HttpResponse httpResponse = restClient.perform(
+        RestClient.Method.POST,
+        path,
+        JsonSerializer.serialize(payload));
+
+    restClient.checkResponse(httpResponse, expectedHttpStatus);
+
+    return JsonSerializer.deserialize(
+        httpResponse.getEntity(),
+        responseType);
+  }
+
   /**
    * Performs an asynchronous POST operation.
    *
@@ -195,6 +223,32 @@ public class BaseClient {
         new TypeReference<T>() {});
   }
 
+  /**
+   * Performs an synchronous GET operation that deserializes the response to the given type.
+   *
+   * @param path The path of the RESTful operation.
+   * @param expectedHttpStatus The expected HTTP status of the operation.
+   * @param responseType The type reference of the response.
+   * @param <T> The type of the response.
+   * @return The response of the RESTful operation.
+   * @throws IOException The error that contains detail information.
+   */
+  public final <T> T get(
+      final String path,
+      final int expectedHttpStatus,
+      final TypeReference<T> responseType) throws IOException {
+    HttpResponse httpResponse = restClient.perform(
+        RestClient.Method.GET,
+        path,
+        null);
+
+    restClient.checkResponse(httpResponse, expectedHttpStatus);
+
+    return JsonSerializer.deserialize(
+        httpResponse.getEntity(),
+        responseType);
+  }
+
   /**
    * Performs an asynchronous GET operation.
    *
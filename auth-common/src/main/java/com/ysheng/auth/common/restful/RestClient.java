@@ -13,6 +13,7 @@
 
 package com.ysheng.auth.common.restful;
 
+import com.ysheng.auth.model.api.ApiHeader;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpDelete;
@@ -28,6 +29,7 @@ import org.apache.http.util.EntityUtils;
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * Defines a HTTP client that performs RESTful operations.
@@ -50,6 +52,10 @@ public class RestClient {
   // The address of the RESTful endpoint.
   private final String target;
 
+  // The supplier of the trace identifier of each request, or null if the
+  // requests do not carry a trace identifier.
+  private final Supplier<String> traceIdSupplier;
+
   /**
    * Constructs a RestClient object.
    *
@@ -57,6 +63,22 @@ public class RestClient {
    * @param httpClient The asynchronous HTTP client.
    */
   public RestClient(String target, CloseableHttpAsyncClient httpClient) {
+    this(target, httpClient, null);
+  }
+
+  /**
+   * Constructs a RestClient object that sends a trace identifier with each request.
+   *
+   * @param target The address of the RESTful endpoint.
+   * @param httpClient The asynchronous HTTP client.
+   * @param traceIdSupplier The supplier of the trace identifier of each request,
+   *                        e.g. the identifier of the trace of the calling thread,
+   *                        which may supply null to send no trace identifier.
+   */
+  public RestClient(
+      String target,
+      CloseableHttpAsyncClient httpClient,
+      Supplier<String> traceIdSupplier) {
     if (null == httpClient) {
       throw new IllegalArgumentException("Client cannot be null");
     }
@@ -67,6 +89,7 @@ public class RestClient {
 
     this.target = target;
     this.httpClient = httpClient;
+    this.traceIdSupplier = traceIdSupplier;
 
     if (!this.httpClient.isRunning()) {
       this.httpClient.start();
@@ -173,6 +196,11 @@ public class RestClient {
         throw new RuntimeException("Unknown method: " + method.name());
     }
 
+    String traceId = traceIdSupplier == null ? null : traceIdSupplier.get();
+    if (traceId != null) {
+      request.setHeader(ApiHeader.TRACE_ID, traceId);
+    }
+
     return request;
   }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.common.test.restful;
+
+import com.ysheng.auth.common.restful.RestClient;
+import com.ysheng.auth.model.api.ApiHeader;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.protocol.HttpContext;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Tests for {@link com.ysheng.auth.common.restful.RestClient}.
+ */
+public class RestClientTest {
+
+  private CloseableHttpAsyncClient httpClient;
+
+  @BeforeMethod
+  public void setUp() {
+    httpClient = mock(CloseableHttpAsyncClient.class);
+    doReturn(true).when(httpClient).isRunning();
+  }
+
+  @Test
+  public void succeedsToSendTraceIdOfEachRequest() throws Throwable {
+    Iterator<String> traceIds = Arrays.asList("traceId1", "traceId2").iterator();
+    RestClient restClient = new RestClient("http://localhost", httpClient, traceIds::next);
+
+    restClient.performAsync(RestClient.Method.GET, "/clients", null, null);
+    restClient.performAsync(RestClient.Method.POST, "/clients", null, null);
+
+    ArgumentCaptor<HttpUriRequest> requestCaptor = ArgumentCaptor.forClass(HttpUriRequest.class);
+    verify(httpClient, times(2)).execute(requestCaptor.capture(), any(HttpContext.class), isNull());
+    assertThat(requestCaptor.getAllValues().get(0).getFirstHeader(ApiHeader.TRACE_ID).getValue(), equalTo("traceId1"));
+    assertThat(requestCaptor.getAllValues().get(1).getFirstHeader(ApiHeader.TRACE_ID).getValue(), equalTo("traceId2"));
+  }
+
+  @Test
+  public void succeedsToSendNoTraceIdIfSupplierSuppliesNull() throws Throwable {
+    RestClient restClient = new RestClient("http://localhost", httpClient, () -> null);
+
+    restClient.performAsync(RestClient.Method.DELETE, "/clients/id", null, null);
+
+    ArgumentCaptor<HttpUriRequest> requestCaptor = ArgumentCaptor.forClass(HttpUriRequest.class);
+    verify(httpClient).execute(requestCaptor.capture(), any(HttpContext.class), isNull());
+    assertThat(requestCaptor.getValue().getFirstHeader(ApiHeader.TRACE_ID), nullValue());
+  }
+
+  @Test
+  public void succeedsToSendNoTraceIdWithoutSupplier() throws Throwable {
+    RestClient restClient = new RestClient("http://localhost", httpClient);
+
+    restClient.performAsync(RestClient.Method.PUT, "/clients/id", null, null);
+
+    ArgumentCaptor<HttpUriRequest> requestCaptor = ArgumentCaptor.forClass(HttpUriRequest.class);
+    verify(httpClient).execute(requestCaptor.capture(), any(HttpContext.class), isNull());
+    assertThat(requestCaptor.getValue().containsHeader(ApiHeader.TRACE_ID), is(false));
+  }
+}
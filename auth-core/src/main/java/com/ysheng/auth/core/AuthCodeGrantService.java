@@ -14,6 +14,7 @@
 package com.ysheng.auth.core;
 
 import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.authcode.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationRevokeSpec;
 import com.ysheng.auth.model.api.exception.InternalException;
@@ -22,6 +23,9 @@ import com.ysheng.auth.model.api.authcode.AccessTokenIssueSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationGrantSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationTicket;
 
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Defines the interface of authorization code grant related functions.
  */
@@ -61,6 +65,31 @@ public interface AuthCodeGrantService {
    */
   ApiList<AuthorizationTicket> listAuthorizationTickets(String clientId) throws InternalException;
 
+  /**
+   * Gets a page of authorization tickets granted to a particular client.
+   *
+   * @param clientId The client identifier for which the authorization ticket was granted to.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of authorization tickets in the page.
+   * @return A page of authorization tickets.
+   * @throws InternalException The error that contains detail information.
+   */
+  ApiList<AuthorizationTicket> listAuthorizationTickets(
+      String clientId,
+      String cursor,
+      int limit) throws InternalException;
+
+  /**
+   * Gets a lazy iterator over the authorization tickets granted to a
+   * particular client, which loads the authorization tickets in chunks as it
+   * advances. The client is checked before the iterator is returned.
+   *
+   * @param clientId The client identifier for which the authorization ticket was granted to.
+   * @return An iterator over authorization tickets.
+   * @throws InternalException The error that contains detail information.
+   */
+  Iterator<AuthorizationTicket> iterateAuthorizationTickets(String clientId) throws InternalException;
+
   /**
    * Gets an authorization ticket with the given client identifier and code.
    *
@@ -86,6 +115,19 @@ public interface AuthCodeGrantService {
       String clientId,
       AccessTokenIssueSpec request) throws InternalException;
 
+  /**
+   * Issues an access token for a client with an auth code, without blocking
+   * the calling thread on the database.
+   *
+   * @param clientId The client identifier.
+   * @param request The access token request that contains required information.
+   * @return A future that completes with the access token response, or with
+   *         the exception that contains error details.
+   */
+  CompletableFuture<AccessToken> issueAccessTokenAsync(
+      String clientId,
+      AccessTokenIssueSpec request);
+
   /**
    * Gets a list of access tokens issued to a particular client.
    *
@@ -95,6 +137,31 @@ public interface AuthCodeGrantService {
    */
   ApiList<AccessToken> listAccessTokens(String clientId) throws InternalException;
 
+  /**
+   * Gets a page of access tokens issued to a particular client.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  ApiList<AccessToken> listAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) throws InternalException;
+
+  /**
+   * Gets a lazy iterator over the access tokens issued to a particular
+   * client, which loads the access tokens in chunks as it advances. The
+   * client is checked before the iterator is returned.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @return An iterator over access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  Iterator<AccessToken> iterateAccessTokens(String clientId) throws InternalException;
+
   /**
    * Revokes an access token from a client.
    *
@@ -108,6 +175,17 @@ public interface AuthCodeGrantService {
       String accessToken,
       AccessTokenRevokeSpec request) throws InternalException;
 
+  /**
+   * Revokes the listed access tokens, or all access tokens, from a client.
+   *
+   * @param clientId The client identifier.
+   * @param request The bulk access token revocation request that contains required information.
+   * @throws InternalException The error that contains detail information.
+   */
+  void revokeAccessTokens(
+      String clientId,
+      AccessTokenBulkRevokeSpec request) throws InternalException;
+
   /**
    * Gets an access token with the given client identifier and token.
    *
@@ -119,4 +197,17 @@ public interface AuthCodeGrantService {
   AccessToken getAccessToken(
       String clientId,
       String accessToken) throws InternalException;
+
+  /**
+   * Gets an access token with the given client identifier and token, without
+   * blocking the calling thread on the database.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return A future that completes with the access token that matches the
+   *         criteria, or with the error that contains detail information.
+   */
+  CompletableFuture<AccessToken> getAccessTokenAsync(
+      String clientId,
+      String accessToken);
 }
@@ -14,9 +14,14 @@
 package com.ysheng.auth.core;
 
 import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
 import com.ysheng.auth.core.generator.AuthValueGeneratorFactory;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.core.util.FutureUtil;
 import com.ysheng.auth.model.configuration.core.CoreConfiguration;
 
+import java.util.concurrent.Executor;
+
 /**
  * Defines the service factory that produces auth code grant service.
  */
@@ -27,13 +32,39 @@ public class AuthCodeGrantServiceFactory {
    *
    * @param database The database object.
    * @param configuration The core configuration.
+   * @param credentialVerifier The verifier of client secrets, which is shared by all services.
+   * @return An auth code grant service object.
+   */
+  public AuthCodeGrantService produce(
+      Database database,
+      CoreConfiguration configuration,
+      ClientCredentialVerifier credentialVerifier) {
+    return produce(database, configuration, null, credentialVerifier, FutureUtil.DIRECT_EXECUTOR);
+  }
+
+  /**
+   * Produces an auth code grant service object whose async operations run on an executor.
+   *
+   * @param database The database object.
+   * @param configuration The core configuration.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param credentialVerifier The verifier of client secrets, which is shared by all services.
+   * @param executor The executor that runs the async operations.
    * @return An auth code grant service object.
    */
   public AuthCodeGrantService produce(
       Database database,
-      CoreConfiguration configuration) {
+      CoreConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager,
+      ClientCredentialVerifier credentialVerifier,
+      Executor executor) {
     return new AuthCodeGrantServiceImpl(
         database,
-        new AuthValueGeneratorFactory().produce(configuration.getAuthValueGeneratorConfiguration()));
+        new AuthValueGeneratorFactory().produce(configuration.getAuthValueGeneratorConfiguration()),
+        configuration,
+        signedAccessTokenManager,
+        credentialVerifier,
+        executor);
   }
 }
@@ -13,10 +13,17 @@
 
 package com.ysheng.auth.core;
 
+import com.ysheng.auth.backend.ClientEntityPair;
 import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
 import com.ysheng.auth.core.generator.AuthValueGenerator;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.core.util.FutureUtil;
+import com.ysheng.auth.core.util.PageUtil;
 import com.ysheng.auth.model.api.AccessTokenType;
 import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.authcode.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationRevokeSpec;
 import com.ysheng.auth.model.api.exception.AccessTokenNotFoundException;
@@ -33,6 +40,16 @@ import com.ysheng.auth.model.api.exception.GrantTypeUnsupportedException;
 import com.ysheng.auth.model.api.exception.InvalidClientException;
 import com.ysheng.auth.model.api.exception.InvalidRequestException;
 import com.ysheng.auth.model.api.exception.ResponseTypeUnsupportedException;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Implements authorization code grant related functions.
@@ -45,17 +62,68 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
   // The auth code generator.
   private AuthValueGenerator authValueGenerator;
 
+  // The core configuration.
+  private CoreConfiguration configuration;
+
+  // The manager of signed access tokens, or null if access tokens are not signed.
+  private SignedAccessTokenManager signedAccessTokenManager;
+
+  // The verifier of client secrets.
+  private ClientCredentialVerifier credentialVerifier;
+
+  // The executor that runs the async operations.
+  private Executor executor;
+
   /**
-   * Constructs an AuthCodeGrantServiceImpl object.
+   * Constructs an AuthCodeGrantServiceImpl object with a client secret verifier, whose
+   * async operations run on the calling thread.
    *
    * @param database The database object to interact with persistence store.
    * @param authValueGenerator The generator object to generate auth related values.
+   * @param configuration The core configuration.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param credentialVerifier The verifier of client secrets.
    */
   public AuthCodeGrantServiceImpl(
       Database database,
-      AuthValueGenerator authValueGenerator) {
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager,
+      ClientCredentialVerifier credentialVerifier) {
+    this(
+        database,
+        authValueGenerator,
+        configuration,
+        signedAccessTokenManager,
+        credentialVerifier,
+        FutureUtil.DIRECT_EXECUTOR);
+  }
+
+  /**
+   * Constructs an AuthCodeGrantServiceImpl object with an executor of the async operations.
+   *
+   * @param database The database object to interact with persistence store.
+   * @param authValueGenerator The generator object to generate auth related values.
+   * @param configuration The core configuration.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param credentialVerifier The verifier of client secrets.
+   * @param executor The executor that runs the async operations.
+   */
+  public AuthCodeGrantServiceImpl(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager,
+      ClientCredentialVerifier credentialVerifier,
+      Executor executor) {
     this.database = database;
     this.authValueGenerator = authValueGenerator;
+    this.configuration = configuration;
+    this.signedAccessTokenManager = signedAccessTokenManager;
+    this.credentialVerifier = credentialVerifier;
+    this.executor = executor;
   }
 
   /**
@@ -88,6 +156,7 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
     authorizationTicket.setRedirectUri(request.getRedirectUri());
     authorizationTicket.setScope(request.getScope());
     authorizationTicket.setState(request.getState());
+    authorizationTicket.setExpiresIn(configuration.getAuthCodeLifetimeSeconds());
     database.storeAuthorizationTicket(authorizationTicket);
 
     return authorizationTicket;
@@ -105,17 +174,19 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
       String clientId,
       String code,
       AuthorizationRevokeSpec request) throws InternalException {
-    Client client = database.findClientById(clientId);
+    ClientEntityPair<AuthorizationTicket> clientAndTicket =
+        database.findClientAndAuthorizationTicket(clientId, code);
+
+    Client client = clientAndTicket.getClient();
     if (client == null) {
       throw new ClientNotFoundException(clientId);
     }
 
-    if (client.getSecret() != null &&
-        !client.getSecret().equals(request.getClientSecret())) {
+    if (!credentialVerifier.verify(client, request.getClientSecret())) {
       throw new ClientUnauthorizedException(clientId);
     }
 
-    AuthorizationTicket ticket = database.findAuthorizationTicketByCodeAndClientId(code, clientId);
+    AuthorizationTicket ticket = clientAndTicket.getEntity();
     if (ticket == null) {
       throw new AuthorizationTicketNotFoundError(clientId, code);
     }
@@ -139,6 +210,52 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
     return new ApiList<>(database.listAuthorizationTickets(clientId));
   }
 
+  /**
+   * Gets a page of authorization tickets granted to a particular client.
+   *
+   * @param clientId The client identifier for which the authorization ticket was granted to.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of authorization tickets in the page.
+   * @return A page of authorization tickets.
+   * @throws InternalException The error that contains detail information.
+   */
+  public ApiList<AuthorizationTicket> listAuthorizationTickets(
+      String clientId,
+      String cursor,
+      int limit) throws InternalException {
+    // Validate the request.
+    if (limit <= 0) {
+      throw new InvalidRequestException("Invalid limit: " + limit);
+    }
+
+    Client client = database.findClientById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    return PageUtil.listPage(
+        cursor,
+        limit,
+        configuration.getMaxListLimit(),
+        (pageCursor, pageLimit) -> database.listAuthorizationTickets(clientId, pageCursor, pageLimit));
+  }
+
+  /**
+   * Gets a lazy iterator over the authorization tickets granted to a particular client.
+   *
+   * @param clientId The client identifier for which the authorization ticket was granted to.
+   * @return An iterator over authorization tickets.
+   * @throws InternalException The error that contains detail information.
+   */
+  public Iterator<AuthorizationTicket> iterateAuthorizationTickets(String clientId) throws InternalException {
+    Client client = database.findClientById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    return database.iterateAuthorizationTickets(clientId);
+  }
+
   /**
    * Gets an authorization ticket with the given client identifier and code.
    *
@@ -184,19 +301,19 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
       throw new GrantTypeUnsupportedException(request.getGrantType());
     }
 
-    Client client = database.findClientById(clientId);
+    ClientEntityPair<AuthorizationTicket> clientAndTicket =
+        database.findClientAndAuthorizationTicket(clientId, request.getCode());
+
+    Client client = clientAndTicket.getClient();
     if (client == null) {
       throw new ClientNotFoundException(clientId);
     }
 
-    if (client.getSecret() != null &&
-        !client.getSecret().equals(request.getClientSecret())) {
+    if (!credentialVerifier.verify(client, request.getClientSecret())) {
       throw new ClientUnauthorizedException(clientId);
     }
 
-    AuthorizationTicket authorizationTicket = database.findAuthorizationTicketByCodeAndClientId(
-        request.getCode(),
-        clientId);
+    AuthorizationTicket authorizationTicket = clientAndTicket.getEntity();
     if (authorizationTicket == null) {
       throw new AuthorizationTicketNotFoundError(clientId, request.getCode());
     }
@@ -213,24 +330,36 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
     // Build the response.
     AccessToken response = new AccessToken();
     response.setClientId(clientId);
-    response.setAccessToken(authValueGenerator.generateAccessToken());
     response.setTokenType(AccessTokenType.BEARER);
-    // TODO: change how we calculate the token expiration.
-    // Also consider how to set refresh token and scope.
-    response.setExpiresIn((long) Integer.MAX_VALUE);
-
-    database.storeAccessToken(response);
+    // TODO: consider how to set refresh token and scope.
+    response.setExpiresIn(configuration.getAccessTokenLifetimeSeconds());
+    response.setAccessToken(generateAccessToken(clientId, response.getScope(), response.getExpiresIn()));
 
-    // We revoke the authorization code once we issue the access token.
+    // We revoke the authorization code atomically as we store the access token.
     // Because we don't want the client to abuse the same code to get multiple
-    // access tokens.
-    AuthorizationRevokeSpec revokeAuthorizationSpec = new AuthorizationRevokeSpec();
-    revokeAuthorizationSpec.setClientSecret(client.getSecret());
-    revokeAuthorization(clientId, request.getCode(), revokeAuthorizationSpec);
+    // access tokens, even with concurrent requests. If the ticket is gone by
+    // now, another request has redeemed it first.
+    if (!database.redeemAuthorizationTicket(clientId, request.getCode(), response)) {
+      throw new AuthorizationTicketNotFoundError(clientId, request.getCode());
+    }
 
     return response;
   }
 
+  /**
+   * Issues an access token with an auth code for a client, on the executor of the service.
+   *
+   * @param clientId The client identifier.
+   * @param request The access token request that contains required information.
+   * @return A future that completes with the access token response, or with
+   *         the exception that contains error details.
+   */
+  public CompletableFuture<AccessToken> issueAccessTokenAsync(
+      String clientId,
+      AccessTokenIssueSpec request) {
+    return FutureUtil.supplyAsync(() -> issueAccessToken(clientId, request), executor);
+  }
+
   /**
    * Gets a list of access tokens issued to a particular client.
    *
@@ -247,6 +376,52 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
     return new ApiList<>(database.listAccessTokens(clientId));
   }
 
+  /**
+   * Gets a page of access tokens issued to a particular client.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  public ApiList<AccessToken> listAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) throws InternalException {
+    // Validate the request.
+    if (limit <= 0) {
+      throw new InvalidRequestException("Invalid limit: " + limit);
+    }
+
+    Client client = database.findClientById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    return PageUtil.listPage(
+        cursor,
+        limit,
+        configuration.getMaxListLimit(),
+        (pageCursor, pageLimit) -> database.listAccessTokens(clientId, pageCursor, pageLimit));
+  }
+
+  /**
+   * Gets a lazy iterator over the access tokens issued to a particular client.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @return An iterator over access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  public Iterator<AccessToken> iterateAccessTokens(String clientId) throws InternalException {
+    Client client = database.findClientById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    return database.iterateAccessTokens(clientId);
+  }
+
   /**
    * Revokes an access token from a client.
    *
@@ -260,13 +435,12 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
       String clientId,
       String accessToken,
       AccessTokenRevokeSpec request) throws InternalException {
-    Client client = database.findClientById(clientId);
+    Client client = database.findClientCredentialsById(clientId);
     if (client == null) {
       throw new ClientNotFoundException(clientId);
     }
 
-    if (client.getSecret() != null &&
-        !client.getSecret().equals(request.getClientSecret())) {
+    if (!credentialVerifier.verify(client, request.getClientSecret())) {
       throw new ClientUnauthorizedException(clientId);
     }
 
@@ -275,9 +449,64 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
       throw new AccessTokenNotFoundException(clientId, accessToken);
     }
 
+    // A signed access token stays valid without the stored one, so it is
+    // revoked first.
+    if (signedAccessTokenManager != null) {
+      signedAccessTokenManager.revoke(accessToken);
+    }
+
     database.removeAccessToken(clientId, accessToken);
   }
 
+  /**
+   * Revokes the listed access tokens, or all access tokens, from a client.
+   * Listed access tokens that do not exist are ignored.
+   *
+   * @param clientId The client identifier.
+   * @param request The bulk access token revocation request that contains required information.
+   * @throws InternalException The error that contains detail information.
+   */
+  public void revokeAccessTokens(
+      String clientId,
+      AccessTokenBulkRevokeSpec request) throws InternalException {
+    // Validate the request.
+    List<String> requestedAccessTokens =
+        request.getAccessTokens() == null ? Collections.emptyList() : request.getAccessTokens();
+    if (request.isAll() != requestedAccessTokens.isEmpty()) {
+      throw new InvalidRequestException("Either access tokens or all must be given");
+    }
+
+    if (requestedAccessTokens.size() > configuration.getMaxBulkAccessTokens()) {
+      throw new InvalidRequestException("Too many access tokens: " + requestedAccessTokens.size());
+    }
+
+    Client client = database.findClientCredentialsById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    if (!credentialVerifier.verify(client, request.getClientSecret())) {
+      throw new ClientUnauthorizedException(clientId);
+    }
+
+    if (!request.isAll()) {
+      revokeAccessTokenBatch(clientId, new LinkedHashSet<>(requestedAccessTokens));
+      return;
+    }
+
+    // All the access tokens are revoked in batches as the index is scanned,
+    // so that the access tokens of a client are never held in memory at once.
+    Iterator<String> accessTokens = database.iterateAccessTokenStrings(clientId);
+    List<String> batch = new ArrayList<>();
+    while (accessTokens.hasNext()) {
+      batch.add(accessTokens.next());
+      if (batch.size() >= configuration.getMaxBulkAccessTokens() || !accessTokens.hasNext()) {
+        revokeAccessTokenBatch(clientId, batch);
+        batch = new ArrayList<>();
+      }
+    }
+  }
+
   /**
    * Gets an access token with the given client identifier and token.
    *
@@ -289,6 +518,23 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
   public AccessToken getAccessToken(
       String clientId,
       String accessToken) throws InternalException {
+    // Signed access tokens are validated without a database lookup.
+    if (signedAccessTokenManager != null && signedAccessTokenManager.canValidate(accessToken)) {
+      SignedAccessTokenClaims claims =
+          signedAccessTokenManager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, clientId, accessToken);
+      if (claims == null) {
+        throw new AccessTokenNotFoundException(clientId, accessToken);
+      }
+
+      return toAccessToken(accessToken, claims);
+    }
+
+    // Unknown access tokens are ruled out before the client lookup, as most of
+    // them are guessed ones.
+    if (!database.mayContainAccessToken(clientId, accessToken)) {
+      throw new AccessTokenNotFoundException(clientId, accessToken);
+    }
+
     Client client = database.findClientById(clientId);
     if (client == null) {
       throw new ClientNotFoundException(clientId);
@@ -301,4 +547,82 @@ public class AuthCodeGrantServiceImpl implements AuthCodeGrantService{
 
     return token;
   }
+
+  /**
+   * Gets an access token with the given client identifier and token, on
+   * the executor of the service. Signed access tokens are validated without a
+   * database lookup, so they are validated on the calling thread.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return A future that completes with the access token that matches the
+   *         criteria, or with the error that contains detail information.
+   */
+  public CompletableFuture<AccessToken> getAccessTokenAsync(
+      String clientId,
+      String accessToken) {
+    Executor validationExecutor =
+        signedAccessTokenManager != null && signedAccessTokenManager.canValidate(accessToken) ?
+            FutureUtil.DIRECT_EXECUTOR : executor;
+
+    return FutureUtil.supplyAsync(() -> getAccessToken(clientId, accessToken), validationExecutor);
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  /**
+   * Generates an access token, which is signed if signed access tokens are enabled.
+   *
+   * @param clientId The client identifier.
+   * @param scope The scope of the access token.
+   * @param lifetimeSeconds The lifetime in seconds of the access token.
+   * @return The access token.
+   */
+  private String generateAccessToken(
+      String clientId,
+      String scope,
+      long lifetimeSeconds) {
+    if (signedAccessTokenManager == null) {
+      return authValueGenerator.generateAccessToken();
+    }
+
+    return signedAccessTokenManager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, clientId, scope, lifetimeSeconds);
+  }
+
+  /**
+   * Builds an access token from the claims of a signed access token.
+   *
+   * @param accessToken The access token.
+   * @param claims The claims of the access token.
+   * @return The access token object.
+   */
+  private static AccessToken toAccessToken(
+      String accessToken,
+      SignedAccessTokenClaims claims) {
+    AccessToken token = new AccessToken();
+    token.setClientId(claims.getClientId());
+    token.setAccessToken(accessToken);
+    token.setTokenType(AccessTokenType.BEARER);
+    token.setExpiresIn(claims.getExpiresAt() - claims.getIssuedAt());
+    token.setScope(claims.getScope());
+    return token;
+  }
+
+  /**
+   * Revokes a batch of access tokens from a client.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   */
+  private void revokeAccessTokenBatch(String clientId, Collection<String> accessTokens) {
+    // A signed access token stays valid without the stored one, so it is
+    // revoked first.
+    if (signedAccessTokenManager != null) {
+      signedAccessTokenManager.revokeAll(SignedAccessTokenClaims.Grant.AUTH_CODE, clientId, accessTokens);
+    }
+
+    database.removeAccessTokens(clientId, accessTokens);
+  }
 }
@@ -19,6 +19,9 @@ import com.ysheng.auth.model.api.client.Client;
 import com.ysheng.auth.model.api.client.ClientRegistrationSpec;
 import com.ysheng.auth.model.api.client.ClientUnregistrationSpec;
 
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Defines the interface of client related functions.
  */
@@ -34,7 +37,8 @@ public interface ClientService {
   Client register(ClientRegistrationSpec request) throws InternalException;
 
   /**
-   * Unregisters a client with the authorization server.
+   * Unregisters a client with the authorization server. The authorization
+   * tickets and access tokens of the client are removed in the background.
    *
    * @param clientId The client identifier.
    * @param request The client unregistration request that contains required information.
@@ -51,6 +55,27 @@ public interface ClientService {
    */
   ApiList<Client> list();
 
+  /**
+   * Gets a page of clients.
+   *
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of clients in the page.
+   * @return A page of clients.
+   * @throws InternalException The error that contains detail information.
+   */
+  ApiList<Client> list(
+      String cursor,
+      int limit) throws InternalException;
+
+  /**
+   * Gets a lazy iterator over all clients, which loads the clients in chunks
+   * as it advances, so that all clients can be written out without holding
+   * them in memory.
+   *
+   * @return An iterator over all clients.
+   */
+  Iterator<Client> iterate();
+
   /**
    * Gets a client with the given identifier.
    *
@@ -59,4 +84,14 @@ public interface ClientService {
    * @throws InternalException The error that contains detail information.
    */
   Client get(String clientId) throws InternalException;
+
+  /**
+   * Gets a client with the given identifier, without blocking the calling
+   * thread on the database.
+   *
+   * @param clientId The client identifier.
+   * @return A future that completes with the client object, or with the error
+   *         that contains detail information.
+   */
+  CompletableFuture<Client> getAsync(String clientId);
 }
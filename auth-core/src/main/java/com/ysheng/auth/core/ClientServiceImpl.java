@@ -14,8 +14,12 @@
 package com.ysheng.auth.core;
 
 import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
 import com.ysheng.auth.core.util.UriUtil;
 import com.ysheng.auth.core.generator.AuthValueGenerator;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.core.util.FutureUtil;
+import com.ysheng.auth.core.util.PageUtil;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.ClientType;
 import com.ysheng.auth.model.api.exception.InternalException;
@@ -25,8 +29,12 @@ import com.ysheng.auth.model.api.client.ClientUnregistrationSpec;
 import com.ysheng.auth.model.api.exception.ClientNotFoundException;
 import com.ysheng.auth.model.api.exception.ClientUnauthorizedException;
 import com.ysheng.auth.model.api.exception.InvalidRequestException;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Implements client related functions.
@@ -39,17 +47,100 @@ public class ClientServiceImpl implements ClientService {
   // The auth code generator.
   private AuthValueGenerator authValueGenerator;
 
+  // The verifier of client secrets.
+  private ClientCredentialVerifier credentialVerifier;
+
+  // The manager of signed access tokens, or null if access tokens are not signed.
+  private SignedAccessTokenManager signedAccessTokenManager;
+
+  // The executor that runs the async operations.
+  private Executor executor;
+
+  // The maximum number of clients in a page of the list.
+  private int maxListLimit;
+
+  /**
+   * Constructs an ClientServiceImpl object with a client secret verifier,
+   * whose async operations run on the calling thread.
+   *
+   * @param database The database object to interact with persistence store.
+   * @param authValueGenerator The generator object to generate auth related values.
+   * @param credentialVerifier The verifier of client secrets.
+   */
+  public ClientServiceImpl(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      ClientCredentialVerifier credentialVerifier) {
+    this(database, authValueGenerator, credentialVerifier, FutureUtil.DIRECT_EXECUTOR);
+  }
+
+  /**
+   * Constructs an ClientServiceImpl object with an executor of the async operations.
+   *
+   * @param database The database object to interact with persistence store.
+   * @param authValueGenerator The generator object to generate auth related values.
+   * @param credentialVerifier The verifier of client secrets.
+   * @param executor The executor that runs the async operations.
+   */
+  public ClientServiceImpl(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      ClientCredentialVerifier credentialVerifier,
+      Executor executor) {
+    this(database, authValueGenerator, credentialVerifier, null, executor);
+  }
+
+  /**
+   * Constructs an ClientServiceImpl object that revokes the signed access
+   * tokens of the clients that are unregistered.
+   *
+   * @param database The database object to interact with persistence store.
+   * @param authValueGenerator The generator object to generate auth related values.
+   * @param credentialVerifier The verifier of client secrets.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param executor The executor that runs the async operations.
+   */
+  public ClientServiceImpl(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      ClientCredentialVerifier credentialVerifier,
+      SignedAccessTokenManager signedAccessTokenManager,
+      Executor executor) {
+    this(
+        database,
+        authValueGenerator,
+        credentialVerifier,
+        signedAccessTokenManager,
+        executor,
+        CoreConfiguration.DEFAULT_MAX_LIST_LIMIT);
+  }
+
   /**
-   * Constructs an ClientServiceImpl object.
+   * Constructs an ClientServiceImpl object with a maximum number of clients
+   * in a page of the list.
    *
    * @param database The database object to interact with persistence store.
    * @param authValueGenerator The generator object to generate auth related values.
+   * @param credentialVerifier The verifier of client secrets.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param executor The executor that runs the async operations.
+   * @param maxListLimit The maximum number of clients in a page of the list.
    */
   public ClientServiceImpl(
       Database database,
-      AuthValueGenerator authValueGenerator) {
+      AuthValueGenerator authValueGenerator,
+      ClientCredentialVerifier credentialVerifier,
+      SignedAccessTokenManager signedAccessTokenManager,
+      Executor executor,
+      int maxListLimit) {
     this.database = database;
     this.authValueGenerator = authValueGenerator;
+    this.credentialVerifier = credentialVerifier;
+    this.signedAccessTokenManager = signedAccessTokenManager;
+    this.executor = executor;
+    this.maxListLimit = maxListLimit;
   }
 
   /**
@@ -74,19 +165,28 @@ public class ClientServiceImpl implements ClientService {
     String clientSecret = ClientType.CONFIDENTIAL.equals(request.getType()) ?
         authValueGenerator.generateClientSecret() : null;
 
-    // Store client in database.
+    // Store client in database, with its secret hashed.
     Client client = new Client();
     client.setType(request.getType());
     client.setId(clientId);
-    client.setSecret(clientSecret);
+    client.setSecret(credentialVerifier.hash(clientSecret));
     client.setRedirectUri(request.getRedirectUri());
     database.storeClient(client);
 
-    return client;
+    // Only the registration response carries the plaintext secret.
+    Client response = new Client();
+    response.setType(client.getType());
+    response.setId(client.getId());
+    response.setSecret(clientSecret);
+    response.setRedirectUri(client.getRedirectUri());
+    return response;
   }
 
   /**
-   * Unregisters a client with the authorization server.
+   * Unregisters a client with the authorization server. The authorization
+   * tickets and access tokens of the client are removed in the background,
+   * while its signed access tokens are revoked right away, as they are
+   * validated without a database lookup.
    *
    * @param clientId The client identifier.
    * @param request The client unregistration request that contains required information.
@@ -101,18 +201,21 @@ public class ClientServiceImpl implements ClientService {
       throw new InvalidRequestException("Client ID cannot be null");
     }
 
-    Client client = database.findClientById(clientId);
+    Client client = database.findClientCredentialsById(clientId);
     if (client == null) {
       throw new ClientNotFoundException(clientId);
     }
 
-    if (client.getSecret() != null &&
-        !client.getSecret().equals(request.getClientSecret())) {
+    if (!credentialVerifier.verify(client, request.getClientSecret())) {
       throw new ClientUnauthorizedException(clientId);
     }
 
-    // Remove client from database.
-    database.removeClient(clientId);
+    // Remove client from database, and leave a tombstone for the cleanup.
+    database.tombstoneClient(clientId);
+
+    if (signedAccessTokenManager != null) {
+      signedAccessTokenManager.revokeClient(clientId);
+    }
   }
 
   /**
@@ -126,6 +229,38 @@ public class ClientServiceImpl implements ClientService {
     return new ApiList<>(clients);
   }
 
+  /**
+   * Gets a page of clients.
+   *
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of clients in the page.
+   * @return A page of clients.
+   * @throws InternalException The error that contains detail information.
+   */
+  public ApiList<Client> list(
+      String cursor,
+      int limit) throws InternalException {
+    // Validate the request.
+    if (limit <= 0) {
+      throw new InvalidRequestException("Invalid limit: " + limit);
+    }
+
+    return PageUtil.listPage(
+        cursor,
+        limit,
+        maxListLimit,
+        (pageCursor, pageLimit) -> database.listClients(pageCursor, pageLimit));
+  }
+
+  /**
+   * Gets a lazy iterator over all clients.
+   *
+   * @return An iterator over all clients.
+   */
+  public Iterator<Client> iterate() {
+    return database.iterateClients();
+  }
+
   /**
    * Gets a client with the given identifier.
    *
@@ -142,4 +277,15 @@ public class ClientServiceImpl implements ClientService {
 
     return client;
   }
+
+  /**
+   * Gets a client with the given identifier, on the executor of the service.
+   *
+   * @param clientId The client identifier.
+   * @return A future that completes with the client object, or with the error
+   *         that contains detail information.
+   */
+  public CompletableFuture<Client> getAsync(String clientId) {
+    return FutureUtil.supplyAsync(() -> get(clientId), executor);
+  }
 }
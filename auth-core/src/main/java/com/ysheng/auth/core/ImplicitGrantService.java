@@ -16,8 +16,13 @@ package com.ysheng.auth.core;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.exception.InternalException;
 import com.ysheng.auth.model.api.implicit.AccessToken;
+import com.ysheng.auth.model.api.implicit.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AuthorizationGrantSpec;
+import com.ysheng.auth.model.api.implicit.BulkAuthorizationGrantSpec;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Defines the interface of implicit grant related functions.
@@ -36,6 +41,31 @@ public interface ImplicitGrantService {
       String clientId,
       AuthorizationGrantSpec request) throws InternalException;
 
+  /**
+   * Issues an implicit access token for a client, without blocking the
+   * calling thread on the database.
+   *
+   * @param clientId The client identifier.
+   * @param request The access token request that contains required information.
+   * @return A future that completes with the access token response, or with
+   *         the exception that contains error detail.
+   */
+  CompletableFuture<AccessToken> issueAccessTokenAsync(
+      String clientId,
+      AuthorizationGrantSpec request);
+
+  /**
+   * Issues a number of implicit access tokens for a client at once.
+   *
+   * @param clientId The client identifier.
+   * @param request The bulk access token request that contains required information.
+   * @return A list of the access tokens.
+   * @throws InternalException The exception that contains error detail.
+   */
+  ApiList<AccessToken> issueAccessTokens(
+      String clientId,
+      BulkAuthorizationGrantSpec request) throws InternalException;
+
   /**
    * Gets a list of implicit access tokens issued to a particular client.
    *
@@ -45,6 +75,31 @@ public interface ImplicitGrantService {
    */
   ApiList<AccessToken> listAccessTokens(String clientId) throws InternalException;
 
+  /**
+   * Gets a page of implicit access tokens issued to a particular client.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  ApiList<AccessToken> listAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) throws InternalException;
+
+  /**
+   * Gets a lazy iterator over the implicit access tokens issued to a
+   * particular client, which loads the access tokens in chunks as it
+   * advances. The client is checked before the iterator is returned.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @return An iterator over access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  Iterator<AccessToken> iterateAccessTokens(String clientId) throws InternalException;
+
   /**
    * Revokes an implicit access token from a client.
    *
@@ -58,6 +113,18 @@ public interface ImplicitGrantService {
       String accessToken,
       AccessTokenRevokeSpec request) throws InternalException;
 
+  /**
+   * Revokes the listed implicit access tokens, or all implicit access tokens,
+   * from a client.
+   *
+   * @param clientId The client identifier.
+   * @param request The bulk access token revocation request that contains required information.
+   * @throws InternalException The error that contains detail information.
+   */
+  void revokeAccessTokens(
+      String clientId,
+      AccessTokenBulkRevokeSpec request) throws InternalException;
+
   /**
    * Gets an implicit access token with the given client identifier and token.
    *
@@ -69,4 +136,17 @@ public interface ImplicitGrantService {
   AccessToken getAccessToken(
       String clientId,
       String accessToken) throws InternalException;
+
+  /**
+   * Gets an implicit access token with the given client identifier and token,
+   * without blocking the calling thread on the database.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return A future that completes with the access token that matches the
+   *         criteria, or with the error that contains detail information.
+   */
+  CompletableFuture<AccessToken> getAccessTokenAsync(
+      String clientId,
+      String accessToken);
 }
@@ -14,7 +14,12 @@
 package com.ysheng.auth.core;
 
 import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
 import com.ysheng.auth.core.generator.AuthValueGenerator;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.core.util.FutureUtil;
+import com.ysheng.auth.core.util.PageUtil;
 import com.ysheng.auth.model.api.AccessTokenType;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.client.Client;
@@ -22,10 +27,23 @@ import com.ysheng.auth.model.api.exception.AccessTokenNotFoundException;
 import com.ysheng.auth.model.api.exception.ClientNotFoundException;
 import com.ysheng.auth.model.api.exception.ClientUnauthorizedException;
 import com.ysheng.auth.model.api.exception.InternalException;
+import com.ysheng.auth.model.api.exception.InvalidRequestException;
 import com.ysheng.auth.model.api.exception.ResponseTypeUnsupportedException;
 import com.ysheng.auth.model.api.implicit.AccessToken;
+import com.ysheng.auth.model.api.implicit.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AuthorizationGrantSpec;
+import com.ysheng.auth.model.api.implicit.BulkAuthorizationGrantSpec;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Implements implicit grant related functions.
@@ -38,17 +56,68 @@ public class ImplicitGrantServiceImpl implements ImplicitGrantService {
   // The auth code generator.
   private AuthValueGenerator authValueGenerator;
 
+  // The core configuration.
+  private CoreConfiguration configuration;
+
+  // The manager of signed access tokens, or null if access tokens are not signed.
+  private SignedAccessTokenManager signedAccessTokenManager;
+
+  // The verifier of client secrets.
+  private ClientCredentialVerifier credentialVerifier;
+
+  // The executor that runs the async operations.
+  private Executor executor;
+
   /**
-   * Constructs an ImplicitGrantServiceImpl object.
+   * Constructs an ImplicitGrantServiceImpl object with a client secret verifier, whose
+   * async operations run on the calling thread.
    *
    * @param database The database object to interact with persistence store.
    * @param authValueGenerator The generator object to generate auth related values.
+   * @param configuration The core configuration.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param credentialVerifier The verifier of client secrets.
    */
   public ImplicitGrantServiceImpl(
       Database database,
-      AuthValueGenerator authValueGenerator) {
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager,
+      ClientCredentialVerifier credentialVerifier) {
+    this(
+        database,
+        authValueGenerator,
+        configuration,
+        signedAccessTokenManager,
+        credentialVerifier,
+        FutureUtil.DIRECT_EXECUTOR);
+  }
+
+  /**
+   * Constructs an ImplicitGrantServiceImpl object with an executor of the async operations.
+   *
+   * @param database The database object to interact with persistence store.
+   * @param authValueGenerator The generator object to generate auth related values.
+   * @param configuration The core configuration.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param credentialVerifier The verifier of client secrets.
+   * @param executor The executor that runs the async operations.
+   */
+  public ImplicitGrantServiceImpl(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager,
+      ClientCredentialVerifier credentialVerifier,
+      Executor executor) {
     this.database = database;
     this.authValueGenerator = authValueGenerator;
+    this.configuration = configuration;
+    this.signedAccessTokenManager = signedAccessTokenManager;
+    this.credentialVerifier = credentialVerifier;
+    this.executor = executor;
   }
 
   /**
@@ -72,23 +141,63 @@ public class ImplicitGrantServiceImpl implements ImplicitGrantService {
       throw new ClientNotFoundException(clientId);
     }
 
-    String accessToken = authValueGenerator.generateAccessToken();
-
     // Store access token in databse.
-    AccessToken token = new AccessToken();
-    token.setClientId(clientId);
-    token.setAccessToken(accessToken);
-    token.setTokenType(AccessTokenType.BEARER);
-    // TODO: change how we calculate the token expiration.
-    // Also consider how to set scope.
-    token.setExpiresIn((long) Integer.MAX_VALUE);
-    token.setState(request.getState());
-
+    AccessToken token = createAccessToken(clientId, request);
     database.storeImplictAccessToken(token);
 
     return token;
   }
 
+  /**
+   * Issues an implicit access token for a client, on the executor of the service.
+   *
+   * @param clientId The client identifier.
+   * @param request The access token request that contains required information.
+   * @return A future that completes with the access token response, or with
+   *         the exception that contains error details.
+   */
+  public CompletableFuture<AccessToken> issueAccessTokenAsync(
+      String clientId,
+      AuthorizationGrantSpec request) {
+    return FutureUtil.supplyAsync(() -> issueAccessToken(clientId, request), executor);
+  }
+
+  /**
+   * Issues a number of implicit access tokens for a client at once. The
+   * access tokens are stored in the database in batches.
+   *
+   * @param clientId The client identifier.
+   * @param request The bulk access token request that contains required information.
+   * @return A list of the access tokens.
+   * @throws InternalException The exception that contains error detail.
+   */
+  public ApiList<AccessToken> issueAccessTokens(
+      String clientId,
+      BulkAuthorizationGrantSpec request) throws InternalException {
+    // Validate the request.
+    if (!AuthorizationGrantSpec.VALID_RESPONSE_TYPE.equals(request.getResponseType())) {
+      throw new ResponseTypeUnsupportedException(request.getResponseType());
+    }
+
+    if (request.getCount() <= 0 || request.getCount() > configuration.getMaxBulkAccessTokens()) {
+      throw new InvalidRequestException("Invalid count: " + request.getCount());
+    }
+
+    Client client = database.findClientById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    List<AccessToken> tokens = new ArrayList<>(request.getCount());
+    for (int i = 0; i < request.getCount(); ++i) {
+      tokens.add(createAccessToken(clientId, request));
+    }
+
+    database.storeImplicitAccessTokens(tokens);
+
+    return new ApiList<>(tokens);
+  }
+
   /**
    * Gets a list of implicit access tokens issued to a particular client.
    *
@@ -105,6 +214,52 @@ public class ImplicitGrantServiceImpl implements ImplicitGrantService {
     return new ApiList<>(database.listImplicitAccessTokens(clientId));
   }
 
+  /**
+   * Gets a page of implicit access tokens issued to a particular client.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of access tokens in the page.
+   * @return A page of access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  public ApiList<AccessToken> listAccessTokens(
+      String clientId,
+      String cursor,
+      int limit) throws InternalException {
+    // Validate the request.
+    if (limit <= 0) {
+      throw new InvalidRequestException("Invalid limit: " + limit);
+    }
+
+    Client client = database.findClientById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    return PageUtil.listPage(
+        cursor,
+        limit,
+        configuration.getMaxListLimit(),
+        (pageCursor, pageLimit) -> database.listImplicitAccessTokens(clientId, pageCursor, pageLimit));
+  }
+
+  /**
+   * Gets a lazy iterator over the implicit access tokens issued to a particular client.
+   *
+   * @param clientId The client identifier for which the access token was issued to.
+   * @return An iterator over access tokens.
+   * @throws InternalException The error that contains detail information.
+   */
+  public Iterator<AccessToken> iterateAccessTokens(String clientId) throws InternalException {
+    Client client = database.findClientById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    return database.iterateImplicitAccessTokens(clientId);
+  }
+
   /**
    * Revokes an implicit access token from a client.
    *
@@ -117,13 +272,12 @@ public class ImplicitGrantServiceImpl implements ImplicitGrantService {
       String clientId,
       String accessToken,
       AccessTokenRevokeSpec request) throws InternalException {
-    Client client = database.findClientById(clientId);
+    Client client = database.findClientCredentialsById(clientId);
     if (client == null) {
       throw new ClientNotFoundException(clientId);
     }
 
-    if (client.getSecret() != null &&
-        !client.getSecret().equals(request.getClientSecret())) {
+    if (!credentialVerifier.verify(client, request.getClientSecret())) {
       throw new ClientUnauthorizedException(clientId);
     }
 
@@ -132,7 +286,62 @@ public class ImplicitGrantServiceImpl implements ImplicitGrantService {
       throw new AccessTokenNotFoundException(clientId, accessToken);
     }
 
-    database.removeAccessToken(clientId, accessToken);
+    // A signed access token stays valid without the stored one, so it is
+    // revoked first.
+    if (signedAccessTokenManager != null) {
+      signedAccessTokenManager.revoke(accessToken);
+    }
+
+    database.removeImplictAccessToken(clientId, accessToken);
+  }
+
+  /**
+   * Revokes the listed implicit access tokens, or all implicit access tokens,
+   * from a client. Listed access tokens that do not exist are ignored.
+   *
+   * @param clientId The client identifier.
+   * @param request The bulk access token revocation request that contains required information.
+   * @throws InternalException The error that contains detail information.
+   */
+  public void revokeAccessTokens(
+      String clientId,
+      AccessTokenBulkRevokeSpec request) throws InternalException {
+    // Validate the request.
+    List<String> requestedAccessTokens =
+        request.getAccessTokens() == null ? Collections.emptyList() : request.getAccessTokens();
+    if (request.isAll() != requestedAccessTokens.isEmpty()) {
+      throw new InvalidRequestException("Either access tokens or all must be given");
+    }
+
+    if (requestedAccessTokens.size() > configuration.getMaxBulkAccessTokens()) {
+      throw new InvalidRequestException("Too many access tokens: " + requestedAccessTokens.size());
+    }
+
+    Client client = database.findClientCredentialsById(clientId);
+    if (client == null) {
+      throw new ClientNotFoundException(clientId);
+    }
+
+    if (!credentialVerifier.verify(client, request.getClientSecret())) {
+      throw new ClientUnauthorizedException(clientId);
+    }
+
+    if (!request.isAll()) {
+      revokeAccessTokenBatch(clientId, new LinkedHashSet<>(requestedAccessTokens));
+      return;
+    }
+
+    // All the access tokens are revoked in batches as the index is scanned,
+    // so that the access tokens of a client are never held in memory at once.
+    Iterator<String> accessTokens = database.iterateImplicitAccessTokenStrings(clientId);
+    List<String> batch = new ArrayList<>();
+    while (accessTokens.hasNext()) {
+      batch.add(accessTokens.next());
+      if (batch.size() >= configuration.getMaxBulkAccessTokens() || !accessTokens.hasNext()) {
+        revokeAccessTokenBatch(clientId, batch);
+        batch = new ArrayList<>();
+      }
+    }
   }
 
   /**
@@ -146,6 +355,23 @@ public class ImplicitGrantServiceImpl implements ImplicitGrantService {
   public AccessToken getAccessToken(
       String clientId,
       String accessToken) throws InternalException {
+    // Signed access tokens are validated without a database lookup.
+    if (signedAccessTokenManager != null && signedAccessTokenManager.canValidate(accessToken)) {
+      SignedAccessTokenClaims claims =
+          signedAccessTokenManager.validate(SignedAccessTokenClaims.Grant.IMPLICIT, clientId, accessToken);
+      if (claims == null) {
+        throw new AccessTokenNotFoundException(clientId, accessToken);
+      }
+
+      return toAccessToken(accessToken, claims);
+    }
+
+    // Unknown access tokens are ruled out before the client lookup, as most of
+    // them are guessed ones.
+    if (!database.mayContainImplicitAccessToken(clientId, accessToken)) {
+      throw new AccessTokenNotFoundException(clientId, accessToken);
+    }
+
     Client client = database.findClientById(clientId);
     if (client == null) {
       throw new ClientNotFoundException(clientId);
@@ -158,4 +384,102 @@ public class ImplicitGrantServiceImpl implements ImplicitGrantService {
 
     return token;
   }
+
+  /**
+   * Gets an implicit access token with the given client identifier and token, on
+   * the executor of the service. Signed access tokens are validated without a
+   * database lookup, so they are validated on the calling thread.
+   *
+   * @param clientId The client identifier.
+   * @param accessToken The access token.
+   * @return A future that completes with the access token that matches the
+   *         criteria, or with the error that contains detail information.
+   */
+  public CompletableFuture<AccessToken> getAccessTokenAsync(
+      String clientId,
+      String accessToken) {
+    Executor validationExecutor =
+        signedAccessTokenManager != null && signedAccessTokenManager.canValidate(accessToken) ?
+            FutureUtil.DIRECT_EXECUTOR : executor;
+
+    return FutureUtil.supplyAsync(() -> getAccessToken(clientId, accessToken), validationExecutor);
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  /**
+   * Creates an implicit access token for a client.
+   *
+   * @param clientId The client identifier.
+   * @param request The access token request that contains required information.
+   * @return The access token object.
+   */
+  private AccessToken createAccessToken(
+      String clientId,
+      AuthorizationGrantSpec request) {
+    AccessToken token = new AccessToken();
+    token.setClientId(clientId);
+    token.setTokenType(AccessTokenType.BEARER);
+    // TODO: consider how to set scope.
+    token.setExpiresIn(configuration.getImplicitAccessTokenLifetimeSeconds());
+    token.setAccessToken(generateAccessToken(clientId, token.getScope(), token.getExpiresIn()));
+    token.setState(request.getState());
+    return token;
+  }
+
+  /**
+   * Generates an access token, which is signed if signed access tokens are enabled.
+   *
+   * @param clientId The client identifier.
+   * @param scope The scope of the access token.
+   * @param lifetimeSeconds The lifetime in seconds of the access token.
+   * @return The access token.
+   */
+  private String generateAccessToken(
+      String clientId,
+      String scope,
+      long lifetimeSeconds) {
+    if (signedAccessTokenManager == null) {
+      return authValueGenerator.generateAccessToken();
+    }
+
+    return signedAccessTokenManager.issue(SignedAccessTokenClaims.Grant.IMPLICIT, clientId, scope, lifetimeSeconds);
+  }
+
+  /**
+   * Builds an access token from the claims of a signed access token.
+   *
+   * @param accessToken The access token.
+   * @param claims The claims of the access token.
+   * @return The access token object.
+   */
+  private static AccessToken toAccessToken(
+      String accessToken,
+      SignedAccessTokenClaims claims) {
+    AccessToken token = new AccessToken();
+    token.setClientId(claims.getClientId());
+    token.setAccessToken(accessToken);
+    token.setTokenType(AccessTokenType.BEARER);
+    token.setExpiresIn(claims.getExpiresAt() - claims.getIssuedAt());
+    token.setScope(claims.getScope());
+    return token;
+  }
+
+  /**
+   * Revokes a batch of implicit access tokens from a client.
+   *
+   * @param clientId The client identifier.
+   * @param accessTokens The access tokens.
+   */
+  private void revokeAccessTokenBatch(String clientId, Collection<String> accessTokens) {
+    // A signed access token stays valid without the stored one, so it is
+    // revoked first.
+    if (signedAccessTokenManager != null) {
+      signedAccessTokenManager.revokeAll(SignedAccessTokenClaims.Grant.IMPLICIT, clientId, accessTokens);
+    }
+
+    database.removeImplicitAccessTokens(clientId, accessTokens);
+  }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.cleanup;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Removes the authorization tickets and access tokens of unregistered clients
+ * in the background. Unregistering a client only tombstones it, and the worker
+ * periodically removes the entities of the tombstoned clients in bounded
+ * batches, pausing after each batch so that the removal rate stays under a
+ * limit. The tombstone of a client is removed once it has no entities left,
+ * so a client whose cleanup fails is picked up again by the next run. The
+ * signed access tokens of the client are revoked as well, in case the client
+ * is tombstoned without being revoked. Every instance runs a worker, and a
+ * worker only cleans up a client while it holds the lease on it, which it
+ * renews after each batch, so that one instance works on a client at a time.
+ */
+public class ClientCleanupWorker {
+
+  // The database that stores the clients and their entities.
+  private final Database database;
+
+  // The manager of signed access tokens, or null if access tokens are not signed.
+  private final SignedAccessTokenManager signedAccessTokenManager;
+
+  // The maximum number of entities that are removed in one batch.
+  private final int batchSize;
+
+  // The maximum number of entities that are removed per second.
+  private final int maxEntitiesPerSecond;
+
+  // The lifetime in milliseconds of the lease on the cleanup of a client.
+  private final long leaseMillis;
+
+  // The identifier of the worker as the owner of the leases.
+  private final String owner;
+
+  // The function that pauses the worker for the given number of milliseconds.
+  private final LongConsumer sleeper;
+
+  // The executor that runs the cleanup.
+  private final ScheduledExecutorService cleanupExecutor;
+
+  // The number of tombstoned clients that are not cleaned up yet.
+  private final AtomicInteger pendingClientCount;
+
+  // The number of clients that are cleaned up.
+  private final AtomicLong cleanedClientCount;
+
+  // The number of entities that are removed.
+  private final AtomicLong removedEntityCount;
+
+  /**
+   * Constructs a ClientCleanupWorker object, which starts running the cleanup
+   * periodically.
+   *
+   * @param database The database that stores the clients and their entities.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @param batchSize The maximum number of entities that are removed in one batch.
+   * @param maxEntitiesPerSecond The maximum number of entities that are removed per second.
+   * @param intervalSeconds The interval between runs of the cleanup in seconds,
+   *                        or zero to only run it on demand.
+   * @param leaseMillis The lifetime in milliseconds of the lease on the cleanup of a client.
+   * @param sleeper The function that pauses the worker for the given number of milliseconds.
+   */
+  public ClientCleanupWorker(
+      Database database,
+      SignedAccessTokenManager signedAccessTokenManager,
+      int batchSize,
+      int maxEntitiesPerSecond,
+      long intervalSeconds,
+      long leaseMillis,
+      LongConsumer sleeper) {
+    this.database = database;
+    this.signedAccessTokenManager = signedAccessTokenManager;
+    this.batchSize = batchSize;
+    this.maxEntitiesPerSecond = maxEntitiesPerSecond;
+    this.leaseMillis = leaseMillis;
+    this.owner = UUID.randomUUID().toString();
+    this.sleeper = sleeper;
+    this.pendingClientCount = new AtomicInteger();
+    this.cleanedClientCount = new AtomicLong();
+    this.removedEntityCount = new AtomicLong();
+    this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "client-cleanup-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (intervalSeconds > 0) {
+      cleanupExecutor.scheduleWithFixedDelay(this::tryCleanUp, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Removes the entities of all tombstoned clients, and then their tombstones.
+   * A client whose entities fail to be removed keeps its tombstone, and the
+   * other clients are still cleaned up. A client whose lease is held by
+   * another instance is skipped.
+   */
+  public void cleanUp() {
+    List<String> clientIds = database.listTombstonedClients();
+    pendingClientCount.set(clientIds.size());
+
+    for (String clientId : clientIds) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+
+      try {
+        if (!database.tryLeaseClientCleanup(clientId, owner, leaseMillis)) {
+          continue;
+        }
+
+        try {
+          if (signedAccessTokenManager != null) {
+            signedAccessTokenManager.revokeClient(clientId);
+          }
+
+          if (cleanUp(clientId)) {
+            database.removeClientTombstone(clientId);
+            cleanedClientCount.incrementAndGet();
+            pendingClientCount.decrementAndGet();
+          }
+        } finally {
+          database.releaseClientCleanupLease(clientId, owner);
+        }
+      } catch (RuntimeException ex) {
+        // The client keeps its tombstone, and is cleaned up again by the next run.
+      }
+    }
+  }
+
+  /**
+   * Gets the number of tombstoned clients that are not cleaned up yet, as of
+   * the current or the last run.
+   *
+   * @return The number of clients.
+   */
+  public int getPendingClientCount() {
+    return pendingClientCount.get();
+  }
+
+  /**
+   * Gets the number of clients that are cleaned up since the worker started.
+   *
+   * @return The number of clients.
+   */
+  public long getCleanedClientCount() {
+    return cleanedClientCount.get();
+  }
+
+  /**
+   * Gets the number of entities that are removed since the worker started.
+   *
+   * @return The number of entities.
+   */
+  public long getRemovedEntityCount() {
+    return removedEntityCount.get();
+  }
+
+  /**
+   * Stops running the cleanup. A batch that is being removed is completed.
+   */
+  public void close() {
+    cleanupExecutor.shutdownNow();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private boolean cleanUp(String clientId) {
+    while (!Thread.currentThread().isInterrupted()) {
+      int removed = database.removeClientEntities(clientId, batchSize).getCount();
+      if (removed == 0) {
+        return true;
+      }
+
+      removedEntityCount.addAndGet(removed);
+      sleeper.accept(removed * 1000L / maxEntitiesPerSecond);
+
+      // The lease is renewed for the next batch, and the cleanup stops if it
+      // has expired and another instance has taken it over.
+      if (!database.tryLeaseClientCleanup(clientId, owner, leaseMillis)) {
+        return false;
+      }
+    }
+
+    return false;
+  }
+
+  private void tryCleanUp() {
+    try {
+      cleanUp();
+    } catch (RuntimeException ex) {
+      // The tombstones are kept, and the cleanup runs again after the next interval.
+    }
+  }
+}
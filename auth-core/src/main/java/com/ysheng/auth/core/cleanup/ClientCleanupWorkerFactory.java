@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.cleanup;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.model.configuration.core.ClientCleanupConfiguration;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Defines the factory that produces client cleanup workers.
+ */
+public class ClientCleanupWorkerFactory {
+
+  // The function that pauses the worker for the given number of milliseconds.
+  private static final LongConsumer sleeper = millis -> {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  };
+
+  /**
+   * Produces a client cleanup worker.
+   *
+   * @param database The database that stores the clients and their entities.
+   * @param configuration The client cleanup configuration.
+   * @param signedAccessTokenManager The manager of signed access tokens, or null if
+   *                                 access tokens are not signed.
+   * @return A client cleanup worker, or null if the cleanup is disabled.
+   */
+  public ClientCleanupWorker produce(
+      Database database,
+      ClientCleanupConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager) {
+    if (configuration == null || !configuration.isEnabled()) {
+      return null;
+    }
+
+    if (configuration.getIntervalSeconds() <= 0) {
+      throw new IllegalArgumentException("Invalid cleanup interval: " + configuration.getIntervalSeconds());
+    }
+
+    if (configuration.getBatchSize() <= 0) {
+      throw new IllegalArgumentException("Invalid cleanup batch size: " + configuration.getBatchSize());
+    }
+
+    if (configuration.getMaxEntitiesPerSecond() <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid maximum number of entities per second: " + configuration.getMaxEntitiesPerSecond());
+    }
+
+    // The lease is renewed after each batch and the pause after it.
+    long batchMillis = configuration.getBatchSize() * 1000L / configuration.getMaxEntitiesPerSecond();
+    if (configuration.getLeaseMillis() <= batchMillis) {
+      throw new IllegalArgumentException(
+          "Cleanup lease does not outlast the pause after a batch: " + configuration.getLeaseMillis());
+    }
+
+    return new ClientCleanupWorker(
+        database,
+        signedAccessTokenManager,
+        configuration.getBatchSize(),
+        configuration.getMaxEntitiesPerSecond(),
+        configuration.getIntervalSeconds(),
+        configuration.getLeaseMillis(),
+        sleeper);
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.credential;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.configuration.core.ClientCredentialConfiguration;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashes client secrets with salted PBKDF2, and verifies presented client
+ * secrets against the stored ones in constant time. Verifications are memoized
+ * under a keyed digest of the client, the stored secret and the presented
+ * secret, so the slow hash only runs on a cache miss. Failed verifications are
+ * memoized for a shorter time, so that a client that keeps presenting a wrong
+ * secret does not keep the slow hash busy. Client secrets that were stored in
+ * plaintext before hashing was introduced are still verified, and are replaced
+ * with their hashes once they are verified.
+ */
+public class ClientCredentialVerifier {
+
+  // The prefix of a hashed client secret, which is followed by the number of
+  // iterations, the salt and the hash, separated by '$'.
+  private static final String HASH_PREFIX = "pbkdf2-sha256$";
+
+  // The key derivation algorithm.
+  private static final String HASH_ALGORITHM = "PBKDF2WithHmacSHA256";
+
+  // The number of bytes of a salt.
+  private static final int SALT_LENGTH = 16;
+
+  // The number of bits of a hash.
+  private static final int HASH_BITS = 256;
+
+  // The MAC algorithm of the cache keys and of the plaintext comparisons.
+  private static final String DIGEST_ALGORITHM = "HmacSHA256";
+
+  // The encoder of the salts and the hashes.
+  private static final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+
+  // The decoder of the salts and the hashes.
+  private static final Base64.Decoder decoder = Base64.getDecoder();
+
+  // The number of iterations of a new hash.
+  private final int hashIterations;
+
+  // The memoized verifications by their digests.
+  private final VerificationCache verificationCache;
+
+  // The database that the rehashed plaintext client secrets are stored in.
+  private final Database database;
+
+  // The MACs that digest the verifications, with a key that only lives in
+  // this process. A MAC is not thread-safe, so every thread has its own.
+  private final ThreadLocal<Mac> digestMac;
+
+  // The source of the salts.
+  private final SecureRandom random;
+
+  /**
+   * Constructs a ClientCredentialVerifier object.
+   *
+   * @param configuration The client credential configuration.
+   * @param database The database that the rehashed plaintext client secrets are stored in.
+   */
+  public ClientCredentialVerifier(
+      ClientCredentialConfiguration configuration,
+      Database database) {
+    this(configuration, database, System::nanoTime);
+  }
+
+  /**
+   * Constructs a ClientCredentialVerifier object.
+   *
+   * @param configuration The client credential configuration.
+   * @param database The database that the rehashed plaintext client secrets are stored in.
+   * @param clock The clock that returns the current time in nanoseconds.
+   */
+  public ClientCredentialVerifier(
+      ClientCredentialConfiguration configuration,
+      Database database,
+      LongSupplier clock) {
+    if (configuration.getHashIterations() <= 0) {
+      throw new IllegalArgumentException("Invalid number of hash iterations: " + configuration.getHashIterations());
+    }
+
+    this.hashIterations = configuration.getHashIterations();
+    this.verificationCache = new VerificationCache(
+        configuration.getVerificationCacheSize(),
+        TimeUnit.SECONDS.toNanos(configuration.getVerificationCacheTtlSeconds()),
+        TimeUnit.SECONDS.toNanos(configuration.getVerificationCacheNegativeTtlSeconds()),
+        clock);
+    this.database = database;
+    this.random = new SecureRandom();
+
+    byte[] digestKey = new byte[32];
+    random.nextBytes(digestKey);
+    SecretKeySpec digestKeySpec = new SecretKeySpec(digestKey, DIGEST_ALGORITHM);
+    this.digestMac = ThreadLocal.withInitial(() -> {
+      try {
+        Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+        mac.init(digestKeySpec);
+        return mac;
+      } catch (GeneralSecurityException ex) {
+        throw new IllegalStateException("Cannot create " + DIGEST_ALGORITHM + " MAC", ex);
+      }
+    });
+  }
+
+  /**
+   * Hashes a client secret for storage.
+   *
+   * @param secret The client secret, or null if the client has none.
+   * @return The hashed client secret, or null if the client has none.
+   */
+  public String hash(String secret) {
+    if (secret == null) {
+      return null;
+    }
+
+    byte[] salt = new byte[SALT_LENGTH];
+    random.nextBytes(salt);
+
+    return HASH_PREFIX + hashIterations + "$" +
+        encoder.encodeToString(salt) + "$" +
+        encoder.encodeToString(derive(secret, salt, hashIterations));
+  }
+
+  /**
+   * Verifies the client secret that a client presents. A client secret that
+   * is stored in plaintext is replaced with its hash once it is verified.
+   *
+   * @param client The client, which holds the stored client secret.
+   * @param presentedSecret The client secret that the client presents.
+   * @return True if the client has no secret or the presented one matches it, false otherwise.
+   */
+  public boolean verify(
+      Client client,
+      String presentedSecret) {
+    String storedSecret = client.getSecret();
+    if (storedSecret == null) {
+      return true;
+    }
+
+    if (presentedSecret == null) {
+      return false;
+    }
+
+    String key = cacheKey(client.getId(), storedSecret, presentedSecret);
+    Boolean cached = verificationCache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    boolean verified = matches(storedSecret, presentedSecret);
+    verificationCache.put(key, verified);
+    if (verified && !storedSecret.startsWith(HASH_PREFIX)) {
+      rehash(client.getId(), storedSecret);
+    }
+
+    return verified;
+  }
+
+  /**
+   * Gets the cache of verifications, e.g. to report its statistics.
+   *
+   * @return The verification cache.
+   */
+  public VerificationCache getVerificationCache() {
+    return verificationCache;
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private boolean matches(String storedSecret, String presentedSecret) {
+    if (!storedSecret.startsWith(HASH_PREFIX)) {
+      // Client secrets that were stored in plaintext are compared by their
+      // digests, which have the same length whatever the secrets are.
+      return MessageDigest.isEqual(digest(storedSecret), digest(presentedSecret));
+    }
+
+    String[] parts = storedSecret.substring(HASH_PREFIX.length()).split("\\$");
+    if (parts.length != 3) {
+      return false;
+    }
+
+    try {
+      int iterations = Integer.parseInt(parts[0]);
+      byte[] salt = decoder.decode(parts[1]);
+      byte[] hash = decoder.decode(parts[2]);
+      return iterations > 0 && MessageDigest.isEqual(hash, derive(presentedSecret, salt, iterations));
+    } catch (IllegalArgumentException ex) {
+      return false;
+    }
+  }
+
+  private void rehash(String clientId, String plaintextSecret) {
+    try {
+      database.updateClientSecret(clientId, plaintextSecret, hash(plaintextSecret));
+    } catch (RuntimeException ex) {
+      // The client secret still verifies in plaintext, and it is rehashed
+      // again once its verification is no longer memoized.
+    }
+  }
+
+  private static byte[] derive(String secret, byte[] salt, int iterations) {
+    PBEKeySpec keySpec = new PBEKeySpec(secret.toCharArray(), salt, iterations, HASH_BITS);
+    try {
+      return SecretKeyFactory.getInstance(HASH_ALGORITHM).generateSecret(keySpec).getEncoded();
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException("Cannot hash client secret with " + HASH_ALGORITHM, ex);
+    } finally {
+      keySpec.clearPassword();
+    }
+  }
+
+  private byte[] digest(String value) {
+    return digestMac.get().doFinal(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String cacheKey(String... values) {
+    Mac mac = digestMac.get();
+    for (String value : values) {
+      byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+      // The values are length-prefixed, so that no two tuples share a digest.
+      mac.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+      mac.update(bytes);
+    }
+    return encoder.encodeToString(mac.doFinal());
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.core.credential;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
+
+/**
+ * Defines the factory that produces client credential verifiers.
+ */
+public class ClientCredentialVerifierFactory {
+
+  /**
+   * Produces a client credential verifier, which is meant to be shared by all
+   * the services, so that they share its memoized verifications.
+   *
+   * @param database The database that the rehashed plaintext client secrets are stored in.
+   * @param configuration The core configuration, which has the client credential configuration.
+   * @return A client credential verifier.
+   */
+  public ClientCredentialVerifier produce(
+      Database database,
+      CoreConfiguration configuration) {
+    return new ClientCredentialVerifier(configuration.getClientCredentialConfiguration(), database);
+  }
+}
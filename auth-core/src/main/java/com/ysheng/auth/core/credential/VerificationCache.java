@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.core.credential;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Defines a bounded cache of the results of client secret verifications by
+ * their digests. Successful and failed verifications expire after separate
+ * times to live. Lookups never block each other. Once the cache is full, the
+ * expired results are dropped, and an arbitrary result is evicted if none of
+ * them has expired.
+ */
+public class VerificationCache {
+
+  // The maximum number of cached results.
+  private final int maximumSize;
+
+  // The time to live of a successful verification in nanoseconds.
+  private final long ttlNanos;
+
+  // The time to live of a failed verification in nanoseconds.
+  private final long negativeTtlNanos;
+
+  // The clock that returns the current time in nanoseconds.
+  private final LongSupplier clock;
+
+  // The cached results by their digests.
+  private final Map<String, Entry> entries;
+
+  // The number of lookups that are served by the cache.
+  private final LongAdder hitCount;
+
+  // The number of lookups that are not served by the cache.
+  private final LongAdder missCount;
+
+  // The number of results that are evicted to make room for others.
+  private final LongAdder evictionCount;
+
+  /**
+   * Constructs a VerificationCache object.
+   *
+   * @param maximumSize The maximum number of cached results.
+   * @param ttlNanos The time to live of a successful verification in nanoseconds.
+   * @param negativeTtlNanos The time to live of a failed verification in nanoseconds,
+   *                         or zero to not cache failed verifications.
+   * @param clock The clock that returns the current time in nanoseconds.
+   */
+  public VerificationCache(
+      int maximumSize,
+      long ttlNanos,
+      long negativeTtlNanos,
+      LongSupplier clock) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+
+    this.maximumSize = maximumSize;
+    this.ttlNanos = ttlNanos;
+    this.negativeTtlNanos = negativeTtlNanos;
+    this.clock = clock;
+    this.entries = new ConcurrentHashMap<>();
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.evictionCount = new LongAdder();
+  }
+
+  /**
+   * Gets the cached result of a verification.
+   *
+   * @param key The digest of the verification.
+   * @return The result of the verification, or null if it is not cached or has expired.
+   */
+  public Boolean get(String key) {
+    Entry entry = entries.get(key);
+    if (entry == null || entry.expiresAt - clock.getAsLong() <= 0) {
+      missCount.increment();
+      return null;
+    }
+
+    hitCount.increment();
+    return entry.verified;
+  }
+
+  /**
+   * Caches the result of a verification.
+   *
+   * @param key The digest of the verification.
+   * @param verified The result of the verification.
+   */
+  public void put(String key, boolean verified) {
+    long ttl = verified ? ttlNanos : negativeTtlNanos;
+    if (ttl <= 0) {
+      return;
+    }
+
+    long now = clock.getAsLong();
+    if (entries.size() >= maximumSize && !entries.containsKey(key)) {
+      makeRoom(now);
+    }
+
+    entries.put(key, new Entry(verified, now + ttl));
+  }
+
+  ///
+  /// Statistics.
+  ///
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private void makeRoom(long now) {
+    entries.values().removeIf(entry -> entry.expiresAt - now <= 0);
+
+    Iterator<String> keys = entries.keySet().iterator();
+    while (entries.size() >= maximumSize && keys.hasNext()) {
+      keys.next();
+      keys.remove();
+      evictionCount.increment();
+    }
+  }
+
+  /**
+   * Defines a cached result with its expiry time.
+   */
+  private static class Entry {
+
+    // Whether the verification succeeded.
+    private final boolean verified;
+
+    // The time in nanoseconds at which the result expires.
+    private final long expiresAt;
+
+    public Entry(boolean verified, long expiresAt) {
+      this.verified = verified;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
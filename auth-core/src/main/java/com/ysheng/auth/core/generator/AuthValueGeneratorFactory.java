@@ -15,6 +15,8 @@ package com.ysheng.auth.core.generator;
 
 import com.ysheng.auth.model.configuration.core.AuthValueGeneratorConfiguration;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Defines a factory that produces auth value generator.
  */
@@ -31,15 +33,33 @@ public class AuthValueGeneratorFactory {
       configuration = new AuthValueGeneratorConfiguration();
     }
 
+    int nodeId = getNodeId(configuration);
+
     return new AuthValueGeneratorImpl(
-        produceValueGenerator(configuration.getClientIdGeneratorType()),
-        produceValueGenerator(configuration.getClientSecretGeneratorType()),
-        produceValueGenerator(configuration.getAuthCodeGeneratorType()),
-        produceValueGenerator(configuration.getAccessTokenGeneratorType())
+        produceValueGenerator(configuration.getClientIdGeneratorType(), configuration, nodeId),
+        produceSecretValueGenerator(configuration.getClientSecretGeneratorType(), configuration, "client secret"),
+        produceSecretValueGenerator(configuration.getAuthCodeGeneratorType(), configuration, "auth code"),
+        produceSecretValueGenerator(configuration.getAccessTokenGeneratorType(), configuration, "access token")
     );
   }
 
-  private ValueGenerator produceValueGenerator(String valueGeneratorType) {
+  private ValueGenerator produceSecretValueGenerator(
+      String valueGeneratorType,
+      AuthValueGeneratorConfiguration configuration,
+      String valueName) {
+    // A UUID7 value carries a timestamp and a node identifier, which leaves
+    // too few random bits for a value that must not be guessed.
+    if (valueGeneratorType != null && valueGeneratorType.trim().equalsIgnoreCase("UUID7")) {
+      throw new IllegalArgumentException("Value generator type UUID7 is not allowed for " + valueName);
+    }
+
+    return produceValueGenerator(valueGeneratorType, configuration, 0);
+  }
+
+  private ValueGenerator produceValueGenerator(
+      String valueGeneratorType,
+      AuthValueGeneratorConfiguration configuration,
+      int nodeId) {
     if (valueGeneratorType == null) {
       throw new IllegalArgumentException("Value generator type cannot be null");
     }
@@ -48,6 +68,27 @@ public class AuthValueGeneratorFactory {
       return new UuidGenerator();
     }
 
+    if (valueGeneratorType.trim().equalsIgnoreCase("BUFFERED_UUID")) {
+      return new BufferedUuidGenerator();
+    }
+
+    if (valueGeneratorType.trim().equalsIgnoreCase("UUID7")) {
+      return new TimeOrderedUuidGenerator(nodeId);
+    }
+
+    if (valueGeneratorType.trim().equalsIgnoreCase("BASE64URL")) {
+      return new Base64UrlGenerator(configuration.getBase64UrlGeneratorBytes());
+    }
+
     throw new IllegalArgumentException("Unknown value generator type: " + valueGeneratorType);
   }
+
+  private int getNodeId(AuthValueGeneratorConfiguration configuration) {
+    if (configuration.getNodeId() != null) {
+      return configuration.getNodeId();
+    }
+
+    // Values of nodes that share an identifier still differ in their random bits.
+    return ThreadLocalRandom.current().nextInt(TimeOrderedUuidGenerator.MAX_NODE_ID + 1);
+  }
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.generator;
+
+import java.util.Base64;
+
+/**
+ * Defines the generator class that generates random URL-safe base64 values
+ * without padding, from per-thread buffers of secure random bytes. A value of
+ * 16 random bytes is 22 characters long, while a UUID of 122 random bits is
+ * 36 characters long.
+ */
+public class Base64UrlGenerator implements ValueGenerator<String> {
+
+  // The minimum number of random bytes in a value, which is 128 bits.
+  public static final int MIN_BYTES = 16;
+
+  // The encoder of the values.
+  private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+  // The number of random bytes in a value.
+  private final int numberOfBytes;
+
+  /**
+   * Constructs a Base64UrlGenerator object.
+   *
+   * @param numberOfBytes The number of random bytes in a value.
+   */
+  public Base64UrlGenerator(int numberOfBytes) {
+    if (numberOfBytes < MIN_BYTES) {
+      throw new IllegalArgumentException(
+          "Number of random bytes must be at least " + MIN_BYTES + ": " + numberOfBytes);
+    }
+
+    this.numberOfBytes = numberOfBytes;
+  }
+
+  /**
+   * Generates an URL-safe base64 value.
+   *
+   * @return An URL-safe base64 value.
+   */
+  public String generate() {
+    byte[] bytes = new byte[numberOfBytes];
+    SecureRandomPool.nextBytes(bytes);
+    return encoder.encodeToString(bytes);
+  }
+}
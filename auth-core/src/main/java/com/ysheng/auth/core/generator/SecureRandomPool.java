@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.generator;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Hands out secure random bytes from per-thread buffers. Every thread has its
+ * own generator, which fills a buffer in bulk, so that threads do not contend
+ * on the shared generator behind {@link java.util.UUID#randomUUID()}.
+ */
+class SecureRandomPool {
+
+  // The number of random bytes that a thread draws from its generator at once.
+  private static final int BUFFER_SIZE = 4096;
+
+  // The number of random bytes that a generator produces before it is reseeded.
+  private static final long RESEED_INTERVAL_BYTES = 1L << 20;
+
+  // The number of seed bytes that are mixed into a generator when it is reseeded.
+  private static final int SEED_SIZE = 32;
+
+  // The shared generator that seeds the per-thread generators. It is only
+  // used once per reseed interval, so it is not contended.
+  private static final SecureRandom seedSource = new SecureRandom();
+
+  // The buffers of the threads.
+  private static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+  /**
+   * Fills a byte array with secure random bytes.
+   *
+   * @param bytes The byte array to be filled.
+   */
+  static void nextBytes(byte[] bytes) {
+    buffers.get().nextBytes(bytes);
+  }
+
+  ///
+  /// Helper classes.
+  ///
+
+  /**
+   * Defines the buffer of random bytes of a thread.
+   */
+  private static class Buffer {
+
+    // The generator of the thread.
+    private final SecureRandom random;
+
+    // The random bytes that are not handed out yet, from the position on.
+    private final byte[] bytes;
+
+    // The position of the next random byte in the buffer.
+    private int position;
+
+    // The number of random bytes that the generator produced since it was seeded.
+    private long bytesSinceSeed;
+
+    Buffer() {
+      this.random = createRandom();
+      this.bytes = new byte[BUFFER_SIZE];
+      this.position = BUFFER_SIZE;
+      reseed();
+    }
+
+    void nextBytes(byte[] destination) {
+      int offset = 0;
+      while (offset < destination.length) {
+        if (position == bytes.length) {
+          refill();
+        }
+
+        int length = Math.min(destination.length - offset, bytes.length - position);
+        System.arraycopy(bytes, position, destination, offset, length);
+        // The handed out bytes are cleared, so that they do not linger in
+        // the buffer.
+        Arrays.fill(bytes, position, position + length, (byte) 0);
+        position += length;
+        offset += length;
+      }
+    }
+
+    private void refill() {
+      if (bytesSinceSeed >= RESEED_INTERVAL_BYTES) {
+        reseed();
+      }
+
+      random.nextBytes(bytes);
+      position = 0;
+      bytesSinceSeed += bytes.length;
+    }
+
+    private void reseed() {
+      byte[] seed = new byte[SEED_SIZE];
+      synchronized (seedSource) {
+        seedSource.nextBytes(seed);
+      }
+      random.setSeed(seed);
+      bytesSinceSeed = 0;
+    }
+
+    private static SecureRandom createRandom() {
+      try {
+        // SHA1PRNG instances are independent of each other, unlike the
+        // default native generator, whose instances share one lock.
+        return SecureRandom.getInstance("SHA1PRNG");
+      } catch (NoSuchAlgorithmException ex) {
+        return new SecureRandom();
+      }
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.generator;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Defines the generator class that generates time-ordered UUID values in the
+ * version 7 layout, which embed the node that generated them. The values
+ * sort by creation time, both as UUIDs and as strings, and are laid out as:
+ *
+ * <pre>
+ *   48 bits  unix time in milliseconds
+ *    4 bits  version (7)
+ *   12 bits  sequence, high bits
+ *    2 bits  variant (IETF)
+ *   10 bits  sequence, low bits
+ *   10 bits  node identifier
+ *   42 bits  random
+ * </pre>
+ *
+ * The sequence orders the values within a millisecond. When it runs out, or
+ * when the clock goes back, the timestamp moves ahead of the clock, so the
+ * values of a node are strictly increasing. Values of different nodes differ
+ * in the node identifier, and in the random bits should two nodes share one.
+ */
+public class TimeOrderedUuidGenerator implements ValueGenerator<UUID> {
+
+  // The number of bits of the node identifier.
+  private static final int NODE_BITS = 10;
+
+  // The largest node identifier.
+  public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+  // The number of bits of the sequence.
+  private static final int SEQUENCE_BITS = 22;
+
+  // The number of bits of the sequence in the least significant bits.
+  private static final int SEQUENCE_LOW_BITS = 10;
+
+  // The number of random bits.
+  private static final int RANDOM_BITS = 42;
+
+  // The identifier of the node.
+  private final int nodeId;
+
+  // The clock that returns the current time in milliseconds since the epoch.
+  private final LongSupplier clock;
+
+  // The timestamp and the sequence of the last value, as an unsigned number,
+  // which holds timestamps until the year 2109.
+  private final AtomicLong state;
+
+  /**
+   * Constructs a TimeOrderedUuidGenerator object.
+   *
+   * @param nodeId The identifier of the node, from 0 to {@link #MAX_NODE_ID}.
+   */
+  public TimeOrderedUuidGenerator(int nodeId) {
+    this(nodeId, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructs a TimeOrderedUuidGenerator object.
+   *
+   * @param nodeId The identifier of the node, from 0 to {@link #MAX_NODE_ID}.
+   * @param clock The clock that returns the current time in milliseconds since the epoch.
+   */
+  public TimeOrderedUuidGenerator(
+      int nodeId,
+      LongSupplier clock) {
+    if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+      throw new IllegalArgumentException("Node identifier must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+    }
+
+    this.nodeId = nodeId;
+    this.clock = clock;
+    this.state = new AtomicLong();
+  }
+
+  /**
+   * Generates an UUID value.
+   *
+   * @return An UUID value.
+   */
+  public UUID generate() {
+    long next;
+    long previous;
+    do {
+      previous = state.get();
+      long now = clock.getAsLong();
+      // A sequence that runs out carries over into the timestamp.
+      next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+    } while (!state.compareAndSet(previous, next));
+
+    long timestamp = next >>> SEQUENCE_BITS;
+    long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+
+    byte[] bytes = new byte[8];
+    SecureRandomPool.nextBytes(bytes);
+    long random = 0;
+    for (byte b : bytes) {
+      random = (random << 8) | (b & 0xff);
+    }
+
+    long mostSignificantBits =
+        (timestamp << 16) |
+        (0x7L << 12) |
+        (sequence >>> SEQUENCE_LOW_BITS);
+    long leastSignificantBits =
+        (0x2L << 62) |
+        ((sequence & ((1L << SEQUENCE_LOW_BITS) - 1)) << (NODE_BITS + RANDOM_BITS)) |
+        ((long) nodeId << RANDOM_BITS) |
+        (random & ((1L << RANDOM_BITS) - 1));
+
+    return new UUID(mostSignificantBits, leastSignificantBits);
+  }
+
+  /**
+   * Gets the creation time of a value, e.g. to sweep values in time order.
+   *
+   * @param uuid The value.
+   * @return The creation time in milliseconds since the epoch.
+   */
+  public static long getTimestamp(UUID uuid) {
+    return uuid.getMostSignificantBits() >>> 16;
+  }
+
+  /**
+   * Gets the identifier of the node that generated a value, e.g. to route a
+   * request without a lookup.
+   *
+   * @param uuid The value.
+   * @return The node identifier.
+   */
+  public static int getNodeId(UUID uuid) {
+    return (int) ((uuid.getLeastSignificantBits() >>> RANDOM_BITS) & MAX_NODE_ID);
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.token;
+
+import com.ysheng.auth.backend.Database;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the signed access tokens that are revoked before they expire. The
+ * revocations are stored in the database, and every node reloads them
+ * periodically, so an access token that is revoked on another node is
+ * accepted for at most one refresh interval. Access tokens are dropped from
+ * the list once they expire, which keeps it small. A client is revoked as a
+ * whole with a time at or before which all its access tokens are revoked,
+ * e.g. when it is unregistered, which is kept until the longest living
+ * access token that is issued before that time expires.
+ */
+public class AccessTokenRevocationList {
+
+  // The database that stores the revocations.
+  private final Database database;
+
+  // The signer that reads the expiration of the revoked access tokens.
+  private final AccessTokenSigner signer;
+
+  // The longest lifetime in seconds of the access tokens.
+  private final long maxLifetimeSeconds;
+
+  // The clock that returns the current time in seconds since the epoch.
+  private final LongSupplier clock;
+
+  // The executor that reloads the list.
+  private final ScheduledExecutorService reloadExecutor;
+
+  // The expiration times of the revoked access tokens by the access tokens.
+  private final Map<String, Long> revokedAccessTokens;
+
+  // The times at or before which the access tokens are revoked by the
+  // identifiers of the revoked clients.
+  private final Map<String, Long> revokedClients;
+
+  // Whether the list is loaded from the database at least once.
+  private volatile boolean loaded;
+
+  /**
+   * Constructs an AccessTokenRevocationList object, which starts loading the
+   * list from the database.
+   *
+   * @param database The database that stores the revocations.
+   * @param signer The signer that reads the expiration of the revoked access tokens.
+   * @param refreshSeconds The interval between reloads of the list in seconds,
+   *                       or zero to only load it on demand.
+   * @param maxLifetimeSeconds The longest lifetime in seconds of the access tokens,
+   *                           which is how long the revocation of a client is kept.
+   * @param clock The clock that returns the current time in seconds since the epoch.
+   */
+  public AccessTokenRevocationList(
+      Database database,
+      AccessTokenSigner signer,
+      long refreshSeconds,
+      long maxLifetimeSeconds,
+      LongSupplier clock) {
+    this.database = database;
+    this.signer = signer;
+    this.maxLifetimeSeconds = maxLifetimeSeconds;
+    this.clock = clock;
+    this.revokedAccessTokens = new ConcurrentHashMap<>();
+    this.revokedClients = new ConcurrentHashMap<>();
+    this.reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "access-token-revocation-list-reload");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (refreshSeconds > 0) {
+      reloadExecutor.scheduleWithFixedDelay(this::tryReload, 0L, refreshSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Revokes a signed access token on every node.
+   *
+   * @param accessToken The access token.
+   * @param claims The claims of the access token.
+   */
+  public void revoke(
+      String accessToken,
+      SignedAccessTokenClaims claims) {
+    long expiresIn = claims.getExpiresAt() - clock.getAsLong();
+    if (expiresIn <= 0) {
+      return;
+    }
+
+    database.storeRevokedAccessToken(accessToken, expiresIn);
+    revokedAccessTokens.put(accessToken, claims.getExpiresAt());
+  }
+
+  /**
+   * Revokes signed access tokens on every node, with the revocations stored
+   * in the database in batches.
+   *
+   * @param claimsByAccessToken The claims of the access tokens by the access tokens.
+   */
+  public void revokeAll(Map<String, SignedAccessTokenClaims> claimsByAccessToken) {
+    long now = clock.getAsLong();
+
+    Map<String, Long> expiresInByAccessToken = new HashMap<>();
+    claimsByAccessToken.forEach((accessToken, claims) -> {
+      if (claims.getExpiresAt() > now) {
+        expiresInByAccessToken.put(accessToken, claims.getExpiresAt() - now);
+      }
+    });
+
+    if (expiresInByAccessToken.isEmpty()) {
+      return;
+    }
+
+    database.storeRevokedAccessTokens(expiresInByAccessToken);
+    expiresInByAccessToken.keySet().forEach(
+        accessToken -> revokedAccessTokens.put(accessToken, claimsByAccessToken.get(accessToken).getExpiresAt()));
+  }
+
+  /**
+   * Revokes all the signed access tokens that are issued to a client until
+   * now on every node.
+   *
+   * @param clientId The client identifier.
+   */
+  public void revokeClient(String clientId) {
+    long now = clock.getAsLong();
+
+    database.storeRevokedClient(clientId, now, maxLifetimeSeconds);
+    revokedClients.merge(clientId, now, Math::max);
+  }
+
+  /**
+   * Checks whether a signed access token is revoked, either by itself or
+   * with all the access tokens of its client.
+   *
+   * @param accessToken The access token.
+   * @param claims The claims of the access token.
+   * @return True if the access token is revoked, false otherwise.
+   */
+  public boolean isRevoked(
+      String accessToken,
+      SignedAccessTokenClaims claims) {
+    if (revokedAccessTokens.containsKey(accessToken)) {
+      return true;
+    }
+
+    Long notBefore = revokedClients.get(claims.getClientId());
+    return notBefore != null && claims.getIssuedAt() <= notBefore;
+  }
+
+  /**
+   * Checks whether a signed access token is revoked by itself.
+   *
+   * @param accessToken The access token.
+   * @return True if the access token is revoked, false otherwise.
+   */
+  public boolean isRevoked(String accessToken) {
+    return revokedAccessTokens.containsKey(accessToken);
+  }
+
+  /**
+   * Checks whether the list is loaded from the database, i.e. whether it
+   * knows the revocations of other nodes.
+   *
+   * @return True if the list is loaded, false otherwise.
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Gets the number of revoked access tokens that have not expired yet.
+   *
+   * @return The size of the list.
+   */
+  public int size() {
+    return revokedAccessTokens.size();
+  }
+
+  /**
+   * Gets the number of revoked clients whose access tokens may not have
+   * expired yet.
+   *
+   * @return The number of revoked clients.
+   */
+  public int getRevokedClientCount() {
+    return revokedClients.size();
+  }
+
+  /**
+   * Loads the revocations of all nodes from the database, and drops the
+   * access tokens and the revocations of clients that have expired.
+   */
+  public void reload() {
+    for (String accessToken : database.listRevokedAccessTokens()) {
+      SignedAccessTokenClaims claims = signer.verify(accessToken);
+      if (claims != null) {
+        revokedAccessTokens.put(accessToken, claims.getExpiresAt());
+      }
+    }
+
+    database.listRevokedClients().forEach(
+        (clientId, notBefore) -> revokedClients.merge(clientId, notBefore, Math::max));
+
+    long now = clock.getAsLong();
+    revokedAccessTokens.values().removeIf(expiresAt -> expiresAt <= now);
+    revokedClients.values().removeIf(notBefore -> notBefore + maxLifetimeSeconds <= now);
+    loaded = true;
+  }
+
+  /**
+   * Stops reloading the list.
+   */
+  public void close() {
+    reloadExecutor.shutdownNow();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private void tryReload() {
+    try {
+      reload();
+    } catch (RuntimeException ex) {
+      // The list keeps the revocations that it knows, and is reloaded again
+      // after the next interval.
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.token;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Signs and verifies compact access tokens with HMAC-SHA256. A signed access
+ * token has the form {@code <key id>.<payload>.<signature>}, where the payload
+ * and the signature are base64url encoded. The key identifier selects the key
+ * that verifies the signature, so that keys can be rotated while the access
+ * tokens that the old key signed are still valid.
+ */
+public class AccessTokenSigner {
+
+  // The MAC algorithm.
+  private static final String ALGORITHM = "HmacSHA256";
+
+  // The version of the payload format.
+  private static final byte VERSION = 1;
+
+  // The number of random bytes in the payload, which makes every access token unique.
+  private static final int NONCE_LENGTH = 16;
+
+  // The minimum number of bytes in a key.
+  private static final int MIN_KEY_LENGTH = 32;
+
+  // The separator between the parts of a signed access token.
+  private static final char SEPARATOR = '.';
+
+  // The encoder of the parts of a signed access token.
+  private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+  // The decoder of the parts of a signed access token.
+  private static final Base64.Decoder decoder = Base64.getUrlDecoder();
+
+  // The identifier of the key that signs new access tokens.
+  private final String keyId;
+
+  // The MACs of the keys by their identifiers. A MAC is not thread-safe, so
+  // every thread has its own.
+  private final Map<String, ThreadLocal<Mac>> macs;
+
+  // The source of the nonces.
+  private final SecureRandom random;
+
+  /**
+   * Constructs an AccessTokenSigner object.
+   *
+   * @param keys The keys by their identifiers.
+   * @param keyId The identifier of the key that signs new access tokens.
+   */
+  public AccessTokenSigner(
+      Map<String, byte[]> keys,
+      String keyId) {
+    if (keyId == null || !keys.containsKey(keyId)) {
+      throw new IllegalArgumentException("Unknown signing key: " + keyId);
+    }
+
+    this.keyId = keyId;
+    this.macs = new HashMap<>();
+    this.random = new SecureRandom();
+
+    for (Map.Entry<String, byte[]> key : keys.entrySet()) {
+      if (key.getKey().isEmpty() || key.getKey().indexOf(SEPARATOR) >= 0) {
+        throw new IllegalArgumentException("Invalid key identifier: " + key.getKey());
+      }
+
+      if (key.getValue() == null || key.getValue().length < MIN_KEY_LENGTH) {
+        throw new IllegalArgumentException("Key is shorter than " + MIN_KEY_LENGTH + " bytes: " + key.getKey());
+      }
+
+      SecretKeySpec secretKey = new SecretKeySpec(key.getValue(), ALGORITHM);
+      macs.put(key.getKey(), ThreadLocal.withInitial(() -> createMac(secretKey)));
+    }
+  }
+
+  /**
+   * Checks whether an access token has the form of a signed access token,
+   * without verifying it.
+   *
+   * @param accessToken The access token.
+   * @return True if the access token has the form of a signed access token, false otherwise.
+   */
+  public static boolean isSigned(String accessToken) {
+    int first = accessToken.indexOf(SEPARATOR);
+    return first > 0 && accessToken.indexOf(SEPARATOR, first + 1) > first + 1;
+  }
+
+  /**
+   * Signs an access token that carries the claims.
+   *
+   * @param claims The claims of the access token.
+   * @return The signed access token.
+   */
+  public String sign(SignedAccessTokenClaims claims) {
+    byte[] nonce = new byte[NONCE_LENGTH];
+    random.nextBytes(nonce);
+
+    String signedPart = keyId + SEPARATOR + encoder.encodeToString(writePayload(claims, nonce));
+    return signedPart + SEPARATOR + encoder.encodeToString(mac(keyId, signedPart));
+  }
+
+  /**
+   * Verifies a signed access token. The expiration of the access token is
+   * not checked.
+   *
+   * @param accessToken The access token.
+   * @return The claims of the access token, or null if the access token is malformed,
+   *         is signed by an unknown key, or has an invalid signature.
+   */
+  public SignedAccessTokenClaims verify(String accessToken) {
+    int first = accessToken.indexOf(SEPARATOR);
+    int last = accessToken.lastIndexOf(SEPARATOR);
+    if (first <= 0 || last <= first + 1) {
+      return null;
+    }
+
+    String tokenKeyId = accessToken.substring(0, first);
+    if (!macs.containsKey(tokenKeyId)) {
+      return null;
+    }
+
+    try {
+      String signedPart = accessToken.substring(0, last);
+      byte[] signature = decoder.decode(accessToken.substring(last + 1));
+      if (!MessageDigest.isEqual(signature, mac(tokenKeyId, signedPart))) {
+        return null;
+      }
+
+      return readPayload(decoder.decode(accessToken.substring(first + 1, last)));
+    } catch (IllegalArgumentException | IOException ex) {
+      return null;
+    }
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private byte[] mac(String tokenKeyId, String signedPart) {
+    return macs.get(tokenKeyId).get().doFinal(signedPart.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static Mac createMac(SecretKeySpec secretKey) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(secretKey);
+      return mac;
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException("Cannot create " + ALGORITHM + " MAC", ex);
+    }
+  }
+
+  private static byte[] writePayload(SignedAccessTokenClaims claims, byte[] nonce) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeByte(VERSION);
+      output.writeByte(claims.getGrant().ordinal());
+      output.writeLong(claims.getIssuedAt());
+      output.writeLong(claims.getExpiresAt());
+      output.write(nonce);
+      output.writeUTF(claims.getClientId());
+      output.writeBoolean(claims.getScope() != null);
+      if (claims.getScope() != null) {
+        output.writeUTF(claims.getScope());
+      }
+    } catch (IOException ex) {
+      throw new IllegalStateException("Cannot write access token payload", ex);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static SignedAccessTokenClaims readPayload(byte[] payload) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+    if (input.readByte() != VERSION) {
+      return null;
+    }
+
+    int grant = input.readUnsignedByte();
+    if (grant >= SignedAccessTokenClaims.Grant.values().length) {
+      return null;
+    }
+
+    long issuedAt = input.readLong();
+    long expiresAt = input.readLong();
+    input.readFully(new byte[NONCE_LENGTH]);
+    String clientId = input.readUTF();
+    String scope = input.readBoolean() ? input.readUTF() : null;
+
+    return new SignedAccessTokenClaims(
+        SignedAccessTokenClaims.Grant.values()[grant],
+        clientId,
+        scope,
+        issuedAt,
+        expiresAt);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.token;
+
+/**
+ * Defines the claims that a signed access token carries.
+ */
+public class SignedAccessTokenClaims {
+
+  /**
+   * Defines the grants that issue signed access tokens.
+   */
+  public enum Grant {
+    AUTH_CODE,
+    IMPLICIT
+  }
+
+  // The grant that issued the access token.
+  private Grant grant;
+
+  // The identifier of the client that the access token was issued to.
+  private String clientId;
+
+  // The scope of the access token.
+  private String scope;
+
+  // The time in seconds since the epoch when the access token was issued.
+  private long issuedAt;
+
+  // The time in seconds since the epoch when the access token expires.
+  private long expiresAt;
+
+  /**
+   * Constructs a SignedAccessTokenClaims object.
+   *
+   * @param grant The grant that issued the access token.
+   * @param clientId The identifier of the client that the access token was issued to.
+   * @param scope The scope of the access token.
+   * @param issuedAt The time in seconds since the epoch when the access token was issued.
+   * @param expiresAt The time in seconds since the epoch when the access token expires.
+   */
+  public SignedAccessTokenClaims(
+      Grant grant,
+      String clientId,
+      String scope,
+      long issuedAt,
+      long expiresAt) {
+    this.grant = grant;
+    this.clientId = clientId;
+    this.scope = scope;
+    this.issuedAt = issuedAt;
+    this.expiresAt = expiresAt;
+  }
+
+  ///
+  /// Getters.
+  ///
+
+  public Grant getGrant() {
+    return grant;
+  }
+
+  public String getClientId() {
+    return clientId;
+  }
+
+  public String getScope() {
+    return scope;
+  }
+
+  public long getIssuedAt() {
+    return issuedAt;
+  }
+
+  public long getExpiresAt() {
+    return expiresAt;
+  }
+}
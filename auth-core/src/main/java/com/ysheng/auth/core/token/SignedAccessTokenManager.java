@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.token;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Issues, validates and revokes signed access tokens. A signed access token
+ * is validated with its signature and the revocation list, without a
+ * database lookup. The revocation list also revokes all the access tokens of
+ * a client that is unregistered, which would otherwise stay valid until they
+ * expire as the client is not looked up either.
+ */
+public class SignedAccessTokenManager {
+
+  // The signer of the access tokens.
+  private final AccessTokenSigner signer;
+
+  // The list of revoked access tokens.
+  private final AccessTokenRevocationList revocationList;
+
+  // The clock that returns the current time in seconds since the epoch.
+  private final LongSupplier clock;
+
+  /**
+   * Constructs a SignedAccessTokenManager object.
+   *
+   * @param signer The signer of the access tokens.
+   * @param revocationList The list of revoked access tokens.
+   * @param clock The clock that returns the current time in seconds since the epoch.
+   */
+  public SignedAccessTokenManager(
+      AccessTokenSigner signer,
+      AccessTokenRevocationList revocationList,
+      LongSupplier clock) {
+    this.signer = signer;
+    this.revocationList = revocationList;
+    this.clock = clock;
+  }
+
+  /**
+   * Issues a signed access token.
+   *
+   * @param grant The grant that issues the access token.
+   * @param clientId The identifier of the client that the access token is issued to.
+   * @param scope The scope of the access token.
+   * @param lifetimeSeconds The lifetime in seconds of the access token.
+   * @return The signed access token.
+   */
+  public String issue(
+      SignedAccessTokenClaims.Grant grant,
+      String clientId,
+      String scope,
+      long lifetimeSeconds) {
+    long now = clock.getAsLong();
+    return signer.sign(new SignedAccessTokenClaims(grant, clientId, scope, now, now + lifetimeSeconds));
+  }
+
+  /**
+   * Checks whether an access token can be validated without a database
+   * lookup. Access tokens that are not signed, e.g. the ones that were issued
+   * before signed access tokens were enabled, and all access tokens before
+   * the revocation list is loaded, have to be looked up.
+   *
+   * @param accessToken The access token.
+   * @return True if the access token can be validated without a database lookup, false otherwise.
+   */
+  public boolean canValidate(String accessToken) {
+    return revocationList.isLoaded() && AccessTokenSigner.isSigned(accessToken);
+  }
+
+  /**
+   * Validates a signed access token.
+   *
+   * @param grant The grant that the access token is expected to be issued by.
+   * @param clientId The identifier of the client that the access token is expected to be issued to.
+   * @param accessToken The access token.
+   * @return The claims of the access token, or null if it is invalid, expired or revoked,
+   *         or if its client is revoked.
+   */
+  public SignedAccessTokenClaims validate(
+      SignedAccessTokenClaims.Grant grant,
+      String clientId,
+      String accessToken) {
+    SignedAccessTokenClaims claims = signer.verify(accessToken);
+    if (claims == null ||
+        claims.getGrant() != grant ||
+        !claims.getClientId().equals(clientId) ||
+        claims.getExpiresAt() <= clock.getAsLong() ||
+        revocationList.isRevoked(accessToken, claims)) {
+      return null;
+    }
+
+    return claims;
+  }
+
+  /**
+   * Revokes a signed access token. Access tokens that are not signed or that
+   * are invalid are ignored, as they are not validated with the revocation
+   * list.
+   *
+   * @param accessToken The access token.
+   */
+  public void revoke(String accessToken) {
+    if (!AccessTokenSigner.isSigned(accessToken)) {
+      return;
+    }
+
+    SignedAccessTokenClaims claims = signer.verify(accessToken);
+    if (claims != null) {
+      revocationList.revoke(accessToken, claims);
+    }
+  }
+
+  /**
+   * Revokes the signed access tokens that are issued to a client by a grant.
+   * Access tokens that are not signed, that are invalid, or that are issued
+   * to another client or by another grant are ignored.
+   *
+   * @param grant The grant that the access tokens are expected to be issued by.
+   * @param clientId The identifier of the client that the access tokens are expected to be issued to.
+   * @param accessTokens The access tokens.
+   */
+  public void revokeAll(
+      SignedAccessTokenClaims.Grant grant,
+      String clientId,
+      Collection<String> accessTokens) {
+    Map<String, SignedAccessTokenClaims> claimsByAccessToken = new HashMap<>();
+    for (String accessToken : accessTokens) {
+      if (!AccessTokenSigner.isSigned(accessToken)) {
+        continue;
+      }
+
+      SignedAccessTokenClaims claims = signer.verify(accessToken);
+      if (claims != null && claims.getGrant() == grant && claims.getClientId().equals(clientId)) {
+        claimsByAccessToken.put(accessToken, claims);
+      }
+    }
+
+    if (!claimsByAccessToken.isEmpty()) {
+      revocationList.revokeAll(claimsByAccessToken);
+    }
+  }
+
+  /**
+   * Revokes all the signed access tokens that are issued to a client until
+   * now, e.g. when the client is unregistered.
+   *
+   * @param clientId The client identifier.
+   */
+  public void revokeClient(String clientId) {
+    revocationList.revokeClient(clientId);
+  }
+
+  /**
+   * Gets the list of revoked access tokens, e.g. to report its statistics.
+   *
+   * @return The revocation list.
+   */
+  public AccessTokenRevocationList getRevocationList() {
+    return revocationList;
+  }
+
+  /**
+   * Stops reloading the revocation list.
+   */
+  public void close() {
+    revocationList.close();
+  }
+}
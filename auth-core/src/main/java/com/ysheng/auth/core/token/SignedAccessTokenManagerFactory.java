@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.token;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
+import com.ysheng.auth.model.configuration.core.SignedAccessTokenConfiguration;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Defines the factory that produces signed access token managers.
+ */
+public class SignedAccessTokenManagerFactory {
+
+  // The clock that returns the current time in seconds since the epoch.
+  private static final LongSupplier clock = () -> System.currentTimeMillis() / 1000L;
+
+  /**
+   * Produces a signed access token manager.
+   *
+   * @param database The database that stores the revoked access tokens.
+   * @param coreConfiguration The core configuration, which has the signed access token
+   *                          configuration and the lifetimes of the access tokens.
+   * @return A signed access token manager, or null if signed access tokens are disabled.
+   */
+  public SignedAccessTokenManager produce(
+      Database database,
+      CoreConfiguration coreConfiguration) {
+    SignedAccessTokenConfiguration configuration = coreConfiguration.getSignedAccessTokenConfiguration();
+    if (configuration == null || !configuration.isEnabled()) {
+      return null;
+    }
+
+    if (configuration.getKeys() == null || configuration.getKeys().isEmpty()) {
+      throw new IllegalArgumentException("Signing keys cannot be empty");
+    }
+
+    if (configuration.getRevocationListRefreshSeconds() <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid revocation list refresh interval: " + configuration.getRevocationListRefreshSeconds());
+    }
+
+    Map<String, byte[]> keys = new HashMap<>();
+    for (Map.Entry<String, String> key : configuration.getKeys().entrySet()) {
+      try {
+        keys.put(key.getKey(), Base64.getDecoder().decode(key.getValue()));
+      } catch (IllegalArgumentException | NullPointerException ex) {
+        throw new IllegalArgumentException("Invalid signing key: " + key.getKey(), ex);
+      }
+    }
+
+    AccessTokenSigner signer = new AccessTokenSigner(keys, configuration.getKeyId());
+    return new SignedAccessTokenManager(
+        signer,
+        new AccessTokenRevocationList(
+            database,
+            signer,
+            configuration.getRevocationListRefreshSeconds(),
+            Math.max(
+                coreConfiguration.getAccessTokenLifetimeSeconds(),
+                coreConfiguration.getImplicitAccessTokenLifetimeSeconds()),
+            clock),
+        clock);
+  }
+}
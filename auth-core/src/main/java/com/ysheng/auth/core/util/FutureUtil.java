@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.util;
+
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Tracer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Defines utility functions related to futures.
+ */
+public class FutureUtil {
+
+  // The executor that runs operations on the calling thread.
+  public static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+  /**
+   * Runs an operation that may throw a checked exception on an executor.
+   * Unlike {@link CompletableFuture#supplyAsync}, the future completes with
+   * the exception that the operation throws, not with a wrapper of it. The
+   * current span of the calling thread stays current while the operation
+   * runs, so that the operation is traced as part of the same request.
+   *
+   * @param operation The operation to be run.
+   * @param executor The executor that runs the operation.
+   * @param <T> The type of the result.
+   * @return A future that completes with the result of the operation, or
+   *         with its exception, or with a RejectedExecutionException if the
+   *         executor does not accept the operation.
+   */
+  public static <T> CompletableFuture<T> supplyAsync(
+      Callable<T> operation,
+      Executor executor) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Span span = Tracer.current();
+
+    try {
+      executor.execute(() -> {
+        try (Tracer.Scope scope = Tracer.activate(span)) {
+          future.complete(operation.call());
+        } catch (Throwable ex) {
+          future.completeExceptionally(ex);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      future.completeExceptionally(ex);
+    }
+
+    return future;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.util;
+
+import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.exception.InvalidRequestException;
+
+import java.util.function.BiFunction;
+
+/**
+ * Defines utility functions related to pages of lists.
+ */
+public class PageUtil {
+
+  /**
+   * Gets a page of a list from the database, with the limit lowered to a
+   * maximum. The database rejects a malformed cursor with an
+   * IllegalArgumentException, which is an invalid request.
+   *
+   * @param cursor The cursor returned by the previous page, or null to get the first page.
+   * @param limit The hint of the number of items in the page.
+   * @param maxLimit The maximum number of items in a page.
+   * @param lister The function that gets a page by a cursor and a limit.
+   * @param <T> The type of the items.
+   * @return A page of the list.
+   * @throws InvalidRequestException The cursor is malformed.
+   */
+  public static <T> ApiList<T> listPage(
+      String cursor,
+      int limit,
+      int maxLimit,
+      BiFunction<String, Integer, ApiList<T>> lister) throws InvalidRequestException {
+    try {
+      return lister.apply(cursor, Math.min(limit, maxLimit));
+    } catch (IllegalArgumentException ex) {
+      throw new InvalidRequestException(ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.benchmark;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.DatabaseFactory;
+import com.ysheng.auth.core.AuthCodeGrantServiceImpl;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
+import com.ysheng.auth.core.credential.ClientCredentialVerifierFactory;
+import com.ysheng.auth.core.generator.AuthValueGeneratorFactory;
+import com.ysheng.auth.core.token.AccessTokenRevocationList;
+import com.ysheng.auth.core.token.AccessTokenSigner;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.model.api.AccessTokenType;
+import com.ysheng.auth.model.api.ClientType;
+import com.ysheng.auth.model.api.authcode.AccessToken;
+import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.api.exception.InternalException;
+import com.ysheng.auth.model.configuration.backend.BackendConfiguration;
+import com.ysheng.auth.model.configuration.backend.RedisConfiguration;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the validation of a signed access token, which needs no database
+ * lookup, with the lookup of a random access token in Redis, in ns/op. The
+ * caches and the filter of the database are disabled, so that every lookup
+ * reaches Redis. Run it with the main method from the test classpath, with a
+ * Redis server at the address in the redis.address system property, or at
+ * localhost:6379 by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessTokenValidationBenchmark {
+
+  private Database database;
+
+  private AuthCodeGrantServiceImpl redisService;
+
+  private AuthCodeGrantServiceImpl signedService;
+
+  private SignedAccessTokenManager signedAccessTokenManager;
+
+  private String clientId;
+
+  private String redisAccessToken;
+
+  private String signedAccessToken;
+
+  @Setup
+  public void setUp() throws Exception {
+    RedisConfiguration redisConfiguration = new RedisConfiguration();
+    redisConfiguration.setConnectionType("simple");
+    redisConfiguration.setMasterAddress(System.getProperty("redis.address"));
+    BackendConfiguration backendConfiguration = new BackendConfiguration();
+    backendConfiguration.setDatabaseType("redis");
+    backendConfiguration.setRedisConfiguration(redisConfiguration);
+    backendConfiguration.getClientCacheConfiguration().setMaximumSize(0);
+    backendConfiguration.getAccessTokenCacheConfiguration().setMaximumSize(0);
+    backendConfiguration.getAccessTokenFilterConfiguration().setEnabled(false);
+    database = new DatabaseFactory().produce(backendConfiguration);
+
+    Map<String, byte[]> keys = new HashMap<>();
+    keys.put("key1", UUID.randomUUID().toString().getBytes());
+    LongSupplier clock = () -> System.currentTimeMillis() / 1000L;
+    CoreConfiguration coreConfiguration = new CoreConfiguration();
+    AccessTokenSigner signer = new AccessTokenSigner(keys, "key1");
+    AccessTokenRevocationList revocationList = new AccessTokenRevocationList(
+        database, signer, 0L, coreConfiguration.getAccessTokenLifetimeSeconds(), clock);
+    revocationList.reload();
+    signedAccessTokenManager = new SignedAccessTokenManager(signer, revocationList, clock);
+
+    ClientCredentialVerifier credentialVerifier =
+        new ClientCredentialVerifierFactory().produce(database, coreConfiguration);
+    redisService = new AuthCodeGrantServiceImpl(
+        database, new AuthValueGeneratorFactory().produce(null), coreConfiguration, null, credentialVerifier);
+    signedService = new AuthCodeGrantServiceImpl(
+        database,
+        new AuthValueGeneratorFactory().produce(null),
+        coreConfiguration,
+        signedAccessTokenManager,
+        credentialVerifier);
+
+    Client client = new Client();
+    client.setType(ClientType.CONFIDENTIAL);
+    client.setId(UUID.randomUUID().toString());
+    client.setSecret(UUID.randomUUID().toString());
+    database.storeClient(client);
+    clientId = client.getId();
+
+    redisAccessToken = UUID.randomUUID().toString();
+    database.storeAccessToken(createAccessToken(redisAccessToken));
+
+    signedAccessToken = signedAccessTokenManager.issue(
+        SignedAccessTokenClaims.Grant.AUTH_CODE, clientId, null, coreConfiguration.getAccessTokenLifetimeSeconds());
+    database.storeAccessToken(createAccessToken(signedAccessToken));
+  }
+
+  @TearDown
+  public void tearDown() {
+    database.removeAccessToken(clientId, redisAccessToken);
+    database.removeAccessToken(clientId, signedAccessToken);
+    database.removeClient(clientId);
+    signedAccessTokenManager.close();
+    database.close();
+  }
+
+  @Benchmark
+  public AccessToken getAccessTokenFromRedis() throws InternalException {
+    return redisService.getAccessToken(clientId, redisAccessToken);
+  }
+
+  @Benchmark
+  public AccessToken getSignedAccessToken() throws InternalException {
+    return signedService.getAccessToken(clientId, signedAccessToken);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(AccessTokenValidationBenchmark.class.getSimpleName())
+        .jvmArgsAppend("-Dredis.address=" + System.getProperty("redis.address", "localhost:6379"))
+        .build())
+        .run();
+  }
+
+  private AccessToken createAccessToken(String accessToken) {
+    AccessToken token = new AccessToken();
+    token.setClientId(clientId);
+    token.setAccessToken(accessToken);
+    token.setTokenType(AccessTokenType.BEARER);
+    token.setExpiresIn(3600L);
+    return token;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.benchmark;
+
+import com.ysheng.auth.core.generator.Base64UrlGenerator;
+import com.ysheng.auth.core.generator.BufferedUuidGenerator;
+import com.ysheng.auth.core.generator.TimeOrderedUuidGenerator;
+import com.ysheng.auth.core.generator.UuidGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the value generators in ops/s, with 1, 8 and 32
+ * threads that share one generator. Run it with the main method from the
+ * test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueGeneratorBenchmark {
+
+  // The numbers of threads to run the benchmarks with.
+  private static final int[] THREADS = { 1, 8, 32 };
+
+  private final UuidGenerator uuidGenerator = new UuidGenerator();
+
+  private final BufferedUuidGenerator bufferedUuidGenerator = new BufferedUuidGenerator();
+
+  private final TimeOrderedUuidGenerator timeOrderedUuidGenerator = new TimeOrderedUuidGenerator(0);
+
+  private final Base64UrlGenerator base64UrlGenerator = new Base64UrlGenerator(Base64UrlGenerator.MIN_BYTES);
+
+  @Benchmark
+  public UUID generateUuid() {
+    return uuidGenerator.generate();
+  }
+
+  @Benchmark
+  public UUID generateBufferedUuid() {
+    return bufferedUuidGenerator.generate();
+  }
+
+  @Benchmark
+  public UUID generateTimeOrderedUuid() {
+    return timeOrderedUuidGenerator.generate();
+  }
+
+  @Benchmark
+  public String generateBase64Url() {
+    return base64UrlGenerator.generate();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : THREADS) {
+      new Runner(new OptionsBuilder()
+          .include(ValueGeneratorBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build())
+          .run();
+    }
+  }
+}
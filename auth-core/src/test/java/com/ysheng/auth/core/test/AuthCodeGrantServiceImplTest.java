@@ -13,14 +13,19 @@
 
 package com.ysheng.auth.core.test;
 
+import com.ysheng.auth.backend.ClientEntityPair;
 import com.ysheng.auth.backend.Database;
 import com.ysheng.auth.core.AuthCodeGrantServiceImpl;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
 import com.ysheng.auth.core.generator.AuthValueGenerator;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
 import com.ysheng.auth.model.api.AccessTokenType;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.GrantType;
 import com.ysheng.auth.model.api.ResponseType;
 import com.ysheng.auth.model.api.authcode.AccessToken;
+import com.ysheng.auth.model.api.authcode.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AccessTokenIssueSpec;
 import com.ysheng.auth.model.api.authcode.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.authcode.AuthorizationRevokeSpec;
@@ -36,19 +41,33 @@ import com.ysheng.auth.model.api.exception.InternalException;
 import com.ysheng.auth.model.api.exception.InvalidClientException;
 import com.ysheng.auth.model.api.exception.InvalidRequestException;
 import com.ysheng.auth.model.api.exception.ResponseTypeUnsupportedException;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Tests for {@link com.ysheng.auth.core.AuthCodeGrantServiceImpl}.
@@ -69,7 +88,7 @@ public class AuthCodeGrantServiceImplTest {
       AuthorizationGrantSpec request = new AuthorizationGrantSpec();
       request.setResponseType(ResponseType.TOKEN);
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(null, null);
+      AuthCodeGrantServiceImpl service = createService(null, null);
 
       try {
         service.authorize("clientId", request);
@@ -88,7 +107,7 @@ public class AuthCodeGrantServiceImplTest {
       AuthorizationGrantSpec request = new AuthorizationGrantSpec();
       request.setResponseType(ResponseType.CODE);
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.authorize("clientId", request);
@@ -110,10 +129,11 @@ public class AuthCodeGrantServiceImplTest {
       AuthorizationGrantSpec request = new AuthorizationGrantSpec();
       request.setResponseType(ResponseType.CODE);
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, authValueGenerator);
+      AuthCodeGrantServiceImpl service = createService(database, authValueGenerator);
 
       AuthorizationTicket response = service.authorize("clientId", request);
       assertThat(response.getCode(), equalTo("authCode"));
+      assertThat(response.getExpiresIn(), equalTo(CoreConfiguration.DEFAULT_AUTH_CODE_LIFETIME_SECONDS));
     }
   }
 
@@ -128,9 +148,10 @@ public class AuthCodeGrantServiceImplTest {
       request.setClientSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(null).when(database).findClientById(anyString());
+      doReturn(new ClientEntityPair<>(null, null)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAuthorization("clientId", "code", request);
@@ -150,9 +171,10 @@ public class AuthCodeGrantServiceImplTest {
       client.setSecret("clientSecret2");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(new ClientEntityPair<>(client, null)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAuthorization("clientId", "code", request);
@@ -172,10 +194,10 @@ public class AuthCodeGrantServiceImplTest {
       client.setSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
-      doReturn(null).when(database).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
+      doReturn(new ClientEntityPair<>(client, null)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAuthorization("clientId", "code", request);
@@ -196,11 +218,10 @@ public class AuthCodeGrantServiceImplTest {
       client.setSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
-      doReturn(new AuthorizationTicket()).when(database)
-          .findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
+      doReturn(new ClientEntityPair<>(client, new AuthorizationTicket())).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       service.revokeAuthorization("clientId", "code", request);
     }
@@ -216,7 +237,7 @@ public class AuthCodeGrantServiceImplTest {
       Database database = mock(Database.class);
       doReturn(null).when(database).findClientById(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.listAuthorizationTickets("clientId");
@@ -239,7 +260,7 @@ public class AuthCodeGrantServiceImplTest {
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(tickets).when(database).listAuthorizationTickets(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       ApiList<AuthorizationTicket> ticketApiList = service.listAuthorizationTickets("clientId");
 
@@ -259,7 +280,7 @@ public class AuthCodeGrantServiceImplTest {
       Database database = mock(Database.class);
       doReturn(null).when(database).findClientById(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.getAuthorizationTicket("clientId", "code");
@@ -276,7 +297,7 @@ public class AuthCodeGrantServiceImplTest {
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(null).when(database).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.getAuthorizationTicket("clientId", "code");
@@ -297,7 +318,7 @@ public class AuthCodeGrantServiceImplTest {
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(ticket).when(database).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       AuthorizationTicket actualTicket = service.getAuthorizationTicket("clientId", "code");
       assertThat(actualTicket.getClientId(), equalTo("clientId"));
@@ -314,7 +335,7 @@ public class AuthCodeGrantServiceImplTest {
     public void failsWithNullCode() {
       AccessTokenIssueSpec request = new AccessTokenIssueSpec();
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(null, null);
+      AuthCodeGrantServiceImpl service = createService(null, null);
 
       try {
         service.issueAccessToken("clientId", request);
@@ -331,7 +352,7 @@ public class AuthCodeGrantServiceImplTest {
       request.setCode("code");
       request.setGrantType(GrantType.IMPLICIT);
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(null, null);
+      AuthCodeGrantServiceImpl service = createService(null, null);
 
       try {
         service.issueAccessToken("clientId", request);
@@ -345,13 +366,14 @@ public class AuthCodeGrantServiceImplTest {
     @Test
     public void failsWithNonExistClient() {
       Database database = mock(Database.class);
-      doReturn(null).when(database).findClientById(anyString());
+      doReturn(new ClientEntityPair<>(null, null)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
       AccessTokenIssueSpec request = new AccessTokenIssueSpec();
       request.setCode("code");
       request.setGrantType(GrantType.AUTHORIZATION_CODE);
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.issueAccessToken("clientId", request);
@@ -365,14 +387,14 @@ public class AuthCodeGrantServiceImplTest {
     @Test
     public void failsWithNonExistAuthorizationTicket() {
       Database database = mock(Database.class);
-      doReturn(new Client()).when(database).findClientById(anyString());
-      doReturn(null).when(database).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
+      doReturn(new ClientEntityPair<>(new Client(), null)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
       AccessTokenIssueSpec request = new AccessTokenIssueSpec();
       request.setCode("code");
       request.setGrantType(GrantType.AUTHORIZATION_CODE);
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.issueAccessToken("clientId", request);
@@ -389,15 +411,15 @@ public class AuthCodeGrantServiceImplTest {
       AuthorizationTicket authorizationTicket = new AuthorizationTicket();
       authorizationTicket.setRedirectUri("http://1.2.3.4");
       Database database = mock(Database.class);
-      doReturn(new Client()).when(database).findClientById(anyString());
-      doReturn(authorizationTicket).when(database).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
+      doReturn(new ClientEntityPair<>(new Client(), authorizationTicket)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
       AccessTokenIssueSpec request = new AccessTokenIssueSpec();
       request.setCode("code");
       request.setGrantType(GrantType.AUTHORIZATION_CODE);
       request.setRedirectUri("http://5.6.7.8");
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.issueAccessToken("clientId", request);
@@ -416,15 +438,15 @@ public class AuthCodeGrantServiceImplTest {
       authorizationTicket.setRedirectUri("http://1.2.3.4");
       authorizationTicket.setClientId("clientId1");
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
-      doReturn(authorizationTicket).when(database).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
+      doReturn(new ClientEntityPair<>(client, authorizationTicket)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
 
       AccessTokenIssueSpec request = new AccessTokenIssueSpec();
       request.setCode("code");
       request.setGrantType(GrantType.AUTHORIZATION_CODE);
       request.setRedirectUri("http://1.2.3.4");
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.issueAccessToken("clientId2", request);
@@ -435,6 +457,39 @@ public class AuthCodeGrantServiceImplTest {
       }
     }
 
+    @Test
+    public void failsWithRedeemedAuthorizationTicket() {
+      Client client = new Client();
+      client.setId("clientId");
+      AuthorizationTicket authorizationTicket = new AuthorizationTicket();
+      authorizationTicket.setRedirectUri("http://1.2.3.4");
+      authorizationTicket.setClientId("clientId");
+      Database database = mock(Database.class);
+      doReturn(new ClientEntityPair<>(client, authorizationTicket)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
+      doReturn(false).when(database)
+          .redeemAuthorizationTicket(anyString(), anyString(), any(AccessToken.class));
+
+      AuthValueGenerator authValueGenerator = mock(AuthValueGenerator.class);
+      doReturn("accessToken").when(authValueGenerator).generateAccessToken();
+
+      AccessTokenIssueSpec request = new AccessTokenIssueSpec();
+      request.setCode("code");
+      request.setGrantType(GrantType.AUTHORIZATION_CODE);
+      request.setRedirectUri("http://1.2.3.4");
+
+      AuthCodeGrantServiceImpl service = createService(database, authValueGenerator);
+
+      try {
+        service.issueAccessToken("clientId", request);
+        fail("Issuing access token should fail with authorization ticket redeemed by another request");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(AuthorizationTicketNotFoundError.class));
+        assertThat(ex.getErrorDescription(), equalTo("Authorization ticket not found with client ID: clientId" +
+            " and code: code"));
+      }
+    }
+
     @Test
     public void succeedsToIssueAccessToken() throws Throwable {
       Client client = new Client();
@@ -443,10 +498,10 @@ public class AuthCodeGrantServiceImplTest {
       authorizationTicket.setRedirectUri("http://1.2.3.4");
       authorizationTicket.setClientId("clientId");
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
-      doReturn(authorizationTicket).when(database).findAuthorizationTicketByCodeAndClientId(anyString(), anyString());
-      doNothing().when(database).storeAccessToken(any(AccessToken.class));
-      doNothing().when(database).removeAuthorizationTicket(anyString(), anyString());
+      doReturn(new ClientEntityPair<>(client, authorizationTicket)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
+      doReturn(true).when(database)
+          .redeemAuthorizationTicket(anyString(), anyString(), any(AccessToken.class));
 
       AuthValueGenerator authValueGenerator = mock(AuthValueGenerator.class);
       doReturn("accessToken").when(authValueGenerator).generateAccessToken();
@@ -456,12 +511,48 @@ public class AuthCodeGrantServiceImplTest {
       request.setGrantType(GrantType.AUTHORIZATION_CODE);
       request.setRedirectUri("http://1.2.3.4");
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, authValueGenerator);
+      CoreConfiguration configuration = new CoreConfiguration();
+      configuration.setAccessTokenLifetimeSeconds(1800L);
+
+      AuthCodeGrantServiceImpl service = createService(database, authValueGenerator, configuration);
 
       AccessToken response = service.issueAccessToken("clientId", request);
       assertThat(response.getAccessToken(), equalTo("accessToken"));
       assertThat(response.getTokenType(), is(AccessTokenType.BEARER));
-      assertThat(response.getExpiresIn(), equalTo((long) Integer.MAX_VALUE));
+      assertThat(response.getExpiresIn(), equalTo(1800L));
+
+      verify(database).redeemAuthorizationTicket("clientId", "code", response);
+    }
+
+    @Test
+    public void succeedsToIssueSignedAccessToken() throws Throwable {
+      Client client = new Client();
+      client.setId("clientId");
+      AuthorizationTicket authorizationTicket = new AuthorizationTicket();
+      authorizationTicket.setClientId("clientId");
+      Database database = mock(Database.class);
+      doReturn(new ClientEntityPair<>(client, authorizationTicket)).when(database)
+          .findClientAndAuthorizationTicket(anyString(), anyString());
+      doReturn(true).when(database)
+          .redeemAuthorizationTicket(anyString(), anyString(), any(AccessToken.class));
+
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn("signedAccessToken").when(signedAccessTokenManager)
+          .issue(eq(SignedAccessTokenClaims.Grant.AUTH_CODE), eq("clientId"), any(), anyLong());
+
+      AccessTokenIssueSpec request = new AccessTokenIssueSpec();
+      request.setCode("code");
+      request.setGrantType(GrantType.AUTHORIZATION_CODE);
+
+      CoreConfiguration configuration = new CoreConfiguration();
+      configuration.setAccessTokenLifetimeSeconds(1800L);
+
+      AuthCodeGrantServiceImpl service = createService(database, null, configuration, signedAccessTokenManager);
+
+      AccessToken response = service.issueAccessToken("clientId", request);
+      assertThat(response.getAccessToken(), equalTo("signedAccessToken"));
+      verify(signedAccessTokenManager).issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 1800L);
+      verify(database).redeemAuthorizationTicket("clientId", "code", response);
     }
   }
 
@@ -475,7 +566,7 @@ public class AuthCodeGrantServiceImplTest {
       Database database = mock(Database.class);
       doReturn(null).when(database).findClientById(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.listAccessTokens("clientId");
@@ -498,7 +589,7 @@ public class AuthCodeGrantServiceImplTest {
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(tickets).when(database).listAccessTokens(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       ApiList<AccessToken> ticketApiList = service.listAccessTokens("clientId");
 
@@ -506,6 +597,68 @@ public class AuthCodeGrantServiceImplTest {
       assertThat(ticketApiList.getItems().get(0).getAccessToken(), equalTo(token1.getAccessToken()));
       assertThat(ticketApiList.getItems().get(1).getAccessToken(), equalTo(token2.getAccessToken()));
     }
+
+    @Test
+    public void failsToListPageWithInvalidLimit() {
+      AuthCodeGrantServiceImpl service = createService(null, null);
+
+      try {
+        service.listAccessTokens("clientId", null, -1);
+        fail("Listing access tokens should fail with invalid limit");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Invalid limit: -1"));
+      }
+    }
+
+    @Test
+    public void succeedsToListAccessTokensPage() throws Throwable {
+      AccessToken token = new AccessToken();
+      token.setAccessToken("accessToken1");
+
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientById(anyString());
+      doReturn(new ApiList<>(Arrays.asList(token), "cursor")).when(database).listAccessTokens("clientId", null, 10);
+
+      AuthCodeGrantServiceImpl service = createService(database, null);
+
+      ApiList<AccessToken> tokenApiList = service.listAccessTokens("clientId", null, 10);
+
+      assertThat(tokenApiList.getItems().size(), is(1));
+      assertThat(tokenApiList.getNextCursor(), equalTo("cursor"));
+    }
+
+    @Test
+    public void succeedsToListAccessTokensPageWithClampedLimit() throws Throwable {
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientById(anyString());
+      doReturn(new ApiList<>()).when(database).listAccessTokens(anyString(), anyString(), anyInt());
+
+      CoreConfiguration configuration = new CoreConfiguration();
+      configuration.setMaxListLimit(100);
+      AuthCodeGrantServiceImpl service = createService(database, null, configuration);
+      service.listAccessTokens("clientId", "1", 5000);
+
+      verify(database).listAccessTokens("clientId", "1", 100);
+    }
+
+    @Test
+    public void failsToListAccessTokensPageWithMalformedCursor() {
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientById(anyString());
+      doThrow(new IllegalArgumentException("Invalid cursor: abc"))
+          .when(database).listAccessTokens("clientId", "abc", 10);
+
+      AuthCodeGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.listAccessTokens("clientId", "abc", 10);
+        fail("Listing access tokens should fail with malformed cursor");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Invalid cursor: abc"));
+      }
+    }
   }
 
   /**
@@ -519,9 +672,9 @@ public class AuthCodeGrantServiceImplTest {
       request.setClientSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(null).when(database).findClientById(anyString());
+      doReturn(null).when(database).findClientCredentialsById(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAccessToken("clientId", "accessToken", request);
@@ -541,9 +694,9 @@ public class AuthCodeGrantServiceImplTest {
       client.setSecret("clientSecret2");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAccessToken("clientId", "accessToken", request);
@@ -563,10 +716,10 @@ public class AuthCodeGrantServiceImplTest {
       client.setSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
       doReturn(null).when(database).findAccessTokenByClientIdAndToken(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAccessToken("clientId", "accessToken", request);
@@ -587,13 +740,128 @@ public class AuthCodeGrantServiceImplTest {
       client.setSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
+      doReturn(new AccessToken()).when(database)
+          .findAccessTokenByClientIdAndToken(anyString(), anyString());
+
+      AuthCodeGrantServiceImpl service = createService(database, null);
+
+      service.revokeAccessToken("clientId", "accessToken", request);
+    }
+
+    @Test
+    public void succeedsToRevokeSignedAccessToken() throws Throwable {
+      AccessTokenRevokeSpec request = new AccessTokenRevokeSpec();
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientCredentialsById(anyString());
       doReturn(new AccessToken()).when(database)
           .findAccessTokenByClientIdAndToken(anyString(), anyString());
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
 
       service.revokeAccessToken("clientId", "accessToken", request);
+
+      verify(signedAccessTokenManager).revoke("accessToken");
+      verify(database).removeAccessToken("clientId", "accessToken");
+    }
+  }
+
+  /**
+   * Tests for {@link com.ysheng.auth.core.AuthCodeGrantServiceImpl#revokeAccessTokens}.
+   */
+  public static class RevokeAccessTokensTest {
+
+    @Test
+    public void failsWithBothAccessTokensAndAll() {
+      AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+      request.setAccessTokens(Collections.singletonList("accessToken"));
+      request.setAll(true);
+
+      AuthCodeGrantServiceImpl service = createService(null, null);
+
+      try {
+        service.revokeAccessTokens("clientId", request);
+        fail("Revoking access tokens should fail with both access tokens and all");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Either access tokens or all must be given"));
+      }
+    }
+
+    @Test
+    public void failsWithTooManyAccessTokens() {
+      CoreConfiguration configuration = new CoreConfiguration();
+      configuration.setMaxBulkAccessTokens(1);
+
+      AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+      request.setAccessTokens(Arrays.asList("accessToken1", "accessToken2"));
+
+      AuthCodeGrantServiceImpl service = createService(null, null, configuration);
+
+      try {
+        service.revokeAccessTokens("clientId", request);
+        fail("Revoking access tokens should fail with too many access tokens");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Too many access tokens: 2"));
+      }
+    }
+
+    @Test
+    public void failsWithNonExistClient() {
+      AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+      request.setAll(true);
+
+      Database database = mock(Database.class);
+      doReturn(null).when(database).findClientCredentialsById(anyString());
+
+      AuthCodeGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.revokeAccessTokens("clientId", request);
+        fail("Revoking access tokens should fail with non-exist client");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(ClientNotFoundException.class));
+        verify(database, never()).removeAccessTokens(anyString(), any());
+      }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void succeedsToRevokeAllAccessTokens() throws Throwable {
+      AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+      request.setClientSecret("clientSecret");
+      request.setAll(true);
+
+      Client client = new Client();
+      client.setSecret("clientSecret");
+
+      Database database = mock(Database.class);
+      doReturn(client).when(database).findClientCredentialsById(anyString());
+      doReturn(Arrays.asList("accessToken1", "accessToken2", "accessToken3").iterator())
+          .when(database).iterateAccessTokenStrings("clientId");
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      CoreConfiguration configuration = new CoreConfiguration();
+      configuration.setMaxBulkAccessTokens(2);
+
+      AuthCodeGrantServiceImpl service = createService(
+          database, null, configuration, signedAccessTokenManager);
+
+      service.revokeAccessTokens("clientId", request);
+
+      // The access tokens are revoked in batches of at most the bulk limit.
+      ArgumentCaptor<Collection<String>> accessTokens = ArgumentCaptor.forClass(Collection.class);
+      verify(database, times(2)).removeAccessTokens(eq("clientId"), accessTokens.capture());
+      assertThat(accessTokens.getAllValues().get(0), contains("accessToken1", "accessToken2"));
+      assertThat(accessTokens.getAllValues().get(1), contains("accessToken3"));
+      verify(signedAccessTokenManager).revokeAll(
+          SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", accessTokens.getAllValues().get(0));
+      verify(signedAccessTokenManager).revokeAll(
+          SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", accessTokens.getAllValues().get(1));
+      verify(database, never()).listAccessTokens(anyString());
+      verify(database, never()).removeImplicitAccessTokens(anyString(), any());
     }
   }
 
@@ -602,12 +870,29 @@ public class AuthCodeGrantServiceImplTest {
    */
   public static class GetAccessTokenTest {
 
+    @Test
+    public void failsWithFilteredAccessToken() {
+      Database database = mock(Database.class);
+      doReturn(false).when(database).mayContainAccessToken(anyString(), anyString());
+
+      AuthCodeGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.getAccessToken("clientId", "accessToken");
+        fail("Getting access token should fail with filtered access token");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(AccessTokenNotFoundException.class));
+        verify(database, never()).findClientById(anyString());
+      }
+    }
+
     @Test
     public void failsWithNonExistClient() {
       Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainAccessToken(anyString(), anyString());
       doReturn(null).when(database).findClientById(anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.getAccessToken("clientId", "accessToken");
@@ -621,10 +906,11 @@ public class AuthCodeGrantServiceImplTest {
     @Test
     public void failsWithNonExistAccessToken() {
       Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainAccessToken(anyString(), anyString());
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(null).when(database).findAccessTokenByClientIdAndToken(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       try {
         service.getAccessToken("clientId", "accessToken");
@@ -642,14 +928,144 @@ public class AuthCodeGrantServiceImplTest {
       token.setClientId("clientId");
       token.setAccessToken("accessToken");
       Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainAccessToken(anyString(), anyString());
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(token).when(database).findAccessTokenByClientIdAndToken(anyString(), anyString());
 
-      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(database, null);
+      AuthCodeGrantServiceImpl service = createService(database, null);
 
       AccessToken actualToken = service.getAccessToken("clientId", "accessToken");
       assertThat(actualToken.getClientId(), equalTo("clientId"));
       assertThat(actualToken.getAccessToken(), equalTo("accessToken"));
     }
+
+    @Test
+    public void failsWithInvalidSignedAccessToken() {
+      Database database = mock(Database.class);
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn(true).when(signedAccessTokenManager).canValidate("accessToken");
+      doReturn(null).when(signedAccessTokenManager)
+          .validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", "accessToken");
+
+      AuthCodeGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
+
+      try {
+        service.getAccessToken("clientId", "accessToken");
+        fail("Getting access token should fail with invalid signed access token");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(AccessTokenNotFoundException.class));
+        verify(database, never()).findAccessTokenByClientIdAndToken(anyString(), anyString());
+      }
+    }
+
+    @Test
+    public void succeedsToGetSignedAccessTokenWithoutLookup() throws Throwable {
+      Database database = mock(Database.class);
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn(true).when(signedAccessTokenManager).canValidate("accessToken");
+      doReturn(new SignedAccessTokenClaims(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", "scope", 100L, 400L))
+          .when(signedAccessTokenManager)
+          .validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", "accessToken");
+
+      AuthCodeGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
+
+      AccessToken actualToken = service.getAccessToken("clientId", "accessToken");
+      assertThat(actualToken.getClientId(), equalTo("clientId"));
+      assertThat(actualToken.getAccessToken(), equalTo("accessToken"));
+      assertThat(actualToken.getTokenType(), is(AccessTokenType.BEARER));
+      assertThat(actualToken.getExpiresIn(), equalTo(300L));
+      verify(database, never()).findClientById(anyString());
+      verify(database, never()).findAccessTokenByClientIdAndToken(anyString(), anyString());
+    }
+  }
+
+  /**
+   * Tests for {@link com.ysheng.auth.core.AuthCodeGrantServiceImpl#getAccessTokenAsync}.
+   */
+  public static class GetAccessTokenAsyncTest {
+
+    @Test
+    public void succeedsToGetAccessTokenOnExecutor() throws Throwable {
+      AccessToken token = new AccessToken();
+      token.setAccessToken("accessToken");
+      Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainAccessToken(anyString(), anyString());
+      doReturn(new Client()).when(database).findClientById(anyString());
+      doReturn(token).when(database).findAccessTokenByClientIdAndToken(anyString(), anyString());
+      List<Runnable> tasks = new ArrayList<>();
+
+      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(
+          database, null, new CoreConfiguration(), null, null, tasks::add);
+
+      CompletableFuture<AccessToken> future = service.getAccessTokenAsync("clientId", "accessToken");
+      assertThat(future.isDone(), is(false));
+      verify(database, never()).findClientById(anyString());
+
+      tasks.get(0).run();
+      assertThat(future.get().getAccessToken(), equalTo("accessToken"));
+    }
+
+    @Test
+    public void failsWithNonExistClient() {
+      Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainAccessToken(anyString(), anyString());
+      doReturn(null).when(database).findClientById(anyString());
+
+      AuthCodeGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.getAccessTokenAsync("clientId", "accessToken").join();
+        fail("Getting access token should fail with non-exist client");
+      } catch (CompletionException ex) {
+        assertThat(ex.getCause().getClass(), equalTo(ClientNotFoundException.class));
+      }
+    }
+
+    @Test
+    public void succeedsToGetSignedAccessTokenOnCallingThread() throws Throwable {
+      Database database = mock(Database.class);
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn(true).when(signedAccessTokenManager).canValidate("accessToken");
+      doReturn(new SignedAccessTokenClaims(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", "scope", 100L, 400L))
+          .when(signedAccessTokenManager)
+          .validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", "accessToken");
+      List<Runnable> tasks = new ArrayList<>();
+
+      AuthCodeGrantServiceImpl service = new AuthCodeGrantServiceImpl(
+          database, null, new CoreConfiguration(), signedAccessTokenManager, null, tasks::add);
+
+      CompletableFuture<AccessToken> future = service.getAccessTokenAsync("clientId", "accessToken");
+      assertThat(future.isDone(), is(true));
+      assertThat(future.get().getClientId(), equalTo("clientId"));
+      assertThat(tasks.isEmpty(), is(true));
+    }
+  }
+
+  private static AuthCodeGrantServiceImpl createService(
+      Database database,
+      AuthValueGenerator authValueGenerator) {
+    return createService(database, authValueGenerator, new CoreConfiguration());
+  }
+
+  private static AuthCodeGrantServiceImpl createService(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration) {
+    return createService(database, authValueGenerator, configuration, null);
+  }
+
+  private static AuthCodeGrantServiceImpl createService(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager) {
+    return new AuthCodeGrantServiceImpl(
+        database,
+        authValueGenerator,
+        configuration,
+        signedAccessTokenManager,
+        new ClientCredentialVerifier(configuration.getClientCredentialConfiguration(), database));
   }
 }
@@ -15,7 +15,13 @@ package com.ysheng.auth.core.test;
 
 import com.ysheng.auth.backend.Database;
 import com.ysheng.auth.core.ClientServiceImpl;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
 import com.ysheng.auth.core.generator.AuthValueGenerator;
+import com.ysheng.auth.core.token.AccessTokenRevocationList;
+import com.ysheng.auth.core.token.AccessTokenSigner;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.core.util.FutureUtil;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.ClientType;
 import com.ysheng.auth.model.api.exception.InternalException;
@@ -25,19 +31,29 @@ import com.ysheng.auth.model.api.client.ClientUnregistrationSpec;
 import com.ysheng.auth.model.api.exception.ClientNotFoundException;
 import com.ysheng.auth.model.api.exception.ClientUnauthorizedException;
 import com.ysheng.auth.model.api.exception.InvalidRequestException;
+import com.ysheng.auth.model.configuration.core.ClientCredentialConfiguration;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.fail;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tests for {@link com.ysheng.auth.core.ClientServiceImpl}.
@@ -59,7 +75,7 @@ public class ClientServiceImplTest {
       request.setType(ClientType.CONFIDENTIAL);
       request.setRedirectUri(null);
 
-      ClientServiceImpl service = new ClientServiceImpl(null, null);
+      ClientServiceImpl service = new ClientServiceImpl(null, null, createCredentialVerifier(null));
 
       try {
         service.register(request);
@@ -76,7 +92,7 @@ public class ClientServiceImplTest {
       request.setType(ClientType.CONFIDENTIAL);
       request.setRedirectUri("invalidUri");
 
-      ClientServiceImpl service = new ClientServiceImpl(null, null);
+      ClientServiceImpl service = new ClientServiceImpl(null, null, createCredentialVerifier(null));
 
       try {
         service.register(request);
@@ -100,12 +116,38 @@ public class ClientServiceImplTest {
       request.setType(ClientType.CONFIDENTIAL);
       request.setRedirectUri("http://1.2.3.4");
 
-      ClientServiceImpl service = new ClientServiceImpl(database, authValueGenerator);
+      ClientServiceImpl service =
+          new ClientServiceImpl(database, authValueGenerator, createCredentialVerifier(database));
 
       Client response = service.register(request);
       assertThat(response.getId(), equalTo("clientId"));
       assertThat(response.getSecret(), equalTo("clientSecret"));
     }
+
+    @Test
+    public void succeedsToStoreHashedSecret() throws Throwable {
+      Database database = mock(Database.class);
+
+      AuthValueGenerator authValueGenerator = mock(AuthValueGenerator.class);
+      doReturn("clientId").when(authValueGenerator).generateClientId();
+      doReturn("clientSecret").when(authValueGenerator).generateClientSecret();
+
+      ClientRegistrationSpec request = new ClientRegistrationSpec();
+      request.setType(ClientType.CONFIDENTIAL);
+      request.setRedirectUri("http://1.2.3.4");
+
+      ClientCredentialConfiguration configuration = new ClientCredentialConfiguration();
+      configuration.setHashIterations(1000);
+      ClientCredentialVerifier credentialVerifier = new ClientCredentialVerifier(configuration, database);
+      ClientServiceImpl service = new ClientServiceImpl(database, authValueGenerator, credentialVerifier);
+
+      service.register(request);
+
+      ArgumentCaptor<Client> clientCaptor = ArgumentCaptor.forClass(Client.class);
+      verify(database).storeClient(clientCaptor.capture());
+      assertThat(clientCaptor.getValue().getSecret(), startsWith("pbkdf2-sha256$1000$"));
+      assertThat(credentialVerifier.verify(clientCaptor.getValue(), "clientSecret"), is(true));
+    }
   }
 
   /**
@@ -117,7 +159,7 @@ public class ClientServiceImplTest {
     public void failsWithNullClientId() {
       ClientUnregistrationSpec request = new ClientUnregistrationSpec();
 
-      ClientServiceImpl service = new ClientServiceImpl(null, null);
+      ClientServiceImpl service = new ClientServiceImpl(null, null, createCredentialVerifier(null));
 
       try {
         service.unregister(null, request);
@@ -131,11 +173,11 @@ public class ClientServiceImplTest {
     @Test
     public void failsWithNonExistClient() {
       Database database = mock(Database.class);
-      doReturn(null).when(database).findClientById(anyString());
+      doReturn(null).when(database).findClientCredentialsById(anyString());
 
       ClientUnregistrationSpec request = new ClientUnregistrationSpec();
 
-      ClientServiceImpl service = new ClientServiceImpl(database, null);
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
 
       try {
         service.unregister("clientId", request);
@@ -153,12 +195,12 @@ public class ClientServiceImplTest {
       client.setSecret("clientSecret1");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
 
       ClientUnregistrationSpec request = new ClientUnregistrationSpec();
       request.setClientSecret("clientSecret2");
 
-      ClientServiceImpl service = new ClientServiceImpl(database, null);
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
 
       try {
         service.unregister("clientId", request);
@@ -176,13 +218,49 @@ public class ClientServiceImplTest {
       client.setSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
+
+      ClientUnregistrationSpec request = new ClientUnregistrationSpec();
+      request.setClientSecret("clientSecret");
+
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
+      service.unregister("clientId", request);
+
+      verify(database).tombstoneClient("clientId");
+      verify(database, never()).removeClient(anyString());
+    }
+
+    @Test
+    public void succeedsToRevokeSignedAccessTokensOfUnregisteredClient() throws Throwable {
+      Client client = new Client();
+      client.setSecret("clientSecret");
+
+      Database database = mock(Database.class);
+      doReturn(client).when(database).findClientCredentialsById(anyString());
+
+      Map<String, byte[]> keys = new HashMap<>();
+      keys.put("key1", new byte[32]);
+      AccessTokenSigner signer = new AccessTokenSigner(keys, "key1");
+      AccessTokenRevocationList revocationList =
+          new AccessTokenRevocationList(database, signer, 0L, 3600L, () -> 1000L);
+      revocationList.reload();
+      SignedAccessTokenManager signedAccessTokenManager =
+          new SignedAccessTokenManager(signer, revocationList, () -> 1000L);
+      String accessToken =
+          signedAccessTokenManager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 3600L);
 
       ClientUnregistrationSpec request = new ClientUnregistrationSpec();
       request.setClientSecret("clientSecret");
 
-      ClientServiceImpl service = new ClientServiceImpl(database, null);
+      ClientServiceImpl service = new ClientServiceImpl(
+          database, null, createCredentialVerifier(database), signedAccessTokenManager,
+          FutureUtil.DIRECT_EXECUTOR);
       service.unregister("clientId", request);
+
+      verify(database).storeRevokedClient("clientId", 1000L, 3600L);
+      assertThat(
+          signedAccessTokenManager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", accessToken),
+          nullValue());
     }
   }
 
@@ -202,13 +280,69 @@ public class ClientServiceImplTest {
       Database database = mock(Database.class);
       doReturn(clients).when(database).listClients();
 
-      ClientServiceImpl service = new ClientServiceImpl(database, null);
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
       ApiList<Client> clientApiList = service.list();
 
       assertThat(clientApiList.getItems().size(), is(2));
       assertThat(clientApiList.getItems().get(0).getId(), equalTo(client1.getId()));
       assertThat(clientApiList.getItems().get(1).getId(), equalTo(client2.getId()));
     }
+
+    @Test
+    public void failsToListPageWithInvalidLimit() {
+      ClientServiceImpl service = new ClientServiceImpl(null, null, createCredentialVerifier(null));
+
+      try {
+        service.list(null, 0);
+        fail("Listing clients should fail with invalid limit");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Invalid limit: 0"));
+      }
+    }
+
+    @Test
+    public void succeedsToListPage() throws Throwable {
+      Client client = new Client();
+      client.setId("clientId1");
+
+      Database database = mock(Database.class);
+      doReturn(new ApiList<>(Arrays.asList(client), "cursor")).when(database).listClients(null, 10);
+
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
+      ApiList<Client> clientApiList = service.list(null, 10);
+
+      assertThat(clientApiList.getItems().size(), is(1));
+      assertThat(clientApiList.getNextCursor(), equalTo("cursor"));
+    }
+
+    @Test
+    public void succeedsToListPageWithClampedLimit() throws Throwable {
+      Database database = mock(Database.class);
+      doReturn(new ApiList<>()).when(database).listClients(anyString(), anyInt());
+
+      ClientServiceImpl service = new ClientServiceImpl(
+          database, null, createCredentialVerifier(database), null, FutureUtil.DIRECT_EXECUTOR, 100);
+      service.list("1", 5000);
+
+      verify(database).listClients("1", 100);
+    }
+
+    @Test
+    public void failsToListPageWithMalformedCursor() {
+      Database database = mock(Database.class);
+      doThrow(new IllegalArgumentException("Invalid cursor: abc")).when(database).listClients("abc", 10);
+
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
+
+      try {
+        service.list("abc", 10);
+        fail("Listing clients should fail with malformed cursor");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Invalid cursor: abc"));
+      }
+    }
   }
 
   /**
@@ -222,7 +356,7 @@ public class ClientServiceImplTest {
       Database database = mock(Database.class);
       doReturn(null).when(database).findClientById(anyString());
 
-      ClientServiceImpl service = new ClientServiceImpl(database, null);
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
 
       try {
         service.get("clientId");
@@ -241,10 +375,14 @@ public class ClientServiceImplTest {
       Database database = mock(Database.class);
       doReturn(client).when(database).findClientById(anyString());
 
-      ClientServiceImpl service = new ClientServiceImpl(database, null);
+      ClientServiceImpl service = new ClientServiceImpl(database, null, createCredentialVerifier(database));
       Client actualClient = service.get("clientId");
 
       assertThat(actualClient.getId(), equalTo(client.getId()));
     }
   }
+
+  private static ClientCredentialVerifier createCredentialVerifier(Database database) {
+    return new ClientCredentialVerifier(new ClientCredentialConfiguration(), database);
+  }
 }
@@ -15,7 +15,10 @@ package com.ysheng.auth.core.test;
 
 import com.ysheng.auth.backend.Database;
 import com.ysheng.auth.core.ImplicitGrantServiceImpl;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
 import com.ysheng.auth.core.generator.AuthValueGenerator;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
 import com.ysheng.auth.model.api.AccessTokenType;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.ResponseType;
@@ -24,22 +27,35 @@ import com.ysheng.auth.model.api.exception.AccessTokenNotFoundException;
 import com.ysheng.auth.model.api.exception.ClientNotFoundException;
 import com.ysheng.auth.model.api.exception.ClientUnauthorizedException;
 import com.ysheng.auth.model.api.exception.InternalException;
+import com.ysheng.auth.model.api.exception.InvalidRequestException;
 import com.ysheng.auth.model.api.exception.ResponseTypeUnsupportedException;
 import com.ysheng.auth.model.api.implicit.AccessToken;
+import com.ysheng.auth.model.api.implicit.AccessTokenBulkRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AccessTokenRevokeSpec;
 import com.ysheng.auth.model.api.implicit.AuthorizationGrantSpec;
+import com.ysheng.auth.model.api.implicit.BulkAuthorizationGrantSpec;
+import com.ysheng.auth.model.configuration.core.CoreConfiguration;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.testng.Assert.fail;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -61,7 +77,7 @@ public class ImplicitGrantServiceImplTest {
       AuthorizationGrantSpec request = new AuthorizationGrantSpec();
       request.setResponseType(ResponseType.CODE);
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(null, null);
+      ImplicitGrantServiceImpl service = createService(null, null);
 
       try {
         service.issueAccessToken("clientId", request);
@@ -80,7 +96,7 @@ public class ImplicitGrantServiceImplTest {
       AuthorizationGrantSpec request = new AuthorizationGrantSpec();
       request.setResponseType(ResponseType.TOKEN);
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       try {
         service.issueAccessToken("clientId", request);
@@ -105,12 +121,36 @@ public class ImplicitGrantServiceImplTest {
       AuthorizationGrantSpec request = new AuthorizationGrantSpec();
       request.setResponseType(ResponseType.TOKEN);
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, authValueGenerator);
+      ImplicitGrantServiceImpl service = createService(database, authValueGenerator);
 
       AccessToken response = service.issueAccessToken("clientId", request);
       assertThat(response.getAccessToken(), equalTo("accessToken"));
       assertThat(response.getTokenType(), is(AccessTokenType.BEARER));
-      assertThat(response.getExpiresIn(), equalTo((long) Integer.MAX_VALUE));
+      assertThat(response.getExpiresIn(), equalTo(CoreConfiguration.DEFAULT_ACCESS_TOKEN_LIFETIME_SECONDS));
+    }
+
+    @Test
+    public void succeedsToIssueSignedAccessToken() throws Throwable {
+      Client client = new Client();
+      client.setId("clientId");
+      Database database = mock(Database.class);
+      doReturn(client).when(database).findClientById(anyString());
+
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn("signedAccessToken").when(signedAccessTokenManager)
+          .issue(eq(SignedAccessTokenClaims.Grant.IMPLICIT), eq("clientId"), any(), anyLong());
+
+      AuthorizationGrantSpec request = new AuthorizationGrantSpec();
+      request.setResponseType(ResponseType.TOKEN);
+
+      ImplicitGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
+
+      AccessToken response = service.issueAccessToken("clientId", request);
+      assertThat(response.getAccessToken(), equalTo("signedAccessToken"));
+      verify(signedAccessTokenManager).issue(
+          SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", null, CoreConfiguration.DEFAULT_ACCESS_TOKEN_LIFETIME_SECONDS);
+      verify(database).storeImplictAccessToken(response);
     }
   }
 
@@ -124,7 +164,7 @@ public class ImplicitGrantServiceImplTest {
       Database database = mock(Database.class);
       doReturn(null).when(database).findClientById(anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       try {
         service.listAccessTokens("clientId");
@@ -147,7 +187,7 @@ public class ImplicitGrantServiceImplTest {
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(tickets).when(database).listImplicitAccessTokens(anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       ApiList<AccessToken> ticketApiList = service.listAccessTokens("clientId");
 
@@ -155,6 +195,68 @@ public class ImplicitGrantServiceImplTest {
       assertThat(ticketApiList.getItems().get(0).getAccessToken(), equalTo(token1.getAccessToken()));
       assertThat(ticketApiList.getItems().get(1).getAccessToken(), equalTo(token2.getAccessToken()));
     }
+
+    @Test
+    public void failsToListPageWithInvalidLimit() {
+      ImplicitGrantServiceImpl service = createService(null, null);
+
+      try {
+        service.listAccessTokens("clientId", null, -1);
+        fail("Listing access tokens should fail with invalid limit");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Invalid limit: -1"));
+      }
+    }
+
+    @Test
+    public void succeedsToListAccessTokensPage() throws Throwable {
+      AccessToken token = new AccessToken();
+      token.setAccessToken("accessToken1");
+
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientById(anyString());
+      doReturn(new ApiList<>(Arrays.asList(token), "cursor")).when(database).listImplicitAccessTokens("clientId", null, 10);
+
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      ApiList<AccessToken> tokenApiList = service.listAccessTokens("clientId", null, 10);
+
+      assertThat(tokenApiList.getItems().size(), is(1));
+      assertThat(tokenApiList.getNextCursor(), equalTo("cursor"));
+    }
+
+    @Test
+    public void failsToIterateWithNonExistClient() {
+      Database database = mock(Database.class);
+      doReturn(null).when(database).findClientById(anyString());
+
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.iterateAccessTokens("clientId");
+        fail("Iterating implicit access tokens should fail with non-exist client");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(ClientNotFoundException.class));
+      }
+
+      verify(database, never()).iterateImplicitAccessTokens(anyString());
+    }
+
+    @Test
+    public void succeedsToIterateAccessTokens() throws Throwable {
+      AccessToken token = new AccessToken();
+      token.setAccessToken("accessToken1");
+      Iterator<AccessToken> tokens = Arrays.asList(token).iterator();
+
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientById(anyString());
+      doReturn(tokens).when(database).iterateImplicitAccessTokens("clientId");
+
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      assertThat(service.iterateAccessTokens("clientId"), is(tokens));
+    }
   }
 
   /**
@@ -168,9 +270,9 @@ public class ImplicitGrantServiceImplTest {
       request.setClientSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(null).when(database).findClientById(anyString());
+      doReturn(null).when(database).findClientCredentialsById(anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAccessToken("clientId", "accessToken", request);
@@ -190,9 +292,9 @@ public class ImplicitGrantServiceImplTest {
       client.setSecret("clientSecret2");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAccessToken("clientId", "accessToken", request);
@@ -212,10 +314,10 @@ public class ImplicitGrantServiceImplTest {
       client.setSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
       doReturn(null).when(database).findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       try {
         service.revokeAccessToken("clientId", "accessToken", request);
@@ -236,13 +338,194 @@ public class ImplicitGrantServiceImplTest {
       client.setSecret("clientSecret");
 
       Database database = mock(Database.class);
-      doReturn(client).when(database).findClientById(anyString());
+      doReturn(client).when(database).findClientCredentialsById(anyString());
+      doReturn(new AccessToken()).when(database)
+          .findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
+
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      service.revokeAccessToken("clientId", "accessToken", request);
+
+      verify(database).removeImplictAccessToken("clientId", "accessToken");
+      verify(database, never()).removeAccessToken(anyString(), anyString());
+    }
+
+    @Test
+    public void succeedsToRevokeSignedAccessToken() throws Throwable {
+      AccessTokenRevokeSpec request = new AccessTokenRevokeSpec();
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientCredentialsById(anyString());
       doReturn(new AccessToken()).when(database)
           .findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
 
       service.revokeAccessToken("clientId", "accessToken", request);
+
+      verify(signedAccessTokenManager).revoke("accessToken");
+      verify(database).removeImplictAccessToken("clientId", "accessToken");
+    }
+  }
+
+  /**
+   * Tests for {@link com.ysheng.auth.core.ImplicitGrantServiceImpl#issueAccessTokens}.
+   */
+  public static class IssueAccessTokensTest {
+
+    @Test
+    public void failsWithInvalidCount() {
+      BulkAuthorizationGrantSpec request = new BulkAuthorizationGrantSpec();
+      request.setResponseType(ResponseType.TOKEN);
+      request.setCount(CoreConfiguration.DEFAULT_MAX_BULK_ACCESS_TOKENS + 1);
+
+      ImplicitGrantServiceImpl service = createService(null, null);
+
+      try {
+        service.issueAccessTokens("clientId", request);
+        fail("Issuing implicit access tokens should fail with invalid count");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Invalid count: 1001"));
+      }
+    }
+
+    @Test
+    public void failsWithNonExistClient() {
+      BulkAuthorizationGrantSpec request = new BulkAuthorizationGrantSpec();
+      request.setResponseType(ResponseType.TOKEN);
+      request.setCount(2);
+
+      Database database = mock(Database.class);
+      doReturn(null).when(database).findClientById(anyString());
+
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.issueAccessTokens("clientId", request);
+        fail("Issuing implicit access tokens should fail with non-exist client");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(ClientNotFoundException.class));
+        verify(database, never()).storeImplicitAccessTokens(any());
+      }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void succeedsToIssueAccessTokens() throws Throwable {
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientById(anyString());
+
+      AuthValueGenerator authValueGenerator = mock(AuthValueGenerator.class);
+      doReturn("accessToken1", "accessToken2").when(authValueGenerator).generateAccessToken();
+
+      BulkAuthorizationGrantSpec request = new BulkAuthorizationGrantSpec();
+      request.setResponseType(ResponseType.TOKEN);
+      request.setState("state");
+      request.setCount(2);
+
+      ImplicitGrantServiceImpl service = createService(database, authValueGenerator);
+
+      ApiList<AccessToken> response = service.issueAccessTokens("clientId", request);
+      assertThat(response.getItems().size(), is(2));
+      assertThat(response.getItems().get(1).getAccessToken(), equalTo("accessToken2"));
+      assertThat(response.getItems().get(1).getState(), equalTo("state"));
+
+      ArgumentCaptor<List<AccessToken>> accessTokens = ArgumentCaptor.forClass(List.class);
+      verify(database).storeImplicitAccessTokens(accessTokens.capture());
+      verify(database, never()).storeImplictAccessToken(any(AccessToken.class));
+      assertThat(accessTokens.getValue(), equalTo(response.getItems()));
+    }
+  }
+
+  /**
+   * Tests for {@link com.ysheng.auth.core.ImplicitGrantServiceImpl#revokeAccessTokens}.
+   */
+  public static class RevokeAccessTokensTest {
+
+    @Test
+    public void failsWithoutAccessTokens() {
+      ImplicitGrantServiceImpl service = createService(null, null);
+
+      try {
+        service.revokeAccessTokens("clientId", new AccessTokenBulkRevokeSpec());
+        fail("Revoking implicit access tokens should fail without access tokens");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(InvalidRequestException.class));
+        assertThat(ex.getErrorDescription(), equalTo("Either access tokens or all must be given"));
+      }
+    }
+
+    @Test
+    public void failsWithUnauthorizedClient() {
+      AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+      request.setClientSecret("otherSecret");
+      request.setAll(true);
+
+      Client client = new Client();
+      client.setSecret("clientSecret");
+
+      Database database = mock(Database.class);
+      doReturn(client).when(database).findClientCredentialsById(anyString());
+
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.revokeAccessTokens("clientId", request);
+        fail("Revoking implicit access tokens should fail with unauthorized client");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(ClientUnauthorizedException.class));
+        verify(database, never()).removeImplicitAccessTokens(anyString(), any());
+      }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void succeedsToRevokeListedAccessTokens() throws Throwable {
+      AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+      request.setAccessTokens(Arrays.asList("accessToken1", "accessToken2", "accessToken1"));
+
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientCredentialsById(anyString());
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+
+      ImplicitGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
+
+      service.revokeAccessTokens("clientId", request);
+
+      ArgumentCaptor<Collection<String>> accessTokens = ArgumentCaptor.forClass(Collection.class);
+      verify(database).removeImplicitAccessTokens(eq("clientId"), accessTokens.capture());
+      assertThat(accessTokens.getValue(), contains("accessToken1", "accessToken2"));
+      verify(signedAccessTokenManager).revokeAll(
+          SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", accessTokens.getValue());
+      verify(database, never()).listImplicitAccessTokens(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void succeedsToRevokeAllAccessTokens() throws Throwable {
+      AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+      request.setAll(true);
+
+      Database database = mock(Database.class);
+      doReturn(new Client()).when(database).findClientCredentialsById(anyString());
+      doReturn(Arrays.asList("accessToken1", "accessToken2", "accessToken3").iterator())
+          .when(database).iterateImplicitAccessTokenStrings("clientId");
+      CoreConfiguration configuration = new CoreConfiguration();
+      configuration.setMaxBulkAccessTokens(2);
+
+      ImplicitGrantServiceImpl service = createService(database, null, configuration);
+
+      service.revokeAccessTokens("clientId", request);
+
+      // The access tokens are revoked in batches of at most the bulk limit.
+      ArgumentCaptor<Collection<String>> accessTokens = ArgumentCaptor.forClass(Collection.class);
+      verify(database, times(2)).removeImplicitAccessTokens(eq("clientId"), accessTokens.capture());
+      assertThat(accessTokens.getAllValues().get(0), contains("accessToken1", "accessToken2"));
+      assertThat(accessTokens.getAllValues().get(1), contains("accessToken3"));
+      verify(database, never()).listImplicitAccessTokens(anyString());
     }
   }
 
@@ -251,12 +534,29 @@ public class ImplicitGrantServiceImplTest {
    */
   public static class GetAccessTokenTest {
 
+    @Test
+    public void failsWithFilteredAccessToken() {
+      Database database = mock(Database.class);
+      doReturn(false).when(database).mayContainImplicitAccessToken(anyString(), anyString());
+
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      try {
+        service.getAccessToken("clientId", "accessToken");
+        fail("Getting implicit access token should fail with filtered access token");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(AccessTokenNotFoundException.class));
+        verify(database, never()).findClientById(anyString());
+      }
+    }
+
     @Test
     public void failsWithNonExistClient() {
       Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainImplicitAccessToken(anyString(), anyString());
       doReturn(null).when(database).findClientById(anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       try {
         service.getAccessToken("clientId", "accessToken");
@@ -270,10 +570,11 @@ public class ImplicitGrantServiceImplTest {
     @Test
     public void failsWithNonExistAccessToken() {
       Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainImplicitAccessToken(anyString(), anyString());
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(null).when(database).findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
 
       try {
         service.getAccessToken("clientId", "accessToken");
@@ -291,14 +592,100 @@ public class ImplicitGrantServiceImplTest {
       token.setClientId("clientId");
       token.setAccessToken("accessToken");
       Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainImplicitAccessToken(anyString(), anyString());
       doReturn(new Client()).when(database).findClientById(anyString());
       doReturn(token).when(database).findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
 
-      ImplicitGrantServiceImpl service = new ImplicitGrantServiceImpl(database, null);
+      ImplicitGrantServiceImpl service = createService(database, null);
+
+      AccessToken actualToken = service.getAccessToken("clientId", "accessToken");
+      assertThat(actualToken.getClientId(), equalTo("clientId"));
+      assertThat(actualToken.getAccessToken(), equalTo("accessToken"));
+    }
+
+    @Test
+    public void failsWithInvalidSignedAccessToken() {
+      Database database = mock(Database.class);
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn(true).when(signedAccessTokenManager).canValidate("accessToken");
+      doReturn(null).when(signedAccessTokenManager)
+          .validate(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", "accessToken");
+
+      ImplicitGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
+
+      try {
+        service.getAccessToken("clientId", "accessToken");
+        fail("Getting implicit access token should fail with invalid signed access token");
+      } catch (InternalException ex) {
+        assertThat(ex.getClass(), equalTo(AccessTokenNotFoundException.class));
+        verify(database, never()).findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
+      }
+    }
+
+    @Test
+    public void succeedsToGetSignedAccessTokenWithoutLookup() throws Throwable {
+      Database database = mock(Database.class);
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn(true).when(signedAccessTokenManager).canValidate("accessToken");
+      doReturn(new SignedAccessTokenClaims(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", "scope", 100L, 400L))
+          .when(signedAccessTokenManager)
+          .validate(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", "accessToken");
+
+      ImplicitGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
 
       AccessToken actualToken = service.getAccessToken("clientId", "accessToken");
       assertThat(actualToken.getClientId(), equalTo("clientId"));
       assertThat(actualToken.getAccessToken(), equalTo("accessToken"));
+      assertThat(actualToken.getScope(), equalTo("scope"));
+      assertThat(actualToken.getExpiresIn(), equalTo(300L));
+      verify(database, never()).findClientById(anyString());
+      verify(database, never()).findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
+    }
+
+    @Test
+    public void succeedsToLookUpAccessTokenThatCannotBeValidated() throws Throwable {
+      AccessToken token = new AccessToken();
+      token.setClientId("clientId");
+      Database database = mock(Database.class);
+      doReturn(true).when(database).mayContainImplicitAccessToken(anyString(), anyString());
+      doReturn(new Client()).when(database).findClientById(anyString());
+      doReturn(token).when(database).findImplicitAccessTokenByClientIdAndToken(anyString(), anyString());
+      SignedAccessTokenManager signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+      doReturn(false).when(signedAccessTokenManager).canValidate("accessToken");
+
+      ImplicitGrantServiceImpl service = createService(
+          database, null, new CoreConfiguration(), signedAccessTokenManager);
+
+      assertThat(service.getAccessToken("clientId", "accessToken"), is(token));
+      verify(signedAccessTokenManager, never()).validate(any(), anyString(), anyString());
     }
   }
+
+  private static ImplicitGrantServiceImpl createService(
+      Database database,
+      AuthValueGenerator authValueGenerator) {
+    return createService(database, authValueGenerator, new CoreConfiguration());
+  }
+
+  private static ImplicitGrantServiceImpl createService(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration) {
+    return createService(database, authValueGenerator, configuration, null);
+  }
+
+  private static ImplicitGrantServiceImpl createService(
+      Database database,
+      AuthValueGenerator authValueGenerator,
+      CoreConfiguration configuration,
+      SignedAccessTokenManager signedAccessTokenManager) {
+    return new ImplicitGrantServiceImpl(
+        database,
+        authValueGenerator,
+        configuration,
+        signedAccessTokenManager,
+        new ClientCredentialVerifier(configuration.getClientCredentialConfiguration(), database));
+  }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.test.cleanup;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.RemovedClientEntities;
+import com.ysheng.auth.core.cleanup.ClientCleanupWorker;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.cleanup.ClientCleanupWorker}.
+ */
+public class ClientCleanupWorkerTest {
+
+  private Database database;
+
+  private SignedAccessTokenManager signedAccessTokenManager;
+
+  private List<Long> sleeps;
+
+  private ClientCleanupWorker worker;
+
+  @BeforeMethod
+  public void setUp() {
+    database = mock(Database.class);
+    sleeps = new ArrayList<>();
+    signedAccessTokenManager = mock(SignedAccessTokenManager.class);
+    doReturn(true).when(database).tryLeaseClientCleanup(anyString(), anyString(), eq(30000L));
+    worker = new ClientCleanupWorker(database, signedAccessTokenManager, 500, 5000, 0L, 30000L, sleeps::add);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    worker.close();
+  }
+
+  @Test
+  public void succeedsToRemoveEntitiesInBatchesBeforeTombstone() {
+    doReturn(Arrays.asList("clientId")).when(database).listTombstonedClients();
+    doReturn(removed(500), removed(200), removed(0)).when(database).removeClientEntities("clientId", 500);
+
+    worker.cleanUp();
+
+    verify(signedAccessTokenManager).revokeClient("clientId");
+    verify(database).removeClientTombstone("clientId");
+    verify(database, times(3)).tryLeaseClientCleanup(eq("clientId"), anyString(), eq(30000L));
+    verify(database).releaseClientCleanupLease(eq("clientId"), anyString());
+    assertThat(sleeps, contains(100L, 40L));
+    assertThat(worker.getRemovedEntityCount(), is(700L));
+    assertThat(worker.getCleanedClientCount(), is(1L));
+    assertThat(worker.getPendingClientCount(), is(0));
+  }
+
+  @Test
+  public void succeedsToRemoveTombstoneOfClientWithoutEntities() {
+    doReturn(Arrays.asList("clientId")).when(database).listTombstonedClients();
+    doReturn(removed(0)).when(database).removeClientEntities("clientId", 500);
+
+    worker.cleanUp();
+
+    verify(database).removeClientTombstone("clientId");
+    assertThat(sleeps, is(empty()));
+    assertThat(worker.getRemovedEntityCount(), is(0L));
+    assertThat(worker.getCleanedClientCount(), is(1L));
+  }
+
+  @Test
+  public void succeedsToKeepTombstoneOfClientThatFails() {
+    doReturn(Arrays.asList("clientId1", "clientId2")).when(database).listTombstonedClients();
+    doThrow(new RuntimeException()).when(database).removeClientEntities("clientId1", 500);
+    doReturn(removed(0)).when(database).removeClientEntities("clientId2", 500);
+
+    worker.cleanUp();
+
+    verify(database, never()).removeClientTombstone("clientId1");
+    verify(database).removeClientTombstone("clientId2");
+    assertThat(worker.getCleanedClientCount(), is(1L));
+    assertThat(worker.getPendingClientCount(), is(1));
+  }
+
+  @Test
+  public void succeedsToSkipClientLeasedByAnotherWorker() {
+    doReturn(Arrays.asList("clientId1", "clientId2")).when(database).listTombstonedClients();
+    doReturn(false).when(database).tryLeaseClientCleanup(eq("clientId1"), anyString(), eq(30000L));
+    doReturn(removed(0)).when(database).removeClientEntities("clientId2", 500);
+
+    worker.cleanUp();
+
+    verify(database, never()).removeClientEntities(eq("clientId1"), anyInt());
+    verify(database, never()).removeClientTombstone("clientId1");
+    verify(database, never()).releaseClientCleanupLease(eq("clientId1"), anyString());
+    verify(database).removeClientTombstone("clientId2");
+    assertThat(worker.getPendingClientCount(), is(1));
+  }
+
+  @Test
+  public void succeedsToStopCleanUpOnceLeaseIsLost() {
+    doReturn(Arrays.asList("clientId")).when(database).listTombstonedClients();
+    doReturn(true, false).when(database).tryLeaseClientCleanup(eq("clientId"), anyString(), eq(30000L));
+    doReturn(removed(500)).when(database).removeClientEntities("clientId", 500);
+
+    worker.cleanUp();
+
+    verify(database, times(1)).removeClientEntities("clientId", 500);
+    verify(database, never()).removeClientTombstone("clientId");
+    assertThat(worker.getRemovedEntityCount(), is(500L));
+  }
+
+  @Test
+  public void succeedsToCleanUpNothing() {
+    doReturn(Collections.emptyList()).when(database).listTombstonedClients();
+
+    worker.cleanUp();
+
+    verify(database, never()).removeClientTombstone(anyString());
+    assertThat(worker.getPendingClientCount(), is(0));
+  }
+
+  private static RemovedClientEntities removed(int count) {
+    return new RemovedClientEntities(count, Collections.emptyList(), Collections.emptyList());
+  }
+}
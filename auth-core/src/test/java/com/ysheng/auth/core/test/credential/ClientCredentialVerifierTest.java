@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.test.credential;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
+import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.configuration.core.ClientCredentialConfiguration;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.credential.ClientCredentialVerifier}.
+ */
+public class ClientCredentialVerifierTest {
+
+  private AtomicLong clock;
+
+  private Database database;
+
+  private ClientCredentialVerifier verifier;
+
+  @BeforeMethod
+  public void setUp() {
+    ClientCredentialConfiguration configuration = new ClientCredentialConfiguration();
+    configuration.setHashIterations(1000);
+    configuration.setVerificationCacheSize(2);
+    configuration.setVerificationCacheTtlSeconds(60L);
+    configuration.setVerificationCacheNegativeTtlSeconds(10L);
+
+    clock = new AtomicLong();
+    database = mock(Database.class);
+    verifier = new ClientCredentialVerifier(configuration, database, clock::get);
+  }
+
+  @Test
+  public void failsWithInvalidHashIterations() {
+    ClientCredentialConfiguration configuration = new ClientCredentialConfiguration();
+    configuration.setHashIterations(0);
+
+    try {
+      new ClientCredentialVerifier(configuration, database);
+      fail("Client credential verifier should fail with invalid hash iterations");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Invalid number of hash iterations: 0"));
+    }
+  }
+
+  @Test
+  public void succeedsToHashWithRandomSalt() {
+    String hash = verifier.hash("clientSecret");
+
+    assertThat(hash, startsWith("pbkdf2-sha256$1000$"));
+    assertThat(hash, not(equalTo(verifier.hash("clientSecret"))));
+    assertThat(verifier.hash(null), nullValue());
+  }
+
+  @Test
+  public void succeedsToVerifyHashedSecret() {
+    Client client = createClient(verifier.hash("clientSecret"));
+
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+    assertThat(verifier.verify(client, "otherSecret"), is(false));
+    assertThat(verifier.verify(client, null), is(false));
+  }
+
+  @Test
+  public void succeedsToVerifyPlaintextSecret() {
+    Client client = createClient("clientSecret");
+
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+    assertThat(verifier.verify(client, "clientSecre"), is(false));
+  }
+
+  @Test
+  public void succeedsToRehashVerifiedPlaintextSecret() {
+    Client client = createClient("clientSecret");
+
+    assertThat(verifier.verify(client, "otherSecret"), is(false));
+    verify(database, never()).updateClientSecret(anyString(), anyString(), anyString());
+
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+
+    ArgumentCaptor<String> secretCaptor = ArgumentCaptor.forClass(String.class);
+    verify(database).updateClientSecret(eq("clientId"), eq("clientSecret"), secretCaptor.capture());
+    assertThat(secretCaptor.getValue(), startsWith("pbkdf2-sha256$1000$"));
+    assertThat(verifier.verify(createClient(secretCaptor.getValue()), "clientSecret"), is(true));
+  }
+
+  @Test
+  public void succeedsToVerifyPlaintextSecretWhenRehashFails() {
+    doThrow(new IllegalStateException("failure")).when(database)
+        .updateClientSecret(anyString(), anyString(), anyString());
+
+    assertThat(verifier.verify(createClient("clientSecret"), "clientSecret"), is(true));
+  }
+
+  @Test
+  public void succeedsToVerifyClientWithoutSecret() {
+    assertThat(verifier.verify(createClient(null), null), is(true));
+    assertThat(verifier.verify(createClient(null), "anySecret"), is(true));
+  }
+
+  @Test
+  public void failsToVerifyMalformedHash() {
+    assertThat(verifier.verify(createClient("pbkdf2-sha256$1000$salt"), "salt"), is(false));
+    assertThat(verifier.verify(createClient("pbkdf2-sha256$x$c2FsdA$aGFzaA"), "secret"), is(false));
+    assertThat(verifier.verify(createClient("pbkdf2-sha256$0$c2FsdA$aGFzaA"), "secret"), is(false));
+  }
+
+  @Test
+  public void succeedsToMemoizeVerifications() {
+    Client client = createClient(verifier.hash("clientSecret"));
+
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+    assertThat(verifier.verify(client, "otherSecret"), is(false));
+    assertThat(verifier.verify(client, "otherSecret"), is(false));
+
+    assertThat(verifier.getVerificationCache().getHitCount(), equalTo(2L));
+    assertThat(verifier.getVerificationCache().getMissCount(), equalTo(2L));
+    assertThat(verifier.getVerificationCache().size(), equalTo(2));
+
+    // Failed verifications expire first.
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10L));
+    assertThat(verifier.verify(client, "otherSecret"), is(false));
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+
+    assertThat(verifier.getVerificationCache().getHitCount(), equalTo(3L));
+    assertThat(verifier.getVerificationCache().getMissCount(), equalTo(3L));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(50L));
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+
+    assertThat(verifier.getVerificationCache().getMissCount(), equalTo(4L));
+  }
+
+  @Test
+  public void succeedsToEvictVerificationsOnceFull() {
+    Client client = createClient(verifier.hash("clientSecret"));
+
+    verifier.verify(client, "secret1");
+    verifier.verify(client, "secret2");
+    verifier.verify(client, "secret3");
+
+    assertThat(verifier.getVerificationCache().size(), equalTo(2));
+    assertThat(verifier.getVerificationCache().getEvictionCount(), equalTo(1L));
+
+    // Expired verifications are dropped before any other is evicted.
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10L));
+    verifier.verify(client, "clientSecret");
+
+    assertThat(verifier.getVerificationCache().size(), equalTo(1));
+    assertThat(verifier.getVerificationCache().getEvictionCount(), equalTo(1L));
+  }
+
+  @Test
+  public void failsToVerifyWithChangedSecret() {
+    Client client = createClient(verifier.hash("clientSecret"));
+    assertThat(verifier.verify(client, "clientSecret"), is(true));
+
+    client.setSecret(verifier.hash("newSecret"));
+
+    assertThat(verifier.verify(client, "clientSecret"), is(false));
+    assertThat(verifier.verify(client, "newSecret"), is(true));
+  }
+
+  private static Client createClient(String secret) {
+    Client client = new Client();
+    client.setId("clientId");
+    client.setSecret(secret);
+    return client;
+  }
+}
@@ -15,6 +15,7 @@ package com.ysheng.auth.core.test.generator;
 
 import com.ysheng.auth.core.generator.AuthValueGenerator;
 import com.ysheng.auth.core.generator.AuthValueGeneratorFactory;
+import com.ysheng.auth.core.generator.TimeOrderedUuidGenerator;
 import com.ysheng.auth.model.configuration.core.AuthValueGeneratorConfiguration;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -77,6 +78,89 @@ public class AuthValueGeneratorFactoryTest {
     assertThat(authCode, equalTo(authCodeUuid.toString()));
   }
 
+  @Test
+  public void succeedsToProduceBufferedUuidGenerator() {
+    AuthValueGeneratorConfiguration authValueGeneratorConfiguration = new AuthValueGeneratorConfiguration();
+    authValueGeneratorConfiguration.setClientIdGeneratorType("buffered_uuid");
+
+    AuthValueGeneratorFactory factory = new AuthValueGeneratorFactory();
+    AuthValueGenerator generator = factory.produce(authValueGeneratorConfiguration);
+    String clientId = generator.generateClientId();
+    assertThat(UUID.fromString(clientId).version(), equalTo(4));
+  }
+
+  @Test
+  public void succeedsToProduceTimeOrderedUuidGenerator() {
+    AuthValueGeneratorConfiguration authValueGeneratorConfiguration = new AuthValueGeneratorConfiguration();
+    authValueGeneratorConfiguration.setClientIdGeneratorType("uuid7");
+    authValueGeneratorConfiguration.setNodeId(42);
+
+    AuthValueGeneratorFactory factory = new AuthValueGeneratorFactory();
+    AuthValueGenerator generator = factory.produce(authValueGeneratorConfiguration);
+    UUID clientId = UUID.fromString(generator.generateClientId());
+    assertThat(clientId.version(), equalTo(7));
+    assertThat(TimeOrderedUuidGenerator.getNodeId(clientId), equalTo(42));
+  }
+
+  @Test(dataProvider = "SecretGeneratorType")
+  public void failsWithTimeOrderedUuidGeneratorForSecretValue(String valueName) {
+    AuthValueGeneratorConfiguration authValueGeneratorConfiguration = new AuthValueGeneratorConfiguration();
+    switch (valueName) {
+      case "client secret":
+        authValueGeneratorConfiguration.setClientSecretGeneratorType("uuid7");
+        break;
+      case "auth code":
+        authValueGeneratorConfiguration.setAuthCodeGeneratorType("uuid7");
+        break;
+      default:
+        authValueGeneratorConfiguration.setAccessTokenGeneratorType("uuid7");
+        break;
+    }
+
+    try {
+      AuthValueGeneratorFactory factory = new AuthValueGeneratorFactory();
+      factory.produce(authValueGeneratorConfiguration);
+      fail("Auth value generator factory should fail with UUID7 generator type for " + valueName);
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Value generator type UUID7 is not allowed for " + valueName));
+    }
+  }
+
+  @Test
+  public void succeedsToProduceBase64UrlGenerator() {
+    AuthValueGeneratorConfiguration authValueGeneratorConfiguration = new AuthValueGeneratorConfiguration();
+    authValueGeneratorConfiguration.setAccessTokenGeneratorType("Base64Url");
+    authValueGeneratorConfiguration.setBase64UrlGeneratorBytes(24);
+
+    AuthValueGeneratorFactory factory = new AuthValueGeneratorFactory();
+    AuthValueGenerator generator = factory.produce(authValueGeneratorConfiguration);
+    assertThat(generator.generateAccessToken().length(), equalTo(32));
+  }
+
+  @Test
+  public void failsWithTooFewBase64UrlGeneratorBytes() {
+    AuthValueGeneratorConfiguration authValueGeneratorConfiguration = new AuthValueGeneratorConfiguration();
+    authValueGeneratorConfiguration.setAccessTokenGeneratorType("BASE64URL");
+    authValueGeneratorConfiguration.setBase64UrlGeneratorBytes(8);
+
+    try {
+      AuthValueGeneratorFactory factory = new AuthValueGeneratorFactory();
+      factory.produce(authValueGeneratorConfiguration);
+      fail("Auth value generator factory should fail with too few random bytes");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Number of random bytes must be at least 16: 8"));
+    }
+  }
+
+  @DataProvider(name = "SecretGeneratorType")
+  public Object[][] produceSecretGeneratorType() {
+    return new Object[][] {
+        { "client secret" },
+        { "auth code" },
+        { "access token" },
+    };
+  }
+
   @DataProvider(name = "UuidGeneratorType")
   public Object[][] produceUuidGeneratorType() {
     return new Object[][] {
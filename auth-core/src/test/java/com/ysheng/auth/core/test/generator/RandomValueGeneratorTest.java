@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.test.generator;
+
+import com.ysheng.auth.core.generator.Base64UrlGenerator;
+import com.ysheng.auth.core.generator.BufferedUuidGenerator;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.generator.BufferedUuidGenerator} and
+ * {@link com.ysheng.auth.core.generator.Base64UrlGenerator}.
+ */
+public class RandomValueGeneratorTest {
+
+  private static final Pattern BASE64_URL = Pattern.compile("[A-Za-z0-9_-]+");
+
+  @Test
+  public void succeedsToGenerateVersion4Uuids() {
+    BufferedUuidGenerator generator = new BufferedUuidGenerator();
+
+    for (int i = 0; i < 1000; ++i) {
+      UUID uuid = generator.generate();
+      assertThat(uuid.version(), equalTo(4));
+      assertThat(uuid.variant(), equalTo(2));
+    }
+  }
+
+  @Test
+  public void succeedsToGenerateUniqueUuidsAcrossThreads() throws Throwable {
+    BufferedUuidGenerator generator = new BufferedUuidGenerator();
+    Set<UUID> uuids = ConcurrentHashMap.newKeySet();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 8; ++i) {
+      executor.execute(() -> {
+        // More values than one buffer holds, so that the buffers are refilled.
+        for (int j = 0; j < 1000; ++j) {
+          uuids.add(generator.generate());
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertThat(uuids.size(), equalTo(8000));
+  }
+
+  @Test
+  public void succeedsToGenerateBase64UrlValues() {
+    Base64UrlGenerator generator = new Base64UrlGenerator(16);
+
+    for (int i = 0; i < 1000; ++i) {
+      String value = generator.generate();
+      assertThat(value.length(), equalTo(22));
+      assertThat(BASE64_URL.matcher(value).matches(), equalTo(true));
+    }
+  }
+
+  @Test
+  public void succeedsToGenerateLongBase64UrlValues() {
+    Base64UrlGenerator generator = new Base64UrlGenerator(5000);
+
+    assertThat(generator.generate().length(), equalTo(6667));
+  }
+}
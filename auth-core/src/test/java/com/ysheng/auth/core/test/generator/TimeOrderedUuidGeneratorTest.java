@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.test.generator;
+
+import com.ysheng.auth.core.generator.TimeOrderedUuidGenerator;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.generator.TimeOrderedUuidGenerator}.
+ */
+public class TimeOrderedUuidGeneratorTest {
+
+  @Test
+  public void failsWithInvalidNodeId() {
+    try {
+      new TimeOrderedUuidGenerator(1024);
+      fail("Time-ordered UUID generator should fail with invalid node identifier");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Node identifier must be between 0 and 1023: 1024"));
+    }
+  }
+
+  @Test
+  public void succeedsToEmbedTimestampAndNodeId() {
+    TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(517, () -> 1500000000000L);
+
+    UUID uuid = generator.generate();
+
+    assertThat(uuid.version(), equalTo(7));
+    assertThat(uuid.variant(), equalTo(2));
+    assertThat(TimeOrderedUuidGenerator.getTimestamp(uuid), equalTo(1500000000000L));
+    assertThat(TimeOrderedUuidGenerator.getNodeId(uuid), equalTo(517));
+  }
+
+  @Test
+  public void succeedsToOrderValuesByTime() {
+    AtomicLong clock = new AtomicLong(1500000000000L);
+    TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(1, clock::get);
+
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      values.add(generator.generate().toString());
+      // The clock moves on every tenth value, and goes back once.
+      if (i % 10 == 9) {
+        clock.addAndGet(i == 49 ? -5 : 1);
+      }
+    }
+
+    for (int i = 1; i < values.size(); ++i) {
+      assertThat(values.get(i), greaterThan(values.get(i - 1)));
+    }
+  }
+
+  @Test
+  public void succeedsToCarrySequenceIntoTimestamp() {
+    TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(1, () -> 1500000000000L);
+
+    UUID last = null;
+    for (int i = 0; i < (1 << 22) + 1; ++i) {
+      last = generator.generate();
+    }
+
+    assertThat(TimeOrderedUuidGenerator.getTimestamp(last), equalTo(1500000000001L));
+  }
+
+  @Test
+  public void succeedsToGenerateUniqueValuesAcrossThreads() throws Throwable {
+    TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(1);
+    Set<UUID> uuids = ConcurrentHashMap.newKeySet();
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 8; ++i) {
+      executor.execute(() -> {
+        for (int j = 0; j < 10000; ++j) {
+          uuids.add(generator.generate());
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertThat(uuids.size(), equalTo(80000));
+    assertThat(
+        TimeOrderedUuidGenerator.getTimestamp(uuids.iterator().next()),
+        lessThan(System.currentTimeMillis() + 1000L));
+  }
+}
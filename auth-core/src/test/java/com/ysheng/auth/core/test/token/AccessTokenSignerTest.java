@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.test.token;
+
+import com.ysheng.auth.core.token.AccessTokenSigner;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.token.AccessTokenSigner}.
+ */
+public class AccessTokenSignerTest {
+
+  private static final SignedAccessTokenClaims claims =
+      new SignedAccessTokenClaims(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", "read write", 100L, 3700L);
+
+  @Test
+  public void failsWithUnknownSigningKey() {
+    try {
+      new AccessTokenSigner(createKeys("key1"), "key2");
+      fail("Access token signer should fail with unknown signing key");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Unknown signing key: key2"));
+    }
+  }
+
+  @Test
+  public void failsWithShortKey() {
+    Map<String, byte[]> keys = new HashMap<>();
+    keys.put("key1", new byte[16]);
+
+    try {
+      new AccessTokenSigner(keys, "key1");
+      fail("Access token signer should fail with short key");
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage(), equalTo("Key is shorter than 32 bytes: key1"));
+    }
+  }
+
+  @Test
+  public void succeedsToSignAndVerify() {
+    AccessTokenSigner signer = new AccessTokenSigner(createKeys("key1"), "key1");
+
+    String accessToken = signer.sign(claims);
+    SignedAccessTokenClaims actualClaims = signer.verify(accessToken);
+
+    assertThat(accessToken, startsWith("key1."));
+    assertThat(AccessTokenSigner.isSigned(accessToken), is(true));
+    assertThat(actualClaims.getGrant(), is(SignedAccessTokenClaims.Grant.AUTH_CODE));
+    assertThat(actualClaims.getClientId(), equalTo("clientId"));
+    assertThat(actualClaims.getScope(), equalTo("read write"));
+    assertThat(actualClaims.getIssuedAt(), equalTo(100L));
+    assertThat(actualClaims.getExpiresAt(), equalTo(3700L));
+  }
+
+  @Test
+  public void succeedsToSignUniqueAccessTokens() {
+    AccessTokenSigner signer = new AccessTokenSigner(createKeys("key1"), "key1");
+
+    assertThat(signer.sign(claims), not(equalTo(signer.sign(claims))));
+  }
+
+  @Test
+  public void succeedsToVerifyWithRotatedKey() {
+    String accessToken = new AccessTokenSigner(createKeys("key1"), "key1").sign(claims);
+
+    AccessTokenSigner signer = new AccessTokenSigner(createKeys("key1", "key2"), "key2");
+
+    assertThat(signer.sign(claims), startsWith("key2."));
+    assertThat(signer.verify(accessToken).getClientId(), equalTo("clientId"));
+  }
+
+  @Test
+  public void failsToVerifyWithRemovedKey() {
+    String accessToken = new AccessTokenSigner(createKeys("key1"), "key1").sign(claims);
+
+    AccessTokenSigner signer = new AccessTokenSigner(createKeys("key2"), "key2");
+
+    assertThat(signer.verify(accessToken), nullValue());
+  }
+
+  @Test
+  public void failsToVerifyTamperedAccessToken() {
+    AccessTokenSigner signer = new AccessTokenSigner(createKeys("key1"), "key1");
+    String accessToken = signer.sign(claims);
+    String otherAccessToken = signer.sign(
+        new SignedAccessTokenClaims(SignedAccessTokenClaims.Grant.AUTH_CODE, "otherClientId", null, 100L, 3700L));
+
+    String[] parts = accessToken.split("\\.");
+    String[] otherParts = otherAccessToken.split("\\.");
+
+    assertThat(signer.verify(parts[0] + "." + otherParts[1] + "." + parts[2]), nullValue());
+  }
+
+  @Test
+  public void failsToVerifyMalformedAccessToken() {
+    AccessTokenSigner signer = new AccessTokenSigner(createKeys("key1"), "key1");
+
+    assertThat(AccessTokenSigner.isSigned("0b4a5c84-7d1e-4e55-9b6c-2f9a3c1e8d77"), is(false));
+    assertThat(signer.verify("0b4a5c84-7d1e-4e55-9b6c-2f9a3c1e8d77"), nullValue());
+    assertThat(signer.verify("key1.."), nullValue());
+    assertThat(signer.verify("key1.!!!.???"), nullValue());
+    assertThat(signer.verify("key1.AAAA.AAAA"), nullValue());
+  }
+
+  private static Map<String, byte[]> createKeys(String... keyIds) {
+    Map<String, byte[]> keys = new HashMap<>();
+    for (String keyId : keyIds) {
+      byte[] key = new byte[32];
+      Arrays.fill(key, (byte) keyId.hashCode());
+      keys.put(keyId, key);
+    }
+    return keys;
+  }
+}
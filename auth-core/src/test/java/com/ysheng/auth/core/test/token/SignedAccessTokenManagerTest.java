@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.test.token;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.token.AccessTokenRevocationList;
+import com.ysheng.auth.core.token.AccessTokenSigner;
+import com.ysheng.auth.core.token.SignedAccessTokenClaims;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.token.SignedAccessTokenManager} and
+ * {@link com.ysheng.auth.core.token.AccessTokenRevocationList}.
+ */
+public class SignedAccessTokenManagerTest {
+
+  private AtomicLong clock;
+
+  private Database database;
+
+  private AccessTokenSigner signer;
+
+  private AccessTokenRevocationList revocationList;
+
+  private SignedAccessTokenManager manager;
+
+  @BeforeMethod
+  public void setUp() {
+    Map<String, byte[]> keys = new HashMap<>();
+    keys.put("key1", new byte[32]);
+
+    clock = new AtomicLong(1000L);
+    database = mock(Database.class);
+    doReturn(Collections.emptyList()).when(database).listRevokedAccessTokens();
+    signer = new AccessTokenSigner(keys, "key1");
+    revocationList = new AccessTokenRevocationList(database, signer, 0L, 3600L, clock::get);
+    manager = new SignedAccessTokenManager(signer, revocationList, clock::get);
+  }
+
+  @Test
+  public void succeedsToValidateOnlyAfterRevocationListIsLoaded() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 3600L);
+    assertThat(manager.canValidate(accessToken), is(false));
+
+    revocationList.reload();
+
+    assertThat(manager.canValidate(accessToken), is(true));
+    assertThat(manager.canValidate("0b4a5c84-7d1e-4e55-9b6c-2f9a3c1e8d77"), is(false));
+  }
+
+  @Test
+  public void succeedsToValidateIssuedAccessToken() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", "scope", 3600L);
+
+    SignedAccessTokenClaims claims = manager.validate(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", accessToken);
+
+    assertThat(claims, notNullValue());
+    assertThat(claims.getIssuedAt(), equalTo(1000L));
+    assertThat(claims.getExpiresAt(), equalTo(4600L));
+  }
+
+  @Test
+  public void failsToValidateWithMismatchedClientOrGrant() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", null, 3600L);
+
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.IMPLICIT, "otherClientId", accessToken), nullValue());
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", accessToken), nullValue());
+  }
+
+  @Test
+  public void failsToValidateExpiredAccessToken() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 3600L);
+
+    clock.set(4600L);
+
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", accessToken), nullValue());
+  }
+
+  @Test
+  public void failsToValidateRevokedAccessToken() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 3600L);
+
+    manager.revoke(accessToken);
+
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", accessToken), nullValue());
+    verify(database).storeRevokedAccessToken(accessToken, 3600L);
+    assertThat(revocationList.size(), equalTo(1));
+  }
+
+  @Test
+  public void succeedsToRevokeAccessTokensOfClientInOneCall() {
+    String accessToken1 = manager.issue(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", null, 3600L);
+    String accessToken2 = manager.issue(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", null, 60L);
+    String otherClientAccessToken = manager.issue(SignedAccessTokenClaims.Grant.IMPLICIT, "otherClientId", null, 60L);
+    String otherGrantAccessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 60L);
+
+    manager.revokeAll(
+        SignedAccessTokenClaims.Grant.IMPLICIT,
+        "clientId",
+        Arrays.asList(
+            accessToken1,
+            accessToken2,
+            otherClientAccessToken,
+            otherGrantAccessToken,
+            "0b4a5c84-7d1e-4e55-9b6c-2f9a3c1e8d77"));
+
+    Map<String, Long> expiresInByAccessToken = new HashMap<>();
+    expiresInByAccessToken.put(accessToken1, 3600L);
+    expiresInByAccessToken.put(accessToken2, 60L);
+    verify(database).storeRevokedAccessTokens(expiresInByAccessToken);
+
+    assertThat(revocationList.size(), equalTo(2));
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", accessToken2), nullValue());
+    assertThat(
+        manager.validate(SignedAccessTokenClaims.Grant.IMPLICIT, "otherClientId", otherClientAccessToken),
+        notNullValue());
+  }
+
+  @Test
+  public void succeedsToSkipRevocationOfNoSignedAccessTokens() {
+    manager.revokeAll(
+        SignedAccessTokenClaims.Grant.IMPLICIT,
+        "clientId",
+        Collections.singletonList("0b4a5c84-7d1e-4e55-9b6c-2f9a3c1e8d77"));
+
+    verify(database, never()).storeRevokedAccessTokens(anyMap());
+  }
+
+  @Test
+  public void succeedsToIgnoreRevocationOfUnsignedAccessToken() {
+    manager.revoke("0b4a5c84-7d1e-4e55-9b6c-2f9a3c1e8d77");
+
+    verify(database, never()).storeRevokedAccessToken(anyString(), anyLong());
+  }
+
+  @Test
+  public void failsToValidateAccessTokenOfRevokedClient() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 3600L);
+    String otherClientAccessToken =
+        manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "otherClientId", null, 3600L);
+
+    clock.set(1010L);
+    manager.revokeClient("clientId");
+    clock.set(1011L);
+    String laterAccessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 3600L);
+
+    verify(database).storeRevokedClient("clientId", 1010L, 3600L);
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", accessToken), nullValue());
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", laterAccessToken), notNullValue());
+    assertThat(
+        manager.validate(SignedAccessTokenClaims.Grant.AUTH_CODE, "otherClientId", otherClientAccessToken),
+        notNullValue());
+  }
+
+  @Test
+  public void succeedsToLoadClientRevocationsOfOtherNodes() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", null, 3600L);
+    doReturn(Collections.singletonMap("clientId", 1000L)).when(database).listRevokedClients();
+
+    revocationList.reload();
+
+    assertThat(manager.validate(SignedAccessTokenClaims.Grant.IMPLICIT, "clientId", accessToken), nullValue());
+    assertThat(revocationList.getRevokedClientCount(), equalTo(1));
+
+    doReturn(Collections.emptyMap()).when(database).listRevokedClients();
+    clock.set(4600L);
+    revocationList.reload();
+
+    assertThat(revocationList.getRevokedClientCount(), equalTo(0));
+  }
+
+  @Test
+  public void succeedsToLoadRevocationsOfOtherNodes() {
+    String accessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 3600L);
+    String expiringAccessToken = manager.issue(SignedAccessTokenClaims.Grant.AUTH_CODE, "clientId", null, 60L);
+    doReturn(Arrays.asList(accessToken, expiringAccessToken, "invalid")).when(database).listRevokedAccessTokens();
+
+    revocationList.reload();
+
+    assertThat(revocationList.isRevoked(accessToken), is(true));
+    assertThat(revocationList.isRevoked(expiringAccessToken), is(true));
+    assertThat(revocationList.size(), equalTo(2));
+
+    clock.set(1060L);
+    revocationList.reload();
+
+    assertThat(revocationList.isRevoked(expiringAccessToken), is(false));
+    assertThat(revocationList.size(), equalTo(1));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.core.test.util;
+
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Tracer;
+import com.ysheng.auth.core.util.FutureUtil;
+import com.ysheng.auth.model.api.exception.ClientNotFoundException;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.util.FutureUtil}.
+ */
+public class FutureUtilTest {
+
+  @Test
+  public void succeedsToRunOperationOnExecutor() throws Throwable {
+    List<Runnable> tasks = new ArrayList<>();
+
+    CompletableFuture<String> future = FutureUtil.supplyAsync(() -> "result", tasks::add);
+    assertThat(future.isDone(), is(false));
+
+    tasks.get(0).run();
+    assertThat(future.get(), equalTo("result"));
+  }
+
+  @Test
+  public void succeedsToCompleteWithCheckedException() {
+    ClientNotFoundException error = new ClientNotFoundException("clientId");
+
+    CompletableFuture<String> future = FutureUtil.supplyAsync(() -> {
+      throw error;
+    }, FutureUtil.DIRECT_EXECUTOR);
+
+    try {
+      future.join();
+      fail("Joining future should fail with the exception of the operation");
+    } catch (RuntimeException ex) {
+      assertThat(ex.getCause(), sameInstance(error));
+    }
+  }
+
+  @Test
+  public void succeedsToCompleteWithRejection() {
+    CompletableFuture<String> future = FutureUtil.supplyAsync(() -> "result", task -> {
+      throw new RejectedExecutionException();
+    });
+
+    try {
+      future.join();
+      fail("Joining future should fail with rejection of the executor");
+    } catch (RuntimeException ex) {
+      assertThat(ex.getCause(), instanceOf(RejectedExecutionException.class));
+    }
+  }
+
+  @Test
+  public void succeedsToCarryCurrentSpanToExecutor() throws Throwable {
+    List<Runnable> tasks = new ArrayList<>();
+    Span span = new Span("span");
+
+    CompletableFuture<Span> future;
+    try (Tracer.Scope scope = Tracer.activate(span)) {
+      future = FutureUtil.supplyAsync(Tracer::current, tasks::add);
+    }
+
+    tasks.get(0).run();
+    assertThat(future.get(), sameInstance(span));
+    assertThat(Tracer.current(), nullValue());
+  }
+}
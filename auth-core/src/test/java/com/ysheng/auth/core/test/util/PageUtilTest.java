@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.core.test.util;
+
+import com.ysheng.auth.core.util.PageUtil;
+import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.exception.InvalidRequestException;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link com.ysheng.auth.core.util.PageUtil}.
+ */
+public class PageUtilTest {
+
+  @Test
+  public void succeedsToKeepLimitWithinMaximum() throws Throwable {
+    AtomicInteger pageLimit = new AtomicInteger();
+
+    ApiList<String> page = PageUtil.listPage("1", 10, 100, (cursor, limit) -> {
+      pageLimit.set(limit);
+      return new ApiList<>(Arrays.asList(cursor), null);
+    });
+
+    assertThat(pageLimit.get(), is(10));
+    assertThat(page.getItems().get(0), equalTo("1"));
+  }
+
+  @Test
+  public void succeedsToClampLimitToMaximum() throws Throwable {
+    AtomicInteger pageLimit = new AtomicInteger();
+
+    PageUtil.listPage(null, Integer.MAX_VALUE, 100, (cursor, limit) -> {
+      pageLimit.set(limit);
+      return new ApiList<>();
+    });
+
+    assertThat(pageLimit.get(), is(100));
+  }
+
+  @Test
+  public void failsWithMalformedCursor() {
+    try {
+      PageUtil.listPage("abc", 10, 100, (cursor, limit) -> {
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+      });
+      fail("Listing a page should fail with a malformed cursor");
+    } catch (InvalidRequestException ex) {
+      assertThat(ex.getErrorDescription(), equalTo("Invalid cursor: abc"));
+    }
+  }
+}
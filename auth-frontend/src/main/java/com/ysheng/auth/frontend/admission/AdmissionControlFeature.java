@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.admission;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.exception.ErrorType;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Defines a feature that sheds the requests to every resource method that
+ * the {@link ConcurrencyLimiter} does not admit. A rejected request gets 503
+ * and a Retry-After header right away, instead of waiting for a worker thread
+ * that waits for Redis. A request holds its permit from when it is admitted
+ * until its response is ready, including the time a suspended response waits
+ * to be resumed. A streamed response, e.g. a {@link StreamingOutput} list
+ * that pages through Redis as it is written, holds the permit until it is
+ * written. Each endpoint class has a meter of the rejected requests, e.g.
+ * "admission.list.rejected".
+ */
+public class AdmissionControlFeature implements DynamicFeature {
+
+  // The concurrency limiter that admits the requests.
+  private final ConcurrencyLimiter concurrencyLimiter;
+
+  // The number of seconds after which rejected callers are asked to retry.
+  private final long retryAfterSeconds;
+
+  // The metric registry that the meters are registered with.
+  private final MetricRegistry metricRegistry;
+
+  /**
+   * Constructs an AdmissionControlFeature object.
+   *
+   * @param concurrencyLimiter The concurrency limiter that admits the requests.
+   * @param retryAfterSeconds The number of seconds after which rejected callers are asked to retry.
+   * @param metricRegistry The metric registry that the meters are registered with.
+   */
+  public AdmissionControlFeature(
+      ConcurrencyLimiter concurrencyLimiter,
+      long retryAfterSeconds,
+      MetricRegistry metricRegistry) {
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.retryAfterSeconds = retryAfterSeconds;
+    this.metricRegistry = metricRegistry;
+  }
+
+  /**
+   * Binds a filter that sheds the requests to the resource method.
+   *
+   * @param resourceInfo The resource method.
+   * @param context The configuration of the resource method.
+   */
+  @Override
+  public void configure(
+      ResourceInfo resourceInfo,
+      FeatureContext context) {
+    EndpointClass endpointClass = EndpointClass.of(resourceInfo.getResourceMethod());
+    Meter rejectedMeter = metricRegistry.meter(
+        MetricRegistry.name("admission", endpointClass.name().toLowerCase(Locale.ROOT), "rejected"));
+
+    // The filter runs after the rate limit filter, so that requests over the
+    // rate limit of their client do not take up the permits.
+    context.register(
+        new AdmissionFilter(concurrencyLimiter, endpointClass, retryAfterSeconds, rejectedMeter),
+        Priorities.AUTHORIZATION + 1);
+  }
+
+  /**
+   * Defines a filter that sheds the requests to one resource method, and
+   * releases the permits of the admitted ones.
+   */
+  private static class AdmissionFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    // The name of the request property that holds the time at which the request was admitted.
+    private static final String ACQUIRED_NANOS_PROPERTY = AdmissionFilter.class.getName() + ".acquiredNanos";
+
+    // The concurrency limiter that admits the requests.
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    // The endpoint class of the resource method.
+    private final EndpointClass endpointClass;
+
+    // The number of seconds after which rejected callers are asked to retry.
+    private final long retryAfterSeconds;
+
+    // The meter of the rejected requests.
+    private final Meter rejectedMeter;
+
+    /**
+     * Constructs an AdmissionFilter object.
+     *
+     * @param concurrencyLimiter The concurrency limiter that admits the requests.
+     * @param endpointClass The endpoint class of the resource method.
+     * @param retryAfterSeconds The number of seconds after which rejected callers are asked to retry.
+     * @param rejectedMeter The meter of the rejected requests.
+     */
+    AdmissionFilter(
+        ConcurrencyLimiter concurrencyLimiter,
+        EndpointClass endpointClass,
+        long retryAfterSeconds,
+        Meter rejectedMeter) {
+      this.concurrencyLimiter = concurrencyLimiter;
+      this.endpointClass = endpointClass;
+      this.retryAfterSeconds = retryAfterSeconds;
+      this.rejectedMeter = rejectedMeter;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+      long acquiredNanos = concurrencyLimiter.tryAcquire(endpointClass);
+      if (acquiredNanos != ConcurrencyLimiter.REJECTED) {
+        requestContext.setProperty(ACQUIRED_NANOS_PROPERTY, acquiredNanos);
+        return;
+      }
+
+      rejectedMeter.mark();
+      requestContext.abortWith(Response
+          .status(ErrorType.TEMPORARY_UNAVAILABLE.getHttpStatus())
+          .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+          .entity(new ExternalException(
+              ErrorType.TEMPORARY_UNAVAILABLE.name(),
+              "The service is overloaded"))
+          .type(MediaType.APPLICATION_JSON)
+          .build());
+    }
+
+    @Override
+    public void filter(
+        ContainerRequestContext requestContext,
+        ContainerResponseContext responseContext) {
+      // A streamed response does its work while it is written, which is after
+      // the response filters, so its permit is released once it is written.
+      // The entity of a response to a HEAD request is never written.
+      if (responseContext.getEntity() instanceof StreamingOutput
+          && !HttpMethod.HEAD.equals(requestContext.getMethod())) {
+        return;
+      }
+
+      // The property is removed, so that a permit is released only once even
+      // if the response filters run again for a mapped exception.
+      Object acquiredNanos = requestContext.getProperty(ACQUIRED_NANOS_PROPERTY);
+      if (acquiredNanos instanceof Long) {
+        requestContext.removeProperty(ACQUIRED_NANOS_PROPERTY);
+        concurrencyLimiter.release(
+            (Long) acquiredNanos,
+            responseContext.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR);
+      }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+      boolean failed = true;
+      try {
+        context.proceed();
+        failed = false;
+      } finally {
+        // Only a streamed response still holds its permit when it is written.
+        Object acquiredNanos = context.getProperty(ACQUIRED_NANOS_PROPERTY);
+        if (acquiredNanos instanceof Long) {
+          context.removeProperty(ACQUIRED_NANOS_PROPERTY);
+          concurrencyLimiter.release((Long) acquiredNanos, failed);
+        }
+      }
+    }
+  }
+}
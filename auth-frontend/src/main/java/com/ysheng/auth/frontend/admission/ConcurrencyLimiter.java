@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.admission;
+
+import com.ysheng.auth.frontend.configuration.AdmissionConfiguration;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Defines a limiter of the number of requests in flight, of which the limit
+ * adapts to the observed latency by additive increase and multiplicative
+ * decrease. The limit grows by one per limit of fast requests while at least
+ * half of it is in use, and shrinks by the backoff ratio once per latency
+ * threshold while requests are slow or fail, so that the requests queue up
+ * in front of the service instead of inside it when Redis slows down. Each
+ * endpoint class may use its share of the limit, so that the endpoints with
+ * smaller shares are rejected first.
+ */
+public class ConcurrencyLimiter {
+
+  // The value that tryAcquire returns if a request is rejected.
+  public static final long REJECTED = Long.MIN_VALUE;
+
+  // The lowest limit.
+  private final int minLimit;
+
+  // The highest limit.
+  private final int maxLimit;
+
+  // The latency in nanoseconds above which a request counts as slow.
+  private final long latencyThresholdNanos;
+
+  // The ratio by which the limit shrinks.
+  private final double backoffRatio;
+
+  // The shares of the limit by the ordinals of the endpoint classes.
+  private final double[] shares;
+
+  // The monotonic clock in nanoseconds.
+  private final LongSupplier nanoClock;
+
+  // The number of requests in flight.
+  private final AtomicInteger inFlight;
+
+  // The current limit, which is only changed while holding the lock of the limiter.
+  private volatile double limit;
+
+  // The time in nanoseconds when the limit shrank the last time.
+  private long lastBackoffNanos;
+
+  /**
+   * Constructs a ConcurrencyLimiter object.
+   *
+   * @param configuration The admission configuration.
+   */
+  public ConcurrencyLimiter(AdmissionConfiguration configuration) {
+    this(
+        configuration.getInitialLimit(),
+        configuration.getMinLimit(),
+        configuration.getMaxLimit(),
+        TimeUnit.MILLISECONDS.toNanos(configuration.getLatencyThresholdMillis()),
+        configuration.getBackoffRatio(),
+        configuration.getShares(),
+        System::nanoTime);
+  }
+
+  /**
+   * Constructs a ConcurrencyLimiter object.
+   *
+   * @param initialLimit The limit when the limiter starts.
+   * @param minLimit The lowest limit.
+   * @param maxLimit The highest limit.
+   * @param latencyThresholdNanos The latency in nanoseconds above which a request counts as slow.
+   * @param backoffRatio The ratio by which the limit shrinks, between 0 and 1.
+   * @param shares The shares of the limit by endpoint class, between 0 and 1.
+   * @param nanoClock The monotonic clock in nanoseconds.
+   */
+  public ConcurrencyLimiter(
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      long latencyThresholdNanos,
+      double backoffRatio,
+      Map<EndpointClass, Double> shares,
+      LongSupplier nanoClock) {
+    if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException(
+          "Invalid concurrency limits: " + minLimit + " <= " + initialLimit + " <= " + maxLimit);
+    }
+
+    if (latencyThresholdNanos <= 0) {
+      throw new IllegalArgumentException("Invalid latency threshold: " + latencyThresholdNanos);
+    }
+
+    if (backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+      throw new IllegalArgumentException("Invalid backoff ratio: " + backoffRatio);
+    }
+
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyThresholdNanos = latencyThresholdNanos;
+    this.backoffRatio = backoffRatio;
+    this.shares = toShares(shares == null ? Collections.emptyMap() : shares);
+    this.nanoClock = nanoClock;
+    this.inFlight = new AtomicInteger();
+    this.limit = initialLimit;
+    this.lastBackoffNanos = nanoClock.getAsLong() - latencyThresholdNanos;
+  }
+
+  /**
+   * Admits a request to a class of endpoints if the requests in flight leave
+   * room for it within the share of the limit of the endpoint class. An
+   * admitted request must be released once it completes.
+   *
+   * @param endpointClass The class of the endpoint.
+   * @return The time in nanoseconds when the request is admitted, or REJECTED.
+   */
+  public long tryAcquire(EndpointClass endpointClass) {
+    int allowed = Math.max(1, (int) (limit * shares[endpointClass.ordinal()]));
+    while (true) {
+      int current = inFlight.get();
+      if (current >= allowed) {
+        return REJECTED;
+      }
+
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return nanoClock.getAsLong();
+      }
+    }
+  }
+
+  /**
+   * Releases an admitted request and adapts the limit to its latency.
+   *
+   * @param acquiredNanos The time in nanoseconds when the request was admitted.
+   * @param failed Whether the request failed, which counts as slow.
+   */
+  public void release(long acquiredNanos, boolean failed) {
+    int current = inFlight.getAndDecrement();
+    long nowNanos = nanoClock.getAsLong();
+
+    if (failed || nowNanos - acquiredNanos > latencyThresholdNanos) {
+      backoff(nowNanos);
+    } else if (2 * current >= limit) {
+      increase();
+    }
+  }
+
+  /**
+   * Gets the current limit of the requests in flight.
+   *
+   * @return The current limit.
+   */
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Gets the number of requests in flight.
+   *
+   * @return The number of requests.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private synchronized void increase() {
+    limit = Math.min(maxLimit, limit + 1.0 / limit);
+  }
+
+  private synchronized void backoff(long nowNanos) {
+    // The requests that were in flight together saw the same slowdown, so
+    // the limit only shrinks once for them.
+    if (nowNanos - lastBackoffNanos < latencyThresholdNanos) {
+      return;
+    }
+
+    lastBackoffNanos = nowNanos;
+    limit = Math.max(minLimit, limit * backoffRatio);
+  }
+
+  private static double[] toShares(Map<EndpointClass, Double> shares) {
+    double[] result = new double[EndpointClass.values().length];
+    for (EndpointClass endpointClass : EndpointClass.values()) {
+      Double share = shares.get(endpointClass);
+      if (share != null && (share <= 0.0 || share > 1.0)) {
+        throw new IllegalArgumentException("Invalid share of " + endpointClass + ": " + share);
+      }
+
+      result[endpointClass.ordinal()] = share == null ? 1.0 : share;
+    }
+
+    return result;
+  }
+}
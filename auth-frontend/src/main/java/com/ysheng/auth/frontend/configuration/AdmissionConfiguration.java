@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.configuration;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Defines configuration related to the admission control of requests under
+ * overload. The number of requests in flight is limited by an adaptive limit
+ * that grows while the requests are fast and shrinks once they slow down.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AdmissionConfiguration {
+
+  // Whether to limit the number of requests in flight.
+  @JsonProperty
+  private boolean enabled = true;
+
+  // The limit of the requests in flight when the service starts.
+  @JsonProperty
+  private int initialLimit = 100;
+
+  // The lowest limit of the requests in flight.
+  @JsonProperty
+  private int minLimit = 10;
+
+  // The highest limit of the requests in flight.
+  @JsonProperty
+  private int maxLimit = 1000;
+
+  // The latency in milliseconds above which a request counts as slow, which
+  // shrinks the limit.
+  @JsonProperty
+  private long latencyThresholdMillis = 250L;
+
+  // The ratio by which the limit shrinks, between 0 and 1.
+  @JsonProperty
+  private double backoffRatio = 0.9;
+
+  // The number of seconds after which rejected callers are asked to retry.
+  @JsonProperty
+  private long retryAfterSeconds = 1L;
+
+  // The share of the limit that each endpoint class may use, between 0 and 1,
+  // so that the cheap and important endpoints are rejected last. An endpoint
+  // class without a share may use the whole limit.
+  @JsonProperty
+  private Map<EndpointClass, Double> shares = defaultShares();
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  public void setInitialLimit(int initialLimit) {
+    this.initialLimit = initialLimit;
+  }
+
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  public void setMinLimit(int minLimit) {
+    this.minLimit = minLimit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public void setMaxLimit(int maxLimit) {
+    this.maxLimit = maxLimit;
+  }
+
+  public long getLatencyThresholdMillis() {
+    return latencyThresholdMillis;
+  }
+
+  public void setLatencyThresholdMillis(long latencyThresholdMillis) {
+    this.latencyThresholdMillis = latencyThresholdMillis;
+  }
+
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  public void setBackoffRatio(double backoffRatio) {
+    this.backoffRatio = backoffRatio;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  public void setRetryAfterSeconds(long retryAfterSeconds) {
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public Map<EndpointClass, Double> getShares() {
+    return shares;
+  }
+
+  public void setShares(Map<EndpointClass, Double> shares) {
+    this.shares = shares;
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private static Map<EndpointClass, Double> defaultShares() {
+    Map<EndpointClass, Double> shares = new EnumMap<>(EndpointClass.class);
+    shares.put(EndpointClass.READ, 1.0);
+    shares.put(EndpointClass.WRITE, 0.8);
+    shares.put(EndpointClass.LIST, 0.5);
+    return shares;
+  }
+}
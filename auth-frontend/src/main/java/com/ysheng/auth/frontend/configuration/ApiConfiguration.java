@@ -31,6 +31,36 @@ public class ApiConfiguration extends Configuration {
   @JsonProperty
   private BackendConfiguration backendConfiguration;
 
+  // The number of threads that run the blocking database calls of the async
+  // operations. More threads than database connections only wait for a
+  // connection, so it is best kept close to the size of the connection pool.
+  @JsonProperty
+  private int asyncThreadCount = 16;
+
+  // The number of async operations that wait for a thread. Operations beyond
+  // it are rejected with a temporary unavailable error instead of queueing
+  // without a bound.
+  @JsonProperty
+  private int asyncQueueSize = 1024;
+
+  // The number of milliseconds after which an async request fails with a
+  // temporary unavailable error if its operation has not completed.
+  @JsonProperty
+  private long asyncTimeoutMillis = 10000L;
+
+  // The tracing configuration, or null if requests are not traced.
+  @JsonProperty
+  private TracingConfiguration tracingConfiguration;
+
+  // The rate limit configuration, or null if the rate of requests is not limited.
+  @JsonProperty
+  private RateLimitConfiguration rateLimitConfiguration;
+
+  // The admission control configuration, or null if the number of requests
+  // in flight is not limited.
+  @JsonProperty
+  private AdmissionConfiguration admissionConfiguration;
+
   ///
   /// Getters and Setters.
   ///
@@ -50,4 +80,52 @@ public class ApiConfiguration extends Configuration {
   public void setBackendConfiguration(BackendConfiguration backendConfiguration) {
     this.backendConfiguration = backendConfiguration;
   }
+
+  public int getAsyncThreadCount() {
+    return asyncThreadCount;
+  }
+
+  public void setAsyncThreadCount(int asyncThreadCount) {
+    this.asyncThreadCount = asyncThreadCount;
+  }
+
+  public int getAsyncQueueSize() {
+    return asyncQueueSize;
+  }
+
+  public void setAsyncQueueSize(int asyncQueueSize) {
+    this.asyncQueueSize = asyncQueueSize;
+  }
+
+  public long getAsyncTimeoutMillis() {
+    return asyncTimeoutMillis;
+  }
+
+  public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+    this.asyncTimeoutMillis = asyncTimeoutMillis;
+  }
+
+  public TracingConfiguration getTracingConfiguration() {
+    return tracingConfiguration;
+  }
+
+  public void setTracingConfiguration(TracingConfiguration tracingConfiguration) {
+    this.tracingConfiguration = tracingConfiguration;
+  }
+
+  public RateLimitConfiguration getRateLimitConfiguration() {
+    return rateLimitConfiguration;
+  }
+
+  public void setRateLimitConfiguration(RateLimitConfiguration rateLimitConfiguration) {
+    this.rateLimitConfiguration = rateLimitConfiguration;
+  }
+
+  public AdmissionConfiguration getAdmissionConfiguration() {
+    return admissionConfiguration;
+  }
+
+  public void setAdmissionConfiguration(AdmissionConfiguration admissionConfiguration) {
+    this.admissionConfiguration = admissionConfiguration;
+  }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.configuration;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines the rate limit of the requests of a client to a class of endpoints,
+ * as a token bucket.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RateLimit {
+
+  // The number of requests per second that are admitted in the long run.
+  @JsonProperty
+  private double requestsPerSecond;
+
+  // The number of requests that are admitted in a burst.
+  @JsonProperty
+  private int burst;
+
+  /**
+   * Constructs a RateLimit object.
+   */
+  public RateLimit() {
+  }
+
+  /**
+   * Constructs a RateLimit object.
+   *
+   * @param requestsPerSecond The number of requests per second that are admitted in the long run.
+   * @param burst The number of requests that are admitted in a burst.
+   */
+  public RateLimit(
+      double requestsPerSecond,
+      int burst) {
+    this.requestsPerSecond = requestsPerSecond;
+    this.burst = burst;
+  }
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  public void setRequestsPerSecond(double requestsPerSecond) {
+    this.requestsPerSecond = requestsPerSecond;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  public void setBurst(int burst) {
+    this.burst = burst;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.configuration;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Defines configuration related to the rate limits of the requests of each
+ * client. Each frontend instance admits requests from local token buckets,
+ * and reconciles the buckets with the counts of all instances in Redis
+ * periodically.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RateLimitConfiguration {
+
+  // Whether to limit the rate of the requests.
+  @JsonProperty
+  private boolean enabled = true;
+
+  // The interval between reconciliations with Redis in milliseconds, which
+  // bounds how long the instances together may exceed a limit.
+  @JsonProperty
+  private long reconcileIntervalMillis = 1000L;
+
+  // The length of the sliding window over which the requests of all
+  // instances are counted in seconds.
+  @JsonProperty
+  private long windowSeconds = 10L;
+
+  // The maximum number of buckets of the clients without limits of their own.
+  // Once there are as many, the requests of other such clients share one
+  // bucket per endpoint class, so that requests with made-up client
+  // identifiers cannot grow the buckets without a bound.
+  @JsonProperty
+  private int maxBuckets = 100000;
+
+  // The limits of every client by endpoint class. An endpoint class without
+  // a limit is not limited.
+  @JsonProperty
+  private Map<EndpointClass, RateLimit> defaultLimits = new EnumMap<>(EndpointClass.class);
+
+  // The limits of particular clients by endpoint class, which replace the
+  // default limits of the client for those endpoint classes.
+  @JsonProperty
+  private Map<String, Map<EndpointClass, RateLimit>> clientLimits = new HashMap<>();
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getReconcileIntervalMillis() {
+    return reconcileIntervalMillis;
+  }
+
+  public void setReconcileIntervalMillis(long reconcileIntervalMillis) {
+    this.reconcileIntervalMillis = reconcileIntervalMillis;
+  }
+
+  public long getWindowSeconds() {
+    return windowSeconds;
+  }
+
+  public void setWindowSeconds(long windowSeconds) {
+    this.windowSeconds = windowSeconds;
+  }
+
+  public int getMaxBuckets() {
+    return maxBuckets;
+  }
+
+  public void setMaxBuckets(int maxBuckets) {
+    this.maxBuckets = maxBuckets;
+  }
+
+  public Map<EndpointClass, RateLimit> getDefaultLimits() {
+    return defaultLimits;
+  }
+
+  public void setDefaultLimits(Map<EndpointClass, RateLimit> defaultLimits) {
+    this.defaultLimits = defaultLimits;
+  }
+
+  public Map<String, Map<EndpointClass, RateLimit>> getClientLimits() {
+    return clientLimits;
+  }
+
+  public void setClientLimits(Map<String, Map<EndpointClass, RateLimit>> clientLimits) {
+    this.clientLimits = clientLimits;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.configuration;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines configuration related to the tracing of requests, from the
+ * resource methods down to the Redis commands.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TracingConfiguration {
+
+  // Whether to trace requests.
+  @JsonProperty
+  private boolean enabled = true;
+
+  // The number of the slowest recent traces that are kept for the debug endpoint.
+  @JsonProperty
+  private int slowestTraceCount = 20;
+
+  // The length of the window of recent traces in seconds. The slowest traces
+  // of the current and the previous windows are kept.
+  @JsonProperty
+  private long windowSeconds = 60L;
+
+  // The fraction of the traces that are exported to the trace log, between 0 and 1.
+  @JsonProperty
+  private double sampleRate = 0.01;
+
+  // The duration in milliseconds from which traces are always exported to
+  // the trace log, regardless of the sample rate.
+  @JsonProperty
+  private long slowThresholdMillis = 500L;
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getSlowestTraceCount() {
+    return slowestTraceCount;
+  }
+
+  public void setSlowestTraceCount(int slowestTraceCount) {
+    this.slowestTraceCount = slowestTraceCount;
+  }
+
+  public long getWindowSeconds() {
+    return windowSeconds;
+  }
+
+  public void setWindowSeconds(long windowSeconds) {
+    this.windowSeconds = windowSeconds;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  public void setSampleRate(double sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+  public long getSlowThresholdMillis() {
+    return slowThresholdMillis;
+  }
+
+  public void setSlowThresholdMillis(long slowThresholdMillis) {
+    this.slowThresholdMillis = slowThresholdMillis;
+  }
+}
@@ -13,19 +13,54 @@
 
 package com.ysheng.auth.frontend.mapper;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.exception.ErrorType;
 import com.ysheng.auth.model.api.exception.InternalException;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * Defines the mapper that maps an internal exception to an external exception
- * wrapped in a RESTful response.
+ * wrapped in a RESTful response. Each error type has a counter, e.g.
+ * "errors.client-not-found", that counts the exceptions that are mapped.
  */
 public class InternalExceptionMapper implements ExceptionMapper<InternalException> {
 
+  // The prefix of the names of the error counters.
+  public static final String METRIC_PREFIX = "errors.";
+
+  // The counters by error code.
+  private final Map<String, Counter> errorCounters;
+
+  /**
+   * Constructs an InternalExceptionMapper object whose counters are not reported.
+   */
+  public InternalExceptionMapper() {
+    this(new MetricRegistry());
+  }
+
+  /**
+   * Constructs an InternalExceptionMapper object.
+   *
+   * @param metricRegistry The metric registry that the error counters are registered with.
+   */
+  public InternalExceptionMapper(MetricRegistry metricRegistry) {
+    this.errorCounters = new HashMap<>();
+    for (ErrorType errorType : ErrorType.values()) {
+      errorCounters.put(
+          errorType.name(),
+          metricRegistry.counter(METRIC_PREFIX + errorType.name().toLowerCase(Locale.ROOT).replace('_', '-')));
+    }
+  }
+
   /**
    * Converts an internal exception to an external exception.
    *
@@ -34,6 +69,11 @@ public class InternalExceptionMapper implements ExceptionMapper<InternalExceptio
    */
   @Override
   public Response toResponse(InternalException ex) {
+    Counter errorCounter = errorCounters.get(ex.getErrorCode());
+    if (errorCounter != null) {
+      errorCounter.inc();
+    }
+
     ExternalException externalException = new ExternalException(
         ex.getErrorCode(),
         ex.getErrorDescription());
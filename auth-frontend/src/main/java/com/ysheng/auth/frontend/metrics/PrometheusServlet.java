@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.ysheng.auth.backend.metrics.LogLinearReservoir;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines a servlet that exposes the metrics of a metric registry in the
+ * Prometheus text format. Gauges are exported as gauges, counters and meters
+ * as counters with a "_total" suffix, and histograms and timers as summaries
+ * with the usual quantiles and their count, where timers are in seconds. The
+ * summaries of the histograms and timers that are backed by a
+ * {@link LogLinearReservoir} have a sum as well, while the other reservoirs
+ * only keep samples of the values. The names are sanitized, e.g.
+ * "client-cache.hits" is exported as "client_cache_hits".
+ */
+public class PrometheusServlet extends HttpServlet {
+
+  // The content type of the Prometheus text format.
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  // The quantiles that are exported for histograms and timers.
+  private static final double[] QUANTILES = { 0.5, 0.75, 0.95, 0.98, 0.99, 0.999 };
+
+  // The number of nanoseconds in a second.
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  // The metric registry that is exposed.
+  private final transient MetricRegistry metricRegistry;
+
+  /**
+   * Constructs a PrometheusServlet object.
+   *
+   * @param metricRegistry The metric registry that is exposed.
+   */
+  public PrometheusServlet(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  @Override
+  protected void doGet(
+      HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(CONTENT_TYPE);
+    response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+
+    try (Writer writer = response.getWriter()) {
+      write(writer);
+    }
+  }
+
+  /**
+   * Writes the metrics in the Prometheus text format.
+   *
+   * @param writer The writer that the metrics are written to.
+   */
+  public void write(Writer writer) {
+    PrintWriter printWriter = new PrintWriter(writer);
+
+    for (Map.Entry<String, Gauge> entry : metricRegistry.getGauges().entrySet()) {
+      Double value = toDouble(entry.getValue().getValue());
+      if (value != null) {
+        writeSample(printWriter, sanitize(entry.getKey()), "gauge", value);
+      }
+    }
+
+    for (Map.Entry<String, Counter> entry : metricRegistry.getCounters().entrySet()) {
+      writeSample(printWriter, sanitize(entry.getKey()) + "_total", "counter", entry.getValue().getCount());
+    }
+
+    for (Map.Entry<String, Meter> entry : metricRegistry.getMeters().entrySet()) {
+      writeSample(printWriter, sanitize(entry.getKey()) + "_total", "counter", entry.getValue().getCount());
+    }
+
+    for (Map.Entry<String, Histogram> entry : metricRegistry.getHistograms().entrySet()) {
+      Histogram histogram = entry.getValue();
+      writeSummary(printWriter, sanitize(entry.getKey()), histogram.getSnapshot(), histogram.getCount(), 1.0);
+    }
+
+    for (Map.Entry<String, Timer> entry : metricRegistry.getTimers().entrySet()) {
+      Timer timer = entry.getValue();
+      writeSummary(
+          printWriter, sanitize(entry.getKey()) + "_seconds", timer.getSnapshot(), timer.getCount(), NANOS_PER_SECOND);
+    }
+
+    printWriter.flush();
+  }
+
+  /**
+   * Sanitizes a metric name to the characters that Prometheus allows.
+   *
+   * @param name The metric name.
+   * @return The sanitized metric name.
+   */
+  public static String sanitize(String name) {
+    String sanitized = name.replaceAll("[^a-zA-Z0-9_:]", "_");
+
+    return Character.isDigit(sanitized.charAt(0)) ? "_" + sanitized : sanitized;
+  }
+
+  private static void writeSample(
+      PrintWriter writer,
+      String name,
+      String type,
+      double value) {
+    writer.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    writer.append(name).append(' ').append(format(value)).append('\n');
+  }
+
+  private static void writeSummary(
+      PrintWriter writer,
+      String name,
+      Snapshot snapshot,
+      long count,
+      double divisor) {
+    writer.append("# TYPE ").append(name).append(" summary\n");
+    for (double quantile : QUANTILES) {
+      writer.append(name)
+          .append("{quantile=\"").append(format(quantile)).append("\"} ")
+          .append(format(snapshot.getValue(quantile) / divisor))
+          .append('\n');
+    }
+    if (snapshot instanceof LogLinearReservoir.LogLinearSnapshot) {
+      writer.append(name).append("_sum ")
+          .append(format(((LogLinearReservoir.LogLinearSnapshot) snapshot).getSum() / divisor))
+          .append('\n');
+    }
+    writer.append(name).append("_count ").append(format(count)).append('\n');
+  }
+
+  private static Double toDouble(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1.0 : 0.0;
+    }
+
+    return null;
+  }
+
+  private static String format(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return String.valueOf((long) value);
+    }
+
+    return String.valueOf(value);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ysheng.auth.backend.metrics.LogLinearReservoir;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines a feature that times every resource method, from when its request
+ * is matched until its response is ready, including the time a suspended
+ * response waits to be resumed. Each resource method has a timer named after
+ * its class and its name, backed by a {@link LogLinearReservoir}, so that the
+ * high percentiles are accurate and the throughput is metered as well. The
+ * time to write a streamed response body is not included.
+ */
+public class ResourceTimingFeature implements DynamicFeature {
+
+  // The metric registry that the timers are registered with.
+  private final MetricRegistry metricRegistry;
+
+  /**
+   * Constructs a ResourceTimingFeature object.
+   *
+   * @param metricRegistry The metric registry that the timers are registered with.
+   */
+  public ResourceTimingFeature(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  /**
+   * Binds a filter that times the resource method.
+   *
+   * @param resourceInfo The resource method.
+   * @param context The configuration of the resource method.
+   */
+  @Override
+  public void configure(
+      ResourceInfo resourceInfo,
+      FeatureContext context) {
+    Timer timer = LogLinearReservoir.timer(
+        metricRegistry,
+        MetricRegistry.name(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod().getName()));
+
+    // The request filter runs first and the response filter runs last.
+    context.register(new TimingFilter(timer), Priorities.AUTHENTICATION);
+  }
+
+  /**
+   * Defines a filter that times the requests of one resource method.
+   */
+  private static class TimingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    // The name of the request property that holds the tick at which the request started.
+    private static final String START_TICK_PROPERTY = TimingFilter.class.getName() + ".startTick";
+
+    // The timer of the resource method.
+    private final Timer timer;
+
+    /**
+     * Constructs a TimingFilter object.
+     *
+     * @param timer The timer of the resource method.
+     */
+    TimingFilter(Timer timer) {
+      this.timer = timer;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+      requestContext.setProperty(START_TICK_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(
+        ContainerRequestContext requestContext,
+        ContainerResponseContext responseContext) {
+      Object startTick = requestContext.getProperty(START_TICK_PROPERTY);
+      if (startTick instanceof Long) {
+        timer.update(System.nanoTime() - (Long) startTick, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.ratelimit;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+import com.ysheng.auth.frontend.resource.route.AuthCodeRoute;
+import com.ysheng.auth.frontend.resource.route.ClientRoute;
+import com.ysheng.auth.frontend.resource.route.ImplicitRoute;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.exception.ErrorType;
+
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines a feature that limits the rate of the requests of each client to
+ * the resource methods that take a client identifier. A request over the
+ * limit is rejected with 429 and a Retry-After header before it reaches the
+ * service. Each endpoint class has a meter of the rejected requests, e.g.
+ * "rate-limit.write.rejected".
+ */
+public class RateLimitFeature implements DynamicFeature {
+
+  // The names of the path parameters that carry a client identifier.
+  private static final Set<String> CLIENT_ID_PATH_PARAMS = new HashSet<>(Arrays.asList(
+      AuthCodeRoute.CLIENT_ID_PATH_PARAM,
+      ImplicitRoute.CLIENT_ID_PATH_PARAM,
+      ClientRoute.CLIENT_ID_PATH_PARAM));
+
+  // The rate limiter that admits the requests.
+  private final RateLimiter rateLimiter;
+
+  // The metric registry that the meters are registered with.
+  private final MetricRegistry metricRegistry;
+
+  /**
+   * Constructs a RateLimitFeature object.
+   *
+   * @param rateLimiter The rate limiter that admits the requests.
+   * @param metricRegistry The metric registry that the meters are registered with.
+   */
+  public RateLimitFeature(
+      RateLimiter rateLimiter,
+      MetricRegistry metricRegistry) {
+    this.rateLimiter = rateLimiter;
+    this.metricRegistry = metricRegistry;
+  }
+
+  /**
+   * Binds a filter that limits the rate of the resource method, if the
+   * resource method takes a client identifier.
+   *
+   * @param resourceInfo The resource method.
+   * @param context The configuration of the resource method.
+   */
+  @Override
+  public void configure(
+      ResourceInfo resourceInfo,
+      FeatureContext context) {
+    Method method = resourceInfo.getResourceMethod();
+    String clientIdPathParam = findClientIdPathParam(method);
+    if (clientIdPathParam == null) {
+      return;
+    }
+
+    EndpointClass endpointClass = EndpointClass.of(method);
+    Meter rejectedMeter = metricRegistry.meter(
+        MetricRegistry.name("rate-limit", endpointClass.name().toLowerCase(Locale.ROOT), "rejected"));
+
+    // The filter runs after the timing filter, so that rejected requests are timed too.
+    context.register(
+        new RateLimitFilter(rateLimiter, clientIdPathParam, endpointClass, rejectedMeter),
+        Priorities.AUTHORIZATION);
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  /**
+   * Rounds a time up to whole seconds, as the Retry-After header requires.
+   *
+   * @param nanos The time in nanoseconds.
+   * @return The time in seconds, which is at least one.
+   */
+  static long toRetryAfterSeconds(long nanos) {
+    return Math.max(1L, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  private static String findClientIdPathParam(Method method) {
+    for (Annotation[] annotations : method.getParameterAnnotations()) {
+      for (Annotation annotation : annotations) {
+        if (annotation instanceof PathParam && CLIENT_ID_PATH_PARAMS.contains(((PathParam) annotation).value())) {
+          return ((PathParam) annotation).value();
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Defines a filter that limits the rate of the requests of one resource method.
+   */
+  private static class RateLimitFilter implements ContainerRequestFilter {
+
+    // The rate limiter that admits the requests.
+    private final RateLimiter rateLimiter;
+
+    // The name of the path parameter that carries the client identifier.
+    private final String clientIdPathParam;
+
+    // The endpoint class of the resource method.
+    private final EndpointClass endpointClass;
+
+    // The meter of the rejected requests.
+    private final Meter rejectedMeter;
+
+    /**
+     * Constructs a RateLimitFilter object.
+     *
+     * @param rateLimiter The rate limiter that admits the requests.
+     * @param clientIdPathParam The name of the path parameter that carries the client identifier.
+     * @param endpointClass The endpoint class of the resource method.
+     * @param rejectedMeter The meter of the rejected requests.
+     */
+    RateLimitFilter(
+        RateLimiter rateLimiter,
+        String clientIdPathParam,
+        EndpointClass endpointClass,
+        Meter rejectedMeter) {
+      this.rateLimiter = rateLimiter;
+      this.clientIdPathParam = clientIdPathParam;
+      this.endpointClass = endpointClass;
+      this.rejectedMeter = rejectedMeter;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+      String clientId = requestContext.getUriInfo().getPathParameters().getFirst(clientIdPathParam);
+      if (clientId == null) {
+        return;
+      }
+
+      long retryAfterNanos = rateLimiter.tryAcquire(clientId, endpointClass);
+      if (retryAfterNanos == 0L) {
+        return;
+      }
+
+      rejectedMeter.mark();
+      requestContext.abortWith(Response
+          .status(ErrorType.TOO_MANY_REQUESTS.getHttpStatus())
+          .header(HttpHeaders.RETRY_AFTER, toRetryAfterSeconds(retryAfterNanos))
+          .entity(new ExternalException(
+              ErrorType.TOO_MANY_REQUESTS.name(),
+              "Too many requests of client " + clientId))
+          .type(MediaType.APPLICATION_JSON)
+          .build());
+    }
+  }
+}
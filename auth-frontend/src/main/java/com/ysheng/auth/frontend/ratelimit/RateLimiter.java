@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.ratelimit;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.frontend.configuration.RateLimit;
+import com.ysheng.auth.frontend.configuration.RateLimitConfiguration;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the rate of the requests of each client to each class of endpoints.
+ * Requests are admitted from local token buckets without a round trip, and
+ * the buckets are reconciled with Redis periodically in the background: the
+ * requests that each bucket admitted are added to a counter that all
+ * instances share, and the bucket is slowed down to its share of the limit
+ * while all instances together exceed it. A bucket keeps its rate if the
+ * reconciliation fails, so that the limits fall back to per instance limits
+ * while Redis is not available. Idle buckets are dropped. The number of
+ * buckets of clients without limits of their own is bounded, since the client
+ * identifiers come from the requests before anyone checks that the clients
+ * exist; beyond the bound, such clients share one bucket per endpoint class.
+ */
+public class RateLimiter {
+
+  // The logger of the rate limiter.
+  private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiter.class);
+
+  // The name in place of a client identifier of the buckets that the clients
+  // share once there are too many buckets.
+  private static final String SHARED_BUCKET_NAME = "*";
+
+  // The limits of every client by endpoint class.
+  private final Map<EndpointClass, RateLimit> defaultLimits;
+
+  // The limits of particular clients by endpoint class.
+  private final Map<String, Map<EndpointClass, RateLimit>> clientLimits;
+
+  // The database that holds the counters that all instances share.
+  private final Database database;
+
+  // The length of the sliding window over which the requests are counted in milliseconds.
+  private final long windowMillis;
+
+  // The maximum number of buckets of the clients without limits of their own.
+  private final int maxBuckets;
+
+  // The monotonic clock in nanoseconds.
+  private final LongSupplier nanoClock;
+
+  // The token buckets by the names of their counters.
+  private final Map<String, TokenBucket> buckets;
+
+  // The number of reconciliations that failed.
+  private final AtomicLong reconcileFailureCount;
+
+  // The executor that runs the reconciliation.
+  private final ScheduledExecutorService reconcileExecutor;
+
+  /**
+   * Constructs a RateLimiter object, which starts reconciling periodically.
+   *
+   * @param database The database that holds the counters that all instances share.
+   * @param configuration The rate limit configuration.
+   */
+  public RateLimiter(
+      Database database,
+      RateLimitConfiguration configuration) {
+    this(
+        database,
+        configuration.getDefaultLimits(),
+        configuration.getClientLimits(),
+        TimeUnit.SECONDS.toMillis(configuration.getWindowSeconds()),
+        configuration.getReconcileIntervalMillis(),
+        configuration.getMaxBuckets(),
+        System::nanoTime);
+  }
+
+  /**
+   * Constructs a RateLimiter object.
+   *
+   * @param database The database that holds the counters that all instances share.
+   * @param defaultLimits The limits of every client by endpoint class.
+   * @param clientLimits The limits of particular clients by endpoint class.
+   * @param windowMillis The length of the sliding window over which the requests are counted in milliseconds.
+   * @param reconcileIntervalMillis The interval between reconciliations in milliseconds,
+   *                                or zero to only reconcile on demand.
+   * @param maxBuckets The maximum number of buckets of the clients without limits of their own.
+   * @param nanoClock The monotonic clock in nanoseconds.
+   */
+  public RateLimiter(
+      Database database,
+      Map<EndpointClass, RateLimit> defaultLimits,
+      Map<String, Map<EndpointClass, RateLimit>> clientLimits,
+      long windowMillis,
+      long reconcileIntervalMillis,
+      int maxBuckets,
+      LongSupplier nanoClock) {
+    if (windowMillis <= 0) {
+      throw new IllegalArgumentException("Invalid rate limit window: " + windowMillis);
+    }
+
+    if (reconcileIntervalMillis < 0) {
+      throw new IllegalArgumentException("Invalid rate limit reconcile interval: " + reconcileIntervalMillis);
+    }
+
+    if (maxBuckets <= 0) {
+      throw new IllegalArgumentException("Invalid maximum number of rate limit buckets: " + maxBuckets);
+    }
+
+    this.database = database;
+    this.defaultLimits = defaultLimits == null ? Collections.emptyMap() : defaultLimits;
+    this.clientLimits = clientLimits == null ? Collections.emptyMap() : clientLimits;
+    this.windowMillis = windowMillis;
+    this.maxBuckets = maxBuckets;
+    this.nanoClock = nanoClock;
+    this.buckets = new ConcurrentHashMap<>();
+    this.reconcileFailureCount = new AtomicLong();
+    this.reconcileExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rate-limit-reconciler");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (reconcileIntervalMillis > 0) {
+      reconcileExecutor.scheduleWithFixedDelay(
+          this::reconcile, reconcileIntervalMillis, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Takes a token for a request of a client to a class of endpoints.
+   *
+   * @param clientId The client identifier.
+   * @param endpointClass The class of the endpoint.
+   * @return Zero if the request is admitted, or else the time in nanoseconds
+   *         after which a request is expected to be admitted again.
+   */
+  public long tryAcquire(String clientId, EndpointClass endpointClass) {
+    RateLimit limit = getLimit(clientId, endpointClass);
+    if (limit == null) {
+      return 0L;
+    }
+
+    // The bound is checked before the bucket is created, so it may be exceeded
+    // by the requests that race for the last few buckets.
+    String endpointClassName = endpointClass.name().toLowerCase(Locale.ROOT);
+    String name = clientId + ":" + endpointClassName;
+    if (!clientLimits.containsKey(clientId) && buckets.size() >= maxBuckets && !buckets.containsKey(name)) {
+      name = SHARED_BUCKET_NAME + ":" + endpointClassName;
+    }
+
+    long nowNanos = nanoClock.getAsLong();
+    TokenBucket bucket = buckets.computeIfAbsent(
+        name,
+        key -> new TokenBucket(
+            limit.getRequestsPerSecond(),
+            limit.getBurst(),
+            TimeUnit.MILLISECONDS.toNanos(windowMillis),
+            nowNanos));
+
+    return bucket.tryAcquire(nowNanos);
+  }
+
+  /**
+   * Reconciles the buckets that admitted requests or are throttled with the
+   * counters in Redis in one batch, and drops the buckets that are idle for
+   * two windows.
+   */
+  public void reconcile() {
+    long idleNanos = TimeUnit.MILLISECONDS.toNanos(2 * windowMillis);
+    Map<String, TokenBucket> activeBuckets = new HashMap<>();
+    Map<String, Long> pendingCounts = new HashMap<>();
+
+    Iterator<Map.Entry<String, TokenBucket>> iterator = buckets.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, TokenBucket> entry = iterator.next();
+      TokenBucket bucket = entry.getValue();
+
+      if (bucket.isIdle(idleNanos, nanoClock.getAsLong())) {
+        iterator.remove();
+        continue;
+      }
+
+      long pendingCount = bucket.takePendingCount();
+      if (pendingCount == 0L && !bucket.isThrottled()) {
+        continue;
+      }
+
+      activeBuckets.put(entry.getKey(), bucket);
+      pendingCounts.put(entry.getKey(), pendingCount);
+    }
+
+    if (pendingCounts.isEmpty()) {
+      return;
+    }
+
+    Map<String, Double> globalCounts;
+    try {
+      globalCounts = database.addRateLimitCounts(pendingCounts, windowMillis);
+    } catch (RuntimeException ex) {
+      activeBuckets.forEach((name, bucket) -> bucket.restorePendingCount(pendingCounts.get(name)));
+      reconcileFailureCount.incrementAndGet();
+      LOGGER.warn("Failed to reconcile rate limits, which are enforced per instance until Redis is back", ex);
+      return;
+    }
+
+    long nowNanos = nanoClock.getAsLong();
+    activeBuckets.forEach((name, bucket) -> {
+      Double globalCount = globalCounts.get(name);
+      if (globalCount != null) {
+        bucket.reconcile(globalCount, nowNanos);
+      }
+    });
+  }
+
+  /**
+   * Gets the number of buckets that are in use.
+   *
+   * @return The number of buckets.
+   */
+  public int getBucketCount() {
+    return buckets.size();
+  }
+
+  /**
+   * Gets the number of reconciliations that failed since the rate limiter
+   * started.
+   *
+   * @return The number of reconciliations.
+   */
+  public long getReconcileFailureCount() {
+    return reconcileFailureCount.get();
+  }
+
+  /**
+   * Stops reconciling the buckets.
+   */
+  public void close() {
+    reconcileExecutor.shutdownNow();
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private RateLimit getLimit(String clientId, EndpointClass endpointClass) {
+    Map<EndpointClass, RateLimit> limits = clientLimits.get(clientId);
+    if (limits != null && limits.containsKey(endpointClass)) {
+      return limits.get(endpointClass);
+    }
+
+    return defaultLimits.get(endpointClass);
+  }
+}
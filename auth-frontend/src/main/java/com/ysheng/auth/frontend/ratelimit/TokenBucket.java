@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines a local token bucket of one client and one endpoint class. The
+ * bucket refills at the configured rate as long as all instances together
+ * stay within the limit. Once they exceed it, the bucket refills at the
+ * share of the rate that matches the share of the requests that this
+ * instance admits, so that the rates of all instances add up to the limit.
+ */
+public class TokenBucket {
+
+  // The number of nanoseconds in a second.
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  // The configured number of requests per second.
+  private final double configuredRate;
+
+  // The maximum number of tokens in the bucket.
+  private final double capacity;
+
+  // The length of the window over which the admitted requests are counted in nanoseconds.
+  private final long windowNanos;
+
+  // The current number of tokens that are added per second.
+  private double rate;
+
+  // The current number of tokens in the bucket.
+  private double tokens;
+
+  // The time at which the tokens were last refilled in nanoseconds.
+  private long refillNanos;
+
+  // The time at which a request was last made in nanoseconds.
+  private long lastRequestNanos;
+
+  // The number of requests that are admitted since the last reconciliation.
+  private long pendingCount;
+
+  // The index of the current window of the admitted requests.
+  private long window;
+
+  // The number of requests that are admitted in the current window.
+  private long windowCount;
+
+  // The number of requests that are admitted in the previous window.
+  private long previousWindowCount;
+
+  /**
+   * Constructs a TokenBucket object, which starts full.
+   *
+   * @param requestsPerSecond The number of requests per second that are admitted in the long run.
+   * @param burst The number of requests that are admitted in a burst.
+   * @param windowNanos The length of the window over which the requests are counted in nanoseconds.
+   * @param nowNanos The current time in nanoseconds.
+   */
+  public TokenBucket(
+      double requestsPerSecond,
+      int burst,
+      long windowNanos,
+      long nowNanos) {
+    this.configuredRate = requestsPerSecond;
+    this.capacity = Math.max(burst, 1);
+    this.windowNanos = windowNanos;
+    this.rate = requestsPerSecond;
+    this.tokens = capacity;
+    this.refillNanos = nowNanos;
+    this.lastRequestNanos = nowNanos;
+    this.window = Math.floorDiv(nowNanos, windowNanos);
+  }
+
+  /**
+   * Takes a token for a request if there is one.
+   *
+   * @param nowNanos The current time in nanoseconds.
+   * @return Zero if the request is admitted, or else the time in nanoseconds
+   *         after which the bucket is expected to have a token again.
+   */
+  public synchronized long tryAcquire(long nowNanos) {
+    refill(nowNanos);
+    lastRequestNanos = nowNanos;
+
+    if (tokens >= 1.0) {
+      tokens -= 1.0;
+      ++pendingCount;
+      advanceWindow(nowNanos);
+      ++windowCount;
+      return 0L;
+    }
+
+    if (rate <= 0.0) {
+      return windowNanos;
+    }
+
+    return Math.max((long) Math.ceil((1.0 - tokens) / rate * NANOS_PER_SECOND), 1L);
+  }
+
+  /**
+   * Takes the number of requests that are admitted since the last reconciliation.
+   *
+   * @return The number of requests.
+   */
+  public synchronized long takePendingCount() {
+    long count = pendingCount;
+    pendingCount = 0L;
+    return count;
+  }
+
+  /**
+   * Gives back requests that failed to be reconciled, so that they are
+   * reconciled the next time.
+   *
+   * @param count The number of requests.
+   */
+  public synchronized void restorePendingCount(long count) {
+    pendingCount += count;
+  }
+
+  /**
+   * Adjusts the rate of the bucket to the number of requests that all
+   * instances together admitted in the sliding window.
+   *
+   * @param globalCount The estimated number of requests of all instances in the sliding window.
+   * @param nowNanos The current time in nanoseconds.
+   */
+  public synchronized void reconcile(double globalCount, long nowNanos) {
+    refill(nowNanos);
+
+    double budget = configuredRate * windowNanos / NANOS_PER_SECOND;
+    if (globalCount <= budget) {
+      rate = configuredRate;
+    } else {
+      rate = configuredRate * Math.min(getLocalCount(nowNanos) / globalCount, 1.0);
+    }
+  }
+
+  /**
+   * Checks whether the bucket has not been used for a while, and has no
+   * requests left to be reconciled.
+   *
+   * @param idleNanos The time without requests after which the bucket is idle in nanoseconds.
+   * @param nowNanos The current time in nanoseconds.
+   * @return True if the bucket is idle.
+   */
+  public synchronized boolean isIdle(long idleNanos, long nowNanos) {
+    return pendingCount == 0L && nowNanos - lastRequestNanos >= idleNanos;
+  }
+
+  /**
+   * Checks whether the bucket refills slower than the configured rate, because
+   * all instances together exceed the limit.
+   *
+   * @return True if the bucket is throttled.
+   */
+  public synchronized boolean isThrottled() {
+    return rate < configuredRate;
+  }
+
+  /**
+   * Gets the current number of tokens that are added per second.
+   *
+   * @return The rate of the bucket.
+   */
+  public synchronized double getRate() {
+    return rate;
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private void refill(long nowNanos) {
+    if (nowNanos > refillNanos) {
+      tokens = Math.min(capacity, tokens + (nowNanos - refillNanos) * rate / NANOS_PER_SECOND);
+      refillNanos = nowNanos;
+    }
+  }
+
+  private void advanceWindow(long nowNanos) {
+    long currentWindow = Math.floorDiv(nowNanos, windowNanos);
+    if (currentWindow != window) {
+      previousWindowCount = currentWindow == window + 1 ? windowCount : 0L;
+      windowCount = 0L;
+      window = currentWindow;
+    }
+  }
+
+  private double getLocalCount(long nowNanos) {
+    advanceWindow(nowNanos);
+    double previousWeight = 1.0 - (double) Math.floorMod(nowNanos, windowNanos) / windowNanos;
+    return windowCount + previousWindowCount * previousWeight;
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.resource;
+
+import javax.ws.rs.GET;
+
+import java.lang.reflect.Method;
+
+/**
+ * Defines the enum of endpoint classes, which group the resource methods by
+ * their cost and their importance to the callers, e.g. to give them limits
+ * of their own.
+ */
+public enum EndpointClass {
+
+  // Reads one entity, e.g. to validate an access token.
+  READ,
+
+  // Creates, changes or removes entities, e.g. to issue an access token.
+  WRITE,
+
+  // Lists the entities of a collection.
+  LIST;
+
+  /**
+   * Gets the endpoint class of a resource method, which is the class that the
+   * method is annotated with, or else READ for GET methods and WRITE for the
+   * other methods.
+   *
+   * @param method The resource method.
+   * @return The endpoint class of the resource method.
+   */
+  public static EndpointClass of(Method method) {
+    Endpoint endpoint = method.getAnnotation(Endpoint.class);
+    if (endpoint != null) {
+      return endpoint.value();
+    }
+
+    return method.isAnnotationPresent(GET.class) ? READ : WRITE;
+  }
+}
@@ -13,14 +13,26 @@
 
 package com.ysheng.auth.frontend.resource;
 
+import com.ysheng.auth.model.api.exception.TemporaryUnavailableException;
+
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Defines a utility class that builds response for RESTful API calls.
  */
 public class ResponseBuilder {
 
+  // The default number of milliseconds after which a suspended response is
+  // resumed with an error if its future has not completed.
+  public static final long DEFAULT_TIMEOUT_MILLIS = 10000L;
+
   /**
    * Builds a response with empty entity.
    *
@@ -53,4 +65,53 @@ public class ResponseBuilder {
 
     return builder.build();
   }
+
+  /**
+   * Resumes a suspended response once a future completes, or with an error
+   * after the default timeout.
+   *
+   * @param asyncResponse The suspended response.
+   * @param responseStatus The response status if the future succeeds.
+   * @param future The future whose result is contained in the response.
+   */
+  public static void resume(
+      AsyncResponse asyncResponse,
+      Response.Status responseStatus,
+      CompletableFuture<?> future) {
+    resume(asyncResponse, responseStatus, future, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Resumes a suspended response once a future completes, either with a
+   * response that contains the result of the future, or with the exception
+   * that the future completes with, which is mapped by the exception mappers.
+   * A future that is rejected by a full executor, or that does not complete
+   * within the timeout, resumes the response with a temporary unavailable
+   * error, so that neither holds the connection or its admission permit.
+   *
+   * @param asyncResponse The suspended response.
+   * @param responseStatus The response status if the future succeeds.
+   * @param future The future whose result is contained in the response.
+   * @param timeoutMillis The number of milliseconds after which the response is resumed with an error.
+   */
+  public static void resume(
+      AsyncResponse asyncResponse,
+      Response.Status responseStatus,
+      CompletableFuture<?> future,
+      long timeoutMillis) {
+    asyncResponse.setTimeoutHandler(
+        response -> response.resume(new TemporaryUnavailableException("The request timed out")));
+    asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+
+    future.whenComplete((entity, ex) -> {
+      Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+      if (cause == null) {
+        asyncResponse.resume(build(responseStatus, entity));
+      } else if (cause instanceof RejectedExecutionException) {
+        asyncResponse.resume(new TemporaryUnavailableException("The service is overloaded"));
+      } else {
+        asyncResponse.resume(cause);
+      }
+    });
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.resource;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.dropwizard.jackson.Jackson;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Defines a response entity that writes a list of items in the same JSON
+ * format as {@link com.ysheng.auth.model.api.ApiList}, one item at a time
+ * as they are pulled from a lazy iterator, so that the memory used does not
+ * depend on the size of the list. Since the response status is sent before
+ * the items are read, a failure in the middle of the list truncates the
+ * response instead of turning it into an error response.
+ *
+ * @param <T> The type of the items.
+ */
+public class StreamingApiList<T> implements StreamingOutput {
+
+  // The object mapper that serializes the items. It leaves flushing and
+  // closing the response body to the container, which flushes it in chunks.
+  private static final ObjectMapper OBJECT_MAPPER = Jackson.newObjectMapper()
+      .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+      .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+  // The iterator over the items to be written.
+  private final Iterator<T> items;
+
+  /**
+   * Constructs a StreamingApiList object.
+   *
+   * @param items The iterator over the items to be written.
+   */
+  public StreamingApiList(Iterator<T> items) {
+    this.items = items;
+  }
+
+  /**
+   * Writes the items to the response body.
+   *
+   * @param outputStream The output stream of the response body.
+   * @throws IOException The error that occurs when writing the response body.
+   */
+  @Override
+  public void write(OutputStream outputStream) throws IOException {
+    try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(outputStream)) {
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("items");
+      while (items.hasNext()) {
+        OBJECT_MAPPER.writeValue(generator, items.next());
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+}
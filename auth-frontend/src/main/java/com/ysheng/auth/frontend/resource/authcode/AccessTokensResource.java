@@ -14,7 +14,11 @@
 package com.ysheng.auth.frontend.resource.authcode;
 
 import com.ysheng.auth.core.AuthCodeGrantService;
+import com.ysheng.auth.frontend.resource.Endpoint;
+import com.ysheng.auth.frontend.resource.EndpointClass;
 import com.ysheng.auth.frontend.resource.ResponseBuilder;
+import com.ysheng.auth.frontend.resource.StreamingApiList;
+import com.ysheng.auth.frontend.resource.route.BaseRoute;
 import com.ysheng.auth.frontend.resource.route.AuthCodeRoute;
 import com.ysheng.auth.model.api.authcode.AccessTokenIssueSpec;
 import com.ysheng.auth.model.api.exception.InternalException;
@@ -25,6 +29,9 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -40,29 +47,62 @@ public class AccessTokensResource {
   // The auth code grant service that performs backend operation.
   private final AuthCodeGrantService authCodeGrantService;
 
+  // The number of milliseconds after which a request fails if its service
+  // call has not completed.
+  private final long asyncTimeoutMillis;
+
   /**
    * Constructs a AccessTokensResource object.
    *
    * @param authCodeGrantService The auth code grant service that performs backend operation.
    */
   public AccessTokensResource(AuthCodeGrantService authCodeGrantService) {
+    this(authCodeGrantService, ResponseBuilder.DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Constructs an AccessTokensResource object with the timeout of its async requests.
+   *
+   * @param authCodeGrantService The auth code grant service that performs backend operation.
+   * @param asyncTimeoutMillis The number of milliseconds after which a request fails if its
+   *                           service call has not completed.
+   */
+  public AccessTokensResource(
+      AuthCodeGrantService authCodeGrantService,
+      long asyncTimeoutMillis) {
     this.authCodeGrantService = authCodeGrantService;
+    this.asyncTimeoutMillis = asyncTimeoutMillis;
   }
 
   @POST
-  public Response issue(
+  public void issue(
       @PathParam(AuthCodeRoute.CLIENT_ID_PATH_PARAM) String clientId,
-      AccessTokenIssueSpec request) throws InternalException {
-    return ResponseBuilder.build(
+      AccessTokenIssueSpec request,
+      @Suspended AsyncResponse asyncResponse) {
+    ResponseBuilder.resume(
+        asyncResponse,
         Response.Status.CREATED,
-        authCodeGrantService.issueAccessToken(clientId, request));
+        authCodeGrantService.issueAccessTokenAsync(clientId, request),
+        asyncTimeoutMillis);
   }
 
   @GET
+  @Endpoint(EndpointClass.LIST)
   public Response list(
-      @PathParam(AuthCodeRoute.CLIENT_ID_PATH_PARAM) String clientId) throws InternalException {
+      @PathParam(AuthCodeRoute.CLIENT_ID_PATH_PARAM) String clientId,
+      @QueryParam(BaseRoute.CURSOR_QUERY_PARAM) String cursor,
+      @QueryParam(BaseRoute.LIMIT_QUERY_PARAM) Integer limit) throws InternalException {
+    if (cursor == null && limit == null) {
+      return ResponseBuilder.build(
+          Response.Status.OK,
+          new StreamingApiList<>(authCodeGrantService.iterateAccessTokens(clientId)));
+    }
+
     return ResponseBuilder.build(
         Response.Status.OK,
-        authCodeGrantService.listAccessTokens(clientId));
+        authCodeGrantService.listAccessTokens(
+            clientId,
+            cursor,
+            limit == null ? BaseRoute.DEFAULT_LIMIT : limit));
   }
 }
@@ -14,7 +14,11 @@
 package com.ysheng.auth.frontend.resource.authcode;
 
 import com.ysheng.auth.core.AuthCodeGrantService;
+import com.ysheng.auth.frontend.resource.Endpoint;
+import com.ysheng.auth.frontend.resource.EndpointClass;
 import com.ysheng.auth.frontend.resource.ResponseBuilder;
+import com.ysheng.auth.frontend.resource.StreamingApiList;
+import com.ysheng.auth.frontend.resource.route.BaseRoute;
 import com.ysheng.auth.frontend.resource.route.AuthCodeRoute;
 import com.ysheng.auth.model.api.authcode.AuthorizationGrantSpec;
 import com.ysheng.auth.model.api.exception.InternalException;
@@ -25,6 +29,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -58,10 +63,22 @@ public class AuthCodesResource {
   }
 
   @GET
+  @Endpoint(EndpointClass.LIST)
   public Response list(
-      @PathParam(AuthCodeRoute.CLIENT_ID_PATH_PARAM) String clientId) throws InternalException {
+      @PathParam(AuthCodeRoute.CLIENT_ID_PATH_PARAM) String clientId,
+      @QueryParam(BaseRoute.CURSOR_QUERY_PARAM) String cursor,
+      @QueryParam(BaseRoute.LIMIT_QUERY_PARAM) Integer limit) throws InternalException {
+    if (cursor == null && limit == null) {
+      return ResponseBuilder.build(
+          Response.Status.OK,
+          new StreamingApiList<>(authCodeGrantService.iterateAuthorizationTickets(clientId)));
+    }
+
     return ResponseBuilder.build(
         Response.Status.OK,
-        authCodeGrantService.listAuthorizationTickets(clientId));
+        authCodeGrantService.listAuthorizationTickets(
+            clientId,
+            cursor,
+            limit == null ? BaseRoute.DEFAULT_LIMIT : limit));
   }
 }
@@ -25,6 +25,8 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -39,21 +41,42 @@ public class ClientResource {
   // The client service that performs backend operation.
   private final ClientService clientService;
 
+  // The number of milliseconds after which a request fails if its service
+  // call has not completed.
+  private final long asyncTimeoutMillis;
+
   /**
    * Constructs a ClientResource object.
    *
    * @param clientService The client service that performs backend operation.
    */
   public ClientResource(ClientService clientService) {
+    this(clientService, ResponseBuilder.DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Constructs a ClientResource object with the timeout of its async requests.
+   *
+   * @param clientService The client service that performs backend operation.
+   * @param asyncTimeoutMillis The number of milliseconds after which a request fails if its
+   *                           service call has not completed.
+   */
+  public ClientResource(
+      ClientService clientService,
+      long asyncTimeoutMillis) {
     this.clientService = clientService;
+    this.asyncTimeoutMillis = asyncTimeoutMillis;
   }
 
   @GET
-  public Response get(
-      @PathParam(ClientRoute.CLIENT_ID_PATH_PARAM) String clientId) throws InternalException {
-    return ResponseBuilder.build(
+  public void get(
+      @PathParam(ClientRoute.CLIENT_ID_PATH_PARAM) String clientId,
+      @Suspended AsyncResponse asyncResponse) {
+    ResponseBuilder.resume(
+        asyncResponse,
         Response.Status.OK,
-        clientService.get(clientId));
+        clientService.getAsync(clientId),
+        asyncTimeoutMillis);
   }
 
   @POST
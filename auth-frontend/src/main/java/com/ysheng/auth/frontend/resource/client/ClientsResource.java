@@ -14,7 +14,11 @@
 package com.ysheng.auth.frontend.resource.client;
 
 import com.ysheng.auth.core.ClientService;
+import com.ysheng.auth.frontend.resource.Endpoint;
+import com.ysheng.auth.frontend.resource.EndpointClass;
 import com.ysheng.auth.frontend.resource.ResponseBuilder;
+import com.ysheng.auth.frontend.resource.StreamingApiList;
+import com.ysheng.auth.frontend.resource.route.BaseRoute;
 import com.ysheng.auth.frontend.resource.route.ClientRoute;
 import com.ysheng.auth.model.api.client.ClientRegistrationSpec;
 import com.ysheng.auth.model.api.exception.InternalException;
@@ -24,6 +28,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -56,9 +61,20 @@ public class ClientsResource {
   }
 
   @GET
-  public Response list() {
+  @Endpoint(EndpointClass.LIST)
+  public Response list(
+      @QueryParam(BaseRoute.CURSOR_QUERY_PARAM) String cursor,
+      @QueryParam(BaseRoute.LIMIT_QUERY_PARAM) Integer limit) throws InternalException {
+    if (cursor == null && limit == null) {
+      return ResponseBuilder.build(
+          Response.Status.OK,
+          new StreamingApiList<>(clientService.iterate()));
+    }
+
     return ResponseBuilder.build(
         Response.Status.OK,
-        clientService.list());
+        clientService.list(
+            cursor,
+            limit == null ? BaseRoute.DEFAULT_LIMIT : limit));
   }
 }
@@ -25,6 +25,8 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -40,22 +42,43 @@ public class AccessTokenResource {
   // The implicit grant service that performs backend operation.
   private final ImplicitGrantService implicitGrantService;
 
+  // The number of milliseconds after which a request fails if its service
+  // call has not completed.
+  private final long asyncTimeoutMillis;
+
   /**
    * Constructs a AccessTokenResource object.
    *
    * @param implicitGrantService The auth code grant service that performs backend operation.
    */
   public AccessTokenResource(ImplicitGrantService implicitGrantService) {
+    this(implicitGrantService, ResponseBuilder.DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Constructs an AccessTokenResource object with the timeout of its async requests.
+   *
+   * @param implicitGrantService The auth code grant service that performs backend operation.
+   * @param asyncTimeoutMillis The number of milliseconds after which a request fails if its
+   *                           service call has not completed.
+   */
+  public AccessTokenResource(
+      ImplicitGrantService implicitGrantService,
+      long asyncTimeoutMillis) {
     this.implicitGrantService = implicitGrantService;
+    this.asyncTimeoutMillis = asyncTimeoutMillis;
   }
 
   @GET
-  public Response get(
+  public void get(
       @PathParam(ImplicitRoute.CLIENT_ID_PATH_PARAM) String clientId,
-      @PathParam(ImplicitRoute.ACCESS_TOKEN_PATH_PARAM) String accessToken) throws InternalException {
-    return ResponseBuilder.build(
+      @PathParam(ImplicitRoute.ACCESS_TOKEN_PATH_PARAM) String accessToken,
+      @Suspended AsyncResponse asyncResponse) {
+    ResponseBuilder.resume(
+        asyncResponse,
         Response.Status.OK,
-        implicitGrantService.getAccessToken(clientId, accessToken));
+        implicitGrantService.getAccessTokenAsync(clientId, accessToken),
+        asyncTimeoutMillis);
   }
 
   @POST
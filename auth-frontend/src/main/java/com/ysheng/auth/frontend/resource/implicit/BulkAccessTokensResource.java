@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.frontend.resource.implicit;
+
+import com.ysheng.auth.core.ImplicitGrantService;
+import com.ysheng.auth.frontend.resource.ResponseBuilder;
+import com.ysheng.auth.frontend.resource.route.ImplicitRoute;
+import com.ysheng.auth.model.api.exception.InternalException;
+import com.ysheng.auth.model.api.implicit.AccessTokenBulkRevokeSpec;
+import com.ysheng.auth.model.api.implicit.BulkAuthorizationGrantSpec;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Defines the RESTful endpoints related to bulk implicit access token
+ * operations for a specific client.
+ */
+@Path(ImplicitRoute.BULK_ACCESS_TOKENS_PATH)
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class BulkAccessTokensResource {
+
+  // The implicit grant service that performs backend operation.
+  private final ImplicitGrantService implicitGrantService;
+
+  /**
+   * Constructs a BulkAccessTokensResource object.
+   *
+   * @param implicitGrantService The implicit grant service that performs backend operation.
+   */
+  public BulkAccessTokensResource(ImplicitGrantService implicitGrantService) {
+    this.implicitGrantService = implicitGrantService;
+  }
+
+  @POST
+  public Response issue(
+      @PathParam(ImplicitRoute.CLIENT_ID_PATH_PARAM) String clientId,
+      BulkAuthorizationGrantSpec request) throws InternalException {
+    return ResponseBuilder.build(
+        Response.Status.CREATED,
+        implicitGrantService.issueAccessTokens(clientId, request));
+  }
+
+  @POST
+  @Path(ImplicitRoute.REVOKE_ACCESS_TOKENS_ACTION)
+  public Response revoke(
+      @PathParam(ImplicitRoute.CLIENT_ID_PATH_PARAM) String clientId,
+      AccessTokenBulkRevokeSpec request) throws InternalException {
+    implicitGrantService.revokeAccessTokens(clientId, request);
+    return ResponseBuilder.build(Response.Status.CREATED);
+  }
+}
@@ -55,4 +55,10 @@ public class AuthCodeRoute {
 
   // This is the path to revoke access token, i.e /auth-code/{clientId}/access-tokens/{accessToken}/revoke-access-token
   public static final String REVOKE_ACCESS_TOKEN_ACTION = "/revoke";
+
+  // This is the bulk access tokens path, i.e. /auth-code/{clientId}/bulk-access-tokens
+  public static final String BULK_ACCESS_TOKENS_PATH = ROOT_PATH + "/bulk-access-tokens";
+
+  // This is the path to revoke access tokens in bulk, i.e. /auth-code/{clientId}/bulk-access-tokens/revoke
+  public static final String REVOKE_ACCESS_TOKENS_ACTION = "/revoke";
 }
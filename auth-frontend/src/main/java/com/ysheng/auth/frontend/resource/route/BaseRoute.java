@@ -19,4 +19,17 @@ package com.ysheng.auth.frontend.resource.route;
 public class BaseRoute {
 
   public static final String BASE_PATH = "/api";
+
+  ///
+  /// Query Param.
+  ///
+
+  // The query parameter of the cursor to retrieve a page of a list.
+  public static final String CURSOR_QUERY_PARAM = "cursor";
+
+  // The query parameter of the number of items in a page of a list.
+  public static final String LIMIT_QUERY_PARAM = "limit";
+
+  // The number of items in a page of a list if the limit is not given.
+  public static final int DEFAULT_LIMIT = 100;
 }
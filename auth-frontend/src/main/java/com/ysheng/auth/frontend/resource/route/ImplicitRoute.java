@@ -43,4 +43,10 @@ public class ImplicitRoute {
 
   // This is the path to revoke access token, i.e /implicit/{clientId}/access-tokens/{accessToken}/revoke-access-token
   public static final String REVOKE_ACCESS_TOKEN_ACTION = "/revoke";
+
+  // This is the bulk access tokens path, i.e. /implicit/{clientId}/bulk-access-tokens
+  public static final String BULK_ACCESS_TOKENS_PATH = ROOT_PATH + "/bulk-access-tokens";
+
+  // This is the path to revoke access tokens in bulk, i.e. /implicit/{clientId}/bulk-access-tokens/revoke
+  public static final String REVOKE_ACCESS_TOKENS_ACTION = "/revoke";
 }
@@ -13,23 +13,54 @@
 
 package com.ysheng.auth.frontend.service;
 
+import com.codahale.metrics.Gauge;
 import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.backend.ForwardingDatabase;
+import com.ysheng.auth.backend.cache.AccessTokenCachingDatabase;
+import com.ysheng.auth.backend.cache.ClientCachingDatabase;
+import com.ysheng.auth.backend.cache.EntityCache;
+import com.ysheng.auth.backend.filter.AccessTokenFilteringDatabase;
+import com.ysheng.auth.backend.filter.ScalableCuckooFilter;
+import com.ysheng.auth.backend.metrics.TimingProxy;
+import com.ysheng.auth.backend.redis.RedisDatabase;
+import com.ysheng.auth.backend.trace.TracingProxy;
 import com.ysheng.auth.core.AuthCodeGrantService;
 import com.ysheng.auth.core.ClientService;
 import com.ysheng.auth.core.ImplicitGrantService;
+import com.ysheng.auth.core.cleanup.ClientCleanupWorker;
+import com.ysheng.auth.core.credential.ClientCredentialVerifier;
+import com.ysheng.auth.core.credential.VerificationCache;
+import com.ysheng.auth.core.token.SignedAccessTokenManager;
+import com.ysheng.auth.frontend.admission.AdmissionControlFeature;
+import com.ysheng.auth.frontend.admission.ConcurrencyLimiter;
+import com.ysheng.auth.frontend.configuration.AdmissionConfiguration;
 import com.ysheng.auth.frontend.configuration.ApiConfiguration;
+import com.ysheng.auth.frontend.configuration.RateLimitConfiguration;
+import com.ysheng.auth.frontend.configuration.TracingConfiguration;
 import com.ysheng.auth.frontend.mapper.InternalExceptionMapper;
+import com.ysheng.auth.frontend.metrics.PrometheusServlet;
+import com.ysheng.auth.frontend.metrics.ResourceTimingFeature;
+import com.ysheng.auth.frontend.ratelimit.RateLimitFeature;
+import com.ysheng.auth.frontend.ratelimit.RateLimiter;
 import com.ysheng.auth.frontend.resource.authcode.AccessTokenResource;
 import com.ysheng.auth.frontend.resource.authcode.AccessTokensResource;
 import com.ysheng.auth.frontend.resource.authcode.AuthCodeResource;
 import com.ysheng.auth.frontend.resource.authcode.AuthCodesResource;
+import com.ysheng.auth.frontend.resource.authcode.BulkAccessTokensResource;
 import com.ysheng.auth.frontend.resource.client.ClientResource;
 import com.ysheng.auth.frontend.resource.client.ClientsResource;
+import com.ysheng.auth.frontend.trace.TraceCollector;
+import com.ysheng.auth.frontend.trace.TraceServlet;
+import com.ysheng.auth.frontend.trace.TracingListener;
 import io.dropwizard.Application;
 import io.dropwizard.assets.AssetsBundle;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+
 /**
  * Defines the API service.
  */
@@ -44,6 +75,15 @@ public class ApiService extends Application<ApiConfiguration> {
   // The database object that provides database related operations.
   private Database database;
 
+  // The manager of signed access tokens, or null if access tokens are not signed.
+  private SignedAccessTokenManager signedAccessTokenManager;
+
+  // The verifier of client secrets, which is shared by all services.
+  private ClientCredentialVerifier credentialVerifier;
+
+  // The worker that cleans up unregistered clients, or null if it is disabled.
+  private ClientCleanupWorker clientCleanupWorker;
+
   // The client service that provides client related operations.
   private ClientService clientService;
 
@@ -54,6 +94,15 @@ public class ApiService extends Application<ApiConfiguration> {
   // The implicit grant service that provides access token related operations.
   private ImplicitGrantService implicitGrantService;
 
+  // The collector of the traces of the requests, or null if requests are not traced.
+  private TraceCollector traceCollector;
+
+  // The rate limiter of the requests of each client, or null if the rate is not limited.
+  private RateLimiter rateLimiter;
+
+  // The limiter of the requests in flight, or null if their number is not limited.
+  private ConcurrencyLimiter concurrencyLimiter;
+
   /**
    * Constructs an ApiService object.
    *
@@ -88,38 +137,252 @@ public class ApiService extends Application<ApiConfiguration> {
   public void run(
       ApiConfiguration configuration,
       Environment environment) throws Exception {
-    produceServices();
+    produceServices(environment);
+    manageDatabase(environment);
+    registerMetrics(environment);
     registerMappers(environment);
+    registerInstrumentation(environment);
+    registerAdmissionControl(environment);
     registerResources(environment);
   }
 
-  private void produceServices() throws Exception {
-    database = factoryProvider.getDatabaseFactory().produce(configuration.getBackendConfiguration());
+  private void produceServices(Environment environment) throws Exception {
+    TracingConfiguration tracingConfiguration = configuration.getTracingConfiguration();
+    if (tracingConfiguration != null && tracingConfiguration.isEnabled()) {
+      traceCollector = new TraceCollector(tracingConfiguration);
+    }
+
+    database = factoryProvider.getDatabaseFactory().produce(
+        configuration.getBackendConfiguration(), environment.metrics());
+
+    // The services call the database through a proxy that traces its
+    // functions, while the metrics see the decorators of the database.
+    Database serviceDatabase = traceCollector != null ? TracingProxy.wrap(Database.class, database) : database;
+
+    // The async operations block on the database in this executor, not in
+    // the request threads. Its queue is bounded, so that an overloaded
+    // service rejects the operations instead of queueing them without limit.
+    ExecutorService serviceExecutor = environment.lifecycle()
+        .executorService("service-async-%d")
+        .minThreads(configuration.getAsyncThreadCount())
+        .maxThreads(configuration.getAsyncThreadCount())
+        .workQueue(new ArrayBlockingQueue<>(configuration.getAsyncQueueSize()))
+        .build();
+
+    signedAccessTokenManager = factoryProvider.getSignedAccessTokenManagerFactory().produce(
+        serviceDatabase, configuration.getCoreConfiguration());
+
+    credentialVerifier = factoryProvider.getClientCredentialVerifierFactory().produce(
+        serviceDatabase, configuration.getCoreConfiguration());
 
     clientService = factoryProvider.getClientServiceFactory().produce(
-        database, configuration.getCoreConfiguration());
+        serviceDatabase,
+        configuration.getCoreConfiguration(),
+        signedAccessTokenManager,
+        credentialVerifier,
+        serviceExecutor);
 
     authCodeGrantService = factoryProvider.getAuthCodeGrantServiceFactory().produce(
-        database, configuration.getCoreConfiguration());
+        serviceDatabase,
+        configuration.getCoreConfiguration(),
+        signedAccessTokenManager,
+        credentialVerifier,
+        serviceExecutor);
 
     implicitGrantService = factoryProvider.getImplicitGrantServiceFactory().produce(
-        database, configuration.getCoreConfiguration());
+        serviceDatabase,
+        configuration.getCoreConfiguration(),
+        signedAccessTokenManager,
+        credentialVerifier,
+        serviceExecutor);
+
+    clientCleanupWorker = factoryProvider.getClientCleanupWorkerFactory().produce(
+        serviceDatabase,
+        configuration.getCoreConfiguration().getClientCleanupConfiguration(),
+        signedAccessTokenManager);
+
+    RateLimitConfiguration rateLimitConfiguration = configuration.getRateLimitConfiguration();
+    if (rateLimitConfiguration != null && rateLimitConfiguration.isEnabled()) {
+      rateLimiter = new RateLimiter(serviceDatabase, rateLimitConfiguration);
+    }
+
+    AdmissionConfiguration admissionConfiguration = configuration.getAdmissionConfiguration();
+    if (admissionConfiguration != null && admissionConfiguration.isEnabled()) {
+      concurrencyLimiter = new ConcurrencyLimiter(admissionConfiguration);
+    }
+
+    if (traceCollector != null) {
+      clientService = TracingProxy.wrap(ClientService.class, clientService);
+      authCodeGrantService = TracingProxy.wrap(AuthCodeGrantService.class, authCodeGrantService);
+      implicitGrantService = TracingProxy.wrap(ImplicitGrantService.class, implicitGrantService);
+    }
+  }
+
+  private void manageDatabase(Environment environment) {
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() throws Exception {
+      }
+
+      @Override
+      public void stop() throws Exception {
+        if (rateLimiter != null) {
+          rateLimiter.close();
+        }
+        if (clientCleanupWorker != null) {
+          clientCleanupWorker.close();
+        }
+        if (signedAccessTokenManager != null) {
+          signedAccessTokenManager.close();
+        }
+        database.close();
+      }
+    });
+  }
+
+  private void registerMetrics(Environment environment) {
+    // The database is decorated by forwarding databases and timing proxies.
+    Database decorated = database;
+    while (decorated instanceof ForwardingDatabase || TimingProxy.getTarget(decorated) != null) {
+      if (decorated instanceof ClientCachingDatabase) {
+        registerCacheMetrics(environment, "client-cache", ((ClientCachingDatabase) decorated).getClientCache());
+      } else if (decorated instanceof AccessTokenCachingDatabase) {
+        AccessTokenCachingDatabase accessTokenCachingDatabase = (AccessTokenCachingDatabase) decorated;
+        registerCacheMetrics(environment, "access-token-cache", accessTokenCachingDatabase.getAccessTokenCache());
+        registerCacheMetrics(
+            environment, "implicit-access-token-cache", accessTokenCachingDatabase.getImplicitAccessTokenCache());
+      } else if (decorated instanceof AccessTokenFilteringDatabase) {
+        registerFilterMetrics(environment, "access-token-filter", (AccessTokenFilteringDatabase) decorated);
+      }
+      decorated = decorated instanceof ForwardingDatabase
+          ? ((ForwardingDatabase) decorated).getDatabase()
+          : TimingProxy.getTarget(decorated);
+    }
+
+    if (decorated instanceof RedisDatabase) {
+      RedisDatabase redisDatabase = (RedisDatabase) decorated;
+      environment.metrics().register(
+          "redis-pool.active", (Gauge<Integer>) () -> redisDatabase.getPoolUsage().getActiveCount());
+      environment.metrics().register(
+          "redis-pool.idle", (Gauge<Integer>) () -> redisDatabase.getPoolUsage().getIdleCount());
+      environment.metrics().register(
+          "redis-pool.waiters", (Gauge<Integer>) () -> redisDatabase.getPoolUsage().getWaiterCount());
+    }
+
+    if (signedAccessTokenManager != null) {
+      environment.metrics().register(
+          "signed-access-token.revocation-list.size",
+          (Gauge<Integer>) signedAccessTokenManager.getRevocationList()::size);
+      environment.metrics().register(
+          "signed-access-token.revocation-list.revoked-clients",
+          (Gauge<Integer>) signedAccessTokenManager.getRevocationList()::getRevokedClientCount);
+    }
+
+    VerificationCache verificationCache = credentialVerifier.getVerificationCache();
+    environment.metrics().register(
+        "client-credential.verification-cache.hits", (Gauge<Long>) verificationCache::getHitCount);
+    environment.metrics().register(
+        "client-credential.verification-cache.misses", (Gauge<Long>) verificationCache::getMissCount);
+    environment.metrics().register(
+        "client-credential.verification-cache.evictions", (Gauge<Long>) verificationCache::getEvictionCount);
+    environment.metrics().register(
+        "client-credential.verification-cache.size", (Gauge<Integer>) verificationCache::size);
+
+    if (clientCleanupWorker != null) {
+      environment.metrics().register(
+          "client-cleanup.pending-clients", (Gauge<Integer>) clientCleanupWorker::getPendingClientCount);
+      environment.metrics().register(
+          "client-cleanup.cleaned-clients", (Gauge<Long>) clientCleanupWorker::getCleanedClientCount);
+      environment.metrics().register(
+          "client-cleanup.removed-entities", (Gauge<Long>) clientCleanupWorker::getRemovedEntityCount);
+    }
+
+    if (rateLimiter != null) {
+      environment.metrics().register("rate-limit.buckets", (Gauge<Integer>) rateLimiter::getBucketCount);
+      environment.metrics().register(
+          "rate-limit.reconcile-failures", (Gauge<Long>) rateLimiter::getReconcileFailureCount);
+    }
+
+    if (concurrencyLimiter != null) {
+      environment.metrics().register("admission.limit", (Gauge<Integer>) concurrencyLimiter::getLimit);
+      environment.metrics().register("admission.in-flight", (Gauge<Integer>) concurrencyLimiter::getInFlight);
+    }
+  }
+
+  private void registerCacheMetrics(Environment environment, String name, EntityCache<?> cache) {
+    environment.metrics().register(name + ".hits", (Gauge<Long>) cache::getHitCount);
+    environment.metrics().register(name + ".misses", (Gauge<Long>) cache::getMissCount);
+    environment.metrics().register(name + ".evictions", (Gauge<Long>) cache::getEvictionCount);
+    environment.metrics().register(name + ".size", (Gauge<Integer>) cache::size);
+  }
+
+  private void registerFilterMetrics(
+      Environment environment,
+      String name,
+      AccessTokenFilteringDatabase filteringDatabase) {
+    environment.metrics().register(name + ".negatives", (Gauge<Long>) filteringDatabase::getNegativeCount);
+    environment.metrics().register(name + ".false-positives", (Gauge<Long>) filteringDatabase::getFalsePositiveCount);
+    environment.metrics().register(
+        name + ".observed-false-positive-rate", (Gauge<Double>) filteringDatabase::getObservedFalsePositiveRate);
+    environment.metrics().register(name + ".expected-false-positive-rate", (Gauge<Double>) () -> {
+      ScalableCuckooFilter filter = filteringDatabase.getFilter();
+      return filter == null ? null : filter.getExpectedFalsePositiveProbability();
+    });
+    environment.metrics().register(name + ".size", (Gauge<Long>) () -> {
+      ScalableCuckooFilter filter = filteringDatabase.getFilter();
+      return filter == null ? null : filter.size();
+    });
+    environment.metrics().register(name + ".memory-bytes", (Gauge<Long>) () -> {
+      ScalableCuckooFilter filter = filteringDatabase.getFilter();
+      return filter == null ? null : filter.getMemoryBytes();
+    });
   }
 
   private void registerMappers(Environment environment) {
-    environment.jersey().register(new InternalExceptionMapper());
+    environment.jersey().register(new InternalExceptionMapper(environment.metrics()));
+  }
+
+  private void registerInstrumentation(Environment environment) {
+    environment.jersey().register(new ResourceTimingFeature(environment.metrics()));
+    environment.admin()
+        .addServlet("prometheus", new PrometheusServlet(environment.metrics()))
+        .addMapping("/prometheus");
+
+    if (traceCollector != null) {
+      environment.jersey().register(new TracingListener(traceCollector));
+      environment.admin()
+          .addServlet("traces", new TraceServlet(traceCollector))
+          .addMapping("/traces");
+    }
+  }
+
+  private void registerAdmissionControl(Environment environment) {
+    if (rateLimiter != null) {
+      environment.jersey().register(new RateLimitFeature(rateLimiter, environment.metrics()));
+    }
+
+    if (concurrencyLimiter != null) {
+      environment.jersey().register(new AdmissionControlFeature(
+          concurrencyLimiter,
+          configuration.getAdmissionConfiguration().getRetryAfterSeconds(),
+          environment.metrics()));
+    }
   }
 
   private void registerResources(Environment environment) {
+    long asyncTimeoutMillis = configuration.getAsyncTimeoutMillis();
     environment.jersey().register(new ClientsResource(clientService));
-    environment.jersey().register(new ClientResource(clientService));
+    environment.jersey().register(new ClientResource(clientService, asyncTimeoutMillis));
     environment.jersey().register(new AuthCodesResource(authCodeGrantService));
     environment.jersey().register(new AuthCodeResource(authCodeGrantService));
-    environment.jersey().register(new AccessTokensResource(authCodeGrantService));
-    environment.jersey().register(new AccessTokenResource(authCodeGrantService));
+    environment.jersey().register(new AccessTokensResource(authCodeGrantService, asyncTimeoutMillis));
+    environment.jersey().register(new AccessTokenResource(authCodeGrantService, asyncTimeoutMillis));
+    environment.jersey().register(new BulkAccessTokensResource(authCodeGrantService));
+    environment.jersey().register(
+        new com.ysheng.auth.frontend.resource.implicit.AccessTokensResource(implicitGrantService, asyncTimeoutMillis));
     environment.jersey().register(
-        new com.ysheng.auth.frontend.resource.implicit.AccessTokensResource(implicitGrantService));
+        new com.ysheng.auth.frontend.resource.implicit.AccessTokenResource(implicitGrantService, asyncTimeoutMillis));
     environment.jersey().register(
-        new com.ysheng.auth.frontend.resource.implicit.AccessTokenResource(implicitGrantService));
+        new com.ysheng.auth.frontend.resource.implicit.BulkAccessTokensResource(implicitGrantService));
   }
 }
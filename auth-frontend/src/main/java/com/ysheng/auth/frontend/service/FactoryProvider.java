@@ -17,6 +17,9 @@ import com.ysheng.auth.backend.DatabaseFactory;
 import com.ysheng.auth.core.AuthCodeGrantServiceFactory;
 import com.ysheng.auth.core.ClientServiceFactory;
 import com.ysheng.auth.core.ImplicitGrantServiceFactory;
+import com.ysheng.auth.core.cleanup.ClientCleanupWorkerFactory;
+import com.ysheng.auth.core.credential.ClientCredentialVerifierFactory;
+import com.ysheng.auth.core.token.SignedAccessTokenManagerFactory;
 
 /**
  * Defines a builder interface that provides factories.
@@ -30,4 +33,10 @@ public interface FactoryProvider {
   AuthCodeGrantServiceFactory getAuthCodeGrantServiceFactory();
 
   ImplicitGrantServiceFactory getImplicitGrantServiceFactory();
+
+  SignedAccessTokenManagerFactory getSignedAccessTokenManagerFactory();
+
+  ClientCleanupWorkerFactory getClientCleanupWorkerFactory();
+
+  ClientCredentialVerifierFactory getClientCredentialVerifierFactory();
 }
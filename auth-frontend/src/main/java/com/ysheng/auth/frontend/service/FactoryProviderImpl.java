@@ -17,6 +17,9 @@ import com.ysheng.auth.backend.DatabaseFactory;
 import com.ysheng.auth.core.AuthCodeGrantServiceFactory;
 import com.ysheng.auth.core.ClientServiceFactory;
 import com.ysheng.auth.core.ImplicitGrantServiceFactory;
+import com.ysheng.auth.core.cleanup.ClientCleanupWorkerFactory;
+import com.ysheng.auth.core.credential.ClientCredentialVerifierFactory;
+import com.ysheng.auth.core.token.SignedAccessTokenManagerFactory;
 
 /**
  * Implements the factory provider functions.
@@ -35,6 +38,15 @@ public class FactoryProviderImpl implements FactoryProvider {
   // The implicit grant service factory.
   private ImplicitGrantServiceFactory implicitGrantServiceFactory;
 
+  // The signed access token manager factory.
+  private SignedAccessTokenManagerFactory signedAccessTokenManagerFactory;
+
+  // The client cleanup worker factory.
+  private ClientCleanupWorkerFactory clientCleanupWorkerFactory;
+
+  // The client credential verifier factory.
+  private ClientCredentialVerifierFactory clientCredentialVerifierFactory;
+
   /**
    * Constructs a FactoryProviderImpl object.
    */
@@ -43,6 +55,9 @@ public class FactoryProviderImpl implements FactoryProvider {
     this.clientServiceFactory = new ClientServiceFactory();
     this.authCodeGrantServiceFactory = new AuthCodeGrantServiceFactory();
     this.implicitGrantServiceFactory = new ImplicitGrantServiceFactory();
+    this.signedAccessTokenManagerFactory = new SignedAccessTokenManagerFactory();
+    this.clientCleanupWorkerFactory = new ClientCleanupWorkerFactory();
+    this.clientCredentialVerifierFactory = new ClientCredentialVerifierFactory();
   }
 
   public DatabaseFactory getDatabaseFactory() {
@@ -60,4 +75,16 @@ public class FactoryProviderImpl implements FactoryProvider {
   public ImplicitGrantServiceFactory getImplicitGrantServiceFactory() {
     return implicitGrantServiceFactory;
   }
+
+  public SignedAccessTokenManagerFactory getSignedAccessTokenManagerFactory() {
+    return signedAccessTokenManagerFactory;
+  }
+
+  public ClientCleanupWorkerFactory getClientCleanupWorkerFactory() {
+    return clientCleanupWorkerFactory;
+  }
+
+  public ClientCredentialVerifierFactory getClientCredentialVerifierFactory() {
+    return clientCredentialVerifierFactory;
+  }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.trace;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Trace;
+import com.ysheng.auth.frontend.configuration.TracingConfiguration;
+import io.dropwizard.jackson.Jackson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Defines a collector of the finished traces. It keeps the slowest traces of
+ * the current and the previous windows for the debug endpoint, and exports a
+ * sample of the traces, plus every trace that is slower than a threshold, as
+ * one JSON line each to the trace logger, which the logging configuration
+ * can route to a file of its own.
+ */
+public class TraceCollector {
+
+  // The name of the logger that the traces are exported to.
+  public static final String EXPORT_LOGGER_NAME = "com.ysheng.auth.trace";
+
+  // The order of the traces from the fastest to the slowest.
+  private static final Comparator<Trace> BY_DURATION = Comparator.comparingLong(Trace::getDurationNanos);
+
+  // The object mapper that renders the exported traces.
+  private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+
+  // The number of the slowest traces that are kept per window.
+  private final int slowestTraceCount;
+
+  // The length of a window in milliseconds.
+  private final long windowMillis;
+
+  // The fraction of the traces that are exported.
+  private final double sampleRate;
+
+  // The duration in nanoseconds from which traces are always exported.
+  private final long slowThresholdNanos;
+
+  // The logger that the traces are exported to.
+  private final Logger exportLogger;
+
+  // The source of the random numbers that sample the traces.
+  private final DoubleSupplier random;
+
+  // The wall clock in milliseconds.
+  private final LongSupplier clock;
+
+  // The slowest traces of the current window, the fastest at the head.
+  private PriorityQueue<Trace> currentTraces;
+
+  // The slowest traces of the previous window.
+  private List<Trace> previousTraces;
+
+  // The time at which the current window started in milliseconds.
+  private long windowStartMillis;
+
+  // The duration in nanoseconds that a trace must exceed to be kept, which
+  // lets most traces be rejected without taking the lock.
+  private volatile long admissionNanos;
+
+  /**
+   * Constructs a TraceCollector object.
+   *
+   * @param configuration The tracing configuration.
+   */
+  public TraceCollector(TracingConfiguration configuration) {
+    this(
+        configuration.getSlowestTraceCount(),
+        TimeUnit.SECONDS.toMillis(configuration.getWindowSeconds()),
+        configuration.getSampleRate(),
+        TimeUnit.MILLISECONDS.toNanos(configuration.getSlowThresholdMillis()),
+        LoggerFactory.getLogger(EXPORT_LOGGER_NAME),
+        () -> ThreadLocalRandom.current().nextDouble(),
+        System::currentTimeMillis);
+  }
+
+  /**
+   * Constructs a TraceCollector object.
+   *
+   * @param slowestTraceCount The number of the slowest traces that are kept per window.
+   * @param windowMillis The length of a window in milliseconds.
+   * @param sampleRate The fraction of the traces that are exported.
+   * @param slowThresholdNanos The duration in nanoseconds from which traces are always exported.
+   * @param exportLogger The logger that the traces are exported to.
+   * @param random The source of the random numbers that sample the traces.
+   * @param clock The wall clock in milliseconds.
+   */
+  public TraceCollector(
+      int slowestTraceCount,
+      long windowMillis,
+      double sampleRate,
+      long slowThresholdNanos,
+      Logger exportLogger,
+      DoubleSupplier random,
+      LongSupplier clock) {
+    this.slowestTraceCount = slowestTraceCount;
+    this.windowMillis = windowMillis;
+    this.sampleRate = sampleRate;
+    this.slowThresholdNanos = slowThresholdNanos;
+    this.exportLogger = exportLogger;
+    this.random = random;
+    this.clock = clock;
+    this.currentTraces = new PriorityQueue<>(BY_DURATION);
+    this.previousTraces = new ArrayList<>();
+    this.windowStartMillis = clock.getAsLong();
+    this.admissionNanos = -1L;
+  }
+
+  /**
+   * Collects a finished trace.
+   *
+   * @param trace The trace, of which the root span has ended.
+   */
+  public void collect(Trace trace) {
+    long durationNanos = trace.getDurationNanos();
+
+    if (durationNanos > admissionNanos || clock.getAsLong() - windowStartMillis >= windowMillis) {
+      keep(trace);
+    }
+
+    if (durationNanos >= slowThresholdNanos || random.getAsDouble() < sampleRate) {
+      export(trace);
+    }
+  }
+
+  /**
+   * Gets the slowest traces of the current and the previous windows.
+   *
+   * @return The traces from the slowest to the fastest.
+   */
+  public synchronized List<Trace> getSlowestTraces() {
+    rotate(clock.getAsLong());
+    List<Trace> traces = new ArrayList<>(currentTraces);
+    traces.addAll(previousTraces);
+    return traces
+        .stream()
+        .sorted(BY_DURATION.reversed())
+        .limit(slowestTraceCount)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Renders a trace as a tree of maps, which is serialized as JSON.
+   *
+   * @param trace The trace.
+   * @return The rendered trace.
+   */
+  public static Map<String, Object> render(Trace trace) {
+    Map<String, Object> rendered = new LinkedHashMap<>();
+    rendered.put("traceId", trace.getTraceId());
+    rendered.put("name", trace.getName());
+    rendered.put("status", trace.getStatus());
+    rendered.put("startMillis", trace.getStartMillis());
+    rendered.put("durationMicros", toMicros(trace.getDurationNanos()));
+    rendered.put("root", render(trace.getRoot(), trace.getRoot().getStartTick()));
+    return rendered;
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private synchronized void keep(Trace trace) {
+    rotate(clock.getAsLong());
+
+    if (currentTraces.size() < slowestTraceCount) {
+      currentTraces.add(trace);
+    } else if (!currentTraces.isEmpty() && trace.getDurationNanos() > currentTraces.peek().getDurationNanos()) {
+      currentTraces.poll();
+      currentTraces.add(trace);
+    }
+
+    admissionNanos = currentTraces.isEmpty() || currentTraces.size() < slowestTraceCount
+        ? -1L
+        : currentTraces.peek().getDurationNanos();
+  }
+
+  private void rotate(long nowMillis) {
+    if (nowMillis - windowStartMillis < windowMillis) {
+      return;
+    }
+
+    // The previous window is dropped as well if no trace arrived for a whole window.
+    previousTraces = nowMillis - windowStartMillis < 2 * windowMillis
+        ? new ArrayList<>(currentTraces)
+        : new ArrayList<>();
+    currentTraces = new PriorityQueue<>(BY_DURATION);
+    windowStartMillis = nowMillis;
+    admissionNanos = -1L;
+  }
+
+  private void export(Trace trace) {
+    if (!exportLogger.isInfoEnabled()) {
+      return;
+    }
+
+    try {
+      exportLogger.info(MAPPER.writeValueAsString(render(trace)));
+    } catch (JsonProcessingException ex) {
+      exportLogger.warn("Failed to export trace " + trace.getTraceId(), ex);
+    }
+  }
+
+  private static Map<String, Object> render(Span span, long traceStartTick) {
+    Map<String, Object> rendered = new LinkedHashMap<>();
+    rendered.put("name", span.getName());
+    rendered.put("offsetMicros", toMicros(span.getStartTick() - traceStartTick));
+    rendered.put("durationMicros", toMicros(span.getDurationNanos()));
+
+    List<Span> children = span.getChildren();
+    if (!children.isEmpty()) {
+      rendered.put("children", children
+          .stream()
+          .map(child -> render(child, traceStartTick))
+          .collect(Collectors.toList()));
+    }
+
+    return rendered;
+  }
+
+  private static long toMicros(long nanos) {
+    return nanos < 0L ? -1L : TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.dropwizard.jackson.Jackson;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Collectors;
+
+/**
+ * Defines a debug servlet that shows the slowest recent traces as JSON, from
+ * the slowest to the fastest, each with its tree of spans.
+ */
+public class TraceServlet extends HttpServlet {
+
+  // The content type of the response.
+  public static final String CONTENT_TYPE = "application/json";
+
+  // The object mapper that renders the traces.
+  private static final ObjectMapper MAPPER = Jackson.newObjectMapper()
+      .enable(SerializationFeature.INDENT_OUTPUT);
+
+  // The collector of the finished traces.
+  private final transient TraceCollector traceCollector;
+
+  /**
+   * Constructs a TraceServlet object.
+   *
+   * @param traceCollector The collector of the finished traces.
+   */
+  public TraceServlet(TraceCollector traceCollector) {
+    this.traceCollector = traceCollector;
+  }
+
+  @Override
+  protected void doGet(
+      HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(CONTENT_TYPE);
+    response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+
+    try (OutputStream output = response.getOutputStream()) {
+      MAPPER.writeValue(output, traceCollector.getSlowestTraces()
+          .stream()
+          .map(TraceCollector::render)
+          .collect(Collectors.toList()));
+    }
+  }
+}
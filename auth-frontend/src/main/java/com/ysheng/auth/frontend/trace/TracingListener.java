@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.trace;
+
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Trace;
+import com.ysheng.auth.backend.trace.Tracer;
+import com.ysheng.auth.model.api.ApiHeader;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Defines a listener that traces every request. The root span of a trace
+ * covers the whole request, and its children are the phases of the request
+ * in Jersey, i.e. matching, request filters, the resource method, response
+ * filters and writing the response. The span of the resource method is the
+ * current span of the request thread while the method runs, so that the
+ * services and the database add their spans under it. The trace identifier
+ * is taken from the request header if the caller sends a valid one, and is
+ * echoed in the response header.
+ */
+public class TracingListener implements ApplicationEventListener {
+
+  // The pattern of the valid trace identifiers that are taken from the callers.
+  private static final Pattern TRACE_ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+  // The collector of the finished traces.
+  private final TraceCollector traceCollector;
+
+  /**
+   * Constructs a TracingListener object.
+   *
+   * @param traceCollector The collector of the finished traces.
+   */
+  public TracingListener(TraceCollector traceCollector) {
+    this.traceCollector = traceCollector;
+  }
+
+  @Override
+  public void onEvent(ApplicationEvent event) {
+  }
+
+  /**
+   * Starts the trace of a request.
+   *
+   * @param event The event that starts the request.
+   * @return The listener that traces the request.
+   */
+  @Override
+  public RequestEventListener onRequest(RequestEvent event) {
+    ContainerRequest request = event.getContainerRequest();
+    String traceId = request.getHeaderString(ApiHeader.TRACE_ID);
+    if (traceId == null || !TRACE_ID_PATTERN.matcher(traceId).matches()) {
+      traceId = generateTraceId();
+    }
+
+    return new RequestTracer(new Trace(traceId, request.getMethod()), traceCollector);
+  }
+
+  /**
+   * Generates a random trace identifier of 32 hex digits.
+   *
+   * @return A trace identifier.
+   */
+  public static String generateTraceId() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return String.format("%016x%016x", random.nextLong(), random.nextLong());
+  }
+
+  /**
+   * Defines a listener that traces one request.
+   */
+  private static class RequestTracer implements RequestEventListener {
+
+    // The trace of the request.
+    private final Trace trace;
+
+    // The collector of the finished traces.
+    private final TraceCollector traceCollector;
+
+    // The name of the matched resource method, e.g. "ClientResource.get".
+    private String resourceName;
+
+    // The span of the current phase of the request, or null between phases.
+    private Span phaseSpan;
+
+    // The scope of the span of the resource method, or null if the method is not running.
+    private Tracer.Scope resourceScope;
+
+    /**
+     * Constructs a RequestTracer object.
+     *
+     * @param trace The trace of the request.
+     * @param traceCollector The collector of the finished traces.
+     */
+    RequestTracer(
+        Trace trace,
+        TraceCollector traceCollector) {
+      this.trace = trace;
+      this.traceCollector = traceCollector;
+    }
+
+    @Override
+    public void onEvent(RequestEvent event) {
+      switch (event.getType()) {
+        case MATCHING_START:
+          startPhase("jersey.match");
+          break;
+        case REQUEST_MATCHED:
+          ResourceMethod resourceMethod = event.getUriInfo().getMatchedResourceMethod();
+          if (resourceMethod != null) {
+            Method method = resourceMethod.getInvocable().getHandlingMethod();
+            resourceName = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            trace.setName(event.getContainerRequest().getMethod() + " " + resourceName);
+          }
+          startPhase("jersey.request-filters");
+          break;
+        case REQUEST_FILTERED:
+          endPhase();
+          break;
+        case RESOURCE_METHOD_START:
+          startPhase(resourceName == null ? "resource" : resourceName);
+          resourceScope = Tracer.activate(phaseSpan);
+          break;
+        case RESOURCE_METHOD_FINISHED:
+          if (resourceScope != null) {
+            resourceScope.close();
+            resourceScope = null;
+          }
+          endPhase();
+          break;
+        case RESP_FILTERS_START:
+          event.getContainerResponse().getHeaders().putSingle(ApiHeader.TRACE_ID, trace.getTraceId());
+          startPhase("jersey.response-filters");
+          break;
+        case RESP_FILTERS_FINISHED:
+          startPhase("jersey.write");
+          break;
+        case FINISHED:
+          endPhase();
+          trace.getRoot().end();
+          ContainerResponse response = event.getContainerResponse();
+          trace.setStatus(response == null ? 500 : response.getStatus());
+          traceCollector.collect(trace);
+          break;
+        default:
+          break;
+      }
+    }
+
+    ///
+    /// Helper functions.
+    ///
+
+    private void startPhase(String name) {
+      endPhase();
+      phaseSpan = trace.getRoot().startChild(name);
+    }
+
+    private void endPhase() {
+      if (phaseSpan != null) {
+        phaseSpan.end();
+        phaseSpan = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.admission;
+
+import com.codahale.metrics.MetricRegistry;
+import com.ysheng.auth.core.ClientService;
+import com.ysheng.auth.frontend.admission.AdmissionControlFeature;
+import com.ysheng.auth.frontend.admission.ConcurrencyLimiter;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+import com.ysheng.auth.frontend.resource.client.ClientResource;
+import com.ysheng.auth.frontend.resource.client.ClientsResource;
+import com.ysheng.auth.frontend.resource.route.ClientRoute;
+import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.api.exception.ErrorType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.admission.AdmissionControlFeature}.
+ */
+public class AdmissionControlFeatureTest {
+
+  // The helper related to resource test.
+  private ResourceTestHelper testHelper;
+
+  // The client service that performs client related operations.
+  private ClientService clientService;
+
+  // The concurrency limiter.
+  private ConcurrencyLimiter concurrencyLimiter;
+
+  // The metric registry.
+  private MetricRegistry metricRegistry;
+
+  // The client route.
+  private String clientRoute = UriBuilder.fromPath(ClientRoute.CLIENT_PATH).build("clientId").toString();
+
+  @BeforeMethod
+  public void setUpTest() throws Throwable {
+    clientService = mock(ClientService.class);
+    metricRegistry = new MetricRegistry();
+
+    // Two requests may be in flight, of which one may list entities.
+    concurrencyLimiter = new ConcurrencyLimiter(
+        2,
+        2,
+        2,
+        TimeUnit.MINUTES.toNanos(1),
+        0.5,
+        Collections.singletonMap(EndpointClass.LIST, 0.5),
+        System::nanoTime);
+
+    testHelper = new ResourceTestHelper();
+    testHelper.addResource(new ClientResource(clientService));
+    testHelper.addResource(new ClientsResource(clientService));
+    testHelper.addResource(new AdmissionControlFeature(concurrencyLimiter, 3L, metricRegistry));
+    testHelper.setup();
+  }
+
+  @AfterMethod
+  public void tearDownTest() throws Throwable {
+    testHelper.destroy();
+  }
+
+  @Test
+  public void succeedsToShedListRequestsBeforeReadRequests() throws Throwable {
+    CompletableFuture<Client> pendingClient = new CompletableFuture<>();
+    doReturn(pendingClient).when(clientService).getAsync(anyString());
+
+    Future<Response> pending = testHelper.target(clientRoute).request().async().get();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (concurrencyLimiter.getInFlight() < 1 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+
+    Response rejected = testHelper.target(ClientRoute.CLIENTS_PATH).queryParam("cursor", "0").request().get();
+    assertThat(rejected.getStatus(), is(Response.Status.SERVICE_UNAVAILABLE.getStatusCode()));
+    assertThat(rejected.getHeaderString(HttpHeaders.RETRY_AFTER), equalTo("3"));
+    assertThat(rejected.readEntity(ExternalException.class).getErrorCode(),
+        equalTo(ErrorType.TEMPORARY_UNAVAILABLE.name()));
+    verify(clientService, never()).list(anyString(), anyInt());
+    assertThat(metricRegistry.meter("admission.list.rejected").getCount(), is(1L));
+
+    doReturn(CompletableFuture.completedFuture(new Client())).when(clientService).getAsync(anyString());
+    Response admitted = testHelper.target(clientRoute).request().get();
+    assertThat(admitted.getStatus(), is(Response.Status.OK.getStatusCode()));
+
+    pendingClient.complete(new Client());
+    assertThat(pending.get(10, TimeUnit.SECONDS).getStatus(), is(Response.Status.OK.getStatusCode()));
+    assertThat(concurrencyLimiter.getInFlight(), is(0));
+  }
+
+  @Test
+  public void succeedsToHoldPermitUntilStreamedResponseIsWritten() throws Throwable {
+    CountDownLatch streaming = new CountDownLatch(1);
+    CountDownLatch finishStreaming = new CountDownLatch(1);
+    Iterator<Client> clients = new Iterator<Client>() {
+
+      private boolean done;
+
+      @Override
+      public boolean hasNext() {
+        return !done;
+      }
+
+      @Override
+      public Client next() {
+        done = true;
+        streaming.countDown();
+        try {
+          finishStreaming.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        return new Client();
+      }
+    };
+    doReturn(clients).when(clientService).iterate();
+
+    Future<Response> pending = testHelper.target(ClientRoute.CLIENTS_PATH).request().async().get();
+    assertThat(streaming.await(10, TimeUnit.SECONDS), is(true));
+
+    // The list is still being streamed, so it still holds its permit.
+    assertThat(concurrencyLimiter.getInFlight(), is(1));
+
+    finishStreaming.countDown();
+    Response response = pending.get(10, TimeUnit.SECONDS);
+    assertThat(response.getStatus(), is(Response.Status.OK.getStatusCode()));
+    response.readEntity(String.class);
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (concurrencyLimiter.getInFlight() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(concurrencyLimiter.getInFlight(), is(0));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.admission;
+
+import com.ysheng.auth.frontend.admission.ConcurrencyLimiter;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.admission.ConcurrencyLimiter}.
+ */
+public class ConcurrencyLimiterTest {
+
+  // The latency threshold in nanoseconds.
+  private static final long LATENCY_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private AtomicLong nanoClock;
+
+  private ConcurrencyLimiter concurrencyLimiter;
+
+  @BeforeMethod
+  public void setUp() {
+    nanoClock = new AtomicLong();
+
+    Map<EndpointClass, Double> shares = new EnumMap<>(EndpointClass.class);
+    shares.put(EndpointClass.LIST, 0.5);
+
+    concurrencyLimiter = new ConcurrencyLimiter(4, 2, 8, LATENCY_THRESHOLD_NANOS, 0.5, shares, nanoClock::get);
+  }
+
+  @Test
+  public void succeedsToRejectRequestsOverLimit() {
+    for (int i = 0; i < 4; ++i) {
+      assertThat(concurrencyLimiter.tryAcquire(EndpointClass.READ), not(ConcurrencyLimiter.REJECTED));
+    }
+
+    assertThat(concurrencyLimiter.tryAcquire(EndpointClass.READ), is(ConcurrencyLimiter.REJECTED));
+    assertThat(concurrencyLimiter.getInFlight(), is(4));
+
+    concurrencyLimiter.release(nanoClock.get(), false);
+    assertThat(concurrencyLimiter.tryAcquire(EndpointClass.READ), not(ConcurrencyLimiter.REJECTED));
+  }
+
+  @Test
+  public void succeedsToRejectEndpointClassOverShare() {
+    assertThat(concurrencyLimiter.tryAcquire(EndpointClass.LIST), not(ConcurrencyLimiter.REJECTED));
+    assertThat(concurrencyLimiter.tryAcquire(EndpointClass.LIST), not(ConcurrencyLimiter.REJECTED));
+    assertThat(concurrencyLimiter.tryAcquire(EndpointClass.LIST), is(ConcurrencyLimiter.REJECTED));
+
+    assertThat(concurrencyLimiter.tryAcquire(EndpointClass.READ), not(ConcurrencyLimiter.REJECTED));
+    assertThat(concurrencyLimiter.tryAcquire(EndpointClass.WRITE), not(ConcurrencyLimiter.REJECTED));
+  }
+
+  @Test
+  public void succeedsToIncreaseLimitWhileFastAndBusy() {
+    // Each fast request while half of the limit is in use grows the limit by
+    // one over the limit.
+    for (int i = 0; i < 5; ++i) {
+      long acquiredNanos = concurrencyLimiter.tryAcquire(EndpointClass.READ);
+      concurrencyLimiter.tryAcquire(EndpointClass.READ);
+      concurrencyLimiter.tryAcquire(EndpointClass.READ);
+      for (int j = 0; j < 3; ++j) {
+        concurrencyLimiter.release(acquiredNanos, false);
+      }
+    }
+
+    assertThat(concurrencyLimiter.getLimit(), is(5));
+  }
+
+  @Test
+  public void succeedsToKeepLimitWhileIdle() {
+    for (int i = 0; i < 100; ++i) {
+      concurrencyLimiter.release(concurrencyLimiter.tryAcquire(EndpointClass.READ), false);
+    }
+
+    assertThat(concurrencyLimiter.getLimit(), is(4));
+  }
+
+  @Test
+  public void succeedsToDecreaseLimitOncePerThresholdWhileSlow() {
+    long acquiredNanos = concurrencyLimiter.tryAcquire(EndpointClass.READ);
+    concurrencyLimiter.tryAcquire(EndpointClass.READ);
+    nanoClock.addAndGet(2 * LATENCY_THRESHOLD_NANOS);
+
+    concurrencyLimiter.release(acquiredNanos, false);
+    concurrencyLimiter.release(acquiredNanos, false);
+    assertThat(concurrencyLimiter.getLimit(), is(2));
+
+    nanoClock.addAndGet(LATENCY_THRESHOLD_NANOS);
+    concurrencyLimiter.release(concurrencyLimiter.tryAcquire(EndpointClass.READ), true);
+    assertThat(concurrencyLimiter.getLimit(), is(2));
+    assertThat(concurrencyLimiter.getInFlight(), is(0));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void failsToConstructWithInvalidBackoffRatio() {
+    new ConcurrencyLimiter(4, 2, 8, LATENCY_THRESHOLD_NANOS, 1.0, null, nanoClock::get);
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.mapper;
+
+import com.codahale.metrics.MetricRegistry;
+import com.ysheng.auth.frontend.mapper.InternalExceptionMapper;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.exception.ClientNotFoundException;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.mapper.InternalExceptionMapper}.
+ */
+public class InternalExceptionMapperTest {
+
+  @Test
+  public void succeedsToMapAndCountException() {
+    MetricRegistry metricRegistry = new MetricRegistry();
+    InternalExceptionMapper mapper = new InternalExceptionMapper(metricRegistry);
+
+    Response response = mapper.toResponse(new ClientNotFoundException("clientId"));
+
+    assertThat(response.getStatus(), is(Response.Status.NOT_FOUND.getStatusCode()));
+    assertThat(((ExternalException) response.getEntity()).getErrorCode(), equalTo("CLIENT_NOT_FOUND"));
+    assertThat(metricRegistry.counter("errors.client-not-found").getCount(), is(1L));
+    assertThat(metricRegistry.counter("errors.invalid-request").getCount(), is(0L));
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ysheng.auth.backend.metrics.LogLinearReservoir;
+import com.ysheng.auth.frontend.metrics.PrometheusServlet;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.metrics.PrometheusServlet}.
+ */
+public class PrometheusServletTest {
+
+  @Test
+  public void succeedsToSanitizeName() {
+    assertThat(PrometheusServlet.sanitize("client-cache.hits"), equalTo("client_cache_hits"));
+    assertThat(PrometheusServlet.sanitize("1xx-responses"), equalTo("_1xx_responses"));
+  }
+
+  @Test
+  public void succeedsToWriteMetrics() {
+    MetricRegistry metricRegistry = new MetricRegistry();
+    metricRegistry.register("client-cache.size", (Gauge<Integer>) () -> 3);
+    metricRegistry.register("client-cache.ratio", (Gauge<Double>) () -> 0.25);
+    metricRegistry.register("jvm.threads.deadlocks", (Gauge<String>) () -> "none");
+    metricRegistry.counter("errors.client-not-found").inc(2);
+    metricRegistry.meter("requests").mark(5);
+    Timer timer = metricRegistry.timer("database.findClientById");
+    timer.update(2, TimeUnit.SECONDS);
+    Timer logLinearTimer = LogLinearReservoir.timer(metricRegistry, "ClientResource.get");
+    logLinearTimer.update(1, TimeUnit.SECONDS);
+    logLinearTimer.update(500, TimeUnit.MILLISECONDS);
+
+    StringWriter writer = new StringWriter();
+    new PrometheusServlet(metricRegistry).write(writer);
+    String output = writer.toString();
+
+    assertThat(output, containsString("# TYPE client_cache_size gauge\nclient_cache_size 3\n"));
+    assertThat(output, containsString("client_cache_ratio 0.25\n"));
+    assertThat(output, not(containsString("jvm_threads_deadlocks")));
+    assertThat(output, containsString("# TYPE errors_client_not_found_total counter\nerrors_client_not_found_total 2\n"));
+    assertThat(output, containsString("# TYPE requests_total counter\nrequests_total 5\n"));
+    assertThat(output, containsString("# TYPE database_findClientById_seconds summary\n"));
+    assertThat(output, containsString("database_findClientById_seconds{quantile=\"0.999\"} 2\n"));
+    assertThat(output, containsString("database_findClientById_seconds_count 1\n"));
+    assertThat(output, not(containsString("database_findClientById_seconds_sum")));
+    assertThat(output, containsString("ClientResource_get_seconds_sum 1.5\nClientResource_get_seconds_count 2\n"));
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.ysheng.auth.core.ClientService;
+import com.ysheng.auth.frontend.metrics.ResourceTimingFeature;
+import com.ysheng.auth.frontend.resource.client.ClientResource;
+import com.ysheng.auth.frontend.resource.route.ClientRoute;
+import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.api.exception.ClientNotFoundException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import javax.ws.rs.core.UriBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.metrics.ResourceTimingFeature}.
+ */
+public class ResourceTimingFeatureTest {
+
+  // The name of the timer of the resource method.
+  private static final String TIMER_NAME = ClientResource.class.getName() + ".get";
+
+  // The helper related to resource test.
+  private ResourceTestHelper testHelper;
+
+  // The client service that performs client related operations.
+  private ClientService clientService;
+
+  // The metric registry.
+  private MetricRegistry metricRegistry;
+
+  // The client route.
+  private String clientRoute = UriBuilder.fromPath(ClientRoute.CLIENT_PATH).build("clientId").toString();
+
+  @BeforeMethod
+  public void setUpTest() throws Throwable {
+    clientService = mock(ClientService.class);
+    metricRegistry = new MetricRegistry();
+
+    testHelper = new ResourceTestHelper();
+    testHelper.addResource(new ClientResource(clientService));
+    testHelper.addResource(new ResourceTimingFeature(metricRegistry));
+    testHelper.setup();
+  }
+
+  @AfterMethod
+  public void tearDownTest() throws Throwable {
+    testHelper.destroy();
+  }
+
+  @Test
+  public void succeedsToTimeSuspendedResponse() throws Throwable {
+    // The response is resumed 50 milliseconds after the resource method returns.
+    doAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new Client();
+    })).when(clientService).getAsync(anyString());
+
+    testHelper.get(clientRoute, Client.class);
+
+    Timer timer = metricRegistry.getTimers().get(TIMER_NAME);
+    assertThat(timer.getCount(), is(1L));
+    assertThat(timer.getSnapshot().getMax(), greaterThan(TimeUnit.MILLISECONDS.toNanos(45)));
+  }
+
+  @Test
+  public void succeedsToTimeFailedRequest() throws Throwable {
+    doReturn(ResourceTestHelper.failedFuture(new ClientNotFoundException("clientId")))
+        .when(clientService).getAsync(anyString());
+
+    testHelper.get(clientRoute, ExternalException.class);
+
+    assertThat(metricRegistry.getTimers().get(TIMER_NAME).getCount(), is(1L));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.ratelimit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.core.ClientService;
+import com.ysheng.auth.frontend.configuration.RateLimit;
+import com.ysheng.auth.frontend.ratelimit.RateLimitFeature;
+import com.ysheng.auth.frontend.ratelimit.RateLimiter;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+import com.ysheng.auth.frontend.resource.client.ClientResource;
+import com.ysheng.auth.frontend.resource.client.ClientsResource;
+import com.ysheng.auth.frontend.resource.route.ClientRoute;
+import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
+import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.api.exception.ErrorType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.ratelimit.RateLimitFeature}.
+ */
+public class RateLimitFeatureTest {
+
+  // The helper related to resource test.
+  private ResourceTestHelper testHelper;
+
+  // The client service that performs client related operations.
+  private ClientService clientService;
+
+  // The metric registry.
+  private MetricRegistry metricRegistry;
+
+  // The client route.
+  private String clientRoute = UriBuilder.fromPath(ClientRoute.CLIENT_PATH).build("clientId").toString();
+
+  @BeforeMethod
+  public void setUpTest() throws Throwable {
+    clientService = mock(ClientService.class);
+    metricRegistry = new MetricRegistry();
+
+    // Every client may read one entity, and then one more every 100 seconds.
+    Map<EndpointClass, RateLimit> defaultLimits = new EnumMap<>(EndpointClass.class);
+    defaultLimits.put(EndpointClass.READ, new RateLimit(0.01, 1));
+    defaultLimits.put(EndpointClass.LIST, new RateLimit(0.01, 1));
+    RateLimiter rateLimiter = new RateLimiter(
+        mock(Database.class), defaultLimits, Collections.emptyMap(), 10000L, 0L, 100, System::nanoTime);
+
+    testHelper = new ResourceTestHelper();
+    testHelper.addResource(new ClientResource(clientService));
+    testHelper.addResource(new ClientsResource(clientService));
+    testHelper.addResource(new RateLimitFeature(rateLimiter, metricRegistry));
+    testHelper.setup();
+  }
+
+  @AfterMethod
+  public void tearDownTest() throws Throwable {
+    testHelper.destroy();
+  }
+
+  @Test
+  public void succeedsToRejectRequestOverLimit() throws Throwable {
+    doReturn(CompletableFuture.completedFuture(new Client())).when(clientService).getAsync(anyString());
+
+    Response admitted = testHelper.target(clientRoute).request().get();
+    assertThat(admitted.getStatus(), is(Response.Status.OK.getStatusCode()));
+
+    Response rejected = testHelper.target(clientRoute).request().get();
+    assertThat(rejected.getStatus(), is(429));
+    assertThat(rejected.getHeaderString(HttpHeaders.RETRY_AFTER), equalTo("100"));
+    assertThat(rejected.readEntity(ExternalException.class).getErrorCode(),
+        equalTo(ErrorType.TOO_MANY_REQUESTS.name()));
+
+    verify(clientService, times(1)).getAsync("clientId");
+    assertThat(metricRegistry.meter("rate-limit.read.rejected").getCount(), is(1L));
+  }
+
+  @Test
+  public void succeedsToAdmitRequestWithoutClientId() throws Throwable {
+    doReturn(new ApiList<Client>()).when(clientService).list(anyString(), anyInt());
+
+    for (int i = 0; i < 3; ++i) {
+      Response response = testHelper.target(ClientRoute.CLIENTS_PATH).queryParam("cursor", "0").request().get();
+      assertThat(response.getStatus(), is(Response.Status.OK.getStatusCode()));
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.ratelimit;
+
+import com.ysheng.auth.backend.Database;
+import com.ysheng.auth.frontend.configuration.RateLimit;
+import com.ysheng.auth.frontend.ratelimit.RateLimiter;
+import com.ysheng.auth.frontend.resource.EndpointClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.ratelimit.RateLimiter}.
+ */
+public class RateLimiterTest {
+
+  // The length of the window in milliseconds.
+  private static final long WINDOW_MILLIS = 10000L;
+
+  // The maximum number of buckets of the clients without limits of their own.
+  private static final int MAX_BUCKETS = 2;
+
+  private Database database;
+
+  private AtomicLong nanoClock;
+
+  private RateLimiter rateLimiter;
+
+  @BeforeMethod
+  public void setUp() {
+    database = mock(Database.class);
+    nanoClock = new AtomicLong();
+
+    Map<EndpointClass, RateLimit> defaultLimits = new EnumMap<>(EndpointClass.class);
+    defaultLimits.put(EndpointClass.WRITE, new RateLimit(1.0, 2));
+    Map<EndpointClass, RateLimit> trustedLimits = new EnumMap<>(EndpointClass.class);
+    trustedLimits.put(EndpointClass.WRITE, new RateLimit(1.0, 3));
+
+    rateLimiter = new RateLimiter(
+        database,
+        defaultLimits,
+        Collections.singletonMap("trustedClientId", trustedLimits),
+        WINDOW_MILLIS,
+        0L,
+        MAX_BUCKETS,
+        nanoClock::get);
+  }
+
+  @Test
+  public void succeedsToLimitEachClient() {
+    assertThat(rateLimiter.tryAcquire("clientId", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("clientId", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("clientId", EndpointClass.WRITE), greaterThan(0L));
+
+    assertThat(rateLimiter.tryAcquire("otherClientId", EndpointClass.WRITE), is(0L));
+
+    assertThat(rateLimiter.tryAcquire("trustedClientId", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("trustedClientId", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("trustedClientId", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("trustedClientId", EndpointClass.WRITE), greaterThan(0L));
+  }
+
+  @Test
+  public void succeedsToAdmitEndpointClassWithoutLimit() {
+    for (int i = 0; i < 10; ++i) {
+      assertThat(rateLimiter.tryAcquire("clientId", EndpointClass.READ), is(0L));
+    }
+
+    assertThat(rateLimiter.getBucketCount(), is(0));
+  }
+
+  @Test
+  public void succeedsToShareBucketBeyondMaxBuckets() {
+    assertThat(rateLimiter.tryAcquire("clientId1", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("clientId2", EndpointClass.WRITE), is(0L));
+
+    // The other clients share one bucket once there are as many buckets as allowed.
+    assertThat(rateLimiter.tryAcquire("clientId3", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("clientId4", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("clientId5", EndpointClass.WRITE), greaterThan(0L));
+    assertThat(rateLimiter.getBucketCount(), is(3));
+
+    // The clients that already have a bucket, or limits of their own, keep their own buckets.
+    assertThat(rateLimiter.tryAcquire("clientId1", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.tryAcquire("trustedClientId", EndpointClass.WRITE), is(0L));
+    assertThat(rateLimiter.getBucketCount(), is(4));
+  }
+
+  @Test
+  public void succeedsToReconcileAdmittedRequests() {
+    doReturn(Collections.singletonMap("clientId:write", 2.0))
+        .when(database).addRateLimitCounts(anyMap(), anyLong());
+    rateLimiter.tryAcquire("clientId", EndpointClass.WRITE);
+    rateLimiter.tryAcquire("clientId", EndpointClass.WRITE);
+
+    rateLimiter.reconcile();
+    verify(database).addRateLimitCounts(Collections.singletonMap("clientId:write", 2L), WINDOW_MILLIS);
+
+    // A bucket without new requests that is not throttled is not reconciled.
+    rateLimiter.reconcile();
+    verify(database).addRateLimitCounts(anyMap(), anyLong());
+  }
+
+  @Test
+  public void succeedsToReconcileBucketsInOneBatch() {
+    Map<String, Double> globalCounts = new HashMap<>();
+    globalCounts.put("clientId:write", 1.0);
+    globalCounts.put("trustedClientId:write", 2.0);
+    doReturn(globalCounts).when(database).addRateLimitCounts(anyMap(), anyLong());
+    rateLimiter.tryAcquire("clientId", EndpointClass.WRITE);
+    rateLimiter.tryAcquire("trustedClientId", EndpointClass.WRITE);
+    rateLimiter.tryAcquire("trustedClientId", EndpointClass.WRITE);
+
+    rateLimiter.reconcile();
+
+    Map<String, Long> pendingCounts = new HashMap<>();
+    pendingCounts.put("clientId:write", 1L);
+    pendingCounts.put("trustedClientId:write", 2L);
+    verify(database).addRateLimitCounts(pendingCounts, WINDOW_MILLIS);
+  }
+
+  @Test
+  public void succeedsToRetryFailedReconciliation() {
+    doThrow(new RuntimeException("Redis is down"))
+        .when(database).addRateLimitCounts(anyMap(), anyLong());
+    rateLimiter.tryAcquire("clientId", EndpointClass.WRITE);
+
+    rateLimiter.reconcile();
+    assertThat(rateLimiter.getReconcileFailureCount(), is(1L));
+
+    doReturn(Collections.singletonMap("clientId:write", 1.0))
+        .when(database).addRateLimitCounts(anyMap(), anyLong());
+    rateLimiter.tryAcquire("clientId", EndpointClass.WRITE);
+    rateLimiter.reconcile();
+    verify(database).addRateLimitCounts(Collections.singletonMap("clientId:write", 2L), WINDOW_MILLIS);
+  }
+
+  @Test
+  public void succeedsToDropIdleBucket() {
+    doReturn(Collections.singletonMap("clientId:write", 1.0))
+        .when(database).addRateLimitCounts(anyMap(), anyLong());
+    rateLimiter.tryAcquire("clientId", EndpointClass.WRITE);
+    rateLimiter.reconcile();
+    assertThat(rateLimiter.getBucketCount(), is(1));
+
+    nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(2 * WINDOW_MILLIS));
+    rateLimiter.reconcile();
+    assertThat(rateLimiter.getBucketCount(), is(0));
+    verify(database, times(1)).addRateLimitCounts(anyMap(), anyLong());
+  }
+}
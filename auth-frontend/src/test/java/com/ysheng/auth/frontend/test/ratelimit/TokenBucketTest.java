@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.ratelimit;
+
+import com.ysheng.auth.frontend.ratelimit.TokenBucket;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.ratelimit.TokenBucket}.
+ */
+public class TokenBucketTest {
+
+  // The length of the window in nanoseconds.
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  @Test
+  public void succeedsToAdmitBurstAndRefill() {
+    TokenBucket bucket = new TokenBucket(10.0, 2, WINDOW_NANOS, 0L);
+
+    assertThat(bucket.tryAcquire(0L), is(0L));
+    assertThat(bucket.tryAcquire(0L), is(0L));
+
+    // One token takes a tenth of a second to refill.
+    assertThat(bucket.tryAcquire(0L), is(TimeUnit.MILLISECONDS.toNanos(100)));
+    assertThat(bucket.tryAcquire(TimeUnit.MILLISECONDS.toNanos(100)), is(0L));
+    assertThat(bucket.takePendingCount(), is(3L));
+    assertThat(bucket.takePendingCount(), is(0L));
+  }
+
+  @Test
+  public void succeedsToThrottleToShareOfLimit() {
+    TokenBucket bucket = new TokenBucket(10.0, 100, WINDOW_NANOS, 0L);
+    for (int i = 0; i < 50; ++i) {
+      bucket.tryAcquire(0L);
+    }
+
+    // All instances together admitted 200 requests, over the budget of 100
+    // requests per window, of which this instance admitted a quarter.
+    bucket.reconcile(200.0, 0L);
+    assertThat(bucket.isThrottled(), is(true));
+    assertThat(bucket.getRate(), closeTo(2.5, 0.001));
+
+    bucket.reconcile(80.0, 0L);
+    assertThat(bucket.isThrottled(), is(false));
+    assertThat(bucket.getRate(), closeTo(10.0, 0.001));
+  }
+
+  @Test
+  public void succeedsToRejectWithoutRate() {
+    TokenBucket bucket = new TokenBucket(10.0, 1, WINDOW_NANOS, 0L);
+    bucket.reconcile(1000.0, 0L);
+
+    assertThat(bucket.tryAcquire(0L), is(0L));
+    assertThat(bucket.tryAcquire(TimeUnit.SECONDS.toNanos(5)), is(WINDOW_NANOS));
+  }
+
+  @Test
+  public void succeedsToBecomeIdle() {
+    TokenBucket bucket = new TokenBucket(10.0, 1, WINDOW_NANOS, 0L);
+    bucket.tryAcquire(0L);
+
+    assertThat(bucket.isIdle(WINDOW_NANOS, WINDOW_NANOS), is(false));
+    bucket.takePendingCount();
+    assertThat(bucket.isIdle(WINDOW_NANOS, WINDOW_NANOS - 1), is(false));
+    assertThat(bucket.isIdle(WINDOW_NANOS, WINDOW_NANOS), is(true));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.frontend.test.resource;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.servlet.ServletContainer;
+import org.glassfish.jersey.test.DeploymentContext;
+import org.glassfish.jersey.test.spi.TestContainer;
+import org.glassfish.jersey.test.spi.TestContainerException;
+import org.glassfish.jersey.test.spi.TestContainerFactory;
+
+import javax.ws.rs.core.UriBuilder;
+
+import java.net.URI;
+
+/**
+ * Defines the factory of test containers that serve the resources with an
+ * embedded Jetty server on a free port. Unlike the in-memory container, it
+ * supports suspended responses, like the Jetty server of the service does.
+ */
+public class JettyTestContainerFactory implements TestContainerFactory {
+
+  @Override
+  public TestContainer create(URI baseUri, DeploymentContext deploymentContext) {
+    return new JettyTestContainer(baseUri, deploymentContext);
+  }
+
+  private static class JettyTestContainer implements TestContainer {
+
+    // The base URI of the resources, whose port is the one that the server listens on.
+    private URI baseUri;
+
+    // The servlet that serves the resources.
+    private final ServletHolder servletHolder;
+
+    // The Jetty server.
+    private Server server;
+
+    JettyTestContainer(URI baseUri, DeploymentContext deploymentContext) {
+      this.baseUri = baseUri;
+      this.servletHolder = new ServletHolder(new ServletContainer(deploymentContext.getResourceConfig()));
+      this.servletHolder.setAsyncSupported(true);
+    }
+
+    @Override
+    public ClientConfig getClientConfig() {
+      return null;
+    }
+
+    @Override
+    public URI getBaseUri() {
+      return baseUri;
+    }
+
+    @Override
+    public void start() {
+      ServletContextHandler handler = new ServletContextHandler();
+      handler.addServlet(servletHolder, "/*");
+
+      server = new Server(0);
+      server.setHandler(handler);
+
+      try {
+        server.start();
+      } catch (Exception ex) {
+        throw new TestContainerException(ex);
+      }
+
+      baseUri = UriBuilder.fromUri(baseUri)
+          .port(((ServerConnector) server.getConnectors()[0]).getLocalPort())
+          .build();
+    }
+
+    @Override
+    public void stop() {
+      try {
+        server.stop();
+      } catch (Exception ex) {
+        throw new TestContainerException(ex);
+      }
+    }
+  }
+}
@@ -22,17 +22,18 @@ import org.glassfish.jersey.servlet.ServletProperties;
 import org.glassfish.jersey.test.DeploymentContext;
 import org.glassfish.jersey.test.JerseyTest;
 import org.glassfish.jersey.test.ServletDeploymentContext;
-import org.glassfish.jersey.test.inmemory.InMemoryTestContainerFactory;
 import org.glassfish.jersey.test.spi.TestContainerException;
 import org.glassfish.jersey.test.spi.TestContainerFactory;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Defines the base class for resource tests.
@@ -60,13 +61,17 @@ public class ResourceTestHelper {
     return test.client();
   }
 
+  public WebTarget target(String path) {
+    return test.client().target(test.target().getUri().resolve(path));
+  }
+
   public void setup() throws Exception {
     singletons.add(new InternalExceptionMapper());
 
     test = new JerseyTest() {
       @Override
       protected TestContainerFactory getTestContainerFactory() throws TestContainerException {
-        return new InMemoryTestContainerFactory();
+        return new JettyTestContainerFactory();
       }
 
       @Override
@@ -106,8 +111,7 @@ public class ResourceTestHelper {
       String path,
       R request,
       Class<T> responseType) {
-    return getClient()
-        .target(path)
+    return target(path)
         .request()
         .post(Entity.entity(request, MediaType.APPLICATION_JSON_TYPE))
         .readEntity(responseType);
@@ -116,8 +120,7 @@ public class ResourceTestHelper {
   public <R> void post(
       String path,
       R request) {
-    getClient()
-        .target(path)
+    target(path)
         .request()
         .post(Entity.entity(request, MediaType.APPLICATION_JSON_TYPE));
   }
@@ -125,8 +128,7 @@ public class ResourceTestHelper {
   public <T> T get(
       String path,
       Class<T> responseType) {
-    return getClient()
-        .target(path)
+    return target(path)
         .request()
         .get()
         .readEntity(responseType);
@@ -135,10 +137,15 @@ public class ResourceTestHelper {
   public <T> T get(
       String path,
       GenericType<T> responseType) {
-    return getClient()
-        .target(path)
+    return target(path)
         .request()
         .get()
         .readEntity(responseType);
   }
+
+  public static <T> CompletableFuture<T> failedFuture(Throwable ex) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(ex);
+    return future;
+  }
 }
@@ -16,15 +16,29 @@ package com.ysheng.auth.frontend.test.resource;
 import com.ysheng.auth.frontend.resource.ResponseBuilder;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.client.Client;
+import com.ysheng.auth.model.api.exception.ErrorType;
+import com.ysheng.auth.model.api.exception.InternalException;
+import com.ysheng.auth.model.api.exception.InvalidRequestException;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Tests for {@link com.ysheng.auth.frontend.resource.ResponseBuilder}.
  */
@@ -44,6 +58,56 @@ public class ResponseBuilderTest {
     }
   }
 
+  @Test
+  public void succeedsToResumeWithResult() {
+    AsyncResponse asyncResponse = mock(AsyncResponse.class);
+    Client client = new Client();
+
+    ResponseBuilder.resume(asyncResponse, Response.Status.OK, CompletableFuture.completedFuture(client), 500L);
+
+    ArgumentCaptor<Response> responseCaptor = ArgumentCaptor.forClass(Response.class);
+    verify(asyncResponse).setTimeout(500L, TimeUnit.MILLISECONDS);
+    verify(asyncResponse).resume(responseCaptor.capture());
+    assertThat(responseCaptor.getValue().getStatus(), equalTo(Response.Status.OK.getStatusCode()));
+    assertThat(responseCaptor.getValue().getEntity(), sameInstance(client));
+  }
+
+  @Test
+  public void succeedsToResumeWithException() {
+    AsyncResponse asyncResponse = mock(AsyncResponse.class);
+    CompletableFuture<Client> future = new CompletableFuture<>();
+    InvalidRequestException exception = new InvalidRequestException("Invalid request");
+
+    ResponseBuilder.resume(asyncResponse, Response.Status.OK, future);
+    future.completeExceptionally(exception);
+
+    verify(asyncResponse).resume(exception);
+  }
+
+  @Test
+  public void succeedsToResumeRejectedOperationAsTemporaryUnavailable() {
+    AsyncResponse asyncResponse = mock(AsyncResponse.class);
+    CompletableFuture<Client> future = new CompletableFuture<>();
+
+    ResponseBuilder.resume(asyncResponse, Response.Status.OK, future);
+    future.completeExceptionally(new RejectedExecutionException());
+
+    verifyResumedAsTemporaryUnavailable(asyncResponse);
+  }
+
+  @Test
+  public void succeedsToResumeTimedOutOperationAsTemporaryUnavailable() {
+    AsyncResponse asyncResponse = mock(AsyncResponse.class);
+
+    ResponseBuilder.resume(asyncResponse, Response.Status.OK, new CompletableFuture<Client>(), 500L);
+
+    ArgumentCaptor<TimeoutHandler> timeoutHandlerCaptor = ArgumentCaptor.forClass(TimeoutHandler.class);
+    verify(asyncResponse).setTimeoutHandler(timeoutHandlerCaptor.capture());
+    timeoutHandlerCaptor.getValue().handleTimeout(asyncResponse);
+
+    verifyResumedAsTemporaryUnavailable(asyncResponse);
+  }
+
   @DataProvider(name = "ResponseEntity")
   public Object[][] provideResponseEntity() {
     return new Object[][] {
@@ -52,4 +116,13 @@ public class ResponseBuilderTest {
         { new ApiList<Client>() }
     };
   }
+
+  private static void verifyResumedAsTemporaryUnavailable(AsyncResponse asyncResponse) {
+    ArgumentCaptor<Throwable> exceptionCaptor = ArgumentCaptor.forClass(Throwable.class);
+    verify(asyncResponse).resume(exceptionCaptor.capture());
+    assertThat(exceptionCaptor.getValue(), instanceOf(InternalException.class));
+    assertThat(
+        ((InternalException) exceptionCaptor.getValue()).getErrorCode(),
+        equalTo(ErrorType.TEMPORARY_UNAVAILABLE.name()));
+  }
 }
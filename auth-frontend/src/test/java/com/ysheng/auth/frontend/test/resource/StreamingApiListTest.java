@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.resource;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.ysheng.auth.frontend.resource.StreamingApiList;
+import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.client.Client;
+import io.dropwizard.jackson.Jackson;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.resource.StreamingApiList}.
+ */
+public class StreamingApiListTest {
+
+  @Test
+  public void succeedsToWriteItems() throws Throwable {
+    Client client1 = new Client();
+    client1.setId("clientId1");
+    Client client2 = new Client();
+    client2.setId("clientId2");
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new StreamingApiList<>(Arrays.asList(client1, client2).iterator()).write(outputStream);
+
+    ApiList<Client> clients = Jackson.newObjectMapper().readValue(
+        outputStream.toByteArray(),
+        new TypeReference<ApiList<Client>>() {});
+
+    assertThat(clients.getItems().size(), is(2));
+    assertThat(clients.getItems().get(0).getId(), equalTo("clientId1"));
+    assertThat(clients.getItems().get(1).getId(), equalTo("clientId2"));
+    assertThat(clients.getNextCursor(), nullValue());
+  }
+
+  @Test
+  public void succeedsToWriteNoItems() throws Throwable {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new StreamingApiList<>(Collections.emptyIterator()).write(outputStream);
+
+    assertThat(outputStream.toString("UTF-8"), equalTo("{\"items\":[]}"));
+  }
+}
@@ -35,6 +35,8 @@ import static org.mockito.Mockito.mock;
 
 import javax.ws.rs.core.UriBuilder;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Tests for {@link com.ysheng.auth.frontend.resource.authcode.AccessTokenResource}.
  */
@@ -81,7 +83,7 @@ public class AccessTokenResourceTest {
     response.setClientId(clientId);
     response.setAccessToken(accessToken);
 
-    doReturn(response).when(authCodeGrantService).getAccessToken(anyString(), anyString());
+    doReturn(CompletableFuture.completedFuture(response)).when(authCodeGrantService).getAccessTokenAsync(anyString(), anyString());
 
     AccessToken actualResponse = testHelper.get(
         accessTokenRoute,
@@ -95,7 +97,7 @@ public class AccessTokenResourceTest {
   public void failsToGet() throws Throwable {
     InvalidRequestException error = new InvalidRequestException("Invalid request");
 
-    doThrow(error).when(authCodeGrantService).getAccessToken(anyString(), anyString());
+    doReturn(ResourceTestHelper.failedFuture(error)).when(authCodeGrantService).getAccessTokenAsync(anyString(), anyString());
 
     ExternalException actualError =  testHelper.get(
         accessTokenRoute,
@@ -16,6 +16,7 @@ package com.ysheng.auth.frontend.test.resource.authcode;
 import com.ysheng.auth.core.AuthCodeGrantService;
 import com.ysheng.auth.frontend.resource.authcode.AccessTokensResource;
 import com.ysheng.auth.frontend.resource.route.AuthCodeRoute;
+import com.ysheng.auth.frontend.resource.route.BaseRoute;
 import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.ExternalException;
@@ -29,8 +30,10 @@ import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -39,6 +42,7 @@ import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.UriBuilder;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Tests for {@link com.ysheng.auth.frontend.resource.authcode.AccessTokensResource}.
@@ -78,8 +82,8 @@ public class AccessTokensResourceTest {
     AccessToken response = new AccessToken();
     response.setAccessToken("accessToken");
 
-    doReturn(response).when(authCodeGrantService)
-        .issueAccessToken(anyString(), any(AccessTokenIssueSpec.class));
+    doReturn(CompletableFuture.completedFuture(response)).when(authCodeGrantService)
+        .issueAccessTokenAsync(anyString(), any(AccessTokenIssueSpec.class));
 
     AccessToken actualResponse = testHelper.post(
         accessTokensRoute,
@@ -94,8 +98,8 @@ public class AccessTokensResourceTest {
     AccessTokenIssueSpec request = new AccessTokenIssueSpec();
     InvalidRequestException error = new InvalidRequestException("Invalid request");
 
-    doThrow(error).when(authCodeGrantService)
-        .issueAccessToken(anyString(), any(AccessTokenIssueSpec.class));
+    doReturn(ResourceTestHelper.failedFuture(error)).when(authCodeGrantService)
+        .issueAccessTokenAsync(anyString(), any(AccessTokenIssueSpec.class));
 
     ExternalException actualError = testHelper.post(
         accessTokensRoute,
@@ -110,7 +114,7 @@ public class AccessTokensResourceTest {
   public void succeedsToList() throws Throwable {
     ApiList<AccessToken> response = new ApiList<>(Arrays.asList(new AccessToken()));
 
-    doReturn(response).when(authCodeGrantService).listAccessTokens(anyString());
+    doReturn(response.getItems().iterator()).when(authCodeGrantService).iterateAccessTokens(anyString());
 
     ApiList<AccessToken> actualResponse = testHelper.get(
         accessTokensRoute,
@@ -119,11 +123,39 @@ public class AccessTokensResourceTest {
     assertThat(actualResponse.getItems().size(), is(1));
   }
 
+  @Test
+  public void succeedsToListPage() throws Throwable {
+    ApiList<AccessToken> response = new ApiList<>(Arrays.asList(new AccessToken()), "nextCursor");
+
+    doReturn(response).when(authCodeGrantService).listAccessTokens(anyString(), eq("cursor"), eq(10));
+
+    ApiList<AccessToken> actualResponse = testHelper.get(
+        accessTokensRoute + "?cursor=cursor&limit=10",
+        new GenericType<ApiList<AccessToken>>() {});
+
+    assertThat(actualResponse.getItems().size(), is(1));
+    assertThat(actualResponse.getNextCursor(), equalTo("nextCursor"));
+  }
+
+  @Test
+  public void succeedsToListPageWithDefaultLimit() throws Throwable {
+    ApiList<AccessToken> response = new ApiList<>(Arrays.asList(new AccessToken()));
+
+    doReturn(response).when(authCodeGrantService).listAccessTokens(anyString(), eq("cursor"), eq(BaseRoute.DEFAULT_LIMIT));
+
+    ApiList<AccessToken> actualResponse = testHelper.get(
+        accessTokensRoute + "?cursor=cursor",
+        new GenericType<ApiList<AccessToken>>() {});
+
+    assertThat(actualResponse.getItems().size(), is(1));
+    assertThat(actualResponse.getNextCursor(), nullValue());
+  }
+
   @Test
   public void failsToList() throws Throwable {
     ClientNotFoundException error = new ClientNotFoundException("clientId");
 
-    doThrow(error).when(authCodeGrantService).listAccessTokens(anyString());
+    doThrow(error).when(authCodeGrantService).iterateAccessTokens(anyString());
 
     ExternalException actualError = testHelper.get(
         accessTokensRoute,
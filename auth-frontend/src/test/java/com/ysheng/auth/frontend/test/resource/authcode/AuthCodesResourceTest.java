@@ -16,6 +16,7 @@ package com.ysheng.auth.frontend.test.resource.authcode;
 import com.ysheng.auth.core.AuthCodeGrantService;
 import com.ysheng.auth.frontend.resource.authcode.AuthCodesResource;
 import com.ysheng.auth.frontend.resource.route.AuthCodeRoute;
+import com.ysheng.auth.frontend.resource.route.BaseRoute;
 import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
 import com.ysheng.auth.model.api.ApiList;
 import com.ysheng.auth.model.api.ExternalException;
@@ -29,8 +30,10 @@ import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -108,7 +111,7 @@ public class AuthCodesResourceTest {
   public void succeedsToList() throws Throwable {
     ApiList<AuthorizationTicket> response = new ApiList<>(Arrays.asList(new AuthorizationTicket()));
 
-    doReturn(response).when(authCodeGrantService).listAuthorizationTickets(anyString());
+    doReturn(response.getItems().iterator()).when(authCodeGrantService).iterateAuthorizationTickets(anyString());
 
     ApiList<AuthorizationTicket> actualResponse = testHelper.get(
         authorizationRoute,
@@ -117,11 +120,39 @@ public class AuthCodesResourceTest {
     assertThat(actualResponse.getItems().size(), is(1));
   }
 
+  @Test
+  public void succeedsToListPage() throws Throwable {
+    ApiList<AuthorizationTicket> response = new ApiList<>(Arrays.asList(new AuthorizationTicket()), "nextCursor");
+
+    doReturn(response).when(authCodeGrantService).listAuthorizationTickets(anyString(), eq("cursor"), eq(10));
+
+    ApiList<AuthorizationTicket> actualResponse = testHelper.get(
+        authorizationRoute + "?cursor=cursor&limit=10",
+        new GenericType<ApiList<AuthorizationTicket>>() {});
+
+    assertThat(actualResponse.getItems().size(), is(1));
+    assertThat(actualResponse.getNextCursor(), equalTo("nextCursor"));
+  }
+
+  @Test
+  public void succeedsToListPageWithDefaultLimit() throws Throwable {
+    ApiList<AuthorizationTicket> response = new ApiList<>(Arrays.asList(new AuthorizationTicket()));
+
+    doReturn(response).when(authCodeGrantService).listAuthorizationTickets(anyString(), eq("cursor"), eq(BaseRoute.DEFAULT_LIMIT));
+
+    ApiList<AuthorizationTicket> actualResponse = testHelper.get(
+        authorizationRoute + "?cursor=cursor",
+        new GenericType<ApiList<AuthorizationTicket>>() {});
+
+    assertThat(actualResponse.getItems().size(), is(1));
+    assertThat(actualResponse.getNextCursor(), nullValue());
+  }
+
   @Test
   public void failsToList() throws Throwable {
     ClientNotFoundException error = new ClientNotFoundException("clientId");
 
-    doThrow(error).when(authCodeGrantService).listAuthorizationTickets(anyString());
+    doThrow(error).when(authCodeGrantService).iterateAuthorizationTickets(anyString());
 
     ExternalException actualError = testHelper.get(
         authorizationRoute,
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.frontend.test.resource.authcode;
+
+import com.ysheng.auth.core.AuthCodeGrantService;
+import com.ysheng.auth.frontend.resource.authcode.BulkAccessTokensResource;
+import com.ysheng.auth.frontend.resource.route.AuthCodeRoute;
+import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.authcode.AccessTokenBulkRevokeSpec;
+import com.ysheng.auth.model.api.exception.InvalidRequestException;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import javax.ws.rs.core.UriBuilder;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.resource.authcode.BulkAccessTokensResource}.
+ */
+public class BulkAccessTokensResourceTest {
+
+  // The helper related to resource test.
+  private ResourceTestHelper testHelper;
+
+  // The auth code grant service that performs backend operations.
+  private AuthCodeGrantService authCodeGrantService;
+
+  // The client identifier.
+  private String clientId = "clientId";
+
+  // The bulk access token revocation route.
+  private String revokeAccessTokensRoute =
+      UriBuilder.fromPath(AuthCodeRoute.BULK_ACCESS_TOKENS_PATH + AuthCodeRoute.REVOKE_ACCESS_TOKENS_ACTION)
+          .build(clientId).toString();
+
+  @BeforeMethod
+  public void setUpTest() throws Throwable {
+    authCodeGrantService = mock(AuthCodeGrantService.class);
+
+    testHelper = new ResourceTestHelper();
+    testHelper.addResource(new BulkAccessTokensResource(authCodeGrantService));
+    testHelper.setup();
+  }
+
+  @AfterMethod
+  public void tearDownTest() throws Throwable {
+    testHelper.destroy();
+  }
+
+  @Test
+  public void succeedsToRevoke() throws Throwable {
+    AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+    request.setAll(true);
+
+    testHelper.post(
+        revokeAccessTokensRoute,
+        request);
+
+    ArgumentCaptor<AccessTokenBulkRevokeSpec> requestCaptor = ArgumentCaptor.forClass(AccessTokenBulkRevokeSpec.class);
+    verify(authCodeGrantService).revokeAccessTokens(eq(clientId), requestCaptor.capture());
+    assertThat(requestCaptor.getValue().isAll(), is(true));
+  }
+
+  @Test
+  public void failsToRevoke() throws Throwable {
+    InvalidRequestException error = new InvalidRequestException("Either access tokens or all must be given");
+
+    doThrow(error).when(authCodeGrantService)
+        .revokeAccessTokens(anyString(), any(AccessTokenBulkRevokeSpec.class));
+
+    ExternalException actualError = testHelper.post(
+        revokeAccessTokensRoute,
+        new AccessTokenBulkRevokeSpec(),
+        ExternalException.class);
+
+    assertThat(actualError.getErrorCode(), equalTo(error.getErrorCode()));
+    assertThat(actualError.getErrorDescription(), equalTo(error.getErrorDescription()));
+  }
+}
@@ -36,6 +36,9 @@ import static org.mockito.Mockito.mock;
 
 import javax.ws.rs.core.UriBuilder;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * Tests for {@link com.ysheng.auth.frontend.resource.client.ClientResource}.
  */
@@ -77,7 +80,7 @@ public class ClientResourceTest {
     Client client = new Client();
     client.setId("clientId");
 
-    doReturn(client).when(clientService).get(anyString());
+    doReturn(CompletableFuture.completedFuture(client)).when(clientService).getAsync(anyString());
 
     Client actualClient = testHelper.get(
         clientRoute,
@@ -90,7 +93,7 @@ public class ClientResourceTest {
   public void failsToGet() throws Throwable {
     ClientNotFoundException error = new ClientNotFoundException("clientId");
 
-    doThrow(error).when(clientService).get(anyString());
+    doReturn(ResourceTestHelper.failedFuture(error)).when(clientService).getAsync(anyString());
 
     ExternalException actualError = testHelper.get(
         clientRoute,
@@ -99,6 +102,36 @@ public class ClientResourceTest {
     assertThat(actualError.getErrorDescription(), equalTo(error.getErrorDescription()));
   }
 
+  @Test
+  public void succeedsToGetOnAnotherThread() throws Throwable {
+    Client client = new Client();
+    client.setId("clientId");
+
+    doReturn(CompletableFuture.supplyAsync(() -> client)).when(clientService).getAsync(anyString());
+
+    Client actualClient = testHelper.get(
+        clientRoute,
+        Client.class);
+
+    assertThat(actualClient.getId(), equalTo(client.getId()));
+  }
+
+  @Test
+  public void failsToGetOnAnotherThread() throws Throwable {
+    ClientNotFoundException error = new ClientNotFoundException("clientId");
+
+    doReturn(CompletableFuture.supplyAsync(() -> {
+      throw new CompletionException(error);
+    })).when(clientService).getAsync(anyString());
+
+    ExternalException actualError = testHelper.get(
+        clientRoute,
+        ExternalException.class);
+
+    assertThat(actualError.getErrorCode(), equalTo(error.getErrorCode()));
+    assertThat(actualError.getErrorDescription(), equalTo(error.getErrorDescription()));
+  }
+
   @Test
   public void succeedsToUnregister() throws Throwable {
     ClientUnregistrationSpec request = new ClientUnregistrationSpec();
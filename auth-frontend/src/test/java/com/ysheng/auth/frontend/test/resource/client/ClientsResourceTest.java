@@ -15,6 +15,7 @@ package com.ysheng.auth.frontend.test.resource.client;
 
 import com.ysheng.auth.core.ClientService;
 import com.ysheng.auth.frontend.resource.client.ClientsResource;
+import com.ysheng.auth.frontend.resource.route.BaseRoute;
 import com.ysheng.auth.frontend.resource.route.ClientRoute;
 import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
 import com.ysheng.auth.model.api.ApiList;
@@ -29,6 +30,7 @@ import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -104,7 +106,7 @@ public class ClientsResourceTest {
     client2.setId("clientId2");
     ApiList<Client> clientList = new ApiList<>(Arrays.asList(client1, client2));
 
-    doReturn(clientList).when(clientService).list();
+    doReturn(clientList.getItems().iterator()).when(clientService).iterate();
 
     ApiList<Client> actualClientList = testHelper.get(
         ClientRoute.CLIENTS_PATH,
@@ -116,4 +118,34 @@ public class ClientsResourceTest {
     assertThat(actualClientList.getItems().get(1).getId(),
         equalTo(clientList.getItems().get(1).getId()));
   }
+
+  @Test
+  public void succeedsToListPage() throws Throwable {
+    Client client = new Client();
+    client.setId("clientId");
+    ApiList<Client> clientList = new ApiList<>(Arrays.asList(client), "nextCursor");
+
+    doReturn(clientList).when(clientService).list(eq("cursor"), eq(10));
+
+    ApiList<Client> actualClientList = testHelper.get(
+        ClientRoute.CLIENTS_PATH + "?cursor=cursor&limit=10",
+        new GenericType<ApiList<Client>>(){});
+
+    assertThat(actualClientList.getItems().size(), equalTo(1));
+    assertThat(actualClientList.getItems().get(0).getId(), equalTo(client.getId()));
+    assertThat(actualClientList.getNextCursor(), equalTo("nextCursor"));
+  }
+
+  @Test
+  public void succeedsToListPageWithDefaultLimit() throws Throwable {
+    ApiList<Client> clientList = new ApiList<>(Arrays.asList(new Client()));
+
+    doReturn(clientList).when(clientService).list(eq(null), eq(BaseRoute.DEFAULT_LIMIT));
+
+    ApiList<Client> actualClientList = testHelper.get(
+        ClientRoute.CLIENTS_PATH + "?limit=" + BaseRoute.DEFAULT_LIMIT,
+        new GenericType<ApiList<Client>>(){});
+
+    assertThat(actualClientList.getItems().size(), equalTo(1));
+  }
 }
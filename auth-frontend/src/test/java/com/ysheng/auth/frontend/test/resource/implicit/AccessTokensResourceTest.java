@@ -15,6 +15,7 @@ package com.ysheng.auth.frontend.test.resource.implicit;
 
 import com.ysheng.auth.core.ImplicitGrantService;
 import com.ysheng.auth.frontend.resource.implicit.AccessTokensResource;
+import com.ysheng.auth.frontend.resource.route.BaseRoute;
 import com.ysheng.auth.frontend.resource.route.ImplicitRoute;
 import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
 import com.ysheng.auth.model.api.ApiList;
@@ -29,8 +30,10 @@ import org.testng.annotations.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -39,6 +42,7 @@ import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.UriBuilder;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Tests for {@link com.ysheng.auth.frontend.resource.implicit.AccessTokensResource}.
@@ -78,8 +82,8 @@ public class AccessTokensResourceTest {
     AccessToken response = new AccessToken();
     response.setAccessToken("accessToken");
 
-    doReturn(response).when(implicitGrantService)
-        .issueAccessToken(anyString(), any(AuthorizationGrantSpec.class));
+    doReturn(CompletableFuture.completedFuture(response)).when(implicitGrantService)
+        .issueAccessTokenAsync(anyString(), any(AuthorizationGrantSpec.class));
 
     AccessToken actualResponse = testHelper.post(
         accessTokensRoute,
@@ -94,8 +98,8 @@ public class AccessTokensResourceTest {
     AuthorizationGrantSpec request = new AuthorizationGrantSpec();
     InvalidRequestException error = new InvalidRequestException("Invalid request");
 
-    doThrow(error).when(implicitGrantService)
-        .issueAccessToken(anyString(), any(AuthorizationGrantSpec.class));
+    doReturn(ResourceTestHelper.failedFuture(error)).when(implicitGrantService)
+        .issueAccessTokenAsync(anyString(), any(AuthorizationGrantSpec.class));
 
     ExternalException actualError = testHelper.post(
         accessTokensRoute,
@@ -110,7 +114,7 @@ public class AccessTokensResourceTest {
   public void succeedsToList() throws Throwable {
     ApiList<AccessToken> response = new ApiList<>(Arrays.asList(new AccessToken()));
 
-    doReturn(response).when(implicitGrantService).listAccessTokens(anyString());
+    doReturn(response.getItems().iterator()).when(implicitGrantService).iterateAccessTokens(anyString());
 
     ApiList<AccessToken> actualResponse = testHelper.get(
         accessTokensRoute,
@@ -119,11 +123,39 @@ public class AccessTokensResourceTest {
     assertThat(actualResponse.getItems().size(), is(1));
   }
 
+  @Test
+  public void succeedsToListPage() throws Throwable {
+    ApiList<AccessToken> response = new ApiList<>(Arrays.asList(new AccessToken()), "nextCursor");
+
+    doReturn(response).when(implicitGrantService).listAccessTokens(anyString(), eq("cursor"), eq(10));
+
+    ApiList<AccessToken> actualResponse = testHelper.get(
+        accessTokensRoute + "?cursor=cursor&limit=10",
+        new GenericType<ApiList<AccessToken>>() {});
+
+    assertThat(actualResponse.getItems().size(), is(1));
+    assertThat(actualResponse.getNextCursor(), equalTo("nextCursor"));
+  }
+
+  @Test
+  public void succeedsToListPageWithDefaultLimit() throws Throwable {
+    ApiList<AccessToken> response = new ApiList<>(Arrays.asList(new AccessToken()));
+
+    doReturn(response).when(implicitGrantService).listAccessTokens(anyString(), eq("cursor"), eq(BaseRoute.DEFAULT_LIMIT));
+
+    ApiList<AccessToken> actualResponse = testHelper.get(
+        accessTokensRoute + "?cursor=cursor",
+        new GenericType<ApiList<AccessToken>>() {});
+
+    assertThat(actualResponse.getItems().size(), is(1));
+    assertThat(actualResponse.getNextCursor(), nullValue());
+  }
+
   @Test
   public void failsToList() throws Throwable {
     ClientNotFoundException error = new ClientNotFoundException("clientId");
 
-    doThrow(error).when(implicitGrantService).listAccessTokens(anyString());
+    doThrow(error).when(implicitGrantService).iterateAccessTokens(anyString());
 
     ExternalException actualError = testHelper.get(
         accessTokensRoute,
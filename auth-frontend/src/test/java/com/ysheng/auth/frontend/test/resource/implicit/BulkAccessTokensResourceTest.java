@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.frontend.test.resource.implicit;
+
+import com.ysheng.auth.core.ImplicitGrantService;
+import com.ysheng.auth.frontend.resource.implicit.BulkAccessTokensResource;
+import com.ysheng.auth.frontend.resource.route.ImplicitRoute;
+import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
+import com.ysheng.auth.model.api.ApiList;
+import com.ysheng.auth.model.api.ExternalException;
+import com.ysheng.auth.model.api.exception.ClientUnauthorizedException;
+import com.ysheng.auth.model.api.exception.InvalidRequestException;
+import com.ysheng.auth.model.api.implicit.AccessToken;
+import com.ysheng.auth.model.api.implicit.AccessTokenBulkRevokeSpec;
+import com.ysheng.auth.model.api.implicit.BulkAuthorizationGrantSpec;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.UriBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.resource.implicit.BulkAccessTokensResource}.
+ */
+public class BulkAccessTokensResourceTest {
+
+  // The helper related to resource test.
+  private ResourceTestHelper testHelper;
+
+  // The implicit grant service that performs backend operations.
+  private ImplicitGrantService implicitGrantService;
+
+  // The client identifier.
+  private String clientId = "clientId";
+
+  // The bulk access tokens route.
+  private String bulkAccessTokensRoute =
+      UriBuilder.fromPath(ImplicitRoute.BULK_ACCESS_TOKENS_PATH).build(clientId).toString();
+
+  // The bulk access token revocation route.
+  private String revokeAccessTokensRoute =
+      UriBuilder.fromPath(ImplicitRoute.BULK_ACCESS_TOKENS_PATH + ImplicitRoute.REVOKE_ACCESS_TOKENS_ACTION)
+          .build(clientId).toString();
+
+  @BeforeMethod
+  public void setUpTest() throws Throwable {
+    implicitGrantService = mock(ImplicitGrantService.class);
+
+    testHelper = new ResourceTestHelper();
+    testHelper.addResource(new BulkAccessTokensResource(implicitGrantService));
+    testHelper.setup();
+  }
+
+  @AfterMethod
+  public void tearDownTest() throws Throwable {
+    testHelper.destroy();
+  }
+
+  @Test
+  public void succeedsToIssue() throws Throwable {
+    AccessToken accessToken1 = new AccessToken();
+    accessToken1.setAccessToken("accessToken1");
+    AccessToken accessToken2 = new AccessToken();
+    accessToken2.setAccessToken("accessToken2");
+
+    doReturn(new ApiList<>(Arrays.asList(accessToken1, accessToken2))).when(implicitGrantService)
+        .issueAccessTokens(anyString(), any(BulkAuthorizationGrantSpec.class));
+
+    BulkAuthorizationGrantSpec request = new BulkAuthorizationGrantSpec();
+    request.setCount(2);
+
+    ApiList<AccessToken> actualResponse = testHelper.target(bulkAccessTokensRoute)
+        .request()
+        .post(javax.ws.rs.client.Entity.json(request))
+        .readEntity(new GenericType<ApiList<AccessToken>>() {});
+
+    assertThat(actualResponse.getItems().size(), is(2));
+    assertThat(actualResponse.getItems().get(1).getAccessToken(), equalTo("accessToken2"));
+
+    ArgumentCaptor<BulkAuthorizationGrantSpec> requestCaptor = ArgumentCaptor.forClass(BulkAuthorizationGrantSpec.class);
+    verify(implicitGrantService).issueAccessTokens(eq(clientId), requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getCount(), is(2));
+  }
+
+  @Test
+  public void failsToIssue() throws Throwable {
+    InvalidRequestException error = new InvalidRequestException("Invalid count: 0");
+
+    doThrow(error).when(implicitGrantService)
+        .issueAccessTokens(anyString(), any(BulkAuthorizationGrantSpec.class));
+
+    ExternalException actualError = testHelper.post(
+        bulkAccessTokensRoute,
+        new BulkAuthorizationGrantSpec(),
+        ExternalException.class);
+
+    assertThat(actualError.getErrorCode(), equalTo(error.getErrorCode()));
+    assertThat(actualError.getErrorDescription(), equalTo(error.getErrorDescription()));
+  }
+
+  @Test
+  public void succeedsToRevoke() throws Throwable {
+    AccessTokenBulkRevokeSpec request = new AccessTokenBulkRevokeSpec();
+    request.setAccessTokens(Arrays.asList("accessToken1", "accessToken2"));
+
+    testHelper.post(
+        revokeAccessTokensRoute,
+        request);
+
+    ArgumentCaptor<AccessTokenBulkRevokeSpec> requestCaptor = ArgumentCaptor.forClass(AccessTokenBulkRevokeSpec.class);
+    verify(implicitGrantService).revokeAccessTokens(eq(clientId), requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getAccessTokens(), contains("accessToken1", "accessToken2"));
+  }
+
+  @Test
+  public void failsToRevoke() throws Throwable {
+    ClientUnauthorizedException error = new ClientUnauthorizedException(clientId);
+
+    doThrow(error).when(implicitGrantService)
+        .revokeAccessTokens(anyString(), any(AccessTokenBulkRevokeSpec.class));
+
+    ExternalException actualError = testHelper.post(
+        revokeAccessTokensRoute,
+        new AccessTokenBulkRevokeSpec(),
+        ExternalException.class);
+
+    assertThat(actualError.getErrorCode(), equalTo(error.getErrorCode()));
+    assertThat(actualError.getErrorDescription(), equalTo(error.getErrorDescription()));
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.trace;
+
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Trace;
+import com.ysheng.auth.frontend.trace.TraceCollector;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.trace.TraceCollector}.
+ */
+public class TraceCollectorTest {
+
+  private Logger exportLogger;
+
+  private AtomicLong clock;
+
+  @BeforeMethod
+  public void setUp() {
+    exportLogger = mock(Logger.class);
+    doReturn(true).when(exportLogger).isInfoEnabled();
+    clock = new AtomicLong(1000L);
+  }
+
+  @Test
+  public void succeedsToKeepSlowestTraces() {
+    TraceCollector collector = new TraceCollector(2, 60000L, 0.0, Long.MAX_VALUE, exportLogger, () -> 1.0, clock::get);
+
+    collector.collect(trace("fast", 1L));
+    collector.collect(trace("slowest", 30L));
+    collector.collect(trace("medium", 10L));
+    collector.collect(trace("slow", 20L));
+
+    assertThat(names(collector.getSlowestTraces()), contains("slowest", "slow"));
+  }
+
+  @Test
+  public void succeedsToDropTracesOfOldWindows() {
+    TraceCollector collector = new TraceCollector(2, 60000L, 0.0, Long.MAX_VALUE, exportLogger, () -> 1.0, clock::get);
+
+    collector.collect(trace("previous", 30L));
+    clock.addAndGet(60000L);
+    collector.collect(trace("current", 10L));
+    assertThat(names(collector.getSlowestTraces()), contains("previous", "current"));
+
+    clock.addAndGet(60000L);
+    assertThat(names(collector.getSlowestTraces()), contains("current"));
+
+    clock.addAndGet(120000L);
+    assertThat(collector.getSlowestTraces().isEmpty(), is(true));
+  }
+
+  @Test
+  public void succeedsToExportSampledAndSlowTraces() {
+    TraceCollector sampling = new TraceCollector(2, 60000L, 0.5, Long.MAX_VALUE, exportLogger, () -> 0.25, clock::get);
+    sampling.collect(trace("sampled", 1L));
+    verify(exportLogger).info(anyString());
+
+    Logger slowLogger = mock(Logger.class);
+    doReturn(true).when(slowLogger).isInfoEnabled();
+    TraceCollector thresholding = new TraceCollector(
+        2, 60000L, 0.0, TimeUnit.MILLISECONDS.toNanos(10L), slowLogger, () -> 1.0, clock::get);
+    thresholding.collect(trace("fast", 1L));
+    verify(slowLogger, never()).info(anyString());
+    thresholding.collect(trace("slow", 20L));
+    ArgumentCaptor<String> exported = ArgumentCaptor.forClass(String.class);
+    verify(slowLogger, times(1)).info(exported.capture());
+    assertThat(exported.getValue(), containsString("\"name\":\"slow\""));
+  }
+
+  @Test
+  public void succeedsToRenderTrace() {
+    Trace trace = new Trace("traceId", "GET ClientResource.get");
+    Span resource = trace.getRoot().startChild("ClientResource.get");
+    resource.startChild("database.findClientById").end();
+    resource.end();
+    trace.getRoot().end();
+    trace.setStatus(200);
+
+    Map<String, Object> rendered = TraceCollector.render(trace);
+    assertThat(rendered.get("traceId"), equalTo("traceId"));
+    assertThat(rendered.get("name"), equalTo("GET ClientResource.get"));
+    assertThat(rendered.get("status"), equalTo(200));
+
+    Map<?, ?> root = (Map<?, ?>) rendered.get("root");
+    assertThat(root.get("name"), equalTo("request"));
+    Map<?, ?> child = (Map<?, ?>) ((List<?>) root.get("children")).get(0);
+    assertThat(child.get("name"), equalTo("ClientResource.get"));
+    Map<?, ?> grandchild = (Map<?, ?>) ((List<?>) child.get("children")).get(0);
+    assertThat(grandchild.get("name"), equalTo("database.findClientById"));
+    assertThat(grandchild.containsKey("children"), is(false));
+  }
+
+  private Trace trace(String name, long durationMillis) {
+    Trace trace = mock(Trace.class);
+    doReturn(name).when(trace).getName();
+    doReturn("traceId").when(trace).getTraceId();
+    doReturn(TimeUnit.MILLISECONDS.toNanos(durationMillis)).when(trace).getDurationNanos();
+    doReturn(new Span("request")).when(trace).getRoot();
+    return trace;
+  }
+
+  private List<String> names(List<Trace> traces) {
+    return traces.stream().map(Trace::getName).collect(Collectors.toList());
+  }
+}
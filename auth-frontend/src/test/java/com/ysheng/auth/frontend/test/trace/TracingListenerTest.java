@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.frontend.test.trace;
+
+import com.ysheng.auth.backend.trace.Span;
+import com.ysheng.auth.backend.trace.Trace;
+import com.ysheng.auth.backend.trace.Tracer;
+import com.ysheng.auth.core.ClientService;
+import com.ysheng.auth.frontend.resource.client.ClientResource;
+import com.ysheng.auth.frontend.resource.route.ClientRoute;
+import com.ysheng.auth.frontend.test.resource.ResourceTestHelper;
+import com.ysheng.auth.frontend.trace.TraceCollector;
+import com.ysheng.auth.frontend.trace.TracingListener;
+import com.ysheng.auth.model.api.ApiHeader;
+import com.ysheng.auth.model.api.client.Client;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link com.ysheng.auth.frontend.trace.TracingListener}.
+ */
+public class TracingListenerTest {
+
+  // The helper related to resource test.
+  private ResourceTestHelper testHelper;
+
+  // The client service that performs client related operations.
+  private ClientService clientService;
+
+  // The collector of the finished traces.
+  private TraceCollector traceCollector;
+
+  // The span that is current while the client service runs.
+  private AtomicReference<Span> serviceSpan;
+
+  // The client route.
+  private String clientRoute = UriBuilder.fromPath(ClientRoute.CLIENT_PATH).build("clientId").toString();
+
+  @BeforeMethod
+  public void setUpTest() throws Throwable {
+    clientService = mock(ClientService.class);
+    traceCollector = mock(TraceCollector.class);
+    serviceSpan = new AtomicReference<>();
+
+    doAnswer(invocation -> {
+      serviceSpan.set(Tracer.current());
+      return CompletableFuture.completedFuture(new Client());
+    }).when(clientService).getAsync(anyString());
+
+    testHelper = new ResourceTestHelper();
+    testHelper.addResource(new ClientResource(clientService));
+    testHelper.addResource(new TracingListener(traceCollector));
+    testHelper.setup();
+  }
+
+  @AfterMethod
+  public void tearDownTest() throws Throwable {
+    testHelper.destroy();
+  }
+
+  @Test
+  public void succeedsToTraceRequestInPhases() {
+    Response response = testHelper.target(clientRoute).request().header(ApiHeader.TRACE_ID, "callerTraceId").get();
+    assertThat(response.getStatus(), is(Response.Status.OK.getStatusCode()));
+    assertThat(response.getHeaderString(ApiHeader.TRACE_ID), equalTo("callerTraceId"));
+
+    Trace trace = collectTrace();
+    assertThat(trace.getTraceId(), equalTo("callerTraceId"));
+    assertThat(trace.getName(), equalTo("GET ClientResource.get"));
+    assertThat(trace.getStatus(), is(Response.Status.OK.getStatusCode()));
+    assertThat(trace.getDurationNanos(), greaterThanOrEqualTo(0L));
+
+    assertThat(
+        trace.getRoot().getChildren().stream().map(Span::getName).collect(Collectors.toList()),
+        contains(
+            "jersey.match",
+            "jersey.request-filters",
+            "ClientResource.get",
+            "jersey.response-filters",
+            "jersey.write"));
+    for (Span span : trace.getRoot().getChildren()) {
+      assertThat(span.getName(), span.getDurationNanos(), greaterThanOrEqualTo(0L));
+    }
+
+    // The span of the resource method is current while the method calls the service.
+    assertThat(serviceSpan.get(), sameInstance(trace.getRoot().getChildren().get(2)));
+  }
+
+  @Test
+  public void succeedsToGenerateTraceIdForInvalidHeader() {
+    Response response = testHelper.target(clientRoute).request().header(ApiHeader.TRACE_ID, "invalid trace id").get();
+
+    String traceId = response.getHeaderString(ApiHeader.TRACE_ID);
+    assertThat(traceId.matches("[0-9a-f]{32}"), is(true));
+    assertThat(collectTrace().getTraceId(), equalTo(traceId));
+  }
+
+  @Test
+  public void succeedsToGenerateTraceIdWithoutHeader() {
+    Response first = testHelper.target(clientRoute).request().get();
+    Response second = testHelper.target(clientRoute).request().get();
+
+    assertThat(first.getHeaderString(ApiHeader.TRACE_ID).matches("[0-9a-f]{32}"), is(true));
+    assertThat(first.getHeaderString(ApiHeader.TRACE_ID), not(equalTo(second.getHeaderString(ApiHeader.TRACE_ID))));
+  }
+
+  ///
+  /// Helper functions.
+  ///
+
+  private Trace collectTrace() {
+    // The trace is collected once the response is written, which may be
+    // after the client reads it.
+    ArgumentCaptor<Trace> traceCaptor = ArgumentCaptor.forClass(Trace.class);
+    verify(traceCollector, timeout(10000)).collect(traceCaptor.capture());
+    return traceCaptor.getValue();
+  }
+}
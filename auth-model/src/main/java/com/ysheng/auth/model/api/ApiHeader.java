@@ -0,0 +1,27 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package com.ysheng.auth.model.api;
+
+/**
+ * Defines the constant HTTP headers of the API, which the service and its
+ * clients share.
+ */
+public class ApiHeader {
+
+  // The header that carries the trace identifier of a request, so that the
+  // request is traced by the service as part of the trace of the caller, and
+  // that the response echoes.
+  public static final String TRACE_ID = "X-Trace-Id";
+}
@@ -14,6 +14,7 @@
 package com.ysheng.auth.model.api;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -28,6 +29,12 @@ public class ApiList<T> {
   @JsonProperty
   private List<T> items;
 
+  // The cursor to retrieve the next page of API objects. It is null
+  // if this is the last page.
+  @JsonProperty
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String nextCursor;
+
   /**
    * Constructs an ApiList object.
    * Note that this constructor is implemented to make Jackson
@@ -45,6 +52,19 @@ public class ApiList<T> {
     this.items = items;
   }
 
+  /**
+   * Constructs an ApiList object that represents a page of API objects.
+   *
+   * @param items The list of API objects.
+   * @param nextCursor The cursor to retrieve the next page, or null if this is the last page.
+   */
+  public ApiList(
+      List<T> items,
+      String nextCursor) {
+    this.items = items;
+    this.nextCursor = nextCursor;
+  }
+
   ///
   /// Getters and Setters.
   ///
@@ -56,4 +76,12 @@ public class ApiList<T> {
   public void setItems(List<T> items) {
     this.items = items;
   }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.api.authcode;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Defines the data structure of bulk access token revocation request. Either
+ * the access tokens are listed, or all access tokens of the client are revoked.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AccessTokenBulkRevokeSpec {
+
+  // The client secret.
+  @JsonProperty
+  private String clientSecret;
+
+  // The access tokens to be revoked, if not all of them are.
+  @JsonProperty
+  private List<String> accessTokens;
+
+  // Whether all access tokens of the client are revoked.
+  @JsonProperty
+  private boolean all;
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public String getClientSecret() {
+    return clientSecret;
+  }
+
+  public void setClientSecret(String clientSecret) {
+    this.clientSecret = clientSecret;
+  }
+
+  public List<String> getAccessTokens() {
+    return accessTokens;
+  }
+
+  public void setAccessTokens(List<String> accessTokens) {
+    this.accessTokens = accessTokens;
+  }
+
+  public boolean isAll() {
+    return all;
+  }
+
+  public void setAll(boolean all) {
+    this.all = all;
+  }
+}
@@ -44,6 +44,10 @@ public class AuthorizationTicket {
   @JsonProperty
   private String state;
 
+  // The lifetime in seconds of the authorization code.
+  @JsonProperty
+  private Long expiresIn;
+
   ///
   /// Getters and Setters.
   ///
@@ -87,4 +91,12 @@ public class AuthorizationTicket {
   public void setState(String state) {
     this.state = state;
   }
+
+  public Long getExpiresIn() {
+    return expiresIn;
+  }
+
+  public void setExpiresIn(Long expiresIn) {
+    this.expiresIn = expiresIn;
+  }
 }
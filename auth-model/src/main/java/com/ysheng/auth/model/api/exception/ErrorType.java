@@ -31,11 +31,12 @@ public enum ErrorType {
   GRANT_TYPE_UNSUPPORTED(Response.Status.BAD_REQUEST),
   INVALID_SCOPE(Response.Status.BAD_REQUEST),
   RESPONSE_TYPE_UNSUPPORTED(Response.Status.BAD_REQUEST),
-  ACCESS_TOKEN_NOT_FOUND(Response.Status.NOT_FOUND);
+  ACCESS_TOKEN_NOT_FOUND(Response.Status.NOT_FOUND),
+  TOO_MANY_REQUESTS(new HttpStatus(429, Response.Status.Family.CLIENT_ERROR, "Too Many Requests"));
 
-  private Response.Status httpStatus;
+  private Response.StatusType httpStatus;
 
-  ErrorType(Response.Status httpStatus) {
+  ErrorType(Response.StatusType httpStatus) {
     this.httpStatus = httpStatus;
   }
 
@@ -43,7 +44,51 @@ public enum ErrorType {
   /// Getters.
   ///
 
-  public Response.Status getHttpStatus() {
+  public Response.StatusType getHttpStatus() {
     return httpStatus;
   }
+
+  /**
+   * Defines an HTTP status that {@link Response.Status} does not have.
+   */
+  private static class HttpStatus implements Response.StatusType {
+
+    // The status code.
+    private final int statusCode;
+
+    // The class of the status code.
+    private final Response.Status.Family family;
+
+    // The reason phrase.
+    private final String reasonPhrase;
+
+    HttpStatus(
+        int statusCode,
+        Response.Status.Family family,
+        String reasonPhrase) {
+      this.statusCode = statusCode;
+      this.family = family;
+      this.reasonPhrase = reasonPhrase;
+    }
+
+    @Override
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    @Override
+    public Response.Status.Family getFamily() {
+      return family;
+    }
+
+    @Override
+    public String getReasonPhrase() {
+      return reasonPhrase;
+    }
+
+    @Override
+    public String toString() {
+      return reasonPhrase;
+    }
+  }
 }
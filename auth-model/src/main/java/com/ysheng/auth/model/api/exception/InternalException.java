@@ -39,7 +39,7 @@ public class InternalException extends Exception {
     this.errorDescription = errorDescription;
   }
 
-  public Response.Status getHttpStatusCode() {
+  public Response.StatusType getHttpStatusCode() {
     return error.getHttpStatus();
   }
 
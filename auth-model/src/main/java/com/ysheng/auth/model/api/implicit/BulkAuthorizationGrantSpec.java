@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.api.implicit;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines the data structure of authorization request for Implicit Grant that
+ * issues a number of access tokens at once.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BulkAuthorizationGrantSpec extends AuthorizationGrantSpec {
+
+  // REQUIRED. The number of access tokens to be issued.
+  @JsonProperty
+  private int count;
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount(int count) {
+    this.count = count;
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.configuration.backend;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines configuration related to the in-process access token cache.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AccessTokenCacheConfiguration {
+
+  // The maximum number of cached access tokens of each grant type, or zero to
+  // disable the cache.
+  @JsonProperty
+  private int maximumSize = 100000;
+
+  // The time to live of a cached access token in milliseconds. This bounds how
+  // long a node keeps validating a revoked or expired access token if it
+  // misses the invalidation.
+  @JsonProperty
+  private long ttlMillis = 1000L;
+
+  // The time to live of a cached unknown access token in milliseconds, or zero
+  // to not cache unknown access tokens.
+  @JsonProperty
+  private long negativeTtlMillis;
+
+  // The channel that carries the access token invalidations between nodes.
+  @JsonProperty
+  private String invalidationChannel = "auth-access-token-invalidation";
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public long getTtlMillis() {
+    return ttlMillis;
+  }
+
+  public void setTtlMillis(long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+  }
+
+  public long getNegativeTtlMillis() {
+    return negativeTtlMillis;
+  }
+
+  public void setNegativeTtlMillis(long negativeTtlMillis) {
+    this.negativeTtlMillis = negativeTtlMillis;
+  }
+
+  public String getInvalidationChannel() {
+    return invalidationChannel;
+  }
+
+  public void setInvalidationChannel(String invalidationChannel) {
+    this.invalidationChannel = invalidationChannel;
+  }
+}
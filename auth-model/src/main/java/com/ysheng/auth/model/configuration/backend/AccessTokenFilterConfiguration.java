@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.configuration.backend;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines configuration related to the in-process filter of issued access tokens.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AccessTokenFilterConfiguration {
+
+  // Whether to rule out unknown access tokens with the filter.
+  @JsonProperty
+  private boolean enabled = true;
+
+  // The number of access tokens that a new filter is expected to hold. The
+  // filter grows past it as needed.
+  @JsonProperty
+  private int initialCapacity = 100000;
+
+  // The interval between rebuilds of the filter in seconds, which drops the
+  // expired access tokens, or zero to only build the filter at startup.
+  @JsonProperty
+  private long rebuildIntervalSeconds = 3600L;
+
+  // The maximum random delay of a rebuild in seconds, which spreads the
+  // rebuilds of the nodes, e.g. when they all reconnect after a failover.
+  @JsonProperty
+  private long rebuildJitterSeconds = 300L;
+
+  // The time in milliseconds after the last change from another node or the
+  // last reconnect within which access tokens that the filter rules out are
+  // still looked up, as the change that adds them may be on its way.
+  @JsonProperty
+  private long graceMillis = 1000L;
+
+  // The channel that carries the changes of the filter between nodes.
+  @JsonProperty
+  private String changeChannel = "auth-access-token-filter";
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getInitialCapacity() {
+    return initialCapacity;
+  }
+
+  public void setInitialCapacity(int initialCapacity) {
+    this.initialCapacity = initialCapacity;
+  }
+
+  public long getRebuildIntervalSeconds() {
+    return rebuildIntervalSeconds;
+  }
+
+  public void setRebuildIntervalSeconds(long rebuildIntervalSeconds) {
+    this.rebuildIntervalSeconds = rebuildIntervalSeconds;
+  }
+
+  public long getRebuildJitterSeconds() {
+    return rebuildJitterSeconds;
+  }
+
+  public void setRebuildJitterSeconds(long rebuildJitterSeconds) {
+    this.rebuildJitterSeconds = rebuildJitterSeconds;
+  }
+
+  public long getGraceMillis() {
+    return graceMillis;
+  }
+
+  public void setGraceMillis(long graceMillis) {
+    this.graceMillis = graceMillis;
+  }
+
+  public String getChangeChannel() {
+    return changeChannel;
+  }
+
+  public void setChangeChannel(String changeChannel) {
+    this.changeChannel = changeChannel;
+  }
+}
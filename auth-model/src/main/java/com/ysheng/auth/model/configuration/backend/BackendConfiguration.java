@@ -30,6 +30,18 @@ public class BackendConfiguration {
   @JsonProperty
   private RedisConfiguration redisConfiguration;
 
+  // Client cache specific configuration.
+  @JsonProperty
+  private ClientCacheConfiguration clientCacheConfiguration = new ClientCacheConfiguration();
+
+  // Access token cache specific configuration.
+  @JsonProperty
+  private AccessTokenCacheConfiguration accessTokenCacheConfiguration = new AccessTokenCacheConfiguration();
+
+  // Access token filter specific configuration.
+  @JsonProperty
+  private AccessTokenFilterConfiguration accessTokenFilterConfiguration = new AccessTokenFilterConfiguration();
+
   ///
   /// Getters and Setters.
   ///
@@ -49,4 +61,28 @@ public class BackendConfiguration {
   public void setRedisConfiguration(RedisConfiguration redisConfiguration) {
     this.redisConfiguration = redisConfiguration;
   }
+
+  public ClientCacheConfiguration getClientCacheConfiguration() {
+    return clientCacheConfiguration;
+  }
+
+  public void setClientCacheConfiguration(ClientCacheConfiguration clientCacheConfiguration) {
+    this.clientCacheConfiguration = clientCacheConfiguration;
+  }
+
+  public AccessTokenCacheConfiguration getAccessTokenCacheConfiguration() {
+    return accessTokenCacheConfiguration;
+  }
+
+  public void setAccessTokenCacheConfiguration(AccessTokenCacheConfiguration accessTokenCacheConfiguration) {
+    this.accessTokenCacheConfiguration = accessTokenCacheConfiguration;
+  }
+
+  public AccessTokenFilterConfiguration getAccessTokenFilterConfiguration() {
+    return accessTokenFilterConfiguration;
+  }
+
+  public void setAccessTokenFilterConfiguration(AccessTokenFilterConfiguration accessTokenFilterConfiguration) {
+    this.accessTokenFilterConfiguration = accessTokenFilterConfiguration;
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.configuration.backend;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines configuration related to the in-process client cache.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClientCacheConfiguration {
+
+  // The maximum number of cached clients, or zero to disable the cache.
+  @JsonProperty
+  private int maximumSize = 10000;
+
+  // The time to live of a cached client in seconds, which bounds how long a
+  // node serves a stale client if it misses an invalidation.
+  @JsonProperty
+  private long ttlSeconds = 60L;
+
+  // The time to live of a cached unknown client identifier in seconds, or zero
+  // to not cache unknown identifiers.
+  @JsonProperty
+  private long negativeTtlSeconds = 5L;
+
+  // The channel that carries the client invalidations between nodes.
+  @JsonProperty
+  private String invalidationChannel = "auth-client-invalidation";
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public long getTtlSeconds() {
+    return ttlSeconds;
+  }
+
+  public void setTtlSeconds(long ttlSeconds) {
+    this.ttlSeconds = ttlSeconds;
+  }
+
+  public long getNegativeTtlSeconds() {
+    return negativeTtlSeconds;
+  }
+
+  public void setNegativeTtlSeconds(long negativeTtlSeconds) {
+    this.negativeTtlSeconds = negativeTtlSeconds;
+  }
+
+  public String getInvalidationChannel() {
+    return invalidationChannel;
+  }
+
+  public void setInvalidationChannel(String invalidationChannel) {
+    this.invalidationChannel = invalidationChannel;
+  }
+}
@@ -28,22 +28,52 @@ public class RedisConfiguration {
   @JsonProperty
   private String connectionType;
 
-  // The address of the master node.
+  // The address of the master node. This is the "host" or "host:port" of the
+  // master for the simple connection, and the master name for the sentinel
+  // connection.
   @JsonProperty
   private String masterAddress;
 
   // The number of maximum connections.
   @JsonProperty
-  private int maxConnections;
+  private int maxConnections = 8;
 
   // The list of sentinels.
   @JsonProperty
   private Set<String> sentinels;
 
+  // The "host" or "host:port" addresses of the cluster nodes that are used to
+  // discover the cluster for the cluster connection.
+  @JsonProperty
+  private Set<String> clusterNodes;
+
   // Whether to block when connection is exhausted.
   @JsonProperty
   private boolean blockWhenExhausted;
 
+  // The number of minimum idle connections kept in the pool.
+  @JsonProperty
+  private int minIdle;
+
+  // The maximum time in milliseconds to wait for a connection when the pool
+  // is exhausted, or a negative value to wait indefinitely.
+  @JsonProperty
+  private long maxWaitMillis = -1L;
+
+  // Whether to validate a connection before it is borrowed from the pool.
+  @JsonProperty
+  private boolean testOnBorrow;
+
+  // The time in milliseconds between runs of the idle connection evictor,
+  // or a negative value to disable eviction.
+  @JsonProperty
+  private long timeBetweenEvictionRunsMillis = 30000L;
+
+  // How clients are stored, i.e. "string" for one encoded value per client,
+  // or "hash" for one hash field per client field.
+  @JsonProperty
+  private String clientStorageType = "string";
+
   ///
   /// Getters and Setters.
   ///
@@ -80,6 +110,14 @@ public class RedisConfiguration {
     this.sentinels = sentinels;
   }
 
+  public Set<String> getClusterNodes() {
+    return clusterNodes;
+  }
+
+  public void setClusterNodes(Set<String> clusterNodes) {
+    this.clusterNodes = clusterNodes;
+  }
+
   public boolean isBlockWhenExhausted() {
     return blockWhenExhausted;
   }
@@ -87,4 +125,44 @@ public class RedisConfiguration {
   public void setBlockWhenExhausted(boolean blockWhenExhausted) {
     this.blockWhenExhausted = blockWhenExhausted;
   }
+
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  public void setMinIdle(int minIdle) {
+    this.minIdle = minIdle;
+  }
+
+  public long getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  public void setMaxWaitMillis(long maxWaitMillis) {
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  public boolean isTestOnBorrow() {
+    return testOnBorrow;
+  }
+
+  public void setTestOnBorrow(boolean testOnBorrow) {
+    this.testOnBorrow = testOnBorrow;
+  }
+
+  public long getTimeBetweenEvictionRunsMillis() {
+    return timeBetweenEvictionRunsMillis;
+  }
+
+  public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
+    this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+  }
+
+  public String getClientStorageType() {
+    return clientStorageType;
+  }
+
+  public void setClientStorageType(String clientStorageType) {
+    this.clientStorageType = clientStorageType;
+  }
 }
@@ -25,7 +25,7 @@ public class AuthValueGeneratorConfiguration {
   // The default value generator type.
   private static final String DEFAULT_GENERATOR_TYPE = "UUID";
 
-  // Type of client ID generator.
+  // Type of client ID generator, which is the only one that may be UUID7.
   @JsonProperty
   private String clientIdGeneratorType = DEFAULT_GENERATOR_TYPE;
 
@@ -41,6 +41,16 @@ public class AuthValueGeneratorConfiguration {
   @JsonProperty
   private String accessTokenGeneratorType = DEFAULT_GENERATOR_TYPE;
 
+  // The number of random bytes in a value of the BASE64URL generator type,
+  // which is at least 16.
+  @JsonProperty
+  private int base64UrlGeneratorBytes = 32;
+
+  // The identifier of this node in the values of the UUID7 generator type,
+  // from 0 to 1023, or null to pick one at random.
+  @JsonProperty
+  private Integer nodeId;
+
   ///
   /// Getters and Setters.
   ///
@@ -76,4 +86,20 @@ public class AuthValueGeneratorConfiguration {
   public void setAccessTokenGeneratorType(String accessTokenGeneratorType) {
     this.accessTokenGeneratorType = accessTokenGeneratorType;
   }
+
+  public int getBase64UrlGeneratorBytes() {
+    return base64UrlGeneratorBytes;
+  }
+
+  public void setBase64UrlGeneratorBytes(int base64UrlGeneratorBytes) {
+    this.base64UrlGeneratorBytes = base64UrlGeneratorBytes;
+  }
+
+  public Integer getNodeId() {
+    return nodeId;
+  }
+
+  public void setNodeId(Integer nodeId) {
+    this.nodeId = nodeId;
+  }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.configuration.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines configuration related to the cleanup of unregistered clients, whose
+ * authorization tickets and access tokens are removed in the background.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClientCleanupConfiguration {
+
+  // Whether to remove the entities of unregistered clients in the background.
+  @JsonProperty
+  private boolean enabled = true;
+
+  // The interval between runs of the cleanup in seconds, which bounds how
+  // long the entities of an unregistered client stay before they start to be
+  // removed.
+  @JsonProperty
+  private long intervalSeconds = 10L;
+
+  // The maximum number of entities that are removed in one batch.
+  @JsonProperty
+  private int batchSize = 500;
+
+  // The maximum number of entities that are removed per second, which keeps
+  // the cleanup from adding to the latency of the database.
+  @JsonProperty
+  private int maxEntitiesPerSecond = 5000;
+
+  // The lifetime in milliseconds of the lease that an instance takes on the
+  // cleanup of a client, so that only one instance cleans up a client at a
+  // time. The lease is renewed after each batch, so it has to outlast a batch
+  // and the pause after it, and it lets another instance take over within
+  // this time if the instance that holds it stops.
+  @JsonProperty
+  private long leaseMillis = 30000L;
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getIntervalSeconds() {
+    return intervalSeconds;
+  }
+
+  public void setIntervalSeconds(long intervalSeconds) {
+    this.intervalSeconds = intervalSeconds;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public int getMaxEntitiesPerSecond() {
+    return maxEntitiesPerSecond;
+  }
+
+  public void setMaxEntitiesPerSecond(int maxEntitiesPerSecond) {
+    this.maxEntitiesPerSecond = maxEntitiesPerSecond;
+  }
+
+  public long getLeaseMillis() {
+    return leaseMillis;
+  }
+
+  public void setLeaseMillis(long leaseMillis) {
+    this.leaseMillis = leaseMillis;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.configuration.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Defines configuration related to the hashing and verification of client secrets.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClientCredentialConfiguration {
+
+  // The number of PBKDF2 iterations of a new client secret hash.
+  @JsonProperty
+  private int hashIterations = 100000;
+
+  // The maximum number of memoized verifications.
+  @JsonProperty
+  private int verificationCacheSize = 10000;
+
+  // The time in seconds a successful verification is memoized for.
+  @JsonProperty
+  private long verificationCacheTtlSeconds = 300L;
+
+  // The time in seconds a failed verification is memoized for, or zero to
+  // not memoize failed verifications.
+  @JsonProperty
+  private long verificationCacheNegativeTtlSeconds = 10L;
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public int getHashIterations() {
+    return hashIterations;
+  }
+
+  public void setHashIterations(int hashIterations) {
+    this.hashIterations = hashIterations;
+  }
+
+  public int getVerificationCacheSize() {
+    return verificationCacheSize;
+  }
+
+  public void setVerificationCacheSize(int verificationCacheSize) {
+    this.verificationCacheSize = verificationCacheSize;
+  }
+
+  public long getVerificationCacheTtlSeconds() {
+    return verificationCacheTtlSeconds;
+  }
+
+  public void setVerificationCacheTtlSeconds(long verificationCacheTtlSeconds) {
+    this.verificationCacheTtlSeconds = verificationCacheTtlSeconds;
+  }
+
+  public long getVerificationCacheNegativeTtlSeconds() {
+    return verificationCacheNegativeTtlSeconds;
+  }
+
+  public void setVerificationCacheNegativeTtlSeconds(long verificationCacheNegativeTtlSeconds) {
+    this.verificationCacheNegativeTtlSeconds = verificationCacheNegativeTtlSeconds;
+  }
+}
@@ -22,10 +22,55 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CoreConfiguration {
 
+  // The default lifetime in seconds of an authorization code.
+  public static final long DEFAULT_AUTH_CODE_LIFETIME_SECONDS = 600L;
+
+  // The default lifetime in seconds of an access token.
+  public static final long DEFAULT_ACCESS_TOKEN_LIFETIME_SECONDS = 3600L;
+
+  // The default maximum number of access tokens in a bulk request.
+  public static final int DEFAULT_MAX_BULK_ACCESS_TOKENS = 1000;
+
+  // The default maximum number of items in a page of a list.
+  public static final int DEFAULT_MAX_LIST_LIMIT = 1000;
+
   // The auth value generator configuration.
   @JsonProperty
   private AuthValueGeneratorConfiguration authValueGeneratorConfiguration;
 
+  // The lifetime in seconds of an authorization code of authorization code grant.
+  @JsonProperty
+  private long authCodeLifetimeSeconds = DEFAULT_AUTH_CODE_LIFETIME_SECONDS;
+
+  // The lifetime in seconds of an access token of authorization code grant.
+  @JsonProperty
+  private long accessTokenLifetimeSeconds = DEFAULT_ACCESS_TOKEN_LIFETIME_SECONDS;
+
+  // The lifetime in seconds of an access token of implicit grant.
+  @JsonProperty
+  private long implicitAccessTokenLifetimeSeconds = DEFAULT_ACCESS_TOKEN_LIFETIME_SECONDS;
+
+  // The maximum number of access tokens that a bulk request issues or revokes.
+  @JsonProperty
+  private int maxBulkAccessTokens = DEFAULT_MAX_BULK_ACCESS_TOKENS;
+
+  // The maximum number of items in a page of a list. A larger limit of a
+  // request is lowered to it.
+  @JsonProperty
+  private int maxListLimit = DEFAULT_MAX_LIST_LIMIT;
+
+  // The client credential configuration.
+  @JsonProperty
+  private ClientCredentialConfiguration clientCredentialConfiguration = new ClientCredentialConfiguration();
+
+  // The signed access token configuration.
+  @JsonProperty
+  private SignedAccessTokenConfiguration signedAccessTokenConfiguration = new SignedAccessTokenConfiguration();
+
+  // The client cleanup configuration.
+  @JsonProperty
+  private ClientCleanupConfiguration clientCleanupConfiguration = new ClientCleanupConfiguration();
+
   ///
   /// Getters and Setters.
   ///
@@ -37,4 +82,68 @@ public class CoreConfiguration {
   public void setAuthValueGeneratorConfiguration(AuthValueGeneratorConfiguration authValueGeneratorConfiguration) {
     this.authValueGeneratorConfiguration = authValueGeneratorConfiguration;
   }
+
+  public long getAuthCodeLifetimeSeconds() {
+    return authCodeLifetimeSeconds;
+  }
+
+  public void setAuthCodeLifetimeSeconds(long authCodeLifetimeSeconds) {
+    this.authCodeLifetimeSeconds = authCodeLifetimeSeconds;
+  }
+
+  public long getAccessTokenLifetimeSeconds() {
+    return accessTokenLifetimeSeconds;
+  }
+
+  public void setAccessTokenLifetimeSeconds(long accessTokenLifetimeSeconds) {
+    this.accessTokenLifetimeSeconds = accessTokenLifetimeSeconds;
+  }
+
+  public long getImplicitAccessTokenLifetimeSeconds() {
+    return implicitAccessTokenLifetimeSeconds;
+  }
+
+  public void setImplicitAccessTokenLifetimeSeconds(long implicitAccessTokenLifetimeSeconds) {
+    this.implicitAccessTokenLifetimeSeconds = implicitAccessTokenLifetimeSeconds;
+  }
+
+  public int getMaxBulkAccessTokens() {
+    return maxBulkAccessTokens;
+  }
+
+  public void setMaxBulkAccessTokens(int maxBulkAccessTokens) {
+    this.maxBulkAccessTokens = maxBulkAccessTokens;
+  }
+
+  public int getMaxListLimit() {
+    return maxListLimit;
+  }
+
+  public void setMaxListLimit(int maxListLimit) {
+    this.maxListLimit = maxListLimit;
+  }
+
+  public ClientCredentialConfiguration getClientCredentialConfiguration() {
+    return clientCredentialConfiguration;
+  }
+
+  public void setClientCredentialConfiguration(ClientCredentialConfiguration clientCredentialConfiguration) {
+    this.clientCredentialConfiguration = clientCredentialConfiguration;
+  }
+
+  public SignedAccessTokenConfiguration getSignedAccessTokenConfiguration() {
+    return signedAccessTokenConfiguration;
+  }
+
+  public void setSignedAccessTokenConfiguration(SignedAccessTokenConfiguration signedAccessTokenConfiguration) {
+    this.signedAccessTokenConfiguration = signedAccessTokenConfiguration;
+  }
+
+  public ClientCleanupConfiguration getClientCleanupConfiguration() {
+    return clientCleanupConfiguration;
+  }
+
+  public void setClientCleanupConfiguration(ClientCleanupConfiguration clientCleanupConfiguration) {
+    this.clientCleanupConfiguration = clientCleanupConfiguration;
+  }
 }
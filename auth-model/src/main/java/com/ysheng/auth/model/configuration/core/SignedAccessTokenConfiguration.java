@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Yu Sheng. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy of
+ * the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, without warranties or
+ * conditions of any kind, EITHER EXPRESS OR IMPLIED.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.ysheng.auth.model.configuration.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Defines configuration related to signed access tokens, which are validated
+ * without a database lookup.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SignedAccessTokenConfiguration {
+
+  // Whether to issue signed access tokens instead of random ones.
+  @JsonProperty
+  private boolean enabled = false;
+
+  // The identifier of the key that signs new access tokens.
+  @JsonProperty
+  private String keyId;
+
+  // The base64 encoded HMAC-SHA256 keys by their identifiers. Keys that no
+  // longer sign new access tokens are kept until the access tokens that they
+  // signed expire.
+  @JsonProperty
+  private Map<String, String> keys = new HashMap<>();
+
+  // The interval between reloads of the revocation list in seconds, which
+  // bounds how long an access token that is revoked on another node is still
+  // accepted.
+  @JsonProperty
+  private long revocationListRefreshSeconds = 5L;
+
+  ///
+  /// Getters and Setters.
+  ///
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getKeyId() {
+    return keyId;
+  }
+
+  public void setKeyId(String keyId) {
+    this.keyId = keyId;
+  }
+
+  public Map<String, String> getKeys() {
+    return keys;
+  }
+
+  public void setKeys(Map<String, String> keys) {
+    this.keys = keys;
+  }
+
+  public long getRevocationListRefreshSeconds() {
+    return revocationListRefreshSeconds;
+  }
+
+  public void setRevocationListRefreshSeconds(long revocationListRefreshSeconds) {
+    this.revocationListRefreshSeconds = revocationListRefreshSeconds;
+  }
+}